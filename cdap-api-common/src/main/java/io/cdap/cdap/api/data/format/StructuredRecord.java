@@ -22,6 +22,11 @@ import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.data.schema.Schema.LogicalType;
 import io.cdap.cdap.api.data.schema.SchemaCache;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -37,9 +42,11 @@ import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -48,24 +55,33 @@ import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 /**
- * Instance of a record structured by a {@link Schema}. Fields are accessible by name.
+ * Instance of a record structured by a {@link Schema}. Fields are accessible by name, or by the position of the
+ * field in {@link Schema#getFields()}. Values are stored in an array indexed by the field position.
  */
 @Beta
 public class StructuredRecord implements Serializable {
   private static final SimpleDateFormat DEFAULT_FORMAT = new SimpleDateFormat("YYYY-MM-DD'T'HH:mm:ss z");
 
-  private final Schema schema;
-  private final Map<String, Object> fields;
+  // Not final, so that they can be set by readObject
+  private Schema schema;
+  private Object[] values;
 
   private static final long serialVersionUID = -6547770456592865613L;
 
+  // The serialized form is a map from field name to value, as it was before the values were stored in an array,
+  // so that records serialized by earlier versions can still be deserialized.
+  private static final ObjectStreamField[] serialPersistentFields = {
+    new ObjectStreamField("schema", Schema.class),
+    new ObjectStreamField("fields", Map.class)
+  };
+
   static {
     DEFAULT_FORMAT.setTimeZone(TimeZone.getTimeZone("UTC"));
   }
 
-  private StructuredRecord(Schema schema, Map<String, Object> fields) {
+  private StructuredRecord(Schema schema, Object[] values) {
     this.schema = SchemaCache.intern(schema);
-    this.fields = fields;
+    this.values = values;
   }
 
   /**
@@ -87,7 +103,21 @@ public class StructuredRecord implements Serializable {
   @SuppressWarnings("unchecked")
   @Nullable
   public <T> T get(String fieldName) {
-    return (T) fields.get(fieldName);
+    return (T) getValue(fieldName);
+  }
+
+  /**
+   * Get the value of a field in the record by the position of the field in the schema.
+   *
+   * @param position position of the field in {@link Schema#getFields()}.
+   * @param <T> type of object of the field value.
+   * @return value of the field.
+   * @throws IndexOutOfBoundsException if the position is not a valid field position of the schema.
+   */
+  @SuppressWarnings("unchecked")
+  @Nullable
+  public <T> T get(int position) {
+    return (T) values[position];
   }
 
   /**
@@ -101,7 +131,7 @@ public class StructuredRecord implements Serializable {
   public LocalDate getDate(String fieldName) {
     Schema logicalTypeSchema = validateAndGetLogicalTypeSchema(schema.getField(fieldName),
                                                                EnumSet.of(LogicalType.DATE));
-    Object val = fields.get(fieldName);
+    Object val = getValue(fieldName);
     try {
       Integer value = (Integer) val;
       return (value == null || logicalTypeSchema == null) ? null : LocalDate.ofEpochDay(value.longValue());
@@ -125,7 +155,7 @@ public class StructuredRecord implements Serializable {
     Schema logicalTypeSchema = validateAndGetLogicalTypeSchema(schema.getField(fieldName),
                                                                EnumSet.of(LogicalType.TIME_MILLIS,
                                                                           LogicalType.TIME_MICROS));
-    Object val = fields.get(fieldName);
+    Object val = getValue(fieldName);
     if (val == null || logicalTypeSchema == null) {
       return null;
     }
@@ -182,7 +212,7 @@ public class StructuredRecord implements Serializable {
     Schema logicalTypeSchema = validateAndGetLogicalTypeSchema(schema.getField(fieldName),
                                                                EnumSet.of(LogicalType.TIMESTAMP_MILLIS,
                                                                           LogicalType.TIMESTAMP_MICROS));
-    Object val = fields.get(fieldName);
+    Object val = getValue(fieldName);
     if (val == null || logicalTypeSchema == null) {
       return null;
     }
@@ -213,7 +243,7 @@ public class StructuredRecord implements Serializable {
   public BigDecimal getDecimal(String fieldName) {
     Schema logicalTypeSchema = validateAndGetLogicalTypeSchema(schema.getField(fieldName),
                                                                EnumSet.of(LogicalType.DECIMAL));
-    Object value = fields.get(fieldName);
+    Object value = getValue(fieldName);
     if (value == null || logicalTypeSchema == null) {
       return null;
     }
@@ -242,7 +272,7 @@ public class StructuredRecord implements Serializable {
   public LocalDateTime getDateTime(String fieldName) {
     Schema logicalTypeSchema = validateAndGetLogicalTypeSchema(schema.getField(fieldName),
                                                                EnumSet.of(LogicalType.DATETIME));
-    Object value = fields.get(fieldName);
+    Object value = getValue(fieldName);
     if (value == null || logicalTypeSchema == null) {
       return null;
     }
@@ -272,6 +302,12 @@ public class StructuredRecord implements Serializable {
     return ZonedDateTime.ofInstant(instant, zoneId);
   }
 
+  @Nullable
+  private Object getValue(String fieldName) {
+    int position = schema.getFieldIndex(fieldName);
+    return position < 0 ? null : values[position];
+  }
+
   /**
    * Validates and returns the underlying {@link LogicalType} Schema of the given {@link Schema.Field}.
    *
@@ -350,12 +386,18 @@ public class StructuredRecord implements Serializable {
    * TODO: enforce schema correctness?
    */
   public static class Builder {
+    // Marker for fields that are not set, to tell them apart from fields that are set to null
+    private static final Object UNSET = new Object();
+
     private final Schema schema;
-    private Map<String, Object> fields;
+    private final List<Schema.Field> schemaFields;
+    private final Object[] values;
 
     private Builder(Schema schema) {
       this.schema = schema;
-      this.fields = new HashMap<>();
+      this.schemaFields = schema.getFields();
+      this.values = new Object[schemaFields.size()];
+      Arrays.fill(values, UNSET);
     }
 
     /**
@@ -368,8 +410,25 @@ public class StructuredRecord implements Serializable {
      *                                   value is given
      */
     public Builder set(String fieldName, @Nullable Object value) {
-      validateAndGetField(fieldName, value);
-      fields.put(fieldName, value);
+      values[validateAndGetPosition(fieldName, value)] = value;
+      return this;
+    }
+
+    /**
+     * Set the field at the given position to the given value.
+     *
+     * @param position position of the field in {@link Schema#getFields()}
+     * @param value value for the field
+     * @return this builder
+     * @throws UnexpectedFormatException if there is no field at the given position, or the field is not nullable but
+     *                                   a null value is given
+     */
+    public Builder set(int position, @Nullable Object value) {
+      if (position < 0 || position >= values.length) {
+        throw new UnexpectedFormatException("field position " + position + " is not in the schema.");
+      }
+      validateValue(schemaFields.get(position), value);
+      values[position] = value;
       return this;
     }
 
@@ -385,11 +444,11 @@ public class StructuredRecord implements Serializable {
     public Builder setDate(String fieldName, @Nullable LocalDate localDate) {
       validateAndGetLogicalTypeSchema(validateAndGetField(fieldName, localDate), EnumSet.of(LogicalType.DATE));
       if (localDate == null) {
-        fields.put(fieldName, null);
+        put(fieldName, null);
         return this;
       }
       try {
-        fields.put(fieldName, Math.toIntExact(localDate.toEpochDay()));
+        put(fieldName, Math.toIntExact(localDate.toEpochDay()));
       } catch (ArithmeticException e) {
         // Highest integer is 2,147,483,647 which is Jan 1 2038.
         throw new UnexpectedFormatException(String.format("Field %s was set to a date that is too large." +
@@ -413,7 +472,7 @@ public class StructuredRecord implements Serializable {
                                                                             LogicalType.TIME_MICROS));
 
       if (localTime == null) {
-        fields.put(fieldName, null);
+        put(fieldName, null);
         return this;
       }
 
@@ -422,7 +481,7 @@ public class StructuredRecord implements Serializable {
       if (logicalTypeSchema.getLogicalType() == LogicalType.TIME_MILLIS) {
         try {
           int millis = Math.toIntExact(TimeUnit.NANOSECONDS.toMillis(nanos));
-          fields.put(fieldName, millis);
+          put(fieldName, millis);
         } catch (ArithmeticException e) {
           throw new UnexpectedFormatException(String.format("Field %s was set to a time that is too large.",
                                                             fieldName));
@@ -431,7 +490,7 @@ public class StructuredRecord implements Serializable {
       }
 
       long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
-      fields.put(fieldName, micros);
+      put(fieldName, micros);
       return this;
     }
 
@@ -451,7 +510,7 @@ public class StructuredRecord implements Serializable {
                                                                             LogicalType.TIMESTAMP_MICROS));
 
       if (zonedDateTime == null) {
-        fields.put(fieldName, null);
+        put(fieldName, null);
         return this;
       }
 
@@ -460,13 +519,13 @@ public class StructuredRecord implements Serializable {
         if (logicalTypeSchema.getLogicalType() == LogicalType.TIMESTAMP_MILLIS) {
           long millis = TimeUnit.SECONDS.toMillis(instant.getEpochSecond());
           long tsMillis = Math.addExact(millis, TimeUnit.NANOSECONDS.toMillis(instant.getNano()));
-          fields.put(fieldName, tsMillis);
+          put(fieldName, tsMillis);
           return this;
         }
 
         long micros = TimeUnit.SECONDS.toMicros(instant.getEpochSecond());
         long tsMicros = Math.addExact(micros, TimeUnit.NANOSECONDS.toMicros(instant.getNano()));
-        fields.put(fieldName, tsMicros);
+        put(fieldName, tsMicros);
         return this;
       } catch (ArithmeticException e) {
         throw new UnexpectedFormatException(String.format("Field %s was set to a timestamp that is too large.",
@@ -488,7 +547,7 @@ public class StructuredRecord implements Serializable {
       Schema logicalSchema = validateAndGetLogicalTypeSchema(validateAndGetField(fieldName, decimal),
                                                              EnumSet.of(LogicalType.DECIMAL));
       if (decimal == null) {
-        fields.put(fieldName, null);
+        put(fieldName, null);
         return this;
       }
 
@@ -504,7 +563,7 @@ public class StructuredRecord implements Serializable {
                         fieldName, decimal.scale(), logicalSchema.getScale()));
       }
 
-      fields.put(fieldName, decimal.unscaledValue().toByteArray());
+      put(fieldName, decimal.unscaledValue().toByteArray());
       return this;
     }
 
@@ -520,11 +579,11 @@ public class StructuredRecord implements Serializable {
       validateAndGetLogicalTypeSchema(validateAndGetField(fieldName, localDateTime),
                                                              EnumSet.of(LogicalType.DATETIME));
       if (localDateTime == null) {
-        fields.put(fieldName, null);
+        put(fieldName, null);
         return this;
       }
       // Save as ISO-8601 format without the offset
-      fields.put(fieldName, localDateTime.format(DateTimeFormatter.ISO_DATE_TIME));
+      put(fieldName, localDateTime.format(DateTimeFormatter.ISO_DATE_TIME));
       return this;
     }
 
@@ -567,16 +626,16 @@ public class StructuredRecord implements Serializable {
       Schema.Field field = validateAndGetField(fieldName, date);
       boolean isNullable = field.getSchema().isNullable();
       if (isNullable && date == null) {
-        fields.put(fieldName, null);
+        put(fieldName, null);
         return this;
       }
 
       Schema.Type fieldType = isNullable ? field.getSchema().getNonNullable().getType() : field.getSchema().getType();
       if (fieldType == Schema.Type.LONG) {
-        fields.put(fieldName, date.getTime());
+        put(fieldName, date.getTime());
       } else if (fieldType == Schema.Type.STRING) {
         DateFormat format = dateFormat == null ? DEFAULT_FORMAT : dateFormat;
-        fields.put(fieldName, format.format(date));
+        put(fieldName, format.format(date));
       } else {
         throw new UnexpectedFormatException("Date must be either a long or a string, not a " + fieldType);
       }
@@ -595,7 +654,7 @@ public class StructuredRecord implements Serializable {
      */
     public Builder convertAndSet(String fieldName, @Nullable String strVal) throws UnexpectedFormatException {
       Schema.Field field = validateAndGetField(fieldName, strVal);
-      fields.put(fieldName, convertString(field.getSchema(), strVal));
+      put(fieldName, convertString(field.getSchema(), strVal));
       return this;
     }
 
@@ -607,19 +666,19 @@ public class StructuredRecord implements Serializable {
      */
     public StructuredRecord build() throws UnexpectedFormatException {
       // check that all non-nullable fields have a value.
-      for (Schema.Field field : schema.getFields()) {
-        String fieldName = field.getName();
-        if (!fields.containsKey(fieldName)) {
+      for (int i = 0; i < values.length; i++) {
+        if (values[i] == UNSET) {
+          Schema.Field field = schemaFields.get(i);
           // if the field is not nullable and there is no value set for the field, this is invalid.
           if (!field.getSchema().isNullable()) {
-            throw new UnexpectedFormatException("Field " + fieldName + " must contain a value.");
+            throw new UnexpectedFormatException("Field " + field.getName() + " must contain a value.");
           } else {
             // otherwise, set the value for the field to null
-            fields.put(fieldName, null);
+            values[i] = null;
           }
         }
       }
-      return new StructuredRecord(schema, fields);
+      return new StructuredRecord(schema, values);
     }
 
     private Object convertString(Schema schema, String strVal) throws UnexpectedFormatException {
@@ -661,28 +720,69 @@ public class StructuredRecord implements Serializable {
       }
     }
 
-    private Schema.Field validateAndGetField(String fieldName, Object val) {
-      Schema.Field field = schema.getField(fieldName);
-      if (field == null) {
+    private void put(String fieldName, @Nullable Object value) {
+      values[schema.getFieldIndex(fieldName)] = value;
+    }
+
+    private Schema.Field validateAndGetField(String fieldName, @Nullable Object val) {
+      return schemaFields.get(validateAndGetPosition(fieldName, val));
+    }
+
+    private int validateAndGetPosition(String fieldName, @Nullable Object val) {
+      int position = schema.getFieldIndex(fieldName);
+      if (position < 0) {
         throw new UnexpectedFormatException("field " + fieldName + " is not in the schema.");
       }
+      validateValue(schemaFields.get(position), val);
+      return position;
+    }
+
+    private void validateValue(Schema.Field field, @Nullable Object val) {
+      if (val != null) {
+        return;
+      }
       Schema fieldSchema = field.getSchema();
-      if (val == null) {
-        if (fieldSchema.getType() == Schema.Type.NULL) {
-          return field;
-        }
-        if (fieldSchema.getType() != Schema.Type.UNION) {
-          throw new UnexpectedFormatException("field " + fieldName + " cannot be set to a null value.");
-        }
-        for (Schema unionSchema : fieldSchema.getUnionSchemas()) {
-          if (unionSchema.getType() == Schema.Type.NULL) {
-            return field;
-          }
+      if (fieldSchema.getType() == Schema.Type.NULL) {
+        return;
+      }
+      if (fieldSchema.getType() != Schema.Type.UNION) {
+        throw new UnexpectedFormatException("field " + field.getName() + " cannot be set to a null value.");
+      }
+      for (Schema unionSchema : fieldSchema.getUnionSchemas()) {
+        if (unionSchema.getType() == Schema.Type.NULL) {
+          return;
         }
-        throw new UnexpectedFormatException("field " + fieldName + " cannot be set to a null value.");
       }
-      return field;
+      throw new UnexpectedFormatException("field " + field.getName() + " cannot be set to a null value.");
+    }
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    List<Schema.Field> schemaFields = schema.getFields();
+    Map<String, Object> fields = new HashMap<>();
+    for (int i = 0; i < values.length; i++) {
+      fields.put(schemaFields.get(i).getName(), values[i]);
     }
+    ObjectOutputStream.PutField putField = out.putFields();
+    putField.put("schema", schema);
+    putField.put("fields", fields);
+    out.writeFields();
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField getField = in.readFields();
+    Schema schema = (Schema) getField.get("schema", null);
+    Map<?, ?> fields = (Map<?, ?>) getField.get("fields", null);
+    if (schema == null || schema.getFields() == null || fields == null) {
+      throw new InvalidObjectException("A record must have a record schema and a map of field values");
+    }
+    List<Schema.Field> schemaFields = schema.getFields();
+    Object[] values = new Object[schemaFields.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = fields.get(schemaFields.get(i).getName());
+    }
+    this.schema = SchemaCache.intern(schema);
+    this.values = values;
   }
 
   @Override
@@ -696,12 +796,12 @@ public class StructuredRecord implements Serializable {
 
     StructuredRecord that = (StructuredRecord) o;
 
-    return Objects.equals(schema, that.schema) && Objects.equals(fields, that.fields);
+    return Objects.equals(schema, that.schema) && Arrays.equals(values, that.values);
 
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(schema, fields);
+    return 31 * Objects.hashCode(schema) + Arrays.hashCode(values);
   }
 }
@@ -592,6 +592,8 @@ public final class Schema implements Serializable {
   private final String recordName;
   private final Map<String, Field> fieldMap;
   private final List<Field> fields;
+  // Position of each record field in the fields list, for positional access to record values.
+  private final Map<String, Integer> fieldIndexes;
 
   private final List<Schema> unionSchemas;
 
@@ -627,6 +629,7 @@ public final class Schema implements Serializable {
     this.recordName = recordName;
     this.fieldMap = fieldMap == null ? null : copyFields(fieldMap);
     this.fields = this.fieldMap == null ? null : Collections.unmodifiableList(new ArrayList<>(this.fieldMap.values()));
+    this.fieldIndexes = this.fields == null ? null : createFieldIndexes(this.fields);
     this.unionSchemas = unionSchemas == null ? null : new ArrayList<>(unionSchemas);
     this.precision = precision;
     this.scale = scale;
@@ -768,6 +771,21 @@ public final class Schema implements Serializable {
     return ignoreCaseFieldMap.get(name.toLowerCase());
   }
 
+  /**
+   * Returns the position of the record {@link Field} of the given name in the list returned by {@link #getFields()}.
+   *
+   * @param name Name of the field
+   * @return The position of the field or {@code -1} if there is no such field in this record
+   *         or this is not a {@link Type#RECORD RECORD} schema.
+   */
+  public int getFieldIndex(String name) {
+    if (fieldIndexes == null) {
+      return -1;
+    }
+    Integer index = fieldIndexes.get(name);
+    return index == null ? -1 : index;
+  }
+
   /**
    * @return An immutable {@link List} of schemas inside this union
    *         or {@code null} if this is not a {@link Type#UNION UNION} schema.
@@ -1084,6 +1102,17 @@ public final class Schema implements Serializable {
     return Collections.unmodifiableMap(result);
   }
 
+  /**
+   * Creates a map from field name to the position of the field in the given list.
+   */
+  private static Map<String, Integer> createFieldIndexes(List<Field> fields) {
+    Map<String, Integer> result = new HashMap<>();
+    for (int i = 0; i < fields.size(); i++) {
+      result.put(fields.get(i).getName(), i);
+    }
+    return result;
+  }
+
   /**
    * This method is to recursively resolves all name only record schema in the given schema.
    * This method should only be constructor as this will mutate the Schema while resolving for name only records.
@@ -38,6 +38,20 @@ public class PartitionedFileSetProperties extends FileSetProperties {
    */
   public static final String PARTITIONING_FIELD_PREFIX = "partitioning.field.";
 
+  /**
+   * The property name for whether the partitions are indexed by the values of the partitioning fields other than
+   * the first, so that a partition filter on these fields does not have to scan all partitions. This is enabled
+   * by default. If it is enabled for an existing dataset, the existing partitions must be indexed with
+   * {@link io.cdap.cdap.api.dataset.lib.app.partitioned.PartitionKeyReindexer} before the index is used.
+   */
+  public static final String PARTITION_KEY_INDEX = "partition.key.index";
+
+  /**
+   * The property name for whether all partitions are indexed by their partitioning fields. This is set by the
+   * dataset, and should not be set explicitly.
+   */
+  public static final String PARTITION_KEY_INDEX_COMPLETE = "partition.key.index.complete";
+
   /**
    * Read the partitioning for a PartitionedFileSet from its properties.
    *
@@ -105,6 +119,15 @@ public class PartitionedFileSetProperties extends FileSetProperties {
       return this;
     }
 
+    /**
+     * Configures whether the partitions are indexed by the values of the partitioning fields other than the first.
+     * See {@link #PARTITION_KEY_INDEX}.
+     */
+    public Builder setPartitionKeyIndexEnabled(boolean enabled) {
+      add(PARTITION_KEY_INDEX, Boolean.toString(enabled));
+      return this;
+    }
+
     /**
      * Set the table permissions as a map from user name to a permission string.
      */
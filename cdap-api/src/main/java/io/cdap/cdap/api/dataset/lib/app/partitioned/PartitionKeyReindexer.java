@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.api.dataset.lib.app.partitioned;
+
+import io.cdap.cdap.api.Admin;
+import io.cdap.cdap.api.Transactional;
+import io.cdap.cdap.api.annotation.Beta;
+import io.cdap.cdap.api.app.AbstractApplication;
+import io.cdap.cdap.api.dataset.DatasetManagementException;
+import io.cdap.cdap.api.dataset.DatasetProperties;
+import io.cdap.cdap.api.dataset.lib.PartitionedFileSetProperties;
+import io.cdap.cdap.api.worker.AbstractWorker;
+import org.apache.tephra.TransactionFailureException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An application that can be used to enable the partition key index of an existing (Time)PartitionedFileSet,
+ * and to index its existing partitions. See {@link PartitionedFileSetProperties#PARTITION_KEY_INDEX}.
+ */
+@Beta
+public class PartitionKeyReindexer extends AbstractApplication {
+
+  @Override
+  public void configure() {
+    setDescription("An app to index the partitions of a partitioned file set by their partitioning fields. " +
+                     "Run the worker with dataset.name=<name> [ batch.size=<int> ]");
+    addWorker(new ReindexWorker());
+  }
+
+  /**
+   * This worker enables the partition key index of a partitioned file set, indexes all of its existing partitions,
+   * and then marks the index as complete, so that the dataset starts using it for partition filters. Programs that
+   * add partitions to the dataset must not run at the same time. Run the worker with runtime arguments:
+   * dataset.name=<name> [ batch.size=<int> ].
+   * <ul>
+   *   <li>dataset.name: The name of the partitioned file set to index. This argument is required.</li>
+   *   <li>batch.size: The number of partitions to index in a single transaction. Set this to a smaller number
+   *                if the worker fails with a transaction timeout. Defaults to 100.</li>
+   * </ul>
+   */
+  @Beta
+  public static class ReindexWorker extends AbstractWorker {
+    @Override
+    public void run() {
+      final String datasetName = getContext().getRuntimeArguments().get("dataset.name");
+      if (datasetName == null) {
+        throw new IllegalArgumentException("'dataset.name' must be given as a runtime argument.");
+      }
+      String batchSizeArg = getContext().getRuntimeArguments().get("batch.size");
+      int batchSize = batchSizeArg == null ? 100 : Integer.parseInt(batchSizeArg);
+
+      Admin admin = getContext().getAdmin();
+      Map<String, String> properties;
+      try {
+        properties = new HashMap<>(admin.getDatasetProperties(datasetName).getProperties());
+        if (Boolean.parseBoolean(properties.get(PartitionedFileSetProperties.PARTITION_KEY_INDEX_COMPLETE))) {
+          return;
+        }
+        // enabling the index makes the dataset index new partitions as they are added
+        properties.put(PartitionedFileSetProperties.PARTITION_KEY_INDEX, Boolean.TRUE.toString());
+        admin.updateDataset(datasetName, DatasetProperties.of(properties));
+      } catch (DatasetManagementException e) {
+        throw new RuntimeException("Failed to enable the partition key index", e);
+      }
+
+      AtomicReference<Class<?>> pfsClass = new AtomicReference<>();
+      try {
+        getContext().execute(context -> pfsClass.set(context.getDataset(datasetName).getClass()));
+      } catch (TransactionFailureException e) {
+        throw new RuntimeException("Failed to determine the PartitionedFileSet class name through reflection", e);
+      }
+      try {
+        pfsClass.get()
+          .getMethod("reindexPartitions", Transactional.class, String.class, int.class)
+          .invoke(null, // static method call
+                  getContext(), datasetName, batchSize);
+      } catch (Exception e) {
+        throw new RuntimeException("Failed to call reindexPartitions() using reflection", e);
+      }
+
+      try {
+        properties.put(PartitionedFileSetProperties.PARTITION_KEY_INDEX_COMPLETE, Boolean.TRUE.toString());
+        admin.updateDataset(datasetName, DatasetProperties.of(properties));
+      } catch (DatasetManagementException e) {
+        throw new RuntimeException("Failed to mark the partition key index as complete", e);
+      }
+    }
+  }
+}
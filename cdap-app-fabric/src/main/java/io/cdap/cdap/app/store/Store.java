@@ -463,6 +463,15 @@ public interface Store {
    */
   Set<RunId> getRunningInRange(long startTimeInSecs, long endTimeInSecs);
 
+  /**
+   * Adds the run records written before the run record time index was introduced to the index, if it was not
+   * done before. Until it is done, time range queries of run records scan all the run records. It returns early if
+   * the calling thread is interrupted, and the next call resumes from the last indexed run record.
+   *
+   * @param batchSize maximum number of run records to index in each transaction
+   */
+  void backfillRunRecordTimeIndex(int batchSize);
+
   /**
    * Get the run count of the given program.
    *
@@ -59,8 +59,10 @@ public interface JobQueue {
    *
    * @param schedule the schedule for which jobs will be update
    * @param notification the new notification to update the schedule jobs with
+   * @return the job that the notification was added to, or null if the schedule is not enabled
    */
-  void addNotification(ProgramScheduleRecord schedule, Notification notification) throws IOException;
+  @Nullable
+  Job addNotification(ProgramScheduleRecord schedule, Notification notification) throws IOException;
 
   /**
    * Marks all jobs associated with the given schedule Id for deletion, recording the time of deletion.
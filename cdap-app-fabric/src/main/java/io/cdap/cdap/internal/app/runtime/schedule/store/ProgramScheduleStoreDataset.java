@@ -111,10 +111,14 @@ public class ProgramScheduleStoreDataset {
 
   private final StructuredTable scheduleStore;
   private final StructuredTable triggerStore;
+  @Nullable
+  private final ScheduleTriggerIndex triggerIndex;
 
-  ProgramScheduleStoreDataset(StructuredTable scheduleStore, StructuredTable triggerStore) {
+  ProgramScheduleStoreDataset(StructuredTable scheduleStore, StructuredTable triggerStore,
+                              @Nullable ScheduleTriggerIndex triggerIndex) {
     this.scheduleStore = scheduleStore;
     this.triggerStore = triggerStore;
+    this.triggerIndex = triggerIndex;
   }
 
   /**
@@ -151,10 +155,17 @@ public class ProgramScheduleStoreDataset {
     scheduleStore.upsert(scheduleFields);
 
     int count = 0;
-    for (String triggerKey : extractTriggerKeys(schedule)) {
+    List<Collection<Field<?>>> triggers = new ArrayList<>();
+    Set<String> triggerKeys = extractTriggerKeys(schedule);
+    for (String triggerKey : triggerKeys) {
       Collection<Field<?>> triggerFields = getTriggerKeys(scheduleKeys, count++);
       triggerFields.add(Fields.stringField(StoreDefinition.ProgramScheduleStore.TRIGGER_KEY, triggerKey));
-      triggerStore.upsert(triggerFields);
+      triggers.add(triggerFields);
+    }
+    triggerStore.multiUpsert(triggers);
+    if (triggerIndex != null) {
+      // index the schedule before the transaction commits, so that the index never misses a committed schedule
+      triggerIndex.add(schedule.getScheduleId(), triggerKeys);
     }
   }
 
@@ -473,6 +484,9 @@ public class ProgramScheduleStoreDataset {
    * @return a list of all schedules that are triggered by this key; never null
    */
   public Collection<ProgramScheduleRecord> findSchedules(String triggerKey) throws IOException {
+    if (triggerIndex != null) {
+      return findSchedulesFromIndex(triggerIndex, triggerKey);
+    }
     Map<ScheduleId, ProgramScheduleRecord> schedulesFound = new HashMap<>();
     Field<String> triggerField = Fields.stringField(StoreDefinition.ProgramScheduleStore.TRIGGER_KEY, triggerKey);
     try (CloseableIterator<StructuredRow> iterator = triggerStore.scan(triggerField)) {
@@ -510,6 +524,51 @@ public class ProgramScheduleStoreDataset {
 
   /*------------------- private helpers ---------------------*/
 
+  /**
+   * Find all schedules that have a trigger with a given trigger key, using the {@link ScheduleTriggerIndex} instead
+   * of scanning the trigger table. Every indexed schedule is read to verify that it still has the trigger.
+   */
+  private Collection<ProgramScheduleRecord> findSchedulesFromIndex(ScheduleTriggerIndex triggerIndex,
+                                                                   String triggerKey) throws IOException {
+    if (!triggerIndex.isLoaded()) {
+      loadTriggerIndex(triggerIndex);
+    }
+    List<ProgramScheduleRecord> schedulesFound = new ArrayList<>();
+    for (Map.Entry<ScheduleId, Long> entry : triggerIndex.getSchedules(triggerKey).entrySet()) {
+      ScheduleId scheduleId = entry.getKey();
+      Optional<StructuredRow> optional = scheduleStore.read(getScheduleKeys(scheduleId));
+      String serialized = optional.map(row -> row.getString(StoreDefinition.ProgramScheduleStore.SCHEDULE))
+        .orElse(null);
+      ProgramSchedule schedule = serialized == null
+        ? null : triggerIndex.decode(scheduleId, serialized, json -> GSON.fromJson(json, ProgramSchedule.class));
+      if (schedule == null || !extractTriggerKeys(schedule).contains(triggerKey)) {
+        // The schedule was deleted or updated, or the transaction that added it has not committed yet
+        Long updateTime = optional.map(row -> row.getLong(StoreDefinition.ProgramScheduleStore.UPDATE_TIME))
+          .orElse(null);
+        triggerIndex.removeIfExpired(triggerKey, scheduleId, entry.getValue(), updateTime == null ? 0L : updateTime);
+        continue;
+      }
+      schedulesFound.add(new ProgramScheduleRecord(schedule, extractMetaFromRow(scheduleId, optional.get())));
+    }
+    return schedulesFound;
+  }
+
+  /**
+   * Loads all triggers from the trigger table into the {@link ScheduleTriggerIndex}.
+   */
+  private void loadTriggerIndex(ScheduleTriggerIndex triggerIndex) throws IOException {
+    Map<String, List<ScheduleId>> triggers = new HashMap<>();
+    try (CloseableIterator<StructuredRow> iterator = triggerStore.scan(Range.all(), Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        StructuredRow row = iterator.next();
+        String triggerKey = row.getString(StoreDefinition.ProgramScheduleStore.TRIGGER_KEY);
+        triggers.computeIfAbsent(triggerKey, k -> new ArrayList<>()).add(rowToScheduleId(row));
+      }
+    }
+    triggerIndex.load(triggers);
+    LOG.debug("Loaded {} trigger keys into the schedule trigger index", triggers.size());
+  }
+
   /**
    * List schedules with the given key prefix and only returns the schedules that can pass the filter.
    *
@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.runtime.schedule.store;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.internal.app.runtime.schedule.ProgramSchedule;
+import io.cdap.cdap.proto.id.ScheduleId;
+import org.apache.tephra.TxConstants;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * An in-memory index from trigger keys to schedules, shared by the {@link ProgramScheduleStoreDataset} instances
+ * created with it, such that finding the schedules triggered by a notification doesn't need to scan the trigger
+ * table. It also caches the decoded schedules, such that a schedule JSON is only decoded again when it changes.
+ *
+ * The index may contain schedules that no longer have a trigger with a key, which are filtered out by reading the
+ * schedule, but it must never miss a schedule. Hence a schedule is added to the index as soon as it is written, even
+ * before its transaction commits, and it is only removed once the change that removed it from the trigger key is
+ * older than twice the transaction timeout, after which every transaction sees that change. This requires all
+ * schedule changes to go through the {@link ProgramScheduleStoreDataset} instances created with this index, which
+ * is the case in app-fabric.
+ */
+@Singleton
+public class ScheduleTriggerIndex {
+
+  private final boolean enabled;
+  private final long removalDelayMillis;
+  // trigger key -> schedule id -> the time that the schedule was added to the index
+  private final ConcurrentMap<String, ConcurrentMap<ScheduleId, Long>> triggerSchedules;
+  private final ConcurrentMap<ScheduleId, DecodedSchedule> decodedSchedules;
+  private volatile boolean loaded;
+
+  @Inject
+  ScheduleTriggerIndex(CConfiguration cConf) {
+    this.enabled = cConf.getBoolean(Constants.Scheduler.TRIGGER_INDEX_ENABLED);
+    this.removalDelayMillis = 2 * TimeUnit.SECONDS.toMillis(cConf.getInt(TxConstants.Manager.CFG_TX_TIMEOUT));
+    this.triggerSchedules = new ConcurrentHashMap<>();
+    this.decodedSchedules = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Returns whether the index is enabled.
+   */
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns whether the index has been loaded from the trigger table.
+   */
+  boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * Adds the schedules read from the trigger table to the index, and marks the index as loaded.
+   *
+   * @param triggers a map from trigger key to the schedules that have a trigger with that key
+   */
+  void load(Map<String, ? extends Collection<ScheduleId>> triggers) {
+    long now = System.currentTimeMillis();
+    for (Map.Entry<String, ? extends Collection<ScheduleId>> entry : triggers.entrySet()) {
+      for (ScheduleId scheduleId : entry.getValue()) {
+        add(entry.getKey(), scheduleId, now);
+      }
+    }
+    loaded = true;
+  }
+
+  /**
+   * Adds a schedule that is being written to the index.
+   */
+  void add(ScheduleId scheduleId, Set<String> triggerKeys) {
+    long now = System.currentTimeMillis();
+    for (String triggerKey : triggerKeys) {
+      add(triggerKey, scheduleId, now);
+    }
+  }
+
+  /**
+   * Returns the schedules indexed for the given trigger key, together with the time they were added to the index.
+   */
+  Map<ScheduleId, Long> getSchedules(String triggerKey) {
+    Map<ScheduleId, Long> schedules = triggerSchedules.get(triggerKey);
+    return schedules == null ? Collections.emptyMap() : new HashMap<>(schedules);
+  }
+
+  /**
+   * Removes a schedule from a trigger key, if both the change that removed the trigger and the addition of the
+   * schedule to the index happened long enough ago that every transaction sees the change.
+   *
+   * @param triggerKey the trigger key to remove the schedule from
+   * @param scheduleId the schedule to remove
+   * @param indexedTime the time the schedule was added to the index, as returned by {@link #getSchedules(String)}
+   * @param changeTime the update time of the schedule, or {@code 0} if the schedule does not exist
+   */
+  void removeIfExpired(String triggerKey, ScheduleId scheduleId, long indexedTime, long changeTime) {
+    if (System.currentTimeMillis() - Math.max(indexedTime, changeTime) <= removalDelayMillis) {
+      return;
+    }
+    // Only remove if the schedule was not added again in the meantime
+    triggerSchedules.computeIfPresent(triggerKey, (key, schedules) -> {
+      schedules.remove(scheduleId, indexedTime);
+      return schedules.isEmpty() ? null : schedules;
+    });
+    decodedSchedules.remove(scheduleId);
+  }
+
+  /**
+   * Returns the schedule decoded from the given JSON. The cached one is returned if it was decoded from the same
+   * JSON, otherwise the JSON is decoded with the given decoder and cached.
+   */
+  ProgramSchedule decode(ScheduleId scheduleId, String json, Function<String, ProgramSchedule> decoder) {
+    DecodedSchedule decoded = decodedSchedules.get(scheduleId);
+    if (decoded != null && decoded.json.equals(json)) {
+      return decoded.schedule;
+    }
+    ProgramSchedule schedule = decoder.apply(json);
+    decodedSchedules.put(scheduleId, new DecodedSchedule(json, schedule));
+    return schedule;
+  }
+
+  private void add(String triggerKey, ScheduleId scheduleId, long time) {
+    // Add within compute, such that it cannot race with the removal of an empty map
+    triggerSchedules.compute(triggerKey, (key, schedules) -> {
+      ConcurrentMap<ScheduleId, Long> result = schedules == null ? new ConcurrentHashMap<>() : schedules;
+      result.put(scheduleId, time);
+      return result;
+    });
+  }
+
+  /**
+   * A decoded {@link ProgramSchedule} together with the JSON it was decoded from.
+   */
+  private static final class DecodedSchedule {
+
+    private final String json;
+    private final ProgramSchedule schedule;
+
+    DecodedSchedule(String json, ProgramSchedule schedule) {
+      this.json = json;
+      this.schedule = schedule;
+    }
+  }
+}
@@ -38,6 +38,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
  * Common utility methods for scheduling.
@@ -70,10 +71,20 @@ public class Schedulers {
   }
 
   public static ProgramScheduleStoreDataset getScheduleStore(StructuredTableContext context) {
+    return getScheduleStore(context, null);
+  }
+
+  /**
+   * Returns a {@link ProgramScheduleStoreDataset} that finds schedules by trigger key with the given
+   * {@link ScheduleTriggerIndex}, and keeps it up to date, unless the index is disabled.
+   */
+  public static ProgramScheduleStoreDataset getScheduleStore(StructuredTableContext context,
+                                                             @Nullable ScheduleTriggerIndex triggerIndex) {
     try {
       return new ProgramScheduleStoreDataset(
         context.getTable(StoreDefinition.ProgramScheduleStore.PROGRAM_SCHEDULE_TABLE),
-        context.getTable(StoreDefinition.ProgramScheduleStore.PROGRAM_TRIGGER_TABLE)
+        context.getTable(StoreDefinition.ProgramScheduleStore.PROGRAM_TRIGGER_TABLE),
+        triggerIndex == null || !triggerIndex.isEnabled() ? null : triggerIndex
       );
     } catch (TableNotFoundException e) {
       throw Throwables.propagate(e);
@@ -44,6 +44,7 @@ import io.cdap.cdap.internal.app.runtime.ProgramRunners;
 import io.cdap.cdap.internal.app.runtime.SimpleProgramOptions;
 import io.cdap.cdap.internal.app.runtime.SystemArguments;
 import io.cdap.cdap.internal.app.store.AppMetadataStore;
+import io.cdap.cdap.internal.app.store.ApplicationMetaCache;
 import io.cdap.cdap.internal.app.store.RunRecordDetail;
 import io.cdap.cdap.internal.provision.ProvisionRequest;
 import io.cdap.cdap.internal.provision.ProvisionerNotifier;
@@ -113,6 +114,7 @@ public class ProgramNotificationSubscriberService extends AbstractNotificationSu
   private final ProgramStateWriter programStateWriter;
   private final Queue<Runnable> tasks;
   private final MetricsCollectionService metricsCollectionService;
+  private final ApplicationMetaCache appMetaCache;
   private Set<ProgramCompletionNotifier> programCompletionNotifiers;
 
   @Inject
@@ -121,7 +123,8 @@ public class ProgramNotificationSubscriberService extends AbstractNotificationSu
                                        ProvisionerNotifier provisionerNotifier,
                                        ProgramLifecycleService programLifecycleService,
                                        ProvisioningService provisioningService,
-                                       ProgramStateWriter programStateWriter, TransactionRunner transactionRunner) {
+                                       ProgramStateWriter programStateWriter, TransactionRunner transactionRunner,
+                                       ApplicationMetaCache appMetaCache) {
     super("program.status", cConf, cConf.get(Constants.AppFabric.PROGRAM_STATUS_EVENT_TOPIC),
           cConf.getInt(Constants.AppFabric.STATUS_EVENT_FETCH_SIZE),
           cConf.getLong(Constants.AppFabric.STATUS_EVENT_POLL_DELAY_MILLIS),
@@ -133,6 +136,7 @@ public class ProgramNotificationSubscriberService extends AbstractNotificationSu
     this.programStateWriter = programStateWriter;
     this.tasks = new LinkedList<>();
     this.metricsCollectionService = metricsCollectionService;
+    this.appMetaCache = appMetaCache;
     this.programCompletionNotifiers = Collections.emptySet();
   }
 
@@ -194,7 +198,7 @@ public class ProgramNotificationSubscriberService extends AbstractNotificationSu
   private List<Runnable> processNotification(ProgramHeartbeatTable programHeartbeatTable,
                                              byte[] messageIdBytes, Notification notification,
                                              StructuredTableContext context) throws Exception {
-    AppMetadataStore appMetadataStore = AppMetadataStore.create(context);
+    AppMetadataStore appMetadataStore = getAppMetadataStore(context);
     Map<String, String> properties = notification.getProperties();
     // Required parameters
     String programRun = properties.get(ProgramOptionConstants.PROGRAM_RUN_ID);
@@ -695,6 +699,6 @@ public class ProgramNotificationSubscriberService extends AbstractNotificationSu
    * Returns an instance of {@link AppMetadataStore}.
    */
   private AppMetadataStore getAppMetadataStore(StructuredTableContext context) {
-    return AppMetadataStore.create(context);
+    return AppMetadataStore.create(context, appMetaCache);
   }
 }
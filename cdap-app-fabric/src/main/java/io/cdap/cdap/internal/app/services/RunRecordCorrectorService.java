@@ -43,6 +43,7 @@ import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -72,6 +73,7 @@ public abstract class RunRecordCorrectorService extends AbstractIdleService {
   private final NamespaceAdmin namespaceAdmin;
   private final DatasetFramework datasetFramework;
   private ScheduledExecutorService localDatasetDeleterService;
+  private ExecutorService runRecordTimeIndexService;
 
   RunRecordCorrectorService(CConfiguration cConf, Store store, ProgramStateWriter programStateWriter,
                             ProgramRuntimeService runtimeService, NamespaceAdmin namespaceAdmin,
@@ -173,14 +175,35 @@ public abstract class RunRecordCorrectorService extends AbstractIdleService {
 
     Runnable runnable = new LocalDatasetDeleterRunnable(namespaceAdmin, store, datasetFramework);
     localDatasetDeleterService.scheduleWithFixedDelay(runnable, initialDelay, interval, TimeUnit.SECONDS);
+
+    // Index the run records written before the run record time index was introduced
+    runRecordTimeIndexService = Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder().setNameFormat("run record time index back-fill").build());
+    runRecordTimeIndexService.execute(() -> {
+      try {
+        store.backfillRunRecordTimeIndex(txBatchSize);
+      } catch (Exception e) {
+        if (runRecordTimeIndexService.isShutdown()) {
+          LOG.debug("Run record time index back-fill stopped", e);
+          return;
+        }
+        LOG.warn("Failed to back-fill the run record time index. Time range queries of run records will scan " +
+                   "all the run records until it is completed on the next startup.", e);
+      }
+    });
   }
 
   @Override
   protected void shutDown() throws Exception {
     LOG.info("Stopping RunRecordCorrectorService");
 
+    // Interrupt the back-fill, it resumes from the last indexed run record on the next startup
+    runRecordTimeIndexService.shutdownNow();
     localDatasetDeleterService.shutdown();
     try {
+      if (!runRecordTimeIndexService.awaitTermination(5, TimeUnit.SECONDS)) {
+        LOG.warn("Timeout in waiting for the run record time index back-fill to stop");
+      }
       if (!localDatasetDeleterService.awaitTermination(5, TimeUnit.SECONDS)) {
         localDatasetDeleterService.shutdownNow();
       }
@@ -20,6 +20,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
@@ -70,6 +71,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -99,8 +101,19 @@ import javax.annotation.Nullable;
  * The run count will have the row key of format:
  * runRecordCount|namespace|app|version|programtype|program
  *
- * These rows get deleted whenever state changes, with a new record written on top. In addition, workflow node state
- * is stored as:
+ * These rows get deleted whenever state changes, with a new record written on top. Run records are also indexed by
+ * time buckets, for finding the runs in a time range without scanning all the run records:
+ *
+ * runRecordActive|bucket size|bucket|namespace|app|version|programtype|program|runid
+ * runRecordCompleted|bucket size|bucket|namespace|app|version|programtype|program|runid
+ *
+ * with the start time and the stop time of the run as the values.
+ *
+ * Every run has an index row in the one hour bucket of its start time. A completed run also has index rows in the
+ * buckets covering the time from its start time to its stop time, which are buckets of power of two hours that are
+ * aligned to their sizes. Hence the number of rows of a run only grows logarithmically with its duration, and the
+ * runs that are running at a given time are found by reading one bucket of each size. In addition, workflow node
+ * state is stored as:
  *
  * wns|namespace|app|version|programtype|program|runid|nodeid
  *
@@ -123,6 +136,16 @@ public class AppMetadataStore {
   private static final String TYPE_RUN_RECORD_UPGRADE_COUNT = "runRecordUpgradeCount";
   private static final String SMALLEST_POSSIBLE_STRING = "";
 
+  // Size of the smallest time buckets of the run record time index
+  private static final long RUN_TIME_BUCKET_SECONDS = TimeUnit.HOURS.toSeconds(1);
+  // Buckets are at most 2^20 hours, which is about 120 years
+  private static final int RUN_TIME_BUCKET_MAX_LEVEL = 20;
+  // Subscriber state for recording that the existing run records have been added to the run record time index
+  private static final String RUN_TIME_INDEX_TOPIC = StoreDefinition.AppMetadataStore.RUN_RECORDS_TIME_INDEX.getName();
+  private static final String RUN_TIME_INDEX_BACKFILL = "backfill";
+  private static final String RUN_TIME_INDEX_BACKFILL_CURSOR = "backfill.cursor";
+  private static final int RUN_RECORD_READ_BATCH_SIZE = 100;
+
   private static final Map<ProgramRunStatus, String> STATUS_TYPE_MAP = ImmutableMap.<ProgramRunStatus, String>builder()
     .put(ProgramRunStatus.PENDING, TYPE_RUN_RECORD_ACTIVE)
     .put(ProgramRunStatus.STARTING, TYPE_RUN_RECORD_ACTIVE)
@@ -135,22 +158,36 @@ public class AppMetadataStore {
     .build();
 
   private final StructuredTableContext context;
+  @Nullable
+  private final ApplicationMetaCache appMetaCache;
   private StructuredTable applicationSpecificationTable;
   private StructuredTable workflowNodeStateTable;
   private StructuredTable runRecordsTable;
+  private StructuredTable runRecordsTimeIndexTable;
   private StructuredTable workflowsTable;
   private StructuredTable programCountsTable;
   private StructuredTable subscriberStateTable;
 
   /**
-   * Static method for creating an instance of {@link AppMetadataStore}.
+   * Static method for creating an instance of {@link AppMetadataStore}. Application metadata read through it is
+   * decoded on every read, hence callers that read applications should use
+   * {@link #create(StructuredTableContext, ApplicationMetaCache)} instead.
    */
   public static AppMetadataStore create(StructuredTableContext context) {
-    return new AppMetadataStore(context);
+    return new AppMetadataStore(context, null);
+  }
+
+  /**
+   * Static method for creating an instance of {@link AppMetadataStore} that uses the given
+   * {@link ApplicationMetaCache} for decoding application metadata.
+   */
+  public static AppMetadataStore create(StructuredTableContext context, @Nullable ApplicationMetaCache appMetaCache) {
+    return new AppMetadataStore(context, appMetaCache);
   }
 
-  private AppMetadataStore(StructuredTableContext context) {
+  private AppMetadataStore(StructuredTableContext context, @Nullable ApplicationMetaCache appMetaCache) {
     this.context = context;
+    this.appMetaCache = appMetaCache;
   }
 
   private StructuredTable getApplicationSpecificationTable() {
@@ -186,6 +223,17 @@ public class AppMetadataStore {
     return runRecordsTable;
   }
 
+  private StructuredTable getRunRecordsTimeIndexTable() {
+    try {
+      if (runRecordsTimeIndexTable == null) {
+        runRecordsTimeIndexTable = context.getTable(StoreDefinition.AppMetadataStore.RUN_RECORDS_TIME_INDEX);
+      }
+    } catch (TableNotFoundException e) {
+      throw new RuntimeException(e);
+    }
+    return runRecordsTimeIndexTable;
+  }
+
   private StructuredTable getWorkflowsTable() {
     try {
       if (workflowsTable == null) {
@@ -228,8 +276,8 @@ public class AppMetadataStore {
   public ApplicationMeta getApplication(String namespaceId, String appId, String versionId) throws IOException {
     List<Field<?>> fields = getApplicationPrimaryKeys(namespaceId, appId, versionId);
     return getApplicationSpecificationTable().read(fields)
-      .map(r -> GSON.fromJson(r.getString(StoreDefinition.AppMetadataStore.APPLICATION_DATA_FIELD),
-                              ApplicationMeta.class))
+      .map(r -> decodeApplicationMeta(new NamespaceId(namespaceId).app(appId, versionId),
+                                      r.getString(StoreDefinition.AppMetadataStore.APPLICATION_DATA_FIELD)))
       .orElse(null);
   }
 
@@ -295,12 +343,7 @@ public class AppMetadataStore {
   }
 
   public List<ApplicationMeta> getAllApplications(String namespaceId) throws IOException {
-    return
-      scanWithRange(
-        getNamespaceRange(namespaceId),
-        ApplicationMeta.class,
-        getApplicationSpecificationTable(),
-        StoreDefinition.AppMetadataStore.APPLICATION_DATA_FIELD);
+    return scanApplicationMetas(getNamespaceRange(namespaceId));
   }
 
   public long getApplicationCount() throws IOException {
@@ -316,11 +359,20 @@ public class AppMetadataStore {
   }
 
   public List<ApplicationMeta> getAllAppVersions(String namespaceId, String appId) throws IOException {
-    return scanWithRange(
-      getNamespaceAndApplicationRange(namespaceId, appId),
-      ApplicationMeta.class,
-      getApplicationSpecificationTable(),
-      StoreDefinition.AppMetadataStore.APPLICATION_DATA_FIELD);
+    return scanApplicationMetas(getNamespaceAndApplicationRange(namespaceId, appId));
+  }
+
+  private List<ApplicationMeta> scanApplicationMetas(Range range) throws IOException {
+    List<ApplicationMeta> result = new ArrayList<>();
+    StructuredTable table = getApplicationSpecificationTable();
+    try (CloseableIterator<StructuredRow> iterator = table.scan(range, Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        StructuredRow row = iterator.next();
+        result.add(decodeApplicationMeta(getApplicationIdFromRow(row),
+                                         row.getString(StoreDefinition.AppMetadataStore.APPLICATION_DATA_FIELD)));
+      }
+    }
+    return result;
   }
 
   public List<ApplicationId> getAllAppVersionsAppIds(String namespaceId, String appId) throws IOException {
@@ -353,8 +405,8 @@ public class AppMetadataStore {
 
     for (StructuredRow row : getApplicationSpecificationTable().multiRead(multiKeys)) {
       ApplicationId appId = getApplicationIdFromRow(row);
-      result.put(appId, GSON.fromJson(row.getString(StoreDefinition.AppMetadataStore.APPLICATION_DATA_FIELD),
-                                      ApplicationMeta.class));
+      result.put(appId, decodeApplicationMeta(appId,
+                                              row.getString(StoreDefinition.AppMetadataStore.APPLICATION_DATA_FIELD)));
     }
 
     return result;
@@ -407,11 +459,17 @@ public class AppMetadataStore {
     throws IOException {
     List<Field<?>> fields = getApplicationPrimaryKeys(namespaceId, appId, versionId);
     getApplicationSpecificationTable().delete(fields);
+    if (appMetaCache != null) {
+      appMetaCache.invalidate(new NamespaceId(namespaceId).app(appId, versionId));
+    }
   }
 
   public void deleteApplications(String namespaceId)
     throws IOException {
     getApplicationSpecificationTable().deleteAll(getNamespaceRange(namespaceId));
+    if (appMetaCache != null) {
+      appMetaCache.invalidate(new NamespaceId(namespaceId));
+    }
   }
 
   public void updateAppSpec(ApplicationId appId, ApplicationSpecification spec) throws IOException {
@@ -601,6 +659,7 @@ public class AppMetadataStore {
       .build();
     writeToStructuredTableWithPrimaryKeys(
       key, meta, getRunRecordsTable(), StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+    updateRunRecordTimeIndex(existing, TYPE_RUN_RECORD_ACTIVE, meta);
     LOG.trace("Recorded {} for program {}", ProgramRunClusterStatus.PROVISIONED, programRunId);
     return meta;
   }
@@ -641,6 +700,7 @@ public class AppMetadataStore {
       .build();
     writeToStructuredTableWithPrimaryKeys(
       key, meta, getRunRecordsTable(), StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+    updateRunRecordTimeIndex(existing, TYPE_RUN_RECORD_COMPLETED, meta);
     LOG.trace("Recorded {} for program {}", ProgramRunClusterStatus.DEPROVISIONING, programRunId);
     return meta;
   }
@@ -682,6 +742,7 @@ public class AppMetadataStore {
       .build();
     writeToStructuredTableWithPrimaryKeys(
       key, meta, getRunRecordsTable(), StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+    updateRunRecordTimeIndex(existing, TYPE_RUN_RECORD_COMPLETED, meta);
     LOG.trace("Recorded {} for program {}", ProgramRunClusterStatus.DEPROVISIONED, programRunId);
     return meta;
   }
@@ -722,6 +783,7 @@ public class AppMetadataStore {
       .build();
     writeToStructuredTableWithPrimaryKeys(
       key, meta, getRunRecordsTable(), StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+    updateRunRecordTimeIndex(existing, TYPE_RUN_RECORD_COMPLETED, meta);
     LOG.trace("Recorded {} for program {}", ProgramRunClusterStatus.ORPHANED, programRunId);
     return meta;
   }
@@ -774,6 +836,7 @@ public class AppMetadataStore {
                                                          meta.getProgramRunId(), meta.getStartTs());
     writeToStructuredTableWithPrimaryKeys(fields, meta, getRunRecordsTable(),
                                           StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+    updateRunRecordTimeIndex(null, typeRunRecordCompleted, meta);
     List<Field<?>> countKey = getProgramCountPrimaryKeys(TYPE_COUNT, meta.getProgramRunId().getParent());
     getProgramCountsTable().increment(countKey, StoreDefinition.AppMetadataStore.COUNTS, 1L);
   }
@@ -823,6 +886,7 @@ public class AppMetadataStore {
       .build();
     writeToStructuredTableWithPrimaryKeys(
       key, meta, getRunRecordsTable(), StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+    updateRunRecordTimeIndex(existing, TYPE_RUN_RECORD_ACTIVE, meta);
     LOG.trace("Recorded {} for program {}", ProgramRunStatus.STARTING, programRunId);
     return meta;
   }
@@ -871,6 +935,7 @@ public class AppMetadataStore {
       .build();
     writeToStructuredTableWithPrimaryKeys(
       key, meta, getRunRecordsTable(), StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+    updateRunRecordTimeIndex(existing, TYPE_RUN_RECORD_ACTIVE, meta);
     LOG.trace("Recorded {} for program {}", ProgramRunStatus.RUNNING, programRunId);
     return meta;
   }
@@ -947,6 +1012,7 @@ public class AppMetadataStore {
     RunRecordDetail meta = builder.build();
     writeToStructuredTableWithPrimaryKeys(
       key, meta, getRunRecordsTable(), StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+    updateRunRecordTimeIndex(existing, TYPE_RUN_RECORD_ACTIVE, meta);
     LOG.trace("Recorded {} for program {}", toStatus, programRunId);
     return meta;
   }
@@ -994,6 +1060,7 @@ public class AppMetadataStore {
       .build();
     writeToStructuredTableWithPrimaryKeys(
       key, meta, getRunRecordsTable(), StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+    updateRunRecordTimeIndex(existing, TYPE_RUN_RECORD_COMPLETED, meta);
     LOG.trace("Recorded {} for program {}", runStatus, programRunId);
     return meta;
   }
@@ -1126,6 +1193,44 @@ public class AppMetadataStore {
     }
   }
 
+  /**
+   * Adds a batch of run records to the run record time index. It is for indexing the run records written before the
+   * index was introduced. Until all of them are indexed, time range queries of run records scan the run records
+   * instead of using the index. The key of the last indexed run record is saved in the same transaction, so that
+   * the next call resumes from it, even after a restart.
+   *
+   * @param limit maximum number of run records to index
+   * @return {@code true} if there are more run records to index, {@code false} if all of them have been indexed
+   * @throws IOException if failed to query or update the storage
+   */
+  public boolean backfillRunRecordTimeIndex(int limit) throws IOException {
+    if (isRunRecordTimeIndexReady()) {
+      return false;
+    }
+
+    String cursor = retrieveSubscriberState(RUN_TIME_INDEX_TOPIC, RUN_TIME_INDEX_BACKFILL_CURSOR);
+    Range range = cursor == null ? Range.all() : Range.from(decodeRunRecordKey(cursor), Range.Bound.EXCLUSIVE);
+    String lastKey = null;
+    int count = 0;
+    try (CloseableIterator<StructuredRow> iterator = getRunRecordsTable().scan(range, limit)) {
+      while (iterator.hasNext()) {
+        StructuredRow row = iterator.next();
+        String recordType = row.getString(StoreDefinition.AppMetadataStore.RUN_STATUS);
+        RunRecordDetail meta = deserializeRunRecordMeta(row);
+        writeRunRecordTimeIndex(recordType, meta);
+        lastKey = encodeRunRecordKey(recordType, meta);
+        count++;
+      }
+    }
+    if (count < limit) {
+      persistSubscriberState(RUN_TIME_INDEX_TOPIC, RUN_TIME_INDEX_BACKFILL, Boolean.TRUE.toString());
+      getSubscriberStateTable().delete(getSubscriberKeys(RUN_TIME_INDEX_TOPIC, RUN_TIME_INDEX_BACKFILL_CURSOR));
+      return false;
+    }
+    persistSubscriberState(RUN_TIME_INDEX_TOPIC, RUN_TIME_INDEX_BACKFILL_CURSOR, lastKey);
+    return true;
+  }
+
   /**
    * Get active runs in all namespaces with a filter, active runs means program run with status STARTING, PENDING,
    * RUNNING or SUSPENDED.
@@ -1306,6 +1411,7 @@ public class AppMetadataStore {
       return null;
     }
     delete(detail);
+    deleteRunRecordTimeIndex(STATUS_TYPE_MAP.get(detail.getStatus()), detail);
     return detail;
   }
 
@@ -1316,6 +1422,135 @@ public class AppMetadataStore {
     getRunRecordsTable().delete(key);
   }
 
+  /**
+   * Updates the run record time index for the given run record, which is written with the given record type and
+   * replaces the given existing run record.
+   */
+  private void updateRunRecordTimeIndex(@Nullable RunRecordDetail existing, String recordType,
+                                        RunRecordDetail meta) throws IOException {
+    if (existing != null) {
+      String existingType = STATUS_TYPE_MAP.get(existing.getStatus());
+      // The index rows only depend on the record type, the start time and the stop time
+      if (recordType.equals(existingType) && existing.getStartTs() == meta.getStartTs()
+        && Objects.equals(existing.getStopTs(), meta.getStopTs())) {
+        return;
+      }
+      deleteRunRecordTimeIndex(existingType, existing);
+    }
+    writeRunRecordTimeIndex(recordType, meta);
+  }
+
+  private void writeRunRecordTimeIndex(String recordType, RunRecordDetail meta) throws IOException {
+    List<List<Field<?>>> rows = getRunRecordTimeIndexKeys(recordType, meta);
+    for (List<Field<?>> row : rows) {
+      row.add(Fields.longField(StoreDefinition.AppMetadataStore.RUN_START_TIME, meta.getStartTs()));
+      if (meta.getStopTs() != null) {
+        row.add(Fields.longField(StoreDefinition.AppMetadataStore.RUN_STOP_TIME, meta.getStopTs()));
+      }
+    }
+    getRunRecordsTimeIndexTable().multiUpsert(rows);
+  }
+
+  private void deleteRunRecordTimeIndex(String recordType, RunRecordDetail meta) throws IOException {
+    getRunRecordsTimeIndexTable().multiDelete(getRunRecordTimeIndexKeys(recordType, meta));
+  }
+
+  /**
+   * Deletes the run record time index rows of the run records in the given range of the run records table.
+   */
+  private void deleteRunRecordTimeIndex(Range range) throws IOException {
+    try (CloseableIterator<StructuredRow> iterator = getRunRecordsTable().scan(range, Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        StructuredRow row = iterator.next();
+        // Rows deleted earlier in the same transaction can be returned without any column
+        if (row.getString(StoreDefinition.AppMetadataStore.RUN_RECORD_DATA) == null) {
+          continue;
+        }
+        deleteRunRecordTimeIndex(row.getString(StoreDefinition.AppMetadataStore.RUN_STATUS),
+                                 deserializeRunRecordMeta(row));
+      }
+    }
+  }
+
+  /**
+   * Returns the keys of the run record time index rows of the given run record. Every run has a row in the one hour
+   * bucket of its start time. The time from the start time to the stop time of a completed run is also split into
+   * the largest aligned buckets of power of two hours, with a row in each of them.
+   */
+  private List<List<Field<?>>> getRunRecordTimeIndexKeys(String recordType, RunRecordDetail meta) {
+    long startHour = getRunTimeHour(meta.getStartTs());
+    List<List<Field<?>>> keys = new ArrayList<>();
+    keys.add(getRunRecordTimeIndexKey(recordType, 0, startHour, meta));
+    if (!TYPE_RUN_RECORD_COMPLETED.equals(recordType) || meta.getStopTs() == null) {
+      return keys;
+    }
+
+    long endHour = Math.max(startHour, getRunTimeHour(meta.getStopTs())) + 1;
+    long hour = startHour;
+    while (hour < endHour) {
+      // The largest bucket that starts at the hour, which is aligned to its size and doesn't go beyond the end
+      int level = Math.min(Long.numberOfTrailingZeros(hour), 63 - Long.numberOfLeadingZeros(endHour - hour));
+      level = Math.min(level, RUN_TIME_BUCKET_MAX_LEVEL);
+      // The one hour bucket of the start time is already added
+      if (level > 0 || hour != startHour) {
+        keys.add(getRunRecordTimeIndexKey(recordType, level, hour, meta));
+      }
+      hour += 1L << level;
+    }
+    return keys;
+  }
+
+  private List<Field<?>> getRunRecordTimeIndexKey(String recordType, int level, long hour, RunRecordDetail meta) {
+    List<Field<?>> key = getRunTimeBucketPrefix(recordType, level, hour);
+    addProgramPrimaryKeys(meta.getProgramRunId().getParent(), key);
+    key.add(Fields.stringField(StoreDefinition.AppMetadataStore.RUN_FIELD, meta.getProgramRunId().getRun()));
+    return key;
+  }
+
+  /**
+   * Returns the prefix of the run record time index rows in the bucket of the given level that contains the
+   * given hour. The bucket of level {@code n} has the size of {@code 2^n} hours.
+   */
+  private List<Field<?>> getRunTimeBucketPrefix(String recordType, int level, long hour) {
+    List<Field<?>> prefix = getRunRecordStatusPrefix(recordType);
+    prefix.add(Fields.longField(StoreDefinition.AppMetadataStore.RUN_TIME_BUCKET_SIZE,
+                                RUN_TIME_BUCKET_SECONDS << level));
+    prefix.add(Fields.longField(StoreDefinition.AppMetadataStore.RUN_TIME_BUCKET,
+                                ((hour >> level) << level) * RUN_TIME_BUCKET_SECONDS));
+    return prefix;
+  }
+
+  private static long getRunTimeHour(long timeInSecs) {
+    return Math.floorDiv(timeInSecs, RUN_TIME_BUCKET_SECONDS);
+  }
+
+  /**
+   * Encodes the run records table key of the given run record, for saving the back-fill position.
+   */
+  private String encodeRunRecordKey(String recordType, RunRecordDetail meta) {
+    Map<String, String> key = new HashMap<>();
+    key.put("type", recordType);
+    key.put("run", meta.getProgramRunId().toString());
+    key.put("start", Long.toString(meta.getStartTs()));
+    return GSON.toJson(key);
+  }
+
+  /**
+   * Decodes a run records table key encoded by {@link #encodeRunRecordKey(String, RunRecordDetail)}.
+   */
+  private List<Field<?>> decodeRunRecordKey(String encoded) {
+    Map<String, String> key = GSON.fromJson(encoded, MAP_STRING_STRING_TYPE);
+    return getProgramRunInvertedTimeKey(key.get("type"), ProgramRunId.fromString(key.get("run")),
+                                        Long.parseLong(key.get("start")));
+  }
+
+  /**
+   * Returns whether all the run records have been added to the run record time index.
+   */
+  private boolean isRunRecordTimeIndexReady() throws IOException {
+    return retrieveSubscriberState(RUN_TIME_INDEX_TOPIC, RUN_TIME_INDEX_BACKFILL) != null;
+  }
+
   /**
    * @return run records for unfinished run
    */
@@ -1448,6 +1683,9 @@ public class AppMetadataStore {
     Predicate<StructuredRow> keyFilter = null;
 
     if (programId == null) {
+      if ((startTime > 0 || endTime != Long.MAX_VALUE) && isRunRecordTimeIndexReady()) {
+        return getRunsByStartTime(recordType, status, startTime, endTime, limit, filter);
+      }
       // Cannot use the run start time field if programId is missing. Need to use a key filter.
       keyFilter = getKeyFilterByTimeRange(startTime, endTime);
       scanRange = Range.singleton(prefix);
@@ -1476,6 +1714,83 @@ public class AppMetadataStore {
     return map;
   }
 
+  /**
+   * Gets the runs of all programs that started in the given time range, using the run record time index instead of
+   * scanning all the run records. The runs are in the order of their run records table keys, which is the order
+   * of a run records table scan, so that a limit gives the same runs as {@link #getProgramRuns} without the index.
+   */
+  private Map<ProgramRunId, RunRecordDetail> getRunsByStartTime(String recordType, ProgramRunStatus status,
+                                                                long startTime, long endTime, int limit,
+                                                                @Nullable Predicate<RunRecordDetail> filter)
+    throws IOException {
+    Map<ProgramRunId, RunRecordDetail> result = new LinkedHashMap<>();
+    if (startTime >= endTime || limit <= 0) {
+      return result;
+    }
+
+    // Every run has a row in the one hour bucket of its start time
+    List<Field<?>> begin = getRunTimeBucketPrefix(recordType, 0, getRunTimeHour(startTime));
+    List<Field<?>> end = getRunTimeBucketPrefix(recordType, 0, getRunTimeHour(endTime - 1));
+
+    Map<ProgramRunId, List<Field<?>>> keys = new HashMap<>();
+    Range range = Range.create(begin, Range.Bound.INCLUSIVE, end, Range.Bound.INCLUSIVE);
+    try (CloseableIterator<StructuredRow> iterator = getRunRecordsTimeIndexTable().scan(range, Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        StructuredRow row = iterator.next();
+        Long startTs = row.getLong(StoreDefinition.AppMetadataStore.RUN_START_TIME);
+        // Skip the rows deleted earlier in the same transaction, which are returned without any column, and the rows
+        // of runs that started in other buckets, which cover the buckets from their start time
+        if (startTs == null || startTs < startTime || startTs >= endTime
+          || row.getLong(StoreDefinition.AppMetadataStore.RUN_TIME_BUCKET) != getRunTimeHour(startTs)
+          * RUN_TIME_BUCKET_SECONDS) {
+          continue;
+        }
+        ProgramRunId programRunId = getApplicationIdFromRow(row)
+          .program(ProgramType.valueOf(row.getString(StoreDefinition.AppMetadataStore.PROGRAM_TYPE_FIELD)),
+                   row.getString(StoreDefinition.AppMetadataStore.PROGRAM_FIELD))
+          .run(row.getString(StoreDefinition.AppMetadataStore.RUN_FIELD));
+        keys.put(programRunId, getProgramRunInvertedTimeKey(recordType, programRunId, startTs));
+      }
+    }
+    List<ProgramRunId> programRunIds = new ArrayList<>(keys.keySet());
+    programRunIds.sort(Comparator.comparing(keys::get, AppMetadataStore::compareKeys));
+
+    // Read the run records in batches, until there are enough records that pass the filters
+    for (List<ProgramRunId> batch : Lists.partition(programRunIds, RUN_RECORD_READ_BATCH_SIZE)) {
+      List<List<Field<?>>> batchKeys = batch.stream().map(keys::get).collect(Collectors.toList());
+      Map<ProgramRunId, RunRecordDetail> records = getRunRecordsTable().multiRead(batchKeys).stream()
+        .map(AppMetadataStore::deserializeRunRecordMeta)
+        .collect(Collectors.toMap(RunRecordDetail::getProgramRunId, r -> r));
+
+      for (ProgramRunId programRunId : batch) {
+        RunRecordDetail meta = records.get(programRunId);
+        if (meta == null || (status != ProgramRunStatus.ALL && status != meta.getStatus())
+          || (filter != null && !filter.test(meta))) {
+          continue;
+        }
+        result.put(programRunId, meta);
+        if (result.size() >= limit) {
+          return result;
+        }
+      }
+    }
+    return result;
+  }
+
+
+  /**
+   * Compares two keys of the same table by the values of their fields, in the order of the fields.
+   */
+  @SuppressWarnings("unchecked")
+  private static int compareKeys(List<Field<?>> key1, List<Field<?>> key2) {
+    for (int i = 0; i < Math.min(key1.size(), key2.size()); i++) {
+      int result = ((Comparable<Object>) key1.get(i).getValue()).compareTo(key2.get(i).getValue());
+      if (result != 0) {
+        return result;
+      }
+    }
+    return Integer.compare(key1.size(), key2.size());
+  }
 
   private long getInvertedTsKeyPart(long time) {
     return Long.MAX_VALUE - time;
@@ -1494,6 +1809,9 @@ public class AppMetadataStore {
   public void deleteProgramHistory(String namespaceId, String appId, String versionId)
     throws IOException {
     ApplicationId applicationId = new ApplicationId(namespaceId, appId, versionId);
+    deleteRunRecordTimeIndex(Range.singleton(getRunRecordApplicationPrefix(TYPE_RUN_RECORD_ACTIVE, applicationId)));
+    deleteRunRecordTimeIndex(Range.singleton(getRunRecordApplicationPrefix(TYPE_RUN_RECORD_COMPLETED,
+                                                                           applicationId)));
     getRunRecordsTable()
       .deleteAll(Range.singleton(getRunRecordApplicationPrefix(TYPE_RUN_RECORD_ACTIVE, applicationId)));
     getRunRecordsTable()
@@ -1504,6 +1822,8 @@ public class AppMetadataStore {
   }
 
   public void deleteProgramHistory(NamespaceId namespaceId) throws IOException {
+    deleteRunRecordTimeIndex(Range.singleton(getRunRecordNamespacePrefix(TYPE_RUN_RECORD_ACTIVE, namespaceId)));
+    deleteRunRecordTimeIndex(Range.singleton(getRunRecordNamespacePrefix(TYPE_RUN_RECORD_COMPLETED, namespaceId)));
     getRunRecordsTable().deleteAll(
       Range.singleton(getRunRecordNamespacePrefix(TYPE_RUN_RECORD_ACTIVE, namespaceId)));
     getRunRecordsTable().deleteAll(Range.singleton(
@@ -1550,10 +1870,6 @@ public class AppMetadataStore {
    */
   public Set<RunId> getRunningInRangeCompleted(long startTimeInSecs, long endTimeInSecs)
     throws IOException {
-    // This method scans a large amount of data and may timeout. However, the previous implementation would
-    // simply return incomplete data. We have doubled the amount of time each transaction can take by using two
-    // transactions - and can further get all namespaces from the smaller app spec table and do one transaction per
-    // namespace if necessary.
     return getRunningInRangeForStatus(TYPE_RUN_RECORD_COMPLETED, startTimeInSecs, endTimeInSecs);
   }
 
@@ -1562,10 +1878,6 @@ public class AppMetadataStore {
    */
   public Set<RunId> getRunningInRangeActive(long startTimeInSecs, long endTimeInSecs)
     throws IOException {
-    // This method scans a large amount of data and may timeout. However, the previous implementation would
-    // simply return incomplete data. We have doubled the amount of time each transaction can take by using two
-    // transactions - and can further get all namespaces from the smaller app spec table and do one transaction per
-    // namespace if necessary.
     return getRunningInRangeForStatus(TYPE_RUN_RECORD_ACTIVE, startTimeInSecs, endTimeInSecs);
   }
 
@@ -1642,6 +1954,53 @@ public class AppMetadataStore {
   @VisibleForTesting
   Set<RunId> getRunningInRangeForStatus(String statusKey, long startTimeInSecs,
                                         long endTimeInSecs) throws IOException {
+    if (!isRunRecordTimeIndexReady()) {
+      return scanRunningInRangeForStatus(statusKey, startTimeInSecs, endTimeInSecs);
+    }
+
+    // A run that started in the time range has an index row in the one hour bucket of its start time. A completed
+    // run that started before the range and stopped after the range start time has an index row in one of the
+    // buckets containing the range start time, hence one bucket of each size is read for them.
+    // Since active runs only have the row of their start time, all the buckets before the range end time are
+    // scanned for them.
+    long startHour = getRunTimeHour(startTimeInSecs);
+    long endHour = Math.max(startHour, getRunTimeHour(endTimeInSecs - 1));
+    List<Range> ranges = new ArrayList<>();
+    if (TYPE_RUN_RECORD_COMPLETED.equals(statusKey)) {
+      ranges.add(Range.create(getRunTimeBucketPrefix(statusKey, 0, startHour), Range.Bound.INCLUSIVE,
+                              getRunTimeBucketPrefix(statusKey, 0, endHour), Range.Bound.INCLUSIVE));
+      for (int level = 1; level <= RUN_TIME_BUCKET_MAX_LEVEL; level++) {
+        ranges.add(Range.singleton(getRunTimeBucketPrefix(statusKey, level, startHour)));
+      }
+    } else {
+      List<Field<?>> begin = getRunRecordStatusPrefix(statusKey);
+      begin.add(Fields.longField(StoreDefinition.AppMetadataStore.RUN_TIME_BUCKET_SIZE, RUN_TIME_BUCKET_SECONDS));
+      ranges.add(Range.create(begin, Range.Bound.INCLUSIVE,
+                              getRunTimeBucketPrefix(statusKey, 0, endHour), Range.Bound.INCLUSIVE));
+    }
+
+    Set<RunId> runIds = new HashSet<>();
+    try (CloseableIterator<StructuredRow> iterator = getRunRecordsTimeIndexTable().multiScan(ranges,
+                                                                                             Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        StructuredRow row = iterator.next();
+        Long startTs = row.getLong(StoreDefinition.AppMetadataStore.RUN_START_TIME);
+        Long stopTs = row.getLong(StoreDefinition.AppMetadataStore.RUN_STOP_TIME);
+        // Rows deleted earlier in the same transaction are returned without any column
+        if (startTs != null && startTs < endTimeInSecs && (stopTs == null || stopTs >= startTimeInSecs)) {
+          runIds.add(RunIds.fromString(row.getString(StoreDefinition.AppMetadataStore.RUN_FIELD)));
+        }
+      }
+    }
+    return runIds;
+  }
+
+  /**
+   * Same as {@link #getRunningInRangeForStatus(String, long, long)}, but scans the run records instead of using the
+   * run record time index. It is only used before the existing run records have been added to the index.
+   */
+  private Set<RunId> scanRunningInRangeForStatus(String statusKey, long startTimeInSecs,
+                                                 long endTimeInSecs) throws IOException {
     // Create time filter to get running programs between start and end time
     Predicate<RunRecordDetail> timeFilter = (runRecordMeta) ->
       runRecordMeta.getStartTs() < endTimeInSecs &&
@@ -1663,6 +2022,7 @@ public class AppMetadataStore {
     deleteTable(getApplicationSpecificationTable(), StoreDefinition.AppMetadataStore.NAMESPACE_FIELD);
     deleteTable(getWorkflowNodeStateTable(), StoreDefinition.AppMetadataStore.NAMESPACE_FIELD);
     deleteTable(getRunRecordsTable(), StoreDefinition.AppMetadataStore.RUN_STATUS);
+    deleteTable(getRunRecordsTimeIndexTable(), StoreDefinition.AppMetadataStore.RUN_STATUS);
     deleteTable(getWorkflowsTable(), StoreDefinition.AppMetadataStore.NAMESPACE_FIELD);
     deleteTable(getProgramCountsTable(), StoreDefinition.AppMetadataStore.COUNT_TYPE);
     deleteTable(getSubscriberStateTable(), StoreDefinition.AppMetadataStore.SUBSCRIBER_TOPIC);
@@ -1705,6 +2065,20 @@ public class AppMetadataStore {
     List<Field<?>> fields = getApplicationPrimaryKeys(namespaceId, appId, versionId);
     fields.add(Fields.stringField(StoreDefinition.AppMetadataStore.APPLICATION_DATA_FIELD, serialized));
     getApplicationSpecificationTable().upsert(fields);
+    if (appMetaCache != null) {
+      appMetaCache.invalidate(new NamespaceId(namespaceId).app(appId, versionId));
+    }
+  }
+
+  /**
+   * Decodes the {@link ApplicationMeta} of the given application from the given JSON, using the
+   * {@link ApplicationMetaCache} if there is one.
+   */
+  private ApplicationMeta decodeApplicationMeta(ApplicationId appId, String json) {
+    if (appMetaCache == null) {
+      return GSON.fromJson(json, ApplicationMeta.class);
+    }
+    return appMetaCache.get(appId, json, j -> GSON.fromJson(j, ApplicationMeta.class));
   }
 
   private List<Field<?>> getCountTypePrefix(String countType) {
@@ -1874,7 +2248,7 @@ public class AppMetadataStore {
     }
   }
 
-  private static final class AppScanEntry implements Map.Entry<ApplicationId, ApplicationMeta> {
+  private final class AppScanEntry implements Map.Entry<ApplicationId, ApplicationMeta> {
 
     private final ApplicationId appId;
     private final String rawAppMeta;
@@ -1897,7 +2271,7 @@ public class AppMetadataStore {
       if (meta != null) {
         return meta;
       }
-      appMeta = meta = GSON.fromJson(rawAppMeta, ApplicationMeta.class);
+      appMeta = meta = decodeApplicationMeta(appId, rawAppMeta);
       return meta;
     }
 
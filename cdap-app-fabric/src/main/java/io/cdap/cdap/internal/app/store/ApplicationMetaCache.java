@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.store;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.api.metrics.NoopMetricsContext;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.proto.id.ApplicationId;
+import io.cdap.cdap.proto.id.NamespaceId;
+
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+/**
+ * A cache of decoded {@link ApplicationMeta}, shared by the {@link AppMetadataStore} instances created with it, such
+ * that the potentially large application specification JSON is not decoded on every read.
+ *
+ * Each entry remembers the JSON that it was decoded from, and it is only used if the JSON read from the store is
+ * the same. Hence the cache never returns a stale application, even if the application was updated by another
+ * process or the update happened in a transaction that failed afterwards. Entries are also invalidated when an
+ * application is written or deleted through the {@link AppMetadataStore}, to release the memory early.
+ */
+@Singleton
+public class ApplicationMetaCache {
+
+  // Estimated bytes of an entry other than the chars of its JSON, for the objects of the entry and the JSON string
+  private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+  @Nullable
+  private final Cache<ApplicationId, Entry> cache;
+  private volatile MetricsContext metricsContext;
+
+  @Inject
+  ApplicationMetaCache(CConfiguration cConf) {
+    long maxSize = cConf.getLong(Constants.AppFabric.APP_META_CACHE_SIZE_MB) * 1024 * 1024;
+    this.cache = maxSize <= 0 ? null : CacheBuilder.newBuilder()
+      .maximumWeight(maxSize)
+      .weigher((ApplicationId key, Entry value) -> getWeight(value))
+      .build();
+    this.metricsContext = new NoopMetricsContext();
+  }
+
+  /**
+   * Optional guice injection for the {@link MetricsCollectionService}, for emitting cache hit and miss metrics.
+   * It is optional because the store is also used in places that don't emit metrics, like tools and unit-tests.
+   */
+  @Inject(optional = true)
+  void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    this.metricsContext = metricsCollectionService.getContext(ImmutableMap.of(
+      Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace(),
+      Constants.Metrics.Tag.COMPONENT, Constants.Service.APP_FABRIC_HTTP));
+  }
+
+  /**
+   * Returns the {@link ApplicationMeta} of the given application decoded from the given JSON. The cached one is
+   * returned if it was decoded from the same JSON, otherwise the JSON is decoded with the given decoder and cached.
+   */
+  ApplicationMeta get(ApplicationId appId, String json, Function<String, ApplicationMeta> decoder) {
+    if (cache == null) {
+      return decoder.apply(json);
+    }
+    Entry entry = cache.getIfPresent(appId);
+    if (entry != null && entry.json.equals(json)) {
+      metricsContext.increment(Constants.Metrics.Name.AppFabric.APP_META_CACHE_HIT_COUNT, 1L);
+      return entry.appMeta;
+    }
+    metricsContext.increment(Constants.Metrics.Name.AppFabric.APP_META_CACHE_MISS_COUNT, 1L);
+    ApplicationMeta appMeta = decoder.apply(json);
+    cache.put(appId, new Entry(json, appMeta));
+    return appMeta;
+  }
+
+  /**
+   * Invalidates the cached entry of the given application.
+   */
+  void invalidate(ApplicationId appId) {
+    if (cache != null) {
+      cache.invalidate(appId);
+    }
+  }
+
+  /**
+   * Invalidates the cached entries of all the applications in the given namespace.
+   */
+  void invalidate(NamespaceId namespaceId) {
+    if (cache != null) {
+      cache.asMap().keySet().removeIf(appId -> appId.getParent().equals(namespaceId));
+    }
+  }
+
+  /**
+   * Returns the number of cached entries.
+   */
+  long size() {
+    return cache == null ? 0L : cache.size();
+  }
+
+  /**
+   * Returns the weight of the given entry, which is the estimated number of bytes taken by its JSON, at two bytes
+   * per char.
+   */
+  private static int getWeight(Entry entry) {
+    return (int) Math.min(Integer.MAX_VALUE, 2L * entry.json.length() + ENTRY_OVERHEAD_BYTES);
+  }
+
+  /**
+   * A decoded {@link ApplicationMeta} together with the JSON it was decoded from.
+   */
+  private static final class Entry {
+
+    private final String json;
+    private final ApplicationMeta appMeta;
+
+    Entry(String json, @Nullable ApplicationMeta appMeta) {
+      this.json = json;
+      this.appMeta = appMeta;
+    }
+  }
+}
@@ -94,12 +94,22 @@ public class DefaultStore implements Store {
   private static final Map<String, String> EMPTY_STRING_MAP = Collections.emptyMap();
 
   private final TransactionRunner transactionRunner;
+  private ApplicationMetaCache appMetaCache;
 
   @Inject
   public DefaultStore(TransactionRunner transactionRunner) {
     this.transactionRunner = transactionRunner;
   }
 
+  /**
+   * Optional guice injection for the {@link ApplicationMetaCache}, which is shared by all the stores in the process.
+   * The store doesn't cache application metadata if it is created without guice.
+   */
+  @Inject(optional = true)
+  void setApplicationMetaCache(ApplicationMetaCache appMetaCache) {
+    this.appMetaCache = appMetaCache;
+  }
+
   /**
    * Adds datasets and types to the given {@link DatasetFramework} used by app mds.
    *
@@ -112,7 +122,7 @@ public class DefaultStore implements Store {
   }
 
   private AppMetadataStore getAppMetadataStore(StructuredTableContext context) {
-    return AppMetadataStore.create(context);
+    return AppMetadataStore.create(context, appMetaCache);
   }
 
   private WorkflowTable getWorkflowTable(StructuredTableContext context) throws TableNotFoundException {
@@ -730,6 +740,16 @@ public class DefaultStore implements Store {
     return runs;
   }
 
+  @Override
+  public void backfillRunRecordTimeIndex(int batchSize) {
+    boolean hasMore = true;
+    while (hasMore && !Thread.currentThread().isInterrupted()) {
+      hasMore = TransactionRunners.run(transactionRunner, context -> {
+        return getAppMetadataStore(context).backfillRunRecordTimeIndex(batchSize);
+      });
+    }
+  }
+
   @Override
   public long getProgramRunCount(ProgramId programId) throws NotFoundException {
     return TransactionRunners.run(transactionRunner, context -> {
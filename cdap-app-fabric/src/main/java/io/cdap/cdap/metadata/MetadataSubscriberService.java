@@ -47,6 +47,7 @@ import io.cdap.cdap.data2.registry.UsageTable;
 import io.cdap.cdap.internal.app.runtime.workflow.BasicWorkflowToken;
 import io.cdap.cdap.internal.app.store.AppMetadataStore;
 import io.cdap.cdap.internal.app.store.ApplicationMeta;
+import io.cdap.cdap.internal.app.store.ApplicationMetaCache;
 import io.cdap.cdap.messaging.MessagingService;
 import io.cdap.cdap.messaging.context.MultiThreadMessagingContext;
 import io.cdap.cdap.messaging.subscriber.AbstractMessagingSubscriberService;
@@ -114,6 +115,7 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
   private final TransactionRunner transactionRunner;
   private final int maxRetriesOnConflict;
   private final MetricsCollectionService metricsCollectionService;
+  private final ApplicationMetaCache appMetaCache;
 
   private String conflictMessageId = null;
   private int conflictCount = 0;
@@ -125,7 +127,7 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
   MetadataSubscriberService(CConfiguration cConf, MessagingService messagingService,
                             MetricsCollectionService metricsCollectionService,
                             MetadataStorage metadataStorage,
-                            TransactionRunner transactionRunner) {
+                            TransactionRunner transactionRunner, ApplicationMetaCache appMetaCache) {
     super(
       NamespaceId.SYSTEM.topic(cConf.get(Constants.Metadata.MESSAGING_TOPIC)),
       cConf.getInt(Constants.Metadata.MESSAGING_FETCH_SIZE),
@@ -146,6 +148,7 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
     this.transactionRunner = transactionRunner;
     this.maxRetriesOnConflict = cConf.getInt(Constants.Metadata.MESSAGING_RETRIES_ON_CONFLICT);
     this.metricsCollectionService = metricsCollectionService;
+    this.appMetaCache = appMetaCache;
   }
 
   @Override
@@ -210,7 +213,7 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
     LOG.debug("Back-filling plugin metadata for {} namespaces", namespaces.size());
     for (String namespace : namespaces) {
       List<ApplicationMeta> apps = TransactionRunners.run(this.transactionRunner, context -> {
-        AppMetadataStore appMetadataStore = AppMetadataStore.create(context);
+        AppMetadataStore appMetadataStore = AppMetadataStore.create(context, appMetaCache);
         return appMetadataStore.getAllApplications(namespace);
       });
 
@@ -310,7 +313,7 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
           case ENTITY_CREATION:
           case ENTITY_DELETION:
             return new ProfileMetadataMessageProcessor(metadataStorage, structuredTableContext,
-                                                       metricsCollectionService);
+                                                       metricsCollectionService, appMetaCache);
           default:
             return null;
         }
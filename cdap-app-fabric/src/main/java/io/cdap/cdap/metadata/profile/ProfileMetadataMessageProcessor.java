@@ -36,6 +36,7 @@ import io.cdap.cdap.internal.app.runtime.schedule.store.ProgramScheduleStoreData
 import io.cdap.cdap.internal.app.runtime.schedule.store.Schedulers;
 import io.cdap.cdap.internal.app.store.AppMetadataStore;
 import io.cdap.cdap.internal.app.store.ApplicationMeta;
+import io.cdap.cdap.internal.app.store.ApplicationMetaCache;
 import io.cdap.cdap.internal.schedule.ScheduleCreationSpec;
 import io.cdap.cdap.metadata.MetadataMessageProcessor;
 import io.cdap.cdap.proto.NamespaceMeta;
@@ -99,9 +100,10 @@ public class ProfileMetadataMessageProcessor implements MetadataMessageProcessor
 
   public ProfileMetadataMessageProcessor(MetadataStorage metadataStorage,
                                          StructuredTableContext structuredTableContext,
-                                         MetricsCollectionService metricsCollectionService) {
+                                         MetricsCollectionService metricsCollectionService,
+                                         @Nullable ApplicationMetaCache appMetaCache) {
     namespaceTable = new NamespaceTable(structuredTableContext);
-    appMetadataStore = AppMetadataStore.create(structuredTableContext);
+    appMetadataStore = AppMetadataStore.create(structuredTableContext, appMetaCache);
     scheduleDataset = Schedulers.getScheduleStore(structuredTableContext);
     preferencesTable = new PreferencesTable(structuredTableContext);
     this.metadataStorage = metadataStorage;
@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.scheduler;
+
+import io.cdap.cdap.internal.app.runtime.schedule.queue.Job;
+import io.cdap.cdap.internal.app.runtime.schedule.queue.JobKey;
+import io.cdap.cdap.proto.id.ProgramId;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * An in-memory delay queue of the jobs that are pending constraint, ordered by the time at which their constraints
+ * need to be checked next. A job can be woken up before its check time by an event of the program it launches.
+ * This class is thread safe.
+ */
+final class ConstraintCheckQueue {
+
+  private final Map<JobKey, Entry> entries = new HashMap<>();
+  private final TreeSet<Entry> queue = new TreeSet<>(Comparator.comparingLong((Entry e) -> e.checkTime)
+                                                      .thenComparingLong(e -> e.sequence));
+  private final Map<ProgramId, Set<JobKey>> programJobs = new HashMap<>();
+  private long nextSequence;
+  private boolean closed;
+
+  /**
+   * Adds a job to the queue to be checked at the given time. If the job is already in the queue, it is checked
+   * at the earlier of its current check time and the given time.
+   */
+  synchronized void add(Job job, long checkTime) {
+    Entry entry = entries.get(job.getJobKey());
+    if (entry == null) {
+      entry = new Entry(job, checkTime, nextSequence++);
+      entries.put(job.getJobKey(), entry);
+      programJobs.computeIfAbsent(job.getSchedule().getProgramId(), k -> new HashSet<>()).add(job.getJobKey());
+      queue.add(entry);
+    } else if (checkTime < entry.checkTime) {
+      reschedule(entry, checkTime);
+    }
+    notifyAll();
+  }
+
+  /**
+   * Returns whether the queue contains the given job.
+   */
+  synchronized boolean contains(JobKey jobKey) {
+    return entries.containsKey(jobKey);
+  }
+
+  /**
+   * Makes all the jobs of the given program due at the given time, if they are not due earlier.
+   */
+  synchronized void wakeUp(ProgramId programId, long checkTime) {
+    Set<JobKey> jobKeys = programJobs.get(programId);
+    if (jobKeys == null) {
+      return;
+    }
+    for (JobKey jobKey : jobKeys) {
+      Entry entry = entries.get(jobKey);
+      if (checkTime < entry.checkTime) {
+        reschedule(entry, checkTime);
+      }
+    }
+    notifyAll();
+  }
+
+  /**
+   * Removes and returns the jobs that are due, waiting for up to the given time for the first job to become due.
+   *
+   * @param maxWaitMillis the maximum time to wait in milliseconds
+   * @return the due jobs as they were added to the queue, which is empty if no job became due within the given time
+   *         or if the queue is closed
+   * @throws InterruptedException if interrupted while waiting
+   */
+  synchronized List<Job> takeDue(long maxWaitMillis) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + maxWaitMillis;
+    long now = System.currentTimeMillis();
+    while (queue.isEmpty() || queue.first().checkTime > now) {
+      if (closed) {
+        return new ArrayList<>();
+      }
+      long waitMillis = queue.isEmpty() ? deadline - now : Math.min(deadline, queue.first().checkTime) - now;
+      if (waitMillis <= 0) {
+        return new ArrayList<>();
+      }
+      wait(waitMillis);
+      now = System.currentTimeMillis();
+    }
+    List<Job> dueJobs = new ArrayList<>();
+    while (!queue.isEmpty() && queue.first().checkTime <= now) {
+      Job job = queue.pollFirst().job;
+      entries.remove(job.getJobKey());
+      ProgramId programId = job.getSchedule().getProgramId();
+      Set<JobKey> jobKeys = programJobs.get(programId);
+      jobKeys.remove(job.getJobKey());
+      if (jobKeys.isEmpty()) {
+        programJobs.remove(programId);
+      }
+      dueJobs.add(job);
+    }
+    return dueJobs;
+  }
+
+  /**
+   * Closes the queue, so that the current and later {@link #takeDue(long)} calls return without waiting.
+   */
+  synchronized void close() {
+    closed = true;
+    notifyAll();
+  }
+
+  /**
+   * Returns the number of jobs in the queue.
+   */
+  synchronized int size() {
+    return entries.size();
+  }
+
+  private void reschedule(Entry entry, long checkTime) {
+    queue.remove(entry);
+    entry.checkTime = checkTime;
+    queue.add(entry);
+  }
+
+  /**
+   * A job in the queue. The sequence number orders jobs with the same check time.
+   */
+  private static final class Entry {
+    private final Job job;
+    private final long sequence;
+    private long checkTime;
+
+    Entry(Job job, long checkTime, long sequence) {
+      this.job = job;
+      this.checkTime = checkTime;
+      this.sequence = sequence;
+    }
+  }
+}
@@ -22,6 +22,7 @@ import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.app.store.Store;
 import io.cdap.cdap.common.ConflictException;
@@ -40,6 +41,7 @@ import io.cdap.cdap.internal.app.runtime.schedule.store.Schedulers;
 import io.cdap.cdap.internal.app.services.ProgramLifecycleService;
 import io.cdap.cdap.internal.app.services.PropertiesResolver;
 import io.cdap.cdap.internal.schedule.constraint.Constraint;
+import io.cdap.cdap.proto.id.ProgramId;
 import io.cdap.cdap.spi.data.transaction.TransactionException;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import io.cdap.cdap.spi.data.transaction.TransactionRunners;
@@ -48,14 +50,25 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Polls the JobQueue, checks the jobs for constraint satisfaction, and launches them.
+ * Checks the jobs in the JobQueue for constraint satisfaction, and launches them.
+ *
+ * Each partition of the JobQueue has a {@link ConstraintCheckQueue}, so that a job pending constraint is only checked
+ * when its constraints may have become satisfied, or when a run of its program has ended. Jobs are added to the
+ * check queues by the {@link ScheduleNotificationSubscriberService}, and by a periodic scan of the JobQueue, which
+ * also picks up the jobs that were pending constraint before startup and deletes the obsolete jobs.
  */
+@Singleton
 class ConstraintCheckerService extends AbstractIdleService {
   private static final Logger LOG = LoggerFactory.getLogger(ConstraintCheckerService.class);
 
@@ -65,6 +78,8 @@ class ConstraintCheckerService extends AbstractIdleService {
   private final NamespaceQueryAdmin namespaceQueryAdmin;
   private final CConfiguration cConf;
   private final TransactionRunner transactionRunner;
+  private final ConstraintCheckQueue[] checkQueues;
+  private final long scanIntervalMillis;
   private ScheduleTaskRunner taskRunner;
   private ListeningExecutorService taskExecutorService;
   private volatile boolean stopping = false;
@@ -81,6 +96,34 @@ class ConstraintCheckerService extends AbstractIdleService {
     this.namespaceQueryAdmin = namespaceQueryAdmin;
     this.cConf = cConf;
     this.transactionRunner = transactionRunner;
+    this.checkQueues = new ConstraintCheckQueue[cConf.getInt(Constants.Scheduler.JOB_QUEUE_NUM_PARTITIONS)];
+    for (int partition = 0; partition < checkQueues.length; partition++) {
+      checkQueues[partition] = new ConstraintCheckQueue();
+    }
+    this.scanIntervalMillis = cConf.getLong(Constants.Scheduler.JOB_QUEUE_SCAN_INTERVAL_MILLIS);
+  }
+
+  /**
+   * Adds jobs that became pending constraint, so that their constraints are checked right away.
+   */
+  void addJobs(Collection<Job> jobs) {
+    long now = System.currentTimeMillis();
+    for (Job job : jobs) {
+      int partition = JobQueueTable.getPartition(job.getSchedule().getScheduleId(), checkQueues.length);
+      checkQueues[partition].add(job, now);
+    }
+  }
+
+  /**
+   * Checks the constraints of the jobs of the given programs right away, since a run of each of them has ended.
+   */
+  void programRunsEnded(Collection<ProgramId> programIds) {
+    long now = System.currentTimeMillis();
+    for (ConstraintCheckQueue checkQueue : checkQueues) {
+      for (ProgramId programId : programIds) {
+        checkQueue.wakeUp(programId, now);
+      }
+    }
   }
 
   @Override
@@ -90,8 +133,7 @@ class ConstraintCheckerService extends AbstractIdleService {
       Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("constraint-checker-task-%d").build()));
     taskRunner = new ScheduleTaskRunner(store, lifecycleService, propertiesResolver, namespaceQueryAdmin, cConf);
 
-    int numPartitions = cConf.getInt(Constants.Scheduler.JOB_QUEUE_NUM_PARTITIONS);
-    for (int partition = 0; partition < numPartitions; partition++) {
+    for (int partition = 0; partition < checkQueues.length; partition++) {
       taskExecutorService.submit(new ConstraintCheckerThread(partition));
     }
     LOG.info("Started ConstraintCheckerService. state: " + state());
@@ -101,6 +143,10 @@ class ConstraintCheckerService extends AbstractIdleService {
   protected void shutDown() throws Exception {
     stopping = true;
     LOG.info("Stopping ConstraintCheckerService.");
+    // Wake up the threads waiting for due jobs, so that they see the service is stopping
+    for (ConstraintCheckQueue checkQueue : checkQueues) {
+      checkQueue.close();
+    }
     try {
       // Shutdown the executor and wait for all pending task to be completed for max of 5 seconds
       taskExecutorService.shutdown();
@@ -118,8 +164,12 @@ class ConstraintCheckerService extends AbstractIdleService {
   private class ConstraintCheckerThread implements Runnable {
     private final RetryStrategy scheduleStrategy;
     private final int partition;
+    private final ConstraintCheckQueue checkQueue;
     private final Deque<Job> readyJobs = new ArrayDeque<>();
+    // jobs to add to the check queue once the transaction that checked them is committed
+    private final Map<Job, Long> nextCheckTimes = new HashMap<>();
     private Job lastConsumed;
+    private long nextScanTime;
     private int failureCount;
 
     ConstraintCheckerThread(int partition) {
@@ -127,6 +177,7 @@ class ConstraintCheckerService extends AbstractIdleService {
       scheduleStrategy =
         io.cdap.cdap.common.service.RetryStrategies.exponentialDelay(100, 30000, TimeUnit.MILLISECONDS);
       this.partition = partition;
+      this.checkQueue = checkQueues[partition];
     }
 
     @Override
@@ -147,57 +198,112 @@ class ConstraintCheckerService extends AbstractIdleService {
     }
 
     /**
-     * Check jobs in job queue for constraint satisfaction.
+     * Scans the job queue if it is time to, and checks the jobs in the check queue that are due.
      *
-     * @return sleep time in milliseconds before next fetch
+     * @return sleep time in milliseconds before next check
      */
-    private long checkJobQueue() {
-      boolean emptyFetch = false;
+    private long checkJobQueue() throws InterruptedException {
+      List<Job> dueJobs = Collections.emptyList();
       try {
-        emptyFetch = TransactionRunners.run(transactionRunner, context -> {
-          return checkJobConstraints(JobQueueTable.getJobQueue(context, cConf));
-        });
+        if (System.currentTimeMillis() >= nextScanTime) {
+          scanJobQueue();
+        }
+        // Wait for due jobs until the next scan, unless the current scan is not complete yet
+        long waitMillis = lastConsumed == null ? nextScanTime - System.currentTimeMillis() : 0L;
+        dueJobs = checkQueue.takeDue(Math.max(0L, waitMillis));
+        if (!dueJobs.isEmpty()) {
+          checkDueJobs(dueJobs);
+        }
 
         // run any ready jobs
         runReadyJobs();
         failureCount = 0;
+        return 0L;
+      } catch (InterruptedException e) {
+        throw e;
       } catch (Exception e) {
         LOG.warn("Failed to check Job constraints. Will retry in next run", e);
         failureCount++;
       }
 
-      // If there is any failure, delay the next fetch based on the strategy
-      if (failureCount > 0) {
-        // Exponential strategy doesn't use the time component, so doesn't matter what we passed in as startTime
-        return scheduleStrategy.nextRetry(failureCount, 0);
+      // If there is any failure, delay the next check based on the strategy
+      // Exponential strategy doesn't use the time component, so doesn't matter what we passed in as startTime
+      long delay = scheduleStrategy.nextRetry(failureCount, 0);
+      long retryTime = System.currentTimeMillis() + delay;
+      for (Job job : dueJobs) {
+        checkQueue.add(job, retryTime);
       }
-
-      // Sleep for 2 seconds if there's no jobs in the queue
-      return emptyFetch && readyJobs.isEmpty() ? 2000L : 0L;
+      return delay;
     }
 
-    private boolean checkJobConstraints(JobQueue jobQueue) throws IOException {
-      boolean emptyScan = true;
+    /**
+     * Scans the partition of the job queue for up to a second, continuing from where the last scan stopped.
+     * The jobs pending constraint that are not in the check queue yet are checked and added to it.
+     */
+    private void scanJobQueue() {
+      boolean complete = TransactionRunners.run(transactionRunner, context -> {
+        nextCheckTimes.clear();
+        return scanJobQueue(JobQueueTable.getJobQueue(context, cConf));
+      });
+      addToCheckQueue();
+      if (complete) {
+        nextScanTime = System.currentTimeMillis() + scanIntervalMillis;
+      }
+    }
 
+    private boolean scanJobQueue(JobQueue jobQueue) throws IOException {
       try (CloseableIterator<Job> jobQueueIter = jobQueue.getJobs(partition, lastConsumed)) {
         Stopwatch stopWatch = new Stopwatch().start();
         // limit the batches of the scan to 1000ms
         while (!stopping && stopWatch.elapsedMillis() < 1000) {
           if (!jobQueueIter.hasNext()) {
             lastConsumed = null;
-            return emptyScan;
+            return true;
           }
           Job job = jobQueueIter.next();
           lastConsumed = job;
-          emptyScan = false;
-          checkAndUpdateJob(jobQueue, job);
+          long now = System.currentTimeMillis();
+          if (!deleteIfObsolete(jobQueue, job, now) && job.getState() == Job.State.PENDING_CONSTRAINT
+            && !checkQueue.contains(job.getJobKey())) {
+            checkAndUpdateJob(jobQueue, job, now);
+          }
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Checks the jobs that are due, based on their latest state in the job queue.
+     */
+    private void checkDueJobs(List<Job> dueJobs) {
+      TransactionRunners.run(transactionRunner, context -> {
+        nextCheckTimes.clear();
+        JobQueue jobQueue = JobQueueTable.getJobQueue(context, cConf);
+        long now = System.currentTimeMillis();
+        for (Job dueJob : dueJobs) {
+          // The job may have been deleted or launched since it was added to the check queue
+          Job job = jobQueue.getJob(dueJob.getJobKey());
+          if (job != null && !deleteIfObsolete(jobQueue, job, now) && job.getState() == Job.State.PENDING_CONSTRAINT) {
+            checkAndUpdateJob(jobQueue, job, now);
+          }
         }
+      });
+      addToCheckQueue();
+    }
+
+    private void addToCheckQueue() {
+      for (Map.Entry<Job, Long> entry : nextCheckTimes.entrySet()) {
+        checkQueue.add(entry.getKey(), entry.getValue());
       }
-      return emptyScan;
+      nextCheckTimes.clear();
     }
 
-    private void checkAndUpdateJob(JobQueue jobQueue, Job job) throws IOException {
-      long now = System.currentTimeMillis();
+    /**
+     * Deletes the job if it is marked for deletion or timed out.
+     *
+     * @return whether the job is marked for deletion or timed out, even if it cannot be deleted yet
+     */
+    private boolean deleteIfObsolete(JobQueue jobQueue, Job job, long now) throws IOException {
       if (job.isToBeDeleted()) {
         // only delete jobs that are pending trigger or pending constraint. If pending launch, the launcher will delete
         if ((job.getState() == Job.State.PENDING_CONSTRAINT ||
@@ -210,22 +316,28 @@ class ConstraintCheckerService extends AbstractIdleService {
             now - job.getDeleteTimeMillis() > 2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS))) {
           jobQueue.deleteJob(job);
         }
-        return;
+        return true;
       }
-      if (now - job.getCreationTime() >= job.getSchedule().getTimeoutMillis() +
-        2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS) {
+      if (now >= getTimeoutTime(job)) {
         LOG.info("Deleted job {}, due to timeout value of {}.", job.getJobKey(), job.getSchedule().getTimeoutMillis());
         jobQueue.deleteJob(job);
-        return;
-      }
-      if (job.getState() != Job.State.PENDING_CONSTRAINT) {
-        return;
+        return true;
       }
-      ConstraintResult.SatisfiedState satisfiedState = constraintsSatisfied(job, now);
-      if (satisfiedState == ConstraintResult.SatisfiedState.NOT_SATISFIED) {
+      return false;
+    }
+
+    private long getTimeoutTime(Job job) {
+      return job.getCreationTime() + job.getSchedule().getTimeoutMillis() + 2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS;
+    }
+
+    private void checkAndUpdateJob(JobQueue jobQueue, Job job, long now) throws IOException {
+      ConstraintResult result = constraintsSatisfied(job, now);
+      if (result.getSatisfiedState() == ConstraintResult.SatisfiedState.NOT_SATISFIED) {
+        // check again when the constraints may be satisfied, or when the job times out
+        nextCheckTimes.put(job, Math.min(result.getNextCheckTime(), getTimeoutTime(job)));
         return;
       }
-      if (satisfiedState == ConstraintResult.SatisfiedState.NEVER_SATISFIED) {
+      if (result.getSatisfiedState() == ConstraintResult.SatisfiedState.NEVER_SATISFIED) {
         jobQueue.deleteJob(job);
         return;
       }
@@ -283,8 +395,12 @@ class ConstraintCheckerService extends AbstractIdleService {
       return true;
     }
 
-    private ConstraintResult.SatisfiedState constraintsSatisfied(Job job, long now) {
-      ConstraintResult.SatisfiedState satisfiedState = ConstraintResult.SatisfiedState.SATISFIED;
+    /**
+     * Checks the constraints of the job. If any of them is not satisfied, returns the result with the latest
+     * next check time, since the job cannot be launched before then.
+     */
+    private ConstraintResult constraintsSatisfied(Job job, long now) {
+      ConstraintResult notSatisfied = null;
 
       ConstraintContext constraintContext = new ConstraintContext(job, now, store);
       for (Constraint constraint : job.getSchedule().getConstraints()) {
@@ -297,15 +413,16 @@ class ConstraintCheckerService extends AbstractIdleService {
 
         CheckableConstraint abstractConstraint = (CheckableConstraint) constraint;
         ConstraintResult result = abstractConstraint.check(job.getSchedule(), constraintContext);
-        if (result.getSatisfiedState() == ConstraintResult.NEVER_SATISFIED.getSatisfiedState()) {
+        if (result.getSatisfiedState() == ConstraintResult.SatisfiedState.NEVER_SATISFIED) {
           // if any of the constraints are NEVER_SATISFIED, return NEVER_SATISFIED
-          return ConstraintResult.NEVER_SATISFIED.getSatisfiedState();
+          return ConstraintResult.NEVER_SATISFIED;
         }
-        if (result.getSatisfiedState() == ConstraintResult.SatisfiedState.NOT_SATISFIED) {
-          satisfiedState = ConstraintResult.SatisfiedState.NOT_SATISFIED;
+        if (result.getSatisfiedState() == ConstraintResult.SatisfiedState.NOT_SATISFIED
+          && (notSatisfied == null || result.getNextCheckTime() > notSatisfied.getNextCheckTime())) {
+          notSatisfied = result;
         }
       }
-      return satisfiedState;
+      return notSatisfied == null ? ConstraintResult.SATISFIED : notSatisfied;
     }
 
   }
@@ -45,6 +45,7 @@ import io.cdap.cdap.internal.app.runtime.schedule.TimeSchedulerService;
 import io.cdap.cdap.internal.app.runtime.schedule.queue.Job;
 import io.cdap.cdap.internal.app.runtime.schedule.queue.JobQueueTable;
 import io.cdap.cdap.internal.app.runtime.schedule.store.ProgramScheduleStoreDataset;
+import io.cdap.cdap.internal.app.runtime.schedule.store.ScheduleTriggerIndex;
 import io.cdap.cdap.internal.app.runtime.schedule.store.Schedulers;
 import io.cdap.cdap.internal.app.store.profile.ProfileStore;
 import io.cdap.cdap.internal.profile.AdminEventPublisher;
@@ -95,6 +96,7 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
   private final Store appMetaStore;
   private final Impersonator impersonator;
   private final TransactionRunner transactionRunner;
+  private final ScheduleTriggerIndex triggerIndex;
 
   @Inject
   CoreSchedulerService(TimeSchedulerService timeSchedulerService,
@@ -102,7 +104,7 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
                        ConstraintCheckerService constraintCheckerService,
                        MessagingService messagingService,
                        CConfiguration cConf, Store store, Impersonator impersonator,
-                       TransactionRunner transactionRunner) {
+                       TransactionRunner transactionRunner, ScheduleTriggerIndex triggerIndex) {
     this.startedLatch = new CountDownLatch(1);
     MultiThreadMessagingContext messagingContext = new MultiThreadMessagingContext(messagingService);
     this.timeSchedulerService = timeSchedulerService;
@@ -110,6 +112,7 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
     this.appMetaStore = store;
     this.impersonator = impersonator;
     this.transactionRunner = transactionRunner;
+    this.triggerIndex = triggerIndex;
     // Use a retry on failure service to make it resilience to transient service unavailability during startup
     this.internalService = new RetryOnStartFailureService(() -> new AbstractIdleService() {
 
@@ -622,7 +625,7 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
   private <V, T extends Exception> V execute(StoreTxRunnable<V, ? extends Exception> runnable,
                                              Class<? extends T> tClass) throws T {
     return TransactionRunners.run(transactionRunner, context -> {
-      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context);
+      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context, triggerIndex);
       return runnable.run(store);
     }, tClass);
   }
@@ -631,7 +634,7 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
   private <V, T extends Exception> V execute(StoreAndQueueTxRunnable<V, ? extends Exception> runnable,
                                              Class<? extends T> tClass) throws T {
     return TransactionRunners.run(transactionRunner, context -> {
-      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context);
+      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context, triggerIndex);
       JobQueueTable queue = JobQueueTable.getJobQueue(context, cConf);
       return runnable.run(store, queue);
     }, tClass);
@@ -641,7 +644,7 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
   private <V, T extends Exception> V execute(StoreAndProfileTxRunnable<V, ? extends Exception> runnable,
                                              Class<? extends T> tClass) throws T {
     return TransactionRunners.run(transactionRunner, context -> {
-      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context);
+      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context, triggerIndex);
       ProfileStore profileStore = ProfileStore.get(context);
       return runnable.run(store, profileStore);
     }, tClass);
@@ -651,7 +654,7 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
   private <V, T extends Exception> V execute(StoreQueueAndProfileTxRunnable<V, ? extends Exception> runnable,
                                              Class<? extends T> tClass) throws T {
     return TransactionRunners.run(transactionRunner, context -> {
-      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context);
+      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context, triggerIndex);
       ProfileStore profileStore = ProfileStore.get(context);
       JobQueueTable queue = JobQueueTable.getJobQueue(context, cConf);
       return runnable.run(store, queue, profileStore);
@@ -23,6 +23,7 @@ import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import com.google.inject.Inject;
 import io.cdap.cdap.api.ProgramStatus;
+import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.metrics.MetricsCollectionService;
 import io.cdap.cdap.common.NotFoundException;
 import io.cdap.cdap.common.conf.CConfiguration;
@@ -30,11 +31,14 @@ import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.utils.ImmutablePair;
 import io.cdap.cdap.internal.app.runtime.ProgramOptionConstants;
 import io.cdap.cdap.internal.app.runtime.schedule.ProgramScheduleRecord;
+import io.cdap.cdap.internal.app.runtime.schedule.queue.Job;
 import io.cdap.cdap.internal.app.runtime.schedule.queue.JobQueueTable;
 import io.cdap.cdap.internal.app.runtime.schedule.store.ProgramScheduleStoreDataset;
+import io.cdap.cdap.internal.app.runtime.schedule.store.ScheduleTriggerIndex;
 import io.cdap.cdap.internal.app.runtime.schedule.store.Schedulers;
 import io.cdap.cdap.internal.app.services.AbstractNotificationSubscriberService;
 import io.cdap.cdap.messaging.MessagingService;
+import io.cdap.cdap.messaging.data.MessageId;
 import io.cdap.cdap.proto.Notification;
 import io.cdap.cdap.proto.ProgramRunStatus;
 import io.cdap.cdap.proto.id.DatasetId;
@@ -48,10 +52,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -68,16 +77,22 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
   private final CConfiguration cConf;
   private final MessagingService messagingService;
   private final MetricsCollectionService metricsCollectionService;
+  private final ConstraintCheckerService constraintCheckerService;
+  private final ScheduleTriggerIndex triggerIndex;
   private final List<Service> subscriberServices;
   private ScheduledExecutorService subscriberExecutor;
 
   @Inject
   ScheduleNotificationSubscriberService(CConfiguration cConf, MessagingService messagingService,
                                         MetricsCollectionService metricsCollectionService,
+                                        ConstraintCheckerService constraintCheckerService,
+                                        ScheduleTriggerIndex triggerIndex,
                                         TransactionRunner transactionRunner) {
     this.cConf = cConf;
     this.messagingService = messagingService;
     this.metricsCollectionService = metricsCollectionService;
+    this.constraintCheckerService = constraintCheckerService;
+    this.triggerIndex = triggerIndex;
     this.subscriberServices = Arrays.asList(new SchedulerEventSubscriberService(transactionRunner),
                                             new DataEventSubscriberService(transactionRunner),
                                             new ProgramStatusEventSubscriberService(transactionRunner));
@@ -120,6 +135,17 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
    */
   private abstract class AbstractSchedulerSubscriberService extends AbstractNotificationSubscriberService {
 
+    // Jobs that became pending constraint and programs that had a run ended, to be passed to the
+    // ConstraintCheckerService after the messages are processed successfully
+    private final List<Job> pendingConstraintJobs = new ArrayList<>();
+    private final Set<ProgramId> endedPrograms = new HashSet<>();
+    // Schedules found for the trigger keys of the notifications being processed, so that notifications with the
+    // same trigger key in one fetch only look up the schedules once
+    private final Map<String, Collection<ProgramScheduleRecord>> triggeredSchedules = new HashMap<>();
+    // Number of jobs updated by the notifications being processed, and the publish time of the first such notification
+    private int updatedJobCount;
+    private long firstPublishTime;
+
     AbstractSchedulerSubscriberService(String name, String topic, int fetchSize,
                                        TransactionRunner transactionRunner) {
       super(name, cConf, topic, fetchSize, cConf.getLong(Constants.Scheduler.EVENT_POLL_DELAY_MILLIS),
@@ -143,8 +169,38 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
       ProgramScheduleStoreDataset scheduleStore = getScheduleStore(structuredTableContext);
       JobQueueTable jobQueue = getJobQueue(structuredTableContext);
 
-      while (messages.hasNext()) {
-        processNotification(scheduleStore, jobQueue, messages.next().getSecond());
+      // Discard what was collected by a previous attempt that failed
+      pendingConstraintJobs.clear();
+      endedPrograms.clear();
+      updatedJobCount = 0;
+      try {
+        while (messages.hasNext()) {
+          ImmutablePair<String, Notification> message = messages.next();
+          int jobCount = updatedJobCount;
+          processNotification(scheduleStore, jobQueue, message.getSecond());
+          if (jobCount == 0 && updatedJobCount > 0) {
+            firstPublishTime = new MessageId(Bytes.fromHexString(message.getFirst())).getPublishTimestamp();
+          }
+        }
+      } finally {
+        // The schedules can change in later transactions
+        triggeredSchedules.clear();
+      }
+    }
+
+    @Override
+    protected void postProcess() {
+      constraintCheckerService.addJobs(pendingConstraintJobs);
+      constraintCheckerService.programRunsEnded(endedPrograms);
+      pendingConstraintJobs.clear();
+      endedPrograms.clear();
+
+      if (updatedJobCount > 0) {
+        // The delay from publishing a notification until the job it updated is committed to the job queue
+        getMetricsContext().gauge(Constants.Metrics.Name.Scheduler.NOTIFICATION_JOB_DELAY_MS,
+                                  System.currentTimeMillis() - firstPublishTime);
+        getMetricsContext().increment(Constants.Metrics.Name.Scheduler.NOTIFICATION_JOB_COUNT, updatedJobCount);
+        updatedJobCount = 0;
       }
     }
 
@@ -153,6 +209,42 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
       return subscriberExecutor;
     }
 
+    /**
+     * Adds a notification to the job queue for the given schedule.
+     */
+    protected void addNotification(JobQueueTable jobQueue, ProgramScheduleRecord schedule,
+                                   Notification notification) throws IOException {
+      Job job = jobQueue.addNotification(schedule, notification);
+      if (job == null) {
+        return;
+      }
+      updatedJobCount++;
+      if (job.getState() == Job.State.PENDING_CONSTRAINT) {
+        pendingConstraintJobs.add(job);
+      }
+    }
+
+    /**
+     * Finds the schedules that have a trigger with the given trigger key. The schedules found are reused for all
+     * notifications with the same trigger key that are processed in the same transaction.
+     */
+    protected Collection<ProgramScheduleRecord> findSchedules(ProgramScheduleStoreDataset scheduleStore,
+                                                              String triggerKey) throws IOException {
+      Collection<ProgramScheduleRecord> schedules = triggeredSchedules.get(triggerKey);
+      if (schedules == null) {
+        schedules = scheduleStore.findSchedules(triggerKey);
+        triggeredSchedules.put(triggerKey, schedules);
+      }
+      return schedules;
+    }
+
+    /**
+     * Records that a run of the given program has ended, which may satisfy the constraints of jobs.
+     */
+    protected void programRunEnded(ProgramId programId) {
+      endedPrograms.add(programId);
+    }
+
     /**
      * Processes a single {@link Notification}.
      */
@@ -164,7 +256,7 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
     }
 
     private ProgramScheduleStoreDataset getScheduleStore(StructuredTableContext context) {
-      return Schedulers.getScheduleStore(context);
+      return Schedulers.getScheduleStore(context, triggerIndex);
     }
   }
 
@@ -206,7 +298,7 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
         LOG.warn("Ignore notification that doesn't have a schedule {} associated with, {}", scheduleId, notification);
         return;
       }
-      jobQueue.addNotification(record, notification);
+      addNotification(jobQueue, record, notification);
     }
   }
 
@@ -229,9 +321,9 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
         return;
       }
       DatasetId datasetId = DatasetId.fromString(datasetIdString);
-      for (ProgramScheduleRecord schedule :
-        scheduleStore.findSchedules(Schedulers.triggerKeyForPartition(datasetId))) {
-        jobQueue.addNotification(schedule, notification);
+      String triggerKey = Schedulers.triggerKeyForPartition(datasetId);
+      for (ProgramScheduleRecord schedule : findSchedules(scheduleStore, triggerKey)) {
+        addNotification(jobQueue, schedule, notification);
       }
     }
   }
@@ -268,10 +360,13 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
 
       ProgramRunId programRunId = GSON.fromJson(programRunIdString, ProgramRunId.class);
       ProgramId programId = programRunId.getParent();
+      if (ProgramRunStatus.isEndState(programRunStatusString)) {
+        programRunEnded(programId);
+      }
       String triggerKeyForProgramStatus = Schedulers.triggerKeyForProgramStatus(programId, programStatus);
 
-      for (ProgramScheduleRecord schedule : scheduleStore.findSchedules(triggerKeyForProgramStatus)) {
-        jobQueue.addNotification(schedule, notification);
+      for (ProgramScheduleRecord schedule : findSchedules(scheduleStore, triggerKeyForProgramStatus)) {
+        addNotification(jobQueue, schedule, notification);
       }
     }
   }
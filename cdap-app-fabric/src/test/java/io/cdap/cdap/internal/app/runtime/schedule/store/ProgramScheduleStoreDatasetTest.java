@@ -20,6 +20,8 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import io.cdap.cdap.api.ProgramStatus;
+import io.cdap.cdap.common.AlreadyExistsException;
+import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.internal.app.runtime.schedule.ProgramSchedule;
 import io.cdap.cdap.internal.app.runtime.schedule.ProgramScheduleRecord;
 import io.cdap.cdap.internal.app.runtime.schedule.ProgramScheduleStatus;
@@ -39,6 +41,7 @@ import io.cdap.cdap.spi.data.table.field.Range;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import io.cdap.cdap.spi.data.transaction.TransactionRunners;
 import io.cdap.cdap.store.StoreDefinition;
+import org.apache.tephra.TxConstants;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -47,6 +50,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -314,6 +318,86 @@ public abstract class ProgramScheduleStoreDatasetTest extends AppFabricTestBase
     );
   }
 
+  @Test
+  public void testFindSchedulesWithTriggerIndex() throws Exception {
+    TransactionRunner transactionRunner = getTransactionRunner();
+    // Without transaction timeout, schedules are removed from the index as soon as they don't match
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setInt(TxConstants.Manager.CFG_TX_TIMEOUT, 0);
+    ScheduleTriggerIndex triggerIndex = new ScheduleTriggerIndex(cConf);
+    String ds1Key = Schedulers.triggerKeyForPartition(DS1_ID);
+    String ds2Key = Schedulers.triggerKeyForPartition(DS2_ID);
+
+    ProgramSchedule sched11 = new ProgramSchedule("sched11", "one partition schedule", PROG1_ID,
+                                                  ImmutableMap.of(), new PartitionTrigger(DS1_ID, 1),
+                                                  ImmutableList.of());
+    ProgramSchedule sched12 = new ProgramSchedule("sched12", "two partition schedule", PROG1_ID,
+                                                  ImmutableMap.of(), new PartitionTrigger(DS2_ID, 2),
+                                                  ImmutableList.of());
+    ProgramSchedule sched22 = new ProgramSchedule("sched22", "or trigger schedule", PROG2_ID,
+                                                  ImmutableMap.of(),
+                                                  new OrTrigger(new PartitionTrigger(DS1_ID, 1),
+                                                                new PartitionTrigger(DS2_ID, 1)),
+                                                  ImmutableList.of());
+    ProgramSchedule sched12New = new ProgramSchedule(sched12.getName(), "one partition schedule", PROG1_ID,
+                                                     ImmutableMap.of(), new PartitionTrigger(DS1_ID, 1),
+                                                     ImmutableList.of());
+
+    // Schedules added without the index are loaded from the trigger table
+    TransactionRunners.run(transactionRunner, context -> {
+      Schedulers.getScheduleStore(context).addSchedules(ImmutableList.of(sched11, sched12));
+    });
+    TransactionRunners.run(transactionRunner, context -> {
+      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context, triggerIndex);
+      Assert.assertEquals(ImmutableSet.of(sched11), toScheduleSet(store.findSchedules(ds1Key)));
+      Assert.assertEquals(ImmutableSet.of(sched12), toScheduleSet(store.findSchedules(ds2Key)));
+    });
+    Assert.assertTrue(triggerIndex.isLoaded());
+
+    // Schedules added, updated and deleted with the index are found accordingly
+    TransactionRunners.run(transactionRunner, context -> {
+      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context, triggerIndex);
+      store.addSchedule(sched22);
+      store.updateSchedule(sched12New);
+      store.deleteSchedule(sched11.getScheduleId());
+    });
+    TimeUnit.MILLISECONDS.sleep(10);
+    TransactionRunners.run(transactionRunner, context -> {
+      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context, triggerIndex);
+      Assert.assertEquals(ImmutableSet.of(sched12New, sched22), toScheduleSet(store.findSchedules(ds1Key)));
+      Assert.assertEquals(ImmutableSet.of(sched22), toScheduleSet(store.findSchedules(ds2Key)));
+      // The schedule status and update time are read from the store
+      for (ProgramScheduleRecord record : store.findSchedules(ds2Key)) {
+        Assert.assertEquals(store.getScheduleRecord(record.getSchedule().getScheduleId()).getMeta(),
+                            record.getMeta());
+      }
+    });
+
+    // Schedules that don't match anymore were removed from the index
+    Assert.assertEquals(ImmutableSet.of(sched12New.getScheduleId(), sched22.getScheduleId()),
+                        triggerIndex.getSchedules(ds1Key).keySet());
+    Assert.assertEquals(ImmutableSet.of(sched22.getScheduleId()), triggerIndex.getSchedules(ds2Key).keySet());
+
+    // A schedule added in a transaction that failed is not found
+    ProgramSchedule failed = new ProgramSchedule("failed", "one partition schedule", PROG3_ID,
+                                                 ImmutableMap.of(), new PartitionTrigger(DS2_ID, 1),
+                                                 ImmutableList.of());
+    try {
+      TransactionRunners.run(transactionRunner, context -> {
+        ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context, triggerIndex);
+        store.addSchedule(failed);
+        store.addSchedule(failed);
+      }, AlreadyExistsException.class);
+      Assert.fail("Expected the transaction to fail");
+    } catch (AlreadyExistsException e) {
+      // expected
+    }
+    TransactionRunners.run(transactionRunner, context -> {
+      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context, triggerIndex);
+      Assert.assertEquals(ImmutableSet.of(sched22), toScheduleSet(store.findSchedules(ds2Key)));
+    });
+  }
+
   private Set<ProgramSchedule> toScheduleSet(Collection<ProgramScheduleRecord> records) {
     return records.stream().map(ProgramScheduleRecord::getSchedule).collect(Collectors.toSet());
   }
@@ -34,8 +34,10 @@ import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.ProfileId;
 import io.cdap.cdap.proto.id.ProgramId;
 import io.cdap.cdap.proto.id.ProgramRunId;
+import io.cdap.cdap.spi.data.table.field.Range;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import io.cdap.cdap.spi.data.transaction.TransactionRunners;
+import io.cdap.cdap.store.StoreDefinition;
 import org.apache.twill.api.RunId;
 import org.junit.Assert;
 import org.junit.Before;
@@ -335,6 +337,145 @@ public abstract class AppMetadataStoreTest {
     });
   }
 
+  @Test
+  public void testRunRecordTimeIndex() throws Exception {
+    // Add runs that start every half an hour and last up to four hours, except one that lasts for a hundred days,
+    // with every fourth run still running
+    long baseTime = TimeUnit.DAYS.toSeconds(1000);
+    ProgramId program = NamespaceId.DEFAULT.app("app").program(ProgramType.WORKFLOW, "program");
+    Map<RunId, Long> startTimes = new HashMap<>();
+    Map<RunId, Long> stopTimes = new HashMap<>();
+    for (int i = 0; i < 20; i++) {
+      long startTime = baseTime + i * TimeUnit.MINUTES.toSeconds(30);
+      RunId runId = RunIds.generate(TimeUnit.SECONDS.toMillis(startTime));
+      ProgramRunId programRunId = program.run(runId);
+      startTimes.put(runId, startTime);
+      TransactionRunners.run(transactionRunner, context -> {
+        AppMetadataStore store = AppMetadataStore.create(context);
+        recordProvisionAndStart(programRunId, store);
+        store.recordProgramRunning(programRunId, startTime, null,
+                                   AppFabricTestHelper.createSourceId(sourceId.incrementAndGet()));
+      });
+      if (i % 4 == 3) {
+        continue;
+      }
+      long stopTime = i == 1 ? startTime + TimeUnit.DAYS.toSeconds(100)
+        : startTime + (i % 3) * TimeUnit.HOURS.toSeconds(2);
+      stopTimes.put(runId, stopTime);
+      TransactionRunners.run(transactionRunner, context -> {
+        AppMetadataStore.create(context).recordProgramStop(
+          programRunId, stopTime, ProgramRunStatus.COMPLETED, null,
+          AppFabricTestHelper.createSourceId(sourceId.incrementAndGet()));
+      });
+    }
+
+    List<long[]> ranges = ImmutableList.of(
+      new long[] { 0, Long.MAX_VALUE },
+      new long[] { baseTime, baseTime + 1 },
+      new long[] { baseTime + 4000, baseTime + 8000 },
+      new long[] { baseTime + 9000, baseTime + 9000 },
+      new long[] { baseTime + 12000, baseTime + 6000 },
+      new long[] { baseTime + 20000, baseTime + 30000 },
+      new long[] { baseTime + 50000, Long.MAX_VALUE },
+      new long[] { baseTime + TimeUnit.DAYS.toSeconds(60), baseTime + TimeUnit.DAYS.toSeconds(61) });
+
+    // Remove the index rows written with the run records, as if the runs were recorded before the index existed
+    TransactionRunners.run(transactionRunner, context -> {
+      context.getTable(StoreDefinition.AppMetadataStore.RUN_RECORDS_TIME_INDEX).deleteAll(Range.all());
+    });
+
+    // Before the back-fill, the queries scan the run records, and after it, the queries use the index.
+    // Both must give the same result.
+    for (boolean backfilled : new boolean[] { false, true }) {
+      if (backfilled) {
+        // Each call resumes from the last run record indexed by the previous one
+        int batches = 0;
+        boolean hasMore = true;
+        while (hasMore) {
+          hasMore = TransactionRunners.run(transactionRunner, context -> {
+            return AppMetadataStore.create(context).backfillRunRecordTimeIndex(3);
+          });
+          batches++;
+        }
+        Assert.assertEquals(7, batches);
+        Assert.assertFalse(TransactionRunners.run(transactionRunner, context -> {
+          return AppMetadataStore.create(context).backfillRunRecordTimeIndex(3);
+        }));
+      }
+
+      for (long[] range : ranges) {
+        long start = range[0];
+        long end = range[1];
+        Set<RunId> expectedCompleted = stopTimes.keySet().stream()
+          .filter(id -> startTimes.get(id) < end && stopTimes.get(id) >= start)
+          .collect(Collectors.toSet());
+        Set<RunId> expectedActive = startTimes.keySet().stream()
+          .filter(id -> !stopTimes.containsKey(id) && startTimes.get(id) < end)
+          .collect(Collectors.toSet());
+        Set<ProgramRunId> expectedStarted = startTimes.keySet().stream()
+          .filter(id -> startTimes.get(id) >= start && startTimes.get(id) < end)
+          .map(program::run)
+          .collect(Collectors.toSet());
+
+        TransactionRunners.run(transactionRunner, context -> {
+          AppMetadataStore store = AppMetadataStore.create(context);
+          Assert.assertEquals(expectedCompleted, store.getRunningInRangeCompleted(start, end));
+          Assert.assertEquals(expectedActive, store.getRunningInRangeActive(start, end));
+          Assert.assertEquals(expectedStarted,
+                              store.getRuns(null, ProgramRunStatus.ALL, start, end, Integer.MAX_VALUE, null).keySet());
+        });
+      }
+    }
+
+    // Deleted runs are removed from the index
+    TransactionRunners.run(transactionRunner, context -> {
+      AppMetadataStore store = AppMetadataStore.create(context);
+      store.deleteProgramHistory(NamespaceId.DEFAULT);
+      Assert.assertTrue(store.getRunningInRangeCompleted(0, Long.MAX_VALUE).isEmpty());
+      Assert.assertTrue(store.getRunningInRangeActive(0, Long.MAX_VALUE).isEmpty());
+    });
+  }
+
+  @Test
+  public void testRunRecordTimeIndexOrder() throws Exception {
+    // Add runs of two programs with interleaved start times
+    long baseTime = TimeUnit.DAYS.toSeconds(2000);
+    List<ProgramId> programs = ImmutableList.of(
+      NamespaceId.DEFAULT.app("app1").program(ProgramType.WORKFLOW, "program"),
+      NamespaceId.DEFAULT.app("app2").program(ProgramType.WORKFLOW, "program"));
+    List<ProgramRunId> programRunIds = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      long startTime = baseTime + i * TimeUnit.MINUTES.toSeconds(30);
+      ProgramRunId programRunId = programs.get(i % 2).run(RunIds.generate(TimeUnit.SECONDS.toMillis(startTime)));
+      programRunIds.add(programRunId);
+      TransactionRunners.run(transactionRunner, context -> {
+        AppMetadataStore store = AppMetadataStore.create(context);
+        recordProvisionAndStart(programRunId, store);
+        store.recordProgramRunning(programRunId, startTime, null,
+                                   AppFabricTestHelper.createSourceId(sourceId.incrementAndGet()));
+      });
+    }
+
+    // Make sure the queries use the index
+    boolean hasMore = true;
+    while (hasMore) {
+      hasMore = TransactionRunners.run(transactionRunner, context -> {
+        return AppMetadataStore.create(context).backfillRunRecordTimeIndex(100);
+      });
+    }
+
+    // The runs are in the order of a run records scan, which is by program and then by the latest start time.
+    // A limit keeps the first runs in that order.
+    List<ProgramRunId> expected = ImmutableList.of(programRunIds.get(4), programRunIds.get(2), programRunIds.get(0),
+                                                   programRunIds.get(5));
+    TransactionRunners.run(transactionRunner, context -> {
+      AppMetadataStore store = AppMetadataStore.create(context);
+      Assert.assertEquals(expected, new ArrayList<>(
+        store.getRuns(null, ProgramRunStatus.ALL, baseTime, baseTime + TimeUnit.DAYS.toSeconds(1), 4, null).keySet()));
+      store.deleteProgramHistory(NamespaceId.DEFAULT);
+    });
+  }
+
   @Test
   public void testGetRuns() throws Exception {
     // Add some run records
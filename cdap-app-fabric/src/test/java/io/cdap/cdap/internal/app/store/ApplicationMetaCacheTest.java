@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.store;
+
+import com.google.common.base.Strings;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.proto.id.ApplicationId;
+import io.cdap.cdap.proto.id.NamespaceId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Unit test for {@link ApplicationMetaCache}.
+ */
+public class ApplicationMetaCacheTest {
+
+  @Test
+  public void testCache() {
+    ApplicationMetaCache cache = new ApplicationMetaCache(createCConf(1));
+    ApplicationId appId = NamespaceId.DEFAULT.app("app");
+    AtomicInteger decodeCount = new AtomicInteger();
+    Function<String, ApplicationMeta> decoder = json -> {
+      decodeCount.incrementAndGet();
+      return new ApplicationMeta(json, null);
+    };
+
+    // The same json is only decoded once
+    ApplicationMeta meta = cache.get(appId, "v1", decoder);
+    Assert.assertEquals("v1", meta.getId());
+    Assert.assertSame(meta, cache.get(appId, new String("v1"), decoder));
+    Assert.assertEquals(1, decodeCount.get());
+
+    // A different json for the same app is decoded, even without invalidation
+    Assert.assertEquals("v2", cache.get(appId, "v2", decoder).getId());
+    Assert.assertEquals(2, decodeCount.get());
+
+    // Entries of other apps are separate
+    ApplicationId otherAppId = new NamespaceId("ns").app("app");
+    Assert.assertEquals("v2", cache.get(otherAppId, "v2", decoder).getId());
+    Assert.assertEquals(3, decodeCount.get());
+    Assert.assertEquals(2, cache.size());
+
+    cache.invalidate(appId);
+    Assert.assertEquals(1, cache.size());
+    cache.get(appId, "v2", decoder);
+    Assert.assertEquals(4, decodeCount.get());
+
+    cache.invalidate(new NamespaceId("ns"));
+    Assert.assertEquals(1, cache.size());
+    cache.get(appId, "v2", decoder);
+    Assert.assertEquals(4, decodeCount.get());
+  }
+
+  @Test
+  public void testMaxSize() {
+    ApplicationMetaCache cache = new ApplicationMetaCache(createCConf(1));
+    Function<String, ApplicationMeta> decoder = json -> new ApplicationMeta("app", null);
+
+    // Each JSON of 100K chars takes 200KB, so no more than five of them fit in 1MB
+    String json = Strings.repeat("a", 100 * 1000);
+    for (int i = 0; i < 10; i++) {
+      cache.get(NamespaceId.DEFAULT.app("app" + i), json, decoder);
+    }
+    Assert.assertTrue("Cache size " + cache.size(), cache.size() > 0 && cache.size() <= 5);
+  }
+
+  @Test
+  public void testDisabled() {
+    ApplicationMetaCache cache = new ApplicationMetaCache(createCConf(0));
+    ApplicationId appId = NamespaceId.DEFAULT.app("app");
+    AtomicInteger decodeCount = new AtomicInteger();
+    Function<String, ApplicationMeta> decoder = json -> {
+      decodeCount.incrementAndGet();
+      return new ApplicationMeta(json, null);
+    };
+
+    cache.get(appId, "v1", decoder);
+    cache.get(appId, "v1", decoder);
+    Assert.assertEquals(2, decodeCount.get());
+    Assert.assertEquals(0, cache.size());
+  }
+
+  private CConfiguration createCConf(int sizeMb) {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setInt(Constants.AppFabric.APP_META_CACHE_SIZE_MB, sizeMb);
+    return cConf;
+  }
+}
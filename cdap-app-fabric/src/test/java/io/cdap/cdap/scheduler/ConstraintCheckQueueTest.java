@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.scheduler;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.internal.app.runtime.schedule.ProgramSchedule;
+import io.cdap.cdap.internal.app.runtime.schedule.queue.Job;
+import io.cdap.cdap.internal.app.runtime.schedule.queue.SimpleJob;
+import io.cdap.cdap.internal.app.runtime.schedule.trigger.TimeTrigger;
+import io.cdap.cdap.proto.id.ApplicationId;
+import io.cdap.cdap.proto.id.NamespaceId;
+import io.cdap.cdap.proto.id.WorkflowId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link ConstraintCheckQueue}.
+ */
+public class ConstraintCheckQueueTest {
+
+  private static final ApplicationId APP_ID = new NamespaceId("checkQueueTest").app("app1");
+  private static final WorkflowId WORKFLOW1 = APP_ID.workflow("wf1");
+  private static final WorkflowId WORKFLOW2 = APP_ID.workflow("wf2");
+
+  @Test
+  public void testOrder() throws Exception {
+    ConstraintCheckQueue queue = new ConstraintCheckQueue();
+    long now = System.currentTimeMillis();
+    Job job1 = createJob("sched1", WORKFLOW1);
+    Job job2 = createJob("sched2", WORKFLOW1);
+    Job job3 = createJob("sched3", WORKFLOW2);
+
+    queue.add(job1, now - 1000);
+    queue.add(job2, now - 2000);
+    queue.add(job3, now + TimeUnit.HOURS.toMillis(1));
+    Assert.assertEquals(3, queue.size());
+    Assert.assertTrue(queue.contains(job3.getJobKey()));
+
+    // Due jobs are returned in the order of their check time, and only once
+    Assert.assertEquals(ImmutableList.of(job2, job1), queue.takeDue(0));
+    Assert.assertEquals(Collections.emptyList(), queue.takeDue(0));
+    Assert.assertEquals(1, queue.size());
+    Assert.assertFalse(queue.contains(job1.getJobKey()));
+
+    // Adding a job again only moves it earlier
+    queue.add(job3, now + TimeUnit.HOURS.toMillis(2));
+    Assert.assertEquals(Collections.emptyList(), queue.takeDue(0));
+    queue.add(job3, now);
+    Assert.assertEquals(ImmutableList.of(job3), queue.takeDue(0));
+    Assert.assertEquals(0, queue.size());
+  }
+
+  @Test
+  public void testWakeUp() throws Exception {
+    ConstraintCheckQueue queue = new ConstraintCheckQueue();
+    long later = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+    Job job1 = createJob("sched1", WORKFLOW1);
+    Job job2 = createJob("sched2", WORKFLOW2);
+    queue.add(job1, later);
+    queue.add(job2, later);
+
+    // Waking up a program without jobs does nothing
+    queue.wakeUp(APP_ID.workflow("wf3"), System.currentTimeMillis());
+    Assert.assertEquals(Collections.emptyList(), queue.takeDue(0));
+
+    // Waking up a program makes only its jobs due
+    queue.wakeUp(WORKFLOW2, System.currentTimeMillis());
+    Assert.assertEquals(ImmutableList.of(job2), queue.takeDue(0));
+
+    // Once taken, a job is not woken up anymore
+    queue.wakeUp(WORKFLOW2, System.currentTimeMillis());
+    Assert.assertEquals(Collections.emptyList(), queue.takeDue(0));
+    Assert.assertEquals(1, queue.size());
+  }
+
+  @Test
+  public void testTakeDueWaits() throws Exception {
+    ConstraintCheckQueue queue = new ConstraintCheckQueue();
+    Job job1 = createJob("sched1", WORKFLOW1);
+    Job job2 = createJob("sched2", WORKFLOW1);
+
+    // Waits for the first job to become due, but no longer than the given time
+    queue.add(job1, System.currentTimeMillis() + 200);
+    Assert.assertEquals(Collections.emptyList(), queue.takeDue(50));
+    Assert.assertEquals(ImmutableList.of(job1), queue.takeDue(TimeUnit.SECONDS.toMillis(10)));
+
+    // A waiting take returns when a due job is added
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> future = executor.submit(() -> queue.takeDue(TimeUnit.MINUTES.toMillis(1)));
+      queue.add(job2, System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+      queue.wakeUp(WORKFLOW1, System.currentTimeMillis());
+      Assert.assertEquals(ImmutableList.of(job2), future.get(10, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    ConstraintCheckQueue queue = new ConstraintCheckQueue();
+    queue.add(createJob("sched1", WORKFLOW1), System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+
+    // A waiting take returns without any job when the queue is closed, and so do the later ones
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> future = executor.submit(() -> queue.takeDue(TimeUnit.MINUTES.toMillis(1)));
+      queue.close();
+      Assert.assertEquals(Collections.emptyList(), future.get(10, TimeUnit.SECONDS));
+      Assert.assertEquals(Collections.emptyList(), queue.takeDue(TimeUnit.MINUTES.toMillis(1)));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Job createJob(String scheduleName, WorkflowId workflowId) {
+    ProgramSchedule schedule = new ProgramSchedule(scheduleName, "time schedule", workflowId,
+                                                   ImmutableMap.of(), new TimeTrigger("* * * * *"),
+                                                   ImmutableList.of());
+    return new SimpleJob(schedule, 0, System.currentTimeMillis(), Collections.emptyList(),
+                         Job.State.PENDING_CONSTRAINT, 0L);
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.scheduler;
+
+import com.google.common.base.Stopwatch;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Scopes;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.guice.ConfigModule;
+import io.cdap.cdap.common.guice.LocalLocationModule;
+import io.cdap.cdap.common.metrics.NoOpMetricsCollectionService;
+import io.cdap.cdap.common.namespace.InMemoryNamespaceAdmin;
+import io.cdap.cdap.common.namespace.NamespaceQueryAdmin;
+import io.cdap.cdap.data.runtime.StorageModule;
+import io.cdap.cdap.data.runtime.SystemDatasetRuntimeModule;
+import io.cdap.cdap.data2.dataset2.DatasetDefinitionRegistryFactory;
+import io.cdap.cdap.data2.dataset2.DatasetFramework;
+import io.cdap.cdap.data2.dataset2.DefaultDatasetDefinitionRegistryFactory;
+import io.cdap.cdap.data2.dataset2.InMemoryDatasetFramework;
+import io.cdap.cdap.spi.data.StructuredTableAdmin;
+import io.cdap.cdap.spi.data.transaction.TransactionRunner;
+import io.cdap.cdap.store.StoreDefinition;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.tephra.TransactionManager;
+import org.apache.tephra.TransactionSystemClient;
+import org.apache.tephra.inmemory.InMemoryTxSystemClient;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link ConstraintCheckerService}.
+ */
+public class ConstraintCheckerServiceTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static TransactionManager txManager;
+  private static CConfiguration cConf;
+  private static TransactionRunner transactionRunner;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_LOCAL_DATA_DIR, TEMP_FOLDER.newFolder().getAbsolutePath());
+    cConf.set(Constants.Dataset.DATA_STORAGE_IMPLEMENTATION, Constants.Dataset.DATA_STORAGE_NOSQL);
+    // The job queue is only scanned at the start, after which the checker threads wait for due jobs
+    cConf.setLong(Constants.Scheduler.JOB_QUEUE_SCAN_INTERVAL_MILLIS, TimeUnit.HOURS.toMillis(1));
+
+    txManager = new TransactionManager(new Configuration());
+    txManager.startAndWait();
+
+    Injector injector = Guice.createInjector(
+      new ConfigModule(cConf),
+      new LocalLocationModule(),
+      new SystemDatasetRuntimeModule().getInMemoryModules(),
+      new StorageModule(),
+      new AbstractModule() {
+        @Override
+        protected void configure() {
+          bind(DatasetDefinitionRegistryFactory.class)
+            .to(DefaultDatasetDefinitionRegistryFactory.class).in(Scopes.SINGLETON);
+          bind(DatasetFramework.class).to(InMemoryDatasetFramework.class);
+          bind(NamespaceQueryAdmin.class).to(InMemoryNamespaceAdmin.class).in(Scopes.SINGLETON);
+          bind(TransactionSystemClient.class).toInstance(new InMemoryTxSystemClient(txManager));
+          bind(MetricsCollectionService.class).to(NoOpMetricsCollectionService.class).in(Scopes.SINGLETON);
+        }
+      }
+    );
+
+    StructuredTableAdmin tableAdmin = injector.getInstance(StructuredTableAdmin.class);
+    transactionRunner = injector.getInstance(TransactionRunner.class);
+    StoreDefinition.JobQueueStore.create(tableAdmin);
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    txManager.stopAndWait();
+  }
+
+  @Test
+  public void testStopWhileWaiting() throws Exception {
+    // The job queue is empty, so the service doesn't need anything other than the transaction runner
+    ConstraintCheckerService service = new ConstraintCheckerService(null, null, null, null, cConf, transactionRunner);
+    service.startAndWait();
+    // Give the checker threads time to scan the job queue and to start waiting for due jobs
+    TimeUnit.MILLISECONDS.sleep(500);
+
+    // Stopping doesn't wait for the scan interval, nor for the executor termination timeout
+    Stopwatch stopwatch = new Stopwatch().start();
+    service.stopAndWait();
+    Assert.assertTrue("Stopping took " + stopwatch.elapsedMillis() + "ms",
+                      stopwatch.elapsedMillis() < TimeUnit.SECONDS.toMillis(2));
+  }
+}
@@ -242,6 +242,7 @@ public final class Constants {
     public static final String PROGRAM_TRANSACTION_CONTROL = "app.program.transaction.control";
     public static final String MAX_CONCURRENT_RUNS = "app.max.concurrent.runs";
     public static final String PROGRAM_LAUNCH_THREADS = "app.program.launch.threads";
+    public static final String APP_META_CACHE_SIZE_MB = "app.meta.cache.size.mb";
 
     // A boolean value cConf entry to tell whether a ProgramRunner is running remotely (i.e. not inside app-fabric)
     // This config is not present in the cdap-default.xml as it is only set internally by CDAP.
@@ -482,6 +483,9 @@ public final class Constants {
     public static final String PROGRAM_STATUS_EVENT_FETCH_SIZE = "scheduler.program.status.event.fetch.size";
 
     public static final String JOB_QUEUE_NUM_PARTITIONS = "scheduler.job.queue.num.partitions";
+    public static final String JOB_QUEUE_SCAN_INTERVAL_MILLIS = "scheduler.job.queue.scan.interval.millis";
+
+    public static final String TRIGGER_INDEX_ENABLED = "scheduler.trigger.index.enabled";
   }
 
   /**
@@ -586,6 +590,7 @@ public final class Constants {
     public static final String DATA_STORAGE_SQL_PASSWORD = "data.storage.sql.jdbc.password";
     public static final String DATA_STORAGE_SQL_PROPERTY_PREFIX = "data.storage.sql.jdbc.property.";
     public static final String DATA_STORAGE_SQL_CONNECTION_SIZE = "data.storage.sql.jdbc.connection.pool.size";
+    public static final String DATA_STORAGE_SQL_STATEMENT_CACHE_SIZE = "data.storage.sql.jdbc.statement.cache.size";
 
     // used for Guice named bindings
     public static final String TABLE_TYPE = "table.type";
@@ -690,6 +695,8 @@ public final class Constants {
     public static final String CONNECTION_TIMEOUT_SECS = "router.connection.idle.timeout.secs";
     public static final String ROUTER_AUDIT_PATH_CHECK_ENABLED = "router.audit.path.check.enabled";
     public static final String ROUTER_AUDIT_LOG_ENABLED = "router.audit.log.enabled";
+    public static final String NATIVE_TRANSPORT_ENABLED = "router.native.transport.enabled";
+    public static final String UPSTREAM_POOL_MAX_IDLE_PER_HOST = "router.upstream.pool.max.idle.per.host";
 
     /**
      * Defaults.
@@ -731,8 +738,11 @@ public final class Constants {
     public static final String SERVICE_DESCRIPTION = "Service to handle metrics requests.";
     public static final String PROCESSOR_MAX_DELAY_MS = "metrics.processor.max.delay.ms";
     public static final String QUEUE_SIZE = "metrics.processor.queue.size";
+    public static final String PROCESSOR_WRITE_BEHIND_MAX_DELAY_MS = "metrics.processor.write.behind.max.delay.ms";
+    public static final String PROCESSOR_WRITE_BEHIND_MAX_METRICS = "metrics.processor.write.behind.max.metrics";
 
     public static final String ENTITY_TABLE_NAME = "metrics.data.entity.tableName";
+    public static final String ENTITY_CACHE_MAX_BYTES = "metrics.data.entity.cache.max.bytes";
     public static final String METRICS_TABLE_PREFIX = "metrics.data.table.prefix";
     public static final String TIME_SERIES_TABLE_ROLL_TIME = "metrics.data.table.ts.rollTime";
 
@@ -907,6 +917,30 @@ public final class Constants {
         public static final String PROCESS_MAX_DELAY = "log.process.max.delay";
         public static final String PROCESS_MESSAGES_COUNT = "log.process.message.count";
       }
+
+      /**
+       * App fabric metrics
+       */
+      public static final class AppFabric {
+        public static final String APP_META_CACHE_HIT_COUNT = "app.meta.cache.hit.count";
+        public static final String APP_META_CACHE_MISS_COUNT = "app.meta.cache.miss.count";
+      }
+
+      /**
+       * Scheduler metrics
+       */
+      public static final class Scheduler {
+        public static final String NOTIFICATION_JOB_DELAY_MS = "scheduler.notification.job.delay.ms";
+        public static final String NOTIFICATION_JOB_COUNT = "scheduler.notification.job.count";
+      }
+
+      /**
+       * Router metrics
+       */
+      public static final class Router {
+        public static final String UPSTREAM_POOL_HIT_COUNT = "router.upstream.pool.hit.count";
+        public static final String UPSTREAM_POOL_MISS_COUNT = "router.upstream.pool.miss.count";
+      }
     }
 
     /**
@@ -1465,6 +1499,13 @@ public final class Constants {
     LEVELDB,
     HSQLDB
   }
+  /**
+   * Storage engines for the local datasets and messaging tables.
+   */
+  public enum LocalStorageEngine {
+    LEVELDB,
+    ROCKSDB
+  }
   /** defines which persistence engine to use when running all in one JVM. **/
   public static final String CFG_DATA_INMEMORY_PERSISTENCE = "data.local.inmemory.persistence.type";
   public static final String CFG_DATA_LEVELDB_DIR = "data.local.storage";
@@ -1478,6 +1519,9 @@ public final class Constants {
     "data.local.storage.compaction.level.min";
   public static final String CFG_DATA_LEVELDB_COMPACTION_LEVEL_MAX =
     "data.local.storage.compaction.level.max";
+  public static final String CFG_DATA_LEVELDB_ROW_LOCK_STRIPES = "data.local.storage.row.lock.stripes";
+  public static final String CFG_DATA_LEVELDB_ENGINE = "data.local.storage.engine";
+  public static final String CFG_DATA_ROCKSDB_DIR = "data.local.storage.rocksdb.dir";
 
   /**
    * Defaults for Data Fabric.
@@ -1489,6 +1533,8 @@ public final class Constants {
   public static final long DEFAULT_DATA_LEVELDB_COMPACTION_INTERVAL_SECONDS = 3600 * 24 * 7L;
   public static final int DEFAULT_DATA_LEVELDB_COMPACTION_LEVEL_MIN = 0;
   public static final int DEFAULT_DATA_LEVELDB_COMPACTION_LEVEL_MAX = 4;
+  public static final int DEFAULT_DATA_LEVELDB_ROW_LOCK_STRIPES = 1024;
+  public static final LocalStorageEngine DEFAULT_DATA_LEVELDB_ENGINE = LocalStorageEngine.LEVELDB;
 
   /**
    * Used for upgrade and backwards compatability
@@ -1586,10 +1632,22 @@ public final class Constants {
     public static final String SERVICE_DESCRIPTION = "Service for providing messaging system.";
 
     public static final String LOCAL_DATA_DIR = "messaging.local.data.dir";
+    public static final String LOCAL_DATA_ROCKSDB_DIR = "messaging.local.data.rocksdb.dir";
     public static final String LOCAL_DATA_CLEANUP_FREQUENCY = "messaging.local.data.cleanup.frequency.secs";
     public static final String LOCAL_DATA_PARTITION_SECONDS = "messaging.local.data.partition.secs";
+    public static final String LOCAL_DATA_SYNC = "messaging.local.data.sync";
+    public static final String LOCAL_DATA_READ_AHEAD_PARTITIONS = "messaging.local.data.read.ahead.partitions";
+    public static final String LOCAL_DATA_READ_AHEAD_ROWS = "messaging.local.data.read.ahead.rows";
+    public static final String LOCAL_DATA_READ_AHEAD_THREADS = "messaging.local.data.read.ahead.threads";
+    public static final int DEFAULT_LOCAL_DATA_READ_AHEAD_PARTITIONS = 2;
+    public static final int DEFAULT_LOCAL_DATA_READ_AHEAD_ROWS = 1000;
+    public static final int DEFAULT_LOCAL_DATA_READ_AHEAD_THREADS = 4;
 
     public static final String CACHE_SIZE_MB = "messaging.cache.size.mb";
+    public static final String CACHE_TYPE = "messaging.cache.type";
+
+    public static final String GROUP_COMMIT_ENABLED = "messaging.group.commit.enabled";
+    public static final String GROUP_COMMIT_WINDOW_MICROS = "messaging.group.commit.window.micros";
 
     public static final String HBASE_MAX_SCAN_THREADS = "messaging.hbase.max.scan.threads";
     public static final String HBASE_SCAN_CACHE_ROWS = "messaging.hbase.scan.cache.rows";
@@ -1609,6 +1667,8 @@ public final class Constants {
     public static final String HTTP_SERVER_EXECUTOR_THREADS = "messaging.http.server.executor.threads";
     public static final String HTTP_SERVER_MAX_REQUEST_SIZE_MB = "messaging.http.server.max.request.size.mb";
     public static final String HTTP_SERVER_CONSUME_CHUNK_SIZE = "messaging.http.server.consume.chunk.size";
+    public static final String HTTP_SERVER_POLL_MAX_WAIT_MS = "messaging.http.server.poll.max.wait.ms";
+    public static final String HTTP_SERVER_POLL_THREADS = "messaging.http.server.poll.threads";
     public static final String HTTP_COMPRESS_PAYLOAD = "messaging.http.compress.payload";
 
     // Distributed mode related configurations
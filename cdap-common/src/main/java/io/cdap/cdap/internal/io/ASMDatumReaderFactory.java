@@ -0,0 +1,196 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.io;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Maps;
+import com.google.common.reflect.TypeToken;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.common.io.DatumReader;
+import io.cdap.cdap.common.io.Decoder;
+import io.cdap.cdap.internal.asm.ByteCodeClassLoader;
+import io.cdap.cdap.internal.asm.ClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import javax.inject.Inject;
+
+/**
+ * A {@link DatumReaderFactory} that creates {@link DatumReader} backed by classes generated with ASM for each
+ * combination of data type, source schema and target schema. It serves as an in memory cache for the generated
+ * {@link DatumReader}. Data types that cannot be handled by the generated classes are read with
+ * {@link ReflectionDatumReader}.
+ */
+public final class ASMDatumReaderFactory implements DatumReaderFactory {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ASMDatumReaderFactory.class);
+
+  private final LoadingCache<CacheKey, Optional<DatumReader<?>>> datumReaders;
+
+  @Inject
+  public ASMDatumReaderFactory(FieldAccessorFactory fieldAccessorFactory) {
+    this.datumReaders = CacheBuilder.newBuilder().build(new ASMCacheLoader(fieldAccessorFactory));
+  }
+
+  /**
+   * Creates a {@link DatumReader} that is able to decode data of the given type with the given {@link Schema}.
+   * The reader is resolved for the source schema given to the {@link DatumReader#read(Decoder, Schema)} method,
+   * and is cheap to use if the source schema is the same as the one in the previous call.
+   *
+   * @param type Type information of the data type to be decoded.
+   * @param schema Schema of the data type.
+   * @param <T> Type of the data type.
+   * @return A {@link DatumReader} instance.
+   */
+  @Override
+  public <T> DatumReader<T> create(TypeToken<T> type, Schema schema) {
+    return new ResolvingDatumReader<>(type, schema);
+  }
+
+  /**
+   * A {@link DatumReader} that delegates to the {@link DatumReader} for the source schema.
+   */
+  private final class ResolvingDatumReader<T> implements DatumReader<T> {
+
+    private final TypeToken<T> type;
+    private final Schema schema;
+    private volatile ResolvedReader<T> resolvedReader;
+
+    ResolvingDatumReader(TypeToken<T> type, Schema schema) {
+      this.type = type;
+      this.schema = schema;
+    }
+
+    @Override
+    public T read(Decoder decoder, Schema sourceSchema) throws IOException {
+      ResolvedReader<T> reader = resolvedReader;
+      if (reader == null || !reader.sourceSchema.equals(sourceSchema)) {
+        reader = new ResolvedReader<>(sourceSchema, getReader(sourceSchema));
+        resolvedReader = reader;
+      }
+      return reader.reader.read(decoder, sourceSchema);
+    }
+
+    @SuppressWarnings("unchecked")
+    private DatumReader<T> getReader(Schema sourceSchema) {
+      Optional<DatumReader<?>> reader = datumReaders.getUnchecked(new CacheKey(type, sourceSchema, schema));
+      return reader.map(r -> (DatumReader<T>) r).orElseGet(() -> new ReflectionDatumReader<>(schema, type));
+    }
+  }
+
+  /**
+   * The {@link DatumReader} for a given source schema.
+   */
+  private static final class ResolvedReader<T> {
+    private final Schema sourceSchema;
+    private final DatumReader<T> reader;
+
+    private ResolvedReader(Schema sourceSchema, DatumReader<T> reader) {
+      this.sourceSchema = sourceSchema;
+      this.reader = reader;
+    }
+  }
+
+  /**
+   * A private {@link CacheLoader} for generating different {@link DatumReader}. The generated {@link DatumReader}
+   * is stateless, hence a single instance is shared. An empty {@link Optional} is cached if the data type
+   * cannot be handled by a generated {@link DatumReader}.
+   */
+  private static final class ASMCacheLoader extends CacheLoader<CacheKey, Optional<DatumReader<?>>> {
+
+    private final FieldAccessorFactory fieldAccessorFactory;
+    private final Map<TypeToken<?>, ByteCodeClassLoader> classloaders = Maps.newIdentityHashMap();
+
+    private ASMCacheLoader(FieldAccessorFactory fieldAccessorFactory) {
+      this.fieldAccessorFactory = fieldAccessorFactory;
+    }
+
+    @Override
+    public Optional<DatumReader<?>> load(CacheKey key) {
+      DatumReaderGenerator generator = new DatumReaderGenerator(fieldAccessorFactory);
+      try {
+        ClassDefinition classDef = generator.generate(key.getType(), key.getSourceSchema(), key.getTargetSchema());
+        Class<?> readerClass = getClassLoader(key.getType()).addClass(classDef).loadClass(classDef.getClassName());
+        return Optional.of((DatumReader<?>) readerClass.getConstructor(Object[].class)
+          .newInstance((Object) generator.getConstants()));
+      } catch (UnsupportedOperationException e) {
+        LOG.debug("Reading type {} with schema {} through reflection: {}", key.getType(),
+                  key.getTargetSchema(), e.getMessage());
+      } catch (Exception | LinkageError e) {
+        LOG.warn("Failed to generate DatumReader for type {} with schema {}. Reading through reflection instead.",
+                 key.getType(), key.getTargetSchema(), e);
+      }
+      return Optional.empty();
+    }
+
+    private synchronized ByteCodeClassLoader getClassLoader(TypeToken<?> type) {
+      // The ClassLoader of the generated DatumReader has CDAP system ClassLoader as parent.
+      // The generated class doesn't reference the data type class, hence it doesn't need to be visible.
+      return classloaders.computeIfAbsent(type, t -> new ByteCodeClassLoader(
+        ASMDatumReaderFactory.class.getClassLoader()));
+    }
+  }
+
+  private static final class CacheKey {
+    private final TypeToken<?> type;
+    private final Schema sourceSchema;
+    private final Schema targetSchema;
+
+    private CacheKey(TypeToken<?> type, Schema sourceSchema, Schema targetSchema) {
+      this.type = type;
+      this.sourceSchema = sourceSchema;
+      this.targetSchema = targetSchema;
+    }
+
+    public TypeToken<?> getType() {
+      return type;
+    }
+
+    public Schema getSourceSchema() {
+      return sourceSchema;
+    }
+
+    public Schema getTargetSchema() {
+      return targetSchema;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+
+      CacheKey cacheKey = (CacheKey) o;
+      return type.equals(cacheKey.type) && sourceSchema.equals(cacheKey.sourceSchema)
+        && targetSchema.equals(cacheKey.targetSchema);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(type, sourceSchema, targetSchema);
+    }
+  }
+}
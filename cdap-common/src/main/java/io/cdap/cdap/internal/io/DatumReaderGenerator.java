@@ -0,0 +1,1017 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.io;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.reflect.TypeToken;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.common.io.DatumReader;
+import io.cdap.cdap.common.io.Decoder;
+import io.cdap.cdap.common.lang.Instantiator;
+import io.cdap.cdap.common.lang.InstantiatorFactory;
+import io.cdap.cdap.internal.asm.ClassDefinition;
+import io.cdap.cdap.internal.asm.Methods;
+import io.cdap.cdap.internal.lang.Fields;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.GeneratorAdapter;
+import org.objectweb.asm.commons.Method;
+import org.objectweb.asm.commons.TableSwitchGenerator;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.net.URI;
+import java.net.URL;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Class for generating {@link DatumReader} bytecodes using ASM. It is the counterpart of {@link DatumWriterGenerator}
+ * and follows the same schema resolution rules as {@link ReflectionDatumReader}. The class generated decodes data
+ * written with one source schema into a given type with a given target schema, and has a skeleton looks like
+ * the following:
+ * <pre>
+ * {@code
+ *
+ *  public final class generatedClassName implements DatumReader<Object> {
+ *    private final Object[] constants;
+ *
+ *    public generatedClassName(Object[] constants) {
+ *      this.constants = constants;
+ *    }
+ *
+ *    @Override
+ *    public Object read(Decoder decoder, Schema sourceSchema) throws IOException {
+ *      return generatedDecodeMethod(decoder);
+ *    }
+ *
+ *    private InputType generatedDecodeMethod(Decoder decoder) throws IOException {
+ *      // Do actual decoding by calling methods on decoder based on the source schema, target schema and type.
+ *    }
+ *
+ *    // Could have more generatedDecodeMethods and generatedSkipMethods...
+ *  }
+ * }
+ * </pre>
+ *
+ * The generated class only refers to classes that are visible to CDAP. Objects that are specific to the data type,
+ * such as {@link FieldAccessor}, {@link Instantiator}, array component {@link Class} and enum values, are created
+ * during generation and are passed to the constructor through the array returned by {@link #getConstants()}.
+ * The source schema given to the {@code read} method is not checked. It is the caller responsibility to only use
+ * the generated class for the source schema that it was generated for.
+ *
+ * If the data type cannot be handled, {@link UnsupportedOperationException} is thrown from
+ * {@link #generate(TypeToken, Schema, Schema)}, and the caller should use {@link ReflectionDatumReader} instead.
+ */
+@NotThreadSafe
+final class DatumReaderGenerator {
+
+  private static final Type OBJECT_ARRAY_TYPE = Type.getType(Object[].class);
+  private static final Type DECODER_TYPE = Type.getType(Decoder.class);
+  private static final Type IO_EXCEPTION_TYPE = Type.getType(IOException.class);
+
+  private final FieldAccessorFactory fieldAccessorFactory;
+  private final FieldAccessorFactory finalFieldAccessorFactory;
+  private final InstantiatorFactory instantiatorFactory;
+  private final Map<String, Method> decodeMethods = Maps.newHashMap();
+  private final Map<String, Method> skipMethods = Maps.newHashMap();
+  private final List<Object> constants = Lists.newArrayList();
+  private ClassWriter classWriter;
+  private Type classType;
+
+  DatumReaderGenerator(FieldAccessorFactory fieldAccessorFactory) {
+    this.fieldAccessorFactory = fieldAccessorFactory;
+    // Final fields can only be set through reflection
+    this.finalFieldAccessorFactory = new ReflectionFieldAccessorFactory();
+    this.instantiatorFactory = new InstantiatorFactory(true);
+  }
+
+  /**
+   * Generates a {@link DatumReader} class for decoding data of the given type.
+   *
+   * @param inputType Type information of the data type to decode to.
+   * @param sourceSchema Schema that the data was encoded with.
+   * @param targetSchema Schema of the data type.
+   * @return A {@link ClassDefinition} that contains generated class information.
+   * @throws UnsupportedOperationException if the data type cannot be decoded by a generated class
+   */
+  ClassDefinition generate(TypeToken<?> inputType, Schema sourceSchema, Schema targetSchema) {
+    classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+
+    String className = getClassName(inputType, sourceSchema, targetSchema);
+    classType = Type.getObjectType(className);
+    classWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC + Opcodes.ACC_FINAL,
+                      className, null, Type.getInternalName(Object.class),
+                      new String[]{Type.getInternalName(DatumReader.class)});
+
+    // Constants field
+    classWriter.visitField(Opcodes.ACC_PRIVATE + Opcodes.ACC_FINAL, "constants",
+                           OBJECT_ARRAY_TYPE.getDescriptor(), null, null).visitEnd();
+
+    // Read method
+    generateRead(inputType, sourceSchema, targetSchema);
+
+    // Constructor
+    generateConstructor();
+
+    classWriter.visitEnd();
+
+    ClassDefinition classDefinition = new ClassDefinition(classWriter.toByteArray(), className);
+    // DEBUG block. Uncomment for debug
+//    io.cdap.cdap.internal.asm.Debugs.debugByteCode(classDefinition, new java.io.PrintWriter(System.out));
+    // End DEBUG block
+    return classDefinition;
+  }
+
+  /**
+   * Returns the constants to be passed to the constructor of the class generated by the last
+   * {@link #generate(TypeToken, Schema, Schema)} call.
+   */
+  Object[] getConstants() {
+    return constants.toArray();
+  }
+
+  /**
+   * Generates the constructor. The constructor generated has signature {@code (Object[])}.
+   */
+  private void generateConstructor() {
+    Method constructor = getMethod(void.class, "<init>", Object[].class);
+    GeneratorAdapter mg = new GeneratorAdapter(Opcodes.ACC_PUBLIC, constructor, null, null, classWriter);
+
+    // super();
+    mg.loadThis();
+    mg.invokeConstructor(Type.getType(Object.class), getMethod(void.class, "<init>"));
+
+    // this.constants = constants;
+    mg.loadThis();
+    mg.loadArg(0);
+    mg.putField(classType, "constants", OBJECT_ARRAY_TYPE);
+
+    mg.returnValue();
+    mg.endMethod();
+  }
+
+  /**
+   * Generates the {@link DatumReader#read(Decoder, Schema)} method.
+   */
+  private void generateRead(TypeToken<?> inputType, Schema sourceSchema, Schema targetSchema) {
+    Method readMethod = getMethod(Object.class, "read", Decoder.class, Schema.class);
+    GeneratorAdapter mg = new GeneratorAdapter(Opcodes.ACC_PUBLIC, readMethod, null,
+                                               new Type[] {IO_EXCEPTION_TYPE}, classWriter);
+    // return decodeMethod(decoder);
+    invokeDecode(mg, inputType, sourceSchema, targetSchema);
+    mg.returnValue();
+    mg.endMethod();
+  }
+
+  /**
+   * Generates instructions to call the decode method for the given type and schemas. The decoded value is left on
+   * the stack as an {@link Object}.
+   */
+  private void invokeDecode(GeneratorAdapter mg, TypeToken<?> type, Schema sourceSchema, Schema targetSchema) {
+    Method decodeMethod = getDecodeMethod(type, sourceSchema, targetSchema);
+    mg.loadThis();
+    mg.loadArg(0);
+    mg.invokeVirtual(classType, decodeMethod);
+    if (decodeMethod.getReturnType().getSort() != Type.OBJECT) {
+      mg.valueOf(decodeMethod.getReturnType());
+    }
+  }
+
+  /**
+   * Returns the method for decoding the given type with the given schemas. The method would be generated
+   * if it hasn't been generated yet. The method generated has signature {@code CallType decodeXXX(Decoder)},
+   * with the call type given by {@link #getCallType(TypeToken, Schema, Schema)}.
+   */
+  private Method getDecodeMethod(TypeToken<?> type, Schema sourceSchema, Schema targetSchema) {
+    String key = String.format("%s%s%s", normalizeTypeName(type),
+                               sourceSchema.getSchemaHash(), targetSchema.getSchemaHash());
+    Method method = decodeMethods.get(key);
+    if (method != null) {
+      return method;
+    }
+
+    Class<?> callType = getCallType(type, sourceSchema, targetSchema);
+    method = getMethod(callType, "decode" + key, Decoder.class);
+
+    // Put the method into the map first before generating the body in order to support recursive data type.
+    decodeMethods.put(key, method);
+
+    GeneratorAdapter mg = new GeneratorAdapter(Opcodes.ACC_PRIVATE, method, null,
+                                               new Type[] {IO_EXCEPTION_TYPE}, classWriter);
+    generateDecodeBody(mg, type, sourceSchema, targetSchema, callType);
+    mg.returnValue();
+    mg.endMethod();
+
+    return method;
+  }
+
+  /**
+   * Returns the return type of the decode method. Only values of primitive types that are not in a union are
+   * decoded without boxing, everything else is returned as {@link Object}.
+   */
+  private Class<?> getCallType(TypeToken<?> type, Schema sourceSchema, Schema targetSchema) {
+    Class<?> rawType = type.getRawType();
+    if (!rawType.isPrimitive() || sourceSchema.getType() == Schema.Type.UNION
+      || targetSchema.getType() == Schema.Type.UNION || sourceSchema.getType() == Schema.Type.NULL) {
+      return Object.class;
+    }
+    if (!rawType.equals(getSimpleValueType(rawType, targetSchema.getType()))) {
+      throw new UnsupportedOperationException(String.format("Type %s is not supported for schema %s",
+                                                            type, targetSchema));
+    }
+    return rawType;
+  }
+
+  /**
+   * Generates the body of the decode method.
+   */
+  private void generateDecodeBody(GeneratorAdapter mg, TypeToken<?> type,
+                                  Schema sourceSchema, Schema targetSchema, Class<?> callType) {
+    Schema.Type sourceType = sourceSchema.getType();
+    Schema.Type targetType = targetSchema.getType();
+
+    if (sourceType == Schema.Type.UNION) {
+      generateUnionDecode(mg, type, sourceSchema, targetSchema);
+      return;
+    }
+    if (targetType == Schema.Type.UNION) {
+      // Resolve to the first branch of the target union that the source schema can be resolved to
+      for (Schema schema : targetSchema.getUnionSchemas()) {
+        if (isResolvable(sourceType, schema.getType())) {
+          invokeDecode(mg, type, sourceSchema, schema);
+          return;
+        }
+      }
+      mg.throwException(IO_EXCEPTION_TYPE,
+                        String.format("No matching schema to resolve %s to %s", sourceSchema, targetSchema));
+      return;
+    }
+    if (!isResolvable(sourceType, targetType)) {
+      mg.throwException(IO_EXCEPTION_TYPE, String.format("Fails to resolve %s to %s", sourceType, targetType));
+      return;
+    }
+
+    switch (sourceType) {
+      case NULL:
+        mg.loadArg(0);
+        mg.invokeInterface(DECODER_TYPE, getMethod(Object.class, "readNull"));
+        break;
+      case BYTES:
+        generateBytesDecode(mg, type);
+        break;
+      case ENUM:
+        generateEnumDecode(mg, type, sourceSchema, targetSchema);
+        break;
+      case ARRAY:
+        generateArrayDecode(mg, type, sourceSchema, targetSchema);
+        break;
+      case MAP:
+        generateMapDecode(mg, type, sourceSchema, targetSchema);
+        break;
+      case RECORD:
+        generateRecordDecode(mg, type, sourceSchema, targetSchema);
+        break;
+      default:
+        generateSimpleDecode(mg, type, sourceType, targetType, callType);
+    }
+  }
+
+  /**
+   * Generates method body for decoding simple types other than {@code null} and {@code bytes}, with
+   * the same type promotion as {@link ReflectionReader}.
+   */
+  private void generateSimpleDecode(GeneratorAdapter mg, TypeToken<?> type, Schema.Type sourceType,
+                                    Schema.Type targetType, Class<?> callType) {
+    Class<?> rawType = type.getRawType();
+    Class<?> valueType = getSimpleValueType(rawType, targetType);
+
+    // value = decoder.readXXX();
+    Class<?> sourceValueType = getSimpleValueType(String.class, sourceType);
+    mg.loadArg(0);
+    mg.invokeInterface(DECODER_TYPE, getMethod(sourceValueType, getReadMethodName(sourceType)));
+
+    if (targetType == Schema.Type.STRING) {
+      if (sourceType != Schema.Type.STRING) {
+        mg.invokeStatic(Type.getType(String.class), getMethod(String.class, "valueOf", sourceValueType));
+      } else if (URI.class.equals(valueType)) {
+        mg.invokeStatic(Type.getType(URI.class), getMethod(URI.class, "create", String.class));
+      } else if (URL.class.equals(valueType)) {
+        // new URL(value)
+        mg.newInstance(Type.getType(URL.class));
+        mg.dupX1();
+        mg.swap();
+        mg.invokeConstructor(Type.getType(URL.class), getMethod(void.class, "<init>", String.class));
+      }
+      return;
+    }
+
+    // Promotion and conversion to byte, char and short
+    mg.cast(Type.getType(sourceValueType), Type.getType(valueType));
+    if (!callType.isPrimitive()) {
+      mg.valueOf(Type.getType(valueType));
+    }
+  }
+
+  /**
+   * Generates method body for decoding {@code bytes} into either {@code byte[]}, {@link UUID} or {@link ByteBuffer}.
+   */
+  private void generateBytesDecode(GeneratorAdapter mg, TypeToken<?> type) {
+    Class<?> rawType = type.getRawType();
+    Type byteBufferType = Type.getType(ByteBuffer.class);
+    Type bufferType = Type.getType(Buffer.class);
+
+    // ByteBuffer buffer = decoder.readBytes();
+    int buffer = mg.newLocal(byteBufferType);
+    mg.loadArg(0);
+    mg.invokeInterface(DECODER_TYPE, getMethod(ByteBuffer.class, "readBytes"));
+    mg.storeLocal(buffer);
+
+    if (byte[].class.equals(rawType)) {
+      Label copy = mg.newLabel();
+      Label end = mg.newLabel();
+
+      // if (buffer.hasArray() && buffer.remaining() == buffer.array().length) { return buffer.array(); }
+      mg.loadLocal(buffer);
+      mg.invokeVirtual(byteBufferType, getMethod(boolean.class, "hasArray"));
+      mg.ifZCmp(GeneratorAdapter.EQ, copy);
+      mg.loadLocal(buffer);
+      mg.invokeVirtual(bufferType, getMethod(int.class, "remaining"));
+      mg.loadLocal(buffer);
+      mg.invokeVirtual(byteBufferType, getMethod(byte[].class, "array"));
+      mg.arrayLength();
+      mg.ifICmp(GeneratorAdapter.NE, copy);
+      mg.loadLocal(buffer);
+      mg.invokeVirtual(byteBufferType, getMethod(byte[].class, "array"));
+      mg.goTo(end);
+
+      // byte[] bytes = new byte[buffer.remaining()]; buffer.get(bytes); return bytes;
+      mg.mark(copy);
+      int bytes = mg.newLocal(Type.getType(byte[].class));
+      mg.loadLocal(buffer);
+      mg.invokeVirtual(bufferType, getMethod(int.class, "remaining"));
+      mg.newArray(Type.BYTE_TYPE);
+      mg.storeLocal(bytes);
+      mg.loadLocal(buffer);
+      mg.loadLocal(bytes);
+      mg.invokeVirtual(byteBufferType, getMethod(ByteBuffer.class, "get", byte[].class));
+      mg.pop();
+      mg.loadLocal(bytes);
+
+      mg.mark(end);
+      return;
+    }
+
+    if (UUID.class.equals(rawType)) {
+      Label notUUID = mg.newLabel();
+      Label end = mg.newLabel();
+
+      // if (buffer.remaining() == 16) { return new UUID(buffer.getLong(), buffer.getLong()); }
+      mg.loadLocal(buffer);
+      mg.invokeVirtual(bufferType, getMethod(int.class, "remaining"));
+      mg.push(Long.BYTES * 2);
+      mg.ifICmp(GeneratorAdapter.NE, notUUID);
+      mg.newInstance(Type.getType(UUID.class));
+      mg.dup();
+      mg.loadLocal(buffer);
+      mg.invokeVirtual(byteBufferType, getMethod(long.class, "getLong"));
+      mg.loadLocal(buffer);
+      mg.invokeVirtual(byteBufferType, getMethod(long.class, "getLong"));
+      mg.invokeConstructor(Type.getType(UUID.class), getMethod(void.class, "<init>", long.class, long.class));
+      mg.goTo(end);
+
+      mg.mark(notUUID);
+      mg.loadLocal(buffer);
+      mg.mark(end);
+      return;
+    }
+
+    mg.loadLocal(buffer);
+  }
+
+  /**
+   * Generates method body for decoding enum. The enum values are looked up from a constant array that is indexed
+   * by the enum index of the source schema, with {@code null} for values that are missing in the target.
+   */
+  private void generateEnumDecode(GeneratorAdapter mg, TypeToken<?> type,
+                                  Schema sourceSchema, Schema targetSchema) {
+    Class<?> rawType = type.getRawType();
+    if (!rawType.isEnum()) {
+      throw new UnsupportedOperationException("Type " + type + " is not an enum");
+    }
+
+    Object[] values = new Object[sourceSchema.getEnumValues().size()];
+    for (int i = 0; i < values.length; i++) {
+      String name = sourceSchema.getEnumValue(i);
+      if (targetSchema.getEnumValues().contains(name)) {
+        values[i] = findEnumValue(rawType, name);
+      }
+    }
+
+    // Object value = values[decoder.readInt()];
+    loadConstant(mg, addConstant(values), Object[].class);
+    mg.loadArg(0);
+    mg.invokeInterface(DECODER_TYPE, getMethod(int.class, "readInt"));
+    mg.arrayLoad(Type.getType(Object.class));
+
+    // if (value == null) { throw new IOException(...); }
+    Label end = mg.newLabel();
+    mg.dup();
+    mg.ifNonNull(end);
+    mg.throwException(IO_EXCEPTION_TYPE, "Enum value missing in target " + targetSchema);
+    mg.mark(end);
+  }
+
+  /**
+   * Generates method body for decoding array into either a Java array or a {@link Collection}.
+   */
+  private void generateArrayDecode(GeneratorAdapter mg, TypeToken<?> type,
+                                   Schema sourceSchema, Schema targetSchema) {
+    if (type.isArray()) {
+      generateJavaArrayDecode(mg, type, sourceSchema, targetSchema);
+      return;
+    }
+    if (!Collection.class.isAssignableFrom(type.getRawType()) || !(type.getType() instanceof ParameterizedType)) {
+      throw new UnsupportedOperationException("Only array or parameterized collection is supported for array value");
+    }
+
+    TypeToken<?> componentType = TypeToken.of(((ParameterizedType) type.getType()).getActualTypeArguments()[0]);
+    Type collectionType = Type.getType(Collection.class);
+
+    // Collection collection = (Collection) instantiator.create();
+    int collection = mg.newLocal(collectionType);
+    loadConstant(mg, addConstant(instantiatorFactory.get(type)), Instantiator.class);
+    mg.invokeInterface(Type.getType(Instantiator.class), getMethod(Object.class, "create"));
+    mg.checkCast(collectionType);
+    mg.storeLocal(collection);
+
+    generateBlocksDecode(mg, (len, idx) -> {
+      // collection.add(decodeMethod(decoder));
+      mg.loadLocal(collection);
+      invokeDecode(mg, componentType, sourceSchema.getComponentSchema(), targetSchema.getComponentSchema());
+      mg.invokeInterface(collectionType, getMethod(boolean.class, "add", Object.class));
+      mg.pop();
+    });
+
+    mg.loadLocal(collection);
+  }
+
+  /**
+   * Generates method body for decoding array into a Java array. The array is allocated with the size of the first
+   * block and is grown for every block after.
+   */
+  private void generateJavaArrayDecode(GeneratorAdapter mg, TypeToken<?> type,
+                                       Schema sourceSchema, Schema targetSchema) {
+    TypeToken<?> componentType = type.getComponentType();
+    Class<?> componentRawType = componentType.getRawType();
+    Method componentMethod = getDecodeMethod(componentType, sourceSchema.getComponentSchema(),
+                                             targetSchema.getComponentSchema());
+    if (componentRawType.isPrimitive() && componentMethod.getReturnType().getSort() == Type.OBJECT) {
+      throw new UnsupportedOperationException(String.format("Array of %s is not supported for schema %s",
+                                                            componentType, targetSchema));
+    }
+
+    // Arrays of reference types are created through reflection, as the component type is not visible to the
+    // generated class
+    Type elementType = componentRawType.isPrimitive() ? Type.getType(componentRawType) : Type.getType(Object.class);
+    Type arrayType = Type.getType("[" + elementType.getDescriptor());
+    int array = mg.newLocal(arrayType);
+    int size = mg.newLocal(Type.INT_TYPE);
+
+    // array = new ComponentType[0]; size = 0;
+    if (componentRawType.isPrimitive()) {
+      mg.push(0);
+      mg.newArray(elementType);
+    } else {
+      loadConstant(mg, addConstant(componentRawType), Class.class);
+      mg.push(0);
+      mg.invokeStatic(Type.getType(Array.class), getMethod(Object.class, "newInstance", Class.class, int.class));
+      mg.checkCast(arrayType);
+    }
+    mg.storeLocal(array);
+    mg.push(0);
+    mg.storeLocal(size);
+
+    generateBlocksDecode(mg, (len, idx) -> {
+      // if (idx == 0) { array = Arrays.copyOf(array, size + len); }
+      Label allocated = mg.newLabel();
+      mg.loadLocal(idx);
+      mg.ifZCmp(GeneratorAdapter.NE, allocated);
+      mg.loadLocal(array);
+      mg.loadLocal(size);
+      mg.loadLocal(len);
+      mg.math(GeneratorAdapter.ADD, Type.INT_TYPE);
+      mg.invokeStatic(Type.getType(Arrays.class), new Method("copyOf", arrayType,
+                                                             new Type[] {arrayType, Type.INT_TYPE}));
+      mg.storeLocal(array);
+      mg.mark(allocated);
+
+      // array[size++] = decodeMethod(decoder);
+      mg.loadLocal(array);
+      mg.loadLocal(size);
+      mg.loadThis();
+      mg.loadArg(0);
+      mg.invokeVirtual(classType, componentMethod);
+      if (!componentRawType.isPrimitive() && componentMethod.getReturnType().getSort() != Type.OBJECT) {
+        mg.valueOf(componentMethod.getReturnType());
+      }
+      mg.arrayStore(elementType);
+      mg.iinc(size, 1);
+    });
+
+    mg.loadLocal(array);
+  }
+
+  /**
+   * Generates method body for decoding map into a {@link Map}.
+   */
+  private void generateMapDecode(GeneratorAdapter mg, TypeToken<?> type,
+                                 Schema sourceSchema, Schema targetSchema) {
+    if (!Map.class.isAssignableFrom(type.getRawType()) || !(type.getType() instanceof ParameterizedType)) {
+      throw new UnsupportedOperationException("Only parameterized map is supported for map value");
+    }
+
+    java.lang.reflect.Type[] typeArgs = ((ParameterizedType) type.getType()).getActualTypeArguments();
+    Map.Entry<Schema, Schema> sourceEntry = sourceSchema.getMapSchema();
+    Map.Entry<Schema, Schema> targetEntry = targetSchema.getMapSchema();
+    Type mapType = Type.getType(Map.class);
+
+    // Map map = (Map) instantiator.create();
+    int map = mg.newLocal(mapType);
+    loadConstant(mg, addConstant(instantiatorFactory.get(type)), Instantiator.class);
+    mg.invokeInterface(Type.getType(Instantiator.class), getMethod(Object.class, "create"));
+    mg.checkCast(mapType);
+    mg.storeLocal(map);
+
+    generateBlocksDecode(mg, (len, idx) -> {
+      // map.put(decodeKeyMethod(decoder), decodeValueMethod(decoder));
+      mg.loadLocal(map);
+      invokeDecode(mg, TypeToken.of(typeArgs[0]), sourceEntry.getKey(), targetEntry.getKey());
+      invokeDecode(mg, TypeToken.of(typeArgs[1]), sourceEntry.getValue(), targetEntry.getValue());
+      mg.invokeInterface(mapType, getMethod(Object.class, "put", Object.class, Object.class));
+      mg.pop();
+    });
+
+    mg.loadLocal(map);
+  }
+
+  /**
+   * Generates method body for decoding record. The record is created by {@link Instantiator} and fields are set
+   * through {@link FieldAccessor}. Fields that are in the source schema but not in the target schema are skipped.
+   */
+  private void generateRecordDecode(GeneratorAdapter mg, TypeToken<?> type,
+                                    Schema sourceSchema, Schema targetSchema) {
+    Class<?> rawType = type.getRawType();
+    if (rawType.isPrimitive() || rawType.isArray() || rawType.isInterface()
+      || Modifier.isAbstract(rawType.getModifiers()) || Object.class.equals(rawType)) {
+      throw new UnsupportedOperationException("Type " + type + " is not supported for record");
+    }
+
+    // Object record = instantiator.create();
+    int record = mg.newLocal(Type.getType(Object.class));
+    loadConstant(mg, addConstant(instantiatorFactory.get(type)), Instantiator.class);
+    mg.invokeInterface(Type.getType(Instantiator.class), getMethod(Object.class, "create"));
+    mg.storeLocal(record);
+
+    for (Schema.Field sourceField : sourceSchema.getFields()) {
+      Schema.Field targetField = targetSchema.getField(sourceField.getName());
+      if (targetField == null) {
+        // skipMethod(decoder);
+        mg.loadThis();
+        mg.loadArg(0);
+        mg.invokeVirtual(classType, getSkipMethod(sourceField.getSchema()));
+        continue;
+      }
+
+      Field field = findField(type, sourceField.getName());
+      TypeToken<?> fieldType = type.resolveType(field.getGenericType());
+      FieldAccessor fieldAccessor = Modifier.isFinal(field.getModifiers())
+        ? finalFieldAccessorFactory.getFieldAccessor(type, field.getName())
+        : fieldAccessorFactory.getFieldAccessor(type, field.getName());
+      Method decodeMethod = getDecodeMethod(fieldType, sourceField.getSchema(), targetField.getSchema());
+
+      // fieldAccessor.set(record, decodeMethod(decoder));
+      loadConstant(mg, addConstant(fieldAccessor), FieldAccessor.class);
+      mg.loadLocal(record);
+      mg.loadThis();
+      mg.loadArg(0);
+      mg.invokeVirtual(classType, decodeMethod);
+      mg.invokeInterface(Type.getType(FieldAccessor.class), getAccessorMethod(decodeMethod.getReturnType()));
+    }
+
+    mg.loadLocal(record);
+  }
+
+  /**
+   * Generates method body for decoding union. The union index is read and the value is decoded with the
+   * corresponding branch of the source union.
+   */
+  private void generateUnionDecode(GeneratorAdapter mg, TypeToken<?> type,
+                                   Schema sourceSchema, Schema targetSchema) {
+    List<Schema> unionSchemas = sourceSchema.getUnionSchemas();
+
+    // switch (decoder.readInt()) { case idx: return decodeMethod(decoder); ... }
+    mg.loadArg(0);
+    mg.invokeInterface(DECODER_TYPE, getMethod(int.class, "readInt"));
+    mg.tableSwitch(getIndexes(unionSchemas.size()), new TableSwitchGenerator() {
+      @Override
+      public void generateCase(int key, Label end) {
+        Schema sourceValueSchema = unionSchemas.get(key);
+        Schema targetValueSchema = getUnionTargetSchema(sourceValueSchema, targetSchema, key);
+        if (targetValueSchema == null) {
+          mg.throwException(IO_EXCEPTION_TYPE, String.format("Fail to resolve %s to %s", sourceSchema, targetSchema));
+          return;
+        }
+        invokeDecode(mg, type, sourceValueSchema, targetValueSchema);
+        mg.goTo(end);
+      }
+
+      @Override
+      public void generateDefault() {
+        mg.throwException(IO_EXCEPTION_TYPE, "Union index out of range for " + sourceSchema);
+      }
+    });
+  }
+
+  /**
+   * Returns the target schema to decode a branch of a source union to, or {@code null} if there is no match.
+   * If the target is a union, the branch at the same index is used if it has the same type, otherwise the first
+   * branch that the source can be resolved to is used.
+   */
+  @Nullable
+  private Schema getUnionTargetSchema(Schema sourceValueSchema, Schema targetSchema, int idx) {
+    if (targetSchema.getType() != Schema.Type.UNION) {
+      return targetSchema;
+    }
+    Schema targetValueSchema = targetSchema.getUnionSchema(idx);
+    if (targetValueSchema != null && targetValueSchema.getType() == sourceValueSchema.getType()) {
+      return targetValueSchema;
+    }
+    for (Schema schema : targetSchema.getUnionSchemas()) {
+      if (isResolvable(sourceValueSchema.getType(), schema.getType())) {
+        return schema;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the method for skipping a value of the given schema. The method would be generated if it hasn't been
+   * generated yet. The method generated has signature {@code void skipXXX(Decoder)}.
+   */
+  private Method getSkipMethod(Schema schema) {
+    String key = schema.getSchemaHash().toString();
+    Method method = skipMethods.get(key);
+    if (method != null) {
+      return method;
+    }
+
+    method = getMethod(void.class, "skip" + key, Decoder.class);
+    skipMethods.put(key, method);
+
+    GeneratorAdapter mg = new GeneratorAdapter(Opcodes.ACC_PRIVATE, method, null,
+                                               new Type[] {IO_EXCEPTION_TYPE}, classWriter);
+    generateSkipBody(mg, schema);
+    mg.returnValue();
+    mg.endMethod();
+
+    return method;
+  }
+
+  private void generateSkipBody(GeneratorAdapter mg, Schema schema) {
+    switch (schema.getType()) {
+      case NULL:
+        break;
+      case BOOLEAN:
+        mg.loadArg(0);
+        mg.invokeInterface(DECODER_TYPE, getMethod(boolean.class, "readBool"));
+        mg.pop();
+        break;
+      case INT:
+      case ENUM:
+        mg.loadArg(0);
+        mg.invokeInterface(DECODER_TYPE, getMethod(int.class, "readInt"));
+        mg.pop();
+        break;
+      case LONG:
+        mg.loadArg(0);
+        mg.invokeInterface(DECODER_TYPE, getMethod(long.class, "readLong"));
+        mg.pop2();
+        break;
+      case FLOAT:
+        mg.loadArg(0);
+        mg.invokeInterface(DECODER_TYPE, getMethod(void.class, "skipFloat"));
+        break;
+      case DOUBLE:
+        mg.loadArg(0);
+        mg.invokeInterface(DECODER_TYPE, getMethod(void.class, "skipDouble"));
+        break;
+      case STRING:
+        mg.loadArg(0);
+        mg.invokeInterface(DECODER_TYPE, getMethod(void.class, "skipString"));
+        break;
+      case BYTES:
+        mg.loadArg(0);
+        mg.invokeInterface(DECODER_TYPE, getMethod(void.class, "skipBytes"));
+        break;
+      case ARRAY:
+        generateBlocksDecode(mg, (len, idx) -> invokeSkip(mg, schema.getComponentSchema()));
+        break;
+      case MAP:
+        generateBlocksDecode(mg, (len, idx) -> {
+          invokeSkip(mg, schema.getMapSchema().getKey());
+          invokeSkip(mg, schema.getMapSchema().getValue());
+        });
+        break;
+      case RECORD:
+        for (Schema.Field field : schema.getFields()) {
+          invokeSkip(mg, field.getSchema());
+        }
+        break;
+      case UNION:
+        List<Schema> unionSchemas = schema.getUnionSchemas();
+        mg.loadArg(0);
+        mg.invokeInterface(DECODER_TYPE, getMethod(int.class, "readInt"));
+        mg.tableSwitch(getIndexes(unionSchemas.size()), new TableSwitchGenerator() {
+          @Override
+          public void generateCase(int key, Label end) {
+            invokeSkip(mg, unionSchemas.get(key));
+            mg.goTo(end);
+          }
+
+          @Override
+          public void generateDefault() {
+            mg.throwException(IO_EXCEPTION_TYPE, "Union index out of range for " + schema);
+          }
+        });
+        break;
+    }
+  }
+
+  private void invokeSkip(GeneratorAdapter mg, Schema schema) {
+    Method skipMethod = getSkipMethod(schema);
+    mg.loadThis();
+    mg.loadArg(0);
+    mg.invokeVirtual(classType, skipMethod);
+  }
+
+  /**
+   * Generates the loop for decoding array and map values, which are encoded as blocks of items, each prefixed
+   * with the number of items in it, and terminated by an empty block. The {@link ItemGenerator} is called once to
+   * generate instructions for decoding one item.
+   * <pre>
+   * {@code
+   *
+   *   int len = decoder.readInt();
+   *   while (len != 0) {
+   *     for (int i = 0; i < len; i++) {
+   *       // item instructions
+   *     }
+   *     len = decoder.readInt();
+   *   }
+   * }
+   * </pre>
+   */
+  private void generateBlocksDecode(GeneratorAdapter mg, ItemGenerator itemGenerator) {
+    int len = mg.newLocal(Type.INT_TYPE);
+    int idx = mg.newLocal(Type.INT_TYPE);
+    Label blockLoop = mg.newLabel();
+    Label blockEnd = mg.newLabel();
+    Label itemLoop = mg.newLabel();
+    Label itemEnd = mg.newLabel();
+
+    mg.loadArg(0);
+    mg.invokeInterface(DECODER_TYPE, getMethod(int.class, "readInt"));
+    mg.storeLocal(len);
+
+    mg.mark(blockLoop);
+    mg.loadLocal(len);
+    mg.ifZCmp(GeneratorAdapter.EQ, blockEnd);
+
+    mg.push(0);
+    mg.storeLocal(idx);
+    mg.mark(itemLoop);
+    mg.loadLocal(idx);
+    mg.loadLocal(len);
+    mg.ifICmp(GeneratorAdapter.GE, itemEnd);
+
+    itemGenerator.generate(len, idx);
+
+    mg.iinc(idx, 1);
+    mg.goTo(itemLoop);
+    mg.mark(itemEnd);
+
+    mg.loadArg(0);
+    mg.invokeInterface(DECODER_TYPE, getMethod(int.class, "readInt"));
+    mg.storeLocal(len);
+    mg.goTo(blockLoop);
+    mg.mark(blockEnd);
+  }
+
+  /**
+   * Returns whether a value of the source type can be decoded as the target type, based on the promotion rules of
+   * {@link ReflectionReader}.
+   */
+  private boolean isResolvable(Schema.Type sourceType, Schema.Type targetType) {
+    if (sourceType == Schema.Type.UNION || sourceType == targetType) {
+      return true;
+    }
+    switch (sourceType) {
+      case BOOLEAN:
+        return targetType == Schema.Type.STRING;
+      case INT:
+        return targetType == Schema.Type.LONG || targetType == Schema.Type.FLOAT
+          || targetType == Schema.Type.DOUBLE || targetType == Schema.Type.STRING;
+      case LONG:
+        return targetType == Schema.Type.FLOAT || targetType == Schema.Type.DOUBLE
+          || targetType == Schema.Type.STRING;
+      case FLOAT:
+        return targetType == Schema.Type.DOUBLE || targetType == Schema.Type.STRING;
+      case DOUBLE:
+        return targetType == Schema.Type.STRING;
+    }
+    return false;
+  }
+
+  /**
+   * Returns the Java type that a simple schema type is decoded to for the given target raw type, or {@code null}
+   * if the schema type is not a simple type handled by {@link #generateSimpleDecode}.
+   */
+  @Nullable
+  private Class<?> getSimpleValueType(Class<?> rawType, Schema.Type schemaType) {
+    switch (schemaType) {
+      case BOOLEAN:
+        return boolean.class;
+      case INT:
+        if (byte.class.equals(rawType) || Byte.class.equals(rawType)) {
+          return byte.class;
+        }
+        if (char.class.equals(rawType) || Character.class.equals(rawType)) {
+          return char.class;
+        }
+        if (short.class.equals(rawType) || Short.class.equals(rawType)) {
+          return short.class;
+        }
+        return int.class;
+      case LONG:
+        return long.class;
+      case FLOAT:
+        return float.class;
+      case DOUBLE:
+        return double.class;
+      case STRING:
+        if (URI.class.equals(rawType) || URL.class.equals(rawType)) {
+          return rawType;
+        }
+        return String.class;
+    }
+    return null;
+  }
+
+  private String getReadMethodName(Schema.Type schemaType) {
+    switch (schemaType) {
+      case BOOLEAN:
+        return "readBool";
+      case INT:
+        return "readInt";
+      case LONG:
+        return "readLong";
+      case FLOAT:
+        return "readFloat";
+      case DOUBLE:
+        return "readDouble";
+      case STRING:
+        return "readString";
+    }
+    throw new IllegalArgumentException("Not a simple type " + schemaType);
+  }
+
+  /**
+   * Returns the method for setting value through {@link FieldAccessor} based on the value type.
+   */
+  private Method getAccessorMethod(Type valueType) {
+    if (valueType.getSort() == Type.OBJECT) {
+      return getMethod(void.class, "set", Object.class, Object.class);
+    }
+    String typeName = valueType.getClassName();
+    return new Method(String.format("set%c%s", Character.toUpperCase(typeName.charAt(0)), typeName.substring(1)),
+                      Type.VOID_TYPE, new Type[] {Type.getType(Object.class), valueType});
+  }
+
+  private Field findField(TypeToken<?> type, String name) {
+    try {
+      return Fields.findField(type.getType(), name);
+    } catch (NoSuchFieldException e) {
+      throw new UnsupportedOperationException(String.format("Field %s not found in %s", name, type), e);
+    }
+  }
+
+  @Nullable
+  @SuppressWarnings("unchecked")
+  private Object findEnumValue(Class<?> enumType, String name) {
+    try {
+      return Enum.valueOf((Class<? extends Enum>) enumType, name);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private int addConstant(Object constant) {
+    constants.add(constant);
+    return constants.size() - 1;
+  }
+
+  /**
+   * Generates instructions to load {@code (type) this.constants[idx]} to the stack.
+   */
+  private void loadConstant(GeneratorAdapter mg, int idx, Class<?> type) {
+    mg.loadThis();
+    mg.getField(classType, "constants", OBJECT_ARRAY_TYPE);
+    mg.push(idx);
+    mg.arrayLoad(Type.getType(Object.class));
+    mg.checkCast(Type.getType(type));
+  }
+
+  private int[] getIndexes(int size) {
+    int[] indexes = new int[size];
+    for (int i = 0; i < size; i++) {
+      indexes[i] = i;
+    }
+    return indexes;
+  }
+
+  private String getClassName(TypeToken<?> type, Schema sourceSchema, Schema targetSchema) {
+    return String.format("%s/%s%s%s%s",
+                         DatumReader.class.getPackage().getName().replace('.', '/'),
+                         normalizeTypeName(type), DatumReader.class.getSimpleName(),
+                         sourceSchema.getSchemaHash(), targetSchema.getSchemaHash());
+  }
+
+  private String normalizeTypeName(TypeToken<?> type) {
+    String typeName = type.toString();
+    int dimension = 0;
+    while (type.isArray()) {
+      type = type.getComponentType();
+      typeName = type.toString();
+      dimension++;
+    }
+
+    typeName = typeName.replace(".", "")
+                        .replace("<", "Of")
+                        .replace(">", "")
+                        .replace(",", "To")
+                        .replace("[]", "Array")
+                        .replace("?", "Wildcard")
+                        .replace(" ", "")
+                        .replace("$", "");
+    if (dimension > 0) {
+      typeName = "Array" + dimension + typeName;
+    }
+    return typeName;
+  }
+
+  private Method getMethod(Class<?> returnType, String name, Class<?>...args) {
+    return Methods.getMethod(returnType, name, args);
+  }
+
+  /**
+   * Generates instructions for decoding one item of an array or map block.
+   */
+  private interface ItemGenerator {
+
+    /**
+     * Generates the instructions.
+     *
+     * @param len the local variable index of the number of items in the current block
+     * @param idx the local variable index of the item index in the current block
+     */
+    void generate(int len, int idx);
+  }
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.io;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.reflect.TypeToken;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.data.schema.UnsupportedTypeException;
+import io.cdap.cdap.common.io.BinaryDecoder;
+import io.cdap.cdap.common.io.BinaryEncoder;
+import io.cdap.cdap.common.io.DatumReader;
+import io.cdap.cdap.internal.io.ASMDatumReaderFactory;
+import io.cdap.cdap.internal.io.ASMDatumWriterFactory;
+import io.cdap.cdap.internal.io.ASMFieldAccessorFactory;
+import io.cdap.cdap.internal.io.ReflectionDatumReader;
+import io.cdap.cdap.internal.io.ReflectionDatumWriter;
+import io.cdap.cdap.internal.io.ReflectionSchemaGenerator;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link ASMDatumReaderFactory}.
+ */
+public class ASMDatumReaderTest {
+
+  private static final ASMDatumWriterFactory DATUM_WRITER_FACTORY
+    = new ASMDatumWriterFactory(new ASMFieldAccessorFactory());
+  private static final ASMDatumReaderFactory DATUM_READER_FACTORY
+    = new ASMDatumReaderFactory(new ASMFieldAccessorFactory());
+
+  /**
+   *
+   */
+  public enum TestEnum {
+    VALUE1, VALUE2, VALUE3
+  }
+
+  /**
+   *
+   */
+  public enum LessEnum {
+    VALUE3, VALUE1
+  }
+
+  /**
+   *
+   */
+  public static final class Record {
+    private boolean b;
+    private byte bt;
+    private char c;
+    private short s;
+    private int i;
+    private long l;
+    private float f;
+    private double d;
+    private Integer boxed;
+    private String str;
+    private String nullStr;
+    private byte[] bytes;
+    private UUID uuid;
+    private URI uri;
+    private TestEnum e;
+    private int[] ints;
+    private String[] strs;
+    private Record[] children;
+    private List<Long> list;
+    private Set<String> set;
+    private Map<String, List<Integer>> map;
+    private final String finalStr;
+
+    public Record() {
+      this.finalStr = null;
+    }
+
+    public Record(int seed) {
+      this.b = seed % 2 == 0;
+      this.bt = (byte) seed;
+      this.c = (char) ('a' + seed % 26);
+      this.s = (short) (seed * 3);
+      this.i = seed * 7;
+      this.l = seed * 100000000000L;
+      this.f = seed / 3f;
+      this.d = seed / 7d;
+      this.boxed = seed;
+      this.str = "str" + seed;
+      this.bytes = new byte[] {(byte) seed, 1, 2};
+      this.uuid = new UUID(seed, seed * 2);
+      this.uri = URI.create("http://host/" + seed);
+      this.e = TestEnum.values()[seed % 3];
+      this.ints = new int[] {seed, seed + 1, seed + 2};
+      this.strs = new String[] {"a" + seed, null, "b" + seed};
+      this.children = seed > 0 ? new Record[] {new Record(seed - 1)} : new Record[0];
+      this.list = ImmutableList.of((long) seed, 2L * seed);
+      this.set = ImmutableSet.of("x" + seed, "y" + seed);
+      this.map = ImmutableMap.of("k" + seed, ImmutableList.of(seed, seed), "empty", ImmutableList.of());
+      this.finalStr = "final" + seed;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Record other = (Record) o;
+      return b == other.b && bt == other.bt && c == other.c && s == other.s && i == other.i && l == other.l
+        && f == other.f && d == other.d && java.util.Objects.equals(boxed, other.boxed)
+        && java.util.Objects.equals(str, other.str) && java.util.Objects.equals(nullStr, other.nullStr)
+        && Arrays.equals(bytes, other.bytes) && java.util.Objects.equals(uuid, other.uuid)
+        && java.util.Objects.equals(uri, other.uri) && e == other.e && Arrays.equals(ints, other.ints)
+        && Arrays.equals(strs, other.strs) && Arrays.equals(children, other.children)
+        && java.util.Objects.equals(list, other.list) && java.util.Objects.equals(set, other.set)
+        && java.util.Objects.equals(map, other.map) && java.util.Objects.equals(finalStr, other.finalStr);
+    }
+
+    @Override
+    public int hashCode() {
+      return java.util.Objects.hash(i, str);
+    }
+  }
+
+  /**
+   *
+   */
+  public static final class Source {
+    int i;
+    long l;
+    float f;
+    URL url;
+    Map<Integer, String> map;
+    int[] numbers;
+    List<String> skipList;
+    Map<String, Integer> skipMap;
+    Source skipRecord;
+    String skipNullable;
+    TestEnum e;
+  }
+
+  /**
+   *
+   */
+  public static final class Target {
+    long i;
+    Double l;
+    String f;
+    URI url;
+    Map<String, String> map;
+    long[] numbers;
+    LessEnum e;
+    String missing;
+  }
+
+  /**
+   *
+   */
+  public static final class WideField {
+    long value;
+  }
+
+  @Test
+  public void testSimpleTypes() throws IOException, UnsupportedTypeException {
+    testRoundTrip(TypeToken.of(Short.class), (short) 3000);
+    testRoundTrip(TypeToken.of(Integer.class), 12234234);
+    testRoundTrip(TypeToken.of(Long.class), Long.MAX_VALUE);
+    testRoundTrip(TypeToken.of(Double.class), 3.14d);
+    testRoundTrip(TypeToken.of(Boolean.class), true);
+    testRoundTrip(TypeToken.of(Character.class), 'c');
+    testRoundTrip(TypeToken.of(String.class), "Testing message");
+    testRoundTrip(TypeToken.of(UUID.class), UUID.randomUUID());
+    testRoundTrip(TypeToken.of(URI.class), URI.create("http://www.cdap.io"));
+    testRoundTrip(TypeToken.of(TestEnum.class), TestEnum.VALUE2);
+    Assert.assertArrayEquals(new byte[] {1, 2, 3}, testRoundTrip(TypeToken.of(byte[].class), new byte[] {1, 2, 3}));
+  }
+
+  @Test
+  public void testContainers() throws IOException, UnsupportedTypeException {
+    Assert.assertArrayEquals(new int[] {1, 2, 3}, testRoundTrip(TypeToken.of(int[].class), new int[] {1, 2, 3}));
+    Assert.assertArrayEquals(new String[] {"a", null, "c"},
+                             testRoundTrip(TypeToken.of(String[].class), new String[] {"a", null, "c"}));
+    Assert.assertArrayEquals(new long[0][], testRoundTrip(TypeToken.of(long[][].class), new long[0][]));
+    testRoundTrip(new TypeToken<List<Long>>() { }, ImmutableList.of(1L, 2L, 3L));
+    testRoundTrip(new TypeToken<Set<TestEnum>>() { }, ImmutableSet.of(TestEnum.VALUE1, TestEnum.VALUE3));
+    testRoundTrip(new TypeToken<Map<String, List<String>>>() { },
+                  ImmutableMap.of("a", ImmutableList.of("1", "2"), "b", ImmutableList.of()));
+  }
+
+  @Test
+  public void testRecord() throws IOException, UnsupportedTypeException {
+    testRoundTrip(TypeToken.of(Record.class), new Record(3));
+    testRoundTrip(new TypeToken<List<Record>>() { }, ImmutableList.of(new Record(0), new Record(2)));
+
+    ASMDatumCodecTest.Node root = new ASMDatumCodecTest.Node(
+      (short) 1, new ASMDatumCodecTest.Node((short) 2, null, new ASMDatumCodecTest.Node((short) 3, null, null)),
+      new ASMDatumCodecTest.Node((short) 4, new ASMDatumCodecTest.Node((short) 5, null, null), null));
+    testRoundTrip(TypeToken.of(ASMDatumCodecTest.Node.class), root);
+  }
+
+  @Test
+  public void testCollectionProjection() throws IOException, UnsupportedTypeException {
+    List<String> list = ImmutableList.of("1", "2", "3");
+    TypeToken<List<String>> sourceType = new TypeToken<List<String>>() { };
+
+    Assert.assertEquals(ImmutableSet.of("1", "2", "3"), read(sourceType, list, new TypeToken<Set<String>>() { }));
+    Assert.assertArrayEquals(new String[] {"1", "2", "3"}, read(sourceType, list, TypeToken.of(String[].class)));
+  }
+
+  @Test
+  public void testTypeProjection() throws IOException, UnsupportedTypeException {
+    Source source = new Source();
+    source.i = 10;
+    source.l = 20L;
+    source.f = 1.5f;
+    source.url = new URL("http://www.cdap.io");
+    source.map = ImmutableMap.of(1, "one", 2, "two");
+    source.numbers = new int[] {1, 2, 3};
+    source.skipList = ImmutableList.of("skip1", "skip2", "skip3");
+    source.skipMap = ImmutableMap.of("a", 1, "b", 2, "c", 3);
+    source.skipRecord = new Source();
+    source.skipRecord.skipList = ImmutableList.of("nested");
+    source.skipNullable = "skip";
+    source.e = TestEnum.VALUE3;
+
+    Target target = read(TypeToken.of(Source.class), source, TypeToken.of(Target.class));
+    Assert.assertEquals(10L, target.i);
+    Assert.assertEquals(20d, target.l, 0d);
+    Assert.assertEquals("1.5", target.f);
+    Assert.assertEquals(URI.create("http://www.cdap.io"), target.url);
+    Assert.assertEquals(ImmutableMap.of("1", "one", "2", "two"), target.map);
+    Assert.assertArrayEquals(new long[] {1L, 2L, 3L}, target.numbers);
+    Assert.assertEquals(LessEnum.VALUE3, target.e);
+    Assert.assertNull(target.missing);
+
+    // The reflection reader should skip fields the same way
+    target = readWithReflection(TypeToken.of(Source.class), source, TypeToken.of(Target.class));
+    Assert.assertEquals(LessEnum.VALUE3, target.e);
+    Assert.assertEquals(URI.create("http://www.cdap.io"), target.url);
+  }
+
+  @Test(expected = IOException.class)
+  public void testEnumMissing() throws IOException, UnsupportedTypeException {
+    Source source = new Source();
+    source.e = TestEnum.VALUE2;
+    read(TypeToken.of(Source.class), source, TypeToken.of(Target.class));
+  }
+
+  @Test
+  public void testUnionProjection() throws IOException, UnsupportedTypeException {
+    // Nullable source to non-nullable target
+    Schema sourceSchema = Schema.nullableOf(Schema.of(Schema.Type.INT));
+    Schema targetSchema = Schema.of(Schema.Type.LONG);
+    DatumReader<Long> reader = DATUM_READER_FACTORY.create(TypeToken.of(Long.class), targetSchema);
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    new ReflectionDatumWriter<Integer>(sourceSchema).encode(5, new BinaryEncoder(os));
+    Assert.assertEquals(Long.valueOf(5L),
+                        reader.read(new BinaryDecoder(new ByteArrayInputStream(os.toByteArray())), sourceSchema));
+
+    // Non-nullable source to nullable target
+    sourceSchema = Schema.of(Schema.Type.INT);
+    targetSchema = Schema.unionOf(Schema.of(Schema.Type.NULL), Schema.of(Schema.Type.STRING));
+    DatumReader<String> strReader = DATUM_READER_FACTORY.create(TypeToken.of(String.class), targetSchema);
+    os.reset();
+    new ReflectionDatumWriter<Integer>(sourceSchema).encode(5, new BinaryEncoder(os));
+    Assert.assertEquals("5",
+                        strReader.read(new BinaryDecoder(new ByteArrayInputStream(os.toByteArray())), sourceSchema));
+
+    // Unresolvable union branch
+    sourceSchema = Schema.unionOf(Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.BYTES));
+    targetSchema = Schema.of(Schema.Type.STRING);
+    strReader = DATUM_READER_FACTORY.create(TypeToken.of(String.class), targetSchema);
+    os.reset();
+    new BinaryEncoder(os).writeInt(1).writeBytes(new byte[] {1});
+    try {
+      strReader.read(new BinaryDecoder(new ByteArrayInputStream(os.toByteArray())), sourceSchema);
+      Assert.fail("Expected IOException");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testFallback() throws IOException {
+    // A long field read with an int schema is not handled by the generated reader
+    Schema schema = Schema.recordOf("WideField", Schema.Field.of("value", Schema.of(Schema.Type.INT)));
+    DatumReader<WideField> reader = DATUM_READER_FACTORY.create(TypeToken.of(WideField.class), schema);
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    new BinaryEncoder(os).writeInt(1234);
+    WideField value = reader.read(new BinaryDecoder(new ByteArrayInputStream(os.toByteArray())), schema);
+    Assert.assertEquals(1234L, value.value);
+  }
+
+  @Test
+  public void testSourceSchemaChange() throws IOException, UnsupportedTypeException {
+    // The same reader should be usable with different source schemas
+    Schema targetSchema = getSchema(TypeToken.of(Target.class));
+    DatumReader<Target> reader = DATUM_READER_FACTORY.create(TypeToken.of(Target.class), targetSchema);
+
+    Source source = new Source();
+    source.i = 1;
+    Schema sourceSchema = getSchema(TypeToken.of(Source.class));
+    for (int i = 0; i < 3; i++) {
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+      DATUM_WRITER_FACTORY.create(TypeToken.of(Source.class), sourceSchema).encode(source, new BinaryEncoder(os));
+      Assert.assertEquals(1L, reader.read(new BinaryDecoder(new ByteArrayInputStream(os.toByteArray())),
+                                          sourceSchema).i);
+
+      os = new ByteArrayOutputStream();
+      Target target = new Target();
+      target.i = 2;
+      DATUM_WRITER_FACTORY.create(TypeToken.of(Target.class), targetSchema).encode(target, new BinaryEncoder(os));
+      Assert.assertEquals(2L, reader.read(new BinaryDecoder(new ByteArrayInputStream(os.toByteArray())),
+                                          targetSchema).i);
+    }
+  }
+
+  @Ignore
+  @Test
+  public void testSpeed() throws UnsupportedTypeException, IOException {
+    TypeToken<Record> type = TypeToken.of(Record.class);
+    Schema schema = getSchema(type);
+    ByteArrayOutputStream os = new ByteArrayOutputStream(1024);
+    DATUM_WRITER_FACTORY.create(type, schema).encode(new Record(5), new BinaryEncoder(os));
+    byte[] bytes = os.toByteArray();
+
+    DatumReader<Record> asmReader = DATUM_READER_FACTORY.create(type, schema);
+    DatumReader<Record> reflectionReader = new ReflectionDatumReader<>(schema, type);
+
+    // Run twice to have the first round as warm up
+    for (int round = 0; round < 2; round++) {
+      for (DatumReader<Record> reader : ImmutableList.of(asmReader, reflectionReader)) {
+        long startTime = System.nanoTime();
+        for (int i = 0; i < 100000; i++) {
+          reader.read(new BinaryDecoder(new ByteArrayInputStream(bytes)), schema);
+        }
+        long endTime = System.nanoTime();
+        System.out.println(reader.getClass().getSimpleName() + " time spent: "
+                             + TimeUnit.MILLISECONDS.convert(endTime - startTime, TimeUnit.NANOSECONDS));
+      }
+    }
+  }
+
+  private <T> Schema getSchema(TypeToken<T> type) throws UnsupportedTypeException {
+    return new ReflectionSchemaGenerator().generate(type.getType());
+  }
+
+  /**
+   * Encodes the given value and decodes it with the generated reader, and asserts the value decoded is the same
+   * as the one decoded by the reflection reader.
+   */
+  private <T> T testRoundTrip(TypeToken<T> type, T value) throws IOException, UnsupportedTypeException {
+    T result = read(type, value, type);
+    T expected = readWithReflection(type, value, type);
+    if (!type.isArray()) {
+      Assert.assertEquals(value, result);
+      Assert.assertEquals(expected, result);
+    }
+    return result;
+  }
+
+  private <S, T> T read(TypeToken<S> sourceType, S value,
+                        TypeToken<T> targetType) throws IOException, UnsupportedTypeException {
+    Schema sourceSchema = getSchema(sourceType);
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    DATUM_WRITER_FACTORY.create(sourceType, sourceSchema).encode(value, new BinaryEncoder(os));
+    DatumReader<T> reader = DATUM_READER_FACTORY.create(targetType, getSchema(targetType));
+    return reader.read(new BinaryDecoder(new ByteArrayInputStream(os.toByteArray())), sourceSchema);
+  }
+
+  private <S, T> T readWithReflection(TypeToken<S> sourceType, S value,
+                                      TypeToken<T> targetType) throws IOException, UnsupportedTypeException {
+    Schema sourceSchema = getSchema(sourceType);
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    DATUM_WRITER_FACTORY.create(sourceType, sourceSchema).encode(value, new BinaryEncoder(os));
+    DatumReader<T> reader = new ReflectionDatumReader<>(getSchema(targetType), targetType);
+    return reader.read(new BinaryDecoder(new ByteArrayInputStream(os.toByteArray())), sourceSchema);
+  }
+}
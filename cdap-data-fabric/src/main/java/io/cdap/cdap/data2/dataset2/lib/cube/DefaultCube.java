@@ -16,13 +16,12 @@
 
 package io.cdap.cdap.data2.dataset2.lib.cube;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.PeekingIterator;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
 import com.google.common.util.concurrent.Uninterruptibles;
@@ -55,6 +54,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -65,6 +65,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
 
 /**
@@ -76,6 +77,8 @@ public class DefaultCube implements Cube, MeteredDataset {
   private static final DimensionValueComparator DIMENSION_VALUE_COMPARATOR = new DimensionValueComparator();
   // hard-limit on max records to scan
   private static final int MAX_RECORDS_TO_SCAN = 100 * 1000;
+  // max number of threads for scanning the time ranges of queries in parallel
+  private static final int QUERY_THREADS = 4;
   private static final EnumSet<AggregationOption> PARTITION_AGG_OPTIONS = EnumSet.of(AggregationOption.LATEST,
                                                                                      AggregationOption.SUM);
 
@@ -83,6 +86,8 @@ public class DefaultCube implements Cube, MeteredDataset {
   private final Map<String, ? extends Aggregation> aggregations;
   private final Map<String, AggregationAlias> aggregationAliasMap;
   private final ExecutorService executorService;
+  private final ExecutorService queryExecutorService;
+  private final int maxRecordsToScan;
 
   @Nullable
   private MetricsCollector metrics;
@@ -90,6 +95,14 @@ public class DefaultCube implements Cube, MeteredDataset {
   public DefaultCube(int[] resolutions, FactTableSupplier factTableSupplier,
                      Map<String, ? extends Aggregation> aggregations,
                      Map<String, AggregationAlias> aggregationAliasMap) {
+    this(resolutions, factTableSupplier, aggregations, aggregationAliasMap, MAX_RECORDS_TO_SCAN);
+  }
+
+  @VisibleForTesting
+  DefaultCube(int[] resolutions, FactTableSupplier factTableSupplier,
+              Map<String, ? extends Aggregation> aggregations,
+              Map<String, AggregationAlias> aggregationAliasMap, int maxRecordsToScan) {
+    this.maxRecordsToScan = maxRecordsToScan;
     this.aggregations = aggregations;
     this.resolutionToFactTable = Maps.newHashMap();
     for (int resolution : resolutions) {
@@ -101,6 +114,12 @@ public class DefaultCube implements Cube, MeteredDataset {
                                                          Threads.createDaemonThreadFactory("metrics-table-%d"));
     executor.allowCoreThreadTimeOut(true);
     this.executorService = executor;
+
+    ThreadPoolExecutor queryExecutor = new ThreadPoolExecutor(QUERY_THREADS, QUERY_THREADS, 30, TimeUnit.SECONDS,
+                                                              new LinkedBlockingQueue<>(),
+                                                              Threads.createDaemonThreadFactory("metrics-query-%d"));
+    queryExecutor.allowCoreThreadTimeOut(true);
+    this.queryExecutorService = queryExecutor;
   }
 
   @Override
@@ -110,6 +129,26 @@ public class DefaultCube implements Cube, MeteredDataset {
 
   @Override
   public void add(Collection<? extends CubeFact> facts) {
+    add(facts, false);
+  }
+
+  /**
+   * Adds the given facts to an in-memory buffer of each resolution table without writing them. Updates to the same
+   * cell are merged in the buffer, and they are written to the tables by the next {@link #flush()} or
+   * {@link #add(Collection)} call.
+   */
+  public void addBuffered(Collection<? extends CubeFact> facts) {
+    add(facts, true);
+  }
+
+  /**
+   * Writes facts buffered by {@link #addBuffered(Collection)} to the resolution tables.
+   */
+  public void flush() {
+    forEachFactTable("flush metrics to", FactTable::flush);
+  }
+
+  private void add(Collection<? extends CubeFact> facts, boolean buffered) {
     List<Fact> toWrite = Lists.newArrayList();
     int dimValuesCount = 0;
     for (CubeFact fact : facts) {
@@ -134,14 +173,34 @@ public class DefaultCube implements Cube, MeteredDataset {
       }
     }
 
+    if (buffered) {
+      forEachFactTable("add metrics to", table -> table.addBuffered(toWrite));
+    } else {
+      forEachFactTable("add metrics to", table -> table.add(toWrite));
+    }
+
+    incrementMetric("cube.cubeFact.add.request.count", 1);
+    incrementMetric("cube.cubeFact.added.count", facts.size());
+    incrementMetric("cube.tsFact.created.count", toWrite.size());
+    incrementMetric("cube.tsFact.created.dimValues.count", dimValuesCount);
+    incrementMetric("cube.tsFact.added.count", toWrite.size() * resolutionToFactTable.size());
+  }
+
+  /**
+   * Performs the given operation on all resolution tables in parallel and waits for all of them to complete.
+   *
+   * @param operation description of the operation for the failure message
+   * @param consumer the operation to perform on each table
+   */
+  private void forEachFactTable(String operation, Consumer<FactTable> consumer) {
     Map<Integer, Future<?>> futures = new HashMap<>();
     for (Map.Entry<Integer, FactTable> table : resolutionToFactTable.entrySet()) {
-      futures.put(table.getKey(), executorService.submit(() -> table.getValue().add(toWrite)));
+      futures.put(table.getKey(), executorService.submit(() -> consumer.accept(table.getValue())));
     }
 
     boolean failed = false;
     Exception failedException = null;
-    StringBuilder failedMessage = new StringBuilder("Failed to add metrics to ");
+    StringBuilder failedMessage = new StringBuilder("Failed to " + operation + " ");
     for (Map.Entry<Integer, Future<?>> future : futures.entrySet()) {
       try {
         Uninterruptibles.getUninterruptibly(future.getValue());
@@ -163,12 +222,6 @@ public class DefaultCube implements Cube, MeteredDataset {
     if (failed) {
       throw new RuntimeException(failedMessage.append(".").toString(), failedException);
     }
-
-    incrementMetric("cube.cubeFact.add.request.count", 1);
-    incrementMetric("cube.cubeFact.added.count", facts.size());
-    incrementMetric("cube.tsFact.created.count", toWrite.size());
-    incrementMetric("cube.tsFact.created.dimValues.count", dimValuesCount);
-    incrementMetric("cube.tsFact.added.count", toWrite.size() * resolutionToFactTable.size());
   }
 
   @Override
@@ -206,7 +259,9 @@ public class DefaultCube implements Cube, MeteredDataset {
       'measureType'='COUNTER'
 
       3) While scanning build a table: dimension values -> time -> value. Use measureType as values aggregate
-         function if needed.
+         function if needed. The time range is split by the row timebase, and each split is scanned in parallel
+         into its own table. Since splits cover disjoint time ranges, merging the tables is just appending the
+         time values of each split in time order.
     */
 
     incrementMetric("cube.query.request.count", 1);
@@ -254,10 +309,10 @@ public class DefaultCube implements Cube, MeteredDataset {
     FactScan scan = new FactScan(query.getStartTs(), query.getEndTs(),
                                  query.getMeasurements().keySet(), dimensionValues);
 
-    // 3) execute scan query
+    // 3) execute scan query, split into disjoint time ranges that are scanned in parallel
     FactTable table = resolutionToFactTable.get(query.getResolution());
-    FactScanner scanner = table.scan(scan);
-    Table<Map<String, String>, String, Map<Long, Long>> resultMap = getTimeSeries(query, scanner);
+    Table<Map<String, String>, String, TimeValueArray> resultMap =
+      getTimeSeries(query, table, table.split(scan, QUERY_THREADS));
 
     incrementMetric("cube.query.request.success.count", 1);
     incrementMetric("cube.query.result.size", resultMap.size());
@@ -376,127 +431,146 @@ public class DefaultCube implements Cube, MeteredDataset {
     return currentBest;
   }
 
-  private Table<Map<String, String>, String, Map<Long, Long>> getTimeSeries(CubeQuery query, FactScanner scanner) {
-    // {dimension values, measure} -> {time -> value}s
-    Table<Map<String, String>, String, Map<Long, Long>> result = HashBasedTable.create();
-
-    int count = 0;
-    while (scanner.hasNext()) {
-      FactScanResult next = scanner.next();
-      incrementMetric("cube.query.scan.records.count", 1);
-
-      boolean skip = false;
-      // using tree map, as we are using it as a key for a map
-      Map<String, String> seriesDimensions = Maps.newTreeMap();
-      for (String dimensionName : query.getGroupByDimensions()) {
-        // todo: use Map<String, String> instead of List<DimensionValue> into a String, String, everywhere
-        for (DimensionValue dimensionValue : next.getDimensionValues()) {
-          if (dimensionName.equals(dimensionValue.getName())) {
-            if (dimensionValue.getValue() == null) {
-              // Currently, we do NOT return null as grouped by value.
-              // Depending on whether dimension is required or not the records with null value in it may or may not be
-              // in aggregation. At this moment, the choosing of the aggregation for query doesn't look at this, so
-              // potentially null may or may not be included in results, depending on the aggregation selected
-              // querying. We don't want to produce inconsistent results varying due to different aggregations selected,
-              // so don't return nulls in any of those cases.
-              skip = true;
-              continue;
-            }
-            seriesDimensions.put(dimensionName, dimensionValue.getValue());
-            break;
+  /**
+   * Runs the given scans in parallel and merges their results. The scans must be ordered by time and cover
+   * disjoint time ranges, which is what {@link FactTable#split(FactScan, int)} returns.
+   *
+   * Each scan counts its own records, and the max number of records to scan is applied while merging the scans in
+   * time order. A query that reaches the limit keeps the records of the earliest scans, so its result doesn't depend
+   * on which scans happen to run faster.
+   */
+  private Table<Map<String, String>, String, TimeValueArray> getTimeSeries(CubeQuery query, FactTable table,
+                                                                           List<FactScan> scans) {
+    List<Future<ScanResult>> futures = new ArrayList<>();
+    for (FactScan scan : scans) {
+      futures.add(queryExecutorService.submit(() -> getTimeSeries(query, table.scan(scan), maxRecordsToScan)));
+    }
+
+    // Merge in time order, so that the merged time values are also in time order
+    Table<Map<String, String>, String, TimeValueArray> result = HashBasedTable.create();
+    long scanned = 0;
+    long skipped = 0;
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        long remaining = maxRecordsToScan - scanned;
+        if (remaining <= 0) {
+          // The limit is reached by the earlier scans, so the later ones are not needed
+          futures.subList(i, futures.size()).forEach(future -> future.cancel(true));
+          break;
+        }
+        ScanResult scanResult = Uninterruptibles.getUninterruptibly(futures.get(i));
+        if (scanResult.scanned > remaining) {
+          // Only the first records of this scan are within the limit. This only happens for a query that reaches the
+          // limit, so rescanning them is simpler than keeping every scanned record until the merge.
+          scanResult = getTimeSeries(query, table.scan(scans.get(i)), (int) remaining);
+        }
+        scanned += scanResult.scanned;
+        skipped += scanResult.skipped;
+        for (Table.Cell<Map<String, String>, String, TimeValueArray> cell : scanResult.timeSeries.cellSet()) {
+          TimeValueArray timeValues = result.get(cell.getRowKey(), cell.getColumnKey());
+          if (timeValues == null) {
+            result.put(cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+          } else {
+            timeValues.addAll(cell.getValue());
           }
         }
       }
+    } catch (ExecutionException e) {
+      futures.forEach(future -> future.cancel(true));
+      throw Throwables.propagate(e.getCause());
+    }
 
-      if (skip) {
-        incrementMetric("cube.query.scan.skipped.count", 1);
-        continue;
-      }
+    incrementMetric("cube.query.scan.records.count", scanned);
+    incrementMetric("cube.query.scan.skipped.count", skipped);
+    return result;
+  }
 
-      for (TimeValue timeValue : next) {
-        Map<Long, Long> timeValues = result.get(seriesDimensions, next.getMeasureName());
-        if (timeValues == null) {
-          result.put(seriesDimensions, next.getMeasureName(), Maps.<Long, Long>newHashMap());
+  private ScanResult getTimeSeries(CubeQuery query, FactScanner scanner, int maxRecords) {
+    // {dimension values, measure} -> {time -> value}s
+    ScanResult result = new ScanResult();
+
+    try {
+      while (result.scanned < maxRecords && scanner.hasNext()) {
+        FactScanResult next = scanner.next();
+        result.scanned++;
+
+        boolean skip = false;
+        // using tree map, as we are using it as a key for a map
+        Map<String, String> seriesDimensions = Maps.newTreeMap();
+        for (String dimensionName : query.getGroupByDimensions()) {
+          // todo: use Map<String, String> instead of List<DimensionValue> into a String, String, everywhere
+          for (DimensionValue dimensionValue : next.getDimensionValues()) {
+            if (dimensionName.equals(dimensionValue.getName())) {
+              if (dimensionValue.getValue() == null) {
+                // Currently, we do NOT return null as grouped by value.
+                // Depending on whether dimension is required or not the records with null value in it may or may not
+                // be in aggregation. At this moment, the choosing of the aggregation for query doesn't look at this,
+                // so potentially null may or may not be included in results, depending on the aggregation selected
+                // querying. We don't want to produce inconsistent results varying due to different aggregations
+                // selected, so don't return nulls in any of those cases.
+                skip = true;
+                continue;
+              }
+              seriesDimensions.put(dimensionName, dimensionValue.getValue());
+              break;
+            }
+          }
         }
 
-        AggregationFunction function = query.getMeasurements().get(next.getMeasureName());
-        if (AggregationFunction.SUM == function) {
-          Long value =  result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value == null ? 0 : value;
-          value += timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.MAX == function) {
-          Long value = result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value != null && value > timeValue.getValue() ? value : timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.MIN == function) {
-          Long value =  result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value != null && value < timeValue.getValue() ? value : timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.LATEST == function) {
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), timeValue.getValue());
-        } else {
-          // should never happen: developer error
-          throw new RuntimeException("Unknown MeasureType: " + function);
+        if (skip) {
+          result.skipped++;
+          continue;
+        }
+
+        for (TimeValue timeValue : next) {
+          TimeValueArray timeValues = result.timeSeries.get(seriesDimensions, next.getMeasureName());
+          if (timeValues == null) {
+            timeValues = new TimeValueArray(query.getMeasurements().get(next.getMeasureName()));
+            result.timeSeries.put(seriesDimensions, next.getMeasureName(), timeValues);
+          }
+          timeValues.add(timeValue.getTimestamp(), timeValue.getValue());
         }
       }
-      if (++count >= MAX_RECORDS_TO_SCAN) {
-        break;
-      }
+    } finally {
+      scanner.close();
     }
     return result;
   }
 
   private Collection<TimeSeries> convertToQueryResult(
-    CubeQuery query, Table<Map<String, String>, String, Map<Long, Long>> resultTable) {
+    CubeQuery query, Table<Map<String, String>, String, TimeValueArray> resultTable) {
+    // this should not happen in production, since the check has been made in the handler
+    if (query.getLimit() <= 0) {
+      throw new IllegalArgumentException("The query limit cannot be less than 0");
+    }
+
     List<TimeSeries> result = new ArrayList<>();
+    AggregationOption aggregationOption = query.getAggregationOption();
     // iterating each groupValue dimensions
-    for (Map.Entry<Map<String, String>, Map<String, Map<Long, Long>>> row : resultTable.rowMap().entrySet()) {
+    for (Map.Entry<Map<String, String>, Map<String, TimeValueArray>> row : resultTable.rowMap().entrySet()) {
       // iterating each measure
-      for (Map.Entry<String, Map<Long, Long>> measureEntry : row.getValue().entrySet()) {
+      for (Map.Entry<String, TimeValueArray> measureEntry : row.getValue().entrySet()) {
         // generating time series for a grouping and a measure
-        int count = 0;
-        List<TimeValue> timeValues = new ArrayList<>();
-        for (Map.Entry<Long, Long> timeValue : measureEntry.getValue().entrySet()) {
-          timeValues.add(new TimeValue(timeValue.getKey(), timeValue.getValue()));
-        }
-        Collections.sort(timeValues);
-        List<TimeValue> resultTimeValues = new ArrayList<>();
+        TimeValueArray timeValues = measureEntry.getValue();
+        List<TimeValue> resultTimeValues;
 
-        AggregationOption aggregationOption = query.getAggregationOption();
-        // this should not happen in production, since the check has been made in the handler
-        if (query.getLimit() <= 0) {
-          throw new IllegalArgumentException("The query limit cannot be less than 0");
-        }
         // only partition the data points if the data points are larger than the required limit and only do it for
         // option LATEST and SUM.
         if (query.getLimit() < timeValues.size() && PARTITION_AGG_OPTIONS.contains(aggregationOption)) {
-          int partitionSize = timeValues.size() / query.getLimit();
-          int remainder = timeValues.size() % query.getLimit();
-          // ignore the first reminderth data points
-          for (List<TimeValue> interval : Iterables.partition(timeValues.subList(remainder,
-                                                                                 timeValues.size()), partitionSize)) {
-            // for LATEST we only need to get the last data point in the interval
-            if (aggregationOption.equals(AggregationOption.LATEST)) {
-              resultTimeValues.add(interval.get(interval.size() - 1));
-              continue;
-            }
-            // for SUM we want to sum up all the values in the interval
-            if (aggregationOption.equals(AggregationOption.SUM)) {
-              long sum = interval.stream().mapToLong(TimeValue::getValue).sum();
-              resultTimeValues.add(new TimeValue(interval.get(interval.size() - 1).getTimestamp(), sum));
-            }
-          }
+          AggregationFunction function = aggregationOption == AggregationOption.SUM ? AggregationFunction.SUM
+                                                                                     : AggregationFunction.LATEST;
+          resultTimeValues = timeValues.partition(query.getLimit(), function).asList(query.getLimit());
+        } else if (query.getInterpolator() == null) {
+          // without interpolator, the time values are returned as is
+          resultTimeValues = timeValues.asList(query.getLimit());
         } else {
           // TODO: CDAP-15565 remove the interpolation logic since it is never maintained and adds huge complexity
-          PeekingIterator<TimeValue> timeValueItor = Iterators.peekingIterator(
-            new TimeSeriesInterpolator(timeValues, query.getInterpolator(), query.getResolution()).iterator());
-          while (timeValueItor.hasNext()) {
-            TimeValue timeValue = timeValueItor.next();
-            resultTimeValues.add(new TimeValue(timeValue.getTimestamp(), timeValue.getValue()));
-            if (++count >= query.getLimit()) {
-              break;
-            }
+          resultTimeValues = new ArrayList<>();
+          Iterator<TimeValue> timeValueItor = new TimeSeriesInterpolator(timeValues.asList(Integer.MAX_VALUE),
+                                                                         query.getInterpolator(),
+                                                                         query.getResolution()).iterator();
+          while (timeValueItor.hasNext() && resultTimeValues.size() < query.getLimit()) {
+            resultTimeValues.add(timeValueItor.next());
           }
         }
         result.add(new TimeSeries(measureEntry.getKey(), row.getKey(), resultTimeValues));
@@ -518,9 +592,19 @@ public class DefaultCube implements Cube, MeteredDataset {
       }
     } finally {
       executorService.shutdown();
+      queryExecutorService.shutdown();
     }
   }
 
+  /**
+   * Result of scanning a single time range of a query.
+   */
+  private static final class ScanResult {
+    private final Table<Map<String, String>, String, TimeValueArray> timeSeries = HashBasedTable.create();
+    private long scanned;
+    private long skipped;
+  }
+
   private static final class DimensionValueComparator implements Comparator<DimensionValue> {
     @Override
     public int compare(DimensionValue t1, DimensionValue t2) {
@@ -0,0 +1,235 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.dataset2.lib.cube;
+
+import io.cdap.cdap.api.dataset.lib.cube.AggregationFunction;
+import io.cdap.cdap.api.dataset.lib.cube.TimeValue;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Time values of a time series kept in primitive arrays of timestamps and values, which avoids the object overhead
+ * of boxed timestamps and values while aggregating query results.
+ *
+ * Values can be added in any order. Values of the same timestamp are combined with the {@link AggregationFunction}
+ * given to the constructor, in the order that they were added.
+ */
+@NotThreadSafe
+final class TimeValueArray {
+
+  private final AggregationFunction function;
+  private long[] timestamps;
+  private long[] values;
+  private int size;
+  private boolean sorted;
+
+  TimeValueArray(AggregationFunction function) {
+    this(function, 16);
+  }
+
+  private TimeValueArray(AggregationFunction function, int capacity) {
+    this.function = function;
+    this.timestamps = new long[capacity];
+    this.values = new long[capacity];
+    this.sorted = true;
+  }
+
+  /**
+   * Adds a value at the given timestamp.
+   */
+  void add(long timestamp, long value) {
+    if (size > 0) {
+      long last = timestamps[size - 1];
+      if (timestamp == last) {
+        values[size - 1] = combine(values[size - 1], value);
+        return;
+      }
+      if (timestamp < last) {
+        sorted = false;
+      }
+    }
+    ensureCapacity(size + 1);
+    timestamps[size] = timestamp;
+    values[size] = value;
+    size++;
+  }
+
+  /**
+   * Adds all values from the given array.
+   */
+  void addAll(TimeValueArray other) {
+    other.compact();
+    ensureCapacity(size + other.size);
+    for (int i = 0; i < other.size; i++) {
+      add(other.timestamps[i], other.values[i]);
+    }
+  }
+
+  /**
+   * Returns the number of distinct timestamps.
+   */
+  int size() {
+    compact();
+    return size;
+  }
+
+  /**
+   * Returns a new array of at most the given number of values, one for each consecutive group of values, such
+   * that all groups have the same size. The first values that don't fill a group are dropped. The value of a
+   * group is either the latest value in the group or the sum of all values, depending on the given function,
+   * and its timestamp is the timestamp of the latest value.
+   */
+  TimeValueArray partition(int limit, AggregationFunction groupFunction) {
+    compact();
+    int partitionSize = size / limit;
+    int remainder = size % limit;
+    TimeValueArray result = new TimeValueArray(function, Math.min(size, limit));
+    for (int start = remainder; start < size; start += partitionSize) {
+      int end = start + partitionSize - 1;
+      long value = values[end];
+      if (groupFunction == AggregationFunction.SUM) {
+        value = 0L;
+        for (int i = start; i <= end; i++) {
+          value += values[i];
+        }
+      }
+      result.add(timestamps[end], value);
+    }
+    return result;
+  }
+
+  /**
+   * Returns a read-only {@link List} view of the first {@code limit} values, sorted by timestamp.
+   * {@link TimeValue} objects are only created when the list elements are accessed.
+   */
+  List<TimeValue> asList(int limit) {
+    compact();
+    return new TimeValueList(Math.min(size, limit));
+  }
+
+  /**
+   * Sorts the values by timestamp and combines values of the same timestamp if values were not added in order.
+   */
+  private void compact() {
+    if (sorted) {
+      return;
+    }
+    sort();
+
+    int last = 0;
+    for (int i = 1; i < size; i++) {
+      if (timestamps[i] == timestamps[last]) {
+        values[last] = combine(values[last], values[i]);
+      } else {
+        last++;
+        timestamps[last] = timestamps[i];
+        values[last] = values[i];
+      }
+    }
+    size = Math.min(size, last + 1);
+    sorted = true;
+  }
+
+  /**
+   * Stable merge sort by timestamp, such that values of the same timestamp stay in the order they were added.
+   */
+  private void sort() {
+    long[] ts = timestamps;
+    long[] vs = values;
+    long[] tmpTs = new long[ts.length];
+    long[] tmpVs = new long[vs.length];
+
+    for (int width = 1; width < size; width <<= 1) {
+      for (int low = 0; low < size; low += width << 1) {
+        int mid = Math.min(low + width, size);
+        int high = Math.min(low + (width << 1), size);
+        int i = low;
+        int j = mid;
+        for (int k = low; k < high; k++) {
+          // Take from the left run on ties to keep the sort stable
+          if (j >= high || (i < mid && ts[i] <= ts[j])) {
+            tmpTs[k] = ts[i];
+            tmpVs[k] = vs[i++];
+          } else {
+            tmpTs[k] = ts[j];
+            tmpVs[k] = vs[j++];
+          }
+        }
+      }
+      long[] swap = ts;
+      ts = tmpTs;
+      tmpTs = swap;
+      swap = vs;
+      vs = tmpVs;
+      tmpVs = swap;
+    }
+
+    timestamps = ts;
+    values = vs;
+  }
+
+  private long combine(long current, long value) {
+    if (AggregationFunction.SUM == function) {
+      return current + value;
+    } else if (AggregationFunction.MAX == function) {
+      return Math.max(current, value);
+    } else if (AggregationFunction.MIN == function) {
+      return Math.min(current, value);
+    } else if (AggregationFunction.LATEST == function) {
+      return value;
+    }
+    // should never happen: developer error
+    throw new RuntimeException("Unknown MeasureType: " + function);
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > timestamps.length) {
+      int newCapacity = Math.max(capacity, timestamps.length * 2);
+      timestamps = Arrays.copyOf(timestamps, newCapacity);
+      values = Arrays.copyOf(values, newCapacity);
+    }
+  }
+
+  /**
+   * A read-only view of the first values.
+   */
+  private final class TimeValueList extends AbstractList<TimeValue> implements RandomAccess {
+
+    private final int size;
+
+    TimeValueList(int size) {
+      this.size = size;
+    }
+
+    @Override
+    public TimeValue get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      return new TimeValue(timestamps[index], values[index]);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
@@ -57,6 +57,7 @@ import io.cdap.cdap.api.dataset.lib.PartitionMetadata;
 import io.cdap.cdap.api.dataset.lib.PartitionOutput;
 import io.cdap.cdap.api.dataset.lib.PartitionedFileSet;
 import io.cdap.cdap.api.dataset.lib.PartitionedFileSetArguments;
+import io.cdap.cdap.api.dataset.lib.PartitionedFileSetProperties;
 import io.cdap.cdap.api.dataset.lib.Partitioning;
 import io.cdap.cdap.api.dataset.lib.Partitioning.FieldType;
 import io.cdap.cdap.api.dataset.lib.partitioned.PartitionKeyCodec;
@@ -129,6 +130,7 @@ public class PartitionedFileSetDataset extends AbstractDataset
   private static final byte[] LAST_MODIFICATION_TIME_COL = { 'm' };
   private static final byte[] RELATIVE_PATH = { 'p' };
   private static final byte[] METADATA_PREFIX = { 'm', '.' };
+  private static final byte[] FIELD_PREFIX = { 'f', '.' };
 
   protected final FileSet files;
   protected final DatasetSpecification spec;
@@ -137,6 +139,8 @@ public class PartitionedFileSetDataset extends AbstractDataset
   protected final Map<String, String> runtimeArguments;
   protected final Partitioning partitioning;
   private final IndexedTable partitionsTable;
+  private final boolean partitionKeyIndex;
+  private final boolean partitionKeyIndexComplete;
   private final Provider<ExploreFacade> exploreFacadeProvider;
 
   private final DatasetId datasetInstanceId;
@@ -164,6 +168,9 @@ public class PartitionedFileSetDataset extends AbstractDataset
     this.exploreEnabled = FileSetProperties.isExploreEnabled(spec.getProperties());
     this.runtimeArguments = arguments;
     this.partitioning = partitioning;
+    this.partitionKeyIndex = Boolean.parseBoolean(spec.getProperty(PartitionedFileSetProperties.PARTITION_KEY_INDEX));
+    this.partitionKeyIndexComplete = partitionKeyIndex
+      && Boolean.parseBoolean(spec.getProperty(PartitionedFileSetProperties.PARTITION_KEY_INDEX_COMPLETE));
     this.exploreFacadeProvider = exploreFacadeProvider;
     this.datasetInstanceId = new DatasetId(datasetContext.getNamespaceId(), name);
   }
@@ -356,6 +363,9 @@ public class PartitionedFileSetDataset extends AbstractDataset
     if (!appending) {
       put.add(RELATIVE_PATH, Bytes.toBytes(path));
       put.add(CREATION_TIME_COL, nowInMillis);
+      if (partitionKeyIndex) {
+        addPartitionKeyToPut(key, put);
+      }
     }
     put.add(LAST_MODIFICATION_TIME_COL, nowInMillis);
 
@@ -372,6 +382,17 @@ public class PartitionedFileSetDataset extends AbstractDataset
     }
   }
 
+  /**
+   * Adds the values of the indexed partitioning fields of a partition key to a put, so that the partitions
+   * table indexes the partition by these values.
+   */
+  private void addPartitionKeyToPut(PartitionKey key, Put put) {
+    for (String fieldName : getIndexedFields(partitioning)) {
+      FieldType fieldType = partitioning.getFieldType(fieldName);
+      put.add(fieldColumn(fieldName), FieldTypes.toBytes(key.getField(fieldName), fieldType));
+    }
+  }
+
   @ReadWrite
   @Override
   public PartitionConsumerResult consumePartitions(PartitionConsumerState partitionConsumerState) {
@@ -757,6 +778,11 @@ public class PartitionedFileSetDataset extends AbstractDataset
   // if decodeMetadata is false, null is passed as the PartitionMetadata to the PartitionConsumer,
   // for efficiency reasons, since the metadata is not always needed
   protected void getPartitions(@Nullable PartitionFilter filter, PartitionConsumer consumer, boolean decodeMetadata) {
+    Scanner indexScanner = filter == null || !partitionKeyIndexComplete ? null : scanPartitionKeyIndex(filter);
+    if (indexScanner != null) {
+      getPartitions(filter, consumer, decodeMetadata, indexScanner, Long.MAX_VALUE);
+      return;
+    }
     byte[] startKey = generateStartKey(filter);
     byte[] endKey = generateStopKey(filter);
     getPartitions(filter, consumer, decodeMetadata, startKey, endKey, Long.MAX_VALUE);
@@ -764,8 +790,17 @@ public class PartitionedFileSetDataset extends AbstractDataset
 
   private void getPartitions(@Nullable PartitionFilter filter, PartitionConsumer consumer, boolean decodeMetadata,
                              @Nullable byte[] startKey, @Nullable byte[] endKey, long limit) {
+    getPartitions(filter, consumer, decodeMetadata, partitionsTable.scan(startKey, endKey), limit);
+  }
+
+  /**
+   * Passes the partitions from the rows of a scanner on the partitions table that match the filter to the consumer,
+   * and closes the scanner.
+   */
+  private void getPartitions(@Nullable PartitionFilter filter, PartitionConsumer consumer, boolean decodeMetadata,
+                             Scanner partitionsScanner, long limit) {
     long count = 0L;
-    try (Scanner scanner = partitionsTable.scan(startKey, endKey)) {
+    try (Scanner scanner = partitionsScanner) {
       while (count < limit) {
         Row row = scanner.next();
         if (row == null) {
@@ -794,6 +829,65 @@ public class PartitionedFileSetDataset extends AbstractDataset
     }
   }
 
+  /**
+   * Returns a scanner that uses the partition key index to find the partitions that can match a filter, or
+   * {@code null} if the row key range of the filter is expected to be at least as selective. The returned rows
+   * must still be matched against the filter. An equality condition on the first partitioning field is always
+   * used through the row key range, followed by an equality condition on an indexed field, any condition on the
+   * first field, and a range condition on an indexed field.
+   */
+  @Nullable
+  private Scanner scanPartitionKeyIndex(PartitionFilter filter) {
+    Iterator<Map.Entry<String, FieldType>> fields = partitioning.getFields().entrySet().iterator();
+    PartitionFilter.Condition<? extends Comparable> firstCondition = filter.getCondition(fields.next().getKey());
+    if (firstCondition != null && firstCondition.isSingleValue()) {
+      return null;
+    }
+    Map.Entry<String, FieldType> rangeField = null;
+    while (fields.hasNext()) {
+      Map.Entry<String, FieldType> field = fields.next();
+      PartitionFilter.Condition<? extends Comparable> condition = filter.getCondition(field.getKey());
+      if (condition == null) {
+        continue;
+      }
+      if (condition.isSingleValue()) {
+        byte[] value = toIndexValue(field.getKey(), field.getValue(), condition.getValue(), "Value");
+        return partitionsTable.readByIndex(fieldColumn(field.getKey()), value);
+      }
+      if (rangeField == null) {
+        rangeField = field;
+      }
+    }
+    if (firstCondition != null || rangeField == null) {
+      return null;
+    }
+    String fieldName = rangeField.getKey();
+    PartitionFilter.Condition<? extends Comparable> condition = filter.getCondition(fieldName);
+    return partitionsTable.scanByIndex(
+      fieldColumn(fieldName),
+      toIndexValue(fieldName, rangeField.getValue(), condition.getLower(), "Lower bound"),
+      toIndexValue(fieldName, rangeField.getValue(), condition.getUpper(), "Upper bound"));
+  }
+
+  /**
+   * Validates a value of a partition filter condition and converts it to the bytes stored in the index.
+   */
+  @Nullable
+  private static byte[] toIndexValue(String fieldName, FieldType fieldType, @Nullable Comparable value,
+                                     String description) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      fieldType.validate(value);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(String.format(
+        "Invalid partition filter: %s for field '%s' is incompatible with the partitioning: %s",
+        description, fieldName, e.getMessage()));
+    }
+    return FieldTypes.toBytes(value, fieldType);
+  }
+
   private PartitionMetadata metadataFromRow(Row row) {
     Map<String, String> metadata = new HashMap<>();
     for (Map.Entry<byte[], byte[]> entry : row.getColumns().entrySet()) {
@@ -1082,64 +1176,145 @@ public class PartitionedFileSetDataset extends AbstractDataset
     final AtomicLong errorCount = new AtomicLong(0L);
     final AtomicLong successCount = new AtomicLong(0L);
     do {
-      try {
-        transactional.execute(new TxRunnable() {
-          @Override
-          public void run(io.cdap.cdap.api.data.DatasetContext context) throws Exception {
-            final PartitionedFileSetDataset pfs = context.getDataset(datasetName);
-            // compute start row for the scan, reset remembered start key to null
-            byte[] startRow = startKey.get() == null ? null : generateRowKey(startKey.get(), pfs.getPartitioning());
-            startKey.set(null);
-            PartitionConsumer consumer = new PartitionConsumer() {
-              int count = 0;
-
-              @Override
-              public void consume(PartitionKey key, String path, @Nullable PartitionMetadata metadata) {
-                if (count >= partitionsPerTx) {
-                  // reached the limit: remember this key as the start for the next round
-                  startKey.set(key);
-                  return;
+      executeBatch(transactional, new TxRunnable() {
+        @Override
+        public void run(io.cdap.cdap.api.data.DatasetContext context) throws Exception {
+          final PartitionedFileSetDataset pfs = context.getDataset(datasetName);
+          // compute start row for the scan, reset remembered start key to null
+          byte[] startRow = startKey.get() == null ? null : generateRowKey(startKey.get(), pfs.getPartitioning());
+          startKey.set(null);
+          PartitionConsumer consumer = new PartitionConsumer() {
+            int count = 0;
+
+            @Override
+            public void consume(PartitionKey key, String path, @Nullable PartitionMetadata metadata) {
+              if (count >= partitionsPerTx) {
+                // reached the limit: remember this key as the start for the next round
+                startKey.set(key);
+                return;
+              }
+              try {
+                pfs.addPartitionToExplore(key, path);
+                successCount.incrementAndGet();
+                if (verbose) {
+                  LOG.info("Added partition {} with path {}", key, path);
                 }
-                try {
-                  pfs.addPartitionToExplore(key, path);
-                  successCount.incrementAndGet();
-                  if (verbose) {
-                    LOG.info("Added partition {} with path {}", key, path);
-                  }
-                } catch (DataSetException e) {
-                  errorCount.incrementAndGet();
-                  if (verbose) {
-                    LOG.warn(e.getMessage(), e);
-                  }
+              } catch (DataSetException e) {
+                errorCount.incrementAndGet();
+                if (verbose) {
+                  LOG.warn(e.getMessage(), e);
                 }
-                count++;
               }
-            };
-            pfs.getPartitions(null, consumer, false, startRow, null, partitionsPerTx + 1);
-          }
-        });
-      } catch (TransactionConflictException e) {
-        throw new DataSetException("Transaction conflict while reading partitions. This should never happen. " +
-                                     "Make sure that no other programs are using this dataset at the same time.");
-      } catch (TransactionFailureException e) {
-        throw new DataSetException("Transaction failure: " + e.getMessage(), e.getCause());
-      } catch (RuntimeException e) {
-        // this looks like duplication but is needed in case this is run from a worker: see CDAP-6837
-        if (e.getCause() instanceof TransactionConflictException) {
-          throw new DataSetException("Transaction conflict while reading partitions. This should never happen. " +
-                                       "Make sure that no other programs are using this dataset at the same time.");
-        } else if (e.getCause() instanceof TransactionFailureException) {
-          throw new DataSetException("Transaction failure: " + e.getMessage(), e.getCause().getCause());
-        } else {
-          throw e;
+              count++;
+            }
+          };
+          pfs.getPartitions(null, consumer, false, startRow, null, partitionsPerTx + 1);
         }
-      }
+      });
     } while (startKey.get() != null); // if it is null, then we consumed less than the limit in this round -> done
     LOG.info("Added {} partitions, failed to add {} partitions.", successCount.get(), errorCount.get());
   }
 
+  /**
+   * This method indexes the existing partitions of a partitioned file set by their partitioning fields, after the
+   * partition key index was enabled with {@link PartitionedFileSetProperties#PARTITION_KEY_INDEX}. It scans the
+   * partition table and will start multiple transactions, processing a batch of partitions in each transaction.
+   * Programs that add partitions to the dataset must not run while the index is enabled and until this completes.
+   * The index is used for partition filters only after
+   * {@link PartitionedFileSetProperties#PARTITION_KEY_INDEX_COMPLETE} is set in the dataset properties.
+   *
+   * @param transactional the Transactional for executing transactions
+   * @param datasetName the name of the dataset to reindex
+   * @param partitionsPerTx how many partitions to process per transaction
+   * @throws DataSetException if the partition key index is not enabled for the dataset
+   */
+  @Beta
+  @SuppressWarnings("unused")
+  public static void reindexPartitions(Transactional transactional, final String datasetName,
+                                       final int partitionsPerTx) {
+    final AtomicReference<PartitionKey> startKey = new AtomicReference<>();
+    final AtomicLong count = new AtomicLong(0L);
+    do {
+      executeBatch(transactional, new TxRunnable() {
+        @Override
+        public void run(io.cdap.cdap.api.data.DatasetContext context) throws Exception {
+          PartitionedFileSetDataset pfs = context.getDataset(datasetName);
+          if (!pfs.partitionKeyIndex) {
+            throw new DataSetException(String.format("Partition key index is not enabled for dataset '%s'",
+                                                     datasetName));
+          }
+          // compute start row for the scan, reset remembered start key to null
+          byte[] startRow = startKey.get() == null ? null : generateRowKey(startKey.get(), pfs.getPartitioning());
+          startKey.set(null);
+          final List<PartitionKey> keys = new ArrayList<>();
+          PartitionConsumer consumer = new PartitionConsumer() {
+            @Override
+            public void consume(PartitionKey key, String path, @Nullable PartitionMetadata metadata) {
+              if (keys.size() >= partitionsPerTx) {
+                // reached the limit: remember this key as the start for the next round
+                startKey.set(key);
+                return;
+              }
+              keys.add(key);
+            }
+          };
+          pfs.getPartitions(null, consumer, false, startRow, null, partitionsPerTx + 1);
+          // update the rows after the scan is done
+          for (PartitionKey key : keys) {
+            Put put = new Put(generateRowKey(key, pfs.getPartitioning()));
+            pfs.addPartitionKeyToPut(key, put);
+            pfs.partitionsTable.put(put);
+          }
+          count.addAndGet(keys.size());
+        }
+      });
+    } while (startKey.get() != null); // if it is null, then we consumed less than the limit in this round -> done
+    LOG.info("Indexed {} partitions of dataset '{}'.", count.get(), datasetName);
+  }
+
   //------ private helpers below here --------------------------------------------------------------
 
+  /**
+   * Executes a transaction that processes a batch of partitions, for {@link #fixPartitions} and
+   * {@link #reindexPartitions}.
+   */
+  private static void executeBatch(Transactional transactional, TxRunnable runnable) {
+    try {
+      transactional.execute(runnable);
+    } catch (TransactionConflictException e) {
+      throw new DataSetException("Transaction conflict while processing partitions. This should never happen. " +
+                                   "Make sure that no other programs are using this dataset at the same time.");
+    } catch (TransactionFailureException e) {
+      throw new DataSetException("Transaction failure: " + e.getMessage(), e.getCause());
+    } catch (RuntimeException e) {
+      // this looks like duplication but is needed in case this is run from a worker: see CDAP-6837
+      if (e.getCause() instanceof TransactionConflictException) {
+        throw new DataSetException("Transaction conflict while processing partitions. This should never happen. " +
+                                     "Make sure that no other programs are using this dataset at the same time.");
+      } else if (e.getCause() instanceof TransactionFailureException) {
+        throw new DataSetException("Transaction failure: " + e.getMessage(), e.getCause().getCause());
+      } else {
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Returns the partitioning fields that are indexed if the partition key index is enabled. These are all fields
+   * except the first, which is the prefix of the row key.
+   */
+  static List<String> getIndexedFields(Partitioning partitioning) {
+    List<String> fieldNames = new ArrayList<>(partitioning.getFields().keySet());
+    return fieldNames.subList(1, fieldNames.size());
+  }
+
+  /**
+   * Returns the column of the partitions table that holds the value of a partitioning field.
+   */
+  static byte[] fieldColumn(String fieldName) {
+    return Bytes.add(FIELD_PREFIX, Bytes.toBytes(fieldName));
+  }
+
   /**
    * Logs a warning if the partition filter contains a field that is not part of the partitioning.
    */
@@ -89,14 +89,21 @@ public class PartitionedFileSetDefinition
   public DatasetSpecification configure(String instanceName, DatasetProperties properties) {
     Partitioning partitioning = PartitionedFileSetProperties.getPartitioning(properties.getProperties());
     Preconditions.checkArgument(partitioning != null, "Properties do not contain partitioning");
+
+    // the partition key index is enabled unless it is explicitly disabled. Because a new dataset has no
+    // partitions yet, the index is complete from the start.
+    String partitionKeyIndexStr = properties.getProperties().get(PartitionedFileSetProperties.PARTITION_KEY_INDEX);
+    boolean partitionKeyIndex = partitionKeyIndexStr == null || Boolean.parseBoolean(partitionKeyIndexStr);
+    Map<String, String> pfsProperties = new HashMap<>(properties.getProperties());
+    pfsProperties.put(PartitionedFileSetProperties.PARTITION_KEY_INDEX, Boolean.toString(partitionKeyIndex));
+    pfsProperties.put(PartitionedFileSetProperties.PARTITION_KEY_INDEX_COMPLETE, Boolean.toString(partitionKeyIndex));
+
     // define the columns for indexing on the partitionsTable
     DatasetProperties indexedTableProperties = DatasetProperties.builder()
       .addAll(properties.getProperties())
-      .add(IndexedTable.INDEX_COLUMNS_CONF_KEY, INDEXED_COLS)
+      .add(IndexedTable.INDEX_COLUMNS_CONF_KEY, getIndexedColumns(partitioning, partitionKeyIndex))
       .build();
 
-    Map<String, String> pfsProperties = new HashMap<>(properties.getProperties());
-
     // this property allows us to distinguish between datasets that were created
     // before base path was explicitly set and those created after.
     // this is important to know when a pfs is updated, as we want to keep the old base path behavior for
@@ -137,11 +144,43 @@ public class PartitionedFileSetDefinition
 
     Map<String, String> pfsProperties = new HashMap<>(properties.getProperties());
 
+    // datasets created before the partition key index existed do not have the property, and are not indexed.
+    // once enabled, the index cannot be disabled, because the partitions table cannot stop indexing columns.
+    boolean oldPartitionKeyIndex =
+      Boolean.parseBoolean(currentSpec.getProperty(PartitionedFileSetProperties.PARTITION_KEY_INDEX));
+    String partitionKeyIndexStr = properties.getProperties().get(PartitionedFileSetProperties.PARTITION_KEY_INDEX);
+    boolean partitionKeyIndex =
+      partitionKeyIndexStr == null ? oldPartitionKeyIndex : Boolean.parseBoolean(partitionKeyIndexStr);
+    if (oldPartitionKeyIndex && !partitionKeyIndex) {
+      throw new IncompatibleUpdateException(String.format("Property '%s' cannot be changed from true to false",
+                                                          PartitionedFileSetProperties.PARTITION_KEY_INDEX));
+    }
+    // if the index is enabled by this update, the existing partitions are not indexed until they are reindexed
+    String completeStr = properties.getProperties().get(PartitionedFileSetProperties.PARTITION_KEY_INDEX_COMPLETE);
+    if (completeStr == null) {
+      completeStr = currentSpec.getProperty(PartitionedFileSetProperties.PARTITION_KEY_INDEX_COMPLETE);
+    }
+    boolean partitionKeyIndexComplete = oldPartitionKeyIndex && Boolean.parseBoolean(completeStr);
+    pfsProperties.put(PartitionedFileSetProperties.PARTITION_KEY_INDEX, Boolean.toString(partitionKeyIndex));
+    pfsProperties.put(PartitionedFileSetProperties.PARTITION_KEY_INDEX_COMPLETE,
+                      Boolean.toString(partitionKeyIndexComplete));
+
     // define the columns for indexing on the partitionsTable
     DatasetProperties indexedTableProperties = DatasetProperties.builder()
       .addAll(properties.getProperties())
-      .add(IndexedTable.INDEX_COLUMNS_CONF_KEY, INDEXED_COLS)
+      .add(IndexedTable.INDEX_COLUMNS_CONF_KEY, getIndexedColumns(newPartitioning, oldPartitionKeyIndex))
       .build();
+    DatasetSpecification indexedTableSpec =
+      AbstractDatasetDefinition.reconfigure(indexedTableDef, PARTITION_TABLE_NAME, indexedTableProperties,
+                                            currentSpec.getSpecification(PARTITION_TABLE_NAME));
+    if (partitionKeyIndex && !oldPartitionKeyIndex) {
+      // the indexed table does not allow changing its index columns, because it cannot index the existing rows.
+      // therefore validate the update with the existing columns, and then configure it with the new columns.
+      indexedTableSpec = indexedTableDef.configure(PARTITION_TABLE_NAME, DatasetProperties.builder()
+        .addAll(indexedTableProperties.getProperties())
+        .add(IndexedTable.INDEX_COLUMNS_CONF_KEY, getIndexedColumns(newPartitioning, true))
+        .build());
+    }
 
     // only set the default base path property if the default was set the last time it was configured,
     // and no base path is in the current properties.
@@ -159,11 +198,25 @@ public class PartitionedFileSetDefinition
       .properties(pfsProperties)
       .datasets(AbstractDatasetDefinition.reconfigure(filesetDef, FILESET_NAME, newFileProperties.build(),
                                                       currentFileSpec),
-                AbstractDatasetDefinition.reconfigure(indexedTableDef, PARTITION_TABLE_NAME, indexedTableProperties,
-                                                      currentSpec.getSpecification(PARTITION_TABLE_NAME)))
+                indexedTableSpec)
       .build();
   }
 
+  /**
+   * Returns the columns of the partitions table to index: the write pointer and creation time columns and, if the
+   * partition key index is enabled, the column of each partitioning field other than the first. The first field
+   * does not need an index, because it is the prefix of the row key.
+   */
+  private static String getIndexedColumns(Partitioning partitioning, boolean partitionKeyIndex) {
+    StringBuilder columns = new StringBuilder(INDEXED_COLS);
+    if (partitionKeyIndex) {
+      for (String fieldName : PartitionedFileSetDataset.getIndexedFields(partitioning)) {
+        columns.append(',').append(Bytes.toString(PartitionedFileSetDataset.fieldColumn(fieldName)));
+      }
+    }
+    return columns.toString();
+  }
+
   @Override
   public DatasetAdmin getAdmin(DatasetContext datasetContext, DatasetSpecification spec,
                                ClassLoader classLoader) throws IOException {
@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.dataset2.lib.table.leveldb;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.messaging.store.leveldb.RocksDBStore;
+
+/**
+ * A {@link RocksDBStore.KeyCodec} for {@link KeyValue} keys, which encodes a key such that the bytewise order of
+ * encoded keys is the same as the order of {@link KeyValue#KEY_COMPARATOR}. The encoded key is:
+ *
+ * <pre>
+ *   row | marker | family | qualifier | ~timestamp | ~type
+ * </pre>
+ *
+ * The row, family and qualifier are escaped by replacing {@code 0x00} with {@code 0x00 0xFF} and terminated with
+ * {@code 0x00 0x01}, so that a shorter value sorts before a longer value with the same prefix.
+ * The marker is {@code 0x02} for the key with no column and the minimum type, which sorts after all other keys of
+ * the same row, and {@code 0x01} otherwise. The timestamp and type are inverted to sort in descending order.
+ */
+final class KeyValueKeyCodec implements RocksDBStore.KeyCodec {
+
+  static final KeyValueKeyCodec INSTANCE = new KeyValueKeyCodec();
+
+  private static final byte ESCAPE = 0x00;
+  private static final byte ESCAPED_ZERO = (byte) 0xFF;
+  private static final byte TERMINATOR = 0x01;
+  private static final byte MARKER = 0x01;
+  private static final byte LAST_IN_ROW_MARKER = 0x02;
+
+  private KeyValueKeyCodec() {
+  }
+
+  @Override
+  public byte[] encode(byte[] key) {
+    int rowLength = Bytes.toShort(key, 0);
+    int rowOffset = KeyValue.ROW_LENGTH_SIZE;
+    int familyLength = key[rowOffset + rowLength];
+    int familyOffset = rowOffset + rowLength + KeyValue.FAMILY_LENGTH_SIZE;
+    int qualifierOffset = familyOffset + familyLength;
+    int timestampOffset = key.length - KeyValue.TIMESTAMP_TYPE_SIZE;
+    int qualifierLength = timestampOffset - qualifierOffset;
+    byte type = key[key.length - 1];
+
+    byte[] encoded = new byte[getEscapedLength(key, rowOffset, rowLength) + 1
+      + getEscapedLength(key, familyOffset, familyLength)
+      + getEscapedLength(key, qualifierOffset, qualifierLength) + KeyValue.TIMESTAMP_TYPE_SIZE];
+    int pos = escape(key, rowOffset, rowLength, encoded, 0);
+    encoded[pos++] = familyLength + qualifierLength == 0 && type == KeyValue.Type.Minimum.getCode()
+      ? LAST_IN_ROW_MARKER : MARKER;
+    pos = escape(key, familyOffset, familyLength, encoded, pos);
+    pos = escape(key, qualifierOffset, qualifierLength, encoded, pos);
+    Bytes.putLong(encoded, pos, ~(Bytes.toLong(key, timestampOffset) ^ Long.MIN_VALUE));
+    encoded[pos + KeyValue.TIMESTAMP_SIZE] = (byte) ~type;
+    return encoded;
+  }
+
+  @Override
+  public byte[] decode(byte[] encoded) {
+    int rowEnd = findTerminator(encoded, 0);
+    int familyOffset = rowEnd + 3;
+    int familyEnd = findTerminator(encoded, familyOffset);
+    int qualifierOffset = familyEnd + 2;
+    int qualifierEnd = findTerminator(encoded, qualifierOffset);
+    int timestampOffset = qualifierEnd + 2;
+
+    int rowLength = getUnescapedLength(encoded, 0, rowEnd);
+    int familyLength = getUnescapedLength(encoded, familyOffset, familyEnd);
+    int qualifierLength = getUnescapedLength(encoded, qualifierOffset, qualifierEnd);
+
+    byte[] key = new byte[KeyValue.KEY_INFRASTRUCTURE_SIZE + rowLength + familyLength + qualifierLength];
+    int pos = Bytes.putShort(key, 0, (short) rowLength);
+    pos = unescape(encoded, 0, rowEnd, key, pos);
+    key[pos++] = (byte) familyLength;
+    pos = unescape(encoded, familyOffset, familyEnd, key, pos);
+    pos = unescape(encoded, qualifierOffset, qualifierEnd, key, pos);
+    pos = Bytes.putLong(key, pos, ~Bytes.toLong(encoded, timestampOffset) ^ Long.MIN_VALUE);
+    key[pos] = (byte) ~encoded[timestampOffset + KeyValue.TIMESTAMP_SIZE];
+    return key;
+  }
+
+  /**
+   * Returns the length of the given bytes after escaping, including the terminator.
+   */
+  private static int getEscapedLength(byte[] bytes, int offset, int length) {
+    int escapedLength = length + 2;
+    for (int i = offset; i < offset + length; i++) {
+      if (bytes[i] == ESCAPE) {
+        escapedLength++;
+      }
+    }
+    return escapedLength;
+  }
+
+  /**
+   * Writes the escaped bytes followed by the terminator, and returns the position after the terminator.
+   */
+  private static int escape(byte[] bytes, int offset, int length, byte[] to, int pos) {
+    for (int i = offset; i < offset + length; i++) {
+      to[pos++] = bytes[i];
+      if (bytes[i] == ESCAPE) {
+        to[pos++] = ESCAPED_ZERO;
+      }
+    }
+    to[pos++] = ESCAPE;
+    to[pos++] = TERMINATOR;
+    return pos;
+  }
+
+  /**
+   * Returns the position of the terminator of the escaped bytes starting at the given offset.
+   */
+  private static int findTerminator(byte[] encoded, int offset) {
+    int pos = offset;
+    while (encoded[pos] != ESCAPE || encoded[pos + 1] != TERMINATOR) {
+      pos += encoded[pos] == ESCAPE ? 2 : 1;
+    }
+    return pos;
+  }
+
+  private static int getUnescapedLength(byte[] encoded, int offset, int end) {
+    int length = end - offset;
+    for (int i = offset; i < end; i++) {
+      if (encoded[i] == ESCAPE) {
+        length--;
+        i++;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Writes the unescaped bytes in the range of {@code [offset, end)}, and returns the position after them.
+   */
+  private static int unescape(byte[] encoded, int offset, int end, byte[] to, int pos) {
+    for (int i = offset; i < end; i++) {
+      to[pos++] = encoded[i];
+      if (encoded[i] == ESCAPE) {
+        i++;
+      }
+    }
+    return pos;
+  }
+}
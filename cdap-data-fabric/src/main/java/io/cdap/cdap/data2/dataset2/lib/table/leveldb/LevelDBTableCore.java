@@ -23,24 +23,27 @@ import io.cdap.cdap.api.dataset.table.Row;
 import io.cdap.cdap.api.dataset.table.Scanner;
 import io.cdap.cdap.common.utils.ImmutablePair;
 import io.cdap.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
+import io.cdap.cdap.messaging.store.leveldb.RocksDBStore;
+import io.cdap.cdap.messaging.store.leveldb.RocksDBWriteBatch;
 import org.apache.tephra.Transaction;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBIterator;
-import org.iq80.leveldb.ReadOptions;
-import org.iq80.leveldb.Snapshot;
 import org.iq80.leveldb.WriteBatch;
 import org.iq80.leveldb.WriteOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
 import javax.annotation.Nullable;
 
 /**
@@ -85,66 +88,95 @@ public class LevelDBTableCore {
   }
 
 
-  public synchronized boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) throws IOException {
-    byte[] existing = getRow(row, new byte[][] { column }, null, null, -1, null).get(column);
-    // verify
-    if (oldValue == null && existing != null) {
-      return false;
-    }
-    if (oldValue != null && (existing == null || !Bytes.equals(oldValue, existing))) {
-      return false;
-    }
-    // write
-    if (newValue == null) {
-      // to-do
-      deleteColumn(row, column);
-    } else {
-      persist(Collections.singletonMap(row, Collections.singletonMap(column, newValue)), Long.MAX_VALUE);
+  public boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) throws IOException {
+    Lock lock = service.getRowLock(tableName, row);
+    lock.lock();
+    try {
+      byte[] existing = getRow(row, new byte[][] { column }, null, null, -1, null).get(column);
+      // verify
+      if (oldValue == null && existing != null) {
+        return false;
+      }
+      if (oldValue != null && (existing == null || !Bytes.equals(oldValue, existing))) {
+        return false;
+      }
+      // write
+      if (newValue == null) {
+        // to-do
+        deleteColumn(row, column);
+      } else {
+        persist(Collections.singletonMap(row, Collections.singletonMap(column, newValue)), Long.MAX_VALUE);
+      }
+      return true;
+    } finally {
+      lock.unlock();
     }
-    return true;
   }
 
-  public synchronized Map<byte[], Long> increment(byte[] row, Map<byte[], Long> increments) throws IOException {
+  public Map<byte[], Long> increment(byte[] row, Map<byte[], Long> increments) throws IOException {
     Map<byte[], Long> result = new TreeMap<>(Bytes.BYTES_COMPARATOR);
 
     DB db = getDB();
     WriteBatch writeBatch = db.createWriteBatch();
-    try (Snapshot snapshot = db.getSnapshot()) {
-      ReadOptions readOptions = new ReadOptions().snapshot(snapshot);
-
+    // No snapshot is needed for reading the existing values, since all read-modify-write of a row
+    // happen under the row lock
+    Lock lock = service.getRowLock(tableName, row);
+    lock.lock();
+    try {
       for (Map.Entry<byte[], Long> entry : increments.entrySet()) {
         byte[] rowKey = createPutKey(row, entry.getKey(), Long.MAX_VALUE);
-        byte[] existingValue = db.get(rowKey, readOptions);
+        byte[] existingValue = db.get(rowKey);
         long newValue = incrementValue(entry.getValue(), existingValue, row, entry.getKey());
         result.put(entry.getKey(), newValue);
         writeBatch.put(rowKey, Bytes.toBytes(newValue));
       }
       db.write(writeBatch, service.getWriteOptions());
+    } finally {
+      lock.unlock();
     }
 
     return result;
   }
 
 
-  public synchronized void increment(NavigableMap<byte[], NavigableMap<byte[], Long>> updates) throws IOException {
+  public void increment(NavigableMap<byte[], NavigableMap<byte[], Long>> updates) throws IOException {
     if (updates.isEmpty()) {
       return;
     }
 
     DB db = getDB();
     WriteBatch writeBatch = db.createWriteBatch();
-    try (Snapshot snapshot = db.getSnapshot()) {
-      ReadOptions readOptions = new ReadOptions().snapshot(snapshot);
-
+    List<Lock> locks = lockRows(updates.keySet());
+    try {
       for (Map.Entry<byte[], NavigableMap<byte[], Long>> updateEntry : updates.entrySet()) {
         for (Map.Entry<byte[], Long> entry : updateEntry.getValue().entrySet()) {
           byte[] rowKey = createPutKey(updateEntry.getKey(), entry.getKey(), Long.MAX_VALUE);
-          byte[] existingValue = db.get(rowKey, readOptions);
+          byte[] existingValue = db.get(rowKey);
           long newValue = incrementValue(entry.getValue(), existingValue, updateEntry.getKey(), entry.getKey());
           writeBatch.put(rowKey, Bytes.toBytes(newValue));
         }
       }
       db.write(writeBatch, service.getWriteOptions());
+    } finally {
+      unlockRows(locks);
+    }
+  }
+
+  /**
+   * Acquires the row locks of the given rows, in the deadlock free order given by the {@link LevelDBTableService}.
+   */
+  private List<Lock> lockRows(Collection<byte[]> rows) {
+    List<Lock> locks = new ArrayList<>(rows.size());
+    for (Lock lock : service.getRowLocks(tableName, rows)) {
+      lock.lock();
+      locks.add(lock);
+    }
+    return locks;
+  }
+
+  private void unlockRows(List<Lock> locks) {
+    for (int i = locks.size() - 1; i >= 0; i--) {
+      locks.get(i).unlock();
     }
   }
 
@@ -414,6 +446,7 @@ public class LevelDBTableCore {
    * overlapping ranges, thus leading to performance issues, unless these deletions
    * are compacted away, so be cautious when calling this function over a larger number of
    * rows or rows with wide columns and large number of versions.
+   * With RocksDB as the storage engine, each row is deleted with a single range tombstone instead.
    *
    * @param toDelete the row keys to delete
    *
@@ -422,11 +455,19 @@ public class LevelDBTableCore {
     if (toDelete.isEmpty()) {
       return;
     }
+    DB db = getDB();
+    if (db instanceof RocksDBStore) {
+      RocksDBWriteBatch batch = ((RocksDBStore) db).createWriteBatch();
+      for (byte[] row : toDelete) {
+        batch.deleteRange(createStartKey(row), createStartKey(Bytes.add(row, ONE_ZERO)));
+      }
+      db.write(batch, getWriteOptions());
+      return;
+    }
     // find first row to delete and first entry in the DB to examine
     Iterator<byte[]> rows = toDelete.iterator();
     byte[] currentRow = rows.next();
     byte[] startKey = createStartKey(currentRow);
-    DB db = getDB();
     WriteBatch batch = db.createWriteBatch();
     try (DBIterator iterator = db.iterator()) {
       iterator.seek(startKey);
@@ -468,6 +509,10 @@ public class LevelDBTableCore {
     }
 
     DB db = getDB();
+    if (filter == null && columns == null && db instanceof RocksDBStore) {
+      deleteRange((RocksDBStore) db, startRow, stopRow);
+      return;
+    }
     DBIterator iterator = db.iterator();
     seekToStart(iterator, startRow);
     byte[] endKey = stopRow == null ? null : createStartKey(stopRow);
@@ -506,6 +551,27 @@ public class LevelDBTableCore {
     }
   }
 
+  /**
+   * Deletes all rows in the given range with a single range tombstone, without reading the rows.
+   */
+  private void deleteRange(RocksDBStore db, @Nullable byte[] startRow, @Nullable byte[] stopRow) {
+    byte[] endKey;
+    if (stopRow == null) {
+      byte[] lastKey = db.getLastKey();
+      if (lastKey == null) {
+        // nothing in the db to delete
+        return;
+      }
+      endKey = createStartKey(Bytes.add(KeyValue.fromKey(lastKey).getRow(), ONE_ZERO));
+    } else {
+      endKey = createStartKey(stopRow);
+    }
+    byte[] startKey = createStartKey(startRow == null ? Bytes.EMPTY_BYTE_ARRAY : startRow);
+    if (KeyValue.KEY_COMPARATOR.compare(startKey, endKey) < 0) {
+      db.write(db.createWriteBatch().deleteRange(startKey, endKey), getWriteOptions());
+    }
+  }
+
   public void deleteColumn(byte[] row, byte[] column) throws IOException {
     DB db = getDB();
     WriteBatch batch = db.createWriteBatch();
@@ -23,11 +23,14 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.Striped;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.data2.util.TableId;
+import io.cdap.cdap.messaging.store.leveldb.RocksDBStore;
 import org.apache.twill.common.Threads;
 import org.iq80.leveldb.CompressionType;
 import org.iq80.leveldb.DB;
@@ -47,7 +50,9 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
@@ -55,11 +60,13 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
 import static org.iq80.leveldb.impl.Iq80DBFactory.factory;
 
 /**
- * Service maintaining all LevelDB tables.
+ * Service maintaining all LevelDB tables. When RocksDB is configured as the local storage engine, the tables are
+ * stored as column families of a RocksDB database instead, and are exposed through the same LevelDB {@link DB} API.
  */
 @Singleton
 public class LevelDBTableService implements AutoCloseable {
@@ -75,8 +82,15 @@ public class LevelDBTableService implements AutoCloseable {
   private String basePath;
   private WriteOptions writeOptions;
   private boolean isClosed;
+  // Only set if RocksDB is the storage engine
+  private RocksDBTables rocksDBTables;
 
   private final ConcurrentMap<String, DB> tables = Maps.newConcurrentMap();
+  // Row locks for read-modify-write operations, shared by all LevelDBTableCore of the same table. setConfiguration
+  // only replaces them until the first lock is taken, so that concurrent callers always lock the same stripes.
+  private volatile Striped<Lock> rowLocks = Striped.lock(Constants.DEFAULT_DATA_LEVELDB_ROW_LOCK_STRIPES);
+  private volatile boolean rowLocksUsed;
+  private int rowLockStripes = Constants.DEFAULT_DATA_LEVELDB_ROW_LOCK_STRIPES;
 
   private final ScheduledExecutorService executor;
   private ScheduledFuture<?> scheduledFuture;
@@ -117,11 +131,32 @@ public class LevelDBTableService implements AutoCloseable {
                                        Constants.DEFAULT_DATA_LEVELDB_COMPACTION_LEVEL_MIN);
     compactionLevelMax = config.getInt(Constants.CFG_DATA_LEVELDB_COMPACTION_LEVEL_MAX,
                                        Constants.DEFAULT_DATA_LEVELDB_COMPACTION_LEVEL_MAX);
+    int stripes = config.getInt(Constants.CFG_DATA_LEVELDB_ROW_LOCK_STRIPES,
+                                Constants.DEFAULT_DATA_LEVELDB_ROW_LOCK_STRIPES);
+    if (stripes != rowLockStripes) {
+      if (rowLocksUsed) {
+        LOG.warn("Ignoring {} of {}, since the row locks with {} stripes are already in use",
+                 Constants.CFG_DATA_LEVELDB_ROW_LOCK_STRIPES, stripes, rowLockStripes);
+      } else {
+        rowLocks = Striped.lock(stripes);
+        rowLockStripes = stripes;
+      }
+    }
+    if (rocksDBTables != null) {
+      rocksDBTables.close();
+      rocksDBTables = null;
+    }
+    if (config.getEnum(Constants.CFG_DATA_LEVELDB_ENGINE, Constants.DEFAULT_DATA_LEVELDB_ENGINE)
+      == Constants.LocalStorageEngine.ROCKSDB) {
+      rocksDBTables = new RocksDBTables(new File(config.get(Constants.CFG_DATA_ROCKSDB_DIR)), createOptions(true),
+                                        cacheSize);
+    }
     if (scheduledFuture != null) {
       scheduledFuture.cancel(true);
       scheduledFuture = null;
     }
-    if (compactionInterval.getSeconds() > 0) {
+    // RocksDB reclaims range deleted rows in its own background compactions
+    if (compactionInterval.getSeconds() > 0 && rocksDBTables == null) {
       scheduledFuture = executor.scheduleAtFixedRate(this::compactAll, compactionInterval.getSeconds(),
                                                      compactionInterval.getSeconds(), TimeUnit.SECONDS);
     }
@@ -153,6 +188,12 @@ public class LevelDBTableService implements AutoCloseable {
     long startMillis = System.currentTimeMillis();
     LOG.debug("LevelDBTableService background periodic compaction on table {} started.", tableName);
     try {
+      if (db instanceof RocksDBStore) {
+        db.compactRange(null, null);
+        LOG.debug("LevelDBTableService compaction on RocksDB table {} completed in {} millis",
+                  tableName, System.currentTimeMillis() - startMillis);
+        return;
+      }
       if (!(db instanceof DbImpl)) {
         LOG.error(String.format("Skip compacting %s, DB is not an object of DbImpl", tableName));
         return;
@@ -206,6 +247,9 @@ public class LevelDBTableService implements AutoCloseable {
       Closeables.closeQuietly(entries);
     }
     tables.clear();
+    if (rocksDBTables != null) {
+      rocksDBTables.close();
+    }
   }
 
   private void ensureOpen() {
@@ -220,6 +264,9 @@ public class LevelDBTableService implements AutoCloseable {
 
   public Collection<String> list() throws Exception {
     ensureOpen();
+    if (rocksDBTables != null) {
+      return rocksDBTables.list();
+    }
     File baseDir = new File(basePath);
     String[] subDirs = baseDir.list();
     if (subDirs == null) {
@@ -241,6 +288,13 @@ public class LevelDBTableService implements AutoCloseable {
    */
   public Map<TableId, TableStats> getTableStats() throws Exception {
     ensureOpen();
+    if (rocksDBTables != null) {
+      ImmutableMap.Builder<TableId, TableStats> builder = ImmutableMap.builder();
+      for (Map.Entry<String, Long> entry : rocksDBTables.getTableSizes().entrySet()) {
+        builder.put(LevelDBNameConverter.from(entry.getKey()), new TableStats(entry.getValue()));
+      }
+      return builder.build();
+    }
     File baseDir = new File(basePath);
     File[] subDirs = baseDir.listFiles();
     if (subDirs == null) {
@@ -279,6 +333,38 @@ public class LevelDBTableService implements AutoCloseable {
     return writeOptions;
   }
 
+  /**
+   * Returns the lock for the given row of the given table. The lock is striped, hence can be shared with other rows.
+   */
+  public Lock getRowLock(String tableName, byte[] row) {
+    return useRowLocks().get(getRowLockKey(tableName, row));
+  }
+
+  /**
+   * Returns the locks for the given rows of the given table. The locks are returned in an order that is
+   * consistent across calls, so that acquiring them in the returned order cannot deadlock. The same lock can be
+   * returned multiple times if rows share the same stripe.
+   */
+  public Iterable<Lock> getRowLocks(String tableName, Collection<byte[]> rows) {
+    List<Integer> keys = new ArrayList<>(rows.size());
+    for (byte[] row : rows) {
+      keys.add(getRowLockKey(tableName, row));
+    }
+    return useRowLocks().bulkGet(keys);
+  }
+
+  private Striped<Lock> useRowLocks() {
+    // Only write the volatile field once, since it is read by every lock call
+    if (!rowLocksUsed) {
+      rowLocksUsed = true;
+    }
+    return rowLocks;
+  }
+
+  private int getRowLockKey(String tableName, byte[] row) {
+    return 31 * tableName.hashCode() + Bytes.hashCode(row);
+  }
+
   public DB getTable(String tableName) throws IOException {
     ensureOpen();
     DB db = tables.get(tableName);
@@ -308,15 +394,13 @@ public class LevelDBTableService implements AutoCloseable {
   }
 
   private DB openTable(String tableName) throws IOException {
+    if (rocksDBTables != null) {
+      DB db = rocksDBTables.getTable(tableName, false);
+      tables.put(tableName, db);
+      return db;
+    }
     String dbPath = getDBPath(basePath, tableName);
-
-    Options options = new Options();
-    options.createIfMissing(false);
-    options.errorIfExists(false);
-    options.comparator(new KeyValueDBComparator());
-    options.compressionType(compressionEnabled ? CompressionType.SNAPPY : CompressionType.NONE);
-    options.blockSize(blockSize);
-    options.cacheSize(cacheSize);
+    Options options = createOptions(false);
 
     // unfortunately, with the java version of leveldb, with createIfMissing set to false, factory.open will
     // see that there is no table and throw an exception, but it wont clean up after itself and will leave a
@@ -332,18 +416,24 @@ public class LevelDBTableService implements AutoCloseable {
   }
 
   private void createTable(String name) throws IOException {
+    if (rocksDBTables != null) {
+      tables.put(name, rocksDBTables.getTable(name, true));
+      return;
+    }
     String dbPath = getDBPath(basePath, name);
+    DB db = factory.open(new File(dbPath), createOptions(true));
+    tables.put(name, db);
+  }
 
+  private Options createOptions(boolean createIfMissing) {
     Options options = new Options();
-    options.createIfMissing(true);
+    options.createIfMissing(createIfMissing);
     options.errorIfExists(false);
     options.comparator(new KeyValueDBComparator());
     options.compressionType(compressionEnabled ? CompressionType.SNAPPY : CompressionType.NONE);
     options.blockSize(blockSize);
     options.cacheSize(cacheSize);
-
-    DB db = factory.open(new File(dbPath), options);
-    tables.put(name, db);
+    return options;
   }
 
   public void dropTable(String name) throws IOException {
@@ -352,6 +442,10 @@ public class LevelDBTableService implements AutoCloseable {
     if (db != null) {
       db.close();
     }
+    if (rocksDBTables != null) {
+      rocksDBTables.dropTable(name);
+      return;
+    }
     String dbPath = getDBPath(basePath, name);
     factory.destroy(new File(dbPath), new Options());
   }
@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.dataset2.lib.table.leveldb;
+
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.utils.DirUtils;
+import io.cdap.cdap.messaging.store.leveldb.RocksDBFactory;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.WriteBatch;
+import org.iq80.leveldb.impl.Iq80DBFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+
+/**
+ * Tool to copy the data of CDAP Local Sandbox from LevelDB to RocksDB, so that an existing installation can switch
+ * {@link Constants#CFG_DATA_LEVELDB_ENGINE} to {@link Constants.LocalStorageEngine#ROCKSDB}.
+ * It copies the dataset tables from {@link Constants#CFG_DATA_LEVELDB_DIR} to
+ * {@link Constants#CFG_DATA_ROCKSDB_DIR} and the messaging system tables from
+ * {@link Constants.MessagingSystem#LOCAL_DATA_DIR} to {@link Constants.MessagingSystem#LOCAL_DATA_ROCKSDB_DIR}.
+ * The LevelDB data is left untouched. CDAP must be stopped while the tool runs.
+ */
+public class LevelDBToRocksDBMigrationTool {
+
+  private static final int BATCH_SIZE = 1000;
+
+  private final CConfiguration cConf;
+
+  public LevelDBToRocksDBMigrationTool(CConfiguration cConf) {
+    this.cConf = cConf;
+  }
+
+  /**
+   * Copies all dataset tables and messaging system tables.
+   *
+   * @throws IOException if the target already contains data or failed to copy
+   */
+  public void migrate() throws IOException {
+    migrateDatasetTables();
+    File messagingDir = new File(cConf.get(Constants.MessagingSystem.LOCAL_DATA_DIR));
+    File messagingRocksDBDir = new File(cConf.get(Constants.MessagingSystem.LOCAL_DATA_ROCKSDB_DIR));
+    if (messagingDir.isDirectory()) {
+      ensureEmpty(messagingRocksDBDir);
+      migrateMessagingTables(messagingDir, messagingRocksDBDir);
+    }
+  }
+
+  private void migrateDatasetTables() throws IOException {
+    CConfiguration levelDBConf = CConfiguration.copy(cConf);
+    levelDBConf.setEnum(Constants.CFG_DATA_LEVELDB_ENGINE, Constants.LocalStorageEngine.LEVELDB);
+    CConfiguration rocksDBConf = CConfiguration.copy(cConf);
+    rocksDBConf.setEnum(Constants.CFG_DATA_LEVELDB_ENGINE, Constants.LocalStorageEngine.ROCKSDB);
+
+    LevelDBTableService levelDBService = new LevelDBTableService();
+    LevelDBTableService rocksDBService = new LevelDBTableService();
+    try {
+      levelDBService.setConfiguration(levelDBConf);
+      rocksDBService.setConfiguration(rocksDBConf);
+      if (!rocksDBService.list().isEmpty()) {
+        throw new IOException("RocksDB directory " + cConf.get(Constants.CFG_DATA_ROCKSDB_DIR) + " is not empty");
+      }
+      for (String tableName : levelDBService.list()) {
+        rocksDBService.ensureTableExists(tableName);
+        long count = copy(levelDBService.getTable(tableName), rocksDBService.getTable(tableName));
+        System.out.printf("Copied %d entries of dataset table %s%n", count, tableName);
+      }
+    } catch (IOException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException("Failed to migrate dataset tables", e);
+    } finally {
+      levelDBService.close();
+      rocksDBService.close();
+    }
+  }
+
+  /**
+   * Recursively copies the given messaging directory. Every LevelDB database, which is a directory with a
+   * {@code CURRENT} file, is copied to a RocksDB database at the same relative path. Other files are copied as is.
+   */
+  private void migrateMessagingTables(File sourceDir, File targetDir) throws IOException {
+    if (!DirUtils.mkdirs(targetDir)) {
+      throw new IOException("Failed to create directory " + targetDir);
+    }
+    long blockCacheSize = cConf.getLong(Constants.CFG_DATA_LEVELDB_CACHESIZE,
+                                        Constants.DEFAULT_DATA_LEVELDB_CACHESIZE);
+    try (RocksDBFactory rocksDBFactory = new RocksDBFactory(blockCacheSize)) {
+      migrateMessagingTables(sourceDir, targetDir, rocksDBFactory);
+    }
+  }
+
+  private void migrateMessagingTables(File sourceDir, File targetDir, RocksDBFactory rocksDBFactory)
+    throws IOException {
+    for (File file : DirUtils.listFiles(sourceDir)) {
+      File target = new File(targetDir, file.getName());
+      if (!file.isDirectory()) {
+        Files.copy(file.toPath(), target.toPath());
+      } else if (new File(file, "CURRENT").isFile()) {
+        try (
+          DB levelDB = Iq80DBFactory.factory.open(file, new Options().createIfMissing(false));
+          DB rocksDB = rocksDBFactory.open(target, new Options().createIfMissing(true).errorIfExists(true))
+        ) {
+          long count = copy(levelDB, rocksDB);
+          System.out.printf("Copied %d entries of messaging table %s%n", count, file);
+        }
+      } else {
+        if (!DirUtils.mkdirs(target)) {
+          throw new IOException("Failed to create directory " + target);
+        }
+        migrateMessagingTables(file, target, rocksDBFactory);
+      }
+    }
+  }
+
+  private static long copy(DB source, DB target) throws IOException {
+    long count = 0;
+    try (DBIterator iterator = source.iterator()) {
+      iterator.seekToFirst();
+      WriteBatch batch = target.createWriteBatch();
+      try {
+        while (iterator.hasNext()) {
+          Map.Entry<byte[], byte[]> entry = iterator.next();
+          batch.put(entry.getKey(), entry.getValue());
+          if (++count % BATCH_SIZE == 0) {
+            target.write(batch);
+            batch.close();
+            batch = target.createWriteBatch();
+          }
+        }
+        target.write(batch);
+      } finally {
+        batch.close();
+      }
+    }
+    return count;
+  }
+
+  private static void ensureEmpty(File dir) throws IOException {
+    String[] files = dir.list();
+    if (files != null && files.length > 0) {
+      throw new IOException("RocksDB directory " + dir + " is not empty");
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    CConfiguration cConf = CConfiguration.create();
+    System.out.printf("Copying LevelDB data from %s and %s to RocksDB at %s and %s%n",
+                      cConf.get(Constants.CFG_DATA_LEVELDB_DIR),
+                      cConf.get(Constants.MessagingSystem.LOCAL_DATA_DIR),
+                      cConf.get(Constants.CFG_DATA_ROCKSDB_DIR),
+                      cConf.get(Constants.MessagingSystem.LOCAL_DATA_ROCKSDB_DIR));
+    new LevelDBToRocksDBMigrationTool(cConf).migrate();
+    System.out.printf("Migration completed. Set %s to %s to use RocksDB.%n",
+                      Constants.CFG_DATA_LEVELDB_ENGINE, Constants.LocalStorageEngine.ROCKSDB);
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.dataset2.lib.table.leveldb;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.common.utils.DirUtils;
+import io.cdap.cdap.messaging.store.leveldb.RocksDBFactory;
+import io.cdap.cdap.messaging.store.leveldb.RocksDBStore;
+import org.iq80.leveldb.Options;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.DBOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The tables of {@link LevelDBTableService} when RocksDB is the storage engine. All tables are column families of
+ * one RocksDB database, so that they share the write ahead log, the block cache and the background threads.
+ * The database is opened on first use. Keys are stored with the {@link KeyValueKeyCodec}, so that the tables can use
+ * the native bytewise comparator of RocksDB instead of a Java comparator.
+ */
+final class RocksDBTables implements Closeable {
+
+  private static final String SIZE_PROPERTY_SST_FILES = "rocksdb.total-sst-files-size";
+  private static final String SIZE_PROPERTY_MEMTABLES = "rocksdb.size-all-mem-tables";
+
+  private final File dir;
+  private final Options options;
+  private final long blockCacheSize;
+  private final Map<String, ColumnFamilyHandle> columnFamilies;
+
+  private RocksDBFactory factory;
+  private DBOptions dbOptions;
+  private ColumnFamilyOptions columnFamilyOptions;
+  private RocksDB db;
+
+  RocksDBTables(File dir, Options options, long blockCacheSize) {
+    this.dir = dir;
+    this.options = options;
+    this.blockCacheSize = blockCacheSize;
+    this.columnFamilies = new HashMap<>();
+  }
+
+  /**
+   * Returns the {@link RocksDBStore} for the given table.
+   *
+   * @param tableName name of the table
+   * @param create {@code true} to create the table if it doesn't exist
+   * @throws IOException if the table doesn't exist and {@code create} is {@code false}, or failed to open it
+   */
+  synchronized RocksDBStore getTable(String tableName, boolean create) throws IOException {
+    RocksDB db = getDB();
+    ColumnFamilyHandle columnFamily = columnFamilies.get(tableName);
+    if (columnFamily == null) {
+      if (!create) {
+        throw new IOException("Table " + tableName + " does not exist in RocksDB " + dir);
+      }
+      try {
+        columnFamily = db.createColumnFamily(new ColumnFamilyDescriptor(toColumnFamilyName(tableName),
+                                                                        columnFamilyOptions));
+      } catch (RocksDBException e) {
+        throw new IOException("Failed to create table " + tableName + " in RocksDB " + dir, e);
+      }
+      columnFamilies.put(tableName, columnFamily);
+    }
+    return new RocksDBStore(db, columnFamily, KeyValueKeyCodec.INSTANCE);
+  }
+
+  synchronized void dropTable(String tableName) throws IOException {
+    RocksDB db = getDB();
+    ColumnFamilyHandle columnFamily = columnFamilies.remove(tableName);
+    if (columnFamily == null) {
+      return;
+    }
+    try {
+      db.dropColumnFamily(columnFamily);
+    } catch (RocksDBException e) {
+      throw new IOException("Failed to drop table " + tableName + " in RocksDB " + dir, e);
+    } finally {
+      columnFamily.close();
+    }
+  }
+
+  synchronized Collection<String> list() throws IOException {
+    getDB();
+    return ImmutableList.copyOf(columnFamilies.keySet());
+  }
+
+  /**
+   * Returns the approximate size in bytes of each table, including data that is not yet flushed to disk.
+   */
+  synchronized Map<String, Long> getTableSizes() throws IOException {
+    RocksDB db = getDB();
+    ImmutableMap.Builder<String, Long> builder = ImmutableMap.builder();
+    for (Map.Entry<String, ColumnFamilyHandle> entry : columnFamilies.entrySet()) {
+      try {
+        builder.put(entry.getKey(), db.getLongProperty(entry.getValue(), SIZE_PROPERTY_SST_FILES)
+          + db.getLongProperty(entry.getValue(), SIZE_PROPERTY_MEMTABLES));
+      } catch (RocksDBException e) {
+        throw new IOException("Failed to get size of table " + entry.getKey() + " in RocksDB " + dir, e);
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Closes the database. It will be opened again on the next use.
+   */
+  @Override
+  public synchronized void close() {
+    if (db == null) {
+      return;
+    }
+    columnFamilies.values().forEach(ColumnFamilyHandle::close);
+    columnFamilies.clear();
+    db.close();
+    db = null;
+    // The options must outlive the database
+    columnFamilyOptions.close();
+    dbOptions.close();
+    factory.close();
+  }
+
+  private RocksDB getDB() throws IOException {
+    if (db != null) {
+      return db;
+    }
+    if (!DirUtils.mkdirs(dir)) {
+      throw new IOException("Failed to create directory " + dir + " for RocksDB");
+    }
+
+    factory = new RocksDBFactory(blockCacheSize);
+    dbOptions = factory.createDBOptions(options).setCreateMissingColumnFamilies(true);
+    columnFamilyOptions = factory.createColumnFamilyOptions(options);
+
+    List<byte[]> names;
+    try (org.rocksdb.Options listOptions = new org.rocksdb.Options()) {
+      names = RocksDB.listColumnFamilies(listOptions, dir.getAbsolutePath());
+    } catch (RocksDBException e) {
+      throw new IOException("Failed to list tables in RocksDB " + dir, e);
+    }
+    if (names.isEmpty()) {
+      names = ImmutableList.of(RocksDB.DEFAULT_COLUMN_FAMILY);
+    }
+
+    List<ColumnFamilyDescriptor> descriptors = new ArrayList<>();
+    for (byte[] name : names) {
+      descriptors.add(new ColumnFamilyDescriptor(name, columnFamilyOptions));
+    }
+    List<ColumnFamilyHandle> handles = new ArrayList<>();
+    try {
+      db = RocksDB.open(dbOptions, dir.getAbsolutePath(), descriptors, handles);
+    } catch (RocksDBException e) {
+      columnFamilyOptions.close();
+      dbOptions.close();
+      factory.close();
+      throw new IOException("Failed to open RocksDB " + dir, e);
+    }
+
+    for (int i = 0; i < names.size(); i++) {
+      byte[] name = names.get(i);
+      // The default column family is not used for any table
+      if (Arrays.equals(RocksDB.DEFAULT_COLUMN_FAMILY, name)) {
+        handles.get(i).close();
+      } else {
+        columnFamilies.put(new String(name, StandardCharsets.UTF_8), handles.get(i));
+      }
+    }
+    return db;
+  }
+
+  private static byte[] toColumnFamilyName(String tableName) {
+    return tableName.getBytes(StandardCharsets.UTF_8);
+  }
+}
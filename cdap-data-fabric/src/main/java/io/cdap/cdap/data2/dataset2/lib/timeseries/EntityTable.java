@@ -19,14 +19,21 @@ import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
 import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.dataset.table.Row;
+import io.cdap.cdap.api.dataset.table.Scanner;
+import io.cdap.cdap.api.metrics.MetricsCollector;
 import io.cdap.cdap.data2.dataset2.lib.table.MetricsTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.concurrent.ExecutionException;
 import javax.annotation.Nullable;
 
@@ -44,6 +51,11 @@ import javax.annotation.Nullable;
  * <h5>Entity mapping rows</h5>
  * Each entity would have two rows. One is keyed by {@code [type].[entityName]} and have one "id" column which
  * stores the unique ID. The other is a reverse map from {@code [type].id} to entity name in "name" column.
+ *
+ * <h5>Caching</h5>
+ * Mappings in both directions are cached in memory. Each cache is bounded by the approximate number of bytes
+ * used by the cached names, with least recently used mappings being evicted first. Cache hits, misses and
+ * evictions are emitted as metrics if a {@link MetricsCollector} is set.
  */
 public final class EntityTable implements Closeable {
 
@@ -54,7 +66,16 @@ public final class EntityTable implements Closeable {
   private static final byte[] NAME = Bytes.toBytes("name");
   private static final byte[] DOT = { '.' };
   // max number of distinct values of entity of a single type
-  private static final long MAX_ID_COUNT = 0x1000000L;
+  public static final long MAX_ID_COUNT = 0x1000000L;
+  public static final long DEFAULT_CACHE_MAX_BYTES = 32L * 1024 * 1024;
+  // estimated memory used by a cache entry, excluding the characters of the names
+  private static final int CACHE_ENTRY_OVERHEAD = 96;
+  // max number of ids not asked for that can be skipped over by a single scan in loadNames
+  private static final long MAX_LOAD_SCAN_GAP = 64;
+
+  private static final String CACHE_HIT_METRIC = "entityTable.cache.hit.count";
+  private static final String CACHE_MISS_METRIC = "entityTable.cache.miss.count";
+  private static final String CACHE_EVICTION_METRIC = "entityTable.cache.eviction.count";
 
   private final MetricsTable table;
   private final LoadingCache<EntityName, Long> entityCache;
@@ -62,33 +83,63 @@ public final class EntityTable implements Closeable {
   private final long maxId;
   private final int size;
 
+  @Nullable
+  private volatile MetricsCollector metrics;
+  // cache stats as of the last time metrics were emitted
+  private CacheStats emittedStats = new CacheStats(0, 0, 0, 0, 0, 0);
 
   /**
    * Creates an EntityTable with max id = 16777215.
    *
-   * See {@link #EntityTable(MetricsTable, long)}.
+   * See {@link #EntityTable(MetricsTable, long, long)}.
    */
   public EntityTable(MetricsTable table) {
     this(table, MAX_ID_COUNT);
   }
 
+  /**
+   * Creates an EntityTable with the default cache size.
+   *
+   * See {@link #EntityTable(MetricsTable, long, long)}.
+   */
+  EntityTable(MetricsTable table, long maxId) {
+    this(table, maxId, DEFAULT_CACHE_MAX_BYTES);
+  }
+
   /**
    * Creates an EntityTable backed by the given {@link MetricsTable}.
    *
    * @param table The storage table
    * @param maxId Maximum ID (exclusive) that can be generated.
+   * @param cacheMaxBytes Approximate maximum number of bytes used by each of the name to id and id to name caches.
    */
-  EntityTable(MetricsTable table, long maxId) {
+  public EntityTable(MetricsTable table, long maxId, long cacheMaxBytes) {
     Preconditions.checkArgument(table != null, "Table cannot be null.");
     Preconditions.checkArgument(maxId > 0, "maxId must be > 0.");
+    Preconditions.checkArgument(cacheMaxBytes > 0, "cacheMaxBytes must be > 0.");
 
     this.table = table;
-    this.entityCache = CacheBuilder.newBuilder().build(createEntityCacheLoader());
-    this.idCache = CacheBuilder.newBuilder().build(createIdCacheLoader());
+    this.entityCache = CacheBuilder.newBuilder()
+      .maximumWeight(cacheMaxBytes)
+      .weigher((Weigher<EntityName, Long>) (key, value) -> key.getWeight())
+      .recordStats()
+      .build(createEntityCacheLoader());
+    this.idCache = CacheBuilder.newBuilder()
+      .maximumWeight(cacheMaxBytes)
+      .weigher((Weigher<EntityId, EntityName>) (key, value) -> value.getWeight())
+      .recordStats()
+      .build(createIdCacheLoader());
     this.maxId = maxId;
     this.size = computeSize(maxId);
   }
 
+  /**
+   * Sets the {@link MetricsCollector} for emitting the cache metrics.
+   */
+  public void setMetricsCollector(MetricsCollector metrics) {
+    this.metrics = metrics;
+  }
+
   /**
    * Returns an unique id for the given name.
    * @param name The {@link EntityName} to lookup. Can be {@code null}, which is treated as a normal value.
@@ -120,6 +171,61 @@ public final class EntityTable implements Closeable {
     }
   }
 
+  /**
+   * Loads the names of the given ids of the given type into the cache, so that they can be returned by
+   * {@link #getName(long, String)} without reading from the table. Ids that are already cached are skipped, and
+   * ids that are close to each other are loaded with a single scan of the reverse mappings.
+   * Ids that don't map to any name are ignored.
+   *
+   * @param type The type of the entities.
+   * @param ids The ids to load.
+   */
+  public void loadNames(String type, Collection<Long> ids) {
+    long[] missing = ids.stream()
+      .mapToLong(Long::longValue)
+      // Use the map view to not count the lookups in the cache stats
+      .filter(id -> id != 0 && !idCache.asMap().containsKey(new EntityId(id, type)))
+      .sorted()
+      .distinct()
+      .toArray();
+
+    // Scan each cluster of ids that are close to each other. A single id is left for getName to load.
+    int start = 0;
+    for (int i = 1; i <= missing.length; i++) {
+      if (i == missing.length || missing[i] - missing[i - 1] > MAX_LOAD_SCAN_GAP) {
+        if (i - start > 1) {
+          loadNames(type, missing, start, i);
+        }
+        start = i;
+      }
+    }
+    emitMetrics();
+  }
+
+  /**
+   * Emits the cache metrics accumulated since the last call to this method. It is called by the users of this
+   * table after each batch of operations, so that metrics are not emitted for every lookup.
+   */
+  synchronized void emitMetrics() {
+    MetricsCollector metrics = this.metrics;
+    if (metrics == null) {
+      return;
+    }
+    CacheStats stats = entityCache.stats().plus(idCache.stats());
+    CacheStats delta = stats.minus(emittedStats);
+    emittedStats = stats;
+
+    if (delta.hitCount() > 0) {
+      metrics.increment(CACHE_HIT_METRIC, delta.hitCount());
+    }
+    if (delta.missCount() > 0) {
+      metrics.increment(CACHE_MISS_METRIC, delta.missCount());
+    }
+    if (delta.evictionCount() > 0) {
+      metrics.increment(CACHE_EVICTION_METRIC, delta.evictionCount());
+    }
+  }
+
   /**
    * Returns number of bytes for ID represented by this table.
    */
@@ -203,6 +309,35 @@ public final class EntityTable implements Closeable {
     };
   }
 
+  /**
+   * Loads the names of the ids in the given range of the sorted ids array with a single scan.
+   */
+  private void loadNames(String type, long[] ids, int from, int to) {
+    byte[] prefix = Bytes.concat(Bytes.toBytes(type), DOT);
+    byte[] startRow = Bytes.add(prefix, Bytes.toBytes(ids[from]));
+    byte[] stopRow = Bytes.add(prefix, Bytes.toBytes(ids[to - 1] + 1));
+
+    Scanner scanner = table.scan(startRow, stopRow, null);
+    try {
+      Row row;
+      while ((row = scanner.next()) != null) {
+        byte[] rowKey = row.getRow();
+        // Forward mapping rows of names starting with zero bytes could fall into the range as well
+        if (rowKey.length != prefix.length + Bytes.SIZEOF_LONG) {
+          continue;
+        }
+        long id = Bytes.toLong(rowKey, prefix.length);
+        byte[] name = row.get(NAME);
+        // Only cache the ids asked for to not fill the cache with the ones skipped over
+        if (name != null && Arrays.binarySearch(ids, from, to, id) >= 0) {
+          idCache.put(new EntityId(id, type), new EntityName(type, Bytes.toString(name)));
+        }
+      }
+    } finally {
+      scanner.close();
+    }
+  }
+
   static int computeSize() {
     return computeSize(MAX_ID_COUNT);
   }
@@ -247,6 +382,13 @@ public final class EntityTable implements Closeable {
       return name;
     }
 
+    /**
+     * Returns the estimated number of bytes used by this name when cached.
+     */
+    int getWeight() {
+      return CACHE_ENTRY_OVERHEAD + (type.length() + name.length()) * 2;
+    }
+
     @Override
     public boolean equals(Object o) {
       if (this == o) {
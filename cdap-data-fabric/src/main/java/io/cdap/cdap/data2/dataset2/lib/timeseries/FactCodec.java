@@ -24,8 +24,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
@@ -263,6 +268,43 @@ public class FactCodec {
     return dimensions;
   }
 
+  /**
+   * Loads the names of all entities encoded in the given row keys into the entity table cache, so that decoding
+   * the row keys with {@link #getMeasureName(byte[])} and {@link #getDimensionValues(byte[])} doesn't need to read
+   * from the entity table for each of them.
+   */
+  public void loadEntityNames(Collection<byte[]> rowKeys) {
+    Set<Long> measureIds = new HashSet<>();
+    Set<Long> aggGroupIds = new HashSet<>();
+    for (byte[] rowKey : rowKeys) {
+      measureIds.add(readEncoded(rowKey, rowKey.length - entityTable.getIdSize()));
+      aggGroupIds.add(readEncoded(rowKey, VERSION.length));
+    }
+    entityTable.loadNames(TYPE_MEASURE_NAME, measureIds);
+    entityTable.loadNames(TYPE_DIMENSIONS_GROUP, aggGroupIds);
+
+    // The type of a dimension value is the dimension name, which is only known after decoding the agg group
+    Map<String, Set<Long>> dimensionValueIds = new HashMap<>();
+    for (byte[] rowKey : rowKeys) {
+      String aggGroup;
+      try {
+        aggGroup = entityTable.getName(readEncoded(rowKey, VERSION.length), TYPE_DIMENSIONS_GROUP);
+      } catch (IllegalArgumentException e) {
+        // Leave it to getDimensionValues to fail for the row
+        continue;
+      }
+      if (aggGroup == null || aggGroup.isEmpty()) {
+        continue;
+      }
+      String[] dimensionNames = aggGroup.split("\\.");
+      for (int i = 0; i < dimensionNames.length; i++) {
+        dimensionValueIds.computeIfAbsent(dimensionNames[i], k -> new HashSet<>())
+          .add(readEncoded(rowKey, VERSION.length + entityTable.getIdSize() * (i + 1) + Bytes.SIZEOF_INT));
+      }
+    }
+    dimensionValueIds.forEach(entityTable::loadNames);
+  }
+
   public long getTimestamp(byte[] rowKey, byte[] column) {
     // timebase is encoded as int after the encoded agg group
     int timebase = Bytes.toInt(rowKey, VERSION.length + entityTable.getIdSize());
@@ -25,22 +25,30 @@ import io.cdap.cdap.api.dataset.lib.cube.TimeValue;
 import io.cdap.cdap.api.dataset.table.Row;
 import io.cdap.cdap.api.dataset.table.Scanner;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Scans facts in a {@link FactTable}.
  */
 public final class FactScanner implements Iterator<FactScanResult> {
 
+  // Number of rows read ahead from the scanner, for which entity names are loaded in batch before decoding
+  private static final int DECODE_BATCH_SIZE = 100;
+
   private final FactCodec codec;
 
   private final Scanner scanner;
   private final long startTs;
   private final long endTs;
+  private final Deque<Row> rows;
 
   // Track the number of row scanned through the iterator. It's for reporting and debugging purpose.
   private int rowScanned;
@@ -57,6 +65,7 @@ public final class FactScanner implements Iterator<FactScanResult> {
   FactScanner(Scanner scanner, FactCodec codec, long startTs, long endTs, Collection<String> measureNames) {
     this.scanner = scanner;
     this.codec = codec;
+    this.rows = new ArrayDeque<>();
     this.internalIterator = createIterator();
     this.startTs = startTs;
     this.endTs = endTs;
@@ -91,7 +100,7 @@ public final class FactScanner implements Iterator<FactScanResult> {
       @Override
       protected FactScanResult computeNext() {
         Row rowResult;
-        while ((rowResult = scanner.next()) != null) {
+        while ((rowResult = nextRow()) != null) {
           rowScanned++;
           byte[] rowKey = rowResult.getRow();
 
@@ -101,9 +110,8 @@ public final class FactScanner implements Iterator<FactScanResult> {
           if (!measureNames.isEmpty() && !measureNames.contains(measureName)) {
             continue;
           }
-          // todo: codec.getDimensionValues(rowKey) needs to un-encode dimension names which may result in read in
-          //       entity table (depending on the cache and its state). To avoid that, we can pass to scanner the
-          //       list of dimension names as we *always* know it (it is given) at the time of scanning
+          // Entity names of the row were loaded in batch by nextRow(), hence decoding doesn't read the entity table
+          // unless they are evicted from the cache in between
           List<DimensionValue> dimensionValues = codec.getDimensionValues(rowKey);
 
           boolean exhausted = false;
@@ -138,4 +146,24 @@ public final class FactScanner implements Iterator<FactScanResult> {
       }
     };
   }
+
+  /**
+   * Returns the next row from the scanner or {@code null} if the scanner is exhausted. Rows are read from the
+   * scanner in batches, and the entity names encoded in the row keys of each batch are loaded together.
+   */
+  @Nullable
+  private Row nextRow() {
+    if (rows.isEmpty()) {
+      List<byte[]> rowKeys = new ArrayList<>(DECODE_BATCH_SIZE);
+      Row row;
+      while (rows.size() < DECODE_BATCH_SIZE && (row = scanner.next()) != null) {
+        rows.add(row);
+        rowKeys.add(row.getRow());
+      }
+      if (!rowKeys.isEmpty()) {
+        codec.loadEntityNames(rowKeys);
+      }
+    }
+    return rows.poll();
+  }
 }
@@ -76,6 +76,9 @@ public final class FactTable implements Closeable {
   private final String putCountMetric;
   private final String incrementCountMetric;
   private final Cache<FactCacheKey, Long> factCounterCache;
+  // cells added by addBuffered that are not yet written to the table
+  private final NavigableMap<byte[], NavigableMap<byte[], Long>> bufferedGauges;
+  private final NavigableMap<byte[], NavigableMap<byte[], Long>> bufferedIncrements;
 
   @Nullable
   private MetricsCollector metrics;
@@ -107,17 +110,56 @@ public final class FactTable implements Closeable {
     // only use the cache if the resolution is not the total resolution
     this.factCounterCache = resolution == Integer.MAX_VALUE ? null :
       CacheBuilder.newBuilder().expireAfterAccess(1L, TimeUnit.MINUTES).maximumSize(100000).build();
+    this.bufferedGauges = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    this.bufferedIncrements = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
   }
 
   public void setMetricsCollector(MetricsCollector metrics) {
     this.metrics = metrics;
+    entityTable.setMetricsCollector(metrics);
   }
 
+  /**
+   * Adds the given facts to the table. Facts previously added with {@link #addBuffered(List)} are written first.
+   */
   public void add(List<Fact> facts) {
+    flush();
+
     // Simply collecting all rows/cols/values that need to be put to the underlying table.
     NavigableMap<byte[], NavigableMap<byte[], Long>> gaugesTable = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     NavigableMap<byte[], NavigableMap<byte[], Long>> incrementsTable = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    collect(facts, gaugesTable, incrementsTable);
+    write(gaugesTable, incrementsTable);
+  }
 
+  /**
+   * Adds the given facts to an in-memory buffer without writing them to the table. Values of the same cell are
+   * merged with the ones already buffered, so that each cell is only written once by the next {@link #flush()},
+   * no matter how many times it was updated.
+   */
+  public synchronized void addBuffered(List<Fact> facts) {
+    collect(facts, bufferedGauges, bufferedIncrements);
+  }
+
+  /**
+   * Writes all facts buffered by {@link #addBuffered(List)} to the table. If the write fails, the facts are kept
+   * in the buffer so that they can be written by the next flush.
+   */
+  public synchronized void flush() {
+    if (bufferedGauges.isEmpty() && bufferedIncrements.isEmpty()) {
+      return;
+    }
+    write(bufferedGauges, bufferedIncrements);
+    bufferedGauges.clear();
+    bufferedIncrements.clear();
+  }
+
+  /**
+   * Collects the cells to be written for the given facts into the given gauges and increments tables.
+   * A cell never appears in both tables, so that the order of writing them doesn't matter.
+   */
+  private void collect(List<Fact> facts, NavigableMap<byte[], NavigableMap<byte[], Long>> gaugesTable,
+                       NavigableMap<byte[], NavigableMap<byte[], Long>> incrementsTable) {
     // this map is used to store metrics which was COUNTER type, but can be considered as GAUGE, which means it is
     // guaranteed to be a new row key in the underlying table.
     NavigableMap<byte[], NavigableMap<byte[], Long>> incGaugeTable = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
@@ -138,7 +180,7 @@ public final class FactTable implements Closeable {
             // if there is no existing ts or existing ts is greater than or equal to the current ts, this metric value
             // cannot be considered as a gauge, and we should update the incrementsTable
             if (existingTs == null || existingTs >= tsToResolution) {
-              inc(incrementsTable, rowKey, column, measurement.getValue());
+              inc(gaugesTable, incrementsTable, rowKey, column, measurement.getValue());
               // if the current ts is greater than existing ts, then we can consider this metric as a newly seen metric
               // and perform gauge on this metric
             } else {
@@ -152,20 +194,26 @@ public final class FactTable implements Closeable {
                 cacheKey, (key, oldValue) -> oldValue == null || tsToResolution > oldValue ? tsToResolution : oldValue);
             }
           } else {
-            inc(incrementsTable, rowKey, column, measurement.getValue());
+            inc(gaugesTable, incrementsTable, rowKey, column, measurement.getValue());
           }
         } else {
-          gaugesTable
-            .computeIfAbsent(rowKey, k -> Maps.newTreeMap(Bytes.BYTES_COMPARATOR))
-            .put(column, measurement.getValue());
+          gauge(gaugesTable, incrementsTable, rowKey, column, measurement.getValue());
         }
       }
     }
 
     if (factCounterCache != null) {
-      gaugesTable.putAll(incGaugeTable);
+      for (Map.Entry<byte[], NavigableMap<byte[], Long>> row : incGaugeTable.entrySet()) {
+        for (Map.Entry<byte[], Long> cell : row.getValue().entrySet()) {
+          gauge(gaugesTable, incrementsTable, row.getKey(), cell.getKey(), cell.getValue());
+        }
+      }
       factCounterCache.putAll(cacheUpdates);
     }
+  }
+
+  private void write(NavigableMap<byte[], NavigableMap<byte[], Long>> gaugesTable,
+                     NavigableMap<byte[], NavigableMap<byte[], Long>> incrementsTable) {
     // todo: replace with single call, to be able to optimize rpcs in underlying table
     timeSeriesTable.put(gaugesTable);
     timeSeriesTable.increment(incrementsTable);
@@ -173,6 +221,7 @@ public final class FactTable implements Closeable {
       metrics.increment(putCountMetric, gaugesTable.size());
       metrics.increment(incrementCountMetric, incrementsTable.size());
     }
+    entityTable.emitMetrics();
   }
 
   private class MeasureNameComparator implements Comparator<String> {
@@ -192,6 +241,39 @@ public final class FactTable implements Closeable {
     return new FactScanner(getScanner(scan), codec, scan.getStartTs(), scan.getEndTs(), scan.getMeasureNames());
   }
 
+  /**
+   * Splits the given scan by time into at most the given number of scans of consecutive time ranges. Each split
+   * covers whole rows, and since the timebase of a row comes right after the aggregation group in the row key,
+   * the splits read disjoint row key ranges and can be scanned in parallel.
+   *
+   * @return the split scans ordered by time
+   */
+  public List<FactScan> split(FactScan scan, int maxSplits) {
+    long startTs = scan.getStartTs();
+    long endTs = scan.getEndTs();
+    // The total resolution table only has a single timebase
+    if (maxSplits <= 1 || resolution == Integer.MAX_VALUE || endTs <= startTs) {
+      return Collections.singletonList(scan);
+    }
+
+    long firstTimebase = startTs / rollTime * rollTime;
+    long rows = (endTs / rollTime * rollTime - firstTimebase) / rollTime + 1;
+    int splits = (int) Math.min(maxSplits, rows);
+    if (splits <= 1) {
+      return Collections.singletonList(scan);
+    }
+
+    long rowsPerSplit = (rows + splits - 1) / splits;
+    List<FactScan> result = new ArrayList<>(splits);
+    long splitStart = startTs;
+    for (int i = 1; splitStart <= endTs; i++) {
+      long splitEnd = Math.min(endTs, firstTimebase + i * rowsPerSplit * rollTime - 1);
+      result.add(new FactScan(splitStart, splitEnd, scan.getMeasureNames(), scan.getDimensionValues()));
+      splitStart = splitEnd + 1;
+    }
+    return result;
+  }
+
   private List<String> getSortedMeasures(Collection<String> measures) {
     Map<String, Long> measureToEntityMap = new HashMap<>();
     List<String> measureNames = new ArrayList<>();
@@ -477,6 +559,34 @@ public final class FactTable implements Closeable {
     return new FuzzyRowFilter(ImmutableList.of(new ImmutablePair<>(startRow, fuzzyRowMask)));
   }
 
+  /**
+   * Adds a value to a cell. If the cell is going to be put with a gauge value, the value is added to the gauge
+   * value instead, which gives the same result as doing the put followed by the increment.
+   */
+  private static void inc(NavigableMap<byte[], NavigableMap<byte[], Long>> gaugesTable,
+                          NavigableMap<byte[], NavigableMap<byte[], Long>> incrementsTable,
+                          byte[] rowKey, byte[] column, long value) {
+    NavigableMap<byte[], Long> gauges = gaugesTable.get(rowKey);
+    if (gauges != null && gauges.containsKey(column)) {
+      inc(gaugesTable, rowKey, column, value);
+    } else {
+      inc(incrementsTable, rowKey, column, value);
+    }
+  }
+
+  /**
+   * Sets a gauge value to a cell. Any pending increment to the cell is dropped, since the gauge value overwrites it.
+   */
+  private static void gauge(NavigableMap<byte[], NavigableMap<byte[], Long>> gaugesTable,
+                            NavigableMap<byte[], NavigableMap<byte[], Long>> incrementsTable,
+                            byte[] rowKey, byte[] column, long value) {
+    gaugesTable.computeIfAbsent(rowKey, k -> Maps.newTreeMap(Bytes.BYTES_COMPARATOR)).put(column, value);
+    NavigableMap<byte[], Long> increments = incrementsTable.get(rowKey);
+    if (increments != null && increments.remove(column) != null && increments.isEmpty()) {
+      incrementsTable.remove(rowKey);
+    }
+  }
+
   // todo: shouldn't we aggregate "before" writing to FactTable? We could do it really efficient outside
   //       also: the underlying datasets will do aggregation in memory anyways
   private static void inc(NavigableMap<byte[], NavigableMap<byte[], Long>> incrementsTable,
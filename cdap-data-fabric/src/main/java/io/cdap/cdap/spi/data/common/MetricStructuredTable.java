@@ -66,6 +66,25 @@ public class MetricStructuredTable implements StructuredTable {
     }
   }
 
+  @Override
+  public void multiUpsert(Collection<? extends Collection<Field<?>>> multiFields)
+    throws InvalidFieldException, IOException {
+    try {
+      if (!emitTimeMetrics) {
+        structuredTable.multiUpsert(multiFields);
+      } else {
+        long curTime = System.nanoTime();
+        structuredTable.multiUpsert(multiFields);
+        long duration = System.nanoTime() - curTime;
+        metricsCollector.increment(metricPrefix + "multi.upsert.time", duration);
+      }
+      metricsCollector.increment(metricPrefix + "multi.upsert.count", 1L);
+    } catch (Exception e) {
+      metricsCollector.increment(metricPrefix + "multi.upsert.error", 1L);
+      throw e;
+    }
+  }
+
   @Override
   public void update(Collection<Field<?>> fields) throws InvalidFieldException, IOException {
     try {
@@ -263,6 +282,25 @@ public class MetricStructuredTable implements StructuredTable {
     }
   }
 
+  @Override
+  public void multiDelete(Collection<? extends Collection<Field<?>>> multiKeys)
+    throws InvalidFieldException, IOException {
+    try {
+      if (!emitTimeMetrics) {
+        structuredTable.multiDelete(multiKeys);
+      } else {
+        long curTime = System.nanoTime();
+        structuredTable.multiDelete(multiKeys);
+        long duration = System.nanoTime() - curTime;
+        metricsCollector.increment(metricPrefix + "multi.delete.time", duration);
+      }
+      metricsCollector.increment(metricPrefix + "multi.delete.count", 1L);
+    } catch (Exception e) {
+      metricsCollector.increment(metricPrefix + "multi.delete.error", 1L);
+      throw e;
+    }
+  }
+
   @Override
   public void deleteAll(Range keyRange) throws InvalidFieldException, IOException {
     try {
@@ -40,6 +40,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
@@ -77,6 +78,18 @@ public final class NoSqlStructuredTable implements StructuredTable {
     table.put(convertFieldsToBytes(fields));
   }
 
+  @Override
+  public void multiUpsert(Collection<? extends Collection<Field<?>>> multiFields) throws InvalidFieldException {
+    LOG.trace("Table {}: Write multiple fields {}", schema.getTableId(), multiFields);
+    // Convert all the rows first, such that nothing is written if any of them is invalid.
+    // The puts are buffered by the transaction and are persisted together on commit.
+    List<Put> puts = new ArrayList<>(multiFields.size());
+    for (Collection<Field<?>> fields : multiFields) {
+      puts.add(convertFieldsToBytes(fields));
+    }
+    puts.forEach(table::put);
+  }
+
   @Override
   public void update(Collection<Field<?>> fields) throws InvalidFieldException {
     LOG.trace("Table {}: Update fields {}", schema.getTableId(), fields);
@@ -225,6 +238,16 @@ public final class NoSqlStructuredTable implements StructuredTable {
     table.delete(convertKeyToBytes(keys, false));
   }
 
+  @Override
+  public void multiDelete(Collection<? extends Collection<Field<?>>> multiKeys) throws InvalidFieldException {
+    LOG.trace("Table {}: Delete with multiple keys {}", schema.getTableId(), multiKeys);
+    List<byte[]> rows = new ArrayList<>(multiKeys.size());
+    for (Collection<Field<?>> keys : multiKeys) {
+      rows.add(convertKeyToBytes(keys, false));
+    }
+    rows.forEach(table::delete);
+  }
+
   @Override
   public void deleteAll(Range keyRange) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: DeleteAll with range {}", schema.getTableId(), keyRange);
@@ -17,6 +17,7 @@
 package io.cdap.cdap.spi.data.sql;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.Iterables;
 import io.cdap.cdap.api.dataset.lib.AbstractCloseableIterator;
 import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.spi.data.InvalidFieldException;
@@ -61,6 +62,11 @@ import javax.annotation.Nullable;
 public class PostgreSqlStructuredTable implements StructuredTable {
   private static final Logger LOG = LoggerFactory.getLogger(PostgreSqlStructuredTable.class);
   private static final int SCAN_FETCH_SIZE = 100;
+  // Maximum number of bind parameters in a statement supported by the PostgreSQL protocol
+  private static final int MAX_BIND_PARAMETERS = Short.MAX_VALUE;
+  // Maximum number of keys in the IN list of a multi read query. Long IN lists of tuples also exceed the stack depth
+  // limit of the PostgreSQL server when planning the query.
+  private static final int MAX_MULTI_READ_KEYS = 1000;
 
   private final Connection connection;
   private final StructuredTableSchema tableSchema;
@@ -75,24 +81,39 @@ public class PostgreSqlStructuredTable implements StructuredTable {
   @Override
   public void upsert(Collection<Field<?>> fields) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: Write fields {}", tableSchema.getTableId(), fields);
-    Set<String> fieldNames = fields.stream().map(Field::getName).collect(Collectors.toSet());
-    if (!fieldNames.containsAll(tableSchema.getPrimaryKeys())) {
-      throw new InvalidFieldException(tableSchema.getTableId(), fields,
-                                      String.format("Given fields %s do not contain all the " +
-                                                      "primary keys %s", fieldNames, tableSchema.getPrimaryKeys()));
-    }
+    validateContainsPrimaryKeys(fields);
     upsertInternal(fields);
   }
 
+  @Override
+  public void multiUpsert(Collection<? extends Collection<Field<?>>> multiFields)
+    throws InvalidFieldException, IOException {
+    LOG.trace("Table {}: Write multiple fields {}", tableSchema.getTableId(), multiFields);
+    List<Collection<Field<?>>> batch = new ArrayList<>();
+    String batchQuery = null;
+    try {
+      // Consecutive rows with the same fields are written with one statement in a batch, to keep the write order
+      for (Collection<Field<?>> fields : multiFields) {
+        validateContainsPrimaryKeys(fields);
+        String sqlQuery = getWriteSqlQuery(fields, null);
+        if (!sqlQuery.equals(batchQuery)) {
+          executeBatch(batchQuery, batch);
+          batch.clear();
+          batchQuery = sqlQuery;
+        }
+        batch.add(fields);
+      }
+      executeBatch(batchQuery, batch);
+    } catch (SQLException e) {
+      throw new IOException(String.format("Failed to write to table %s with multiple fields %s",
+                                          tableSchema.getTableId().getName(), multiFields), e);
+    }
+  }
+
   @Override
   public void update(Collection<Field<?>> fields) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: Update fields {}", tableSchema.getTableId(), fields);
-    Set<String> fieldNames = fields.stream().map(Field::getName).collect(Collectors.toSet());
-    if (!fieldNames.containsAll(tableSchema.getPrimaryKeys())) {
-      throw new InvalidFieldException(tableSchema.getTableId(), fields,
-                                      String.format("Given fields %s do not contain all the " +
-                                                      "primary keys %s", fieldNames, tableSchema.getPrimaryKeys()));
-    }
+    validateContainsPrimaryKeys(fields);
     updateInternal(fields);
   }
 
@@ -127,21 +148,21 @@ public class PostgreSqlStructuredTable implements StructuredTable {
       fieldValidator.validatePrimaryKeys(keys, false);
     }
 
-    // Collapse values of each key
-    Map<String, Set<Field<?>>> keyFields = new LinkedHashMap<>();
-    multiKeys.stream()
-      .flatMap(Collection::stream)
-      .forEach(field -> keyFields.computeIfAbsent(field.getName(), k -> new LinkedHashSet<>()).add(field));
-
-    try (PreparedStatement statement = prepareMultiReadQuery(keyFields)) {
-      LOG.trace("SQL statement: {}", statement);
-      Collection<StructuredRow> result = new ArrayList<>();
-      try (ResultSet resultSet = statement.executeQuery()) {
-        while (resultSet.next()) {
-          result.add(resultSetToRow(resultSet));
+    // Each key binds one parameter per primary key, hence query in batches to stay within the limits
+    int batchSize = Math.min(MAX_MULTI_READ_KEYS, MAX_BIND_PARAMETERS / tableSchema.getPrimaryKeys().size());
+    Collection<StructuredRow> result = new ArrayList<>();
+    try {
+      for (List<? extends Collection<Field<?>>> batch : Iterables.partition(multiKeys, batchSize)) {
+        try (PreparedStatement statement = prepareMultiReadQuery(batch)) {
+          LOG.trace("SQL statement: {}", statement);
+          try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+              result.add(resultSetToRow(resultSet));
+            }
+          }
         }
-        return result;
       }
+      return result;
     } catch (SQLException e) {
       throw new IOException(String.format("Failed to read from table %s with multi keys %s",
                                           tableSchema.getTableId().getName(), multiKeys), e);
@@ -149,33 +170,31 @@ public class PostgreSqlStructuredTable implements StructuredTable {
   }
 
   /**
-   * Creates a SELECT query that fetches rows from a given set of keys.
+   * Creates a SELECT query that fetches rows from a given set of keys. The keys are matched as tuples of all the
+   * primary keys, such that only the rows of the given keys are returned. E.g.
+   *
+   * SELECT * FROM table WHERE (key1,key2) IN ((?,?),(?,?));
    *
-   * @param keyFields a map from field name to set of field values to query
+   * @param multiKeys a collection of the primary keys of the rows to query
    * @return a SELECT query ready to be used for creating prepared statement
    */
-  private PreparedStatement prepareMultiReadQuery(Map<String, Set<Field<?>>> keyFields) throws SQLException {
-    StringBuilder queryString =
-      new StringBuilder("SELECT ")
-        .append("*")
-        .append(" FROM ")
-        .append(tableSchema.getTableId().getName())
-        .append(" WHERE ");
-
-    Joiner.on(" AND ").appendTo(
-      queryString, keyFields.entrySet().stream()
-        .map(e -> {
-          StringBuilder fieldBuilder = new StringBuilder(e.getKey()).append(" IN (");
-          Joiner.on(',').appendTo(fieldBuilder, IntStream.range(0, e.getValue().size()).mapToObj(i -> "?").iterator());
-          return fieldBuilder.append(")").toString();
-        }).iterator()
-    );
-    queryString.append(";");
-
-    PreparedStatement preparedStatement = connection.prepareStatement(queryString.toString());
-
-    // Set fields to the statement
-    setFields(preparedStatement, keyFields.values().stream().flatMap(Collection::stream)::iterator, 1);
+  private PreparedStatement prepareMultiReadQuery(Collection<? extends Collection<Field<?>>> multiKeys)
+    throws SQLException {
+    List<String> primaryKeys = tableSchema.getPrimaryKeys();
+    String tuple = primaryKeys.stream().map(k -> "?").collect(Collectors.joining(",", "(", ")"));
+    String queryString = "SELECT * FROM " + tableSchema.getTableId().getName()
+      + " WHERE " + primaryKeys.stream().collect(Collectors.joining(",", "(", ")"))
+      + " IN " + IntStream.range(0, multiKeys.size()).mapToObj(i -> tuple).collect(Collectors.joining(",", "(", ")"))
+      + ";";
+
+    PreparedStatement preparedStatement = connection.prepareStatement(queryString);
+
+    // Set fields to the statement, in the order of the primary keys
+    int index = 1;
+    for (Collection<Field<?>> keys : multiKeys) {
+      Map<String, Field<?>> keyFields = keys.stream().collect(Collectors.toMap(Field::getName, f -> f));
+      index = setFields(preparedStatement, primaryKeys.stream().map(keyFields::get)::iterator, index);
+    }
     return preparedStatement;
   }
 
@@ -453,6 +472,31 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     }
   }
 
+  @Override
+  public void multiDelete(Collection<? extends Collection<Field<?>>> multiKeys)
+    throws InvalidFieldException, IOException {
+    LOG.trace("Table {}: Delete with multiple keys {}", tableSchema.getTableId(), multiKeys);
+    List<Collection<Field<?>>> batch = new ArrayList<>();
+    String batchQuery = null;
+    try {
+      // Consecutive keys with the same fields order are deleted with one statement in a batch
+      for (Collection<Field<?>> keys : multiKeys) {
+        fieldValidator.validatePrimaryKeys(keys, false);
+        String sqlQuery = getDeleteQuery(keys);
+        if (!sqlQuery.equals(batchQuery)) {
+          executeBatch(batchQuery, batch);
+          batch.clear();
+          batchQuery = sqlQuery;
+        }
+        batch.add(keys);
+      }
+      executeBatch(batchQuery, batch);
+    } catch (SQLException e) {
+      throw new IOException(String.format("Failed to delete the rows from table %s with multiple keys %s",
+                                          tableSchema.getTableId().getName(), multiKeys), e);
+    }
+  }
+
   @Override
   public void deleteAll(Range keyRange) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: DeleteAll with range {}", tableSchema.getTableId(), keyRange);
@@ -501,6 +545,33 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     }
   }
 
+  private void validateContainsPrimaryKeys(Collection<Field<?>> fields) throws InvalidFieldException {
+    Set<String> fieldNames = fields.stream().map(Field::getName).collect(Collectors.toSet());
+    if (!fieldNames.containsAll(tableSchema.getPrimaryKeys())) {
+      throw new InvalidFieldException(tableSchema.getTableId(), fields,
+                                      String.format("Given fields %s do not contain all the " +
+                                                      "primary keys %s", fieldNames, tableSchema.getPrimaryKeys()));
+    }
+  }
+
+  /**
+   * Executes the given sql statement once for each of the given list of fields, in one batch.
+   * Nothing is executed if the list is empty.
+   */
+  private void executeBatch(@Nullable String sqlQuery, List<Collection<Field<?>>> batch) throws SQLException {
+    if (sqlQuery == null || batch.isEmpty()) {
+      return;
+    }
+    try (PreparedStatement statement = connection.prepareStatement(sqlQuery)) {
+      for (Collection<Field<?>> fields : batch) {
+        setFields(statement, fields, 1);
+        statement.addBatch();
+      }
+      LOG.trace("SQL statement: {} with a batch of {} rows", sqlQuery, batch.size());
+      statement.executeBatch();
+    }
+  }
+
   private void upsertInternal(Collection<Field<?>> fields) throws IOException {
     String sqlQuery = getWriteSqlQuery(fields, null);
     try (PreparedStatement statement = connection.prepareStatement(sqlQuery)) {
@@ -899,8 +970,8 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     @Override
     public void close() {
       try {
-        statement.close();
         resultSet.close();
+        statement.close();
       } catch (SQLException e) {
         LOG.warn("Failed to close the result set", e);
       }
@@ -214,6 +214,36 @@ public abstract class AbstractCubeTest {
 
   }
 
+  @Test
+  public void testQueryAcrossRows() throws Exception {
+    Aggregation agg = new DefaultAggregation(ImmutableList.of("dim1", "dim2"));
+
+    int resolution = 1;
+    Cube cube = getCube("myAcrossRowsCube", new int[] {resolution}, ImmutableMap.of("agg", agg));
+
+    // write data spanning many hours, hence many rows and time range splits of the query
+    List<TimeValue> expected1 = new ArrayList<>();
+    List<TimeValue> expected2 = new ArrayList<>();
+    for (long ts = 100; ts < 20 * 3600; ts += 1700) {
+      writeInc(cube, "metric1", ts, 1, "1", "1");
+      writeInc(cube, "metric1", ts, 2, "1", "2");
+      writeInc(cube, "metric1", ts, 3, "2", "1");
+      expected1.add(new TimeValue(ts, 3));
+      expected2.add(new TimeValue(ts, 3));
+    }
+
+    verifyCountQuery(cube, 0, 20 * 3600, resolution, "metric1", AggregationFunction.SUM,
+                     ImmutableMap.of(), ImmutableList.of("dim1"),
+                     ImmutableList.of(new TimeSeries("metric1", ImmutableMap.of("dim1", "1"), expected1),
+                                      new TimeSeries("metric1", ImmutableMap.of("dim1", "2"), expected2)));
+
+    // query a time range that doesn't start or end at row boundaries
+    verifyCountQuery(cube, 5000, 10 * 3600 + 10, resolution, "metric1", AggregationFunction.SUM,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.of(),
+                     ImmutableList.of(new TimeSeries("metric1", ImmutableMap.of(),
+                                                     expected1.subList(3, 22))));
+  }
+
   @Test
   public void testGauges() throws Exception {
     Aggregation agg1 = new DefaultAggregation(ImmutableList.of("dim1"));
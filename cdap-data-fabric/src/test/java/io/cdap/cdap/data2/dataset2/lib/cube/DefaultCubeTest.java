@@ -16,14 +16,26 @@
 
 package io.cdap.cdap.data2.dataset2.lib.cube;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.api.dataset.lib.cube.AggregationFunction;
 import io.cdap.cdap.api.dataset.lib.cube.Cube;
+import io.cdap.cdap.api.dataset.lib.cube.CubeFact;
+import io.cdap.cdap.api.dataset.lib.cube.CubeQuery;
+import io.cdap.cdap.api.dataset.lib.cube.MeasureType;
+import io.cdap.cdap.api.dataset.lib.cube.TimeSeries;
+import io.cdap.cdap.api.dataset.lib.cube.TimeValue;
 import io.cdap.cdap.data2.dataset2.lib.table.inmemory.InMemoryMetricsTable;
 import io.cdap.cdap.data2.dataset2.lib.table.inmemory.InMemoryTableService;
 import io.cdap.cdap.data2.dataset2.lib.timeseries.EntityTable;
 import io.cdap.cdap.data2.dataset2.lib.timeseries.FactTable;
+import org.junit.Assert;
+import org.junit.Test;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -32,7 +44,43 @@ public class DefaultCubeTest extends AbstractCubeTest {
 
   @Override
   protected Cube getCube(final String name, int[] resolutions, Map<String, ? extends Aggregation> aggregations) {
-    FactTableSupplier supplier = (resolution, rollTime) -> {
+    return new DefaultCube(resolutions, getFactTableSupplier(name), aggregations,
+                           ImmutableMap.<String, AggregationAlias>of());
+  }
+
+  @Test
+  public void testMaxRecordsToScan() throws Exception {
+    // The query reads one record for every hour, and it is split into four scans of two hours each
+    int maxRecords = 3;
+    try (DefaultCube cube = new DefaultCube(new int[] { 1 }, getFactTableSupplier("maxRecordsCube"),
+                                            ImmutableMap.of("agg", new DefaultAggregation(ImmutableList.of("dim"))),
+                                            ImmutableMap.of(), maxRecords)) {
+      long hour = TimeUnit.HOURS.toSeconds(1);
+      for (int i = 0; i < 8; i++) {
+        cube.add(new CubeFact(i * hour).addDimensionValue("dim", "a").addMeasurement("metric", MeasureType.COUNTER, i));
+      }
+
+      CubeQuery query = CubeQuery.builder()
+        .select().measurement("metric", AggregationFunction.SUM)
+        .from("agg").resolution(1, TimeUnit.SECONDS)
+        .where().dimensions(ImmutableMap.of()).timeRange(0, 8 * hour)
+        .groupBy().dimensions(ImmutableList.of("dim"))
+        .limit(Integer.MAX_VALUE)
+        .build();
+
+      // Regardless of which scans finish first, the result has the records of the earliest hours
+      List<TimeValue> expected = ImmutableList.of(new TimeValue(0, 0), new TimeValue(hour, 1),
+                                                  new TimeValue(2 * hour, 2));
+      for (int i = 0; i < 20; i++) {
+        Collection<TimeSeries> result = cube.query(query);
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(expected, result.iterator().next().getTimeValues());
+      }
+    }
+  }
+
+  private FactTableSupplier getFactTableSupplier(String name) {
+    return (resolution, rollTime) -> {
       String entityTableName = "EntityTable-" + name;
       InMemoryTableService.create(entityTableName);
       String dataTableName = "DataTable-" + name + "-" + resolution;
@@ -42,7 +90,5 @@ public class DefaultCubeTest extends AbstractCubeTest {
                            resolution, rollTime);
 
     };
-
-    return new DefaultCube(resolutions, supplier, aggregations, ImmutableMap.<String, AggregationAlias>of());
   }
 }
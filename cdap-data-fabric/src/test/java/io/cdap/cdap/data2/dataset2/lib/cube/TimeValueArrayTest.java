@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.dataset2.lib.cube;
+
+import com.google.common.collect.ImmutableList;
+import io.cdap.cdap.api.dataset.lib.cube.AggregationFunction;
+import io.cdap.cdap.api.dataset.lib.cube.TimeValue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Unit test for {@link TimeValueArray}.
+ */
+public class TimeValueArrayTest {
+
+  @Test
+  public void testCombine() {
+    // Values added as multiple ascending runs, like rows of different dimension values of the same series
+    long[][] runs = {{1, 2, 3, 5}, {2, 3, 4}, {1, 5}};
+
+    TimeValueArray sum = new TimeValueArray(AggregationFunction.SUM);
+    TimeValueArray max = new TimeValueArray(AggregationFunction.MAX);
+    TimeValueArray min = new TimeValueArray(AggregationFunction.MIN);
+    TimeValueArray latest = new TimeValueArray(AggregationFunction.LATEST);
+    for (int i = 0; i < runs.length; i++) {
+      for (long ts : runs[i]) {
+        long value = ts * 10 + i;
+        sum.add(ts, value);
+        max.add(ts, value);
+        min.add(ts, value);
+        latest.add(ts, value);
+      }
+    }
+
+    Assert.assertEquals(timeValues(1, 22, 2, 41, 3, 61, 4, 41, 5, 102), sum.asList(Integer.MAX_VALUE));
+    Assert.assertEquals(timeValues(1, 12, 2, 21, 3, 31, 4, 41, 5, 52), max.asList(Integer.MAX_VALUE));
+    Assert.assertEquals(timeValues(1, 10, 2, 20, 3, 30, 4, 41, 5, 50), min.asList(Integer.MAX_VALUE));
+    Assert.assertEquals(timeValues(1, 12, 2, 21, 3, 31, 4, 41, 5, 52), latest.asList(Integer.MAX_VALUE));
+    Assert.assertEquals(timeValues(1, 12, 2, 21), latest.asList(2));
+  }
+
+  @Test
+  public void testRandomOrder() {
+    Random random = new Random();
+    TimeValueArray array = new TimeValueArray(AggregationFunction.SUM);
+    TreeMap<Long, Long> expected = new TreeMap<>();
+    for (int i = 0; i < 10000; i++) {
+      long ts = random.nextInt(1000);
+      long value = random.nextInt(100);
+      array.add(ts, value);
+      expected.merge(ts, value, Long::sum);
+    }
+
+    List<TimeValue> expectedValues = new ArrayList<>();
+    expected.forEach((ts, value) -> expectedValues.add(new TimeValue(ts, value)));
+    Assert.assertEquals(expectedValues, array.asList(Integer.MAX_VALUE));
+  }
+
+  @Test
+  public void testAddAll() {
+    TimeValueArray first = new TimeValueArray(AggregationFunction.SUM);
+    first.add(2, 2);
+    first.add(1, 1);
+    TimeValueArray second = new TimeValueArray(AggregationFunction.SUM);
+    second.add(4, 4);
+    second.add(3, 3);
+    second.add(4, 4);
+
+    first.addAll(second);
+    Assert.assertEquals(4, first.size());
+    Assert.assertEquals(timeValues(1, 1, 2, 2, 3, 3, 4, 8), first.asList(Integer.MAX_VALUE));
+  }
+
+  @Test
+  public void testPartition() {
+    TimeValueArray array = new TimeValueArray(AggregationFunction.SUM);
+    for (int ts = 1; ts <= 11; ts++) {
+      array.add(ts, ts);
+    }
+
+    // 11 values into 3 groups of 3 values, with the first 2 values dropped
+    Assert.assertEquals(timeValues(5, 12, 8, 21, 11, 30),
+                        array.partition(3, AggregationFunction.SUM).asList(Integer.MAX_VALUE));
+    Assert.assertEquals(timeValues(5, 5, 8, 8, 11, 11),
+                        array.partition(3, AggregationFunction.LATEST).asList(Integer.MAX_VALUE));
+  }
+
+  private List<TimeValue> timeValues(long... longs) {
+    ImmutableList.Builder<TimeValue> timeValues = ImmutableList.builder();
+    for (int i = 0; i < longs.length; i += 2) {
+      timeValues.add(new TimeValue(longs[i], longs[i + 1]));
+    }
+    return timeValues.build();
+  }
+}
@@ -24,6 +24,8 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import io.cdap.cdap.api.Predicate;
 import io.cdap.cdap.api.dataset.DataSetException;
+import io.cdap.cdap.api.dataset.DatasetProperties;
+import io.cdap.cdap.api.dataset.InstanceConflictException;
 import io.cdap.cdap.api.dataset.PartitionNotFoundException;
 import io.cdap.cdap.api.dataset.lib.FileSet;
 import io.cdap.cdap.api.dataset.lib.FileSetArguments;
@@ -41,7 +43,11 @@ import io.cdap.cdap.api.dataset.lib.Partitioning;
 import io.cdap.cdap.api.dataset.table.TableProperties;
 import io.cdap.cdap.common.io.Locations;
 import io.cdap.cdap.common.namespace.NamespacePathLocator;
+import io.cdap.cdap.data.dataset.SystemDatasetInstantiator;
 import io.cdap.cdap.data2.dataset2.DatasetFrameworkTestUtil;
+import io.cdap.cdap.data2.dataset2.DynamicDatasetCache;
+import io.cdap.cdap.data2.dataset2.SingleThreadDatasetCache;
+import io.cdap.cdap.data2.transaction.Transactions;
 import io.cdap.cdap.proto.id.DatasetId;
 import io.cdap.cdap.test.SlowTests;
 import org.apache.hadoop.security.UserGroupInformation;
@@ -1038,6 +1044,91 @@ public class PartitionedFileSetTest {
 
   }
 
+  @Test
+  public void testPartitionKeyIndex() throws Exception {
+    DatasetId instance = DatasetFrameworkTestUtil.NAMESPACE_ID.dataset("indexed");
+    Map<String, String> properties = new HashMap<>(PartitionedFileSetProperties.builder()
+      .setPartitioning(PARTITIONING_1)
+      .setPartitionKeyIndexEnabled(false)
+      .build().getProperties());
+    dsFrameworkUtil.createInstance("partitionedFileSet", instance, DatasetProperties.of(properties));
+    try {
+      Assert.assertEquals("false", dsFrameworkUtil.getSpec(instance)
+        .getProperty(PartitionedFileSetProperties.PARTITION_KEY_INDEX_COMPLETE));
+      final Set<BasicPartition> allPartitionDetails = new HashSet<>();
+      addPartitions(dsFrameworkUtil.<PartitionedFileSet>getInstance(instance), allPartitionDetails, 0, 2);
+
+      // enable the index: partitions added from now on are indexed, but the existing ones are not
+      properties.put(PartitionedFileSetProperties.PARTITION_KEY_INDEX, "true");
+      dsFrameworkUtil.getFramework().updateInstance(instance, DatasetProperties.of(properties));
+      Assert.assertEquals("false", dsFrameworkUtil.getSpec(instance)
+        .getProperty(PartitionedFileSetProperties.PARTITION_KEY_INDEX_COMPLETE));
+      addPartitions(dsFrameworkUtil.<PartitionedFileSet>getInstance(instance), allPartitionDetails, 2, 3);
+      testFilter(dsFrameworkUtil.<PartitionedFileSet>getInstance(instance), allPartitionDetails,
+                 PartitionFilter.builder().addValueCondition("i", 100).build());
+
+      // index the existing partitions and mark the index as complete, so that it is used for the filters
+      DynamicDatasetCache datasetCache = new SingleThreadDatasetCache(
+        new SystemDatasetInstantiator(dsFrameworkUtil.getFramework()), txClient, DatasetFrameworkTestUtil.NAMESPACE_ID,
+        Collections.<String, String>emptyMap(), null, null);
+      PartitionedFileSetDataset.reindexPartitions(Transactions.createTransactional(datasetCache),
+                                                  instance.getEntityName(), 5);
+      datasetCache.close();
+      properties.put(PartitionedFileSetProperties.PARTITION_KEY_INDEX_COMPLETE, "true");
+      dsFrameworkUtil.getFramework().updateInstance(instance, DatasetProperties.of(properties));
+      Assert.assertEquals("true", dsFrameworkUtil.getSpec(instance)
+        .getProperty(PartitionedFileSetProperties.PARTITION_KEY_INDEX_COMPLETE));
+
+      // updates that do not mention the index keep it
+      properties.remove(PartitionedFileSetProperties.PARTITION_KEY_INDEX);
+      properties.remove(PartitionedFileSetProperties.PARTITION_KEY_INDEX_COMPLETE);
+      dsFrameworkUtil.getFramework().updateInstance(instance, DatasetProperties.of(properties));
+      Assert.assertEquals("true", dsFrameworkUtil.getSpec(instance)
+        .getProperty(PartitionedFileSetProperties.PARTITION_KEY_INDEX_COMPLETE));
+
+      List<PartitionFilter> filters = generateFilters();
+      testAllFilters(dsFrameworkUtil.<PartitionedFileSet>getInstance(instance), allPartitionDetails, filters);
+
+      // the index cannot be disabled
+      properties.put(PartitionedFileSetProperties.PARTITION_KEY_INDEX, "false");
+      try {
+        dsFrameworkUtil.getFramework().updateInstance(instance, DatasetProperties.of(properties));
+        Assert.fail("Expected InstanceConflictException");
+      } catch (InstanceConflictException e) {
+        // expected
+      }
+    } finally {
+      dsFrameworkUtil.deleteInstance(instance);
+    }
+  }
+
+  /**
+   * Adds the partitions for all values of "i" and "l", and the values of "s" in the given range, to a dataset.
+   */
+  private void addPartitions(final PartitionedFileSet dataset, final Set<BasicPartition> allPartitionDetails,
+                             final int startS, final int endS) throws Exception {
+    dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset).execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        for (int s = startS; s < endS; s++) {
+          for (int i = 0; i < 4; i++) {
+            for (int l = 0; l < 4; l++) {
+              PartitionKey key = PartitionKey.builder()
+                .addField("s", String.format("%c-%d", 'a' + s, s))
+                .addField("i", i * 100)
+                .addField("l", 15L - 10 * l)
+                .build();
+              PartitionOutput output = dataset.getPartitionOutput(key);
+              output.addPartition();
+              allPartitionDetails.add(new BasicPartition((PartitionedFileSetDataset) dataset,
+                                                         output.getRelativePath(), output.getPartitionKey()));
+            }
+          }
+        }
+      }
+    });
+  }
+
   private void testAllFilters(PartitionedFileSet dataset,
                               Set<BasicPartition> allPartitionDetails,
                               List<PartitionFilter> filters) throws Exception {
@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.dataset2.lib.table.leveldb;
+
+import io.cdap.cdap.api.common.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link KeyValueKeyCodec}.
+ */
+public class KeyValueKeyCodecTest {
+
+  private static final KeyValue.Type[] TYPES = {
+    KeyValue.Type.Put, KeyValue.Type.Delete, KeyValue.Type.Maximum, KeyValue.Type.Minimum
+  };
+  private static final long[] TIMESTAMPS = { Long.MIN_VALUE, -1L, 0L, 1L, 1000L, Long.MAX_VALUE };
+
+  @Test
+  public void testRoundTrip() {
+    Random random = new Random(0);
+    for (int i = 0; i < 10000; i++) {
+      byte[] key = randomKey(random);
+      Assert.assertArrayEquals(key, KeyValueKeyCodec.INSTANCE.decode(KeyValueKeyCodec.INSTANCE.encode(key)));
+    }
+  }
+
+  @Test
+  public void testOrder() {
+    Random random = new Random(0);
+    List<byte[]> keys = new ArrayList<>();
+    List<byte[]> encodedKeys = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      byte[] key = randomKey(random);
+      keys.add(key);
+      encodedKeys.add(KeyValueKeyCodec.INSTANCE.encode(key));
+    }
+    for (int i = 0; i < keys.size(); i++) {
+      byte[] left = keys.get(i);
+      for (int j = 0; j < keys.size(); j++) {
+        byte[] right = keys.get(j);
+        int expected = Integer.signum(KeyValue.KEY_COMPARATOR.compare(left, right));
+        int actual = Integer.signum(Bytes.compareTo(encodedKeys.get(i), encodedKeys.get(j)));
+        // The comparator considers every key without column and with the minimum type to be larger
+        if (expected != actual && !(isLastInRow(left) && isLastInRow(right))) {
+          Assert.fail(KeyValue.fromKey(left) + " vs " + KeyValue.fromKey(right) + " expected " + expected);
+        }
+      }
+    }
+  }
+
+  private static boolean isLastInRow(byte[] key) {
+    KeyValue kv = KeyValue.fromKey(key);
+    return kv.getFamily().length == 0 && kv.getQualifier().length == 0
+      && kv.getType() == KeyValue.Type.Minimum.getCode();
+  }
+
+  private static byte[] randomKey(Random random) {
+    byte[] family = random.nextInt(4) == 0 ? new byte[] { 0x00 } : new byte[0];
+    return KeyValue.getKey(randomBytes(random), family, randomBytes(random),
+                           TIMESTAMPS[random.nextInt(TIMESTAMPS.length)], TYPES[random.nextInt(TYPES.length)]);
+  }
+
+  /**
+   * Returns short byte arrays from a small alphabet that includes the escape and terminator bytes,
+   * so that there are many common prefixes.
+   */
+  private static byte[] randomBytes(Random random) {
+    byte[] alphabet = { 0x00, 0x01, 0x02, (byte) 0xFF, 'a' };
+    byte[] bytes = new byte[random.nextInt(4)];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = alphabet[random.nextInt(alphabet.length)];
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.dataset2.lib.table.leveldb;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.utils.DirUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A multi-threaded benchmark for {@link LevelDBTableCore} increments. Each thread increments either its own
+ * rows or a row shared by all threads. The "serialized" mode runs every increment under one table wide lock,
+ * which is how increments were executed before row locks were introduced. It is not run as part of the unit tests.
+ *
+ * Usage: {@code LevelDBTableCoreBenchmark [threads] [increments per thread]}
+ */
+public final class LevelDBTableCoreBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int numThreads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+    int numIncrements = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+
+    File dir = Files.createTempDirectory("leveldb-benchmark").toFile();
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_DATA_LEVELDB_DIR, dir.getAbsolutePath());
+    cConf.setBoolean(Constants.CFG_DATA_LEVELDB_FSYNC, false);
+
+    LevelDBTableService service = new LevelDBTableService();
+    service.setConfiguration(cConf);
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      // Run twice to have the first round as warm up
+      for (int round = 0; round < 2; round++) {
+        System.out.println("Round " + round);
+        for (boolean shared : new boolean[] {false, true}) {
+          for (boolean serialized : new boolean[] {true, false}) {
+            String tableName = String.format("bench%d%s%s", round, shared ? "Shared" : "", serialized ? "Lock" : "");
+            service.ensureTableExists(tableName);
+            long elapsed = run(executor, service, tableName, numThreads, numIncrements, shared, serialized);
+            System.out.printf("  %-10s %-10s %12.0f increments/s%n", shared ? "shared" : "disjoint",
+                              serialized ? "serialized" : "row locks",
+                              numThreads * numIncrements * 1e9d / elapsed);
+          }
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+      service.close();
+      DirUtils.deleteDirectoryContents(dir);
+    }
+  }
+
+  private static long run(ExecutorService executor, LevelDBTableService service, String tableName,
+                          int numThreads, int numIncrements, boolean shared, boolean serialized) throws Exception {
+    Object tableLock = new Object();
+    CyclicBarrier barrier = new CyclicBarrier(numThreads + 1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < numThreads; t++) {
+      byte[] row = Bytes.toBytes(shared ? "shared" : "row" + t);
+      futures.add(executor.submit(() -> {
+        LevelDBTableCore core = new LevelDBTableCore(tableName, service);
+        byte[] column = Bytes.toBytes("c");
+        barrier.await();
+        for (int i = 0; i < numIncrements; i++) {
+          if (serialized) {
+            synchronized (tableLock) {
+              core.increment(row, Collections.singletonMap(column, 1L));
+            }
+          } else {
+            core.increment(row, Collections.singletonMap(column, 1L));
+          }
+        }
+        return null;
+      }));
+    }
+    barrier.await();
+    long startTime = System.nanoTime();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    return System.nanoTime() - startTime;
+  }
+}
@@ -16,6 +16,8 @@
 
 package io.cdap.cdap.data2.dataset2.lib.table.leveldb;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import io.cdap.cdap.api.common.Bytes;
@@ -41,8 +43,19 @@ import org.junit.rules.TemporaryFolder;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 
@@ -210,6 +223,49 @@ public class LevelDBTableCoreTest {
     }
   }
 
+  @Test
+  public void testDeleteRange() throws Exception {
+    String tableName = "testDeleteRangeTable";
+    service.ensureTableExists(tableName);
+    LevelDBTableCore table = new LevelDBTableCore(tableName, service);
+    writeData(table, rowNamePrefix, 10, colName, 16, 4);
+    writeData(table, rowNamePrefix, 10, "otherCol", 16, 1);
+
+    // Delete ranges with open start, closed range and open end
+    table.deleteRange(null, Bytes.toBytes(getRowName(rowNamePrefix, 1)), null, null);
+    table.deleteRange(Bytes.toBytes(getRowName(rowNamePrefix, 3)), Bytes.toBytes(getRowName(rowNamePrefix, 5)),
+                      null, null);
+    table.deleteRange(Bytes.toBytes(getRowName(rowNamePrefix, 8)), null, null, null);
+    // Delete one column only from a range
+    table.deleteRange(Bytes.toBytes(getRowName(rowNamePrefix, 6)), Bytes.toBytes(getRowName(rowNamePrefix, 8)),
+                      null, new byte[][] { Bytes.toBytes(colName) });
+
+    Map<String, Set<String>> remaining = new TreeMap<>();
+    try (Scanner scanner = table.scan(null, null, null, null, null)) {
+      Row row;
+      while ((row = scanner.next()) != null) {
+        Set<String> columns = new TreeSet<>();
+        row.getColumns().keySet().forEach(column -> columns.add(Bytes.toString(column)));
+        remaining.put(Bytes.toString(row.getRow()), columns);
+      }
+    }
+
+    Set<String> allColumns = ImmutableSet.of(colName, "otherCol");
+    Map<String, Set<String>> expected = ImmutableMap.of(getRowName(rowNamePrefix, 1), allColumns,
+                                                        getRowName(rowNamePrefix, 2), allColumns,
+                                                        getRowName(rowNamePrefix, 5), allColumns,
+                                                        getRowName(rowNamePrefix, 6), ImmutableSet.of("otherCol"),
+                                                        getRowName(rowNamePrefix, 7), ImmutableSet.of("otherCol"));
+    Assert.assertEquals(expected, remaining);
+
+    // Deleting everything leaves an empty table
+    table.deleteRange(null, null, null, null);
+    try (Scanner scanner = table.scan(null, null, null, null, null)) {
+      Assert.assertNull(scanner.next());
+    }
+    service.dropTable(tableName);
+  }
+
   @Test
   public void testDelete() throws Exception {
     String tableName = "testDeleteTable";
@@ -276,6 +332,69 @@ public class LevelDBTableCoreTest {
     }
   }
 
+  @Test
+  public void testConcurrentReadModifyWrite() throws Exception {
+    String tableName = "testConcurrentTable";
+    service.ensureTableExists(tableName);
+
+    int numThreads = 8;
+    int numIterations = 200;
+    byte[] sharedRow = Bytes.toBytes("shared");
+    byte[] col = Bytes.toBytes(colName);
+    byte[] swapCol = Bytes.toBytes("swap");
+
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      CyclicBarrier barrier = new CyclicBarrier(numThreads);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < numThreads; t++) {
+        byte[] ownRow = Bytes.toBytes(getRowName(rowNamePrefix, t));
+        futures.add(executor.submit(() -> {
+          // Each thread uses its own table core, same as having multiple dataset instances of the same table
+          LevelDBTableCore table = new LevelDBTableCore(tableName, service);
+          barrier.await();
+          for (int i = 0; i < numIterations; i++) {
+            table.increment(sharedRow, Collections.singletonMap(col, 1L));
+
+            NavigableMap<byte[], NavigableMap<byte[], Long>> updates = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+            for (byte[] row : new byte[][] { sharedRow, ownRow }) {
+              NavigableMap<byte[], Long> increments = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+              increments.put(col, 1L);
+              updates.put(row, increments);
+            }
+            table.increment(updates);
+
+            // Compare and swap increment
+            while (true) {
+              byte[] oldValue = table.getRow(sharedRow, new byte[][] { swapCol }, null, null, -1, null).get(swapCol);
+              byte[] newValue = Bytes.toBytes(oldValue == null ? 1L : Bytes.toLong(oldValue) + 1);
+              if (table.swap(sharedRow, swapCol, oldValue, newValue)) {
+                break;
+              }
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(1, TimeUnit.MINUTES);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    LevelDBTableCore table = new LevelDBTableCore(tableName, service);
+    Map<byte[], byte[]> shared = table.getRow(sharedRow, null, null, null, -1, null);
+    Assert.assertEquals(2L * numThreads * numIterations, Bytes.toLong(shared.get(col)));
+    Assert.assertEquals((long) numThreads * numIterations, Bytes.toLong(shared.get(swapCol)));
+    for (int t = 0; t < numThreads; t++) {
+      byte[] ownRow = Bytes.toBytes(getRowName(rowNamePrefix, t));
+      Assert.assertEquals((long) numIterations,
+                          Bytes.toLong(table.getRow(ownRow, null, null, null, -1, null).get(col)));
+    }
+    service.dropTable(tableName);
+  }
+
   /**
    * Write the given value as the latest at the target row and col.
    */
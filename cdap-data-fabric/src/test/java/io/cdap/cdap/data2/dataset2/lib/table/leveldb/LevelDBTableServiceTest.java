@@ -42,9 +42,11 @@ import org.junit.rules.TemporaryFolder;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
 /**
  *
@@ -148,6 +150,41 @@ public class LevelDBTableServiceTest {
     Assert.assertTrue(uncompressedDiskSizeBytes > compressedDiskSizeBytes);
   }
 
+  @Test
+  public void testRowLocksBeforeConfiguration() throws Exception {
+    // The row locks can be used without any configuration, with the default number of stripes
+    LevelDBTableService tableService = LevelDBTableService.getInstance();
+    byte[] row = Bytes.toBytes("row");
+    Lock lock = tableService.getRowLock("table", row);
+    Assert.assertSame(lock, tableService.getRowLocks("table", Collections.singleton(row)).iterator().next());
+    tableService.close();
+
+    // Until they are used, the row locks are created again with the configured number of stripes
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_LOCAL_DATA_DIR, tmpFolder.newFolder().getAbsolutePath());
+    cConf.setInt(Constants.CFG_DATA_LEVELDB_ROW_LOCK_STRIPES, 1);
+    tableService = LevelDBTableService.getInstance();
+    tableService.setConfiguration(cConf);
+    Assert.assertSame(tableService.getRowLock("table1", row), tableService.getRowLock("table2", Bytes.toBytes(1)));
+    tableService.close();
+  }
+
+  @Test
+  public void testRowLocksNotReplaced() throws Exception {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_LOCAL_DATA_DIR, tmpFolder.newFolder().getAbsolutePath());
+    LevelDBTableService tableService = LevelDBTableService.getInstance();
+    tableService.setConfiguration(cConf);
+    byte[] row = Bytes.toBytes("row");
+    Lock lock = tableService.getRowLock("table", row);
+
+    // Configuring again must keep the locks that can be held by callers
+    cConf.setInt(Constants.CFG_DATA_LEVELDB_ROW_LOCK_STRIPES, 4);
+    tableService.setConfiguration(cConf);
+    Assert.assertSame(lock, tableService.getRowLock("table", row));
+    tableService.close();
+  }
+
   @Test
   public void testCompactTables() throws Exception {
     String tableName = "cdap_default.testCompactTables";
@@ -58,8 +58,16 @@ public class LevelDBTableTest extends BufferingTableTest<LevelDBTable> {
 
   @BeforeClass
   public static void init() throws Exception {
+    init(Constants.LocalStorageEngine.LEVELDB);
+  }
+
+  /**
+   * Creates the {@link LevelDBTableService} for the tests, using the given storage engine.
+   */
+  static void init(Constants.LocalStorageEngine engine) throws Exception {
     cConf = CConfiguration.create();
     cConf.set(Constants.CFG_LOCAL_DATA_DIR, tmpFolder.newFolder().getAbsolutePath());
+    cConf.setEnum(Constants.CFG_DATA_LEVELDB_ENGINE, engine);
     Injector injector = Guice.createInjector(
       new ConfigModule(cConf),
       new NonCustomLocationUnitTestModule(),
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.dataset2.lib.table.leveldb;
+
+import com.google.common.collect.ImmutableList;
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.messaging.store.leveldb.RocksDBFactory;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.impl.Iq80DBFactory;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Tests for {@link LevelDBToRocksDBMigrationTool}.
+ */
+public class LevelDBToRocksDBMigrationToolTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testMigrate() throws Exception {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_LOCAL_DATA_DIR, TEMP_FOLDER.newFolder().getAbsolutePath());
+
+    // Write a dataset table with LevelDB
+    LevelDBTableService levelDBService = new LevelDBTableService();
+    levelDBService.setConfiguration(cConf);
+    levelDBService.ensureTableExists("ns.table");
+    LevelDBTableCore levelDBTable = new LevelDBTableCore("ns.table", levelDBService);
+    for (int i = 0; i < 2500; i++) {
+      levelDBTable.put(Bytes.toBytes("row" + i), Bytes.toBytes("col"), Bytes.toBytes(i), 1L);
+    }
+    levelDBService.close();
+
+    // Write a messaging table with LevelDB, together with a plain file
+    File messagingDir = new File(cConf.get(Constants.MessagingSystem.LOCAL_DATA_DIR));
+    File topicDir = new File(messagingDir, "topic");
+    try (DB db = Iq80DBFactory.factory.open(new File(topicDir, "0"), new Options().createIfMissing(true))) {
+      db.put(Bytes.toBytes("key"), Bytes.toBytes("value"));
+    }
+    Files.write(new File(topicDir, "meta").toPath(), "meta".getBytes(StandardCharsets.UTF_8));
+
+    new LevelDBToRocksDBMigrationTool(cConf).migrate();
+
+    // Read the dataset table with RocksDB
+    CConfiguration rocksDBConf = CConfiguration.copy(cConf);
+    rocksDBConf.setEnum(Constants.CFG_DATA_LEVELDB_ENGINE, Constants.LocalStorageEngine.ROCKSDB);
+    LevelDBTableService rocksDBService = new LevelDBTableService();
+    rocksDBService.setConfiguration(rocksDBConf);
+    try {
+      Assert.assertEquals(ImmutableList.of("ns.table"), ImmutableList.copyOf(rocksDBService.list()));
+      LevelDBTableCore rocksDBTable = new LevelDBTableCore("ns.table", rocksDBService);
+      for (int i = 0; i < 2500; i++) {
+        Assert.assertArrayEquals(Bytes.toBytes(i),
+                                 rocksDBTable.get(Bytes.toBytes("row" + i), Bytes.toBytes("col"), 1L));
+      }
+    } finally {
+      rocksDBService.close();
+    }
+
+    // Read the messaging table with RocksDB
+    File messagingRocksDBDir = new File(cConf.get(Constants.MessagingSystem.LOCAL_DATA_ROCKSDB_DIR));
+    try (RocksDBFactory factory = new RocksDBFactory(1024 * 1024);
+         DB db = factory.open(new File(messagingRocksDBDir, "topic/0"), new Options())) {
+      Assert.assertArrayEquals(Bytes.toBytes("value"), db.get(Bytes.toBytes("key")));
+    }
+    Assert.assertEquals("meta", new String(Files.readAllBytes(new File(messagingRocksDBDir, "topic/meta").toPath()),
+                                           StandardCharsets.UTF_8));
+
+    // Migrating again must fail instead of overwriting
+    try {
+      new LevelDBToRocksDBMigrationTool(cConf).migrate();
+      Assert.fail("Expected IOException");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+}
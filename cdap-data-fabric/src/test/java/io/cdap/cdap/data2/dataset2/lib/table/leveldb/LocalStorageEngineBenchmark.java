@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.dataset2.lib.table.leveldb;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.dataset.table.Row;
+import io.cdap.cdap.api.dataset.table.Scanner;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.utils.DirUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * A benchmark that compares the {@link Constants.LocalStorageEngine}s for {@link LevelDBTableCore} operations.
+ * The range delete removes the first 90% of the rows, followed by a scan over the remaining rows, which shows the
+ * cost of skipping deleted rows before they are compacted. It is not run as part of the unit tests.
+ *
+ * Usage: {@code LocalStorageEngineBenchmark [rows] [increments]}
+ */
+public final class LocalStorageEngineBenchmark {
+
+  private static final int BATCH_SIZE = 1000;
+  private static final byte[] COLUMN = Bytes.toBytes("c");
+
+  public static void main(String[] args) throws Exception {
+    int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int numIncrements = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+
+    // Run twice to have the first round as warm up
+    for (int round = 0; round < 2; round++) {
+      System.out.println("Round " + round);
+      for (Constants.LocalStorageEngine engine : Constants.LocalStorageEngine.values()) {
+        File dir = Files.createTempDirectory("storage-benchmark").toFile();
+        CConfiguration cConf = CConfiguration.create();
+        cConf.set(Constants.CFG_DATA_LEVELDB_DIR, new File(dir, "ldb").getAbsolutePath());
+        cConf.set(Constants.CFG_DATA_ROCKSDB_DIR, new File(dir, "rocksdb").getAbsolutePath());
+        cConf.setBoolean(Constants.CFG_DATA_LEVELDB_FSYNC, false);
+        cConf.setEnum(Constants.CFG_DATA_LEVELDB_ENGINE, engine);
+
+        LevelDBTableService service = new LevelDBTableService();
+        service.setConfiguration(cConf);
+        try {
+          service.ensureTableExists("bench");
+          run(engine, new LevelDBTableCore("bench", service), numRows, numIncrements);
+        } finally {
+          service.close();
+          DirUtils.deleteDirectoryContents(dir);
+        }
+      }
+    }
+  }
+
+  private static void run(Constants.LocalStorageEngine engine, LevelDBTableCore core,
+                          int numRows, int numIncrements) throws Exception {
+    long startTime = System.nanoTime();
+    for (int i = 0; i < numRows; i += BATCH_SIZE) {
+      Map<byte[], Map<byte[], byte[]>> changes = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      for (int j = i; j < Math.min(numRows, i + BATCH_SIZE); j++) {
+        changes.put(getRow(j), Collections.singletonMap(COLUMN, Bytes.toBytes((long) j)));
+      }
+      core.persist(changes, 1L);
+    }
+    report(engine, "put", numRows, System.nanoTime() - startTime);
+
+    startTime = System.nanoTime();
+    int count = scan(core, null);
+    report(engine, "scan", count, System.nanoTime() - startTime);
+
+    Random random = new Random(0);
+    startTime = System.nanoTime();
+    for (int i = 0; i < numIncrements; i++) {
+      core.increment(getRow(random.nextInt(numRows)), Collections.singletonMap(COLUMN, 1L));
+    }
+    report(engine, "increment", numIncrements, System.nanoTime() - startTime);
+
+    byte[] deleteStopRow = getRow(numRows / 10 * 9);
+    startTime = System.nanoTime();
+    core.deleteRange(null, deleteStopRow, null, null);
+    report(engine, "deleteRange", numRows / 10 * 9, System.nanoTime() - startTime);
+
+    startTime = System.nanoTime();
+    count = scan(core, null);
+    report(engine, "scan after delete", count, System.nanoTime() - startTime);
+  }
+
+  private static int scan(LevelDBTableCore core, byte[] startRow) throws Exception {
+    int count = 0;
+    try (Scanner scanner = core.scan(startRow, null, null, null, null)) {
+      Row row = scanner.next();
+      while (row != null) {
+        count++;
+        row = scanner.next();
+      }
+    }
+    return count;
+  }
+
+  private static byte[] getRow(int i) {
+    return Bytes.toBytes(String.format("row%010d", i));
+  }
+
+  private static void report(Constants.LocalStorageEngine engine, String operation, int count, long elapsed) {
+    System.out.printf("  %-8s %-18s %8d rows %10.1f ms %12.0f rows/s%n", engine, operation, count,
+                      elapsed / 1e6d, count * 1e9d / elapsed);
+  }
+}
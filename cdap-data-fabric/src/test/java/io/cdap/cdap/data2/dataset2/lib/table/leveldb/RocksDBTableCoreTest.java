@@ -0,0 +1,42 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.dataset2.lib.table.leveldb;
+
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+
+/**
+ * Runs the {@link LevelDBTableCoreTest} with RocksDB as the storage engine.
+ */
+public class RocksDBTableCoreTest extends LevelDBTableCoreTest {
+
+  @BeforeClass
+  public static void init() throws Exception {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_LOCAL_DATA_DIR, tmpFolder.newFolder().getAbsolutePath());
+    cConf.setEnum(Constants.CFG_DATA_LEVELDB_ENGINE, Constants.LocalStorageEngine.ROCKSDB);
+    service = new LevelDBTableService();
+    service.setConfiguration(cConf);
+  }
+
+  @AfterClass
+  public static void finish() {
+    service.close();
+  }
+}
@@ -15,12 +15,21 @@
  */
 package io.cdap.cdap.data2.dataset2.lib.timeseries;
 
+import com.google.common.collect.ImmutableList;
+import io.cdap.cdap.api.dataset.table.Scanner;
+import io.cdap.cdap.api.metrics.MetricsCollector;
+import io.cdap.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
 import io.cdap.cdap.data2.dataset2.lib.table.MetricsTable;
 import io.cdap.cdap.data2.dataset2.lib.table.inmemory.InMemoryMetricsTable;
 import io.cdap.cdap.data2.dataset2.lib.table.inmemory.InMemoryTableService;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
 /**
  *
  */
@@ -91,4 +100,139 @@ public class EntityTableTest {
       Assert.assertEquals("app" + i, entityTable.getName(i, "app"));
     }
   }
+
+  @Test
+  public void testLoadNames() throws Exception {
+    InMemoryTableService.create("testLoadNames");
+    CountingMetricsTable table = new CountingMetricsTable("testLoadNames");
+
+    EntityTable entityTable = new EntityTable(table);
+    for (int i = 1; i <= 50; i++) {
+      Assert.assertEquals((long) i, entityTable.getId("run", "run" + i));
+    }
+
+    // Use a new EntityTable to start with empty caches
+    entityTable = new EntityTable(table);
+    RecordingMetricsCollector metrics = new RecordingMetricsCollector();
+    entityTable.setMetricsCollector(metrics);
+    table.reset();
+
+    // Ids 1-20 and 30-40 are close enough to be loaded by one scan. Id 1000 is far away and doesn't exist.
+    ImmutableList.Builder<Long> ids = ImmutableList.builder();
+    for (long i = 1; i <= 20; i++) {
+      ids.add(i);
+    }
+    for (long i = 30; i <= 40; i++) {
+      ids.add(i);
+    }
+    ids.add(0L, 1000L);
+    entityTable.loadNames("run", ids.build());
+    Assert.assertEquals(1, table.getScanCount());
+    Assert.assertEquals(0, table.getGetCount());
+
+    // All loaded names should be served from the cache
+    for (long id : ids.build()) {
+      if (id != 0 && id != 1000) {
+        Assert.assertEquals("run" + id, entityTable.getName(id, "run"));
+      }
+    }
+    Assert.assertEquals(0, table.getGetCount());
+
+    // Ids skipped over by the scan are not cached
+    Assert.assertEquals("run25", entityTable.getName(25, "run"));
+    Assert.assertEquals(1, table.getGetCount());
+
+    entityTable.emitMetrics();
+    Assert.assertEquals(31L, metrics.get("entityTable.cache.hit.count"));
+    Assert.assertEquals(1L, metrics.get("entityTable.cache.miss.count"));
+
+    // Loading again doesn't read the table
+    entityTable.loadNames("run", ids.build());
+    Assert.assertEquals(1, table.getScanCount());
+  }
+
+  @Test
+  public void testCacheEviction() throws Exception {
+    InMemoryTableService.create("testCacheEviction");
+    MetricsTable table = new InMemoryMetricsTable("testCacheEviction");
+
+    // A small cache that can only hold a few entries
+    EntityTable entityTable = new EntityTable(table, EntityTable.MAX_ID_COUNT, 1024);
+    RecordingMetricsCollector metrics = new RecordingMetricsCollector();
+    entityTable.setMetricsCollector(metrics);
+
+    for (int i = 1; i <= 100; i++) {
+      Assert.assertEquals((long) i, entityTable.getId("app", "app" + i));
+    }
+    // Evicted names are loaded from the table again
+    for (int i = 1; i <= 100; i++) {
+      Assert.assertEquals("app" + i, entityTable.getName(i, "app"));
+      Assert.assertEquals((long) i, entityTable.getId("app", "app" + i));
+    }
+
+    entityTable.emitMetrics();
+    Assert.assertTrue(metrics.get("entityTable.cache.eviction.count") > 0);
+    Assert.assertTrue(metrics.get("entityTable.cache.miss.count") > 100);
+  }
+
+  /**
+   * A {@link MetricsTable} that counts the number of reads.
+   */
+  private static final class CountingMetricsTable extends InMemoryMetricsTable {
+
+    private final AtomicInteger getCount = new AtomicInteger();
+    private final AtomicInteger scanCount = new AtomicInteger();
+
+    CountingMetricsTable(String name) {
+      super(name);
+    }
+
+    @Nullable
+    @Override
+    public byte[] get(byte[] row, byte[] column) {
+      getCount.incrementAndGet();
+      return super.get(row, column);
+    }
+
+    @Override
+    public Scanner scan(@Nullable byte[] start, @Nullable byte[] stop, @Nullable FuzzyRowFilter filter) {
+      scanCount.incrementAndGet();
+      return super.scan(start, stop, filter);
+    }
+
+    int getGetCount() {
+      return getCount.get();
+    }
+
+    int getScanCount() {
+      return scanCount.get();
+    }
+
+    void reset() {
+      getCount.set(0);
+      scanCount.set(0);
+    }
+  }
+
+  /**
+   * A {@link MetricsCollector} that sums up the incremented values.
+   */
+  private static final class RecordingMetricsCollector implements MetricsCollector {
+
+    private final Map<String, Long> values = new HashMap<>();
+
+    @Override
+    public void increment(String metricName, long value) {
+      values.merge(metricName, value, Long::sum);
+    }
+
+    @Override
+    public void gauge(String metricName, long value) {
+      values.put(metricName, value);
+    }
+
+    long get(String metricName) {
+      return values.getOrDefault(metricName, 0L);
+    }
+  }
 }
@@ -38,6 +38,7 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -631,6 +632,103 @@ public class FactTableTest {
     }
   }
 
+  @Test
+  public void testBuffered() throws Exception {
+    String tableName = "testBufferedTable";
+    String entityTableName = "testBufferedEntityTable";
+    InMemoryTableService.create(tableName);
+    InMemoryTableService.create(entityTableName);
+    int resolution = 5;
+
+    FactTable table = new FactTable(new InMemoryMetricsTable(tableName),
+                                    new EntityTable(new InMemoryMetricsTable(entityTableName)), resolution, 3600);
+    FactTableMetricsCollector metricsCollector = new FactTableMetricsCollector(resolution);
+    table.setMetricsCollector(metricsCollector);
+
+    long ts = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) / resolution * resolution;
+    List<DimensionValue> dims = dimValues("dim1", "value1");
+
+    // Increments to the same cell from multiple batches should be merged
+    for (int i = 1; i <= 3; i++) {
+      table.addBuffered(ImmutableList.of(new Fact(ts, dims, new Measurement("counter", MeasureType.COUNTER, i))));
+    }
+    // The first increment of a newer timestamp is written as a gauge, subsequent increments should add to it
+    for (int i = 1; i <= 3; i++) {
+      table.addBuffered(ImmutableList.of(new Fact(ts + resolution, dims,
+                                                  new Measurement("counter", MeasureType.COUNTER, i))));
+    }
+    // Only the last gauge value should be written
+    for (int i = 1; i <= 3; i++) {
+      table.addBuffered(ImmutableList.of(new Fact(ts, dims, new Measurement("gauge", MeasureType.GAUGE, i))));
+    }
+
+    // Nothing should be written before flush
+    Table<String, List<DimensionValue>, List<TimeValue>> expected = HashBasedTable.create();
+    assertScan(table, expected, new FactScan(ts - resolution, ts + 2 * resolution, "counter", dims));
+    Assert.assertEquals(0, metricsCollector.getLastIncrementSize());
+    Assert.assertEquals(0, metricsCollector.getLastGaugeSize());
+
+    table.flush();
+    expected.put("counter", dims, timeValues(ts, resolution, 6, 6));
+    assertScan(table, expected, new FactScan(ts - resolution, ts + 2 * resolution, "counter", dims));
+    expected.clear();
+    expected.put("gauge", dims, timeValues(ts, resolution, 3));
+    assertScan(table, expected, new FactScan(ts - resolution, ts + 2 * resolution, "gauge", dims));
+
+    // Flush without buffered facts should not write anything
+    metricsCollector.increment("factTable." + resolution + ".put.count", -1);
+    table.flush();
+    Assert.assertEquals(-1, metricsCollector.getLastGaugeSize());
+
+    // Buffered facts should be written before facts added without buffering
+    table.addBuffered(ImmutableList.of(new Fact(ts, dims, new Measurement("gauge", MeasureType.GAUGE, 10))));
+    table.add(ImmutableList.of(new Fact(ts, dims, new Measurement("gauge", MeasureType.COUNTER, 5))));
+    expected.clear();
+    expected.put("gauge", dims, timeValues(ts, resolution, 15));
+    assertScan(table, expected, new FactScan(ts - resolution, ts + 2 * resolution, "gauge", dims));
+  }
+
+  @Test
+  public void testSplit() throws Exception {
+    String tableName = "testSplitTable";
+    String entityTableName = "testSplitEntityTable";
+    InMemoryTableService.create(tableName);
+    InMemoryTableService.create(entityTableName);
+    int resolution = 1;
+    int rollTime = 3600;
+
+    FactTable table = new FactTable(new InMemoryMetricsTable(tableName),
+                                    new EntityTable(new InMemoryMetricsTable(entityTableName)), resolution, rollTime);
+    List<DimensionValue> dims = dimValues("dim1", "value1");
+
+    // A scan within a single row is not split
+    FactScan scan = new FactScan(100, 3000, "metric", dims);
+    Assert.assertEquals(Collections.singletonList(scan), table.split(scan, 4));
+
+    // A scan across 10 rows is split into 4 scans of whole rows
+    scan = new FactScan(100, 10 * rollTime - 100, "metric", dims);
+    List<FactScan> splits = table.split(scan, 4);
+    Assert.assertEquals(4, splits.size());
+    long expectedStart = scan.getStartTs();
+    for (FactScan split : splits) {
+      Assert.assertEquals(expectedStart, split.getStartTs());
+      Assert.assertEquals(scan.getMeasureNames(), split.getMeasureNames());
+      Assert.assertEquals(scan.getDimensionValues(), split.getDimensionValues());
+      if (split != splits.get(splits.size() - 1)) {
+        Assert.assertEquals(0, (split.getEndTs() + 1) % rollTime);
+      }
+      expectedStart = split.getEndTs() + 1;
+    }
+    Assert.assertEquals(scan.getEndTs(), splits.get(splits.size() - 1).getEndTs());
+
+    // A scan across 2 rows is split into 2 scans
+    scan = new FactScan(3000, rollTime + 100, "metric", dims);
+    splits = table.split(scan, 4);
+    Assert.assertEquals(2, splits.size());
+    Assert.assertEquals(rollTime - 1, splits.get(0).getEndTs());
+    Assert.assertEquals(rollTime, splits.get(1).getStartTs());
+  }
+
   private List<TimeValue> timeValues(long ts, int resolution, long... values) {
     List<TimeValue> timeValues = Lists.newArrayList();
     for (int i = 0; i < values.length; i++) {
@@ -28,6 +28,7 @@ import java.lang.reflect.Array;
 import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
 
@@ -308,9 +309,18 @@ public class StructuredRecordDatumWriter implements DatumWriter<StructuredRecord
       throw new IOException("Expected StructuredRecord type. Got: " + record.getClass());
     }
 
+    StructuredRecord structuredRecord = (StructuredRecord) record;
     encodeRecordBegin(encoder, recordSchema);
-    for (Schema.Field field : recordSchema.getFields()) {
-      encodeRecordField(encoder, field, ((StructuredRecord) record).get(field.getName()));
+    List<Schema.Field> fields = recordSchema.getFields();
+    // Lookup values by position if the record has the same schema, otherwise lookup by name
+    if (recordSchema.equals(structuredRecord.getSchema())) {
+      for (int i = 0; i < fields.size(); i++) {
+        encodeRecordField(encoder, fields.get(i), structuredRecord.get(i));
+      }
+    } else {
+      for (Schema.Field field : fields) {
+        encodeRecordField(encoder, field, structuredRecord.get(field.getName()));
+      }
     }
     encodeRecordEnd(encoder, recordSchema);
   }
@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.format;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A benchmark for the build, get and serialize costs of {@link StructuredRecord}. A {@link HashMap} of the same
+ * fields is measured as the baseline, which is how records were stored before. It is not run as part of the unit tests.
+ *
+ * Usage: {@code StructuredRecordBenchmark [fields] [records]}
+ */
+public final class StructuredRecordBenchmark {
+
+  private static volatile Object sink;
+
+  public static void main(String[] args) throws Exception {
+    int numFields = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+    int numRecords = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+
+    List<Schema.Field> fields = new ArrayList<>();
+    for (int i = 0; i < numFields; i++) {
+      fields.add(Schema.Field.of("field" + i, i % 2 == 0 ? Schema.of(Schema.Type.LONG)
+        : Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    }
+    Schema schema = Schema.recordOf("record", fields);
+    String[] names = new String[numFields];
+    Object[] values = new Object[numFields];
+    for (int i = 0; i < numFields; i++) {
+      names[i] = fields.get(i).getName();
+      values[i] = i % 2 == 0 ? (Object) (long) i : "value" + i;
+    }
+
+    // Run twice to have the first round as warm up
+    for (int round = 0; round < 2; round++) {
+      System.out.println("Round " + round);
+      time("build map", numRecords, () -> {
+        for (int r = 0; r < numRecords; r++) {
+          Map<String, Object> map = new HashMap<>();
+          for (int i = 0; i < numFields; i++) {
+            map.put(names[i], values[i]);
+          }
+          sink = map;
+        }
+      });
+      time("build by name", numRecords, () -> {
+        for (int r = 0; r < numRecords; r++) {
+          StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+          for (int i = 0; i < numFields; i++) {
+            builder.set(names[i], values[i]);
+          }
+          sink = builder.build();
+        }
+      });
+      time("build by position", numRecords, () -> {
+        for (int r = 0; r < numRecords; r++) {
+          StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+          for (int i = 0; i < numFields; i++) {
+            builder.set(i, values[i]);
+          }
+          sink = builder.build();
+        }
+      });
+
+      Map<String, Object> map = new HashMap<>();
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+      for (int i = 0; i < numFields; i++) {
+        map.put(names[i], values[i]);
+        builder.set(i, values[i]);
+      }
+      StructuredRecord record = builder.build();
+
+      time("get map", numRecords, () -> {
+        for (int r = 0; r < numRecords; r++) {
+          for (int i = 0; i < numFields; i++) {
+            sink = map.get(names[i]);
+          }
+        }
+      });
+      time("get by name", numRecords, () -> {
+        for (int r = 0; r < numRecords; r++) {
+          for (int i = 0; i < numFields; i++) {
+            sink = record.get(names[i]);
+          }
+        }
+      });
+      time("get by position", numRecords, () -> {
+        for (int r = 0; r < numRecords; r++) {
+          for (int i = 0; i < numFields; i++) {
+            sink = record.get(i);
+          }
+        }
+      });
+
+      int numSerialize = Math.max(1, numRecords / 10);
+      time("serialize map", numSerialize, () -> sink = serialize(new HashMap<>(map), numSerialize));
+      time("serialize record", numSerialize, () -> sink = serialize(record, numSerialize));
+      time("serialize record json", numSerialize, () -> {
+        for (int r = 0; r < numSerialize; r++) {
+          sink = StructuredRecordStringConverter.toJsonString(record);
+        }
+      });
+      System.out.println("Java serialized size: map=" + serialize(new HashMap<>(map), 1)
+                           + " bytes, record (with schema)=" + serialize(record, 1) + " bytes");
+    }
+  }
+
+  /**
+   * Java serializes the given object the given number of times and returns the size of one serialized copy.
+   */
+  private static int serialize(Object obj, int times) throws IOException {
+    int size = 0;
+    for (int i = 0; i < times; i++) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+        oos.writeObject(obj);
+      }
+      size = bos.size();
+    }
+    return size;
+  }
+
+  private static void time(String name, int count, Task task) throws Exception {
+    long startTime = System.nanoTime();
+    task.run();
+    long elapsed = System.nanoTime() - startTime;
+    System.out.printf("  %-22s %8.1f ns per record%n", name, (double) elapsed / count);
+  }
+
+  /**
+   * A benchmark task.
+   */
+  private interface Task {
+    void run() throws Exception;
+  }
+}
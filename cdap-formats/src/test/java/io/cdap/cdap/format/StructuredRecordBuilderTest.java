@@ -24,6 +24,10 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.text.SimpleDateFormat;
@@ -33,6 +37,7 @@ import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.Base64;
 import java.util.Date;
 import java.util.TimeZone;
 
@@ -235,6 +240,94 @@ public class StructuredRecordBuilderTest {
     Assert.assertNull(record.getDecimal("d"));
   }
 
+  @Test
+  public void testPositionalAccess() {
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("a", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("b", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("c", Schema.of(Schema.Type.LONG)));
+    Assert.assertEquals(1, schema.getFieldIndex("b"));
+    Assert.assertEquals(-1, schema.getFieldIndex("d"));
+
+    StructuredRecord record = StructuredRecord.builder(schema).set(2, 3L).set("a", 1).build();
+    Assert.assertEquals(1, (int) record.get(0));
+    Assert.assertNull(record.get(1));
+    Assert.assertEquals(3L, (long) record.get("c"));
+    Assert.assertEquals(record, StructuredRecord.builder(schema).set("a", 1).set("c", 3L).build());
+    Assert.assertEquals(record.hashCode(),
+                        StructuredRecord.builder(schema).set("a", 1).set("c", 3L).build().hashCode());
+  }
+
+  @Test
+  public void testPositionalSetInvalid() {
+    Schema schema = Schema.recordOf("record", Schema.Field.of("a", Schema.of(Schema.Type.INT)));
+    thrown.expect(UnexpectedFormatException.class);
+    StructuredRecord.builder(schema).set(1, 1);
+  }
+
+  @Test
+  public void testPositionalSetNull() {
+    Schema schema = Schema.recordOf("record", Schema.Field.of("a", Schema.of(Schema.Type.INT)));
+    thrown.expect(UnexpectedFormatException.class);
+    StructuredRecord.builder(schema).set(0, null);
+  }
+
+  @Test
+  public void testMissingNonNullableField() {
+    Schema schema = Schema.recordOf("x", Schema.Field.of("x", Schema.unionOf(
+      Schema.of(Schema.Type.NULL),
+      Schema.of(Schema.Type.INT),
+      Schema.of(Schema.Type.LONG))));
+    thrown.expect(UnexpectedFormatException.class);
+    StructuredRecord.builder(schema).build();
+  }
+
+  @Test
+  public void testJavaSerialization() throws Exception {
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("a", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("b", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    StructuredRecord record = StructuredRecord.builder(schema).set("a", 1).set("b", "b").build();
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(record);
+    }
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+      StructuredRecord copy = (StructuredRecord) ois.readObject();
+      Assert.assertEquals(record, copy);
+      Assert.assertEquals("b", copy.get("b"));
+    }
+  }
+
+  @Test
+  public void testJavaDeserializationOfMapForm() throws Exception {
+    // A record serialized when the values were kept in a map from field name to value
+    String serialized =
+      "rO0ABXNyAC1pby5jZGFwLmNkYXAuYXBpLmRhdGEuZm9ybWF0LlN0cnVjdHVyZWRSZWNvcmSlIaV2F/wmswIAAkwABmZpZWxkc3QA" +
+      "D0xqYXZhL3V0aWwvTWFwO0wABnNjaGVtYXQAJUxpby9jZGFwL2NkYXAvYXBpL2RhdGEvc2NoZW1hL1NjaGVtYTt4cHNyABFqYXZh" +
+      "LnV0aWwuSGFzaE1hcAUH2sHDFmDRAwACRgAKbG9hZEZhY3RvckkACXRocmVzaG9sZHhwP0AAAAAAAAx3CAAAABAAAAADdAAEbm90" +
+      "ZXB0AARuYW1ldAAEY2RhcHQABWNvdW50c3IAEWphdmEubGFuZy5JbnRlZ2VyEuKgpPeBhzgCAAFJAAV2YWx1ZXhyABBqYXZhLmxh" +
+      "bmcuTnVtYmVyhqyVHQuU4IsCAAB4cAAAAAN4c3IAMmlvLmNkYXAuY2RhcC5hcGkuZGF0YS5zY2hlbWEuU2NoZW1hJFNlcmlhbGl6" +
+      "ZWRGb3Jt3IMFoVsHpFECAAJMAARqc29udAASTGphdmEvbGFuZy9TdHJpbmc7TAAOc2NoZW1hQ2FjaGVTdHJxAH4ADnhwdACTeyJ0" +
+      "eXBlIjoicmVjb3JkIiwibmFtZSI6InJlY29yZCIsImZpZWxkcyI6W3sibmFtZSI6Im5hbWUiLCJ0eXBlIjoic3RyaW5nIn0seyJu" +
+      "YW1lIjoiY291bnQiLCJ0eXBlIjoiaW50In0seyJuYW1lIjoibm90ZSIsInR5cGUiOlsic3RyaW5nIiwibnVsbCJdfV19dAAgNkIz" +
+      "QTUxMDczRDNDMDk3NDI0MTFDRkREQjRCMEFBQTE=";
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("name", Schema.of(Schema.Type.STRING)),
+                                    Schema.Field.of("count", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("note", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    StructuredRecord expected = StructuredRecord.builder(schema).set("name", "cdap").set("count", 3).build();
+
+    byte[] bytes = Base64.getDecoder().decode(serialized);
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      StructuredRecord record = (StructuredRecord) ois.readObject();
+      Assert.assertEquals(expected, record);
+      Assert.assertEquals(3, (int) record.get(1));
+      Assert.assertNull(record.get("note"));
+    }
+  }
+
   @Test
   public void testGetNonExistentField() {
     Schema schema = Schema.recordOf("record", Schema.Field.of("x", Schema.of(Schema.LogicalType.DATE)));
@@ -18,10 +18,14 @@ package io.cdap.cdap.gateway.router;
 
 import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.api.metrics.NoopMetricsContext;
 import io.cdap.cdap.common.ServiceBindException;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
@@ -33,6 +37,8 @@ import io.cdap.cdap.gateway.router.handlers.AuthenticationHandler;
 import io.cdap.cdap.gateway.router.handlers.ConfigBasedRequestBlockingHandler;
 import io.cdap.cdap.gateway.router.handlers.HttpRequestRouter;
 import io.cdap.cdap.gateway.router.handlers.HttpStatusRequestHandler;
+import io.cdap.cdap.gateway.router.handlers.UpstreamConnectionPool;
+import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.security.auth.TokenValidator;
 import io.cdap.cdap.security.auth.UserIdentityExtractor;
 import io.cdap.cdap.security.impersonation.SecurityUtil;
@@ -44,6 +50,9 @@ import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
@@ -94,6 +103,8 @@ public class NettyRouter extends AbstractIdleService {
   private final UserIdentityExtractor userIdentityExtractor;
   private final boolean sslEnabled;
   private final DiscoveryServiceClient discoveryServiceClient;
+  private final boolean nativeTransport;
+  private MetricsCollectionService metricsCollectionService;
 
   private InetSocketAddress boundAddress;
   private Cancellable serverCancellable;
@@ -120,6 +131,16 @@ public class NettyRouter extends AbstractIdleService {
     this.port = sslEnabled
       ? cConf.getInt(Constants.Router.ROUTER_SSL_PORT)
       : cConf.getInt(Constants.Router.ROUTER_PORT);
+    this.nativeTransport = cConf.getBoolean(Constants.Router.NATIVE_TRANSPORT_ENABLED) && Epoll.isAvailable();
+  }
+
+  /**
+   * Optional guice injection for the {@link MetricsCollectionService} to emit metrics of the router.
+   * It is optional because the router doesn't emit metrics in some environments.
+   */
+  @Inject(optional = true)
+  void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    this.metricsCollectionService = metricsCollectionService;
   }
 
   /**
@@ -167,10 +188,25 @@ public class NettyRouter extends AbstractIdleService {
 
   private EventLoopGroup createEventLoopGroup(int size, String nameFormat) {
     ThreadFactory threadFactory = new ThreadFactoryBuilder().setDaemon(true).setNameFormat(nameFormat).build();
-    return new NioEventLoopGroup(size, threadFactory);
+    return nativeTransport ? new EpollEventLoopGroup(size, threadFactory) : new NioEventLoopGroup(size, threadFactory);
+  }
+
+  private MetricsContext createMetricsContext() {
+    if (metricsCollectionService == null) {
+      return new NoopMetricsContext();
+    }
+    return metricsCollectionService.getContext(ImmutableMap.of(
+      Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace(),
+      Constants.Metrics.Tag.COMPONENT, Constants.Service.GATEWAY));
   }
 
   private ServerBootstrap createServerBootstrap(final ChannelGroup channelGroup) {
+    if (nativeTransport) {
+      LOG.info("Using native epoll transport for Netty Router");
+    } else if (cConf.getBoolean(Constants.Router.NATIVE_TRANSPORT_ENABLED)) {
+      LOG.debug("Native epoll transport is not available, using NIO transport for Netty Router",
+                Epoll.unavailabilityCause());
+    }
     EventLoopGroup bossGroup = createEventLoopGroup(serverBossThreadPoolSize, "router-server-boss-thread-%d");
     EventLoopGroup workerGroup = createEventLoopGroup(serverWorkerThreadPoolSize, "router-server-worker-thread-%d");
 
@@ -201,9 +237,11 @@ public class NettyRouter extends AbstractIdleService {
     }
 
     SSLHandlerFactory finalSSLHandlerFactory = sslHandlerFactory;
+    // Connections to the internal services are shared by all inbound connections
+    UpstreamConnectionPool connectionPool = new UpstreamConnectionPool(cConf, createMetricsContext());
     return new ServerBootstrap()
       .group(bossGroup, workerGroup)
-      .channel(NioServerSocketChannel.class)
+      .channel(nativeTransport ? EpollServerSocketChannel.class : NioServerSocketChannel.class)
       .option(ChannelOption.SO_BACKLOG, serverConnectionBacklog)
       .childHandler(new ChannelInitializer<SocketChannel>() {
         @Override
@@ -227,7 +265,7 @@ public class NettyRouter extends AbstractIdleService {
           // Always let the client to continue sending the request body after the authentication passed
           pipeline.addLast("expect-continue", new HttpServerExpectContinueHandler());
           // for now there's only one hardcoded rule, but if there will be more, we may want it generic and configurable
-          pipeline.addLast("http-request-handler", new HttpRequestRouter(cConf, serviceLookup));
+          pipeline.addLast("http-request-handler", new HttpRequestRouter(cConf, serviceLookup, connectionPool));
         }
       });
   }
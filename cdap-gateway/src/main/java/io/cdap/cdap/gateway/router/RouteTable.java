@@ -0,0 +1,331 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.gateway.router;
+
+import com.google.common.base.Preconditions;
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * A table of path patterns, which is compiled once into a trie of path segments. A lookup returns the value of the
+ * first added pattern that matches the request path and method.
+ *
+ * A pattern is a {@code /} separated list of segments, where each segment is either
+ * <ul>
+ *   <li>a literal, which matches a path segment that is equal to it;</li>
+ *   <li>{@code *}, which matches any single path segment; or</li>
+ *   <li>{@code **}, which matches zero or more path segments.</li>
+ * </ul>
+ * Empty segments are ignored, both in patterns and in paths. A lookup walks the trie over the segments of the path
+ * in place, without splitting the path or allocating any object.
+ *
+ * {@link RouterPathLookup} and {@link RouterAuditLookUp} each build their own table, so they share this class but
+ * not the trie, and a request that is both routed and audited is looked up in two separate walks.
+ *
+ * @param <T> type of the values
+ */
+final class RouteTable<T> {
+
+  static final String WILDCARD = "*";
+  static final String MULTI_WILDCARD = "**";
+
+  private final Node<T> root;
+
+  static <T> Builder<T> builder() {
+    return new Builder<>();
+  }
+
+  private RouteTable(Node<T> root) {
+    this.root = root;
+  }
+
+  /**
+   * Returns the value of the first pattern that matches the given path and method, or {@code null} if there is none.
+   */
+  @Nullable
+  T lookup(String path, HttpMethod method) {
+    return lookup(path, path.length(), method);
+  }
+
+  /**
+   * Returns the value of the first pattern that matches the given path up to the given end index and method,
+   * or {@code null} if there is none.
+   */
+  @Nullable
+  T lookup(String path, int end, HttpMethod method) {
+    Entry<T> entry = find(root, path, 0, end, method, null);
+    return entry == null ? null : entry.value;
+  }
+
+  /**
+   * Returns the better one of the given entry and the entries of the patterns that match the path from the given
+   * position, starting from the given node.
+   */
+  @Nullable
+  private Entry<T> find(Node<T> node, String path, int pos, int end, HttpMethod method, @Nullable Entry<T> best) {
+    if (best != null && node.minPriority >= best.priority) {
+      return best;
+    }
+    pos = skipSlashes(path, pos, end);
+    if (pos == end) {
+      best = node.match(method, best);
+      return node.multiWildcard == null ? best : findMulti(node.multiWildcard, path, pos, end, method, best);
+    }
+
+    int segmentEnd = segmentEnd(path, pos, end);
+    Node<T> child = node.getChild(path, pos, segmentEnd);
+    if (child != null) {
+      best = find(child, path, segmentEnd, end, method, best);
+    }
+    if (node.wildcard != null) {
+      best = find(node.wildcard, path, segmentEnd, end, method, best);
+    }
+    if (node.multiWildcard != null) {
+      best = findMulti(node.multiWildcard, path, pos, end, method, best);
+    }
+    return best;
+  }
+
+  /**
+   * Same as {@link #find(Node, String, int, int, HttpMethod, Entry)} for a node of a {@code **} segment, which
+   * tries all the number of path segments that can be matched by the {@code **}.
+   */
+  @Nullable
+  private Entry<T> findMulti(Node<T> node, String path, int pos, int end, HttpMethod method,
+                             @Nullable Entry<T> best) {
+    while (true) {
+      best = find(node, path, pos, end, method, best);
+      pos = skipSlashes(path, pos, end);
+      if (pos == end) {
+        return best;
+      }
+      pos = segmentEnd(path, pos, end);
+    }
+  }
+
+  private static int skipSlashes(String path, int pos, int end) {
+    while (pos < end && path.charAt(pos) == '/') {
+      pos++;
+    }
+    return pos;
+  }
+
+  private static int segmentEnd(String path, int pos, int end) {
+    int idx = path.indexOf('/', pos);
+    return idx < 0 || idx > end ? end : idx;
+  }
+
+  /**
+   * Splits the given pattern into segments, ignoring empty segments.
+   */
+  private static List<String> split(String pattern) {
+    List<String> segments = new ArrayList<>();
+    for (String segment : pattern.split("/")) {
+      if (!segment.isEmpty()) {
+        segments.add(segment);
+      }
+    }
+    return segments;
+  }
+
+  /**
+   * Builder for {@link RouteTable}. Patterns added earlier have higher precedence.
+   *
+   * @param <T> type of the values
+   */
+  static final class Builder<T> {
+
+    private final Node<T> root = new Node<>();
+    private int priority;
+
+    private Builder() {
+    }
+
+    /**
+     * Adds a pattern that matches any method.
+     */
+    Builder<T> add(String pattern, T value) {
+      return add(pattern, null, value);
+    }
+
+    /**
+     * Adds a pattern that matches the given method, or any method if the method is {@code null}.
+     */
+    Builder<T> add(String pattern, @Nullable HttpMethod method, T value) {
+      Preconditions.checkNotNull(value, "Value of pattern %s must not be null", pattern);
+      Node<T> node = root;
+      String previous = null;
+      for (String segment : split(pattern)) {
+        // Consecutive ** are the same as a single one
+        if (!(MULTI_WILDCARD.equals(segment) && MULTI_WILDCARD.equals(previous))) {
+          node = node.addChild(segment);
+        }
+        previous = segment;
+      }
+      node.addEntry(new Entry<>(priority++, method, value));
+      return this;
+    }
+
+    RouteTable<T> build() {
+      root.compile();
+      return new RouteTable<>(root);
+    }
+  }
+
+  /**
+   * A node in the trie, which represents a pattern segment.
+   */
+  private static final class Node<T> {
+
+    private Map<String, Node<T>> literals = new LinkedHashMap<>();
+    private List<Entry<T>> entryList = new ArrayList<>();
+
+    // Open addressing hash table of the literal children
+    private String[] literalKeys;
+    private Node<T>[] literalChildren;
+    private int mask;
+
+    private Node<T> wildcard;
+    private Node<T> multiWildcard;
+    // Entries of the patterns that end at this node, sorted by priority
+    private Entry<T>[] entries;
+    // The minimum priority of all the entries in this node and its descendants
+    private int minPriority;
+
+    Node<T> addChild(String segment) {
+      if (WILDCARD.equals(segment)) {
+        if (wildcard == null) {
+          wildcard = new Node<>();
+        }
+        return wildcard;
+      }
+      if (MULTI_WILDCARD.equals(segment)) {
+        if (multiWildcard == null) {
+          multiWildcard = new Node<>();
+        }
+        return multiWildcard;
+      }
+      return literals.computeIfAbsent(segment, k -> new Node<>());
+    }
+
+    void addEntry(Entry<T> entry) {
+      entryList.add(entry);
+    }
+
+    /**
+     * Compiles this node and all its descendants for lookup.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void compile() {
+      entries = entryList.toArray(new Entry[0]);
+      Arrays.sort(entries, Comparator.comparingInt(e -> e.priority));
+      minPriority = entries.length == 0 ? Integer.MAX_VALUE : entries[0].priority;
+
+      // Keep the hash table at most half full
+      int size = Integer.highestOneBit(Math.max(1, literals.size())) << 2;
+      literalKeys = new String[size];
+      literalChildren = new Node[size];
+      mask = size - 1;
+      for (Map.Entry<String, Node<T>> entry : literals.entrySet()) {
+        int idx = entry.getKey().hashCode() & mask;
+        while (literalKeys[idx] != null) {
+          idx = (idx + 1) & mask;
+        }
+        literalKeys[idx] = entry.getKey();
+        literalChildren[idx] = entry.getValue();
+      }
+
+      List<Node<T>> children = new ArrayList<>(literals.values());
+      if (wildcard != null) {
+        children.add(wildcard);
+      }
+      if (multiWildcard != null) {
+        children.add(multiWildcard);
+      }
+      for (Node<T> child : children) {
+        child.compile();
+        minPriority = Math.min(minPriority, child.minPriority);
+      }
+
+      literals = null;
+      entryList = null;
+    }
+
+    /**
+     * Returns the literal child that is equal to the path segment between the given indices, or {@code null} if
+     * there is none.
+     */
+    @Nullable
+    Node<T> getChild(String path, int start, int end) {
+      int hash = 0;
+      for (int i = start; i < end; i++) {
+        hash = 31 * hash + path.charAt(i);
+      }
+      int length = end - start;
+      int idx = hash & mask;
+      String key = literalKeys[idx];
+      while (key != null) {
+        if (key.length() == length && path.regionMatches(start, key, 0, length)) {
+          return literalChildren[idx];
+        }
+        idx = (idx + 1) & mask;
+        key = literalKeys[idx];
+      }
+      return null;
+    }
+
+    /**
+     * Returns the first entry of this node that matches the given method if it is better than the given one,
+     * otherwise returns the given one.
+     */
+    @Nullable
+    Entry<T> match(HttpMethod method, @Nullable Entry<T> best) {
+      for (Entry<T> entry : entries) {
+        if (best != null && entry.priority >= best.priority) {
+          break;
+        }
+        if (entry.method == null || entry.method.equals(method)) {
+          return entry;
+        }
+      }
+      return best;
+    }
+  }
+
+  /**
+   * A value of a pattern, with the priority of the pattern and the method it matches.
+   */
+  private static final class Entry<T> {
+
+    private final int priority;
+    private final HttpMethod method;
+    private final T value;
+
+    Entry(int priority, @Nullable HttpMethod method, T value) {
+      this.priority = priority;
+      this.method = method;
+      this.value = value;
+    }
+  }
+}
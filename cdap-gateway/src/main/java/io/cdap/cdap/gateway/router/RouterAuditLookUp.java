@@ -24,7 +24,6 @@ import io.cdap.cdap.common.security.AuditDetail;
 import io.cdap.cdap.common.security.AuditPolicy;
 import io.cdap.cdap.internal.asm.Classes;
 import io.cdap.http.HttpHandler;
-import io.cdap.http.internal.PatternPathRouterWithGroups;
 import io.netty.handler.codec.http.HttpMethod;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +38,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.HeaderParam;
@@ -53,34 +53,32 @@ public final class RouterAuditLookUp {
 
   private static final Logger LOG = LoggerFactory.getLogger(RouterAuditLookUp.class);
   private static final RouterAuditLookUp INSTANCE = new RouterAuditLookUp();
-  private static final int MAX_PARTS = 25;
+  private static final Pattern PATH_PARAM = Pattern.compile("\\{.*?\\}");
+
   private final int numberOfPaths;
+  private final RouteTable<AuditLogConfig> routeTable;
 
   public static RouterAuditLookUp getInstance() {
     return INSTANCE;
   }
 
-  private final PatternPathRouterWithGroups<AuditLogConfig> patternMatcher =
-    PatternPathRouterWithGroups.create(MAX_PARTS);
-
   private RouterAuditLookUp() {
-    numberOfPaths = createMatcher();
+    RouteTable.Builder<AuditLogConfig> builder = RouteTable.builder();
+    numberOfPaths = createMatcher(builder);
+    routeTable = builder.build();
   }
 
+  /**
+   * Returns the {@link AuditLogConfig} of the given request URI and method, or {@code null} if the request has no
+   * audit policy. The query string of the URI is ignored.
+   */
   @Nullable
-  public AuditLogConfig getAuditLogContent(String path, HttpMethod httpMethod) throws Exception {
-    List<PatternPathRouterWithGroups.RoutableDestination<AuditLogConfig>> destinations =
-      patternMatcher.getDestinations(path);
-    for (PatternPathRouterWithGroups.RoutableDestination<AuditLogConfig> entry : destinations) {
-      AuditLogConfig destination = entry.getDestination();
-      if (destination.getHttpMethod().equals(httpMethod)) {
-        return destination;
-      }
-    }
-    return null;
+  public AuditLogConfig getAuditLogContent(String uri, HttpMethod httpMethod) {
+    int end = uri.indexOf('?');
+    return routeTable.lookup(uri, end < 0 ? uri.length() : end, httpMethod);
   }
 
-  private int createMatcher() {
+  private int createMatcher(RouteTable.Builder<AuditLogConfig> builder) {
     List<ClassPath.ClassInfo> handlerClasses;
     try {
       handlerClasses = getAllHandlerClasses();
@@ -126,7 +124,7 @@ public final class RouterAuditLookUp {
                                                            auditContents.contains(AuditDetail.RESPONSE_BODY),
                                                            headerNames);
         LOG.trace("Audit log lookup: bootstrapped with path: {}", completePath);
-        patternMatcher.add(completePath, auditLogConfig);
+        builder.add(toRoutePattern(completePath), httpMethod, auditLogConfig);
 
         // Don't count classes in unit-tests
         if (!isTestClass(classInfo)) {
@@ -138,6 +136,28 @@ public final class RouterAuditLookUp {
     return count;
   }
 
+  /**
+   * Converts the given {@link Path} of a handler method to a {@link RouteTable} pattern. A path parameter matches
+   * a single path segment, and a {@code **} matches one or more path segments.
+   */
+  private String toRoutePattern(String path) {
+    StringBuilder pattern = new StringBuilder();
+    for (String part : path.split("/")) {
+      if (part.isEmpty()) {
+        continue;
+      }
+      pattern.append('/');
+      if (PATH_PARAM.matcher(part).matches()) {
+        pattern.append(RouteTable.WILDCARD);
+      } else if (RouteTable.MULTI_WILDCARD.equals(part)) {
+        pattern.append(RouteTable.WILDCARD).append('/').append(RouteTable.MULTI_WILDCARD);
+      } else {
+        pattern.append(part);
+      }
+    }
+    return pattern.toString();
+  }
+
   private HttpMethod getHttpMethod(Method method) {
     if (method.isAnnotationPresent(PUT.class)) {
       return HttpMethod.PUT;
@@ -18,12 +18,19 @@ package io.cdap.cdap.gateway.router;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.service.ServiceDiscoverable;
 import io.cdap.cdap.proto.ProgramType;
 import io.cdap.http.AbstractHttpHandler;
+import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpRequest;
 
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.StreamSupport;
 import javax.annotation.Nullable;
 
@@ -32,11 +39,6 @@ import javax.annotation.Nullable;
  */
 public final class RouterPathLookup extends AbstractHttpHandler {
 
-  @SuppressWarnings("unused")
-  private enum AllowedMethod {
-    GET, PUT, POST, DELETE
-  }
-
   public static final RouteDestination APP_FABRIC_HTTP = new RouteDestination(Constants.Service.APP_FABRIC_HTTP);
   public static final RouteDestination METRICS = new RouteDestination(Constants.Service.METRICS);
   public static final RouteDestination DATASET_MANAGER = new RouteDestination(Constants.Service.DATASET_MANAGER);
@@ -55,6 +57,25 @@ public final class RouterPathLookup extends AbstractHttpHandler {
     new RouteDestination(Constants.Service.SUPPORT_BUNDLE_SERVICE);
   public static final RouteDestination DONT_ROUTE = new RouteDestination(Constants.Router.DONT_ROUTE_SERVICE);
 
+  // System services that handle the status and stacks requests of themselves
+  private static final Map<String, RouteDestination> SYSTEM_SERVICES = ImmutableMap.<String, RouteDestination>builder()
+    .put(Constants.Service.LOGSAVER, LOG_SAVER)
+    .put(Constants.Service.TRANSACTION, TRANSACTION)
+    .put(Constants.Service.METRICS_PROCESSOR, METRICS_PROCESSOR)
+    .put(Constants.Service.METRICS, METRICS)
+    .put(Constants.Service.APP_FABRIC_HTTP, APP_FABRIC_HTTP)
+    .put(Constants.Service.DATASET_EXECUTOR, DATASET_EXECUTOR)
+    .put(Constants.Service.METADATA_SERVICE, METADATA_SERVICE)
+    .put(Constants.Service.EXPLORE_HTTP_USER_SERVICE, EXPLORE_HTTP_USER_SERVICE)
+    .put(Constants.Service.MESSAGING_SERVICE, MESSAGING)
+    .put(Constants.Service.RUNTIME, RUNTIME)
+    .put(Constants.Service.SUPPORT_BUNDLE_SERVICE, SUPPORT_BUNDLE_SERVICE)
+    .build();
+
+  private static final Set<HttpMethod> ALLOWED_METHODS = ImmutableSet.of(HttpMethod.GET, HttpMethod.PUT,
+                                                                         HttpMethod.POST, HttpMethod.DELETE);
+  private static final RouteTable<Function<String, RouteDestination>> ROUTES = createRoutes();
+
   /**
    * Returns the CDAP service which will handle the HttpRequest
    *
@@ -65,14 +86,12 @@ public final class RouterPathLookup extends AbstractHttpHandler {
   @Nullable
   public RouteDestination getRoutingService(String requestPath, HttpRequest httpRequest) {
     try {
-      String method = httpRequest.method().name();
-      AllowedMethod requestMethod = AllowedMethod.valueOf(method);
-      String[] uriParts = StreamSupport
-        .stream(Splitter.on('/').omitEmptyStrings().split(requestPath).spliterator(), false)
-        .toArray(String[]::new);
-
-      if (uriParts[0].equals(Constants.Gateway.API_VERSION_3_TOKEN)) {
-        return getV3RoutingService(uriParts, requestMethod);
+      HttpMethod method = httpRequest.method();
+      if (ALLOWED_METHODS.contains(method)) {
+        Function<String, RouteDestination> route = ROUTES.lookup(requestPath, method);
+        if (route != null) {
+          return route.apply(requestPath);
+        }
       }
     } catch (Exception e) {
       // Ignore exception. Default routing to app-fabric.
@@ -80,128 +99,121 @@ public final class RouterPathLookup extends AbstractHttpHandler {
     return APP_FABRIC_HTTP;
   }
 
-  private boolean isUserServiceType(String uriPart) {
+  /**
+   * Creates the route table of the v3 paths. Routes added earlier take precedence, and paths that don't match any
+   * route are routed to app-fabric.
+   */
+  private static RouteTable<Function<String, RouteDestination>> createRoutes() {
+    RouteTable.Builder<Function<String, RouteDestination>> builder = RouteTable.builder();
+
+    // TODO(Rohit) find a better way to handle that - this looks hackish
+    // This needs to now changed especially metadata since now it can have custom parts
+    builder.add("/v3/feeds/**", path -> null);
+    builder.add("/v3/bootstrap/**", to(APP_FABRIC_HTTP));
+
+    // User defined services (version specific) handle methods on them:
+    // Path: "/v3/namespaces/{namespace-id}/apps/{app-id}/versions/{version-id}/services/{service-id}/methods/
+    //        <user-defined-method-path>"
     for (ProgramType type : ServiceDiscoverable.getUserServiceTypes()) {
-      if (type.getCategoryName().equals(uriPart)) {
-        return true;
-      }
+      builder.add("/v3/*/*/*/*/versions/*/" + type.getCategoryName() + "/*/methods/*/**", path -> {
+        String[] uriParts = split(path);
+        return new RouteDestination(ServiceDiscoverable.getName(uriParts[2], uriParts[4],
+                                                                ProgramType.valueOfCategoryName(uriParts[7]),
+                                                                uriParts[8]), uriParts[6]);
+      });
+    }
+    // User defined services handle methods on them:
+    // Path: "/v3/namespaces/{namespace-id}/apps/{app-id}/services/{service-id}/methods/<user-defined-method-path>"
+    for (ProgramType type : ServiceDiscoverable.getUserServiceTypes()) {
+      builder.add("/v3/*/*/*/*/" + type.getCategoryName() + "/*/methods/*/**", path -> {
+        String[] uriParts = split(path);
+        return new RouteDestination(ServiceDiscoverable.getName(uriParts[2], uriParts[4],
+                                                                ProgramType.valueOfCategoryName(uriParts[5]),
+                                                                uriParts[6]));
+      });
     }
-    return false;
-  }
 
-  @Nullable
-  private RouteDestination getV3RoutingService(String [] uriParts, AllowedMethod requestMethod) {
-    if ((uriParts.length >= 2) && uriParts[1].equals("feeds")) {
-      // TODO(Rohit) find a better way to handle that - this looks hackish
-      // This needs to now changed especially metadata since now it can have custom parts
-      return null;
-    } else if ("bootstrap".equals(uriParts[1])) {
-      return APP_FABRIC_HTTP;
-    } else if ((uriParts.length >= 11) && "versions".equals(uriParts[5]) && isUserServiceType(uriParts[7])
-      && "methods".equals(uriParts[9])) {
-      // User defined services (version specific) handle methods on them:
-      //Path: "/v3/namespaces/{namespace-id}/apps/{app-id}/versions/{version-id}/services/{service-id}/methods/
-      //       <user-defined-method-path>"
-      String serviceName = ServiceDiscoverable.getName(uriParts[2], uriParts[4],
-                                                       ProgramType.valueOfCategoryName(uriParts[7]), uriParts[8]);
-      String version = uriParts[6];
-      return new RouteDestination(serviceName, version);
-    } else if ((uriParts.length >= 9) && isUserServiceType(uriParts[5]) && "methods".equals(uriParts[7])) {
-      //User defined services handle methods on them:
-      //Path: "/v3/namespaces/{namespace-id}/apps/{app-id}/services/{service-id}/methods/<user-defined-method-path>"
-      return new RouteDestination(ServiceDiscoverable.getName(uriParts[2], uriParts[4],
-                                                              ProgramType.valueOfCategoryName(uriParts[5]),
-                                                              uriParts[6]));
-    } else if (beginsWith(uriParts, "v3", "system", "services", null, "logs")) {
-      //Log Handler Path /v3/system/services/<service-id>/logs
-      return LOG_QUERY;
-    } else if ((!beginsWith(uriParts, "v3", "namespaces", null, "securekeys")) && (endsWith(uriParts, "metadata") ||
-      // do no intercept the namespaces/<namespace-name>/securekeys/<key>/metadata as that is handled by the
-      // SecureStoreHandler
-      endsWith(uriParts, "metadata", "properties") || endsWith(uriParts, "metadata", "properties", null) ||
-      endsWith(uriParts, "metadata", "tags") || endsWith(uriParts, "metadata", "tags", null) ||
-      endsWith(uriParts, "metadata", "search") ||
-      beginsWith(uriParts, "v3", "namespaces", null, "datasets", null, "lineage") ||
-      beginsWith(uriParts, "v3", "metadata", "search"))) {
-      return METADATA_SERVICE;
-    } else if (beginsWith(uriParts, "v3", "security", "authorization") ||
-      beginsWith(uriParts, "v3", "namespaces", null, "securekeys")) {
-      // Authorization and Secure Store Handlers currently run in App Fabric
-      return APP_FABRIC_HTTP;
-    } else if (beginsWith(uriParts, "v3", "security", "store", "namespaces", null)) {
-      return APP_FABRIC_HTTP;
-    } else if (beginsWith(uriParts, "v3", "namespaces", null, "data", "datasets", null, "programs") &&
-      requestMethod.equals(AllowedMethod.GET)) {
-      return APP_FABRIC_HTTP;
-    } else if (beginsWith(uriParts, "v3", "namespaces", null, "profiles") ||
-      beginsWith(uriParts, "v3", "profiles")) {
-      return APP_FABRIC_HTTP;
-    } else if (beginsWith(uriParts, "v3", "namespaces", null, "runs")) {
-      return APP_FABRIC_HTTP;
-    } else if (beginsWith(uriParts, "v3", "namespaces", null, "previews")) {
-      return PREVIEW_HTTP;
-    } else if (beginsWith(uriParts, "v3", "system", "serviceproviders")) {
-      return APP_FABRIC_HTTP;
-    } else if ((uriParts.length >= 8 && uriParts[7].equals("logs")) ||
-      (uriParts.length >= 10 && uriParts[9].equals("logs")) ||
-      (uriParts.length >= 6 && uriParts[5].equals("logs"))) {
-      //Log Handler Paths:
-      // /v3/namespaces/<namespaceid>/apps/<appid>/<programid-type>/<programid>/logs
-      // /v3/namespaces/{namespace-id}/apps/{app-id}/{program-type}/{program-id}/runs/{run-id}/logs
-      return LOG_QUERY;
-    } else if (uriParts.length >= 2 && uriParts[1].equals("metrics")) {
-      //Metrics Search Handler Path /v3/metrics
-      return METRICS;
-    } else if (uriParts.length >= 5 && uriParts[1].equals("data") && uriParts[2].equals("explore") &&
-      (uriParts[3].equals("queries") || uriParts[3].equals("jdbc") || uriParts[3].equals("namespaces"))) {
-      // non-namespaced explore operations. For example, /v3/data/explore/queries/{id}
-      return EXPLORE_HTTP_USER_SERVICE;
-    } else if (uriParts.length >= 6 && uriParts[3].equals("data") && uriParts[4].equals("explore") &&
-      (uriParts[5].equals("queries") || uriParts[5].equals("datasets")
-        || uriParts[5].equals("tables") || uriParts[5].equals("jdbc"))) {
-      // namespaced explore operations. For example, /v3/namespaces/{namespace-id}/data/explore/datasets/{ds}/enable
-      return EXPLORE_HTTP_USER_SERVICE;
-    } else if ((uriParts.length == 3) && uriParts[1].equals("explore") && uriParts[2].equals("status")) {
-      return EXPLORE_HTTP_USER_SERVICE;
-    } else if (beginsWith(uriParts, "v3", "system", "services", null, "status")
-      || beginsWith(uriParts, "v3", "system", "services", null, "stacks")) {
-      switch (uriParts[3]) {
-        case Constants.Service.LOGSAVER: return LOG_SAVER;
-        case Constants.Service.TRANSACTION: return TRANSACTION;
-        case Constants.Service.METRICS_PROCESSOR: return METRICS_PROCESSOR;
-        case Constants.Service.METRICS: return METRICS;
-        case Constants.Service.APP_FABRIC_HTTP: return APP_FABRIC_HTTP;
-        case Constants.Service.DATASET_EXECUTOR: return DATASET_EXECUTOR;
-        case Constants.Service.METADATA_SERVICE: return METADATA_SERVICE;
-        case Constants.Service.EXPLORE_HTTP_USER_SERVICE: return EXPLORE_HTTP_USER_SERVICE;
-        case Constants.Service.MESSAGING_SERVICE: return MESSAGING;
-        case Constants.Service.RUNTIME: return RUNTIME;
-        case Constants.Service.SUPPORT_BUNDLE_SERVICE: return SUPPORT_BUNDLE_SERVICE;
-        default: return null;
-      }
-    } else if (uriParts.length == 7 && uriParts[3].equals("data") && uriParts[4].equals("datasets") &&
-      (uriParts[6].equals("flows") || uriParts[6].equals("workers") || uriParts[6].equals("mapreduce"))) {
-      // namespaced app fabric data operations:
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/flows
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/workers
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/mapreduce
-      return APP_FABRIC_HTTP;
-    } else if ((uriParts.length >= 4) && uriParts[3].equals("data")) {
-      // other data operations. For example:
-      // /v3/namespaces/{namespace-id}/data/datasets
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/properties
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/admin/{method}
-      return DATASET_MANAGER;
-    } else if (beginsWith(uriParts, "v3", "support", "bundle")) {
-      //Support Bundle Handler Path /v3/support/bundle
-      return SUPPORT_BUNDLE_SERVICE;
-    } else if ((uriParts.length == 3) && uriParts[1].equals("metadata-internals")) {
-      // we don't want to expose endpoints for direct metadata mutation from CDAP master
-      // /v3/metadata-internals/{mutation-type}
-      return DONT_ROUTE;
+    // Log Handler Path /v3/system/services/<service-id>/logs
+    builder.add("/v3/system/services/*/logs/**", to(LOG_QUERY));
+
+    // do no intercept the namespaces/<namespace-name>/securekeys/<key>/metadata as that is handled by the
+    // SecureStoreHandler. Secure Store Handlers currently run in App Fabric
+    builder.add("/v3/namespaces/*/securekeys/**", to(APP_FABRIC_HTTP));
+    for (String pattern : Arrays.asList("/v3/**/metadata", "/v3/**/metadata/properties", "/v3/**/metadata/properties/*",
+                                        "/v3/**/metadata/tags", "/v3/**/metadata/tags/*", "/v3/**/metadata/search",
+                                        "/v3/namespaces/*/datasets/*/lineage/**", "/v3/metadata/search/**")) {
+      builder.add(pattern, to(METADATA_SERVICE));
     }
-    return APP_FABRIC_HTTP;
+    // Authorization Handlers currently run in App Fabric
+    builder.add("/v3/security/authorization/**", to(APP_FABRIC_HTTP));
+    builder.add("/v3/security/store/namespaces/*/**", to(APP_FABRIC_HTTP));
+    builder.add("/v3/namespaces/*/data/datasets/*/programs/**", HttpMethod.GET, to(APP_FABRIC_HTTP));
+    builder.add("/v3/namespaces/*/profiles/**", to(APP_FABRIC_HTTP));
+    builder.add("/v3/profiles/**", to(APP_FABRIC_HTTP));
+    builder.add("/v3/namespaces/*/runs/**", to(APP_FABRIC_HTTP));
+    builder.add("/v3/namespaces/*/previews/**", to(PREVIEW_HTTP));
+    builder.add("/v3/system/serviceproviders/**", to(APP_FABRIC_HTTP));
+
+    // Log Handler Paths:
+    // /v3/namespaces/<namespaceid>/apps/<appid>/<programid-type>/<programid>/logs
+    // /v3/namespaces/{namespace-id}/apps/{app-id}/{program-type}/{program-id}/runs/{run-id}/logs
+    builder.add("/v3/*/*/*/*/*/*/logs/**", to(LOG_QUERY));
+    builder.add("/v3/*/*/*/*/*/*/*/*/logs/**", to(LOG_QUERY));
+    builder.add("/v3/*/*/*/*/logs/**", to(LOG_QUERY));
+
+    // Metrics Search Handler Path /v3/metrics
+    builder.add("/v3/metrics/**", to(METRICS));
+
+    // non-namespaced explore operations. For example, /v3/data/explore/queries/{id}
+    for (String operation : Arrays.asList("queries", "jdbc", "namespaces")) {
+      builder.add("/v3/data/explore/" + operation + "/*/**", to(EXPLORE_HTTP_USER_SERVICE));
+    }
+    // namespaced explore operations. For example, /v3/namespaces/{namespace-id}/data/explore/datasets/{ds}/enable
+    for (String operation : Arrays.asList("queries", "datasets", "tables", "jdbc")) {
+      builder.add("/v3/*/*/data/explore/" + operation + "/**", to(EXPLORE_HTTP_USER_SERVICE));
+    }
+    builder.add("/v3/explore/status", to(EXPLORE_HTTP_USER_SERVICE));
+
+    // System service status and stacks, which are handled by the service itself
+    for (Map.Entry<String, RouteDestination> entry : SYSTEM_SERVICES.entrySet()) {
+      builder.add("/v3/system/services/" + entry.getKey() + "/status/**", to(entry.getValue()));
+      builder.add("/v3/system/services/" + entry.getKey() + "/stacks/**", to(entry.getValue()));
+    }
+    builder.add("/v3/system/services/*/status/**", path -> null);
+    builder.add("/v3/system/services/*/stacks/**", path -> null);
+
+    // namespaced app fabric data operations:
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/flows
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/workers
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/mapreduce
+    for (String programs : Arrays.asList("flows", "workers", "mapreduce")) {
+      builder.add("/v3/*/*/data/datasets/*/" + programs, to(APP_FABRIC_HTTP));
+    }
+    // other data operations. For example:
+    // /v3/namespaces/{namespace-id}/data/datasets
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/properties
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/admin/{method}
+    builder.add("/v3/*/*/data/**", to(DATASET_MANAGER));
+
+    // Support Bundle Handler Path /v3/support/bundle
+    builder.add("/v3/support/bundle/**", to(SUPPORT_BUNDLE_SERVICE));
+
+    // we don't want to expose endpoints for direct metadata mutation from CDAP master
+    // /v3/metadata-internals/{mutation-type}
+    builder.add("/v3/metadata-internals/*", to(DONT_ROUTE));
+
+    return builder.build();
+  }
+
+  private static Function<String, RouteDestination> to(RouteDestination destination) {
+    return path -> destination;
+  }
+
+  private static String[] split(String path) {
+    return StreamSupport
+      .stream(Splitter.on('/').omitEmptyStrings().split(path).spliterator(), false)
+      .toArray(String[]::new);
   }
 
   /**
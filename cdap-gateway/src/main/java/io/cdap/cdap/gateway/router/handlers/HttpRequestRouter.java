@@ -35,6 +35,7 @@ import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
+import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
@@ -60,9 +61,7 @@ import java.io.Closeable;
 import java.io.Flushable;
 import java.nio.channels.ClosedChannelException;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
 import java.util.LinkedList;
-import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
@@ -72,6 +71,8 @@ import javax.net.ssl.SSLException;
  * A {@link ChannelInboundHandler} for forwarding incoming request to appropriate CDAP service endpoint
  * based on the request. This class doesn't need to be thread safe as Netty will make sure there is no
  * concurrent calls to ChannelHandler and each call always have a happens-before relationship to the previous call.
+ * Connections to the service endpoints are shared with other inbound connections through the
+ * {@link UpstreamConnectionPool}.
  */
 public class HttpRequestRouter extends ChannelDuplexHandler {
 
@@ -79,15 +80,16 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
 
   private final CConfiguration cConf;
   private final RouterServiceLookup serviceLookup;
-  private final Map<Discoverable, Queue<MessageSender>> messageSenders;
+  private final UpstreamConnectionPool connectionPool;
   private int inflightRequests;
   private MessageSender currentMessageSender;
   private ChannelFutureListener failureResponseListener;
 
-  public HttpRequestRouter(CConfiguration cConf, RouterServiceLookup serviceLookup) {
+  public HttpRequestRouter(CConfiguration cConf, RouterServiceLookup serviceLookup,
+                           UpstreamConnectionPool connectionPool) {
     this.cConf = cConf;
     this.serviceLookup = serviceLookup;
-    this.messageSenders = new HashMap<>();
+    this.connectionPool = connectionPool;
   }
 
   @Override
@@ -162,9 +164,10 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
       }
       inflightRequests = 0;
 
-      // Recycle the message sender
+      // Release the connection of the message sender for reuse
       if (currentMessageSender != null) {
-        messageSenders.get(currentMessageSender.getDiscoverable()).add(currentMessageSender);
+        currentMessageSender.release();
+        currentMessageSender = null;
       }
     }
   }
@@ -183,11 +186,6 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
     if (currentMessageSender != null) {
       currentMessageSender.close();
     }
-    for (Map.Entry<Discoverable, Queue<MessageSender>> entry : messageSenders.entrySet()) {
-      for (MessageSender sender : entry.getValue()) {
-        sender.close();
-      }
-    }
     ctx.fireChannelInactive();
   }
 
@@ -234,25 +232,13 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
   }
 
   /**
-   * Returns the {@link MessageSender} for writing messages to the endpoint represented by the given
+   * Returns the {@link MessageSender} for writing messages of a request to the endpoint represented by the given
    * {@link Discoverable}.
    */
   private MessageSender getMessageSender(Channel inboundChannel,
                                          Discoverable discoverable) {
-    Queue<MessageSender> senders = messageSenders.computeIfAbsent(discoverable, k -> new LinkedList<>());
-
-    MessageSender sender = senders.poll();
-
-    // Found a MessageSender to reuse, return it
-    if (sender != null) {
-      LOG.trace("Reuse message sender for {}", discoverable);
-      return sender;
-    }
-
-    // Create new MessageSender
-    sender = new MessageSender(cConf, inboundChannel, discoverable);
     LOG.trace("Create new message sender for {}", discoverable);
-    return sender;
+    return new MessageSender(cConf, inboundChannel, discoverable, connectionPool);
   }
 
   private String getRequestLine(HttpRequest request) {
@@ -277,43 +263,45 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
   }
 
   /**
-   * For sending messages to outbound channel while maintaining the order of messages according to
-   * the order that {@link #send(Object, ChannelFutureListener)} method is called.
+   * For sending messages of a request to outbound channel while maintaining the order of messages according to
+   * the order that {@link #send(Object, ChannelFutureListener)} method is called. The outbound channel is either
+   * an idle connection from the {@link UpstreamConnectionPool} or a new connection.
    */
   private static final class MessageSender implements Flushable, Closeable {
 
+    private static volatile SslContext sslContext;
+
+    private final CConfiguration cConf;
+    private final Channel inboundChannel;
     private final Discoverable discoverable;
+    private final UpstreamConnectionPool connectionPool;
     private final Queue<OutboundMessage> pendingMessages;
-    private final Bootstrap clientBootstrap;
-    private volatile SslContext sslContext;
     private Channel outboundChannel;
     private boolean closed;
     private boolean connecting;
 
-    private MessageSender(final CConfiguration cConf, final Channel inboundChannel, final Discoverable discoverable) {
+    private MessageSender(CConfiguration cConf, Channel inboundChannel, Discoverable discoverable,
+                          UpstreamConnectionPool connectionPool) {
+      this.cConf = cConf;
+      this.inboundChannel = inboundChannel;
       this.discoverable = discoverable;
+      this.connectionPool = connectionPool;
       this.pendingMessages = new LinkedList<>();
+    }
 
-      // A channel listener for resetting the state of this message sender on closing of outbound channel
-      final ChannelFutureListener onCloseResetListener = new ChannelFutureListener() {
-        @Override
-        public void operationComplete(ChannelFuture future) {
-          outboundChannel = null;
-          connecting = false;
-        }
-      };
-
-      // Create a client Bootstrap for connecting to internal services
-      // It must be create using the same EventLoopGroup as the inbound channel to make
+    /**
+     * Creates a client {@link Bootstrap} for connecting to internal services.
+     */
+    private Bootstrap createBootstrap() {
+      // It must be create using the same EventLoopGroup and transport as the inbound channel to make
       // sure thread safety between the inbound and outbound channels callbacks.
-      this.clientBootstrap = new Bootstrap()
+      return new Bootstrap()
         .group(inboundChannel.eventLoop())
-        .channel(NioSocketChannel.class)
+        .channel(inboundChannel instanceof EpollSocketChannel ? EpollSocketChannel.class : NioSocketChannel.class)
         .option(ChannelOption.SO_KEEPALIVE, true)
         .handler(new ChannelInitializer<SocketChannel>() {
           @Override
           protected void initChannel(SocketChannel ch) throws Exception {
-            ch.closeFuture().addListener(onCloseResetListener);
             ChannelPipeline pipeline = ch.pipeline();
 
             SslHandler sslHandler = getSslHandler(discoverable, ch.alloc());
@@ -340,6 +328,17 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
         return;
       }
 
+      // Reuse an idle connection if there is one
+      if (!connecting) {
+        Channel channel = connectionPool.acquire(inboundChannel.eventLoop(), discoverable);
+        if (channel != null) {
+          channel.pipeline().get(OutboundHandler.class).setInboundChannel(inboundChannel);
+          outboundChannel = channel;
+          outboundChannel.write(msg).addListener(writeCompletedListener);
+          return;
+        }
+      }
+
       // If not yet connected or still connecting, just add the message to the pending queue
       pendingMessages.add(new OutboundMessage(msg, writeCompletedListener));
 
@@ -349,7 +348,7 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
       }
 
       // Make a new connection
-      ChannelFuture connectFuture = clientBootstrap.connect(discoverable.getSocketAddress());
+      ChannelFuture connectFuture = createBootstrap().connect(discoverable.getSocketAddress());
       connectFuture.addListener(new ChannelFutureListener() {
         @Override
         public void operationComplete(ChannelFuture future) throws Exception {
@@ -395,8 +394,26 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
       }
     }
 
-    Discoverable getDiscoverable() {
-      return discoverable;
+    /**
+     * Releases the outbound channel after the response of the request is completed. The channel is given to the
+     * {@link UpstreamConnectionPool} if it can be reused, otherwise it is closed.
+     */
+    void release() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      // If it is still connecting, the channel will be closed when the connection completed
+      if (outboundChannel == null) {
+        return;
+      }
+      OutboundHandler handler = outboundChannel.pipeline().get(OutboundHandler.class);
+      if (outboundChannel.isActive() && handler != null && handler.isReusable()) {
+        handler.setInboundChannel(null);
+        connectionPool.release(outboundChannel, discoverable);
+      } else {
+        Channels.closeOnFlush(outboundChannel);
+      }
     }
 
     /**
@@ -406,7 +423,7 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
      * @return the {@link SslContext} or {@code null} if SSL is not needed
      */
     @Nullable
-    private SslHandler getSslHandler(Discoverable discoverable, ByteBufAllocator alloc) throws SSLException {
+    private static SslHandler getSslHandler(Discoverable discoverable, ByteBufAllocator alloc) throws SSLException {
       if (!URIScheme.HTTPS.isMatch(discoverable)) {
         return null;
       }
@@ -414,7 +431,7 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
       if (context != null) {
         return context.newHandler(alloc);
       }
-      synchronized (this) {
+      synchronized (MessageSender.class) {
         context = sslContext;
         if (context == null) {
           sslContext = context = SslContextBuilder.forClient()
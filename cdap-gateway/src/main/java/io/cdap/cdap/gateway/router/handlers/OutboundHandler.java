@@ -27,42 +27,75 @@ import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.ReferenceCountUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 /**
  * A {@link ChannelDuplexHandler} for forwarding requests/responses between the router and the internal service.
  * It also handle idle state event for closing idled internal connections.
+ * The inbound channel is changed when the connection is reused from the {@link UpstreamConnectionPool}, and there is
+ * no inbound channel while the connection is idle in the pool.
  */
 public class OutboundHandler extends ChannelDuplexHandler {
   private static final Logger LOG = LoggerFactory.getLogger(OutboundHandler.class);
 
-  private final Channel inboundChannel;
+  private Channel inboundChannel;
   private boolean requestInProgress;
+  private boolean requestWritten;
   private boolean keepAlive;
 
   public OutboundHandler(Channel inboundChannel) {
     this.inboundChannel = inboundChannel;
   }
 
+  /**
+   * Sets the inbound channel to forward responses to, or {@code null} when the connection is idle.
+   */
+  void setInboundChannel(@Nullable Channel inboundChannel) {
+    this.inboundChannel = inboundChannel;
+  }
+
+  /**
+   * Returns {@code true} if the last request was fully sent and its response was fully received with keep-alive,
+   * such that the connection can be used for another request.
+   */
+  boolean isReusable() {
+    return !requestInProgress && requestWritten && keepAlive;
+  }
+
   @Override
   public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-    // One receiving messages from the internal service, forward it to the inbound channel
-    inboundChannel.write(msg);
+    if (inboundChannel == null) {
+      // There shouldn't be any message when there is no request
+      LOG.trace("Closing idle channel {} on unexpected message", ctx.channel());
+      ReferenceCountUtil.release(msg);
+      ctx.close();
+      return;
+    }
 
     if (msg instanceof HttpResponse) {
       keepAlive = HttpUtil.isKeepAlive((HttpResponse) msg);
     }
 
-    // A response is completed by receiving the last http content
+    // A response is completed by receiving the last http content.
+    // The state is updated before forwarding, since writing the last content to the inbound channel can release
+    // this connection for reuse.
     if (msg instanceof LastHttpContent) {
       requestInProgress = false;
     }
+
+    // One receiving messages from the internal service, forward it to the inbound channel
+    inboundChannel.write(msg);
   }
 
   @Override
   public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
-    inboundChannel.flush();
+    if (inboundChannel != null) {
+      inboundChannel.flush();
+    }
   }
 
   @Override
@@ -70,14 +103,19 @@ public class OutboundHandler extends ChannelDuplexHandler {
     // A request starts with a HttpRequest
     if (msg instanceof HttpRequest) {
       requestInProgress = true;
+      requestWritten = false;
       keepAlive = HttpUtil.isKeepAlive((HttpRequest) msg);
     }
+    if (msg instanceof LastHttpContent) {
+      requestWritten = true;
+    }
     ctx.write(msg, promise);
   }
 
   @Override
   public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
-    if (requestInProgress) {
+    Channel inboundChannel = this.inboundChannel;
+    if (requestInProgress && inboundChannel != null) {
       final Channel channel = ctx.channel();
       ctx.executor().execute(() -> {
         // If outboundChannel is not saturated anymore, continue accepting
@@ -98,7 +136,7 @@ public class OutboundHandler extends ChannelDuplexHandler {
   @Override
   public void channelInactive(ChannelHandlerContext ctx) throws Exception {
     // Close the inbound channel if there is request in progress, or the last request/response has keep-alive == false
-    if (requestInProgress || !keepAlive) {
+    if (inboundChannel != null && (requestInProgress || !keepAlive)) {
       Channels.closeOnFlush(inboundChannel);
     }
     ctx.fireChannelInactive();
@@ -0,0 +1,151 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.gateway.router.handlers;
+
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import org.apache.twill.discovery.Discoverable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * A pool of idle connections from the router to the internal services, which is shared by all inbound connections
+ * of the router. A connection is only reused by inbound connections of the same {@link EventLoop}, such that the
+ * callbacks of both the inbound and outbound channels are always called from the same thread. Hence the pool keeps
+ * the idle connections per event loop, and each of them is only accessed from the thread of its event loop.
+ *
+ * Idle connections are closed by the idle state handler of the connection after the router connection idle timeout,
+ * and closed connections are removed from the pool periodically.
+ */
+public final class UpstreamConnectionPool {
+
+  private static final Logger LOG = LoggerFactory.getLogger(UpstreamConnectionPool.class);
+
+  private final int maxIdlePerHost;
+  private final long cleanupIntervalSecs;
+  private final MetricsContext metricsContext;
+  private final Map<EventLoop, EventLoopPool> pools;
+
+  public UpstreamConnectionPool(CConfiguration cConf, MetricsContext metricsContext) {
+    this.maxIdlePerHost = cConf.getInt(Constants.Router.UPSTREAM_POOL_MAX_IDLE_PER_HOST);
+    this.cleanupIntervalSecs = Math.max(1, cConf.getInt(Constants.Router.CONNECTION_TIMEOUT_SECS));
+    this.metricsContext = metricsContext;
+    this.pools = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Returns an idle connection to the given endpoint that belongs to the given {@link EventLoop}, or {@code null}
+   * if there is none. It must be called from the thread of the event loop.
+   */
+  @Nullable
+  Channel acquire(EventLoop eventLoop, Discoverable discoverable) {
+    Channel channel = maxIdlePerHost > 0 ? getPool(eventLoop).acquire(discoverable) : null;
+    if (channel == null) {
+      LOG.trace("No idle connection to {}", discoverable);
+      metricsContext.increment(Constants.Metrics.Name.Router.UPSTREAM_POOL_MISS_COUNT, 1L);
+    } else {
+      LOG.trace("Reuse idle connection {} to {}", channel, discoverable);
+      metricsContext.increment(Constants.Metrics.Name.Router.UPSTREAM_POOL_HIT_COUNT, 1L);
+    }
+    return channel;
+  }
+
+  /**
+   * Releases a connection to the given endpoint after its request is completed, such that it can be reused.
+   * The connection is closed if there are too many idle connections to the endpoint. It must be called from the
+   * thread of the event loop of the connection.
+   */
+  void release(Channel channel, Discoverable discoverable) {
+    if (!channel.isActive()) {
+      return;
+    }
+    if (maxIdlePerHost <= 0 || !getPool(channel.eventLoop()).release(channel, discoverable)) {
+      LOG.trace("Close connection {} to {}", channel, discoverable);
+      channel.close();
+    }
+  }
+
+  private EventLoopPool getPool(EventLoop eventLoop) {
+    return pools.computeIfAbsent(eventLoop, EventLoopPool::new);
+  }
+
+  /**
+   * The idle connections of an {@link EventLoop}.
+   */
+  private final class EventLoopPool {
+
+    private final Map<Discoverable, Deque<Channel>> idleChannels;
+
+    EventLoopPool(EventLoop eventLoop) {
+      this.idleChannels = new HashMap<>();
+      eventLoop.scheduleAtFixedRate(this::removeClosed, cleanupIntervalSecs, cleanupIntervalSecs, TimeUnit.SECONDS);
+    }
+
+    @Nullable
+    Channel acquire(Discoverable discoverable) {
+      Deque<Channel> channels = idleChannels.get(discoverable);
+      if (channels == null) {
+        return null;
+      }
+      // Use the most recently released connection, which is the least likely to be closed by the idle timeout
+      Channel channel = channels.pollFirst();
+      while (channel != null && !channel.isActive()) {
+        channel = channels.pollFirst();
+      }
+      return channel;
+    }
+
+    boolean release(Channel channel, Discoverable discoverable) {
+      Deque<Channel> channels = idleChannels.computeIfAbsent(discoverable, k -> new ArrayDeque<>());
+      if (channels.size() >= maxIdlePerHost) {
+        channels.removeIf(c -> !c.isActive());
+        if (channels.size() >= maxIdlePerHost) {
+          return false;
+        }
+      }
+      channels.addFirst(channel);
+      return true;
+    }
+
+    /**
+     * Removes the closed connections, and the endpoints that don't have idle connections, such that the pool
+     * doesn't keep endpoints that are gone.
+     */
+    private void removeClosed() {
+      Iterator<Deque<Channel>> iterator = idleChannels.values().iterator();
+      while (iterator.hasNext()) {
+        Deque<Channel> channels = iterator.next();
+        channels.removeIf(c -> !c.isActive());
+        if (channels.isEmpty()) {
+          iterator.remove();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.gateway.router;
+
+import com.google.common.base.Splitter;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.service.ServiceDiscoverable;
+import io.cdap.cdap.proto.ProgramType;
+import io.netty.handler.codec.http.HttpRequest;
+
+import java.util.stream.StreamSupport;
+import javax.annotation.Nullable;
+
+import static io.cdap.cdap.gateway.router.RouterPathLookup.APP_FABRIC_HTTP;
+import static io.cdap.cdap.gateway.router.RouterPathLookup.DATASET_EXECUTOR;
+import static io.cdap.cdap.gateway.router.RouterPathLookup.DATASET_MANAGER;
+import static io.cdap.cdap.gateway.router.RouterPathLookup.DONT_ROUTE;
+import static io.cdap.cdap.gateway.router.RouterPathLookup.EXPLORE_HTTP_USER_SERVICE;
+import static io.cdap.cdap.gateway.router.RouterPathLookup.LOG_QUERY;
+import static io.cdap.cdap.gateway.router.RouterPathLookup.LOG_SAVER;
+import static io.cdap.cdap.gateway.router.RouterPathLookup.MESSAGING;
+import static io.cdap.cdap.gateway.router.RouterPathLookup.METADATA_SERVICE;
+import static io.cdap.cdap.gateway.router.RouterPathLookup.METRICS;
+import static io.cdap.cdap.gateway.router.RouterPathLookup.METRICS_PROCESSOR;
+import static io.cdap.cdap.gateway.router.RouterPathLookup.PREVIEW_HTTP;
+import static io.cdap.cdap.gateway.router.RouterPathLookup.RUNTIME;
+import static io.cdap.cdap.gateway.router.RouterPathLookup.SUPPORT_BUNDLE_SERVICE;
+import static io.cdap.cdap.gateway.router.RouterPathLookup.TRANSACTION;
+import static io.cdap.cdap.gateway.router.RouterPathLookup.beginsWith;
+import static io.cdap.cdap.gateway.router.RouterPathLookup.endsWith;
+
+/**
+ * The {@link RouterPathLookup} routing logic before it was compiled into a {@link RouteTable}, which splits the path
+ * and walks a chain of conditions. It is kept as the reference for the tests of {@link RouterPathLookup}.
+ */
+final class LegacyRouterPathLookup {
+
+  @SuppressWarnings("unused")
+  private enum AllowedMethod {
+    GET, PUT, POST, DELETE
+  }
+
+  private LegacyRouterPathLookup() {
+    // no-op
+  }
+
+  @Nullable
+  static RouteDestination getRoutingService(String requestPath, HttpRequest httpRequest) {
+    try {
+      String method = httpRequest.method().name();
+      AllowedMethod requestMethod = AllowedMethod.valueOf(method);
+      String[] uriParts = StreamSupport
+        .stream(Splitter.on('/').omitEmptyStrings().split(requestPath).spliterator(), false)
+        .toArray(String[]::new);
+
+      if (uriParts[0].equals(Constants.Gateway.API_VERSION_3_TOKEN)) {
+        return getV3RoutingService(uriParts, requestMethod);
+      }
+    } catch (Exception e) {
+      // Ignore exception. Default routing to app-fabric.
+    }
+    return APP_FABRIC_HTTP;
+  }
+
+  private static boolean isUserServiceType(String uriPart) {
+    for (ProgramType type : ServiceDiscoverable.getUserServiceTypes()) {
+      if (type.getCategoryName().equals(uriPart)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Nullable
+  private static RouteDestination getV3RoutingService(String [] uriParts, AllowedMethod requestMethod) {
+    if ((uriParts.length >= 2) && uriParts[1].equals("feeds")) {
+      // TODO(Rohit) find a better way to handle that - this looks hackish
+      // This needs to now changed especially metadata since now it can have custom parts
+      return null;
+    } else if ("bootstrap".equals(uriParts[1])) {
+      return APP_FABRIC_HTTP;
+    } else if ((uriParts.length >= 11) && "versions".equals(uriParts[5]) && isUserServiceType(uriParts[7])
+      && "methods".equals(uriParts[9])) {
+      // User defined services (version specific) handle methods on them:
+      //Path: "/v3/namespaces/{namespace-id}/apps/{app-id}/versions/{version-id}/services/{service-id}/methods/
+      //       <user-defined-method-path>"
+      String serviceName = ServiceDiscoverable.getName(uriParts[2], uriParts[4],
+                                                       ProgramType.valueOfCategoryName(uriParts[7]), uriParts[8]);
+      String version = uriParts[6];
+      return new RouteDestination(serviceName, version);
+    } else if ((uriParts.length >= 9) && isUserServiceType(uriParts[5]) && "methods".equals(uriParts[7])) {
+      //User defined services handle methods on them:
+      //Path: "/v3/namespaces/{namespace-id}/apps/{app-id}/services/{service-id}/methods/<user-defined-method-path>"
+      return new RouteDestination(ServiceDiscoverable.getName(uriParts[2], uriParts[4],
+                                                              ProgramType.valueOfCategoryName(uriParts[5]),
+                                                              uriParts[6]));
+    } else if (beginsWith(uriParts, "v3", "system", "services", null, "logs")) {
+      //Log Handler Path /v3/system/services/<service-id>/logs
+      return LOG_QUERY;
+    } else if ((!beginsWith(uriParts, "v3", "namespaces", null, "securekeys")) && (endsWith(uriParts, "metadata") ||
+      // do no intercept the namespaces/<namespace-name>/securekeys/<key>/metadata as that is handled by the
+      // SecureStoreHandler
+      endsWith(uriParts, "metadata", "properties") || endsWith(uriParts, "metadata", "properties", null) ||
+      endsWith(uriParts, "metadata", "tags") || endsWith(uriParts, "metadata", "tags", null) ||
+      endsWith(uriParts, "metadata", "search") ||
+      beginsWith(uriParts, "v3", "namespaces", null, "datasets", null, "lineage") ||
+      beginsWith(uriParts, "v3", "metadata", "search"))) {
+      return METADATA_SERVICE;
+    } else if (beginsWith(uriParts, "v3", "security", "authorization") ||
+      beginsWith(uriParts, "v3", "namespaces", null, "securekeys")) {
+      // Authorization and Secure Store Handlers currently run in App Fabric
+      return APP_FABRIC_HTTP;
+    } else if (beginsWith(uriParts, "v3", "security", "store", "namespaces", null)) {
+      return APP_FABRIC_HTTP;
+    } else if (beginsWith(uriParts, "v3", "namespaces", null, "data", "datasets", null, "programs") &&
+      requestMethod.equals(AllowedMethod.GET)) {
+      return APP_FABRIC_HTTP;
+    } else if (beginsWith(uriParts, "v3", "namespaces", null, "profiles") ||
+      beginsWith(uriParts, "v3", "profiles")) {
+      return APP_FABRIC_HTTP;
+    } else if (beginsWith(uriParts, "v3", "namespaces", null, "runs")) {
+      return APP_FABRIC_HTTP;
+    } else if (beginsWith(uriParts, "v3", "namespaces", null, "previews")) {
+      return PREVIEW_HTTP;
+    } else if (beginsWith(uriParts, "v3", "system", "serviceproviders")) {
+      return APP_FABRIC_HTTP;
+    } else if ((uriParts.length >= 8 && uriParts[7].equals("logs")) ||
+      (uriParts.length >= 10 && uriParts[9].equals("logs")) ||
+      (uriParts.length >= 6 && uriParts[5].equals("logs"))) {
+      //Log Handler Paths:
+      // /v3/namespaces/<namespaceid>/apps/<appid>/<programid-type>/<programid>/logs
+      // /v3/namespaces/{namespace-id}/apps/{app-id}/{program-type}/{program-id}/runs/{run-id}/logs
+      return LOG_QUERY;
+    } else if (uriParts.length >= 2 && uriParts[1].equals("metrics")) {
+      //Metrics Search Handler Path /v3/metrics
+      return METRICS;
+    } else if (uriParts.length >= 5 && uriParts[1].equals("data") && uriParts[2].equals("explore") &&
+      (uriParts[3].equals("queries") || uriParts[3].equals("jdbc") || uriParts[3].equals("namespaces"))) {
+      // non-namespaced explore operations. For example, /v3/data/explore/queries/{id}
+      return EXPLORE_HTTP_USER_SERVICE;
+    } else if (uriParts.length >= 6 && uriParts[3].equals("data") && uriParts[4].equals("explore") &&
+      (uriParts[5].equals("queries") || uriParts[5].equals("datasets")
+        || uriParts[5].equals("tables") || uriParts[5].equals("jdbc"))) {
+      // namespaced explore operations. For example, /v3/namespaces/{namespace-id}/data/explore/datasets/{ds}/enable
+      return EXPLORE_HTTP_USER_SERVICE;
+    } else if ((uriParts.length == 3) && uriParts[1].equals("explore") && uriParts[2].equals("status")) {
+      return EXPLORE_HTTP_USER_SERVICE;
+    } else if (beginsWith(uriParts, "v3", "system", "services", null, "status")
+      || beginsWith(uriParts, "v3", "system", "services", null, "stacks")) {
+      switch (uriParts[3]) {
+        case Constants.Service.LOGSAVER: return LOG_SAVER;
+        case Constants.Service.TRANSACTION: return TRANSACTION;
+        case Constants.Service.METRICS_PROCESSOR: return METRICS_PROCESSOR;
+        case Constants.Service.METRICS: return METRICS;
+        case Constants.Service.APP_FABRIC_HTTP: return APP_FABRIC_HTTP;
+        case Constants.Service.DATASET_EXECUTOR: return DATASET_EXECUTOR;
+        case Constants.Service.METADATA_SERVICE: return METADATA_SERVICE;
+        case Constants.Service.EXPLORE_HTTP_USER_SERVICE: return EXPLORE_HTTP_USER_SERVICE;
+        case Constants.Service.MESSAGING_SERVICE: return MESSAGING;
+        case Constants.Service.RUNTIME: return RUNTIME;
+        case Constants.Service.SUPPORT_BUNDLE_SERVICE: return SUPPORT_BUNDLE_SERVICE;
+        default: return null;
+      }
+    } else if (uriParts.length == 7 && uriParts[3].equals("data") && uriParts[4].equals("datasets") &&
+      (uriParts[6].equals("flows") || uriParts[6].equals("workers") || uriParts[6].equals("mapreduce"))) {
+      // namespaced app fabric data operations:
+      // /v3/namespaces/{namespace-id}/data/datasets/{name}/flows
+      // /v3/namespaces/{namespace-id}/data/datasets/{name}/workers
+      // /v3/namespaces/{namespace-id}/data/datasets/{name}/mapreduce
+      return APP_FABRIC_HTTP;
+    } else if ((uriParts.length >= 4) && uriParts[3].equals("data")) {
+      // other data operations. For example:
+      // /v3/namespaces/{namespace-id}/data/datasets
+      // /v3/namespaces/{namespace-id}/data/datasets/{name}
+      // /v3/namespaces/{namespace-id}/data/datasets/{name}/properties
+      // /v3/namespaces/{namespace-id}/data/datasets/{name}/admin/{method}
+      return DATASET_MANAGER;
+    } else if (beginsWith(uriParts, "v3", "support", "bundle")) {
+      //Support Bundle Handler Path /v3/support/bundle
+      return SUPPORT_BUNDLE_SERVICE;
+    } else if ((uriParts.length == 3) && uriParts[1].equals("metadata-internals")) {
+      // we don't want to expose endpoints for direct metadata mutation from CDAP master
+      // /v3/metadata-internals/{mutation-type}
+      return DONT_ROUTE;
+    }
+    return APP_FABRIC_HTTP;
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.gateway.router;
+
+import io.netty.handler.codec.http.HttpMethod;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link RouteTable}.
+ */
+public class RouteTableTest {
+
+  @Test
+  public void testMatch() {
+    RouteTable<String> table = RouteTable.<String>builder()
+      .add("/v3/namespaces/*/apps", "apps")
+      .add("/v3/namespaces/*/apps/*", "app")
+      .add("/v3/system/**", "system")
+      .add("/v3/**/metadata", "metadata")
+      .build();
+
+    Assert.assertEquals("apps", table.lookup("/v3/namespaces/ns/apps", HttpMethod.GET));
+    Assert.assertEquals("app", table.lookup("/v3/namespaces/ns/apps/app", HttpMethod.GET));
+    Assert.assertNull(table.lookup("/v3/namespaces/ns/apps/app/programs", HttpMethod.GET));
+    Assert.assertNull(table.lookup("/v3/namespaces", HttpMethod.GET));
+    Assert.assertNull(table.lookup("/", HttpMethod.GET));
+    Assert.assertNull(table.lookup("", HttpMethod.GET));
+
+    // ** matches zero or more segments
+    Assert.assertEquals("system", table.lookup("/v3/system", HttpMethod.GET));
+    Assert.assertEquals("system", table.lookup("/v3/system/services/appfabric/status", HttpMethod.GET));
+    Assert.assertEquals("metadata", table.lookup("/v3/metadata", HttpMethod.GET));
+    Assert.assertEquals("metadata", table.lookup("/v3/namespaces/ns/apps/app/metadata", HttpMethod.GET));
+    Assert.assertNull(table.lookup("/v3/namespaces/ns/apps/app/metadata/tags", HttpMethod.GET));
+
+    // Empty segments are ignored
+    Assert.assertEquals("app", table.lookup("//v3/namespaces//ns/apps/app/", HttpMethod.GET));
+
+    // Segments must be equal to the literal, not just have the same hash code
+    Assert.assertNull(table.lookup("/v3/namespaces/ns/app", HttpMethod.GET));
+    Assert.assertEquals("Aa".hashCode(), "BB".hashCode());
+    RouteTable<String> collision = RouteTable.<String>builder().add("/Aa", "Aa").add("/BB", "BB").build();
+    Assert.assertEquals("Aa", collision.lookup("/Aa", HttpMethod.GET));
+    Assert.assertEquals("BB", collision.lookup("/BB", HttpMethod.GET));
+    Assert.assertNull(collision.lookup("/CC", HttpMethod.GET));
+  }
+
+  @Test
+  public void testEdgeCases() {
+    RouteTable<String> table = RouteTable.<String>builder()
+      .add("/**/status", "status")
+      .add("/v3//namespaces/", "namespaces")
+      .add("/v3/namespaces/*/stop", HttpMethod.POST, "stop")
+      .build();
+
+    // Trailing slashes on the path are ignored
+    Assert.assertEquals("namespaces", table.lookup("/v3/namespaces/", HttpMethod.GET));
+    Assert.assertEquals("namespaces", table.lookup("/v3/namespaces///", HttpMethod.GET));
+    Assert.assertEquals("stop", table.lookup("/v3/namespaces/ns/stop/", HttpMethod.POST));
+
+    // Empty segments in the pattern and in the path are ignored, and never match a *
+    Assert.assertEquals("namespaces", table.lookup("v3/namespaces", HttpMethod.GET));
+    Assert.assertEquals("namespaces", table.lookup("///v3///namespaces", HttpMethod.GET));
+    Assert.assertNull(table.lookup("/v3/namespaces//stop", HttpMethod.POST));
+    Assert.assertEquals("stop", table.lookup("/v3/namespaces//ns//stop", HttpMethod.POST));
+
+    // A leading ** matches from the root, including zero segments
+    Assert.assertEquals("status", table.lookup("/status", HttpMethod.GET));
+    Assert.assertEquals("status", table.lookup("/v3/system/services/appfabric/status", HttpMethod.PUT));
+    Assert.assertEquals("status", table.lookup("/v3/namespaces/ns/stop/status", HttpMethod.POST));
+    Assert.assertNull(table.lookup("/v3/status/stop", HttpMethod.GET));
+
+    // A pattern with a method doesn't match any other method, even if it is the only pattern matching the path
+    Assert.assertNull(table.lookup("/v3/namespaces/ns/stop", HttpMethod.GET));
+    Assert.assertNull(table.lookup("/v3/namespaces/ns/stop", HttpMethod.PATCH));
+    Assert.assertNull(table.lookup("/v3/namespaces/ns/stop", new HttpMethod("post")));
+  }
+
+  @Test
+  public void testPriority() {
+    RouteTable<String> table = RouteTable.<String>builder()
+      .add("/v3/namespaces/*/securekeys/**", "securekeys")
+      .add("/v3/**/metadata", "metadata")
+      .add("/v3/namespaces/*/data/datasets/*/programs", HttpMethod.GET, "programs")
+      .add("/v3/*/*/data/**", "data")
+      .add("/v3/namespaces/default/data/datasets", "default")
+      .build();
+
+    // The first added pattern that matches wins, regardless of how specific it is
+    Assert.assertEquals("securekeys", table.lookup("/v3/namespaces/ns/securekeys/key/metadata", HttpMethod.GET));
+    Assert.assertEquals("metadata", table.lookup("/v3/namespaces/ns/data/datasets/ds/metadata", HttpMethod.GET));
+    Assert.assertEquals("data", table.lookup("/v3/namespaces/default/data/datasets", HttpMethod.GET));
+
+    // Patterns with a method only match requests with the same method
+    Assert.assertEquals("programs", table.lookup("/v3/namespaces/ns/data/datasets/ds/programs", HttpMethod.GET));
+    Assert.assertEquals("data", table.lookup("/v3/namespaces/ns/data/datasets/ds/programs", HttpMethod.POST));
+  }
+
+  @Test
+  public void testEndIndex() {
+    RouteTable<String> table = RouteTable.<String>builder()
+      .add("/v3/namespaces/*", HttpMethod.PUT, "namespace")
+      .add("/v3/namespaces/*/stop", HttpMethod.POST, "stop")
+      .build();
+
+    String uri = "/v3/namespaces/ns/stop?force=true";
+    Assert.assertEquals("stop", table.lookup(uri, uri.indexOf('?'), HttpMethod.POST));
+    Assert.assertEquals("namespace", table.lookup(uri, uri.indexOf("/stop"), HttpMethod.PUT));
+    Assert.assertNull(table.lookup(uri, HttpMethod.POST));
+  }
+}
@@ -28,7 +28,11 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import javax.annotation.Nullable;
 
 /**
  *  To test the RouterPathLookup regular expression tests.
@@ -48,7 +52,7 @@ public class RouterPathLookupTest {
   public void testBootstrapPath() {
     String path = "/v3/bootstrap";
     HttpRequest httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("POST"), path);
-    RouteDestination result = pathLookup.getRoutingService(path, httpRequest);
+    RouteDestination result = getRoutingService(path, httpRequest);
     Assert.assertEquals(RouterPathLookup.APP_FABRIC_HTTP, result);
   }
 
@@ -56,7 +60,7 @@ public class RouterPathLookupTest {
   public void testBatchRunsPath() {
     String path = "/v3/namespaces/n1/runs";
     HttpRequest httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("POST"), path);
-    RouteDestination result = pathLookup.getRoutingService(path, httpRequest);
+    RouteDestination result = getRoutingService(path, httpRequest);
     Assert.assertEquals(RouterPathLookup.APP_FABRIC_HTTP, result);
   }
 
@@ -65,14 +69,14 @@ public class RouterPathLookupTest {
     for (ProgramType programType : EnumSet.of(ProgramType.SERVICE, ProgramType.SPARK)) {
       String path = "/v3/namespaces/n1/apps/a1/" + programType.getCategoryName() + "/s1/methods/m1";
       HttpRequest httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("GET"), path);
-      RouteDestination result = pathLookup.getRoutingService(path, httpRequest);
+      RouteDestination result = getRoutingService(path, httpRequest);
       Assert.assertEquals(ServiceDiscoverable.getName("n1", "a1", programType, "s1"), result.getServiceName());
       Assert.assertTrue(ServiceDiscoverable.isUserService(result.getServiceName()));
       Assert.assertNull(result.getVersion());
 
       path = "/v3/namespaces/n1/apps/a1/versions/v1/" + programType.getCategoryName() + "/s1/methods/m1";
       httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("GET"), path);
-      result = pathLookup.getRoutingService(path, httpRequest);
+      result = getRoutingService(path, httpRequest);
       Assert.assertEquals(ServiceDiscoverable.getName("n1", "a1", programType, "s1"), result.getServiceName());
       Assert.assertTrue(ServiceDiscoverable.isUserService(result.getServiceName()));
       Assert.assertEquals("v1", result.getVersion());
@@ -83,12 +87,12 @@ public class RouterPathLookupTest {
   public void testSystemServicePath() {
     String path = "/v3/system/services/foo/logs";
     HttpRequest httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("GET"), path);
-    RouteDestination result = pathLookup.getRoutingService(path, httpRequest);
+    RouteDestination result = getRoutingService(path, httpRequest);
     Assert.assertEquals(RouterPathLookup.LOG_QUERY, result);
 
     path = "/v3/system/services/foo/live-info";
     httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("GET"), path);
-    result = pathLookup.getRoutingService(path, httpRequest);
+    result = getRoutingService(path, httpRequest);
     Assert.assertEquals(RouterPathLookup.APP_FABRIC_HTTP, result);
   }
 
@@ -97,17 +101,17 @@ public class RouterPathLookupTest {
     //Following URIs might not give actual results but we want to test resilience of Router Path Lookup
     String path = "/v3///metrics/system/apps/InvalidApp//";
     HttpRequest httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("GET"), path);
-    RouteDestination result = pathLookup.getRoutingService(path, httpRequest);
+    RouteDestination result = getRoutingService(path, httpRequest);
     Assert.assertEquals(RouterPathLookup.METRICS, result);
 
     path = "/v3/metrics";
     httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("DELETE"), path);
-    result = pathLookup.getRoutingService(path, httpRequest);
+    result = getRoutingService(path, httpRequest);
     Assert.assertEquals(RouterPathLookup.METRICS, result);
 
     path = "/v3/metrics//";
     httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("POST"), path);
-    result = pathLookup.getRoutingService(path, httpRequest);
+    result = getRoutingService(path, httpRequest);
     Assert.assertEquals(RouterPathLookup.METRICS, result);
 
     testMetricsPath("/v3/metrics/search?target=tag&tag=namespace:user");
@@ -117,7 +121,7 @@ public class RouterPathLookupTest {
 
   private void testMetricsPath(String path) {
     HttpRequest httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("GET"), path);
-    RouteDestination result = pathLookup.getRoutingService(path, httpRequest);
+    RouteDestination result = getRoutingService(path, httpRequest);
     Assert.assertEquals(RouterPathLookup.METRICS, result);
   }
 
@@ -126,17 +130,17 @@ public class RouterPathLookupTest {
     //Default destination for URIs will APP_FABRIC_HTTP
     String path = "/v3/ping/";
     HttpRequest httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("GET"), path);
-    RouteDestination result = pathLookup.getRoutingService(path, httpRequest);
+    RouteDestination result = getRoutingService(path, httpRequest);
     Assert.assertEquals(RouterPathLookup.APP_FABRIC_HTTP, result);
 
     path = "/status";
     httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("GET"), path);
-    result = pathLookup.getRoutingService(path, httpRequest);
+    result = getRoutingService(path, httpRequest);
     Assert.assertEquals(RouterPathLookup.APP_FABRIC_HTTP, result);
 
     path = "/v3/monitor///abcd/";
     httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("POST"), path);
-    result = pathLookup.getRoutingService(path, httpRequest);
+    result = getRoutingService(path, httpRequest);
     Assert.assertEquals(RouterPathLookup.APP_FABRIC_HTTP, result);
   }
 
@@ -145,17 +149,17 @@ public class RouterPathLookupTest {
     //Following URIs might not give actual results but we want to test resilience of Router Path Lookup
     String path = "/v3/namespaces/default/apps//InvalidApp///services/ServiceName/logs/";
     HttpRequest httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("GET"), path);
-    RouteDestination result = pathLookup.getRoutingService(path, httpRequest);
+    RouteDestination result = getRoutingService(path, httpRequest);
     Assert.assertEquals(RouterPathLookup.LOG_QUERY, result);
 
     path = "///v3/namespaces/default///apps/InvalidApp/services/ServiceName/////logs";
     httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("POST"), path);
-    result = pathLookup.getRoutingService(path, httpRequest);
+    result = getRoutingService(path, httpRequest);
     Assert.assertEquals(RouterPathLookup.LOG_QUERY, result);
 
     path = "/v3/namespaces/default/apps/InvalidApp/service/ServiceName/runs/7e6adc79-0f5d-4252-70817ea47698/logs/";
     httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("GET"), path);
-    result = pathLookup.getRoutingService(path, httpRequest);
+    result = getRoutingService(path, httpRequest);
     Assert.assertEquals(RouterPathLookup.LOG_QUERY, result);
   }
 
@@ -165,20 +169,20 @@ public class RouterPathLookupTest {
     String servicePath = "v3/namespaces/default/apps/AppName/services/CatalogLookup//methods////";
     HttpRequest httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("PUT"), servicePath);
     httpRequest.headers().set(Constants.Gateway.API_KEY, API_KEY);
-    RouteDestination result = pathLookup.getRoutingService(servicePath, httpRequest);
+    RouteDestination result = getRoutingService(servicePath, httpRequest);
     Assert.assertEquals(RouterPathLookup.APP_FABRIC_HTTP, result);
 
     servicePath = "v3/namespaces/some/apps/otherAppName/services/CatalogLookup//methods////";
     httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("GET"), servicePath);
     httpRequest.headers().set(Constants.Gateway.API_KEY, API_KEY);
-    result = pathLookup.getRoutingService(servicePath, httpRequest);
+    result = getRoutingService(servicePath, httpRequest);
     Assert.assertEquals(RouterPathLookup.APP_FABRIC_HTTP, result);
 
     // v3 servicePaths
     servicePath = "/v3/namespaces/testnamespace/apps//PurchaseHistory///services/CatalogLookup///methods//ping/1";
     httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("GET"), servicePath);
     httpRequest.headers().set(Constants.Gateway.API_KEY, API_KEY);
-    result = pathLookup.getRoutingService(servicePath, httpRequest);
+    result = getRoutingService(servicePath, httpRequest);
     Assert.assertEquals(String.format("%s.testnamespace.PurchaseHistory.CatalogLookup",
                                       ProgramType.SERVICE.getDiscoverableTypeName()),
                         result.getServiceName());
@@ -188,7 +192,7 @@ public class RouterPathLookupTest {
       "echo/someParam";
     httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("POST"), servicePath);
     httpRequest.headers().set(Constants.Gateway.API_KEY, API_KEY);
-    result = pathLookup.getRoutingService(servicePath, httpRequest);
+    result = getRoutingService(servicePath, httpRequest);
     Assert.assertEquals(String.format("%s.testnamespace.PurchaseHistory-123.weird!service@@NAme",
                                       ProgramType.SERVICE.getDiscoverableTypeName()),
                         result.getServiceName());
@@ -197,7 +201,7 @@ public class RouterPathLookupTest {
     servicePath = "v3/namespaces/testnamespace/apps/SomeApp_Name/services/CatalogLookup/methods/getHistory/itemID";
     httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("GET"), servicePath);
     httpRequest.headers().set(Constants.Gateway.API_KEY, API_KEY);
-    result = pathLookup.getRoutingService(servicePath, httpRequest);
+    result = getRoutingService(servicePath, httpRequest);
     Assert.assertEquals(String.format("%s.testnamespace.SomeApp_Name.CatalogLookup",
                                       ProgramType.SERVICE.getDiscoverableTypeName()),
                         result.getServiceName());
@@ -206,13 +210,13 @@ public class RouterPathLookupTest {
     servicePath = "v3/namespaces/testnamespace/apps/AppName/services/CatalogLookup//methods////";
     httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("PUT"), servicePath);
     httpRequest.headers().set(Constants.Gateway.API_KEY, API_KEY);
-    result = pathLookup.getRoutingService(servicePath, httpRequest);
+    result = getRoutingService(servicePath, httpRequest);
     Assert.assertEquals(RouterPathLookup.APP_FABRIC_HTTP, result);
 
     servicePath = "v3/namespaces/testnamespace/apps/AppName/services/CatalogLookup////methods////";
     httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("GET"), servicePath);
     httpRequest.headers().set(Constants.Gateway.API_KEY, API_KEY);
-    result = pathLookup.getRoutingService(servicePath, httpRequest);
+    result = getRoutingService(servicePath, httpRequest);
     Assert.assertEquals(RouterPathLookup.APP_FABRIC_HTTP, result);
   }
 
@@ -225,7 +229,7 @@ public class RouterPathLookupTest {
   public void testRouterServicePathLookUp() {
     String path = "/v3/namespaces/default//apps/ResponseCodeAnalytics/services/LogAnalyticsService/status";
     HttpRequest httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("GET"), path);
-    RouteDestination result = pathLookup.getRoutingService(path, httpRequest);
+    RouteDestination result = getRoutingService(path, httpRequest);
     Assert.assertEquals(RouterPathLookup.APP_FABRIC_HTTP, result);
   }
 
@@ -233,7 +237,7 @@ public class RouterPathLookupTest {
   public void testRouterWorkFlowPathLookUp() {
     String path = "/v3/namespaces/default/apps///PurchaseHistory///workflows/PurchaseHistoryWorkflow/status";
     HttpRequest httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("GET"), path);
-    RouteDestination result = pathLookup.getRoutingService(path, httpRequest);
+    RouteDestination result = getRoutingService(path, httpRequest);
     Assert.assertEquals(RouterPathLookup.APP_FABRIC_HTTP,  result);
   }
 
@@ -241,7 +245,7 @@ public class RouterPathLookupTest {
   public void testRouterDeployPathLookUp() {
     String path = "/v3/namespaces/default//apps/";
     HttpRequest httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("PUT"), path);
-    RouteDestination result = pathLookup.getRoutingService(path, httpRequest);
+    RouteDestination result = getRoutingService(path, httpRequest);
     Assert.assertEquals(RouterPathLookup.APP_FABRIC_HTTP,  result);
   }
 
@@ -249,7 +253,7 @@ public class RouterPathLookupTest {
   public void testRouterServiceInstancesLookUp() {
     String path = "/v3/namespaces/default//apps/WordCount/services/WordCountService/instances";
     HttpRequest httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("PUT"), path);
-    RouteDestination result = pathLookup.getRoutingService(path, httpRequest);
+    RouteDestination result = getRoutingService(path, httpRequest);
     Assert.assertEquals(RouterPathLookup.APP_FABRIC_HTTP,  result);
   }
 
@@ -257,7 +261,7 @@ public class RouterPathLookupTest {
   public void testRouterExplorePathLookUp() {
     String explorePath = "/v3/namespaces/default//data///explore//datasets////mydataset//enable";
     HttpRequest httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("POST"), explorePath);
-    RouteDestination result = pathLookup.getRoutingService(explorePath, httpRequest);
+    RouteDestination result = getRoutingService(explorePath, httpRequest);
     Assert.assertEquals(RouterPathLookup.EXPLORE_HTTP_USER_SERVICE, result);
   }
 
@@ -265,7 +269,7 @@ public class RouterPathLookupTest {
   public void testRouterExploreStatusPathLookUp() {
     String explorePath = "/v3/explore/status";
     HttpRequest httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("GET"), explorePath);
-    RouteDestination result = pathLookup.getRoutingService(explorePath, httpRequest);
+    RouteDestination result = getRoutingService(explorePath, httpRequest);
     Assert.assertEquals(RouterPathLookup.EXPLORE_HTTP_USER_SERVICE, result);
   }
 
@@ -273,7 +277,7 @@ public class RouterPathLookupTest {
   public void testRouterV3PathLookup() {
     final String namespacePath = "/v3////namespace/////";
     HttpRequest httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("GET"), namespacePath);
-    RouteDestination result = pathLookup.getRoutingService(namespacePath, httpRequest);
+    RouteDestination result = getRoutingService(namespacePath, httpRequest);
     Assert.assertEquals(RouterPathLookup.APP_FABRIC_HTTP, result);
   }
 
@@ -281,7 +285,7 @@ public class RouterPathLookupTest {
   public void testRouterFeedsLookup() {
     final String namespacePath = "/v3//feeds/test";
     HttpRequest httpRequest = new DefaultHttpRequest(VERSION, new HttpMethod("PUT"), namespacePath);
-    RouteDestination result = pathLookup.getRoutingService(namespacePath, httpRequest);
+    RouteDestination result = getRoutingService(namespacePath, httpRequest);
     Assert.assertNull(result);
   }
 
@@ -475,10 +479,56 @@ public class RouterPathLookupTest {
     Assert.assertFalse(RouterPathLookup.endsWith(new String[]{"a", "b", "c", "d"}, "a", "b", null));
   }
 
+  @Test
+  public void testSameAsLegacyLookup() {
+    // Segments that appear in the routes, so that the random paths hit the routes as well as the fallbacks
+    List<String> segments = Arrays.asList(
+      "v3", "namespaces", "ns", "apps", "app", "versions", "v1", "services", "spark", "workers", "s1", "methods",
+      "system", "logs", "metrics", "metadata", "properties", "tags", "search", "data", "datasets", "programs",
+      "lineage", "security", "authorization", "store", "securekeys", "profiles", "runs", "previews", "bootstrap",
+      "serviceproviders", "status", "stacks", "explore", "queries", "tables", "jdbc", "feeds", "flows", "mapreduce",
+      "support", "bundle", "metadata-internals", "unused",
+      Constants.Service.LOGSAVER, Constants.Service.TRANSACTION, Constants.Service.METRICS_PROCESSOR,
+      Constants.Service.METRICS, Constants.Service.APP_FABRIC_HTTP, Constants.Service.DATASET_EXECUTOR,
+      Constants.Service.METADATA_SERVICE, Constants.Service.EXPLORE_HTTP_USER_SERVICE,
+      Constants.Service.MESSAGING_SERVICE, Constants.Service.RUNTIME, Constants.Service.SUPPORT_BUNDLE_SERVICE, "");
+    List<HttpMethod> methods = ImmutableList.of(HttpMethod.GET, HttpMethod.PUT, HttpMethod.POST, HttpMethod.DELETE,
+                                                HttpMethod.PATCH, HttpMethod.OPTIONS);
+    // Prefixes shared by many routes, so that the random paths reach the deeper conditions as well
+    List<String> prefixes = Arrays.asList("", "/v3", "/v3/namespaces/ns", "/v3/namespaces/ns/apps/app",
+                                          "/v3/namespaces/ns/apps/app/versions/v1", "/v3/system/services",
+                                          "/v3/namespaces/ns/data/datasets/ds", "/v3/namespaces/ns/datasets/ds");
+    Random random = new Random(0);
+
+    for (int i = 0; i < 100000; i++) {
+      StringBuilder path = new StringBuilder(prefixes.get(random.nextInt(prefixes.size())));
+      int size = random.nextInt(6);
+      for (int j = 0; j < size; j++) {
+        path.append('/').append(segments.get(random.nextInt(segments.size())));
+      }
+      if (random.nextBoolean()) {
+        path.append('/');
+      }
+      HttpMethod method = methods.get(random.nextInt(methods.size()));
+      getRoutingService(path.toString(), new DefaultHttpRequest(VERSION, method, path.toString()));
+    }
+  }
+
+  /**
+   * Looks up the route of the given request and checks it is the same as the one from {@link LegacyRouterPathLookup}.
+   */
+  @Nullable
+  private RouteDestination getRoutingService(String path, HttpRequest httpRequest) {
+    RouteDestination result = pathLookup.getRoutingService(path, httpRequest);
+    Assert.assertEquals("Route of " + httpRequest.method() + " " + path,
+                        LegacyRouterPathLookup.getRoutingService(path, httpRequest), result);
+    return result;
+  }
+
   private void assertRouting(String path, RouteDestination destination) {
     for (HttpMethod method : ImmutableList.of(HttpMethod.GET, HttpMethod.POST, HttpMethod.DELETE)) {
       HttpRequest httpRequest = new DefaultHttpRequest(VERSION, method, path);
-      RouteDestination result = pathLookup.getRoutingService(path, httpRequest);
+      RouteDestination result = getRoutingService(path, httpRequest);
       Assert.assertEquals(destination,  result);
     }
   }
@@ -0,0 +1,180 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.gateway.router.handlers;
+
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import org.apache.twill.discovery.Discoverable;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.Callable;
+
+/**
+ * Unit test for {@link UpstreamConnectionPool}.
+ */
+public class UpstreamConnectionPoolTest {
+
+  private static final Discoverable ENDPOINT_1 = new Discoverable("service1", new InetSocketAddress("host1", 1000));
+  private static final Discoverable ENDPOINT_2 = new Discoverable("service2", new InetSocketAddress("host2", 2000));
+
+  private static final ChannelHandler NOOP_HANDLER = new NoopHandler();
+
+  private static EventLoopGroup eventLoopGroup;
+  private static Channel serverChannel;
+
+  @BeforeClass
+  public static void init() throws Exception {
+    // Use a single event loop, such that all the channels belong to it
+    eventLoopGroup = new DefaultEventLoopGroup(1);
+    serverChannel = new ServerBootstrap()
+      .group(eventLoopGroup)
+      .channel(LocalServerChannel.class)
+      .childHandler(NOOP_HANDLER)
+      .bind(new LocalAddress(UpstreamConnectionPoolTest.class.getName()))
+      .sync().channel();
+  }
+
+  @AfterClass
+  public static void finish() throws Exception {
+    serverChannel.close().sync();
+    eventLoopGroup.shutdownGracefully().sync();
+  }
+
+  @Test
+  public void testAcquireRelease() throws Exception {
+    MetricsContext metricsContext = Mockito.mock(MetricsContext.class);
+    UpstreamConnectionPool pool = new UpstreamConnectionPool(createCConf(2), metricsContext);
+    EventLoop eventLoop = eventLoopGroup.next();
+
+    Channel channel1 = connect();
+    Channel channel2 = connect();
+    Channel channel3 = connect();
+
+    Assert.assertNull(call(() -> pool.acquire(eventLoop, ENDPOINT_1)));
+
+    call(() -> {
+      pool.release(channel1, ENDPOINT_1);
+      pool.release(channel2, ENDPOINT_1);
+      // Exceeds the maximum number of idle connections, hence is closed
+      pool.release(channel3, ENDPOINT_1);
+      return null;
+    });
+    channel3.closeFuture().sync();
+
+    // Connections of other endpoints are not used
+    Assert.assertNull(call(() -> pool.acquire(eventLoop, ENDPOINT_2)));
+
+    // The most recently released connection is used first
+    Assert.assertSame(channel2, call(() -> pool.acquire(eventLoop, ENDPOINT_1)));
+    Assert.assertSame(channel1, call(() -> pool.acquire(eventLoop, ENDPOINT_1)));
+    Assert.assertNull(call(() -> pool.acquire(eventLoop, ENDPOINT_1)));
+
+    Mockito.verify(metricsContext, Mockito.times(2))
+      .increment(Constants.Metrics.Name.Router.UPSTREAM_POOL_HIT_COUNT, 1L);
+    Mockito.verify(metricsContext, Mockito.times(3))
+      .increment(Constants.Metrics.Name.Router.UPSTREAM_POOL_MISS_COUNT, 1L);
+
+    channel1.close().sync();
+    channel2.close().sync();
+  }
+
+  @Test
+  public void testClosedConnection() throws Exception {
+    UpstreamConnectionPool pool = new UpstreamConnectionPool(createCConf(2), Mockito.mock(MetricsContext.class));
+    EventLoop eventLoop = eventLoopGroup.next();
+
+    Channel channel1 = connect();
+    Channel channel2 = connect();
+    call(() -> {
+      pool.release(channel1, ENDPOINT_1);
+      pool.release(channel2, ENDPOINT_1);
+      return null;
+    });
+
+    // Connections closed while idle are not used
+    channel2.close().sync();
+    Assert.assertSame(channel1, call(() -> pool.acquire(eventLoop, ENDPOINT_1)));
+
+    // Closed connections are not added to the pool
+    channel1.close().sync();
+    call(() -> {
+      pool.release(channel1, ENDPOINT_1);
+      return null;
+    });
+    Assert.assertNull(call(() -> pool.acquire(eventLoop, ENDPOINT_1)));
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    UpstreamConnectionPool pool = new UpstreamConnectionPool(createCConf(0), Mockito.mock(MetricsContext.class));
+    EventLoop eventLoop = eventLoopGroup.next();
+
+    Channel channel = connect();
+    call(() -> {
+      pool.release(channel, ENDPOINT_1);
+      return null;
+    });
+    channel.closeFuture().sync();
+    Assert.assertNull(call(() -> pool.acquire(eventLoop, ENDPOINT_1)));
+  }
+
+  private CConfiguration createCConf(int maxIdlePerHost) {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setInt(Constants.Router.UPSTREAM_POOL_MAX_IDLE_PER_HOST, maxIdlePerHost);
+    return cConf;
+  }
+
+  private Channel connect() throws Exception {
+    return new Bootstrap()
+      .group(eventLoopGroup)
+      .channel(LocalChannel.class)
+      .handler(NOOP_HANDLER)
+      .connect(serverChannel.localAddress())
+      .sync().channel();
+  }
+
+  /**
+   * Calls the given {@link Callable} from the event loop thread, which is required by the pool.
+   */
+  private <T> T call(Callable<T> callable) throws Exception {
+    return eventLoopGroup.next().submit(callable).get();
+  }
+
+  /**
+   * A handler that does nothing, which is shared by all the channels.
+   */
+  @ChannelHandler.Sharable
+  private static final class NoopHandler extends ChannelInboundHandlerAdapter {
+  }
+}
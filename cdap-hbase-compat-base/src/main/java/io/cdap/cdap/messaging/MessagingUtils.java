@@ -42,6 +42,7 @@ public final class MessagingUtils {
     public static final String TTL_KEY = "ttl";
     public static final byte[] TX_COL = Bytes.toBytes('t');
     public static final byte[] PAYLOAD_COL = Bytes.toBytes('p');
+    public static final byte[] PAYLOAD_BLOCK_COL = Bytes.toBytes('b');
     public static final long METADATA_CACHE_UPDATE_FREQUENCY_SECS = TimeUnit.MINUTES.toSeconds(5);
   }
 
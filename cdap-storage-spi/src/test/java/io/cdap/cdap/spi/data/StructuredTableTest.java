@@ -172,6 +172,112 @@ public abstract class StructuredTableTest {
 
     Assert.assertEquals(10, result.size());
     Assert.assertEquals(new HashSet<>(keys), result);
+
+    // Only the exact keys are returned, not other combinations of the key values
+    getTransactionRunner().run(context -> {
+      StructuredTable table = context.getTable(SIMPLE_TABLE);
+      table.upsert(Arrays.asList(Fields.intField(KEY, 0), Fields.longField(KEY2, 1L),
+                                 Fields.stringField(STRING_COL, VAL)));
+    });
+    List<Collection<Field<?>>> subKeys = Arrays.asList(
+      Arrays.asList(Fields.intField(KEY, 0), Fields.longField(KEY2, 0L)),
+      Arrays.asList(Fields.intField(KEY, 1), Fields.longField(KEY2, 1L)));
+    result = TransactionRunners.run(getTransactionRunner(), context -> {
+      StructuredTable table = context.getTable(SIMPLE_TABLE);
+      return new HashSet<>(convertRowsToFields(table.multiRead(subKeys).iterator(), Arrays.asList(KEY, KEY2)));
+    });
+    Assert.assertEquals(new HashSet<>(subKeys), result);
+  }
+
+  @Test
+  public void testMultiReadManyKeys() throws Exception {
+    // More keys than what a single SQL statement can bind, with two parameters per key
+    int max = 20000;
+    List<Collection<Field<?>>> rows = new ArrayList<>();
+    for (int i = 0; i < max; i++) {
+      rows.add(Arrays.asList(Fields.intField(KEY, i), Fields.longField(KEY2, (long) i),
+                             Fields.stringField(STRING_COL, VAL + i)));
+    }
+    getTransactionRunner().run(context -> {
+      StructuredTable table = context.getTable(SIMPLE_TABLE);
+      table.multiUpsert(rows);
+    });
+
+    // Read the even rows, together with the same number of keys that don't exist
+    Set<Collection<Field<?>>> expected = new HashSet<>();
+    List<Collection<Field<?>>> keys = new ArrayList<>();
+    for (int i = 0; i < max; i += 2) {
+      Collection<Field<?>> key = Arrays.asList(Fields.intField(KEY, i), Fields.longField(KEY2, (long) i));
+      expected.add(key);
+      keys.add(key);
+      keys.add(Arrays.asList(Fields.intField(KEY, i), Fields.longField(KEY2, (long) i + 1)));
+    }
+    Set<Collection<Field<?>>> result = TransactionRunners.run(getTransactionRunner(), context -> {
+      StructuredTable table = context.getTable(SIMPLE_TABLE);
+      return new HashSet<>(convertRowsToFields(table.multiRead(keys).iterator(), Arrays.asList(KEY, KEY2)));
+    });
+    Assert.assertEquals(expected, result);
+  }
+
+  @Test
+  public void testMultiUpsertDelete() throws Exception {
+    int max = 10;
+
+    List<Collection<Field<?>>> expected = new ArrayList<>();
+    for (int i = 0; i < max; i++) {
+      expected.add(Arrays.asList(Fields.intField(KEY, i),
+                                 Fields.longField(KEY2, (long) i),
+                                 Fields.stringField(STRING_COL, VAL + i),
+                                 Fields.doubleField(DOUBLE_COL, (double) i),
+                                 Fields.floatField(FLOAT_COL, (float) i),
+                                 Fields.bytesField(BYTES_COL, Bytes.toBytes("bytes-" + i))));
+    }
+    getTransactionRunner().run(context -> {
+      StructuredTable table = context.getTable(SIMPLE_TABLE);
+      table.multiUpsert(expected);
+    });
+    Assert.assertEquals(expected, readSimpleStructuredRows(max));
+
+    // Rows with different sets of columns can be written together
+    List<Collection<Field<?>>> updates = Arrays.asList(
+      Arrays.asList(Fields.intField(KEY, 1), Fields.longField(KEY2, 1L), Fields.stringField(STRING_COL, "new1")),
+      Arrays.asList(Fields.intField(KEY, 2), Fields.longField(KEY2, 2L), Fields.doubleField(DOUBLE_COL, 20.0d)));
+    getTransactionRunner().run(context -> {
+      StructuredTable table = context.getTable(SIMPLE_TABLE);
+      table.multiUpsert(updates);
+    });
+    List<Collection<Field<?>>> actual = readSimpleStructuredRows(max);
+    Assert.assertTrue(actual.get(1).contains(Fields.stringField(STRING_COL, "new1")));
+    Assert.assertTrue(actual.get(2).contains(Fields.doubleField(DOUBLE_COL, 20.0d)));
+
+    // Delete the even rows
+    List<Collection<Field<?>>> keys = new ArrayList<>();
+    for (int i = 0; i < max; i += 2) {
+      keys.add(Arrays.asList(Fields.intField(KEY, i), Fields.longField(KEY2, (long) i)));
+    }
+    getTransactionRunner().run(context -> {
+      StructuredTable table = context.getTable(SIMPLE_TABLE);
+      table.multiDelete(keys);
+    });
+    actual = readSimpleStructuredRows(max);
+    Assert.assertEquals(max / 2, actual.size());
+    for (Collection<Field<?>> row : actual) {
+      Assert.assertFalse(keys.contains(new ArrayList<>(row).subList(0, 2)));
+    }
+
+    // A row without the primary key fails the whole batch
+    try {
+      getTransactionRunner().run(context -> {
+        StructuredTable table = context.getTable(SIMPLE_TABLE);
+        table.multiUpsert(Arrays.asList(
+          Arrays.asList(Fields.intField(KEY, 100), Fields.longField(KEY2, 100L), Fields.stringField(STRING_COL, VAL)),
+          Collections.singletonList(Fields.stringField(STRING_COL, VAL))));
+      });
+      Assert.fail("Expected TransactionException");
+    } catch (TransactionException e) {
+      // expected
+    }
+    Assert.assertEquals(max / 2, readSimpleStructuredRows(max).size());
   }
 
   @Test
@@ -22,6 +22,7 @@ import io.cdap.cdap.messaging.data.RawMessage;
 import org.apache.tephra.Transaction;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 /**
@@ -39,6 +40,9 @@ public abstract class MessageFetcher {
   // by default there is virtually no limit
   private int limit = Integer.MAX_VALUE;
 
+  // by default there is no waiting for new messages
+  private long waitTimeoutMillis;
+
   /**
    * Setup the message fetching starting point based on the given message id. Calling this method
    * will clear the start time set by the {@link #setStartTime(long)} method.
@@ -96,6 +100,22 @@ public abstract class MessageFetcher {
     return this;
   }
 
+  /**
+   * Sets the maximum time to wait for new messages to be published to the topic if there is no message
+   * available at the time of fetching. By default it is {@code 0}, meaning the fetch returns immediately.
+   *
+   * @param timeout the maximum time to wait
+   * @param unit the unit of the timeout
+   * @return this instance
+   */
+  public MessageFetcher setWaitTimeout(long timeout, TimeUnit unit) {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Invalid message fetching wait timeout. Timeout must be >= 0");
+    }
+    this.waitTimeoutMillis = unit.toMillis(timeout);
+    return this;
+  }
+
   @Nullable
   protected byte[] getStartOffset() {
     return startOffset;
@@ -119,6 +139,10 @@ public abstract class MessageFetcher {
     return limit;
   }
 
+  protected long getWaitTimeoutMillis() {
+    return waitTimeoutMillis;
+  }
+
   /**
    * Returns a {@link CloseableIterator} that iterates over messages fetched from the messaging system.
    *
@@ -30,6 +30,7 @@ public class TopicMetadata {
 
   public static final String GENERATION_KEY = MessagingUtils.Constants.GENERATION_KEY;
   public static final String TTL_KEY = MessagingUtils.Constants.TTL_KEY;
+  public static final String PAYLOAD_BLOCK_SIZE_KEY = "payload.block.size";
 
   private final TopicId topicId;
   private final Map<String, String> properties;
@@ -109,6 +110,19 @@ public class TopicMetadata {
     return Integer.parseInt(properties.get(TTL_KEY));
   }
 
+  /**
+   * Returns the maximum number of consecutive non-transactional messages that are stored together as one
+   * compressed block in the message table. A value of {@code 1}, which is the default, means each message is
+   * stored individually.
+   */
+  public int getPayloadBlockSize() {
+    if (!validated) {
+      validatePayloadBlockSize();
+    }
+    String blockSize = properties.get(PAYLOAD_BLOCK_SIZE_KEY);
+    return blockSize == null ? 1 : Integer.parseInt(blockSize);
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -142,6 +156,7 @@ public class TopicMetadata {
   private void validateProperties() {
     validateTTL();
     validateGeneration();
+    validatePayloadBlockSize();
   }
 
   /**
@@ -183,6 +198,27 @@ public class TopicMetadata {
     }
   }
 
+  /**
+   * Validates the optional "payload.block.size" property of the given topic.
+   *
+   * @throws IllegalArgumentException if the block size is not a number or <= 0.
+   */
+  private void validatePayloadBlockSize() {
+    String blockSize = properties.get(PAYLOAD_BLOCK_SIZE_KEY);
+    if (blockSize == null) {
+      return;
+    }
+    try {
+      if (Integer.parseInt(blockSize) <= 0) {
+        throw new IllegalArgumentException("The payload.block.size property must be greater than zero for topic "
+                                             + topicId);
+      }
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("The payload.block.size property must be a number greater than zero " +
+                                           "for topic " + topicId, e);
+    }
+  }
+
   /**
    * Turns a list of {@link Object} into a {@link Map} by using even index objects as keys and the following odd index
    * objects as values. The {@link Object#toString()} method will be used to convert {@link Object} to {@link String}.
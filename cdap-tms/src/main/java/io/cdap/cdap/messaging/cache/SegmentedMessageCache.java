@@ -0,0 +1,522 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.messaging.store.MessageFilter;
+
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link MessageCache} that keeps entries in append-only, time-ordered segments. Each segment is a fixed size
+ * array of entries. The list of segments is immutable and is replaced whenever segments are added or removed, hence
+ * scans don't need to acquire a lock. Changes to the segments and to the cache weight are made while holding a lock,
+ * which is only contended when the weight is reduced or the cache is cleared while entries are being added.
+ *
+ * - Adding entries appends to the last segment, or starts a new one when the last segment is sealed.
+ *   The single writer publishes each entry by updating the volatile size of the segment.
+ * - Scanning takes a snapshot of the segment list and binary searches the segments and then the entries
+ *   within a segment to find the start entry. Entries are read lazily from the snapshot.
+ * - Weight reduction removes whole sealed segments from the head of the list until the cache weight would go
+ *   below the min retain weight. A segment is sealed when it is full, when its weight reaches a fraction of
+ *   the room between the min retain and hard limit, or when the hard limit is reached while adding.
+ * - Updating entries, which is used for marking entries as rolled back, modifies entries in place.
+ *
+ * The {@link Limits} are interpreted the same way as in {@link DefaultMessageCache}, except that the
+ * cache weight is reduced with the granularity of segments.
+ *
+ * @param <T> type of entry stored in the cache
+ */
+public class SegmentedMessageCache<T> implements MessageCache<T> {
+
+  /**
+   * The default maximum number of entries in each segment.
+   */
+  public static final int DEFAULT_SEGMENT_SIZE = 1024;
+
+  private static final String METRICS_WEIGHT = "cache.weight";
+  private static final String METRICS_ENTRIES_ADDED = "cache.entries.added";
+  private static final String METRICS_ENTRIES_REMOVED = "cache.entries.removed";
+  private static final String METRICS_SEGMENTS_REMOVED = "cache.segments.removed";
+  private static final String METRICS_ADD_REQUESTS = "cache.add.requests";
+  private static final String METRICS_ADD_REDUCE_WEIGHT = "cache.add.reduce.weight";
+  private static final String METRICS_SCAN_REQUESTS = "cache.scan.requests";
+  private static final String METRICS_SCAN_REDUCE_WEIGHT = "cache.scan.reduce.weight";
+
+  // Number of segments that the room between the min retain and the hard limit is divided into
+  private static final int SEGMENTS_PER_REDUCTION = 4;
+
+  private final Comparator<T> comparator;
+  private final Weigher<T> weigher;
+  private final int segmentSize;
+  private final AtomicReference<Limits> limits;
+  private final MetricsContext metricsContext;
+  // Lock for changing the segments and the cache weight
+  private final Lock lock;
+  private volatile List<Segment<T>> segments;
+  private volatile long currentWeight;
+  private final AtomicBoolean needReduceWeight;
+  private final AtomicBoolean adding;
+
+  /**
+   * Creates a new instance of the cache with the default segment size.
+   *
+   * @param comparator a {@link Comparator} for ordering cache entries
+   * @param weigher a {@link Weigher} for computing the weight of each cache entry
+   * @param limits the limits for maintaining cache weight
+   * @param metricsContext a {@link MetricsContext} for emitting metrics about this cache.
+   */
+  public SegmentedMessageCache(Comparator<T> comparator, Weigher<T> weigher,
+                               Limits limits, MetricsContext metricsContext) {
+    this(comparator, weigher, limits, metricsContext, DEFAULT_SEGMENT_SIZE);
+  }
+
+  /**
+   * Creates a new instance of the cache.
+   *
+   * @param comparator a {@link Comparator} for ordering cache entries
+   * @param weigher a {@link Weigher} for computing the weight of each cache entry
+   * @param limits the limits for maintaining cache weight
+   * @param metricsContext a {@link MetricsContext} for emitting metrics about this cache.
+   * @param segmentSize maximum number of entries in each segment
+   */
+  public SegmentedMessageCache(Comparator<T> comparator, Weigher<T> weigher,
+                               Limits limits, MetricsContext metricsContext, int segmentSize) {
+    Preconditions.checkArgument(segmentSize > 0, "Segment size must be positive");
+    this.comparator = comparator;
+    this.weigher = weigher;
+    this.segmentSize = segmentSize;
+    this.limits = new AtomicReference<>(limits);
+    this.metricsContext = metricsContext;
+    this.lock = new ReentrantLock();
+    this.segments = ImmutableList.of();
+    this.needReduceWeight = new AtomicBoolean();
+    this.adding = new AtomicBoolean();
+  }
+
+  @Override
+  public Comparator<T> getComparator() {
+    return comparator;
+  }
+
+  @Override
+  public void addAll(Iterator<T> entries) {
+    if (!adding.compareAndSet(false, true)) {
+      // This is to guard against bug, otherwise this shouldn't happen
+      throw new ConcurrentModificationException(
+        "The SegmentedMessageCache.addAll method shouldn't be called concurrently by multiple threads.");
+    }
+
+    lock.lock();
+    try {
+      List<Segment<T>> current = segments;
+      Segment<T> tail = current.isEmpty() ? null : current.get(current.size() - 1);
+      T largestEntry = tail == null ? null : tail.get(tail.size() - 1);
+
+      long newWeight = currentWeight;
+      int entriesAdded = 0;
+      while (entries.hasNext()) {
+        T entry = entries.next();
+
+        // New entries must be larger than everything in the cache and must be in strictly increasing order
+        if (largestEntry != null && comparator.compare(largestEntry, entry) >= 0) {
+          // Clear the cache to reset state. This is just for precaution, as this shouldn't happen,
+          // unless there is bug in the TMS system (from the caller side).
+          clear();
+          throw new IllegalArgumentException("Cache entry must be in strictly increasing order. " +
+                                               "Entry " + entry + " is smaller than or equal to " + largestEntry);
+        }
+        largestEntry = entry;
+
+        int weight = weigher.weight(entry);
+        if (tail == null || !tail.append(entry, weight)) {
+          if (tail != null) {
+            tail.seal();
+          }
+          tail = new Segment<>(segmentSize, getMaxSegmentWeight(limits.get()));
+          tail.append(entry, weight);
+          appendSegment(tail);
+        }
+        entriesAdded++;
+
+        // It's ok to "leak" this to reader even if the new weight is larger than the hard limit
+        // The segment will get removed and the read/write operations as a whole still give valid results
+        currentWeight += weight;
+        newWeight = currentWeight;
+        if (newWeight > limits.get().getHardLimit()) {
+          // Seal the last segment so that it can be removed as well
+          tail.seal();
+          reduceWeight();
+          metricsContext.increment(METRICS_ADD_REDUCE_WEIGHT, 1L);
+          newWeight = currentWeight;
+        }
+      }
+
+      metricsContext.increment(METRICS_ADD_REQUESTS, 1L);
+      metricsContext.increment(METRICS_ENTRIES_ADDED, entriesAdded);
+      metricsContext.gauge(METRICS_WEIGHT, newWeight);
+
+      if (newWeight > limits.get().getReduceTrigger()) {
+        needReduceWeight.compareAndSet(false, true);
+      }
+    } finally {
+      lock.unlock();
+      adding.set(false);
+    }
+  }
+
+  @Override
+  public Scanner<T> scan(T startEntry, boolean includeStart, int limit, MessageFilter<T> filter) {
+    List<Segment<T>> current = segments;
+    metricsContext.increment(METRICS_SCAN_REQUESTS, 1L);
+
+    T firstInCache = current.isEmpty() ? null : current.get(0).get(0);
+    Iterator<T> iterator = new SegmentsIterator(current, startEntry, includeStart, limit, filter);
+
+    return new AbstractScanner<T>(iterator, firstInCache) {
+      @Override
+      void doClose() {
+        // Use compareAndSet to check if need to reduce weight. There will only be
+        // one winner to proceed with the reduce weight call.
+        if (needReduceWeight.compareAndSet(true, false)) {
+          // Don't block the scan while entries are being added. The next scan tries again.
+          if (!lock.tryLock()) {
+            needReduceWeight.set(true);
+            return;
+          }
+          try {
+            reduceWeight();
+          } finally {
+            lock.unlock();
+          }
+          metricsContext.increment(METRICS_SCAN_REDUCE_WEIGHT, 1L);
+        }
+      }
+    };
+  }
+
+  @Override
+  public void updateEntries(T startEntry, T endEntry, EntryUpdater<T> updater) {
+    List<Segment<T>> current = segments;
+
+    int segmentIdx = findSegment(current, startEntry, true);
+    if (segmentIdx >= current.size()) {
+      return;
+    }
+    Segment<T> segment = current.get(segmentIdx);
+    int idx = segment.lowerBound(comparator, startEntry, true, segment.size());
+
+    T lower = idx > 0
+      ? segment.get(idx - 1)
+      : segmentIdx > 0 ? current.get(segmentIdx - 1).get(current.get(segmentIdx - 1).size() - 1) : null;
+    T entry = segment.get(idx);
+
+    while (entry != null && comparator.compare(entry, endEntry) <= 0) {
+      // Find the next entry
+      idx++;
+      if (idx >= segment.size() && segmentIdx + 1 < current.size()) {
+        segment = current.get(++segmentIdx);
+        idx = 0;
+      }
+      T higher = idx < segment.size() ? segment.get(idx) : null;
+
+      try {
+        updater.updateEntry(entry);
+      } catch (RuntimeException e) {
+        clear();
+        throw e;
+      }
+
+      // A quick check that the ordering hasn't been altered.
+      // It doesn't cover all possible case though. This is just a quick catch for bug in the caller.
+      if ((lower != null && comparator.compare(lower, entry) >= 0)
+        || (higher != null && comparator.compare(higher, entry) <= 0)) {
+        // This shouldn't happen, unless there is bug in the caller.
+        clear();
+        throw new IllegalStateException("Entry order should not be altered after update.");
+      }
+
+      lower = entry;
+      entry = higher;
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      List<Segment<T>> current = segments;
+      segments = ImmutableList.of();
+      removed(current);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void resize(Limits limits) {
+    this.limits.set(limits);
+    lock.lock();
+    try {
+      reduceWeight();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Limits getLimits() {
+    return limits.get();
+  }
+
+  /**
+   * Returns the current cache weight.
+   */
+  @VisibleForTesting
+  long getCurrentWeight() {
+    return currentWeight;
+  }
+
+  /**
+   * Returns the current number of segments.
+   */
+  @VisibleForTesting
+  int getSegmentCount() {
+    return segments.size();
+  }
+
+  /**
+   * Reduces the cache weight. Sealed segments will be removed from the head until removing the next segment would
+   * make the cache weight smaller than the min retain weight. Must be called while holding the lock.
+   */
+  private void reduceWeight() {
+    List<Segment<T>> current = segments;
+    long minRetain = limits.get().getMinRetain();
+    long weight = currentWeight;
+
+    int count = 0;
+    for (Segment<T> segment : current) {
+      if (!segment.isSealed() || weight - segment.getWeight() < minRetain) {
+        break;
+      }
+      weight -= segment.getWeight();
+      count++;
+    }
+
+    if (count > 0) {
+      segments = ImmutableList.copyOf(current.subList(count, current.size()));
+      removed(current.subList(0, count));
+    }
+  }
+
+  /**
+   * Appends a new segment to the end of the segment list. Must be called while holding the lock.
+   */
+  private void appendSegment(Segment<T> segment) {
+    segments = ImmutableList.<Segment<T>>builder().addAll(segments).add(segment).build();
+  }
+
+  /**
+   * Updates weight and metrics for segments that were removed from the segment list. Must be called while holding
+   * the lock.
+   */
+  private void removed(List<Segment<T>> removedSegments) {
+    long weight = 0L;
+    int entries = 0;
+    for (Segment<T> segment : removedSegments) {
+      // Make sure no more entry will be added to a segment that is no longer in the cache
+      segment.seal();
+      weight += segment.getWeight();
+      entries += segment.size();
+    }
+    currentWeight -= weight;
+    metricsContext.increment(METRICS_ENTRIES_REMOVED, entries);
+    metricsContext.increment(METRICS_SEGMENTS_REMOVED, removedSegments.size());
+  }
+
+  /**
+   * Returns the maximum weight of a segment based on the given {@link Limits}.
+   */
+  private long getMaxSegmentWeight(Limits limits) {
+    return Math.max(1L, (limits.getHardLimit() - limits.getMinRetain()) / SEGMENTS_PER_REDUCTION);
+  }
+
+  /**
+   * Binary searches the index of the first segment that may contain entries that are larger than
+   * (or equal to if inclusive) the given entry.
+   *
+   * @return the segment index or the size of the segment list if there is no such segment
+   */
+  private int findSegment(List<Segment<T>> segments, T entry, boolean inclusive) {
+    int low = 0;
+    int high = segments.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      Segment<T> segment = segments.get(mid);
+      int cmp = comparator.compare(segment.get(segment.size() - 1), entry);
+      if (cmp < 0 || (cmp == 0 && !inclusive)) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * An append-only segment of cache entries. Only the cache writer appends to a segment, and the entry is
+   * published to readers by the update of the volatile size.
+   *
+   * @param <T> type of entry stored in the segment
+   */
+  private static final class Segment<T> {
+
+    private final Object[] entries;
+    private final long maxWeight;
+    private volatile int size;
+    private volatile long weight;
+    private volatile boolean sealed;
+
+    Segment(int capacity, long maxWeight) {
+      this.entries = new Object[capacity];
+      this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Appends an entry to this segment.
+     *
+     * @return {@code true} if the entry was added; {@code false} if this segment is sealed, full or has reached
+     *         its maximum weight
+     */
+    boolean append(T entry, int entryWeight) {
+      int currentSize = size;
+      if (sealed || currentSize >= entries.length || (currentSize > 0 && weight + entryWeight > maxWeight)) {
+        return false;
+      }
+      entries[currentSize] = entry;
+      weight += entryWeight;
+      size = currentSize + 1;
+      return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int idx) {
+      return (T) entries[idx];
+    }
+
+    int size() {
+      return size;
+    }
+
+    long getWeight() {
+      return weight;
+    }
+
+    void seal() {
+      sealed = true;
+    }
+
+    boolean isSealed() {
+      return sealed;
+    }
+
+    /**
+     * Binary searches the index of the first entry within the first {@code size} entries that is larger than
+     * (or equal to if inclusive) the given entry.
+     *
+     * @return the index of the entry or {@code size} if there is no such entry
+     */
+    int lowerBound(Comparator<T> comparator, T entry, boolean inclusive, int size) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        int cmp = comparator.compare(get(mid), entry);
+        if (cmp < 0 || (cmp == 0 && !inclusive)) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+
+  /**
+   * An {@link Iterator} over a snapshot of the segment list, applying the scan limit and filter.
+   */
+  private final class SegmentsIterator extends AbstractIterator<T> {
+
+    private final List<Segment<T>> segments;
+    private final MessageFilter<T> filter;
+    // Size of the last segment when the scan started, so that a scan sees a consistent snapshot
+    private final int tailSize;
+    private int remaining;
+    private int segmentIdx;
+    private int idx;
+
+    SegmentsIterator(List<Segment<T>> segments, T startEntry, boolean includeStart,
+                     int limit, MessageFilter<T> filter) {
+      this.segments = segments;
+      this.filter = filter;
+      this.tailSize = segments.isEmpty() ? 0 : segments.get(segments.size() - 1).size();
+      this.remaining = limit;
+      this.segmentIdx = findSegment(segments, startEntry, includeStart);
+      if (segmentIdx < segments.size()) {
+        this.idx = segments.get(segmentIdx).lowerBound(comparator, startEntry, includeStart, getSize(segmentIdx));
+      }
+    }
+
+    @Override
+    protected T computeNext() {
+      while (remaining > 0 && segmentIdx < segments.size()) {
+        if (idx >= getSize(segmentIdx)) {
+          segmentIdx++;
+          idx = 0;
+          continue;
+        }
+
+        T entry = segments.get(segmentIdx).get(idx++);
+        MessageFilter.Result result = filter.apply(entry);
+        if (result == MessageFilter.Result.ACCEPT) {
+          remaining--;
+          return entry;
+        }
+        if (result == MessageFilter.Result.HOLD) {
+          // Hold means not to scan more
+          break;
+        }
+      }
+      return endOfData();
+    }
+
+    private int getSize(int segmentIdx) {
+      return segmentIdx == segments.size() - 1 ? tailSize : segments.get(segmentIdx).size();
+    }
+  }
+}
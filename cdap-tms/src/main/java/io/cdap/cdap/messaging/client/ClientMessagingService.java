@@ -423,7 +423,13 @@ public final class ClientMessagingService implements MessagingService {
 
       // The cask common http library doesn't support read streaming, and we don't want to buffer all messages
       // in memory, hence we use the HttpURLConnection directly instead.
-      HttpURLConnection urlConn = remoteClient.openConnection(HttpMethod.POST, createTopicPath(topicId) + "/poll");
+      long waitMillis = getWaitTimeoutMillis();
+      String path = createTopicPath(topicId) + "/poll" + (waitMillis > 0L ? "?waitMillis=" + waitMillis : "");
+      HttpURLConnection urlConn = remoteClient.openConnection(HttpMethod.POST, path);
+      // The server can hold the request for up to the wait time before sending back the response
+      if (waitMillis > 0L && urlConn.getReadTimeout() > 0) {
+        urlConn.setReadTimeout((int) Math.min(Integer.MAX_VALUE, urlConn.getReadTimeout() + waitMillis));
+      }
       urlConn.setRequestProperty(HttpHeaders.CONTENT_TYPE, "avro/binary");
       if (compressPayload) {
         urlConn.setRequestProperty(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
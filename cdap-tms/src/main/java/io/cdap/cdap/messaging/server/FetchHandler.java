@@ -16,59 +16,62 @@
 
 package io.cdap.cdap.messaging.server;
 
-import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
 import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.api.messaging.TopicNotFoundException;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
+import io.cdap.cdap.api.metrics.MetricsContext;
 import io.cdap.cdap.common.BadRequestException;
+import io.cdap.cdap.common.HttpExceptionHandler;
+import io.cdap.cdap.common.ServiceUnavailableException;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.io.ByteBuffers;
-import io.cdap.cdap.common.logging.LogSamplers;
-import io.cdap.cdap.common.logging.Loggers;
 import io.cdap.cdap.messaging.MessageFetcher;
 import io.cdap.cdap.messaging.MessagingService;
 import io.cdap.cdap.messaging.Schemas;
 import io.cdap.cdap.messaging.data.RawMessage;
+import io.cdap.cdap.messaging.service.TopicPublishNotifier;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.TopicId;
 import io.cdap.http.AbstractHttpHandler;
-import io.cdap.http.BodyProducer;
+import io.cdap.http.HandlerContext;
 import io.cdap.http.HttpResponder;
-import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
-import io.netty.buffer.ByteBufOutputStream;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpResponseStatus;
-import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericDatumReader;
-import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.io.DatumReader;
-import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
-import org.apache.avro.io.Encoder;
-import org.apache.avro.io.EncoderFactory;
 import org.apache.tephra.TransactionCodec;
+import org.apache.twill.common.Cancellable;
+import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.net.SocketException;
 import java.nio.ByteBuffer;
-import java.nio.channels.ClosedChannelException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Set;
-import javax.annotation.Nullable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 
 /**
  * A netty http handler for handling message fetching REST API for the messaging system.
@@ -77,28 +80,63 @@ import javax.ws.rs.PathParam;
 public final class FetchHandler extends AbstractHttpHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(FetchHandler.class);
-  // Log at most once per minute.
-  private static final Logger SAMPLING_LOG = Loggers.sampling(LOG, LogSamplers.limitRate(60000));
   private static final TransactionCodec TRANSACTION_CODEC = new TransactionCodec();
-  private static final Set<String> KNOWN_IO_EXCEPTION_MESSAGES = ImmutableSet.of(
-    "Connection reset by peer",
-    "Broken pipe"
-  );
 
+  private final CConfiguration cConf;
   private final MessagingService messagingService;
+  private final TopicPublishNotifier publishNotifier;
+  private final MetricsContext metricsContext;
+  private final HttpExceptionHandler exceptionHandler;
+  private final Set<CompletableFuture<Void>> pendingPolls;
   private int messageChunkSize;
+  private long maxWaitMillis;
+  private ScheduledExecutorService pollExecutor;
 
   @Inject
-  FetchHandler(CConfiguration cConf, MessagingService messagingService) {
+  FetchHandler(CConfiguration cConf, MessagingService messagingService, TopicPublishNotifier publishNotifier,
+               MetricsCollectionService metricsCollectionService) {
+    this.cConf = cConf;
     this.messagingService = messagingService;
+    this.publishNotifier = publishNotifier;
+    this.exceptionHandler = new HttpExceptionHandler();
+    this.pendingPolls = ConcurrentHashMap.newKeySet();
     this.messageChunkSize = cConf.getInt(Constants.MessagingSystem.HTTP_SERVER_CONSUME_CHUNK_SIZE);
+    this.maxWaitMillis = cConf.getLong(Constants.MessagingSystem.HTTP_SERVER_POLL_MAX_WAIT_MS);
+    this.metricsContext = metricsCollectionService.getContext(ImmutableMap.of(
+      Constants.Metrics.Tag.COMPONENT, Constants.Service.MESSAGING_SERVICE,
+      Constants.Metrics.Tag.INSTANCE_ID, cConf.get(Constants.MessagingSystem.CONTAINER_INSTANCE_ID, "0")
+    ));
   }
 
+  @Override
+  public void init(HandlerContext context) {
+    super.init(context);
+    pollExecutor = Executors.newScheduledThreadPool(cConf.getInt(Constants.MessagingSystem.HTTP_SERVER_POLL_THREADS),
+                                                    Threads.createDaemonThreadFactory("messaging-fetch-poll-%d"));
+  }
+
+  @Override
+  public void destroy(HandlerContext context) {
+    try {
+      pollExecutor.shutdownNow();
+      // Wake up the pending polls, which will respond with an error since the executor no longer accepts tasks
+      pendingPolls.forEach(published -> published.complete(null));
+    } finally {
+      super.destroy(context);
+    }
+  }
+
+  /**
+   * Fetches messages from a topic. If the {@code waitMillis} query parameter is larger than {@code 0} and there is
+   * no message available, the response is held until new messages are published to the topic or the wait time
+   * has passed, whichever comes first.
+   */
   @POST
   @Path("poll")
   public void poll(FullHttpRequest request, HttpResponder responder,
                    @PathParam("namespace") String namespace,
-                   @PathParam("topic") String topic) throws Exception {
+                   @PathParam("topic") String topic,
+                   @QueryParam("waitMillis") @DefaultValue("0") long waitMillis) throws Exception {
 
     TopicId topicId = new NamespaceId(namespace).topic(topic);
 
@@ -106,15 +144,88 @@ public final class FetchHandler extends AbstractHttpHandler {
     if (!"avro/binary".equals(request.headers().get(HttpHeaderNames.CONTENT_TYPE))) {
       throw new BadRequestException("Only avro/binary content type is supported.");
     }
+    if (waitMillis < 0) {
+      throw new BadRequestException("Invalid waitMillis " + waitMillis + ". It must be >= 0.");
+    }
 
     // Decode the poll request
     Decoder decoder = DecoderFactory.get().directBinaryDecoder(new ByteBufInputStream(request.content()), null);
     DatumReader<GenericRecord> datumReader = new GenericDatumReader<>(Schemas.V1.ConsumeRequest.SCHEMA);
+    GenericRecord fetchRequest = datumReader.read(null, decoder);
+
+    long waitTime = Math.min(waitMillis, maxWaitMillis);
+    if (waitTime <= 0L) {
+      sendMessages(responder, fetchMessages(fetchRequest, topicId));
+      return;
+    }
 
-    // Fetch the messages
-    CloseableIterator<RawMessage> iterator = fetchMessages(datumReader.read(null, decoder), topicId);
+    // Add the publish listener before fetching so that a publish happening right after the fetch won't be missed
+    CompletableFuture<Void> published = new CompletableFuture<>();
+    Cancellable cancellable = publishNotifier.addListener(topicId, () -> published.complete(null));
     try {
-      responder.sendContent(HttpResponseStatus.OK, new MessagesBodyProducer(iterator, messageChunkSize),
+      CloseableIterator<RawMessage> iterator = fetchMessages(fetchRequest, topicId);
+      boolean hasMessages;
+      try {
+        hasMessages = iterator.hasNext();
+      } catch (Throwable t) {
+        iterator.close();
+        throw t;
+      }
+      if (hasMessages) {
+        cancellable.cancel();
+        sendMessages(responder, iterator);
+        return;
+      }
+      iterator.close();
+    } catch (Throwable t) {
+      cancellable.cancel();
+      throw t;
+    }
+
+    // No message is available. Wait for new messages to be published or timeout without blocking the handler thread,
+    // and then fetch again. The response is sent even if the second fetch returns nothing.
+    // The poll is tracked before scheduling the timeout, so that it is either rejected or woken up on destroy.
+    pendingPolls.add(published);
+    ScheduledFuture<?> timeout;
+    try {
+      timeout = pollExecutor.schedule(() -> published.complete(null), waitTime, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      pendingPolls.remove(published);
+      cancellable.cancel();
+      throw new ServiceUnavailableException(Constants.Service.MESSAGING_SERVICE, e);
+    }
+    published.thenRunAsync(() -> {
+      cancellable.cancel();
+      timeout.cancel(false);
+      try {
+        sendMessages(responder, fetchMessages(fetchRequest, topicId));
+      } catch (Throwable t) {
+        exceptionHandler.handle(t, request, responder);
+      }
+    }, pollExecutor).whenComplete((result, failure) -> {
+      pendingPolls.remove(published);
+      if (failure == null) {
+        return;
+      }
+      // The fetch task never ran, hence no response was sent. This happens when the executor is shutting down.
+      cancellable.cancel();
+      timeout.cancel(false);
+      Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+        ? failure.getCause() : failure;
+      exceptionHandler.handle(new ServiceUnavailableException(Constants.Service.MESSAGING_SERVICE, cause),
+                              request, responder);
+    });
+  }
+
+  /**
+   * Sends the messages provided by the given {@link CloseableIterator} back to the client.
+   * The iterator will be closed when the response is completed.
+   */
+  private void sendMessages(HttpResponder responder, CloseableIterator<RawMessage> iterator) {
+    try {
+      responder.sendContent(HttpResponseStatus.OK,
+                            new MessagesBodyProducer(iterator, messageChunkSize, PooledByteBufAllocator.DEFAULT,
+                                                     metricsContext),
                             new DefaultHttpHeaders().set(HttpHeaderNames.CONTENT_TYPE, "avro/binary"));
     } catch (Throwable t) {
       iterator.close();
@@ -155,113 +266,4 @@ public final class FetchHandler extends AbstractHttpHandler {
 
     return fetcher.fetch();
   }
-
-  /**
-   * A {@link BodyProducer} to encode and send back messages.
-   * Instead of using GenericDatumWriter, we perform the array encoding manually so that we don't have to buffer
-   * all messages in memory before sending out.
-   */
-  private static class MessagesBodyProducer extends BodyProducer {
-
-    private final CloseableIterator<RawMessage> iterator;
-    private final List<RawMessage> messages;
-    private final int messageChunkSize;
-    private final ByteBuf chunk;
-    private final Encoder encoder;
-    private final GenericRecord messageRecord;
-    private final DatumWriter<GenericRecord> messageWriter;
-    private boolean arrayStarted;
-    private boolean arrayEnded;
-
-    MessagesBodyProducer(CloseableIterator<RawMessage> iterator, int messageChunkSize) {
-      this.iterator = iterator;
-      this.messages = new ArrayList<>();
-      this.messageChunkSize = messageChunkSize;
-      this.chunk = Unpooled.buffer(messageChunkSize);
-      this.encoder = EncoderFactory.get().directBinaryEncoder(new ByteBufOutputStream(chunk), null);
-
-      // These are for writing individual message (response is an array of messages)
-      this.messageRecord = new GenericData.Record(Schemas.V1.ConsumeResponse.SCHEMA.getElementType());
-      this.messageWriter = new GenericDatumWriter<GenericRecord>(Schemas.V1.ConsumeResponse.SCHEMA.getElementType()) {
-        @Override
-        protected void writeBytes(Object datum, Encoder out) throws IOException {
-          if (datum instanceof byte[]) {
-            out.writeBytes((byte[]) datum);
-          } else {
-            super.writeBytes(datum, out);
-          }
-        }
-      };
-    }
-
-    @Override
-    public ByteBuf nextChunk() throws Exception {
-      // Already sent all messages, return empty to signal the end of response
-      if (arrayEnded) {
-        return Unpooled.EMPTY_BUFFER;
-      }
-
-      chunk.clear();
-
-      if (!arrayStarted) {
-        arrayStarted = true;
-        encoder.writeArrayStart();
-      }
-
-      // Try to buffer up to buffer size
-      int size = 0;
-      messages.clear();
-      while (iterator.hasNext() && size < messageChunkSize) {
-        RawMessage message = iterator.next();
-        messages.add(message);
-
-        // Avro encodes bytes as (len + bytes), hence adding 8 to cater for the length of the id and payload
-        // Straightly speaking it can be up to 9 bytes each (hence 18 bytes),
-        // but we don't expect id and payload of such size
-        size += message.getId().length + message.getPayload().length + 8;
-      }
-
-      encoder.setItemCount(messages.size());
-      for (RawMessage message : messages) {
-        encoder.startItem();
-
-        // Write individual message (array element) with DatumWrite.
-        // This provides greater flexibility on schema evolution.
-        // The response will likely always be an array, but the element schema can evolve.
-        messageRecord.put("id", message.getId());
-        messageRecord.put("payload", message.getPayload());
-        messageWriter.write(messageRecord, encoder);
-      }
-
-      if (!iterator.hasNext()) {
-        arrayEnded = true;
-        encoder.writeArrayEnd();
-      }
-
-      return chunk.copy();
-    }
-
-    @Override
-    public void finished() throws Exception {
-      iterator.close();
-      chunk.release();
-    }
-
-    @Override
-    public void handleError(@Nullable Throwable cause) {
-      iterator.close();
-      // Since response header is already sent, there is nothing we can send back to client. Simply log the failure
-      if (cause instanceof SocketException
-        || cause instanceof ClosedChannelException
-        || (cause instanceof IOException && KNOWN_IO_EXCEPTION_MESSAGES.contains(cause.getMessage()))) {
-        // This can easily caused by client close connection prematurely. Don't want to flood the log.
-        LOG.trace("Connection closed by client prematurely while sending messages back to client", cause);
-      } else {
-        // Use sampling logger to log to avoid flooding the log if there is any systematic failure
-        SAMPLING_LOG.warn("Exception raised when sending messages back to client", cause);
-        // Also log a trace to provide a way to see every error if needed
-        LOG.trace("Exception raised when sending messages back to client", cause);
-      }
-    }
-  }
 }
@@ -0,0 +1,208 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.server;
+
+import com.google.common.collect.ImmutableSet;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.common.logging.LogSamplers;
+import io.cdap.cdap.common.logging.Loggers;
+import io.cdap.cdap.messaging.Schemas;
+import io.cdap.cdap.messaging.data.RawMessage;
+import io.cdap.http.BodyProducer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.apache.avro.Schema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.nio.channels.ClosedChannelException;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link BodyProducer} to encode and send back messages for the fetch REST API.
+ *
+ * Instead of using GenericDatumWriter, the Avro array framing and the message records are encoded manually
+ * so that we don't have to buffer messages in memory before sending out. Each chunk is encoded directly into a
+ * buffer obtained from the given {@link ByteBufAllocator}, and the buffer is handed to Netty without copying.
+ * The message id and payload byte arrays coming from the message and payload tables are written to the buffer as is.
+ *
+ * The encoding produced is the Avro binary encoding of the {@link Schemas.V1.ConsumeResponse#SCHEMA}.
+ */
+final class MessagesBodyProducer extends BodyProducer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MessagesBodyProducer.class);
+  // Log at most once per minute.
+  private static final Logger SAMPLING_LOG = Loggers.sampling(LOG, LogSamplers.limitRate(60000));
+  private static final Set<String> KNOWN_IO_EXCEPTION_MESSAGES = ImmutableSet.of(
+    "Connection reset by peer",
+    "Broken pipe"
+  );
+
+  static final String METRICS_FETCH_REQUESTS = "fetch.requests";
+  static final String METRICS_FETCH_MESSAGES = "fetch.messages";
+  static final String METRICS_FETCH_BYTES = "fetch.bytes";
+  static final String METRICS_FETCH_BUFFERS = "fetch.buffers";
+
+  // Number of bytes reserved for the item count of each array block.
+  // It is the maximum size of a zig-zag varint encoded int.
+  private static final int BLOCK_COUNT_SIZE = 5;
+
+  static {
+    // Make sure the hand written encoding matches the response schema
+    Schema elementSchema = Schemas.V1.ConsumeResponse.SCHEMA.getElementType();
+    List<Schema.Field> fields = elementSchema.getFields();
+    if (fields.size() != 2
+      || !"id".equals(fields.get(0).name()) || fields.get(0).schema().getType() != Schema.Type.BYTES
+      || !"payload".equals(fields.get(1).name()) || fields.get(1).schema().getType() != Schema.Type.BYTES) {
+      throw new IllegalStateException("Unsupported consume response schema " + Schemas.V1.ConsumeResponse.SCHEMA);
+    }
+  }
+
+  private final CloseableIterator<RawMessage> iterator;
+  private final int messageChunkSize;
+  private final ByteBufAllocator allocator;
+  private final MetricsContext metricsContext;
+  private boolean arrayEnded;
+  private long messageCount;
+  private long byteCount;
+  private long bufferCount;
+
+  MessagesBodyProducer(CloseableIterator<RawMessage> iterator, int messageChunkSize,
+                       ByteBufAllocator allocator, MetricsContext metricsContext) {
+    this.iterator = iterator;
+    this.messageChunkSize = messageChunkSize;
+    this.allocator = allocator;
+    this.metricsContext = metricsContext;
+  }
+
+  @Override
+  public ByteBuf nextChunk() throws Exception {
+    // Already sent all messages, return empty to signal the end of response
+    if (arrayEnded) {
+      return Unpooled.EMPTY_BUFFER;
+    }
+
+    // The buffer will be released by Netty after it is written to the channel
+    ByteBuf chunk = allocator.buffer(messageChunkSize);
+    bufferCount++;
+    try {
+      // Reserve space for the item count of the array block, which is only known after the block is encoded.
+      int countIndex = chunk.writerIndex();
+      chunk.writeZero(BLOCK_COUNT_SIZE);
+
+      // Always encode at least one message, since an empty chunk signals the end of the response
+      int count = 0;
+      while (iterator.hasNext() && (count == 0 || chunk.readableBytes() < messageChunkSize)) {
+        RawMessage message = iterator.next();
+        writeBytes(chunk, message.getId());
+        writeBytes(chunk, message.getPayload());
+        count++;
+      }
+
+      if (count > 0) {
+        setFixedWidthInt(chunk, countIndex, count);
+      } else {
+        // Nothing written, drop the reserved space
+        chunk.writerIndex(countIndex);
+      }
+
+      if (!iterator.hasNext()) {
+        arrayEnded = true;
+        // An array is terminated by a block with zero item count
+        writeLong(chunk, 0L);
+      }
+
+      messageCount += count;
+      byteCount += chunk.readableBytes();
+      return chunk;
+    } catch (Throwable t) {
+      chunk.release();
+      throw t;
+    }
+  }
+
+  @Override
+  public void finished() throws Exception {
+    iterator.close();
+    emitMetrics();
+  }
+
+  @Override
+  public void handleError(@Nullable Throwable cause) {
+    iterator.close();
+    emitMetrics();
+    // Since response header is already sent, there is nothing we can send back to client. Simply log the failure
+    if (cause instanceof SocketException
+      || cause instanceof ClosedChannelException
+      || (cause instanceof IOException && KNOWN_IO_EXCEPTION_MESSAGES.contains(cause.getMessage()))) {
+      // This can easily caused by client close connection prematurely. Don't want to flood the log.
+      LOG.trace("Connection closed by client prematurely while sending messages back to client", cause);
+    } else {
+      // Use sampling logger to log to avoid flooding the log if there is any systematic failure
+      SAMPLING_LOG.warn("Exception raised when sending messages back to client", cause);
+      // Also log a trace to provide a way to see every error if needed
+      LOG.trace("Exception raised when sending messages back to client", cause);
+    }
+  }
+
+  private void emitMetrics() {
+    metricsContext.increment(METRICS_FETCH_REQUESTS, 1L);
+    metricsContext.increment(METRICS_FETCH_MESSAGES, messageCount);
+    metricsContext.increment(METRICS_FETCH_BYTES, byteCount);
+    metricsContext.increment(METRICS_FETCH_BUFFERS, bufferCount);
+  }
+
+  /**
+   * Writes a byte array with the Avro bytes encoding, which is the length followed by the bytes.
+   */
+  private static void writeBytes(ByteBuf buf, byte[] bytes) {
+    writeLong(buf, bytes.length);
+    buf.writeBytes(bytes);
+  }
+
+  /**
+   * Writes a long with the Avro zig-zag varint encoding.
+   */
+  private static void writeLong(ByteBuf buf, long value) {
+    long n = (value << 1) ^ (value >> 63);
+    while ((n & ~0x7FL) != 0) {
+      buf.writeByte((int) ((n & 0x7F) | 0x80));
+      n >>>= 7;
+    }
+    buf.writeByte((int) n);
+  }
+
+  /**
+   * Sets a non-negative int with the Avro zig-zag varint encoding at the given index, always using
+   * {@link #BLOCK_COUNT_SIZE} bytes. Leading groups are padded with continuation bits, which is a valid varint
+   * encoding understood by Avro decoders.
+   */
+  private static void setFixedWidthInt(ByteBuf buf, int index, int value) {
+    long n = ((long) value) << 1;
+    for (int i = 0; i < BLOCK_COUNT_SIZE - 1; i++) {
+      buf.setByte(index + i, (int) ((n & 0x7F) | 0x80));
+      n >>>= 7;
+    }
+    buf.setByte(index + BLOCK_COUNT_SIZE - 1, (int) n);
+  }
+}
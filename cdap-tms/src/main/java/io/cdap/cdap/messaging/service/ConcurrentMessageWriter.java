@@ -27,11 +27,17 @@ import io.cdap.cdap.messaging.TopicMetadata;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -58,15 +64,30 @@ import javax.annotation.concurrent.ThreadSafe;
  *
  * The spin lock between step 2 to step 8 is necessary as it guarantees events enqueued by all threads would eventually
  * get written and flushed.
+ *
+ * When constructed with a group commit window, the same instance is shared by all topics. The writer thread waits for
+ * the window to pass after acquiring the writer flag, so that requests arriving in the meantime are committed together.
+ * Pending requests are sorted by topic before writing, and either written with one call to the
+ * {@link StoreRequestWriter} or with one call per topic, depending on whether the underlying table can store entries
+ * of multiple topics in one batch. Since the writer holds the flag for at least the commit window, other threads don't
+ * spin in step 8. Instead, they wait on a condition that is signaled every time the writer releases the flag.
  */
 @ThreadSafe
 final class ConcurrentMessageWriter implements Closeable {
 
+  private static final Comparator<PendingStoreRequest> TOPIC_ORDER =
+    Comparator.comparing((PendingStoreRequest request) -> request.getTopicId().getNamespace())
+      .thenComparing(request -> request.getTopicId().getTopic());
+
   private final StoreRequestWriter<?> messagesWriter;
   private final MetricsCollector metricsCollector;
+  private final long commitWindowNanos;
   private final PendingStoreQueue pendingStoreQueue;
   private final AtomicBoolean writerFlag;
   private final AtomicBoolean closed;
+  // Lock and condition for waiting on the writer flag release when group commit is enabled
+  private final Lock writerLock;
+  private final Condition writerReleased;
 
   /**
    * Constructor with a {@link NoopMetricsContext}. This constructor should only be used in unit-testing.
@@ -83,11 +104,29 @@ final class ConcurrentMessageWriter implements Closeable {
    * @param metricsCollector the {@link MetricsCollector} for collecting metrics emitted by this class.
    */
   ConcurrentMessageWriter(StoreRequestWriter<?> messagesWriter, MetricsCollector metricsCollector) {
+    this(messagesWriter, metricsCollector, -1L, true);
+  }
+
+  /**
+   * Constructor for a writer that group commits {@link StoreRequest} of multiple topics.
+   *
+   * @param messagesWriter the {@link StoreRequestWriter} for persisting {@link StoreRequest} of all topics.
+   * @param metricsCollector the {@link MetricsCollector} for collecting metrics emitted by this class.
+   * @param commitWindowNanos number of nanoseconds to wait for more requests to arrive before each commit;
+   *                          a negative value disables group commit
+   * @param multiTopicWrite {@code true} to write requests of all topics with one call to the
+   *                        {@link StoreRequestWriter}; otherwise there will be one call per topic
+   */
+  ConcurrentMessageWriter(StoreRequestWriter<?> messagesWriter, MetricsCollector metricsCollector,
+                          long commitWindowNanos, boolean multiTopicWrite) {
     this.messagesWriter = messagesWriter;
     this.metricsCollector = metricsCollector;
-    this.pendingStoreQueue = new PendingStoreQueue(metricsCollector);
+    this.commitWindowNanos = commitWindowNanos;
+    this.pendingStoreQueue = new PendingStoreQueue(metricsCollector, commitWindowNanos >= 0, multiTopicWrite);
     this.writerFlag = new AtomicBoolean();
     this.closed = new AtomicBoolean();
+    this.writerLock = new ReentrantLock();
+    this.writerReleased = writerLock.newCondition();
   }
 
   /**
@@ -113,7 +152,11 @@ final class ConcurrentMessageWriter implements Closeable {
 
     while (!pendingStoreRequest.isCompleted()) {
       if (!tryWrite()) {
-        Thread.yield();
+        if (commitWindowNanos < 0) {
+          Thread.yield();
+        } else {
+          awaitWriter(pendingStoreRequest);
+        }
       }
     }
 
@@ -144,13 +187,64 @@ final class ConcurrentMessageWriter implements Closeable {
       return false;
     }
     try {
-      pendingStoreQueue.persist(messagesWriter);
+      if (commitWindowNanos < 0) {
+        pendingStoreQueue.persist(messagesWriter);
+      } else {
+        groupCommit();
+      }
     } finally {
       writerFlag.set(false);
+      if (commitWindowNanos >= 0) {
+        signalWriterReleased();
+      }
     }
     return true;
   }
 
+  /**
+   * Blocks until the given request is completed or the writer flag is released.
+   */
+  private void awaitWriter(PendingStoreRequest request) {
+    writerLock.lock();
+    try {
+      // The writer completes the requests and releases the flag before signaling, hence no wakeup can be missed
+      while (!request.isCompleted() && writerFlag.get()) {
+        writerReleased.awaitUninterruptibly();
+      }
+    } finally {
+      writerLock.unlock();
+    }
+  }
+
+  /**
+   * Wakes up all threads waiting in {@link #awaitWriter(PendingStoreRequest)}.
+   */
+  private void signalWriterReleased() {
+    writerLock.lock();
+    try {
+      writerReleased.signalAll();
+    } finally {
+      writerLock.unlock();
+    }
+  }
+
+  /**
+   * Waits for the commit window and then persists all the pending requests. This method must be called while
+   * holding the writer flag.
+   */
+  private void groupCommit() {
+    long startTime = System.nanoTime();
+    if (commitWindowNanos > 0) {
+      LockSupport.parkNanos(commitWindowNanos);
+    }
+    int count = pendingStoreQueue.persist(messagesWriter);
+    if (count > 0) {
+      metricsCollector.increment("group.commit.count", 1L);
+      metricsCollector.gauge("group.commit.batch.size", count);
+      metricsCollector.gauge("group.commit.latency.ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
+  }
+
   @Override
   public void close() throws IOException {
     if (!closed.compareAndSet(false, true)) {
@@ -173,11 +267,15 @@ final class ConcurrentMessageWriter implements Closeable {
   private static final class PendingStoreQueue {
 
     private final MetricsCollector metricsCollector;
+    private final boolean sortByTopic;
+    private final boolean multiTopicWrite;
     private final Queue<PendingStoreRequest> writeQueue;
     private final List<PendingStoreRequest> inflightRequests;
 
-    private PendingStoreQueue(MetricsCollector metricsCollector) {
+    private PendingStoreQueue(MetricsCollector metricsCollector, boolean sortByTopic, boolean multiTopicWrite) {
       this.metricsCollector = metricsCollector;
+      this.sortByTopic = sortByTopic;
+      this.multiTopicWrite = multiTopicWrite;
       this.writeQueue = new ConcurrentLinkedQueue<>();
       this.inflightRequests = new ArrayList<>(100);
     }
@@ -191,8 +289,10 @@ final class ConcurrentMessageWriter implements Closeable {
 
     /**
      * Persists all {@link PendingStoreRequest} currently in the queue with the given writer.
+     *
+     * @return number of requests persisted
      */
-    void persist(StoreRequestWriter<?> writer) {
+    int persist(StoreRequestWriter<?> writer) {
       // Capture all current events.
       // The reason for capturing instead of using a live iterator is to avoid the possible case of infinite write
       // time. E.g. while generating the entry to write to the storage table, a new store request get enqueued.
@@ -206,25 +306,49 @@ final class ConcurrentMessageWriter implements Closeable {
         request = writeQueue.poll();
       }
 
-      metricsCollector.gauge("persist.queue.size", inflightRequests.size());
+      int size = inflightRequests.size();
+      metricsCollector.gauge("persist.queue.size", size);
 
+      // The sort is stable, hence requests of the same topic are still written in the order they were enqueued
+      if (sortByTopic) {
+        inflightRequests.sort(TOPIC_ORDER);
+      }
+
+      if (multiTopicWrite) {
+        write(writer, inflightRequests);
+      } else {
+        // Write each run of requests of the same topic separately, so that a failure only fails requests of one topic
+        int start = 0;
+        for (int i = 1; i <= size; i++) {
+          if (i == size || !inflightRequests.get(i).getTopicId().equals(inflightRequests.get(start).getTopicId())) {
+            write(writer, inflightRequests.subList(start, i));
+            start = i;
+          }
+        }
+      }
+      inflightRequests.clear();
+      return size;
+    }
+
+    /**
+     * Writes the given requests and marks them as completed.
+     * This method must be called while holding the writer flag.
+     */
+    private void write(StoreRequestWriter<?> writer, List<PendingStoreRequest> requests) {
       try {
-        writer.write(inflightRequests.iterator());
-        completeAll(null);
+        writer.write(requests.iterator());
+        completeAll(requests, null);
       } catch (Throwable t) {
-        completeAll(t);
+        completeAll(requests, t);
       }
     }
 
     /**
-     * Marks all inflight requests as collected through the {@link Iterator#next()} method as completed.
-     * This method must be called while holding the writer flag.
+     * Marks all the given requests as completed.
      */
-    void completeAll(@Nullable Throwable failureCause) {
-      Iterator<PendingStoreRequest> iterator = inflightRequests.iterator();
-      while (iterator.hasNext()) {
-        iterator.next().completed(failureCause);
-        iterator.remove();
+    private void completeAll(List<PendingStoreRequest> requests, @Nullable Throwable failureCause) {
+      for (PendingStoreRequest request : requests) {
+        request.completed(failureCause);
       }
     }
   }
@@ -25,11 +25,14 @@ import io.cdap.cdap.messaging.data.RawMessage;
 import io.cdap.cdap.messaging.store.MessageTable;
 import io.cdap.cdap.messaging.store.PayloadTable;
 import io.cdap.cdap.proto.id.TopicId;
+import org.apache.twill.common.Cancellable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
@@ -44,17 +47,56 @@ final class CoreMessageFetcher extends MessageFetcher {
   private final TopicMetadata topicMetadata;
   private final TableProvider<MessageTable> messageTableProvider;
   private final TableProvider<PayloadTable> payloadTableProvider;
+  private final TopicPublishNotifier publishNotifier;
 
   CoreMessageFetcher(TopicMetadata topicMetadata,
                      TableProvider<MessageTable> messageTableProvider,
-                     TableProvider<PayloadTable> payloadTableProvider) {
+                     TableProvider<PayloadTable> payloadTableProvider,
+                     TopicPublishNotifier publishNotifier) {
     this.topicMetadata = topicMetadata;
     this.messageTableProvider = messageTableProvider;
     this.payloadTableProvider = payloadTableProvider;
+    this.publishNotifier = publishNotifier;
   }
 
   @Override
   public CloseableIterator<RawMessage> fetch() throws IOException {
+    long waitMillis = getWaitTimeoutMillis();
+    if (waitMillis <= 0L) {
+      return fetchMessages();
+    }
+
+    // Add the listener before fetching so that a publish happening right after the fetch won't be missed
+    CountDownLatch publishLatch = new CountDownLatch(1);
+    Cancellable cancellable = publishNotifier.addListener(topicMetadata.getTopicId(), publishLatch::countDown);
+    try {
+      CloseableIterator<RawMessage> iterator = fetchMessages();
+      try {
+        if (iterator.hasNext()) {
+          return iterator;
+        }
+      } catch (Throwable t) {
+        iterator.close();
+        throw t;
+      }
+      iterator.close();
+
+      try {
+        publishLatch.await(waitMillis, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for messages from " + topicMetadata.getTopicId());
+      }
+      return fetchMessages();
+    } finally {
+      cancellable.cancel();
+    }
+  }
+
+  /**
+   * Returns a {@link CloseableIterator} for the messages currently available in the topic.
+   */
+  private CloseableIterator<RawMessage> fetchMessages() throws IOException {
     MessageTable messageTable = messageTableProvider.get();
     try {
       return new MessageCloseableIterator(messageTable);
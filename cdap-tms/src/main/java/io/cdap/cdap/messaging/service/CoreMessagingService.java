@@ -18,6 +18,8 @@ package io.cdap.cdap.messaging.service;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
@@ -54,6 +56,7 @@ import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -83,25 +86,49 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   private final LoadingCache<TopicId, TopicMetadata> topicCache;
   private final LoadingCache<TopicId, ConcurrentMessageWriter> messageTableWriterCache;
   private final LoadingCache<TopicId, ConcurrentMessageWriter> payloadTableWriterCache;
+  private final boolean groupCommit;
+  private final LoadingCache<TopicId, MessageTable> messageTableCache;
+  private final LoadingCache<TopicId, PayloadTable> payloadTableCache;
+  private final Supplier<ConcurrentMessageWriter> messageTableGroupWriter;
+  private final Supplier<ConcurrentMessageWriter> payloadTableGroupWriter;
   private final TimeProvider timeProvider;
+  private final TopicPublishNotifier publishNotifier;
   private final MetricsCollectionService metricsCollectionService;
   private final long txMaxLifeTimeInMillis;
 
-  @Inject
   protected CoreMessagingService(CConfiguration cConf, TableFactory tableFactory,
                                  MetricsCollectionService metricsCollectionService) {
-    this(cConf, tableFactory, TimeProvider.SYSTEM_TIME, metricsCollectionService);
+    this(cConf, tableFactory, metricsCollectionService, new TopicPublishNotifier());
+  }
+
+  @Inject
+  protected CoreMessagingService(CConfiguration cConf, TableFactory tableFactory,
+                                 MetricsCollectionService metricsCollectionService,
+                                 TopicPublishNotifier publishNotifier) {
+    this(cConf, tableFactory, TimeProvider.SYSTEM_TIME, metricsCollectionService, publishNotifier);
   }
 
   @VisibleForTesting
   CoreMessagingService(CConfiguration cConf, TableFactory tableFactory,
                        TimeProvider timeProvider, MetricsCollectionService metricsCollectionService) {
+    this(cConf, tableFactory, timeProvider, metricsCollectionService, new TopicPublishNotifier());
+  }
+
+  private CoreMessagingService(CConfiguration cConf, TableFactory tableFactory, TimeProvider timeProvider,
+                               MetricsCollectionService metricsCollectionService,
+                               TopicPublishNotifier publishNotifier) {
     this.cConf = cConf;
     this.tableFactory = tableFactory;
     this.topicCache = createTopicCache();
     this.messageTableWriterCache = createTableWriterCache(true, cConf);
     this.payloadTableWriterCache = createTableWriterCache(false, cConf);
+    this.groupCommit = cConf.getBoolean(Constants.MessagingSystem.GROUP_COMMIT_ENABLED, false);
+    this.messageTableCache = createTableCache(cConf, this::createMessageTable);
+    this.payloadTableCache = createTableCache(cConf, this::createPayloadTable);
+    this.messageTableGroupWriter = Suppliers.memoize(() -> createGroupCommitWriter(true, cConf));
+    this.payloadTableGroupWriter = Suppliers.memoize(() -> createGroupCommitWriter(false, cConf));
     this.timeProvider = timeProvider;
+    this.publishNotifier = publishNotifier;
 
     // Due to circular dependency in our class hierarchy (which is bad), we cannot use metricsCollectionService
     // to construct metricsContext in here. The circular dependency is
@@ -143,6 +170,8 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
       topicCache.invalidate(topicId);
       messageTableWriterCache.invalidate(topicId);
       payloadTableWriterCache.invalidate(topicId);
+      messageTableCache.invalidate(topicId);
+      payloadTableCache.invalidate(topicId);
     }
   }
 
@@ -169,7 +198,8 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
     final TopicMetadata metadata = getTopic(topicId);
     return new CoreMessageFetcher(metadata,
                                   () -> createMessageTable(metadata),
-                                  () -> createPayloadTable(metadata));
+                                  () -> createPayloadTable(metadata),
+                                  publishNotifier);
   }
 
   @Nullable
@@ -180,7 +210,12 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
       if (request.isTransactional()) {
         ensureValidTxLifetime(request.getTransactionWritePointer());
       }
-      return messageTableWriterCache.get(request.getTopicId()).persist(request, metadata);
+      ConcurrentMessageWriter writer = groupCommit
+        ? messageTableGroupWriter.get() : messageTableWriterCache.get(request.getTopicId());
+      RollbackDetail rollbackDetail = writer.persist(request, metadata);
+      // The messages are committed to the message table, wake up fetchers that are waiting for new messages
+      publishNotifier.published(request.getTopicId());
+      return rollbackDetail;
     } catch (ExecutionException e) {
       Throwable cause = Objects.firstNonNull(e.getCause(), e);
       Throwables.propagateIfPossible(cause, TopicNotFoundException.class, IOException.class);
@@ -192,7 +227,9 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   public void storePayload(StoreRequest request) throws TopicNotFoundException, IOException {
     try {
       TopicMetadata metadata = topicCache.get(request.getTopicId());
-      payloadTableWriterCache.get(request.getTopicId()).persist(request, metadata);
+      ConcurrentMessageWriter writer = groupCommit
+        ? payloadTableGroupWriter.get() : payloadTableWriterCache.get(request.getTopicId());
+      writer.persist(request, metadata);
     } catch (ExecutionException e) {
       Throwable cause = Objects.firstNonNull(e.getCause(), e);
       Throwables.propagateIfPossible(cause, TopicNotFoundException.class, IOException.class);
@@ -253,6 +290,12 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   protected void shutDown() throws Exception {
     messageTableWriterCache.invalidateAll();
     payloadTableWriterCache.invalidateAll();
+    if (groupCommit) {
+      closeWriter(messageTableGroupWriter.get(), "message");
+      closeWriter(payloadTableGroupWriter.get(), "payload");
+    }
+    messageTableCache.invalidateAll();
+    payloadTableCache.invalidateAll();
     Closeables.closeQuietly(tableFactory);
     LOG.info("Core Messaging Service stopped");
   }
@@ -372,6 +415,85 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
       });
   }
 
+  /**
+   * Creates a {@link LoadingCache} for the {@link MessageTable} or {@link PayloadTable} of each topic,
+   * which is used by the group commit writers.
+   *
+   * @param cConf the system configuration
+   * @param tableCreator for creating a new table for a given topic
+   * @param <T> type of the table
+   * @return a {@link LoadingCache} for tables
+   */
+  private <T extends Closeable> LoadingCache<TopicId, T> createTableCache(CConfiguration cConf,
+                                                                          TableCreator<T> tableCreator) {
+    long expireSecs = cConf.getLong(Constants.MessagingSystem.TABLE_CACHE_EXPIRATION_SECONDS);
+
+    return CacheBuilder.newBuilder()
+      .expireAfterAccess(expireSecs, TimeUnit.SECONDS)
+      .removalListener((RemovalListener<TopicId, T>) notification -> {
+        T table = notification.getValue();
+        if (table != null) {
+          try {
+            table.close();
+          } catch (IOException e) {
+            LOG.warn("Exception raised when closing table for topic {}", notification.getKey(), e);
+          }
+        }
+      })
+      .build(new CacheLoader<TopicId, T>() {
+        @Override
+        public T load(TopicId topicId) throws Exception {
+          return tableCreator.create(getTopic(topicId));
+        }
+      });
+  }
+
+  /**
+   * Creates a {@link ConcurrentMessageWriter} that group commits writes of all topics
+   * to {@link MessageTable} or {@link PayloadTable}.
+   *
+   * @param messageTable {@code true} for creating a writer for the {@link MessageTable};
+   *                     {@code false} for the {@link PayloadTable}
+   * @param cConf the system configuration
+   * @return a {@link ConcurrentMessageWriter}
+   */
+  private ConcurrentMessageWriter createGroupCommitWriter(boolean messageTable, CConfiguration cConf) {
+    StoreRequestWriter<?> writer = messageTable
+      ? new MessageTableStoreRequestWriter(topicId -> getTable(messageTableCache, topicId), timeProvider)
+      : new PayloadTableStoreRequestWriter(topicId -> getTable(payloadTableCache, topicId), timeProvider);
+
+    MetricsContext metricsContext = metricsCollectionService.getContext(ImmutableMap.of(
+      Constants.Metrics.Tag.COMPONENT, Constants.Service.MESSAGING_SERVICE,
+      Constants.Metrics.Tag.INSTANCE_ID, cConf.get(Constants.MessagingSystem.CONTAINER_INSTANCE_ID, "0"),
+      Constants.Metrics.Tag.TABLE, messageTable ? "message" : "payload"
+    ));
+
+    long windowMicros = cConf.getLong(Constants.MessagingSystem.GROUP_COMMIT_WINDOW_MICROS);
+    return new ConcurrentMessageWriter(writer, metricsContext, TimeUnit.MICROSECONDS.toNanos(windowMicros),
+                                       tableFactory.isMultiTopicStoreSupported());
+  }
+
+  /**
+   * Returns the table of the given topic from the given cache.
+   */
+  private <T> T getTable(LoadingCache<TopicId, T> tableCache, TopicId topicId) throws IOException {
+    try {
+      return tableCache.get(topicId);
+    } catch (ExecutionException e) {
+      Throwable cause = Objects.firstNonNull(e.getCause(), e);
+      Throwables.propagateIfPossible(cause, IOException.class);
+      throw new IOException("Failed to get table for topic " + topicId, cause);
+    }
+  }
+
+  private void closeWriter(ConcurrentMessageWriter writer, String table) {
+    try {
+      writer.close();
+    } catch (IOException e) {
+      LOG.warn("Exception raised when closing the group commit writer for the {} table", table, e);
+    }
+  }
+
   /**
    * Creates a new instance of {@link MetadataTable}.
    */
@@ -387,6 +509,15 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
     return tableFactory.createPayloadTable(topicMetadata);
   }
 
+  /**
+   * Creates a messaging table for a given topic.
+   *
+   * @param <T> type of the table
+   */
+  private interface TableCreator<T> {
+    T create(TopicMetadata topicMetadata) throws IOException;
+  }
+
   /**
    * Creates default topic properties based on {@link CConfiguration}.
    */
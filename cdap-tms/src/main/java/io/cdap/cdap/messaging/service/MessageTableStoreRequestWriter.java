@@ -16,6 +16,8 @@
 
 package io.cdap.cdap.messaging.service;
 
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
 import io.cdap.cdap.common.utils.TimeProvider;
 import io.cdap.cdap.messaging.StoreRequest;
 import io.cdap.cdap.messaging.TopicMetadata;
@@ -33,18 +35,45 @@ import javax.annotation.concurrent.NotThreadSafe;
 @NotThreadSafe
 final class MessageTableStoreRequestWriter extends StoreRequestWriter<MessageTable.Entry> {
 
+  @Nullable
   private final MessageTable messageTable;
+  @Nullable
+  private final TopicTableProvider<MessageTable> tableProvider;
   private final MutableMessageTableEntry entry;
+  private TopicMetadata entryMetadata;
 
+  /**
+   * Constructs a writer that writes to the given {@link MessageTable}, which will be closed when this writer is closed.
+   */
   MessageTableStoreRequestWriter(MessageTable messageTable, TimeProvider timeProvider) {
+    this(messageTable, null, timeProvider);
+  }
+
+  /**
+   * Constructs a writer that writes requests of multiple topics. All entries of each write are stored through the
+   * {@link MessageTable} of the topic of the first entry. The tables are not closed by this writer.
+   */
+  MessageTableStoreRequestWriter(TopicTableProvider<MessageTable> tableProvider, TimeProvider timeProvider) {
+    this(null, tableProvider, timeProvider);
+  }
+
+  private MessageTableStoreRequestWriter(@Nullable MessageTable messageTable,
+                                         @Nullable TopicTableProvider<MessageTable> tableProvider,
+                                         TimeProvider timeProvider) {
     super(timeProvider, true);
     this.messageTable = messageTable;
+    this.tableProvider = tableProvider;
     this.entry = new MutableMessageTableEntry();
   }
 
   @Override
   MessageTable.Entry getEntry(TopicMetadata metadata, boolean transactional, long transactionWritePointer,
                               long writeTimestamp, short sequenceId, @Nullable byte[] payload) {
+    // Only parse the topic properties when the topic changes
+    if (metadata != entryMetadata) {
+      entry.setPayloadBlockSize(metadata.getPayloadBlockSize());
+      entryMetadata = metadata;
+    }
     return entry
       .setTopicId(metadata.getTopicId())
       .setGeneration(metadata.getGeneration())
@@ -57,12 +86,21 @@ final class MessageTableStoreRequestWriter extends StoreRequestWriter<MessageTab
 
   @Override
   protected void doWrite(Iterator<MessageTable.Entry> entries) throws IOException {
-    messageTable.store(entries);
+    if (messageTable != null) {
+      messageTable.store(entries);
+      return;
+    }
+    PeekingIterator<MessageTable.Entry> iterator = Iterators.peekingIterator(entries);
+    if (iterator.hasNext()) {
+      tableProvider.get(iterator.peek().getTopicId()).store(iterator);
+    }
   }
 
   @Override
   public void close() throws IOException {
-    messageTable.close();
+    if (messageTable != null) {
+      messageTable.close();
+    }
   }
 
   /**
@@ -77,6 +115,7 @@ final class MessageTableStoreRequestWriter extends StoreRequestWriter<MessageTab
     private long publishTimestamp;
     private short sequenceId;
     private byte[] payload;
+    private int payloadBlockSize = 1;
 
     MutableMessageTableEntry setTopicId(TopicId topicId) {
       this.topicId = topicId;
@@ -113,6 +152,11 @@ final class MessageTableStoreRequestWriter extends StoreRequestWriter<MessageTab
       return this;
     }
 
+    MutableMessageTableEntry setPayloadBlockSize(int payloadBlockSize) {
+      this.payloadBlockSize = payloadBlockSize;
+      return this;
+    }
+
     @Override
     public TopicId getTopicId() {
       return topicId;
@@ -153,5 +197,10 @@ final class MessageTableStoreRequestWriter extends StoreRequestWriter<MessageTab
     public short getSequenceId() {
       return sequenceId;
     }
+
+    @Override
+    public int getPayloadBlockSize() {
+      return payloadBlockSize;
+    }
   }
 }
@@ -16,6 +16,8 @@
 
 package io.cdap.cdap.messaging.service;
 
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
 import io.cdap.cdap.common.utils.TimeProvider;
 import io.cdap.cdap.messaging.StoreRequest;
 import io.cdap.cdap.messaging.TopicMetadata;
@@ -33,12 +35,33 @@ import javax.annotation.concurrent.NotThreadSafe;
 @NotThreadSafe
 final class PayloadTableStoreRequestWriter extends StoreRequestWriter<PayloadTable.Entry> {
 
+  @Nullable
   private final PayloadTable payloadTable;
+  @Nullable
+  private final TopicTableProvider<PayloadTable> tableProvider;
   private final MutablePayloadTableEntry entry;
 
+  /**
+   * Constructs a writer that writes to the given {@link PayloadTable}, which will be closed when this writer is closed.
+   */
   PayloadTableStoreRequestWriter(PayloadTable payloadTable, TimeProvider timeProvider) {
+    this(payloadTable, null, timeProvider);
+  }
+
+  /**
+   * Constructs a writer that writes requests of multiple topics. All entries of each write are stored through the
+   * {@link PayloadTable} of the topic of the first entry. The tables are not closed by this writer.
+   */
+  PayloadTableStoreRequestWriter(TopicTableProvider<PayloadTable> tableProvider, TimeProvider timeProvider) {
+    this(null, tableProvider, timeProvider);
+  }
+
+  private PayloadTableStoreRequestWriter(@Nullable PayloadTable payloadTable,
+                                         @Nullable TopicTableProvider<PayloadTable> tableProvider,
+                                         TimeProvider timeProvider) {
     super(timeProvider, false);
     this.payloadTable = payloadTable;
+    this.tableProvider = tableProvider;
     this.entry = new MutablePayloadTableEntry();
   }
 
@@ -56,12 +79,21 @@ final class PayloadTableStoreRequestWriter extends StoreRequestWriter<PayloadTab
 
   @Override
   protected void doWrite(Iterator<PayloadTable.Entry> entries) throws IOException {
-    payloadTable.store(entries);
+    if (payloadTable != null) {
+      payloadTable.store(entries);
+      return;
+    }
+    PeekingIterator<PayloadTable.Entry> iterator = Iterators.peekingIterator(entries);
+    if (iterator.hasNext()) {
+      tableProvider.get(iterator.peek().getTopicId()).store(iterator);
+    }
   }
 
   @Override
   public void close() throws IOException {
-    payloadTable.close();
+    if (payloadTable != null) {
+      payloadTable.close();
+    }
   }
 
   /**
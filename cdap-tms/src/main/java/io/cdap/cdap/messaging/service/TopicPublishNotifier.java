@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.service;
+
+import com.google.inject.Singleton;
+import io.cdap.cdap.proto.id.TopicId;
+import org.apache.twill.common.Cancellable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Dispatches notifications about new messages being published to topics. It is used by the long-poll fetch
+ * to wait for new messages instead of repeatedly polling the message table.
+ *
+ * Listeners are one-shot. A listener is called at most once, either on the first publish to the topic after it was
+ * added, or never if it is cancelled before that. Listeners are called from the publishing thread, hence they must
+ * be short and non-blocking.
+ */
+@Singleton
+@ThreadSafe
+public class TopicPublishNotifier {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TopicPublishNotifier.class);
+
+  private final ConcurrentMap<TopicId, Set<Runnable>> listeners = new ConcurrentHashMap<>();
+
+  /**
+   * Adds a listener to be called on the next publish to the given topic.
+   *
+   * @param topicId the topic to listen to
+   * @param listener the listener to call
+   * @return a {@link Cancellable} to remove the listener if it is not called yet
+   */
+  public Cancellable addListener(TopicId topicId, Runnable listener) {
+    // Wrap the listener so that the same Runnable can be added multiple times
+    Runnable wrapper = listener::run;
+    listeners.computeIfAbsent(topicId, k -> ConcurrentHashMap.newKeySet()).add(wrapper);
+    return () -> {
+      Set<Runnable> topicListeners = listeners.get(topicId);
+      if (topicListeners != null) {
+        topicListeners.remove(wrapper);
+      }
+    };
+  }
+
+  /**
+   * Notifies all listeners of the given topic that new messages were published to it.
+   */
+  public void published(TopicId topicId) {
+    Set<Runnable> topicListeners = listeners.get(topicId);
+    if (topicListeners == null || topicListeners.isEmpty()) {
+      return;
+    }
+    for (Runnable listener : topicListeners) {
+      // Only call the listener if this thread is the one removing it, so that it is called at most once
+      if (topicListeners.remove(listener)) {
+        try {
+          listener.run();
+        } catch (Throwable t) {
+          LOG.warn("Exception raised when notifying publish to topic {}", topicId, t);
+        }
+      }
+    }
+  }
+}
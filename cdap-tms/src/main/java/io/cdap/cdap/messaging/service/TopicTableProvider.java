@@ -0,0 +1,35 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.service;
+
+import io.cdap.cdap.proto.id.TopicId;
+
+import java.io.IOException;
+
+/**
+ * An internal interface used by {@link CoreMessagingService} for providing messaging tables of a given topic
+ * to the {@link StoreRequestWriter} that writes requests of multiple topics.
+ *
+ * @param <T> Type of the message table.
+ */
+interface TopicTableProvider<T> {
+
+  /**
+   * Provides an instance of messaging table of type {@code <T>} for the given topic.
+   */
+  T get(TopicId topicId) throws IOException;
+}
@@ -16,6 +16,7 @@
 
 package io.cdap.cdap.messaging.store;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.AbstractIterator;
 import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.dataset.lib.AbstractCloseableIterator;
@@ -27,12 +28,17 @@ import io.cdap.cdap.messaging.data.MessageId;
 import io.cdap.cdap.proto.id.TopicId;
 import org.apache.tephra.Transaction;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.Iterator;
 import javax.annotation.Nullable;
 
 /**
  * Contains common logic for implementation of {@link MessageTable}.
+ *
+ * For topics with {@link TopicMetadata#getPayloadBlockSize()} larger than one, consecutive non-transactional messages
+ * are stored as compressed blocks as encoded by {@link PayloadBlock}. Blocks are decoded when they are read by fetch,
+ * hence the table implementation only needs to persist the {@link RawMessageTableEntry#isPayloadBlock()} flag.
  */
 public abstract class AbstractMessageTable implements MessageTable {
 
@@ -71,7 +77,7 @@ public abstract class AbstractMessageTable implements MessageTable {
     byte[] stopRow = Bytes.stopKeyForPrefix(topic);
     ScanRequest scanRequest = new ScanRequest(metadata, startRow, stopRow, startTime);
     CloseableIterator<RawMessageTableEntry> scanner = scan(scanRequest);
-    return new FetchIterator(scanner, limit, null, transaction);
+    return new FetchIterator(scanner, limit, startRow, true, transaction);
   }
 
   @Override
@@ -85,12 +91,14 @@ public abstract class AbstractMessageTable implements MessageTable {
     byte[] stopRow = Bytes.stopKeyForPrefix(topic);
     ScanRequest scanRequest = new ScanRequest(metadata, startRow, stopRow, messageId.getPublishTimestamp());
     CloseableIterator<RawMessageTableEntry> scanner = scan(scanRequest);
-    return new FetchIterator(scanner, limit, inclusive ? null : startRow, transaction);
+    return new FetchIterator(scanner, limit, startRow, inclusive, transaction);
   }
 
   @Override
   public void store(Iterator<? extends Entry> entries) throws IOException {
-    persist(new StoreIterator(entries));
+    try (StoreIterator iterator = new StoreIterator(entries)) {
+      persist(iterator);
+    }
   }
 
   @Override
@@ -122,15 +130,21 @@ public abstract class AbstractMessageTable implements MessageTable {
   private static class FetchIterator extends AbstractCloseableIterator<Entry> {
     private final CloseableIterator<RawMessageTableEntry> scanner;
     private final TransactionMessageFilter filter;
+    private final byte[] startRow;
+    private final boolean inclusive;
     private byte[] skipStartRow;
     private boolean closed = false;
     private int maxLimit;
+    private PayloadBlock.Decoder blockDecoder;
+    private MessageTableKey blockKey;
 
-    FetchIterator(CloseableIterator<RawMessageTableEntry> scanner, int limit, @Nullable byte[] skipStartRow,
+    FetchIterator(CloseableIterator<RawMessageTableEntry> scanner, int limit, byte[] startRow, boolean inclusive,
                   @Nullable Transaction transaction) {
       this.scanner = scanner;
       this.filter =  transaction == null ? null : new TransactionMessageFilter(transaction);
-      this.skipStartRow = skipStartRow;
+      this.startRow = startRow;
+      this.inclusive = inclusive;
+      this.skipStartRow = inclusive ? null : startRow;
       this.maxLimit = limit;
     }
 
@@ -140,9 +154,29 @@ public abstract class AbstractMessageTable implements MessageTable {
         return endOfData();
       }
 
+      // Serve from the current block first. Messages in a block are always non-transactional.
+      Entry blockEntry = nextBlockEntry();
+      if (blockEntry != null) {
+        maxLimit--;
+        return blockEntry;
+      }
+
       while (scanner.hasNext()) {
         RawMessageTableEntry tableEntry = scanner.next();
 
+        if (tableEntry.isPayloadBlock()) {
+          // The first message in the block can be before the start row, hence messages are filtered when decoding
+          skipStartRow = null;
+          blockDecoder = new PayloadBlock.Decoder(tableEntry.getPayload());
+          blockKey = MessageTableKey.fromRowKey(tableEntry.getKey().getRowKey());
+          blockEntry = nextBlockEntry();
+          if (blockEntry != null) {
+            maxLimit--;
+            return blockEntry;
+          }
+          continue;
+        }
+
         // See if we need to skip the first row returned by the scanner
         if (skipStartRow != null) {
           byte[] row = skipStartRow;
@@ -173,7 +207,30 @@ public abstract class AbstractMessageTable implements MessageTable {
       } finally {
         endOfData();
         closed = true;
+        blockDecoder = null;
+      }
+    }
+
+    /**
+     * Returns the next {@link Entry} from the current block that is not before the start row,
+     * or {@code null} if there is no more entry in the current block.
+     */
+    @Nullable
+    private Entry nextBlockEntry() {
+      if (blockDecoder == null) {
+        return null;
+      }
+      while (blockDecoder.hasNext()) {
+        blockDecoder.next();
+        blockKey.set(blockDecoder.getPublishTimestamp(), blockDecoder.getSequenceId());
+        byte[] rowKey = blockKey.getRowKey();
+        int cmp = Bytes.compareTo(rowKey, startRow);
+        if (cmp > 0 || (cmp == 0 && inclusive)) {
+          return new ImmutableMessageTableEntry(rowKey, blockDecoder.getPayload(), null);
+        }
       }
+      blockDecoder = null;
+      return null;
     }
 
     private MessageFilter.Result accept(@Nullable byte[] txPtr) {
@@ -188,9 +245,10 @@ public abstract class AbstractMessageTable implements MessageTable {
 
   /**
    * A {@link Iterator} for iterating over {@link RawMessageTableEntry} based on a given
-   * iterator of {@link Entry}.
+   * iterator of {@link Entry}. Consecutive non-transactional entries of the same topic are combined into
+   * blocks if the topic has payload block size larger than one.
    */
-  private static class StoreIterator extends AbstractIterator<RawMessageTableEntry> {
+  private static class StoreIterator extends AbstractIterator<RawMessageTableEntry> implements Closeable {
 
     private final Iterator<? extends Entry> entries;
     private final RawMessageTableEntry tableEntry;
@@ -198,6 +256,8 @@ public abstract class AbstractMessageTable implements MessageTable {
     private int generation;
     private byte[] topic;
     private MessageTableKey key;
+    private Entry pendingEntry;
+    private PayloadBlock.Encoder blockEncoder;
 
     private StoreIterator(Iterator<? extends Entry> entries) {
       this.entries = entries;
@@ -206,26 +266,79 @@ public abstract class AbstractMessageTable implements MessageTable {
 
     @Override
     protected RawMessageTableEntry computeNext() {
-      if (!entries.hasNext()) {
-        return endOfData();
+      Entry entry = pendingEntry;
+      pendingEntry = null;
+      if (entry == null) {
+        if (!entries.hasNext()) {
+          return endOfData();
+        }
+        entry = entries.next();
       }
 
-      Entry entry = entries.next();
       // Create new byte arrays only when the topicId is different. Else, reuse the byte arrays.
-      if (topicId == null || (!topicId.equals(entry.getTopicId())) || (generation != entry.getGeneration())) {
+      if (!isSameTopic(entry)) {
         topicId = entry.getTopicId();
         generation = entry.getGeneration();
         topic = MessagingUtils.toDataKeyPrefix(topicId, entry.getGeneration());
         key = MessageTableKey.fromTopic(topic);
       }
 
-      key.set(entry.getPublishTimestamp(), entry.getSequenceId());
+      // Entry instances can be reused by the iterator, hence remember the entry before moving forward
+      long publishTimestamp = entry.getPublishTimestamp();
+      short sequenceId = entry.getSequenceId();
+      byte[] payload = entry.getPayload();
+      key.set(publishTimestamp, sequenceId);
 
       byte[] txPtr = null;
       if (entry.isTransactional()) {
         txPtr = Bytes.toBytes(entry.getTransactionWritePointer());
       }
-      return tableEntry.set(key, txPtr, entry.getPayload());
+      int blockSize = entry.getPayloadBlockSize();
+      if (txPtr != null || blockSize <= 1 || !entries.hasNext()) {
+        return tableEntry.set(key, txPtr, payload);
+      }
+
+      Preconditions.checkArgument(payload != null, "Payload cannot be null for non-transactional message");
+
+      if (blockEncoder == null) {
+        blockEncoder = new PayloadBlock.Encoder();
+      }
+      blockEncoder.add(publishTimestamp, sequenceId, payload);
+
+      while (blockEncoder.getCount() < blockSize && blockEncoder.getSize() < PayloadBlock.MAX_SIZE
+        && entries.hasNext()) {
+        Entry next = entries.next();
+        if (next.isTransactional() || next.getPayloadBlockSize() <= 1 || !isSameTopic(next)) {
+          pendingEntry = next;
+          break;
+        }
+        publishTimestamp = next.getPublishTimestamp();
+        sequenceId = next.getSequenceId();
+        payload = next.getPayload();
+        Preconditions.checkArgument(payload != null, "Payload cannot be null for non-transactional message");
+        blockEncoder.add(publishTimestamp, sequenceId, payload);
+      }
+
+      if (blockEncoder.getCount() == 1) {
+        // No other message to form a block with, store it as a normal entry
+        blockEncoder.reset();
+        return tableEntry.set(key, null, payload);
+      }
+
+      // The block is stored with the key of the last message in the block
+      key.set(publishTimestamp, sequenceId);
+      return tableEntry.set(key, null, blockEncoder.finish(), true);
+    }
+
+    @Override
+    public void close() {
+      if (blockEncoder != null) {
+        blockEncoder.close();
+      }
+    }
+
+    private boolean isSameTopic(Entry entry) {
+      return topicId != null && topicId.equals(entry.getTopicId()) && generation == entry.getGeneration();
     }
   }
 }
@@ -45,6 +45,11 @@ public abstract class ForwardingTableFactory implements TableFactory {
     return getDelegate().createPayloadTable(topicMetadata);
   }
 
+  @Override
+  public boolean isMultiTopicStoreSupported() {
+    return getDelegate().isMultiTopicStoreSupported();
+  }
+
   @Override
   public void close() throws IOException {
     getDelegate().close();
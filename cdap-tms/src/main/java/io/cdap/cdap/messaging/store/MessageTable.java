@@ -82,6 +82,15 @@ public interface MessageTable extends Closeable {
      * Returns the sequence id generated when this entry was written to the message table.
      */
     short getSequenceId();
+
+    /**
+     * Returns the maximum number of consecutive non-transactional entries of the topic that can be stored together
+     * as one compressed block, as configured by {@link TopicMetadata#getPayloadBlockSize()}. It is only used
+     * when storing entries.
+     */
+    default int getPayloadBlockSize() {
+      return 1;
+    }
   }
 
   /**
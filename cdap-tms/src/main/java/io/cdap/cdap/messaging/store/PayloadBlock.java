@@ -0,0 +1,217 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.store;
+
+import io.cdap.cdap.api.common.Bytes;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Encoding of a block of consecutive non-transactional messages of a topic, which is stored as a single entry
+ * in the message table. A block is stored under the row key of the last message in the block, so that a scan
+ * starting from any message inside the block always includes the block.
+ *
+ * The encoding is:
+ *
+ * <pre>
+ *   [codec (1 byte)][uncompressed size (int)][message count (int)][compressed messages]
+ * </pre>
+ *
+ * where each message is encoded as {@code [publish timestamp (long)][sequence id (short)][size (int)][payload]}
+ * before compression.
+ */
+final class PayloadBlock {
+
+  /**
+   * Maximum uncompressed size in bytes of a block. A block is ended when it reaches this size.
+   */
+  static final int MAX_SIZE = 1024 * 1024;
+
+  private static final byte CODEC_DEFLATE = 1;
+  private static final int HEADER_SIZE = 1 + Bytes.SIZEOF_INT + Bytes.SIZEOF_INT;
+  private static final int MESSAGE_HEADER_SIZE = Bytes.SIZEOF_LONG + Bytes.SIZEOF_SHORT + Bytes.SIZEOF_INT;
+
+  private PayloadBlock() {
+    // no-op
+  }
+
+  /**
+   * Encoder for building blocks. An instance can be reused for encoding multiple blocks,
+   * and it must be closed to release the native compression resources.
+   */
+  @NotThreadSafe
+  static final class Encoder implements Closeable {
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] buffer = new byte[4096];
+    private int size;
+    private int count;
+
+    /**
+     * Adds a message to the current block.
+     */
+    void add(long publishTimestamp, short sequenceId, byte[] payload) {
+      ensureCapacity(size + MESSAGE_HEADER_SIZE + payload.length);
+      size = Bytes.putLong(buffer, size, publishTimestamp);
+      size = Bytes.putShort(buffer, size, sequenceId);
+      size = Bytes.putInt(buffer, size, payload.length);
+      size = Bytes.putBytes(buffer, size, payload, 0, payload.length);
+      count++;
+    }
+
+    /**
+     * Returns the number of messages in the current block.
+     */
+    int getCount() {
+      return count;
+    }
+
+    /**
+     * Returns the uncompressed size in bytes of the current block.
+     */
+    int getSize() {
+      return size;
+    }
+
+    /**
+     * Returns the encoded current block and resets this encoder for a new block.
+     */
+    byte[] finish() {
+      deflater.reset();
+      deflater.setInput(buffer, 0, size);
+      deflater.finish();
+
+      byte[] output = new byte[HEADER_SIZE + Math.max(64, size / 2)];
+      output[0] = CODEC_DEFLATE;
+      Bytes.putInt(output, 1, size);
+      Bytes.putInt(output, 1 + Bytes.SIZEOF_INT, count);
+      int length = HEADER_SIZE;
+      while (!deflater.finished()) {
+        if (length == output.length) {
+          output = Arrays.copyOf(output, output.length * 2);
+        }
+        length += deflater.deflate(output, length, output.length - length);
+      }
+
+      reset();
+      return length == output.length ? output : Arrays.copyOf(output, length);
+    }
+
+    /**
+     * Discards the current block.
+     */
+    void reset() {
+      size = 0;
+      count = 0;
+    }
+
+    @Override
+    public void close() {
+      deflater.end();
+    }
+
+    private void ensureCapacity(int capacity) {
+      if (capacity > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+      }
+    }
+  }
+
+  /**
+   * Decoder for reading messages from an encoded block. The block is decompressed when the decoder is created,
+   * while each message is only decoded on {@link #next()}.
+   */
+  @NotThreadSafe
+  static final class Decoder {
+
+    private final byte[] data;
+    private int remaining;
+    private int offset;
+    private long publishTimestamp;
+    private short sequenceId;
+    private byte[] payload;
+
+    Decoder(byte[] block) {
+      if (block.length < HEADER_SIZE || block[0] != CODEC_DEFLATE) {
+        throw new IllegalStateException("Unsupported payload block encoding");
+      }
+      this.data = new byte[Bytes.toInt(block, 1)];
+      this.remaining = Bytes.toInt(block, 1 + Bytes.SIZEOF_INT);
+
+      Inflater inflater = new Inflater();
+      try {
+        inflater.setInput(block, HEADER_SIZE, block.length - HEADER_SIZE);
+        int length = 0;
+        while (length < data.length && !inflater.finished()) {
+          int n = inflater.inflate(data, length, data.length - length);
+          if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+            break;
+          }
+          length += n;
+        }
+        if (length != data.length) {
+          throw new IllegalStateException("Corrupted payload block. Expected " + data.length
+                                            + " bytes after decompression, but got " + length);
+        }
+      } catch (DataFormatException e) {
+        throw new IllegalStateException("Corrupted payload block", e);
+      } finally {
+        inflater.end();
+      }
+    }
+
+    boolean hasNext() {
+      return remaining > 0;
+    }
+
+    /**
+     * Decodes the next message in the block. The message content is available through the getter methods.
+     */
+    void next() {
+      if (remaining <= 0) {
+        throw new NoSuchElementException("No more message in the payload block");
+      }
+      publishTimestamp = Bytes.toLong(data, offset);
+      offset += Bytes.SIZEOF_LONG;
+      sequenceId = Bytes.toShort(data, offset);
+      offset += Bytes.SIZEOF_SHORT;
+      int length = Bytes.toInt(data, offset);
+      offset += Bytes.SIZEOF_INT;
+      payload = Arrays.copyOfRange(data, offset, offset + length);
+      offset += length;
+      remaining--;
+    }
+
+    long getPublishTimestamp() {
+      return publishTimestamp;
+    }
+
+    short getSequenceId() {
+      return sequenceId;
+    }
+
+    byte[] getPayload() {
+      return payload;
+    }
+  }
+}
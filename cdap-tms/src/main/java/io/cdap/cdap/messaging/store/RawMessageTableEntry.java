@@ -25,11 +25,27 @@ public class RawMessageTableEntry {
   private MessageTableKey key;
   private byte[] txPtr;
   private byte[] payload;
+  private boolean payloadBlock;
 
   public RawMessageTableEntry set(MessageTableKey key, @Nullable byte[] txPtr, @Nullable byte[] payload) {
+    return set(key, txPtr, payload, false);
+  }
+
+  /**
+   * Sets the content of this entry.
+   *
+   * @param key the row key
+   * @param txPtr the transaction write pointer or {@code null} for non-transactional entry
+   * @param payload the payload
+   * @param payloadBlock {@code true} if the payload is a block of multiple messages encoded by {@link PayloadBlock}
+   * @return this instance
+   */
+  public RawMessageTableEntry set(MessageTableKey key, @Nullable byte[] txPtr,
+                                  @Nullable byte[] payload, boolean payloadBlock) {
     this.key = key;
     this.txPtr = txPtr;
     this.payload = payload;
+    this.payloadBlock = payloadBlock;
     return this;
   }
 
@@ -46,4 +62,11 @@ public class RawMessageTableEntry {
   public byte[] getPayload() {
     return payload;
   }
+
+  /**
+   * Returns {@code true} if the payload is a block of multiple messages encoded by {@link PayloadBlock}.
+   */
+  public boolean isPayloadBlock() {
+    return payloadBlock;
+  }
 }
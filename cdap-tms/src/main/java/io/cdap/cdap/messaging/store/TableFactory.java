@@ -32,6 +32,14 @@ public interface TableFactory extends Closeable {
 
   PayloadTable createPayloadTable(TopicMetadata topicMetadata) throws IOException;
 
+  /**
+   * Returns {@code true} if the {@link MessageTable} and {@link PayloadTable} created by this factory for one topic
+   * can also store entries of other topics, so that writes to multiple topics can be done in one batch.
+   */
+  default boolean isMultiTopicStoreSupported() {
+    return false;
+  }
+
   /**
    * Perform any initialization required. This method will be called before any other method is called.
    */
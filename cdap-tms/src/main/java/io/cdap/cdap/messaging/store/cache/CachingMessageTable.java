@@ -344,7 +344,7 @@ final class CachingMessageTable implements MessageTable {
     private final long publishTimestamp;
     private final short sequenceId;
     private long transactionWritePointer;
-    private boolean rollback;
+    private volatile boolean rollback;
 
     CacheMessageTableEntry(TopicMetadata topicMetadata, long publishTimestamp, short sequenceId) {
       this.lookupOnly = true;
@@ -23,7 +23,9 @@ import io.cdap.cdap.api.metrics.MetricsContext;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.messaging.MessagingServiceUtils;
+import io.cdap.cdap.messaging.cache.DefaultMessageCache;
 import io.cdap.cdap.messaging.cache.MessageCache;
+import io.cdap.cdap.messaging.cache.SegmentedMessageCache;
 import io.cdap.cdap.messaging.store.MessageTable;
 import io.cdap.cdap.proto.id.TopicId;
 
@@ -75,9 +77,12 @@ public class DefaultMessageTableCacheProvider implements MessageTableCacheProvid
               // Have reduce trigger as 70% of the hard limit and min retain as 50% of the hard limit
               // In future, it can be adjusted dynamically based on metrics
               MessageCache.Limits limits = new MessageCache.Limits(hardLimit / 2, hardLimit * 7 / 10, hardLimit);
+              boolean segmented = "segmented".equalsIgnoreCase(cConf.get(Constants.MessagingSystem.CACHE_TYPE));
               for (TopicId topic : systemTopics) {
-                caches.put(topic, new MessageCache<>(comparator, weigher, limits,
-                                                     createMetricsContext(cConf, topic, metricsCollectionService)));
+                MetricsContext metricsContext = createMetricsContext(cConf, topic, metricsCollectionService);
+                caches.put(topic, segmented
+                  ? new SegmentedMessageCache<>(comparator, weigher, limits, metricsContext)
+                  : new DefaultMessageCache<>(comparator, weigher, limits, metricsContext));
               }
             }
           }
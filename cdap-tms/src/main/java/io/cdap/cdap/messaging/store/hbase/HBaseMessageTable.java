@@ -50,6 +50,7 @@ import java.util.concurrent.ExecutorService;
 final class HBaseMessageTable extends AbstractMessageTable {
   private static final byte[] PAYLOAD_COL = MessagingUtils.Constants.PAYLOAD_COL;
   private static final byte[] TX_COL = MessagingUtils.Constants.TX_COL;
+  private static final byte[] PAYLOAD_BLOCK_COL = MessagingUtils.Constants.PAYLOAD_BLOCK_COL;
 
   private final HBaseTableUtil tableUtil;
   private final byte[] columnFamily;
@@ -108,6 +109,10 @@ final class HBaseMessageTable extends AbstractMessageTable {
 
           byte[] originalKey = rowKeyDistributor.getOriginalKey(result.getRow());
           messageTableKey.setFromRowKey(originalKey);
+          byte[] block = result.getValue(columnFamily, PAYLOAD_BLOCK_COL);
+          if (block != null) {
+            return tableEntry.set(messageTableKey, null, block, true);
+          }
           return tableEntry.set(messageTableKey,
                                 result.getValue(columnFamily, TX_COL),
                                 result.getValue(columnFamily, PAYLOAD_COL));
@@ -139,7 +144,7 @@ final class HBaseMessageTable extends AbstractMessageTable {
       }
 
       if (entry.getPayload() != null) {
-        putBuilder.add(columnFamily, PAYLOAD_COL, entry.getPayload());
+        putBuilder.add(columnFamily, entry.isPayloadBlock() ? PAYLOAD_BLOCK_COL : PAYLOAD_COL, entry.getPayload());
       }
       batchPuts.add(putBuilder.build());
     }
@@ -165,6 +170,10 @@ final class HBaseMessageTable extends AbstractMessageTable {
     List<Put> batchPuts = new ArrayList<>();
     try (ResultScanner scanner = DistributedScanner.create(table, scan, rowKeyDistributor, scanExecutor)) {
       for (Result result : scanner) {
+        // Payload blocks only contain non-transactional messages
+        if (result.containsColumn(columnFamily, PAYLOAD_BLOCK_COL)) {
+          continue;
+        }
         // No need to turn the key back to the original row key because we want to put with the actual row key
         PutBuilder putBuilder = tableUtil.buildPut(result.getRow());
         putBuilder.add(columnFamily, TX_COL, rollbackRequest.getTxWritePointer());
@@ -199,6 +199,12 @@ public final class HBaseTableFactory implements TableFactory {
     );
   }
 
+  @Override
+  public boolean isMultiTopicStoreSupported() {
+    // Messages of all topics are stored in the same HBase table
+    return true;
+  }
+
   @Override
   public void close() {
     // no-op
@@ -38,6 +38,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
 import javax.annotation.Nullable;
 
@@ -54,14 +55,15 @@ import javax.annotation.Nullable;
  * levelDB tables need to be read.
  */
 final class LevelDBMessageTable extends AbstractMessageTable {
-  private static final WriteOptions WRITE_OPTIONS = new WriteOptions().sync(true);
   private static final String PAYLOAD_COL = "p";
   private static final String TX_COL = "t";
+  private static final String PAYLOAD_BLOCK_COL = "b";
 
   private enum EncodeType {
     NON_TRANSACTIONAL(0),
     TRANSACTIONAL(1),
-    PAYLOAD_REFERENCE(2);
+    PAYLOAD_REFERENCE(2),
+    PAYLOAD_BLOCK(3);
 
     private final byte type;
 
@@ -75,9 +77,18 @@ final class LevelDBMessageTable extends AbstractMessageTable {
   }
 
   private final LevelDBPartitionManager partitionManager;
+  private final WriteOptions writeOptions;
+  private final Executor readAheadExecutor;
+  private final int readAheadPartitions;
+  private final int readAheadRows;
 
-  LevelDBMessageTable(LevelDBPartitionManager partitionManager) {
+  LevelDBMessageTable(LevelDBPartitionManager partitionManager, WriteOptions writeOptions,
+                      @Nullable Executor readAheadExecutor, int readAheadPartitions, int readAheadRows) {
     this.partitionManager = partitionManager;
+    this.writeOptions = writeOptions;
+    this.readAheadExecutor = readAheadExecutor;
+    this.readAheadPartitions = readAheadPartitions;
+    this.readAheadRows = readAheadRows;
   }
 
   @Override
@@ -93,11 +104,15 @@ final class LevelDBMessageTable extends AbstractMessageTable {
     BiFunction<byte[], byte[], RawMessageTableEntry> decodeFunction = (key, value) -> {
       Map<String, byte[]> columns = decodeValue(value);
       messageTableKey.setFromRowKey(key);
-      return tableEntry.set(messageTableKey, columns.get(TX_COL), columns.get(PAYLOAD_COL));
+      byte[] block = columns.get(PAYLOAD_BLOCK_COL);
+      return block == null
+        ? tableEntry.set(messageTableKey, columns.get(TX_COL), columns.get(PAYLOAD_COL))
+        : tableEntry.set(messageTableKey, null, block, true);
     };
 
     return new PartitionedDBScanIterator<>(partitions.iterator(), scanRequest.getStartRow(), scanRequest.getStopRow(),
-                                           decodeFunction);
+                                           decodeFunction, readAheadExecutor, readAheadPartitions,
+                                           readAheadRows);
   }
 
   @Override
@@ -115,7 +130,7 @@ final class LevelDBMessageTable extends AbstractMessageTable {
       if (partition == null || publishTime < partition.getStartTime() || publishTime >= partition.getEndTime()) {
         if (partition != null) {
           try {
-            partition.getLevelDB().write(writeBatch, WRITE_OPTIONS);
+            partition.getLevelDB().write(writeBatch, writeOptions);
           } finally {
             writeBatch.close();
           }
@@ -125,12 +140,15 @@ final class LevelDBMessageTable extends AbstractMessageTable {
       }
 
       // LevelDB doesn't make copies, and since we reuse RawMessageTableEntry object, we need to create copies.
-      writeBatch.put(Arrays.copyOf(rowKey, rowKey.length), encodeValue(entry.getTxPtr(), entry.getPayload()));
+      writeBatch.put(Arrays.copyOf(rowKey, rowKey.length),
+                     entry.isPayloadBlock()
+                       ? encodePayloadBlock(entry.getPayload())
+                       : encodeValue(entry.getTxPtr(), entry.getPayload()));
     }
 
     if (partition != null) {
       try {
-        partition.getLevelDB().write(writeBatch, WRITE_OPTIONS);
+        partition.getLevelDB().write(writeBatch, writeOptions);
       } finally {
         writeBatch.close();
       }
@@ -151,13 +169,17 @@ final class LevelDBMessageTable extends AbstractMessageTable {
         while (rowIterator.hasNext()) {
           Map.Entry<byte[], byte[]> rowValue = rowIterator.next();
           byte[] value = rowValue.getValue();
+          // Payload blocks only contain non-transactional messages
+          if (value[0] == EncodeType.PAYLOAD_BLOCK.getType()) {
+            continue;
+          }
           Map<String, byte[]> columns = decodeValue(value);
           writeBatch.put(rowValue.getKey(), encodeValue(rollbackRequest.getTxWritePointer(), columns.get(PAYLOAD_COL)));
         }
       }
 
       try {
-        levelDB.write(writeBatch, WRITE_OPTIONS);
+        levelDB.write(writeBatch, writeOptions);
       } catch (DBException ex) {
         throw new IOException(ex);
       }
@@ -200,11 +222,21 @@ final class LevelDBMessageTable extends AbstractMessageTable {
     return result;
   }
 
+  // If the returned byte array starts with 3, then all the subsequent bytes are a block of non-tx messages
+  private byte[] encodePayloadBlock(byte[] block) {
+    byte[] result = new byte[1 + block.length];
+    result[0] = EncodeType.PAYLOAD_BLOCK.getType();
+    Bytes.putBytes(result, 1, block, 0, block.length);
+    return result;
+  }
+
   private Map<String, byte[]> decodeValue(byte[] value) {
     Map<String, byte[]> data = new HashMap<>();
 
     if (value[0] == EncodeType.NON_TRANSACTIONAL.getType()) {
       data.put(PAYLOAD_COL, Arrays.copyOfRange(value, 1, value.length));
+    } else if (value[0] == EncodeType.PAYLOAD_BLOCK.getType()) {
+      data.put(PAYLOAD_BLOCK_COL, Arrays.copyOfRange(value, 1, value.length));
     } else {
       data.put(TX_COL, Arrays.copyOfRange(value, 1, 1 + Bytes.SIZEOF_LONG));
 
@@ -17,6 +17,7 @@
 package io.cdap.cdap.messaging.store.leveldb;
 
 import io.cdap.cdap.common.utils.DirUtils;
+import org.iq80.leveldb.DBFactory;
 import org.iq80.leveldb.Options;
 import org.iq80.leveldb.impl.Iq80DBFactory;
 
@@ -42,16 +43,21 @@ import javax.annotation.Nullable;
  * Each partition contains messages with a publish time between the start (inclusive) and end (exclusive) timestamps.
  */
 public class LevelDBPartitionManager implements Closeable {
-  private static final Iq80DBFactory LEVEL_DB_FACTORY = Iq80DBFactory.factory;
   private static final String PART_PREFIX = "part.";
   private final File topicDir;
+  private final DBFactory dbFactory;
   private final Options dbOptions;
   private final long partitionSizeMillis;
   private final ConcurrentNavigableMap<Long, LevelDBPartition> partitions;
   private final AtomicBoolean initialized;
 
   public LevelDBPartitionManager(File topicDir, Options dbOptions, long partitionSizeMillis) {
+    this(topicDir, Iq80DBFactory.factory, dbOptions, partitionSizeMillis);
+  }
+
+  public LevelDBPartitionManager(File topicDir, DBFactory dbFactory, Options dbOptions, long partitionSizeMillis) {
     this.topicDir = topicDir;
+    this.dbFactory = dbFactory;
     this.dbOptions = dbOptions;
     this.partitionSizeMillis = partitionSizeMillis;
     this.partitions = new ConcurrentSkipListMap<>();
@@ -194,7 +200,7 @@ public class LevelDBPartitionManager implements Closeable {
         continue;
       }
       LevelDBPartition partition = new LevelDBPartition(partitionDir, interval.startMillis, interval.endMillis,
-                                                        () -> LEVEL_DB_FACTORY.open(partitionDir, dbOptions));
+                                                        () -> dbFactory.open(partitionDir, dbOptions));
       partitions.put(partition.getStartTime(), partition);
     }
   }
@@ -264,7 +270,7 @@ public class LevelDBPartitionManager implements Closeable {
   private LevelDBPartition createPartition(File topicDir, long start, long end) throws IOException {
     File dbPath = getPartitionDir(topicDir, start, end);
     ensureDirExists(dbPath);
-    return new LevelDBPartition(dbPath, start, end, () -> LEVEL_DB_FACTORY.open(dbPath, dbOptions));
+    return new LevelDBPartition(dbPath, start, end, () -> dbFactory.open(dbPath, dbOptions));
   }
 
   private File ensureDirExists(File dir) throws IOException {
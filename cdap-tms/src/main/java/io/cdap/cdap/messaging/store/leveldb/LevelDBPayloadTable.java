@@ -42,13 +42,14 @@ import java.util.concurrent.TimeUnit;
  * LevelDB implementation of {@link PayloadTable}.
  */
 public class LevelDBPayloadTable extends AbstractPayloadTable {
-  private static final WriteOptions WRITE_OPTIONS = new WriteOptions().sync(true);
   private final DB levelDB;
   private final TopicMetadata topicMetadata;
+  private final WriteOptions writeOptions;
 
-  LevelDBPayloadTable(DB levelDB, TopicMetadata topicMetadata) {
+  LevelDBPayloadTable(DB levelDB, TopicMetadata topicMetadata, WriteOptions writeOptions) {
     this.levelDB = levelDB;
     this.topicMetadata = topicMetadata;
+    this.writeOptions = writeOptions;
   }
 
   private void checkTopic(TopicId topicId, int generation) {
@@ -101,7 +102,7 @@ public class LevelDBPayloadTable extends AbstractPayloadTable {
         // LevelDB doesn't make copies, and since we reuse RawPayloadTableEntry object, we need to create copies.
         writeBatch.put(Arrays.copyOf(key, key.length), Arrays.copyOf(value, value.length));
       }
-      levelDB.write(writeBatch, WRITE_OPTIONS);
+      levelDB.write(writeBatch, writeOptions);
     } catch (DBException ex) {
       throw new IOException(ex);
     }
@@ -120,6 +121,10 @@ public class LevelDBPayloadTable extends AbstractPayloadTable {
                                                      Integer.parseInt(MessagingUtils.Constants.DEFAULT_GENERATION));
     byte[] stopRow = Bytes.stopKeyForPrefix(startRow);
 
+    // With RocksDB, the deleted entries are removed with one range delete instead of one delete per entry.
+    // The range ends right after the last entry seen by the scan, so that entries written concurrently are kept.
+    boolean rangeDelete = writeBatch instanceof RocksDBWriteBatch;
+    byte[] lastDeletedKey = null;
     try (CloseableIterator<Map.Entry<byte[], byte[]>> rowIterator = new DBScanIterator(levelDB, startRow, stopRow)) {
       while (rowIterator.hasNext()) {
         Map.Entry<byte[], byte[]> entry = rowIterator.next();
@@ -129,13 +134,13 @@ public class LevelDBPayloadTable extends AbstractPayloadTable {
         int currGeneration = topicMetadata.getGeneration();
         checkTopic(topicMetadata.getTopicId(), topicMetadata.getGeneration());
         if (MessagingUtils.isOlderGeneration(dataGeneration, currGeneration)) {
-          writeBatch.delete(entry.getKey());
+          lastDeletedKey = deleteEntry(writeBatch, entry.getKey(), rangeDelete);
           continue;
         }
 
         if ((dataGeneration == Math.abs(currGeneration)) &&
           ((currentTime - payloadTableEntry.getPayloadWriteTimestamp()) > ttlInMs)) {
-          writeBatch.delete(entry.getKey());
+          lastDeletedKey = deleteEntry(writeBatch, entry.getKey(), rangeDelete);
         } else {
           // terminate scanning table once an entry with write time after TTL is found, to avoid scanning whole table,
           // since the entries are sorted by time.
@@ -143,14 +148,30 @@ public class LevelDBPayloadTable extends AbstractPayloadTable {
         }
       }
     }
+    if (rangeDelete && lastDeletedKey != null) {
+      ((RocksDBWriteBatch) writeBatch).deleteRange(startRow, Bytes.add(lastDeletedKey, new byte[] { 0 }));
+    }
 
     try {
-      levelDB.write(writeBatch, WRITE_OPTIONS);
+      levelDB.write(writeBatch, writeOptions);
     } catch (DBException ex) {
       throw new IOException(ex);
     }
   }
 
+  /**
+   * Adds the deletion of the given key to the batch, unless the deletion is done with a range delete.
+   *
+   * @return a copy of the deleted key
+   */
+  private byte[] deleteEntry(WriteBatch writeBatch, byte[] key, boolean rangeDelete) {
+    byte[] deletedKey = Arrays.copyOf(key, key.length);
+    if (!rangeDelete) {
+      writeBatch.delete(deletedKey);
+    }
+    return deletedKey;
+  }
+
   @Override
   public void close() {
     // This method has to be an no-op instead of closing the underlying LevelDB object
@@ -33,7 +33,9 @@ import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.TopicId;
 import org.apache.twill.common.Threads;
 import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBFactory;
 import org.iq80.leveldb.Options;
+import org.iq80.leveldb.WriteOptions;
 import org.iq80.leveldb.impl.Iq80DBFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,21 +52,27 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
  * A {@link TableFactory} for creating tables used by the messaging system using the LevelDB implementation.
+ * When RocksDB is configured as the local storage engine, the same tables are stored in RocksDB databases
+ * through {@link RocksDBFactory} instead.
  */
 public final class LevelDBTableFactory implements TableFactory {
 
   private static final Logger LOG = LoggerFactory.getLogger(LevelDBTableFactory.class);
-  private static final Iq80DBFactory LEVEL_DB_FACTORY = Iq80DBFactory.factory;
   private static final Gson GSON = new Gson();
   static final String MESSAGE_TABLE_VERSION = "v2";
 
   private final File baseDir;
+  private final DBFactory dbFactory;
   private final Options dbOptions;
   private final String metadataTableName;
   private final String messageTableName;
@@ -72,18 +80,32 @@ public final class LevelDBTableFactory implements TableFactory {
   private final ConcurrentMap<File, DB> levelDBs;
   private final ConcurrentMap<File, LevelDBPartitionManager> partitionedLevelDBs;
   private final long partitionSizeMillis;
+  private final WriteOptions writeOptions;
+  private final int readAheadPartitions;
+  private final int readAheadRows;
+  @Nullable
+  private final ExecutorService readAheadExecutor;
 
   private LevelDBMetadataTable metadataTable;
 
   @VisibleForTesting
   @Inject
   public LevelDBTableFactory(CConfiguration cConf) {
-    this.baseDir = new File(cConf.get(Constants.MessagingSystem.LOCAL_DATA_DIR));
+    if (cConf.getEnum(Constants.CFG_DATA_LEVELDB_ENGINE, Constants.DEFAULT_DATA_LEVELDB_ENGINE)
+      == Constants.LocalStorageEngine.ROCKSDB) {
+      this.baseDir = new File(cConf.get(Constants.MessagingSystem.LOCAL_DATA_ROCKSDB_DIR));
+      this.dbFactory = new RocksDBFactory(cConf.getLong(Constants.CFG_DATA_LEVELDB_CACHESIZE,
+                                                        Constants.DEFAULT_DATA_LEVELDB_CACHESIZE));
+    } else {
+      this.baseDir = new File(cConf.get(Constants.MessagingSystem.LOCAL_DATA_DIR));
+      this.dbFactory = Iq80DBFactory.factory;
+    }
     this.dbOptions = new Options()
       .blockSize(cConf.getInt(Constants.CFG_DATA_LEVELDB_BLOCKSIZE, Constants.DEFAULT_DATA_LEVELDB_BLOCKSIZE))
       .cacheSize(cConf.getLong(Constants.CFG_DATA_LEVELDB_CACHESIZE, Constants.DEFAULT_DATA_LEVELDB_CACHESIZE))
       .errorIfExists(false)
       .createIfMissing(true);
+    this.writeOptions = new WriteOptions().sync(cConf.getBoolean(Constants.MessagingSystem.LOCAL_DATA_SYNC, true));
     ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
       Threads.createDaemonThreadFactory("leveldb-tms-data-cleanup"));
     executor.scheduleAtFixedRate(new DataCleanup(), 0L,
@@ -96,6 +118,11 @@ public final class LevelDBTableFactory implements TableFactory {
     this.levelDBs = new ConcurrentHashMap<>();
     this.partitionedLevelDBs = new ConcurrentHashMap<>();
     this.partitionSizeMillis = cConf.getLong(Constants.MessagingSystem.LOCAL_DATA_PARTITION_SECONDS) * 1000;
+    this.readAheadPartitions = cConf.getInt(Constants.MessagingSystem.LOCAL_DATA_READ_AHEAD_PARTITIONS,
+                                            Constants.MessagingSystem.DEFAULT_LOCAL_DATA_READ_AHEAD_PARTITIONS);
+    this.readAheadRows = cConf.getInt(Constants.MessagingSystem.LOCAL_DATA_READ_AHEAD_ROWS,
+                                      Constants.MessagingSystem.DEFAULT_LOCAL_DATA_READ_AHEAD_ROWS);
+    this.readAheadExecutor = readAheadPartitions > 0 ? createReadAheadExecutor(cConf) : null;
   }
 
   @Override
@@ -167,19 +194,20 @@ public final class LevelDBTableFactory implements TableFactory {
     }
 
     File dbPath = getMetadataDBPath(metadataTableName);
-    metadataTable = new LevelDBMetadataTable(LEVEL_DB_FACTORY.open(dbPath, dbOptions));
+    metadataTable = new LevelDBMetadataTable(dbFactory.open(dbPath, dbOptions));
     LOG.info("Messaging metadata table created at {}", dbPath);
     return metadataTable;
   }
 
   @Override
   public MessageTable createMessageTable(TopicMetadata topicMetadata) throws IOException {
-    return new LevelDBMessageTable(getPartitionedLevelDB(topicMetadata, messageTableName));
+    return new LevelDBMessageTable(getPartitionedLevelDB(topicMetadata, messageTableName), writeOptions,
+                                   readAheadExecutor, readAheadPartitions, readAheadRows);
   }
 
   @Override
   public PayloadTable createPayloadTable(TopicMetadata topicMetadata) throws IOException {
-    return new LevelDBPayloadTable(getLevelDB(topicMetadata, payloadTableName), topicMetadata);
+    return new LevelDBPayloadTable(getLevelDB(topicMetadata, payloadTableName), topicMetadata, writeOptions);
   }
 
   @Override
@@ -197,6 +225,12 @@ public final class LevelDBTableFactory implements TableFactory {
     dbs.clear();
     partitionedLevelDBs.values().forEach(Closeables::closeQuietly);
     partitionedLevelDBs.clear();
+    if (readAheadExecutor != null) {
+      readAheadExecutor.shutdownNow();
+    }
+    if (dbFactory instanceof RocksDBFactory) {
+      ((RocksDBFactory) dbFactory).close();
+    }
   }
 
   @VisibleForTesting
@@ -205,6 +239,20 @@ public final class LevelDBTableFactory implements TableFactory {
                                            tableName, topicId.getTopic(), generation));
   }
 
+  /**
+   * Creates the {@link ExecutorService} shared by all message tables for reading ahead partitions.
+   * Threads are only kept while there are scans reading ahead.
+   */
+  private static ExecutorService createReadAheadExecutor(CConfiguration cConf) {
+    int threads = cConf.getInt(Constants.MessagingSystem.LOCAL_DATA_READ_AHEAD_THREADS,
+                               Constants.MessagingSystem.DEFAULT_LOCAL_DATA_READ_AHEAD_THREADS);
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+      threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+      Threads.createDaemonThreadFactory("leveldb-tms-read-ahead-%d"));
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
   private LevelDBPartitionManager getPartitionedLevelDB(TopicMetadata topicMetadata,
                                                         String tableName) throws IOException {
     File topicDir = getMessageTablePath(baseDir, topicMetadata.getTopicId(), topicMetadata.getGeneration(), tableName);
@@ -219,7 +267,8 @@ public final class LevelDBTableFactory implements TableFactory {
         return partitionManager;
       }
 
-      partitionManager = new LevelDBPartitionManager(ensureDirExists(topicDir), dbOptions, partitionSizeMillis);
+      partitionManager = new LevelDBPartitionManager(ensureDirExists(topicDir), dbFactory, dbOptions,
+                                                     partitionSizeMillis);
       partitionedLevelDBs.put(topicDir, partitionManager);
     }
 
@@ -244,7 +293,7 @@ public final class LevelDBTableFactory implements TableFactory {
         return db;
       }
 
-      db = LEVEL_DB_FACTORY.open(ensureDirExists(dbPath), dbOptions);
+      db = dbFactory.open(ensureDirExists(dbPath), dbOptions);
       levelDBs.put(dbPath, db);
     }
 
@@ -330,7 +379,7 @@ public final class LevelDBTableFactory implements TableFactory {
           File dataDBPath = getDataDBPath(payloadTableName, metadata.getTopicId(), metadata.getGeneration());
           DB levelDB = levelDBs.get(dataDBPath);
           if (levelDB != null && dataDBPath.exists()) {
-            new LevelDBPayloadTable(levelDB, metadata).pruneMessages(now);
+            new LevelDBPayloadTable(levelDB, metadata, writeOptions).pruneMessages(now);
           }
         }
       } catch (IOException ex) {
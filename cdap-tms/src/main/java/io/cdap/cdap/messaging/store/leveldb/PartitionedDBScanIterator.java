@@ -16,17 +16,29 @@
 
 package io.cdap.cdap.messaging.store.leveldb;
 
+import com.google.common.collect.Iterators;
 import io.cdap.cdap.api.dataset.lib.AbstractCloseableIterator;
 import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.BiFunction;
+import javax.annotation.Nullable;
 
 /**
  * An iterator that scans over multiple partitions of a MessageTable.
  *
+ * If read ahead is enabled, once the scan moves past the first partition, the next partitions are opened and
+ * their first rows are read in the background while the current partition is being consumed. Rows are always
+ * returned in partition order.
+ *
  * @param <T> type of object to scan
  */
 public class PartitionedDBScanIterator<T> extends AbstractCloseableIterator<T> {
@@ -34,15 +46,36 @@ public class PartitionedDBScanIterator<T> extends AbstractCloseableIterator<T> {
   private final byte[] startRow;
   private final byte[] stopRow;
   private final BiFunction<byte[], byte[], T> decodeFunction;
+  private final Executor readAheadExecutor;
+  private final int readAheadPartitions;
+  private final int readAheadRows;
+  private final Deque<ReadAhead> readAheads;
   private boolean closed;
   private CloseableIterator<Map.Entry<byte[], byte[]>> currentPartition;
 
   public PartitionedDBScanIterator(Iterator<LevelDBPartition> partitionIter, byte[] startRow, byte[] stopRow,
                                    BiFunction<byte[], byte[], T> decodeFunction) throws IOException {
+    this(partitionIter, startRow, stopRow, decodeFunction, null, 0, 0);
+  }
+
+  /**
+   * Creates an iterator that reads ahead partitions.
+   *
+   * @param readAheadExecutor the {@link Executor} for reading ahead partitions
+   * @param readAheadPartitions number of partitions to read ahead. Read ahead is disabled if it is not positive.
+   * @param readAheadRows maximum number of rows to read for each partition being read ahead
+   */
+  PartitionedDBScanIterator(Iterator<LevelDBPartition> partitionIter, byte[] startRow, byte[] stopRow,
+                            BiFunction<byte[], byte[], T> decodeFunction, @Nullable Executor readAheadExecutor,
+                            int readAheadPartitions, int readAheadRows) throws IOException {
     this.partitionIter = partitionIter;
     this.startRow = startRow;
     this.stopRow = stopRow;
     this.decodeFunction = decodeFunction;
+    this.readAheadExecutor = readAheadExecutor;
+    this.readAheadPartitions = readAheadExecutor == null ? 0 : readAheadPartitions;
+    this.readAheadRows = readAheadRows;
+    this.readAheads = new ArrayDeque<>();
     this.closed = false;
     this.currentPartition = partitionIter.hasNext() ?
       new DBScanIterator(partitionIter.next().getLevelDB(), startRow, stopRow) : CloseableIterator.empty();
@@ -54,23 +87,20 @@ public class PartitionedDBScanIterator<T> extends AbstractCloseableIterator<T> {
       return endOfData();
     }
 
-    if (!currentPartition.hasNext()) {
-      while (partitionIter.hasNext()) {
-        try {
-          currentPartition = new DBScanIterator(partitionIter.next().getLevelDB(), startRow, stopRow);
-        } catch (IOException e) {
-          throw new RuntimeException(e);
-        }
-        if (currentPartition.hasNext()) {
-          break;
+    while (!currentPartition.hasNext()) {
+      currentPartition.close();
+      currentPartition = CloseableIterator.empty();
+      try {
+        CloseableIterator<Map.Entry<byte[], byte[]>> nextPartition = nextPartition();
+        if (nextPartition == null) {
+          return endOfData();
         }
+        currentPartition = nextPartition;
+      } catch (IOException e) {
+        throw new RuntimeException(e);
       }
     }
 
-    if (!currentPartition.hasNext()) {
-      return endOfData();
-    }
-
     Map.Entry<byte[], byte[]> row = currentPartition.next();
     return decodeFunction.apply(row.getKey(), row.getValue());
   }
@@ -78,10 +108,149 @@ public class PartitionedDBScanIterator<T> extends AbstractCloseableIterator<T> {
   @Override
   public void close() {
     try {
+      readAheads.forEach(ReadAhead::close);
+      readAheads.clear();
       currentPartition.close();
     } finally {
       endOfData();
       closed = true;
     }
   }
+
+  /**
+   * Returns an iterator over the next partition or {@code null} if there is no more partition.
+   */
+  @Nullable
+  private CloseableIterator<Map.Entry<byte[], byte[]>> nextPartition() throws IOException {
+    if (readAheadPartitions <= 0) {
+      return partitionIter.hasNext() ? new DBScanIterator(partitionIter.next().getLevelDB(), startRow, stopRow) : null;
+    }
+
+    // The scan spans over multiple partitions. Take the partition that is about to be consumed, then keep the
+    // configured number of partitions being read ahead after it.
+    ReadAhead current = readAheads.poll();
+    LevelDBPartition partition = current == null && partitionIter.hasNext() ? partitionIter.next() : null;
+    if (current == null && partition == null) {
+      return null;
+    }
+
+    while (readAheads.size() < readAheadPartitions && partitionIter.hasNext()) {
+      ReadAhead readAhead = new ReadAhead(partitionIter.next());
+      readAheads.add(readAhead);
+      try {
+        readAheadExecutor.execute(readAhead);
+      } catch (RejectedExecutionException e) {
+        // The partition will be read on the calling thread when it is being consumed
+      }
+    }
+
+    return current == null ? new DBScanIterator(partition.getLevelDB(), startRow, stopRow) : current.take();
+  }
+
+  /**
+   * A task for opening a partition and reading the first rows of it. The partition is read on the calling thread
+   * instead if it is taken before the task starts.
+   */
+  private final class ReadAhead implements Runnable {
+
+    private final LevelDBPartition partition;
+    private final List<Map.Entry<byte[], byte[]>> rows;
+    private DBScanIterator scanner;
+    private Throwable failure;
+    private boolean started;
+    private boolean running;
+    private boolean closed;
+
+    ReadAhead(LevelDBPartition partition) {
+      this.partition = partition;
+      this.rows = new ArrayList<>();
+    }
+
+    @Override
+    public void run() {
+      synchronized (this) {
+        if (started || closed) {
+          return;
+        }
+        started = true;
+        running = true;
+      }
+
+      DBScanIterator scanner = null;
+      Throwable failure = null;
+      try {
+        scanner = new DBScanIterator(partition.getLevelDB(), startRow, stopRow);
+        // The entries returned by LevelDB are copies, hence it is safe to hold on to them
+        while (rows.size() < readAheadRows && scanner.hasNext()) {
+          rows.add(scanner.next());
+        }
+      } catch (Throwable t) {
+        failure = t;
+      }
+
+      synchronized (this) {
+        this.scanner = scanner;
+        this.failure = failure;
+        running = false;
+        if (closed && scanner != null) {
+          scanner.close();
+        }
+        notifyAll();
+      }
+    }
+
+    /**
+     * Returns an iterator over the partition, starting with the rows that were read ahead.
+     */
+    synchronized CloseableIterator<Map.Entry<byte[], byte[]>> take() throws IOException {
+      if (!started) {
+        started = true;
+        return new DBScanIterator(partition.getLevelDB(), startRow, stopRow);
+      }
+
+      boolean interrupted = false;
+      while (running) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          // Wait for the read ahead to complete, since the scan cannot continue without it
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+
+      if (failure != null) {
+        if (failure instanceof IOException) {
+          throw new IOException(failure);
+        }
+        throw new RuntimeException(failure);
+      }
+
+      DBScanIterator scanner = this.scanner;
+      Iterator<Map.Entry<byte[], byte[]>> iterator = Iterators.concat(rows.iterator(), scanner);
+      return new AbstractCloseableIterator<Map.Entry<byte[], byte[]>>() {
+        @Override
+        protected Map.Entry<byte[], byte[]> computeNext() {
+          return iterator.hasNext() ? iterator.next() : endOfData();
+        }
+
+        @Override
+        public void close() {
+          scanner.close();
+        }
+      };
+    }
+
+    /**
+     * Closes the partition scanner if the read ahead has completed, or marks it to be closed when it completes.
+     */
+    synchronized void close() {
+      closed = true;
+      if (!running && scanner != null) {
+        scanner.close();
+      }
+    }
+  }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.store.leveldb;
+
+import org.iq80.leveldb.DBFactory;
+import org.iq80.leveldb.Options;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.Cache;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompressionType;
+import org.rocksdb.DBOptions;
+import org.rocksdb.Filter;
+import org.rocksdb.LRUCache;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A LevelDB {@link DBFactory} that opens RocksDB databases as {@link RocksDBStore}. The LevelDB {@link Options}
+ * are translated to the corresponding RocksDB options. All databases created by the same factory share one
+ * block cache and one bloom filter policy. The bloom filter is on whole keys, which serves point lookups.
+ */
+public final class RocksDBFactory implements DBFactory, Closeable {
+
+  static {
+    RocksDB.loadLibrary();
+  }
+
+  private static final int BLOOM_FILTER_BITS_PER_KEY = 10;
+
+  private final Cache blockCache;
+  private final Filter bloomFilter;
+
+  /**
+   * Creates an instance.
+   *
+   * @param blockCacheSize size in bytes of the block cache shared by all databases created by this factory
+   */
+  public RocksDBFactory(long blockCacheSize) {
+    this.blockCache = new LRUCache(blockCacheSize);
+    this.bloomFilter = new BloomFilter(BLOOM_FILTER_BITS_PER_KEY);
+  }
+
+  /**
+   * Creates the RocksDB {@link DBOptions} from the given LevelDB {@link Options}.
+   * The caller is responsible for closing the returned object.
+   */
+  public DBOptions createDBOptions(Options options) {
+    return new DBOptions()
+      .setCreateIfMissing(options.createIfMissing())
+      .setErrorIfExists(options.errorIfExists())
+      .setParanoidChecks(options.paranoidChecks())
+      .setMaxOpenFiles(options.maxOpenFiles())
+      .setKeepLogFileNum(2);
+  }
+
+  /**
+   * Creates the RocksDB {@link ColumnFamilyOptions} from the given LevelDB {@link Options}, except for the
+   * comparator, which needs to be set by the caller if the default byte order is not used.
+   * The caller is responsible for closing the returned object.
+   */
+  public ColumnFamilyOptions createColumnFamilyOptions(Options options) {
+    BlockBasedTableConfig tableConfig = new BlockBasedTableConfig()
+      .setBlockCache(blockCache)
+      .setBlockSize(options.blockSize())
+      .setBlockRestartInterval(options.blockRestartInterval())
+      .setFilterPolicy(bloomFilter)
+      .setWholeKeyFiltering(true);
+
+    return new ColumnFamilyOptions()
+      .setTableFormatConfig(tableConfig)
+      .setWriteBufferSize(options.writeBufferSize())
+      .setCompressionType(options.compressionType() == org.iq80.leveldb.CompressionType.SNAPPY
+                            ? CompressionType.SNAPPY_COMPRESSION : CompressionType.NO_COMPRESSION);
+  }
+
+  /**
+   * Opens a RocksDB database that uses the default byte order of keys. Custom comparators are not supported,
+   * because RocksDB requires the comparator name before a delegating comparator can be initialized.
+   */
+  @Override
+  public RocksDBStore open(File path, Options options) throws IOException {
+    if (options.comparator() != null) {
+      throw new UnsupportedOperationException("Custom comparator is not supported for RocksDB at " + path);
+    }
+    // The options must outlive the database, hence they are closed by the store after the database
+    DBOptions dbOptions = createDBOptions(options);
+    ColumnFamilyOptions columnFamilyOptions = createColumnFamilyOptions(options);
+    org.rocksdb.Options rocksDBOptions = new org.rocksdb.Options(dbOptions, columnFamilyOptions);
+    try {
+      RocksDB db = RocksDB.open(rocksDBOptions, path.getAbsolutePath());
+      return new RocksDBStore(db, db.getDefaultColumnFamily(), db, rocksDBOptions, columnFamilyOptions, dbOptions);
+    } catch (RocksDBException e) {
+      rocksDBOptions.close();
+      columnFamilyOptions.close();
+      dbOptions.close();
+      throw new IOException("Failed to open RocksDB at " + path, e);
+    }
+  }
+
+  @Override
+  public void destroy(File path, Options options) throws IOException {
+    try (org.rocksdb.Options rocksDBOptions = new org.rocksdb.Options()) {
+      RocksDB.destroyDB(path.getAbsolutePath(), rocksDBOptions);
+    } catch (RocksDBException e) {
+      throw new IOException("Failed to destroy RocksDB at " + path, e);
+    }
+  }
+
+  @Override
+  public void repair(File path, Options options) {
+    throw new UnsupportedOperationException("Repair is not supported for RocksDB");
+  }
+
+  /**
+   * Releases the shared block cache and bloom filter. Databases that are still open keep their own reference.
+   */
+  @Override
+  public void close() {
+    blockCache.close();
+    bloomFilter.close();
+  }
+}
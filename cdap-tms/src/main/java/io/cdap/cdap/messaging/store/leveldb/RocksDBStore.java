@@ -0,0 +1,491 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.store.leveldb;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBException;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.Range;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.Snapshot;
+import org.iq80.leveldb.WriteBatch;
+import org.iq80.leveldb.WriteOptions;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.SizeApproximationFlag;
+import org.rocksdb.Slice;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+
+/**
+ * A LevelDB {@link DB} backed by a column family of a RocksDB database, which allows code written against the
+ * LevelDB API to use RocksDB as the storage engine. On top of the LevelDB API, it supports native range deletes
+ * through {@link RocksDBWriteBatch#deleteRange(byte[], byte[])}.
+ */
+public final class RocksDBStore implements DB {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RocksDBStore.class);
+
+  private final RocksDB db;
+  private final ColumnFamilyHandle columnFamily;
+  private final KeyCodec keyCodec;
+  private final AutoCloseable[] resources;
+  private final org.rocksdb.WriteOptions writeOptions;
+  private final org.rocksdb.WriteOptions syncWriteOptions;
+  private volatile boolean closed;
+
+  /**
+   * Creates an instance that stores keys as is.
+   *
+   * @param db the RocksDB database
+   * @param columnFamily the column family in the database to operate on
+   * @param resources resources to close in order when this store is closed
+   */
+  public RocksDBStore(RocksDB db, ColumnFamilyHandle columnFamily, AutoCloseable... resources) {
+    this(db, columnFamily, KeyCodec.IDENTITY, resources);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param db the RocksDB database
+   * @param columnFamily the column family in the database to operate on
+   * @param keyCodec the {@link KeyCodec} for translating keys to and from the keys stored in RocksDB
+   * @param resources resources to close in order when this store is closed
+   */
+  public RocksDBStore(RocksDB db, ColumnFamilyHandle columnFamily, KeyCodec keyCodec, AutoCloseable... resources) {
+    this.db = db;
+    this.columnFamily = columnFamily;
+    this.keyCodec = keyCodec;
+    this.resources = resources;
+    this.writeOptions = new org.rocksdb.WriteOptions();
+    this.syncWriteOptions = new org.rocksdb.WriteOptions().setSync(true);
+  }
+
+  /**
+   * Returns the RocksDB database of this store.
+   */
+  public RocksDB getRocksDB() {
+    return db;
+  }
+
+  /**
+   * Returns the column family of this store.
+   */
+  public ColumnFamilyHandle getColumnFamily() {
+    return columnFamily;
+  }
+
+  @Override
+  public byte[] get(byte[] key) throws DBException {
+    ensureOpen();
+    try {
+      return db.get(columnFamily, keyCodec.encode(key));
+    } catch (RocksDBException e) {
+      throw new DBException(e);
+    }
+  }
+
+  @Override
+  public byte[] get(byte[] key, ReadOptions options) throws DBException {
+    ensureOpen();
+    try (org.rocksdb.ReadOptions readOptions = toRocksDBReadOptions(options)) {
+      return db.get(columnFamily, readOptions, keyCodec.encode(key));
+    } catch (RocksDBException e) {
+      throw new DBException(e);
+    }
+  }
+
+  @Override
+  public DBIterator iterator() {
+    return iterator(new ReadOptions());
+  }
+
+  @Override
+  public DBIterator iterator(ReadOptions options) {
+    ensureOpen();
+    org.rocksdb.ReadOptions readOptions = toRocksDBReadOptions(options);
+    return new RocksDBIterator(db.newIterator(columnFamily, readOptions), readOptions, keyCodec);
+  }
+
+  @Override
+  public void put(byte[] key, byte[] value) throws DBException {
+    put(key, value, new WriteOptions());
+  }
+
+  @Override
+  public void delete(byte[] key) throws DBException {
+    delete(key, new WriteOptions());
+  }
+
+  @Override
+  public void write(WriteBatch updates) throws DBException {
+    write(updates, new WriteOptions());
+  }
+
+  /**
+   * Returns the last key in this store, or {@code null} if the store is empty.
+   */
+  @Nullable
+  public byte[] getLastKey() {
+    ensureOpen();
+    try (RocksIterator iterator = db.newIterator(columnFamily)) {
+      iterator.seekToLast();
+      if (iterator.isValid()) {
+        return keyCodec.decode(iterator.key());
+      }
+      iterator.status();
+      return null;
+    } catch (RocksDBException e) {
+      throw new DBException(e);
+    }
+  }
+
+  @Override
+  public RocksDBWriteBatch createWriteBatch() {
+    return new RocksDBWriteBatch(columnFamily, keyCodec);
+  }
+
+  @Nullable
+  @Override
+  public Snapshot put(byte[] key, byte[] value, WriteOptions options) throws DBException {
+    ensureOpen();
+    try {
+      db.put(columnFamily, toRocksDBWriteOptions(options), keyCodec.encode(key), value);
+    } catch (RocksDBException e) {
+      throw new DBException(e);
+    }
+    return options.snapshot() ? getSnapshot() : null;
+  }
+
+  @Nullable
+  @Override
+  public Snapshot delete(byte[] key, WriteOptions options) throws DBException {
+    ensureOpen();
+    try {
+      db.delete(columnFamily, toRocksDBWriteOptions(options), keyCodec.encode(key));
+    } catch (RocksDBException e) {
+      throw new DBException(e);
+    }
+    return options.snapshot() ? getSnapshot() : null;
+  }
+
+  @Nullable
+  @Override
+  public Snapshot write(WriteBatch updates, WriteOptions options) throws DBException {
+    ensureOpen();
+    if (!(updates instanceof RocksDBWriteBatch)) {
+      throw new IllegalArgumentException("Write batch must be created by the createWriteBatch() method of this DB");
+    }
+    ((RocksDBWriteBatch) updates).write(db, toRocksDBWriteOptions(options));
+    return options.snapshot() ? getSnapshot() : null;
+  }
+
+  @Override
+  public Snapshot getSnapshot() {
+    ensureOpen();
+    return new RocksDBSnapshot(db, db.getSnapshot());
+  }
+
+  @Override
+  public long[] getApproximateSizes(Range... ranges) {
+    ensureOpen();
+    List<org.rocksdb.Range> rocksDBRanges = new ArrayList<>(ranges.length);
+    List<Slice> slices = new ArrayList<>(ranges.length * 2);
+    try {
+      for (Range range : ranges) {
+        Slice start = new Slice(keyCodec.encode(range.start()));
+        slices.add(start);
+        Slice limit = new Slice(keyCodec.encode(range.limit()));
+        slices.add(limit);
+        rocksDBRanges.add(new org.rocksdb.Range(start, limit));
+      }
+      return db.getApproximateSizes(columnFamily, rocksDBRanges, SizeApproximationFlag.INCLUDE_FILES,
+                                    SizeApproximationFlag.INCLUDE_MEMTABLES);
+    } finally {
+      slices.forEach(Slice::close);
+    }
+  }
+
+  @Nullable
+  @Override
+  public String getProperty(String name) {
+    ensureOpen();
+    try {
+      return db.getProperty(columnFamily, name);
+    } catch (RocksDBException e) {
+      // Same as LevelDB, returns null for unknown property
+      return null;
+    }
+  }
+
+  @Override
+  public void suspendCompactions() {
+    ensureOpen();
+    try {
+      db.pauseBackgroundWork();
+    } catch (RocksDBException e) {
+      throw new DBException(e);
+    }
+  }
+
+  @Override
+  public void resumeCompactions() {
+    ensureOpen();
+    try {
+      db.continueBackgroundWork();
+    } catch (RocksDBException e) {
+      throw new DBException(e);
+    }
+  }
+
+  @Override
+  public void compactRange(@Nullable byte[] begin, @Nullable byte[] end) throws DBException {
+    ensureOpen();
+    try {
+      db.compactRange(columnFamily, begin == null ? null : keyCodec.encode(begin),
+                      end == null ? null : keyCodec.encode(end));
+    } catch (RocksDBException e) {
+      throw new DBException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    writeOptions.close();
+    syncWriteOptions.close();
+    for (AutoCloseable resource : resources) {
+      try {
+        resource.close();
+      } catch (Exception e) {
+        LOG.warn("Exception raised when closing RocksDB resource {}", resource, e);
+      }
+    }
+  }
+
+  private void ensureOpen() {
+    // RocksDB native objects cannot be used after close, hence fail with exception instead
+    if (closed) {
+      throw new DBException("RocksDB store is already closed");
+    }
+  }
+
+  private org.rocksdb.WriteOptions toRocksDBWriteOptions(WriteOptions options) {
+    return options.sync() ? syncWriteOptions : writeOptions;
+  }
+
+  private static org.rocksdb.ReadOptions toRocksDBReadOptions(ReadOptions options) {
+    org.rocksdb.ReadOptions readOptions = new org.rocksdb.ReadOptions()
+      .setFillCache(options.fillCache())
+      .setVerifyChecksums(options.verifyChecksums());
+    if (options.snapshot() != null) {
+      readOptions.setSnapshot(((RocksDBSnapshot) options.snapshot()).snapshot);
+    }
+    return readOptions;
+  }
+
+  /**
+   * Translates keys to the keys stored in RocksDB and back. It allows keys that need a custom comparator in
+   * LevelDB to be stored in an encoding that has the same order under the RocksDB default bytewise comparator.
+   * This avoids calling a Java comparator from the native code for every key comparison.
+   */
+  public interface KeyCodec {
+
+    /**
+     * A {@link KeyCodec} that stores keys as is.
+     */
+    KeyCodec IDENTITY = new KeyCodec() {
+      @Override
+      public byte[] encode(byte[] key) {
+        return key;
+      }
+
+      @Override
+      public byte[] decode(byte[] key) {
+        return key;
+      }
+    };
+
+    /**
+     * Encodes the given key to the key stored in RocksDB.
+     */
+    byte[] encode(byte[] key);
+
+    /**
+     * Decodes a key stored in RocksDB to the original key.
+     */
+    byte[] decode(byte[] key);
+  }
+
+  /**
+   * A LevelDB {@link Snapshot} of a RocksDB database.
+   */
+  private static final class RocksDBSnapshot implements Snapshot {
+
+    private final RocksDB db;
+    private final org.rocksdb.Snapshot snapshot;
+
+    private RocksDBSnapshot(RocksDB db, org.rocksdb.Snapshot snapshot) {
+      this.db = db;
+      this.snapshot = snapshot;
+    }
+
+    @Override
+    public void close() {
+      db.releaseSnapshot(snapshot);
+    }
+  }
+
+  /**
+   * A LevelDB {@link DBIterator} over a {@link RocksIterator}. The position is before the entry returned by
+   * {@link #next()}, and after the entry returned by {@link #prev()}. Same as the LevelDB JNI implementation,
+   * {@link #seekToLast()} positions before the last entry.
+   */
+  private static final class RocksDBIterator implements DBIterator {
+
+    private final RocksIterator iterator;
+    private final org.rocksdb.ReadOptions readOptions;
+    private final KeyCodec keyCodec;
+
+    private RocksDBIterator(RocksIterator iterator, org.rocksdb.ReadOptions readOptions, KeyCodec keyCodec) {
+      this.iterator = iterator;
+      this.readOptions = readOptions;
+      this.keyCodec = keyCodec;
+      iterator.seekToFirst();
+    }
+
+    @Override
+    public void seek(byte[] key) {
+      iterator.seek(keyCodec.encode(key));
+    }
+
+    @Override
+    public void seekToFirst() {
+      iterator.seekToFirst();
+    }
+
+    @Override
+    public Map.Entry<byte[], byte[]> peekNext() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return new AbstractMap.SimpleImmutableEntry<>(keyCodec.decode(iterator.key()), iterator.value());
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (iterator.isValid()) {
+        return true;
+      }
+      try {
+        // An invalid iterator is either exhausted or failed
+        iterator.status();
+      } catch (RocksDBException e) {
+        throw new DBException(e);
+      }
+      return false;
+    }
+
+    @Override
+    public Map.Entry<byte[], byte[]> next() {
+      Map.Entry<byte[], byte[]> entry = peekNext();
+      iterator.next();
+      return entry;
+    }
+
+    @Override
+    public boolean hasPrev() {
+      byte[] key = iterator.isValid() ? iterator.key() : null;
+      moveToPrev();
+      boolean hasPrev = hasNext();
+      restore(key);
+      return hasPrev;
+    }
+
+    @Override
+    public Map.Entry<byte[], byte[]> prev() {
+      Map.Entry<byte[], byte[]> entry = peekPrev();
+      moveToPrev();
+      return entry;
+    }
+
+    @Override
+    public Map.Entry<byte[], byte[]> peekPrev() {
+      byte[] key = iterator.isValid() ? iterator.key() : null;
+      moveToPrev();
+      try {
+        return peekNext();
+      } finally {
+        restore(key);
+      }
+    }
+
+    @Override
+    public void seekToLast() {
+      iterator.seekToLast();
+    }
+
+    /**
+     * Moves to the entry before the current position. If the iterator is exhausted, it moves to the last entry.
+     */
+    private void moveToPrev() {
+      if (iterator.isValid()) {
+        iterator.prev();
+      } else {
+        iterator.seekToLast();
+      }
+    }
+
+    /**
+     * Restores the position to the given encoded key, or to the end if the key is {@code null}.
+     */
+    private void restore(@Nullable byte[] key) {
+      if (key != null) {
+        iterator.seek(key);
+        return;
+      }
+      iterator.seekToLast();
+      if (iterator.isValid()) {
+        iterator.next();
+      }
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+      iterator.close();
+      readOptions.close();
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.store.leveldb;
+
+import org.iq80.leveldb.DBException;
+import org.iq80.leveldb.WriteBatch;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteOptions;
+
+/**
+ * A LevelDB {@link WriteBatch} for {@link RocksDBStore}. Besides puts and deletes, it supports deleting a range
+ * of keys with a single range tombstone.
+ *
+ * Code written against LevelDB doesn't always close the write batch. To not leak native memory, the native batch
+ * is only allocated when the first update is added, and is released once it is written to the database.
+ */
+public final class RocksDBWriteBatch implements WriteBatch {
+
+  private final ColumnFamilyHandle columnFamily;
+  private final RocksDBStore.KeyCodec keyCodec;
+  private org.rocksdb.WriteBatch batch;
+
+  RocksDBWriteBatch(ColumnFamilyHandle columnFamily, RocksDBStore.KeyCodec keyCodec) {
+    this.columnFamily = columnFamily;
+    this.keyCodec = keyCodec;
+  }
+
+  @Override
+  public RocksDBWriteBatch put(byte[] key, byte[] value) {
+    try {
+      getBatch().put(columnFamily, keyCodec.encode(key), value);
+    } catch (RocksDBException e) {
+      throw new DBException(e);
+    }
+    return this;
+  }
+
+  @Override
+  public RocksDBWriteBatch delete(byte[] key) {
+    try {
+      getBatch().delete(columnFamily, keyCodec.encode(key));
+    } catch (RocksDBException e) {
+      throw new DBException(e);
+    }
+    return this;
+  }
+
+  /**
+   * Deletes all keys in the range of {@code [beginKey, endKey)}.
+   */
+  public RocksDBWriteBatch deleteRange(byte[] beginKey, byte[] endKey) {
+    try {
+      getBatch().deleteRange(columnFamily, keyCodec.encode(beginKey), keyCodec.encode(endKey));
+    } catch (RocksDBException e) {
+      throw new DBException(e);
+    }
+    return this;
+  }
+
+  @Override
+  public void close() {
+    if (batch != null) {
+      batch.close();
+      batch = null;
+    }
+  }
+
+  /**
+   * Writes the updates in this batch to the given database and clears this batch.
+   */
+  void write(RocksDB db, WriteOptions writeOptions) {
+    if (batch == null) {
+      return;
+    }
+    try {
+      db.write(writeOptions, batch);
+    } catch (RocksDBException e) {
+      throw new DBException(e);
+    } finally {
+      close();
+    }
+  }
+
+  private org.rocksdb.WriteBatch getBatch() {
+    if (batch == null) {
+      batch = new org.rocksdb.WriteBatch();
+    }
+    return batch;
+  }
+}
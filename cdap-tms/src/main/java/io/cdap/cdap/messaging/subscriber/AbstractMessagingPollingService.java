@@ -30,6 +30,7 @@ import io.cdap.cdap.common.logging.Loggers;
 import io.cdap.cdap.common.service.AbstractRetryableScheduledService;
 import io.cdap.cdap.common.service.RetryStrategy;
 import io.cdap.cdap.common.utils.ImmutablePair;
+import io.cdap.cdap.messaging.context.BlockingMessageFetcher;
 import io.cdap.cdap.messaging.data.MessageId;
 import io.cdap.cdap.proto.id.TopicId;
 import org.slf4j.Logger;
@@ -39,6 +40,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 /**
@@ -74,6 +76,13 @@ public abstract class AbstractMessagingPollingService<T> extends AbstractRetryab
     return topicId;
   }
 
+  /**
+   * Returns the {@link MetricsContext} that this service emits metrics to.
+   */
+  protected final MetricsContext getMetricsContext() {
+    return metricsContext;
+  }
+
   /**
    * Returns the {@link MessageContext} that this service used for interacting with TMS.
    */
@@ -161,14 +170,19 @@ public abstract class AbstractMessagingPollingService<T> extends AbstractRetryab
   }
 
   /**
-   * Fetching messages from TMS.
+   * Fetching messages from TMS. If the {@link MessageFetcher} supports it, the fetch waits for up to the empty fetch
+   * delay for new messages to be published, so that messages are processed as soon as they are published.
    */
   protected List<Message> fetchMessages(@Nullable String messageId) throws TopicNotFoundException, IOException {
     List<Message> messages = new ArrayList<>();
     LOG.trace("Fetching from topic '{}' with messageId '{}'", topicId, messageId);
     MessageFetcher messageFetcher = getMessagingContext().getMessageFetcher();
-    try (CloseableIterator<Message> iterator = messageFetcher.fetch(getTopicId().getNamespace(),
-                                                                    getTopicId().getTopic(), fetchSize, messageId)) {
+    String namespace = getTopicId().getNamespace();
+    String topic = getTopicId().getTopic();
+    try (CloseableIterator<Message> iterator = messageFetcher instanceof BlockingMessageFetcher
+      ? ((BlockingMessageFetcher) messageFetcher).fetch(namespace, topic, fetchSize, messageId,
+                                                        emptyFetchDelayMillis, TimeUnit.MILLISECONDS)
+      : messageFetcher.fetch(namespace, topic, fetchSize, messageId)) {
       while (iterator.hasNext() && state() == State.RUNNING) {
         messages.add(iterator.next());
       }
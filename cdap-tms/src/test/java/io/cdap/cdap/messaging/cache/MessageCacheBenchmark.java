@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.cache;
+
+import io.cdap.cdap.api.metrics.NoopMetricsContext;
+import io.cdap.cdap.messaging.store.MessageFilter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A benchmark that compares {@link DefaultMessageCache} and {@link SegmentedMessageCache} under a single writer
+ * and multiple concurrent fetchers, which is the access pattern of TMS. It is not run as part of the unit tests.
+ *
+ * Usage: {@code MessageCacheBenchmark [fetchers] [durationSeconds]}
+ */
+public final class MessageCacheBenchmark {
+
+  private static final int BATCH_SIZE = 50;
+  private static final int SCAN_LIMIT = 100;
+  private static final MessageCache.Limits LIMITS = new MessageCache.Limits(50000, 70000, 100000);
+
+  public static void main(String[] args) throws Exception {
+    int fetchers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+    int duration = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+    Comparator<Long> comparator = Long::compare;
+    MessageCache.Weigher<Long> weigher = entry -> 1;
+
+    // Run twice to have the first round as warm up
+    for (int i = 0; i < 2; i++) {
+      run("default", new DefaultMessageCache<>(comparator, weigher, LIMITS, new NoopMetricsContext()),
+          fetchers, duration);
+      run("segmented", new SegmentedMessageCache<>(comparator, weigher, LIMITS, new NoopMetricsContext()),
+          fetchers, duration);
+    }
+  }
+
+  private static void run(String name, MessageCache<Long> cache, int fetchers, int duration) throws Exception {
+    AtomicBoolean stopped = new AtomicBoolean();
+    LongAdder added = new LongAdder();
+    LongAdder scanned = new LongAdder();
+    LongAdder scans = new LongAdder();
+    CountDownLatch completion = new CountDownLatch(fetchers + 1);
+    List<Thread> threads = new ArrayList<>();
+
+    // The single writer, always appending to the end of the cache
+    threads.add(new Thread(() -> {
+      List<Long> batch = new ArrayList<>(BATCH_SIZE);
+      long next = 0L;
+      while (!stopped.get()) {
+        batch.clear();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+          batch.add(next++);
+        }
+        cache.addAll(batch.iterator());
+        added.add(BATCH_SIZE);
+      }
+      completion.countDown();
+    }));
+
+    // Fetchers that keep reading close to the end of the cache, as subscribers that are caught up would
+    MessageFilter<Long> filter = MessageFilter.alwaysAccept();
+    for (int i = 0; i < fetchers; i++) {
+      threads.add(new Thread(() -> {
+        while (!stopped.get()) {
+          long start = Math.max(0L, added.sum() - SCAN_LIMIT * 10);
+          try (MessageCache.Scanner<Long> scanner = cache.scan(start, true, SCAN_LIMIT, filter)) {
+            while (scanner.hasNext()) {
+              scanner.next();
+              scanned.increment();
+            }
+          }
+          scans.increment();
+        }
+        completion.countDown();
+      }));
+    }
+
+    threads.forEach(Thread::start);
+    TimeUnit.SECONDS.sleep(duration);
+    stopped.set(true);
+    completion.await();
+
+    System.out.printf("%-10s fetchers=%d  adds/s=%,d  scans/s=%,d  entries scanned/s=%,d%n", name, fetchers,
+                      added.sum() / duration, scans.sum() / duration, scanned.sum() / duration);
+  }
+
+  private MessageCacheBenchmark() {
+    // no-op
+  }
+}
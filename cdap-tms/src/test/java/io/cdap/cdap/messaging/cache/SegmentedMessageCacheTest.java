@@ -0,0 +1,321 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.cache;
+
+import com.google.common.collect.Lists;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.api.metrics.NoopMetricsContext;
+import io.cdap.cdap.messaging.store.MessageFilter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit test for {@link SegmentedMessageCache}.
+ */
+public class SegmentedMessageCacheTest {
+
+  private static final MetricsContext NOOP_METRICS = new NoopMetricsContext();
+  private static final Comparator<Integer> INT_COMPARATOR = Integer::compare;
+  private static final MessageCache.Weigher<Integer> UNIT_WEIGHER = entry -> 1;
+
+  @Test
+  public void testNoCache() {
+    SegmentedMessageCache<Integer> cache = new SegmentedMessageCache<>(INT_COMPARATOR, UNIT_WEIGHER,
+                                                                       new MessageCache.Limits(0, 0, 0), NOOP_METRICS);
+    cache.addAll(Arrays.asList(1, 2, 3).iterator());
+    Assert.assertEquals(0L, cache.getCurrentWeight());
+
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 10, MessageFilter.<Integer>alwaysAccept())) {
+      Assert.assertNull(scanner.getFirstInCache());
+      Assert.assertFalse(scanner.hasNext());
+    }
+  }
+
+  @Test
+  public void testBasic() {
+    // Use a small segment size so that scans cross segment boundaries
+    SegmentedMessageCache<Integer> cache = new SegmentedMessageCache<>(INT_COMPARATOR, UNIT_WEIGHER,
+                                                                       new MessageCache.Limits(100, 140, 200),
+                                                                       NOOP_METRICS, 3);
+
+    cache.addAll(Arrays.asList(1, 2, 3, 4, 5).iterator());
+    cache.addAll(Arrays.asList(11, 12, 13, 14, 15).iterator());
+    Assert.assertEquals(10, cache.getCurrentWeight());
+    Assert.assertEquals(4, cache.getSegmentCount());
+
+    MessageFilter<Integer> filter = MessageFilter.<Integer>alwaysAccept();
+
+    // Scan with a start key that is not in cache
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 10, filter)) {
+      Assert.assertEquals(Integer.valueOf(1), scanner.getFirstInCache());
+      Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5, 11, 12, 13, 14, 15), Lists.newArrayList(scanner));
+    }
+
+    // Scan with a limit
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 5, filter)) {
+      Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5), Lists.newArrayList(scanner));
+    }
+
+    // Scan with a start key that is in the cache, inclusive and exclusive
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(3, true, 5, filter)) {
+      Assert.assertEquals(Arrays.asList(3, 4, 5, 11, 12), Lists.newArrayList(scanner));
+    }
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(3, false, 5, filter)) {
+      Assert.assertEquals(Arrays.asList(4, 5, 11, 12, 13), Lists.newArrayList(scanner));
+    }
+
+    // Scan with a start key that is between keys in the cache and after all keys in the cache
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(9, true, 5, filter)) {
+      Assert.assertEquals(Arrays.asList(11, 12, 13, 14, 15), Lists.newArrayList(scanner));
+    }
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(15, false, 5, filter)) {
+      Assert.assertEquals(Integer.valueOf(1), scanner.getFirstInCache());
+      Assert.assertFalse(scanner.hasNext());
+    }
+
+    // Scan with filter that only accept evens
+    MessageFilter<Integer> acceptEvens = new MessageFilter<Integer>() {
+      @Override
+      public Result apply(Integer input) {
+        return input % 2 == 0 ? Result.ACCEPT : Result.SKIP;
+      }
+    };
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 3, acceptEvens)) {
+      Assert.assertEquals(Arrays.asList(2, 4, 12), Lists.newArrayList(scanner));
+    }
+
+    // Scan with filter that hold when number 11
+    MessageFilter<Integer> holdAtEleven = new MessageFilter<Integer>() {
+      @Override
+      public Result apply(Integer input) {
+        return input == 11 ? Result.HOLD : Result.ACCEPT;
+      }
+    };
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 10, holdAtEleven)) {
+      Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5), Lists.newArrayList(scanner));
+    }
+  }
+
+  @Test
+  public void testUpdate() {
+    Comparator<int[]> comparator = Comparator.comparingInt(entry -> entry[0]);
+    SegmentedMessageCache<int[]> cache = new SegmentedMessageCache<>(comparator, entry -> 1,
+                                                                     new MessageCache.Limits(10, 14, 20),
+                                                                     NOOP_METRICS, 2);
+    cache.addAll(Arrays.asList(new int[] {0, 0}, new int[] {1, 0}, new int[] {2, 0}, new int[] {3, 0}).iterator());
+
+    // Update entries across segments in place
+    cache.updateEntries(new int[] {1, 0}, new int[] {2, 0}, new MessageCache.EntryUpdater<int[]>() {
+      @Override
+      public void updateEntry(int[] entry) {
+        entry[1] = 1;
+      }
+    });
+    try (MessageCache.Scanner<int[]> scanner = cache.scan(new int[] {0, 0}, true, 10,
+                                                          MessageFilter.<int[]>alwaysAccept())) {
+      List<Integer> updated = new ArrayList<>();
+      for (int[] entry : Lists.newArrayList(scanner)) {
+        updated.add(entry[1]);
+      }
+      Assert.assertEquals(Arrays.asList(0, 1, 1, 0), updated);
+    }
+
+    // Update that alters the ordering should fail and clear the cache
+    try {
+      cache.updateEntries(new int[] {0, 0}, new int[] {3, 0}, new MessageCache.EntryUpdater<int[]>() {
+        @Override
+        public void updateEntry(int[] entry) {
+          if (entry[0] == 2) {
+            entry[0] = 5;
+          }
+        }
+      });
+      Assert.fail("Expected exception of out of order update");
+    } catch (IllegalStateException e) {
+      Assert.assertEquals(0, cache.getCurrentWeight());
+    }
+  }
+
+  @Test
+  public void testAddError() {
+    SegmentedMessageCache<Integer> cache = new SegmentedMessageCache<>(INT_COMPARATOR, UNIT_WEIGHER,
+                                                                       new MessageCache.Limits(5, 7, 10),
+                                                                       NOOP_METRICS, 2);
+    // Adding out of order should result in error and clear the cache
+    try {
+      cache.addAll(Arrays.asList(5, 2, 3, 4).iterator());
+      Assert.fail("Expected failure for adding out of order");
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals(0, cache.getCurrentWeight());
+    }
+
+    // Adding entries that are not larger than the largest one in the cache
+    cache.addAll(Arrays.asList(5, 6, 7).iterator());
+    try {
+      cache.addAll(Arrays.asList(7, 8).iterator());
+      Assert.fail("Expected failure for adding out of order");
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals(0, cache.getCurrentWeight());
+    }
+
+    // The cache should be usable after the failure
+    cache.addAll(Arrays.asList(1, 2).iterator());
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 10, MessageFilter.<Integer>alwaysAccept())) {
+      Assert.assertEquals(Arrays.asList(1, 2), Lists.newArrayList(scanner));
+    }
+  }
+
+  @Test
+  public void testCacheReduction() {
+    // Segments are sealed when their weight reaches (hard limit - min retain) / 4 = 2
+    SegmentedMessageCache<Integer> cache = new SegmentedMessageCache<>(INT_COMPARATOR, UNIT_WEIGHER,
+                                                                       new MessageCache.Limits(10, 14, 18),
+                                                                       NOOP_METRICS);
+    MessageFilter<Integer> filter = MessageFilter.<Integer>alwaysAccept();
+
+    // Going over the reduce trigger, reduction happens when the scanner is closed
+    List<Integer> entries = new ArrayList<>();
+    for (int i = 1; i <= 16; i++) {
+      entries.add(i);
+    }
+    cache.addAll(entries.iterator());
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 100, filter)) {
+      Assert.assertEquals(entries, Lists.newArrayList(scanner));
+    }
+
+    // Whole segments are removed, retaining at least the min retain weight
+    Assert.assertEquals(10, cache.getCurrentWeight());
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 100, filter)) {
+      Assert.assertEquals(Integer.valueOf(7), scanner.getFirstInCache());
+      Assert.assertEquals(entries.subList(6, 16), Lists.newArrayList(scanner));
+    }
+
+    // Adding past the hard limit reduces the weight while adding
+    for (int i = 17; i <= 100; i++) {
+      cache.addAll(Arrays.asList(i).iterator());
+      Assert.assertTrue(cache.getCurrentWeight() <= 18);
+    }
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 100, filter)) {
+      List<Integer> result = Lists.newArrayList(scanner);
+      Assert.assertTrue(result.size() >= 10);
+      Assert.assertEquals(Integer.valueOf(100), result.get(result.size() - 1));
+    }
+
+    // Shrinking the cache
+    cache.resize(new MessageCache.Limits(2, 3, 4));
+    Assert.assertTrue(cache.getCurrentWeight() <= 4);
+  }
+
+  @Test
+  public void testConcurrentScan() throws Exception {
+    SegmentedMessageCache<Integer> cache = new SegmentedMessageCache<>(INT_COMPARATOR, UNIT_WEIGHER,
+                                                                       new MessageCache.Limits(1000, 1500, 2000),
+                                                                       NOOP_METRICS, 16);
+    MessageFilter<Integer> filter = MessageFilter.alwaysAccept();
+    int fetchers = 4;
+    ExecutorService executor = Executors.newFixedThreadPool(fetchers);
+    AtomicBoolean stopped = new AtomicBoolean();
+    AtomicInteger scans = new AtomicInteger();
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < fetchers; i++) {
+        futures.add(executor.submit(() -> {
+          while (!stopped.get()) {
+            // Each scan must return consecutive entries
+            try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 500, filter)) {
+              Integer last = null;
+              while (scanner.hasNext()) {
+                Integer entry = scanner.next();
+                Assert.assertTrue(last == null || entry == last + 1);
+                last = entry;
+              }
+            }
+            scans.incrementAndGet();
+          }
+          return null;
+        }));
+      }
+
+      for (int i = 0; i < 100000; i += 10) {
+        List<Integer> batch = new ArrayList<>();
+        for (int j = i; j < i + 10; j++) {
+          batch.add(j);
+        }
+        cache.addAll(batch.iterator());
+      }
+      stopped.set(true);
+      for (Future<?> future : futures) {
+        future.get(10, TimeUnit.SECONDS);
+      }
+      Assert.assertTrue(cache.getCurrentWeight() <= 2000);
+      Assert.assertTrue(scans.get() > 0);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testConcurrentClear() throws Exception {
+    SegmentedMessageCache<Integer> cache = new SegmentedMessageCache<>(INT_COMPARATOR, UNIT_WEIGHER,
+                                                                       new MessageCache.Limits(1000, 1500, 2000),
+                                                                       NOOP_METRICS, 4);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    AtomicBoolean stopped = new AtomicBoolean();
+    AtomicInteger clears = new AtomicInteger();
+    try {
+      Future<?> future = executor.submit(() -> {
+        while (!stopped.get()) {
+          cache.clear();
+          clears.incrementAndGet();
+        }
+      });
+
+      for (int i = 0; i < 100000; i += 10) {
+        List<Integer> batch = new ArrayList<>();
+        for (int j = i; j < i + 10; j++) {
+          batch.add(j);
+        }
+        cache.addAll(batch.iterator());
+      }
+      stopped.set(true);
+      future.get(10, TimeUnit.SECONDS);
+      Assert.assertTrue(clears.get() > 0);
+
+      // The weight must account for exactly the entries left in the cache. Get the weight first, since closing
+      // the scanner may reduce it.
+      long weight = cache.getCurrentWeight();
+      try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 100000, MessageFilter.alwaysAccept())) {
+        Assert.assertEquals(weight, Lists.newArrayList(scanner).size());
+      }
+      cache.clear();
+      Assert.assertEquals(0L, cache.getCurrentWeight());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.server;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.api.metrics.NoopMetricsContext;
+import io.cdap.cdap.messaging.Schemas;
+import io.cdap.cdap.messaging.data.RawMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Unit tests for {@link MessagesBodyProducer}.
+ */
+public class MessagesBodyProducerTest {
+
+  @Test
+  public void testEmpty() throws Exception {
+    Assert.assertTrue(encodeAndDecode(new ArrayList<>(), 1024).isEmpty());
+  }
+
+  @Test
+  public void testEncoding() throws Exception {
+    List<RawMessage> messages = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      // Include some payloads larger than the chunk size
+      byte[] payload = new byte[i % 100 == 0 ? 300 : i % 17];
+      for (int j = 0; j < payload.length; j++) {
+        payload[j] = (byte) (i + j);
+      }
+      messages.add(new RawMessage(Bytes.toBytes(i), payload));
+    }
+
+    // Tests with different chunk size, including one that encodes everything in one chunk
+    for (int chunkSize : new int[] { 1, 16, 200, 1024 * 1024 }) {
+      List<RawMessage> decoded = encodeAndDecode(messages, chunkSize);
+      Assert.assertEquals(messages.size(), decoded.size());
+      for (int i = 0; i < messages.size(); i++) {
+        Assert.assertArrayEquals(messages.get(i).getId(), decoded.get(i).getId());
+        Assert.assertArrayEquals(messages.get(i).getPayload(), decoded.get(i).getPayload());
+      }
+    }
+  }
+
+  private List<RawMessage> encodeAndDecode(List<RawMessage> messages, int chunkSize) throws Exception {
+    MessagesBodyProducer producer = new MessagesBodyProducer(new ListIterator(messages.iterator()), chunkSize,
+                                                             PooledByteBufAllocator.DEFAULT, new NoopMetricsContext());
+    ByteBuf content = Unpooled.buffer();
+    ByteBuf chunk = producer.nextChunk();
+    while (chunk.isReadable()) {
+      content.writeBytes(chunk);
+      chunk.release();
+      chunk = producer.nextChunk();
+    }
+    producer.finished();
+
+    Decoder decoder = DecoderFactory.get().directBinaryDecoder(new ByteBufInputStream(content), null);
+    DatumReader<GenericRecord> reader = new GenericDatumReader<>(Schemas.V1.ConsumeResponse.SCHEMA.getElementType());
+
+    List<RawMessage> result = new ArrayList<>();
+    long count = decoder.readArrayStart();
+    while (count > 0) {
+      for (long i = 0; i < count; i++) {
+        GenericRecord record = reader.read(null, decoder);
+        result.add(new RawMessage(Bytes.toBytes((ByteBuffer) record.get("id")),
+                                  Bytes.toBytes((ByteBuffer) record.get("payload"))));
+      }
+      count = decoder.arrayNext();
+    }
+    Assert.assertFalse(content.isReadable());
+    return result;
+  }
+
+  /**
+   * A {@link CloseableIterator} backed by an {@link Iterator}.
+   */
+  private static final class ListIterator implements CloseableIterator<RawMessage> {
+
+    private final Iterator<RawMessage> iterator;
+
+    private ListIterator(Iterator<RawMessage> iterator) {
+      this.iterator = iterator;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return iterator.hasNext();
+    }
+
+    @Override
+    public RawMessage next() {
+      return iterator.next();
+    }
+
+    @Override
+    public void close() {
+      // no-op
+    }
+  }
+}
@@ -65,6 +65,8 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -465,6 +467,57 @@ public class MessagingHttpServiceTest {
     client.deleteTopic(topicId);
   }
 
+  @Test
+  public void testLongPollFetch() throws Exception {
+    TopicId topicId = new NamespaceId("ns1").topic("testLongPollFetch");
+    client.createTopic(new TopicMetadata(topicId));
+
+    // Fetch on an empty topic should wait until the timeout
+    long startTime = System.nanoTime();
+    try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId)
+      .setWaitTimeout(500, TimeUnit.MILLISECONDS).fetch()) {
+      Assert.assertFalse(iterator.hasNext());
+    }
+    Assert.assertTrue(System.nanoTime() - startTime >= TimeUnit.MILLISECONDS.toNanos(500));
+
+    // Publish a message while the fetch is waiting. The fetch should return it without waiting for the timeout.
+    // The publish completion holds the times right before and after the publish call.
+    CompletableFuture<long[]> publishCompletion = CompletableFuture.supplyAsync(() -> {
+      try {
+        TimeUnit.MILLISECONDS.sleep(500);
+        long publishStartTime = System.nanoTime();
+        client.publish(StoreRequestBuilder.of(topicId).addPayload("m1").build());
+        return new long[] { publishStartTime, System.nanoTime() };
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+
+    List<RawMessage> messages = new ArrayList<>();
+    try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId)
+      .setWaitTimeout(1, TimeUnit.MINUTES).fetch()) {
+      Iterators.addAll(messages, iterator);
+    }
+    long fetchEndTime = System.nanoTime();
+    long[] publishTimes = publishCompletion.get(10, TimeUnit.SECONDS);
+
+    // The fetch should be blocked until the publish, and return shortly after it
+    Assert.assertTrue(fetchEndTime >= publishTimes[0]);
+    Assert.assertTrue(fetchEndTime - publishTimes[1] < TimeUnit.SECONDS.toNanos(1));
+
+    Assert.assertEquals(1, messages.size());
+    Assert.assertEquals("m1", Bytes.toString(messages.get(0).getPayload()));
+
+    // Fetch after the last message should return nothing after waiting
+    try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId)
+      .setStartMessage(messages.get(0).getId(), false)
+      .setWaitTimeout(200, TimeUnit.MILLISECONDS).fetch()) {
+      Assert.assertFalse(iterator.hasNext());
+    }
+
+    client.deleteTopic(topicId);
+  }
+
   @Test
   public void testPayloadTable() throws Exception {
     // This test is to verify storing transaction messages to the payload table
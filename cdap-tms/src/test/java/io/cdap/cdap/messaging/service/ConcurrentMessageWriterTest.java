@@ -22,6 +22,7 @@ import com.google.common.collect.ListMultimap;
 import com.google.common.util.concurrent.Uninterruptibles;
 import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.metrics.MetricsCollector;
+import io.cdap.cdap.api.metrics.NoopMetricsContext;
 import io.cdap.cdap.common.utils.TimeProvider;
 import io.cdap.cdap.messaging.StoreRequest;
 import io.cdap.cdap.messaging.TopicMetadata;
@@ -38,13 +39,17 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
@@ -268,12 +273,111 @@ public class ConcurrentMessageWriterTest {
     }
   }
 
+  @Test
+  public void testGroupCommit() throws Exception {
+    testGroupCommit(true);
+    testGroupCommit(false);
+  }
+
+  private void testGroupCommit(boolean multiTopicWrite) throws Exception {
+    int topicCount = 10;
+    int threadCount = 20;
+    int requestPerThread = 50;
+
+    List<TopicMetadata> topics = new ArrayList<>();
+    for (int i = 0; i < topicCount; i++) {
+      topics.add(new TopicMetadata(new NamespaceId("ns" + (i % 2)).topic("t" + i), new HashMap<>(), 1));
+    }
+    TestStoreRequestWriter testWriter = new TestStoreRequestWriter(new TimeProvider.IncrementalTimeProvider());
+    ConcurrentMessageWriter writer = new ConcurrentMessageWriter(testWriter, new NoopMetricsContext(),
+                                                                 TimeUnit.MILLISECONDS.toNanos(1), multiTopicWrite);
+
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    CyclicBarrier barrier = new CyclicBarrier(threadCount);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < threadCount; i++) {
+      int threadId = i;
+      futures.add(executor.submit(() -> {
+        barrier.await();
+        for (int j = 0; j < requestPerThread; j++) {
+          TopicMetadata metadata = topics.get((threadId + j) % topicCount);
+          writer.persist(new TestStoreRequest(metadata.getTopicId(), Arrays.asList(threadId + ":" + j)), metadata);
+        }
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(1, TimeUnit.MINUTES);
+    }
+    executor.shutdown();
+    writer.close();
+
+    // All messages should be written, with message ids sorted within each topic
+    int total = 0;
+    for (TopicMetadata metadata : topics) {
+      RawMessage lastMessage = null;
+      for (RawMessage message : testWriter.getMessages().get(metadata.getTopicId())) {
+        if (lastMessage != null) {
+          Assert.assertTrue(Bytes.compareTo(lastMessage.getId(), message.getId()) < 0);
+        }
+        lastMessage = message;
+        total++;
+      }
+    }
+    Assert.assertEquals(threadCount * requestPerThread, total);
+
+    // Requests of multiple topics should be committed together. Without multi topic write,
+    // each call to the StoreRequestWriter should only contain one topic.
+    Assert.assertTrue(testWriter.getWriteTopics().size() < threadCount * requestPerThread);
+    int maxTopics = testWriter.getWriteTopics().stream().mapToInt(Set::size).max().orElse(0);
+    if (multiTopicWrite) {
+      Assert.assertTrue(maxTopics > 1);
+    } else {
+      Assert.assertEquals(1, maxTopics);
+    }
+  }
+
+  @Test
+  public void testGroupCommitWait() throws Exception {
+    TopicMetadata metadata = new TopicMetadata(NamespaceId.DEFAULT.topic("t"), new HashMap<>(), 1);
+    TestStoreRequestWriter testWriter = new TestStoreRequestWriter(new TimeProvider.IncrementalTimeProvider(), 2000);
+    ConcurrentMessageWriter writer = new ConcurrentMessageWriter(testWriter, new NoopMetricsContext(), 0L, true);
+
+    // The first thread becomes the writer and blocks in the slow write
+    FutureTask<?> first = new FutureTask<>(
+      () -> writer.persist(new TestStoreRequest(metadata.getTopicId(), Arrays.asList("1")), metadata));
+    Thread firstThread = new Thread(first);
+    firstThread.start();
+    Stopwatch stopwatch = new Stopwatch().start();
+    while (firstThread.getState() != Thread.State.TIMED_WAITING && stopwatch.elapsedTime(TimeUnit.SECONDS) < 1) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    Assert.assertEquals(Thread.State.TIMED_WAITING, firstThread.getState());
+
+    // The second thread should wait for the writer instead of spinning
+    FutureTask<?> second = new FutureTask<>(
+      () -> writer.persist(new TestStoreRequest(metadata.getTopicId(), Arrays.asList("2")), metadata));
+    Thread secondThread = new Thread(second);
+    secondThread.start();
+    stopwatch.reset().start();
+    while (secondThread.getState() != Thread.State.WAITING && stopwatch.elapsedTime(TimeUnit.SECONDS) < 1) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    Assert.assertEquals(Thread.State.WAITING, secondThread.getState());
+
+    first.get(10, TimeUnit.SECONDS);
+    second.get(10, TimeUnit.SECONDS);
+    writer.close();
+    Assert.assertEquals(2, testWriter.getMessages().get(metadata.getTopicId()).size());
+  }
+
   /**
    * A {@link StoreRequestWriter} that turns all payloads to {@link RawMessage} and stores it in a List.
    */
   private static final class TestStoreRequestWriter extends StoreRequestWriter<TestEntry> {
 
     private final ListMultimap<TopicId, RawMessage> messages = ArrayListMultimap.create();
+    private final List<Set<TopicId>> writeTopics = new ArrayList<>();
     private long writeDelayMillis;
 
     TestStoreRequestWriter(TimeProvider timeProvider) {
@@ -297,8 +401,10 @@ public class ConcurrentMessageWriterTest {
 
     @Override
     protected void doWrite(Iterator<TestEntry> entries) throws IOException {
+      Set<TopicId> topics = new HashSet<>();
       while (entries.hasNext()) {
         TestEntry entry = entries.next();
+        topics.add(entry.getTopicId());
         byte[] rawId = new byte[MessageId.RAW_ID_SIZE];
         MessageId.putRawId(entry.getWriteTimestamp(), entry.getSequenceId(), 0L, (short) 0, rawId, 0);
         byte[] payload = entry.getPayload();
@@ -306,6 +412,8 @@ public class ConcurrentMessageWriterTest {
                      new RawMessage(rawId, payload == null ? null : Arrays.copyOf(payload, payload.length)));
       }
 
+      writeTopics.add(topics);
+
       if (writeDelayMillis > 0) {
         Uninterruptibles.sleepUninterruptibly(writeDelayMillis, TimeUnit.MILLISECONDS);
       }
@@ -315,6 +423,13 @@ public class ConcurrentMessageWriterTest {
       return messages;
     }
 
+    /**
+     * Returns the set of topics written by each call to {@link #doWrite(Iterator)}.
+     */
+    List<Set<TopicId>> getWriteTopics() {
+      return writeTopics;
+    }
+
     @Override
     public void close() throws IOException {
       // No-op
@@ -41,6 +41,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -49,6 +50,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
  * Base class for Message Table tests.
@@ -246,6 +248,109 @@ public abstract class MessageTableTest {
     }
   }
 
+  @Test
+  public void testPayloadBlocks() throws Exception {
+    TopicId topicId = NamespaceId.DEFAULT.topic("testPayloadBlocks");
+    TopicMetadata metadata = new TopicMetadata(topicId, ImmutableMap.<String, String>builder()
+      .putAll(DEFAULT_PROPERTY)
+      .put(TopicMetadata.PAYLOAD_BLOCK_SIZE_KEY, "4")
+      .build());
+
+    try (MessageTable table = getMessageTable(metadata);
+         MetadataTable metadataTable = getMetadataTable()) {
+      metadataTable.createTopic(metadata);
+
+      // Write 20 messages across multiple publish timestamps, with the message at index 10 being transactional,
+      // which breaks the blocks
+      List<MessageTable.Entry> entries = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        entries.add(new TestMessageEntry(topicId, GENERATION, 1L + i / 5, i % 5, i == 10 ? 5L : null,
+                                         Bytes.toBytes("message " + i), 4));
+      }
+      table.store(entries.iterator());
+
+      // Fetch everything by time
+      try (CloseableIterator<MessageTable.Entry> iterator = table.fetch(metadata, 0L, Integer.MAX_VALUE, null)) {
+        assertEntries(entries, 0, 20, iterator);
+      }
+
+      // Fetch with limit
+      try (CloseableIterator<MessageTable.Entry> iterator = table.fetch(metadata, 0L, 6, null)) {
+        assertEntries(entries, 0, 6, iterator);
+      }
+
+      // Fetch by a time that is in the middle of a block
+      try (CloseableIterator<MessageTable.Entry> iterator = table.fetch(metadata, 2L, Integer.MAX_VALUE, null)) {
+        assertEntries(entries, 5, 20, iterator);
+      }
+
+      // Fetch from a message id that is in the middle of a block, both inclusive and exclusive
+      byte[] messageId = new byte[MessageId.RAW_ID_SIZE];
+      MessageId.putRawId(2L, (short) 1, 0L, (short) 0, messageId, 0);
+      try (CloseableIterator<MessageTable.Entry> iterator = table.fetch(metadata, new MessageId(messageId),
+                                                                        true, Integer.MAX_VALUE, null)) {
+        assertEntries(entries, 6, 20, iterator);
+      }
+      try (CloseableIterator<MessageTable.Entry> iterator = table.fetch(metadata, new MessageId(messageId),
+                                                                        false, 3, null)) {
+        assertEntries(entries, 7, 10, iterator);
+      }
+
+      // Fetch transactionally with the transactional message being invalid
+      Transaction tx = new Transaction(200, 200, new long[] { 5L }, new long[0], -1);
+      try (CloseableIterator<MessageTable.Entry> iterator = table.fetch(metadata, 0L, Integer.MAX_VALUE, tx)) {
+        List<MessageTable.Entry> expected = new ArrayList<>(entries);
+        expected.remove(10);
+        assertEntries(expected, 0, 19, iterator);
+      }
+    }
+  }
+
+  @Test
+  public void testPayloadBlocksReusedEntry() throws Exception {
+    TopicId topicId = NamespaceId.DEFAULT.topic("testPayloadBlocksReusedEntry");
+    TopicMetadata metadata = new TopicMetadata(topicId, ImmutableMap.<String, String>builder()
+      .putAll(DEFAULT_PROPERTY)
+      .put(TopicMetadata.PAYLOAD_BLOCK_SIZE_KEY, "4")
+      .build());
+
+    try (MessageTable table = getMessageTable(metadata);
+         MetadataTable metadataTable = getMetadataTable()) {
+      metadataTable.createTopic(metadata);
+
+      // Store batches of different sizes through an iterator that reuses the same entry instance,
+      // the same as the StoreRequestWriter does, such that entries are changed by hasNext()
+      List<MessageTable.Entry> entries = new ArrayList<>();
+      for (int count : new int[] { 1, 2, 3, 4, 5, 9 }) {
+        List<MessageTable.Entry> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+          batch.add(new TestMessageEntry(topicId, GENERATION, 1L + entries.size(), 0,
+                                         null, Bytes.toBytes("message " + entries.size()), 4));
+          entries.add(batch.get(i));
+        }
+        table.store(new ReusedEntryIterator(batch.iterator()));
+      }
+
+      try (CloseableIterator<MessageTable.Entry> iterator = table.fetch(metadata, 0L, Integer.MAX_VALUE, null)) {
+        assertEntries(entries, 0, entries.size(), iterator);
+      }
+    }
+  }
+
+  private void assertEntries(List<MessageTable.Entry> expected, int from, int to,
+                             CloseableIterator<MessageTable.Entry> iterator) {
+    for (int i = from; i < to; i++) {
+      Assert.assertTrue(iterator.hasNext());
+      MessageTable.Entry expectedEntry = expected.get(i);
+      MessageTable.Entry entry = iterator.next();
+      Assert.assertEquals(expectedEntry.getPublishTimestamp(), entry.getPublishTimestamp());
+      Assert.assertEquals(expectedEntry.getSequenceId(), entry.getSequenceId());
+      Assert.assertEquals(expectedEntry.isTransactional(), entry.isTransactional());
+      Assert.assertArrayEquals(expectedEntry.getPayload(), entry.getPayload());
+    }
+    Assert.assertFalse(iterator.hasNext());
+  }
+
   @Test
   public void testConcurrentWrites() throws Exception {
     // Create two threads, each of them writes to a different topic with two events in one store call.
@@ -349,6 +454,84 @@ public abstract class MessageTableTest {
     return timestamp;
   }
 
+  /**
+   * An iterator that returns the same {@link MessageTable.Entry} instance, updated to the next entry of
+   * the given iterator when {@link #hasNext()} is called.
+   */
+  private static final class ReusedEntryIterator extends AbstractIterator<MessageTable.Entry> {
+
+    private final Iterator<MessageTable.Entry> entries;
+    private final ReusedEntry entry;
+
+    private ReusedEntryIterator(Iterator<MessageTable.Entry> entries) {
+      this.entries = entries;
+      this.entry = new ReusedEntry();
+    }
+
+    @Override
+    protected MessageTable.Entry computeNext() {
+      if (!entries.hasNext()) {
+        return endOfData();
+      }
+      entry.current = entries.next();
+      return entry;
+    }
+  }
+
+  /**
+   * A {@link MessageTable.Entry} that delegates to a changeable entry.
+   */
+  private static final class ReusedEntry implements MessageTable.Entry {
+
+    private MessageTable.Entry current;
+
+    @Override
+    public TopicId getTopicId() {
+      return current.getTopicId();
+    }
+
+    @Override
+    public int getGeneration() {
+      return current.getGeneration();
+    }
+
+    @Override
+    public boolean isPayloadReference() {
+      return current.isPayloadReference();
+    }
+
+    @Override
+    public boolean isTransactional() {
+      return current.isTransactional();
+    }
+
+    @Override
+    public long getTransactionWritePointer() {
+      return current.getTransactionWritePointer();
+    }
+
+    @Nullable
+    @Override
+    public byte[] getPayload() {
+      return current.getPayload();
+    }
+
+    @Override
+    public long getPublishTimestamp() {
+      return current.getPublishTimestamp();
+    }
+
+    @Override
+    public short getSequenceId() {
+      return current.getSequenceId();
+    }
+
+    @Override
+    public int getPayloadBlockSize() {
+      return current.getPayloadBlockSize();
+    }
+  }
+
   private static class TestRollbackDetail implements RollbackDetail {
 
     private final long txWritePtr;
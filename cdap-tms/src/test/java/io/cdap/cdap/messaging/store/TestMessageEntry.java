@@ -28,15 +28,22 @@ public class TestMessageEntry implements MessageTable.Entry {
   private final byte[] payload;
   private final long publishTimestamp;
   private final short sequenceId;
+  private final int payloadBlockSize;
 
   public TestMessageEntry(TopicId topicId, int generation, long publishTimestamp, int sequenceId,
                    @Nullable Long transactionWritePointer, @Nullable byte[] payload) {
+    this(topicId, generation, publishTimestamp, sequenceId, transactionWritePointer, payload, 1);
+  }
+
+  public TestMessageEntry(TopicId topicId, int generation, long publishTimestamp, int sequenceId,
+                          @Nullable Long transactionWritePointer, @Nullable byte[] payload, int payloadBlockSize) {
     this.topicId = topicId;
     this.generation = generation;
     this.transactionWritePointer = transactionWritePointer;
     this.publishTimestamp = publishTimestamp;
     this.sequenceId = (short) sequenceId;
     this.payload = payload;
+    this.payloadBlockSize = payloadBlockSize;
   }
 
   @Override
@@ -79,4 +86,9 @@ public class TestMessageEntry implements MessageTable.Entry {
   public short getSequenceId() {
     return sequenceId;
   }
+
+  @Override
+  public int getPayloadBlockSize() {
+    return payloadBlockSize;
+  }
 }
@@ -27,6 +27,9 @@ import io.cdap.cdap.messaging.store.MetadataTable;
 import io.cdap.cdap.messaging.store.TableFactory;
 import io.cdap.cdap.messaging.store.TestMessageEntry;
 import io.cdap.cdap.proto.id.TopicId;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.impl.Iq80DBFactory;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
@@ -151,4 +154,99 @@ public class LevelDBMessageTableTest extends MessageTableTest {
       Assert.assertEquals(expected, actual);
     }
   }
+
+  @Test
+  public void testReadAhead() throws Exception {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.MessagingSystem.LOCAL_DATA_DIR, tmpFolder.newFolder().getAbsolutePath());
+    cConf.set(Constants.MessagingSystem.LOCAL_DATA_PARTITION_SECONDS, Integer.toString(1));
+    cConf.setInt(Constants.MessagingSystem.LOCAL_DATA_READ_AHEAD_PARTITIONS, 3);
+    cConf.setInt(Constants.MessagingSystem.LOCAL_DATA_READ_AHEAD_ROWS, 2);
+    cConf.setInt(Constants.MessagingSystem.LOCAL_DATA_READ_AHEAD_THREADS, 2);
+    LevelDBTableFactory tableFactory = new LevelDBTableFactory(cConf);
+
+    TopicId topicId = new TopicId("default", "readahead");
+    int generation = 1;
+    TopicMetadata topicMetadata =
+      new TopicMetadata(topicId, Collections.singletonMap(TopicMetadata.GENERATION_KEY, String.valueOf(generation)));
+
+    try (MessageTable table = tableFactory.createMessageTable(topicMetadata)) {
+      // Write 20 partitions, with a different number of messages in each of them
+      List<MessageTable.Entry> writes = new ArrayList<>();
+      List<Long> expected = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        for (int j = 0; j < i % 5; j++) {
+          long publishTime = i * 1000 + j;
+          expected.add(publishTime);
+          writes.add(new TestMessageEntry(topicId, generation, publishTime, 0, null, new byte[]{(byte) i}));
+        }
+      }
+      table.store(writes.iterator());
+
+      byte[] messageId = new byte[MessageId.RAW_ID_SIZE];
+      MessageId.putRawId(0L, (short) 0, 0L, (short) 0, messageId, 0);
+
+      // Messages should be fetched in order across partitions
+      List<Long> actual = new ArrayList<>();
+      try (CloseableIterator<MessageTable.Entry> iter =
+             table.fetch(topicMetadata, new MessageId(messageId), true, 1000, null)) {
+        while (iter.hasNext()) {
+          actual.add(iter.next().getPublishTimestamp());
+        }
+      }
+      Assert.assertEquals(expected, actual);
+
+      // Stop the scan in the middle, while partitions are being read ahead
+      actual.clear();
+      try (CloseableIterator<MessageTable.Entry> iter =
+             table.fetch(topicMetadata, new MessageId(messageId), true, 7, null)) {
+        while (iter.hasNext()) {
+          actual.add(iter.next().getPublishTimestamp());
+        }
+      }
+      Assert.assertEquals(expected.subList(0, 7), actual);
+    } finally {
+      tableFactory.close();
+    }
+  }
+
+  @Test
+  public void testReadAheadPartitionCount() throws Exception {
+    File baseDir = tmpFolder.newFolder();
+    List<LevelDBPartition> partitions = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      File file = new File(baseDir, "partition" + i);
+      DB db = Iq80DBFactory.factory.open(file, new Options().createIfMissing(true));
+      db.put(new byte[] { (byte) i }, new byte[] { (byte) i });
+      partitions.add(new LevelDBPartition(file, i, i + 1, () -> db));
+    }
+
+    // Only record the read ahead tasks without running them, hence partitions are read when they are consumed
+    List<Runnable> readAheads = new ArrayList<>();
+    try (CloseableIterator<byte[]> iterator = new PartitionedDBScanIterator<>(partitions.iterator(), null, null,
+                                                                               (key, value) -> value,
+                                                                               readAheads::add, 2, 10)) {
+      // No read ahead while consuming the first partition
+      Assert.assertArrayEquals(new byte[] { 0 }, iterator.next());
+      Assert.assertTrue(readAheads.isEmpty());
+
+      // Moving to the next partition reads ahead the two partitions after it
+      Assert.assertArrayEquals(new byte[] { 1 }, iterator.next());
+      Assert.assertEquals(2, readAheads.size());
+      Assert.assertArrayEquals(new byte[] { 2 }, iterator.next());
+      Assert.assertEquals(3, readAheads.size());
+      Assert.assertArrayEquals(new byte[] { 3 }, iterator.next());
+      Assert.assertEquals(4, readAheads.size());
+
+      // No more partition to read ahead
+      Assert.assertArrayEquals(new byte[] { 4 }, iterator.next());
+      Assert.assertArrayEquals(new byte[] { 5 }, iterator.next());
+      Assert.assertFalse(iterator.hasNext());
+      Assert.assertEquals(4, readAheads.size());
+    } finally {
+      for (LevelDBPartition partition : partitions) {
+        partition.close();
+      }
+    }
+  }
 }
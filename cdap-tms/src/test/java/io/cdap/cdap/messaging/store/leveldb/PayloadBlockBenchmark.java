@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.store.leveldb;
+
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.utils.DirUtils;
+import io.cdap.cdap.messaging.TopicMetadata;
+import io.cdap.cdap.messaging.store.MessageTable;
+import io.cdap.cdap.messaging.store.MetadataTable;
+import io.cdap.cdap.messaging.store.TestMessageEntry;
+import io.cdap.cdap.proto.id.NamespaceId;
+import io.cdap.cdap.proto.id.TopicId;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A benchmark that compares the write and read throughput, as well as the disk usage, of storing messages
+ * individually and storing them as compressed payload blocks in the {@link LevelDBMessageTable}.
+ * The payloads are metrics like JSON records, which are highly repetitive. It is not run as part of the unit tests.
+ *
+ * Usage: {@code PayloadBlockBenchmark [messages] [blockSize]}
+ */
+public final class PayloadBlockBenchmark {
+
+  private static final int BATCH_SIZE = 100;
+
+  public static void main(String[] args) throws Exception {
+    int messages = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    int blockSize = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+
+    // Run twice to have the first round as warm up
+    for (int i = 0; i < 2; i++) {
+      run(messages, 1);
+      run(messages, blockSize);
+    }
+  }
+
+  private static void run(int messages, int blockSize) throws Exception {
+    File dir = Files.createTempDirectory("tms").toFile();
+    try {
+      CConfiguration cConf = CConfiguration.create();
+      cConf.set(Constants.CFG_LOCAL_DATA_DIR, dir.getAbsolutePath());
+      cConf.set(Constants.MessagingSystem.LOCAL_DATA_DIR, dir.getAbsolutePath());
+      cConf.setBoolean(Constants.MessagingSystem.LOCAL_DATA_SYNC, false);
+      LevelDBTableFactory tableFactory = new LevelDBTableFactory(cConf);
+      try {
+        TopicId topicId = NamespaceId.SYSTEM.topic("metrics");
+        TopicMetadata metadata = new TopicMetadata(topicId, ImmutableMap.of(
+          TopicMetadata.TTL_KEY, Long.toString(TimeUnit.DAYS.toSeconds(1)),
+          TopicMetadata.GENERATION_KEY, "1",
+          TopicMetadata.PAYLOAD_BLOCK_SIZE_KEY, Integer.toString(blockSize)));
+        try (MetadataTable metadataTable = tableFactory.createMetadataTable()) {
+          metadataTable.createTopic(metadata);
+        }
+
+        long writeNanos;
+        long readNanos;
+        int read = 0;
+        try (MessageTable table = tableFactory.createMessageTable(metadata)) {
+          long startTime = System.currentTimeMillis();
+          long writeStart = System.nanoTime();
+          List<MessageTable.Entry> entries = new ArrayList<>(BATCH_SIZE);
+          for (int i = 0; i < messages; i += BATCH_SIZE) {
+            entries.clear();
+            for (int j = 0; j < BATCH_SIZE && i + j < messages; j++) {
+              entries.add(new TestMessageEntry(topicId, 1, startTime + i / BATCH_SIZE, j, null,
+                                               createPayload(i + j), blockSize));
+            }
+            table.store(entries.iterator());
+          }
+          writeNanos = System.nanoTime() - writeStart;
+
+          long readStart = System.nanoTime();
+          try (CloseableIterator<MessageTable.Entry> iterator = table.fetch(metadata, 0L, Integer.MAX_VALUE, null)) {
+            while (iterator.hasNext()) {
+              iterator.next();
+              read++;
+            }
+          }
+          readNanos = System.nanoTime() - readStart;
+        }
+
+        System.out.printf("blockSize=%-4d messages=%,d  writes/s=%,d  reads/s=%,d  disk bytes=%,d%n",
+                          blockSize, read,
+                          messages * TimeUnit.SECONDS.toNanos(1) / writeNanos,
+                          read * TimeUnit.SECONDS.toNanos(1) / readNanos,
+                          getSize(dir.toPath()));
+      } finally {
+        tableFactory.close();
+      }
+    } finally {
+      DirUtils.deleteDirectoryContents(dir);
+    }
+  }
+
+  private static byte[] createPayload(int i) {
+    return Bytes.toBytes("{\"context\":{\"namespace\":\"default\",\"app\":\"PurchaseHistory\",\"program\":\"worker\","
+                           + "\"run\":\"" + (i / 1000) + "\",\"instance\":\"" + (i % 4) + "\"},"
+                           + "\"timestamp\":" + (1650000000L + i) + ",\"metrics\":[{\"name\":\"user.records.out\","
+                           + "\"type\":\"COUNTER\",\"value\":" + (i % 97) + "}]}");
+  }
+
+  private static long getSize(Path dir) throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      return files.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+    }
+  }
+
+  private PayloadBlockBenchmark() {
+    // no-op
+  }
+}
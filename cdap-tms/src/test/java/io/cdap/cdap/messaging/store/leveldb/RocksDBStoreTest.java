@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.store.leveldb;
+
+import io.cdap.cdap.api.common.Bytes;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.Options;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Tests for {@link RocksDBStore}.
+ */
+public class RocksDBStoreTest {
+
+  @ClassRule
+  public static TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private static final Options DB_OPTIONS = new Options()
+    .errorIfExists(false)
+    .createIfMissing(true);
+
+  @Test
+  public void testIterator() throws IOException {
+    try (RocksDBFactory factory = new RocksDBFactory(1024 * 1024);
+         RocksDBStore store = factory.open(tmpFolder.newFolder(), DB_OPTIONS)) {
+      for (int i = 1; i <= 3; i++) {
+        store.put(Bytes.toBytes(i), Bytes.toBytes("value" + i));
+      }
+
+      try (DBIterator iterator = store.iterator()) {
+        // At the start, there is no previous entry
+        Assert.assertFalse(iterator.hasPrev());
+        try {
+          iterator.peekPrev();
+          Assert.fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException e) {
+          // expected
+        }
+        assertEntry(1, iterator.peekNext());
+
+        // Forward to the end, then backward to the start
+        for (int i = 1; i <= 3; i++) {
+          assertEntry(i, iterator.next());
+        }
+        Assert.assertFalse(iterator.hasNext());
+        Assert.assertTrue(iterator.hasPrev());
+        assertEntry(3, iterator.peekPrev());
+        for (int i = 3; i >= 1; i--) {
+          assertEntry(i, iterator.prev());
+        }
+        Assert.assertFalse(iterator.hasPrev());
+        assertEntry(1, iterator.next());
+
+        // Mixing the directions returns the same entry again
+        assertEntry(2, iterator.next());
+        assertEntry(2, iterator.prev());
+        assertEntry(2, iterator.next());
+
+        iterator.seekToLast();
+        assertEntry(2, iterator.peekPrev());
+        assertEntry(3, iterator.next());
+        Assert.assertFalse(iterator.hasNext());
+
+        iterator.seek(Bytes.toBytes(2));
+        assertEntry(1, iterator.prev());
+        iterator.seekToFirst();
+        assertEntry(1, iterator.peekNext());
+      }
+    }
+  }
+
+  private void assertEntry(int expected, Map.Entry<byte[], byte[]> entry) {
+    Assert.assertEquals(expected, Bytes.toInt(entry.getKey()));
+    Assert.assertEquals("value" + expected, Bytes.toString(entry.getValue()));
+  }
+}
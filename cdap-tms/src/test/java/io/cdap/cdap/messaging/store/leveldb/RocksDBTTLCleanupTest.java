@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.store.leveldb;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.messaging.TopicMetadata;
+import io.cdap.cdap.messaging.data.MessageId;
+import io.cdap.cdap.messaging.store.DataCleanupTest;
+import io.cdap.cdap.messaging.store.MessageTable;
+import io.cdap.cdap.messaging.store.MetadataTable;
+import io.cdap.cdap.messaging.store.PayloadTable;
+import io.cdap.cdap.messaging.store.TableFactory;
+import io.cdap.cdap.proto.id.NamespaceId;
+import io.cdap.cdap.proto.id.TopicId;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.WriteOptions;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tests for TTL Cleanup logic in LevelDB tables with RocksDB as the storage engine.
+ */
+public class RocksDBTTLCleanupTest extends DataCleanupTest {
+  private static final int CLEANUP_PERIOD_IN_SECS = 1;
+  private static final int GENERATION = 1;
+
+  @ClassRule
+  public static TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private static TableFactory tableFactory;
+
+  @BeforeClass
+  public static void init() throws IOException {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.MessagingSystem.LOCAL_DATA_CLEANUP_FREQUENCY, Integer.toString(CLEANUP_PERIOD_IN_SECS));
+    cConf.set(Constants.CFG_LOCAL_DATA_DIR, tmpFolder.newFolder().getAbsolutePath());
+    cConf.set(Constants.MessagingSystem.LOCAL_DATA_PARTITION_SECONDS, Integer.toString(1));
+    cConf.setEnum(Constants.CFG_DATA_LEVELDB_ENGINE, Constants.LocalStorageEngine.ROCKSDB);
+    tableFactory = new LevelDBTableFactory(cConf);
+  }
+
+  @Test
+  public void testPruneWithConcurrentPublish() throws Exception {
+    TopicId topicId = NamespaceId.DEFAULT.topic("pruneConcurrent");
+    TopicMetadata topic = new TopicMetadata(topicId, TopicMetadata.TTL_KEY, "1",
+                                            TopicMetadata.GENERATION_KEY, Integer.toString(GENERATION));
+    WriteOptions writeOptions = new WriteOptions();
+
+    try (RocksDBFactory factory = new RocksDBFactory(1024 * 1024);
+         RocksDBStore store = factory.open(tmpFolder.newFolder(), new Options().createIfMissing(true))) {
+      // A DB that publishes a payload after the prune scan, right before the prune writes its deletes
+      AtomicBoolean publishOnWrite = new AtomicBoolean();
+      DB db = (DB) Proxy.newProxyInstance(DB.class.getClassLoader(), new Class<?>[] { DB.class },
+                                          (proxy, method, args) -> {
+        if (method.getName().equals("write") && publishOnWrite.compareAndSet(true, false)) {
+          new LevelDBPayloadTable(store, topic, writeOptions).store(Collections.singletonList(
+            new TestPayloadEntry(topicId, GENERATION, "published", 2L, (short) 0)).iterator());
+        }
+        try {
+          return method.invoke(store, args);
+        } catch (InvocationTargetException e) {
+          throw e.getCause();
+        }
+      });
+
+      LevelDBPayloadTable payloadTable = new LevelDBPayloadTable(db, topic, writeOptions);
+      List<PayloadTable.Entry> entries = new ArrayList<>();
+      for (short i = 0; i < 10; i++) {
+        entries.add(new TestPayloadEntry(topicId, GENERATION, "expired" + i, 1L, i));
+      }
+      payloadTable.store(entries.iterator());
+
+      publishOnWrite.set(true);
+      payloadTable.pruneMessages(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10));
+      Assert.assertFalse(publishOnWrite.get());
+
+      // The expired payloads are removed, while the one published during the prune is kept
+      byte[] messageId = new byte[MessageId.RAW_ID_SIZE];
+      MessageId.putRawId(0L, (short) 0, 0L, (short) 0, messageId, 0);
+      try (CloseableIterator<PayloadTable.Entry> iterator = payloadTable.fetch(topic, 1L, new MessageId(messageId),
+                                                                               true, Integer.MAX_VALUE)) {
+        Assert.assertFalse(iterator.hasNext());
+      }
+      try (CloseableIterator<PayloadTable.Entry> iterator = payloadTable.fetch(topic, 2L, new MessageId(messageId),
+                                                                               true, Integer.MAX_VALUE)) {
+        Assert.assertTrue(iterator.hasNext());
+        Assert.assertEquals("published", Bytes.toString(iterator.next().getPayload()));
+        Assert.assertFalse(iterator.hasNext());
+      }
+    }
+  }
+
+  @Override
+  protected void forceFlushAndCompact(Table table) throws Exception {
+    // since we have a periodic thread doing the clean up, we don't/can't do much here.
+    TimeUnit.SECONDS.sleep(CLEANUP_PERIOD_IN_SECS);
+  }
+
+  @Override
+  protected MetadataTable getMetadataTable() throws Exception {
+    return tableFactory.createMetadataTable();
+  }
+
+  @Override
+  protected PayloadTable getPayloadTable(TopicMetadata topicMetadata) throws Exception {
+    return tableFactory.createPayloadTable(topicMetadata);
+  }
+
+  @Override
+  protected MessageTable getMessageTable(TopicMetadata topicMetadata) throws Exception {
+    return tableFactory.createMessageTable(topicMetadata);
+  }
+}
@@ -42,6 +42,22 @@ public interface MetricStore {
    */
   void add(Collection<? extends MetricValues> metricValues);
 
+  /**
+   * Adds {@link MetricValues}s to the store, allowing them to be buffered in memory until {@link #flush()} is called.
+   * By default it is the same as {@link #add(Collection)}.
+   * @param metricValues metric values to add.
+   */
+  default void addBuffered(Collection<? extends MetricValues> metricValues) {
+    add(metricValues);
+  }
+
+  /**
+   * Writes all metric values buffered by {@link #addBuffered(Collection)} to the store.
+   */
+  default void flush() {
+    // no-op
+  }
+
   /**
    * Queries metrics data.
    * @param query query to execute
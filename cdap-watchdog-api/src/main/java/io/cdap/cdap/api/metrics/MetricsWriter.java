@@ -32,6 +32,14 @@ public interface MetricsWriter extends Closeable {
    */
   void write(Collection<MetricValues> metricValues);
 
+  /**
+   * Method to make sure all metrics given to previous {@link #write(Collection)} calls are written to the target
+   * endpoint. It is only needed by writers that buffer metrics.
+   */
+  default void flush() {
+    // no-op
+  }
+
   /**
    * Init method to setup configurations for this MetricsWriter
    *
@@ -54,11 +54,15 @@ public class CDAPLogAppender extends AppenderBase<ILoggingEvent> implements Flus
                                                                      Constants.Logging.TAG_USER_SERVICE_ID,
                                                                      Constants.Logging.TAG_WORKER_ID,
                                                                      Constants.Logging.TAG_WORKFLOW_ID);
+  private static final int DEFAULT_INDEX_INTERVAL_BYTES = 1024 * 1024;
+
   private LogFileManager logFileManager;
 
   private String dirPermissions;
   private String filePermissions;
   private int syncIntervalBytes;
+  private int indexIntervalBytes = DEFAULT_INDEX_INTERVAL_BYTES;
+  private boolean termIndexEnabled;
   private long maxFileLifetimeMs;
   private long maxFileSizeInBytes;
   private ScheduledExecutorService scheduledExecutorService;
@@ -91,6 +95,22 @@ public class CDAPLogAppender extends AppenderBase<ILoggingEvent> implements Flus
     this.syncIntervalBytes = syncIntervalBytes;
   }
 
+  /**
+   * Sets the approximate number of bytes between entries of the time index written next to each log file.
+   * Setting it to {@code 0} disables the index. This is called by the logback framework.
+   */
+  public void setIndexIntervalBytes(int indexIntervalBytes) {
+    this.indexIntervalBytes = indexIntervalBytes;
+  }
+
+  /**
+   * Sets whether to write the full-text term index next to each log file, which also requires the time index.
+   * This is called by the logback framework.
+   */
+  public void setTermIndexEnabled(boolean termIndexEnabled) {
+    this.termIndexEnabled = termIndexEnabled;
+  }
+
   /**
    * Sets the maximum lifetime of a file. This is called by the logback framework.
    */
@@ -134,6 +154,7 @@ public class CDAPLogAppender extends AppenderBase<ILoggingEvent> implements Flus
     Preconditions.checkState(dirPermissions != null, "Property dirPermissions cannot be null");
     Preconditions.checkState(filePermissions != null, "Property filePermissions cannot be null");
     Preconditions.checkState(syncIntervalBytes > 0, "Property syncIntervalBytes must be > 0.");
+    Preconditions.checkState(indexIntervalBytes >= 0, "Property indexIntervalBytes must be >= 0.");
     Preconditions.checkState(maxFileLifetimeMs > 0, "Property maxFileLifetimeMs must be > 0");
     Preconditions.checkState(maxFileSizeInBytes > 0, "Property maxFileSizeInBytes must be > 0");
     Preconditions.checkState(fileRetentionDurationDays > 0, "Property fileRetentionDurationDays must be > 0");
@@ -143,7 +164,7 @@ public class CDAPLogAppender extends AppenderBase<ILoggingEvent> implements Flus
     if (context instanceof AppenderContext) {
       AppenderContext context = (AppenderContext) this.context;
       logFileManager = new LogFileManager(dirPermissions, filePermissions, maxFileLifetimeMs, maxFileSizeInBytes,
-                                          syncIntervalBytes,
+                                          syncIntervalBytes, indexIntervalBytes, termIndexEnabled,
                                           new FileMetaDataWriter(context.getTransactionRunner()),
                                           context.getLocationFactory());
       if (context.getInstanceId() == 0) {
@@ -49,6 +49,8 @@ final class LogFileManager implements Flushable, Syncable {
   private final String dirPermissions;
   private final String filePermissions;
   private final int syncIntervalBytes;
+  private final int indexIntervalBytes;
+  private final boolean termIndexEnabled;
   private final long maxLifetimeMillis;
   private final long maxFileSizeInBytes;
   private final Map<LogPathIdentifier, LogFileOutputStream> outputStreamMap;
@@ -56,13 +58,15 @@ final class LogFileManager implements Flushable, Syncable {
   private final FileMetaDataWriter fileMetaDataWriter;
 
   LogFileManager(String dirPermissions, String filePermissions,
-                 long maxFileLifetimeMs, long maxFileSizeInBytes, int syncIntervalBytes,
-                 FileMetaDataWriter fileMetaDataWriter, LocationFactory locationFactory) {
+                 long maxFileLifetimeMs, long maxFileSizeInBytes, int syncIntervalBytes, int indexIntervalBytes,
+                 boolean termIndexEnabled, FileMetaDataWriter fileMetaDataWriter, LocationFactory locationFactory) {
     this.dirPermissions = dirPermissions;
     this.filePermissions = filePermissions;
     this.maxLifetimeMillis = maxFileLifetimeMs;
     this.maxFileSizeInBytes = maxFileSizeInBytes;
     this.syncIntervalBytes = syncIntervalBytes;
+    this.indexIntervalBytes = indexIntervalBytes;
+    this.termIndexEnabled = termIndexEnabled;
     this.fileMetaDataWriter = fileMetaDataWriter;
     this.logsDirectoryLocation = locationFactory.create("logs");
     this.outputStreamMap = new HashMap<>();
@@ -92,7 +96,8 @@ final class LogFileManager implements Flushable, Syncable {
                                                  long timestamp) throws IOException {
     TimeStampLocation location = createLocation(identifier);
     LogFileOutputStream logFileOutputStream = new LogFileOutputStream(
-      location.getLocation(), filePermissions, syncIntervalBytes, location.getTimeStamp(), new Closeable() {
+      location.getLocation(), filePermissions, syncIntervalBytes, indexIntervalBytes, termIndexEnabled,
+      location.getTimeStamp(), new Closeable() {
       @Override
       public void close() throws IOException {
         outputStreamMap.remove(identifier);
@@ -18,10 +18,14 @@ package io.cdap.cdap.logging.appender.system;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import com.google.common.io.Closeables;
+import com.google.common.io.CountingOutputStream;
 import io.cdap.cdap.common.io.ByteBuffers;
+import io.cdap.cdap.common.io.Locations;
 import io.cdap.cdap.common.io.Syncable;
 import io.cdap.cdap.logging.serialize.LoggingEvent;
 import io.cdap.cdap.logging.serialize.LoggingEventSerializer;
+import io.cdap.cdap.logging.write.LogFileIndex;
+import io.cdap.cdap.logging.write.LogFileTermIndex;
 import org.apache.avro.Schema;
 import org.apache.avro.file.DataFileWriter;
 import org.apache.avro.generic.GenericDatumWriter;
@@ -35,41 +39,69 @@ import java.io.Flushable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import javax.annotation.Nullable;
 
 /**
  * Represents output stream for a log file.
  *
  * Since there is no way to check the state of the underlying file on an exception,
  * all methods of this class assume that the file state is bad on any exception and close the file.
+ *
+ * If an index interval is given, a {@link LogFileIndex} is written next to the file when it is closed.
+ * A sync marker is forced about every index interval bytes to start a new index segment.
+ * If the term index is also enabled, a {@link LogFileTermIndex} of the segments is written as well.
  */
 
 class LogFileOutputStream implements Closeable, Flushable, Syncable {
   private static final Logger LOG = LoggerFactory.getLogger(LogFileOutputStream.class);
+  // Bounds the memory used by the term index of a file
+  private static final int MAX_INDEX_TERMS = 200000;
 
   private final Location location;
   private final long createTime;
   private final Closeable closeable;
   private final LoggingEventSerializer serializer;
+  private final String filePermissions;
+  private final int indexIntervalBytes;
+  private final LogFileIndex.Builder indexBuilder;
+  @Nullable
+  private final LogFileTermIndex.Builder termIndexBuilder;
 
   private OutputStream outputStream;
+  private CountingOutputStream countingOutputStream;
   private DataFileWriter<GenericRecord> dataFileWriter;
   private long fileSize;
 
-  LogFileOutputStream(Location location, String filePermissions,
-                      int syncIntervalBytes, long createTime, Closeable closeable) throws IOException {
+  // Start position and timestamp range of the current index segment
+  private long segmentPosition;
+  private long segmentMinTimestamp;
+  private long segmentMaxTimestamp;
+
+  LogFileOutputStream(Location location, String filePermissions, int syncIntervalBytes,
+                      int indexIntervalBytes, boolean termIndexEnabled,
+                      long createTime, Closeable closeable) throws IOException {
     this.location = location;
     this.closeable = closeable;
     this.serializer = new LoggingEventSerializer();
+    this.filePermissions = filePermissions;
+    this.indexIntervalBytes = indexIntervalBytes;
+    this.indexBuilder = new LogFileIndex.Builder();
+    // The term index refers to the segments of the index, hence it requires the index
+    this.termIndexBuilder = termIndexEnabled && indexIntervalBytes > 0
+      ? new LogFileTermIndex.Builder(MAX_INDEX_TERMS) : null;
 
     Schema schema = serializer.getAvroSchema();
     try {
       this.outputStream =
         filePermissions.isEmpty() ? location.getOutputStream() : location.getOutputStream(filePermissions);
+      this.countingOutputStream = new CountingOutputStream(outputStream);
       this.dataFileWriter = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(schema));
-      this.dataFileWriter.create(schema, outputStream);
+      this.dataFileWriter.create(schema, countingOutputStream);
       this.dataFileWriter.setSyncInterval(syncIntervalBytes);
       this.createTime = createTime;
       this.fileSize = 0;
+      // The first segment starts right after the header
+      startSegment(dataFileWriter.sync());
     } catch (IOException e) {
       Closeables.closeQuietly(outputStream);
       Closeables.closeQuietly(dataFileWriter);
@@ -91,9 +123,48 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
       } else {
         dataFileWriter.append(((LoggingEvent) event).getRecord());
       }
+    } else {
+      dataFileWriter.append(serializer.toGenericRecord(event));
+    }
+    updateIndex(event);
+  }
+
+  /**
+   * Updates the current index segment with an appended event, and starts a new segment if enough bytes were
+   * written since the start of the current segment.
+   */
+  private void updateIndex(ILoggingEvent event) throws IOException {
+    if (indexIntervalBytes <= 0) {
       return;
     }
-    dataFileWriter.append(serializer.toGenericRecord(event));
+    long timestamp = event.getTimeStamp();
+    segmentMinTimestamp = Math.min(segmentMinTimestamp, timestamp);
+    segmentMaxTimestamp = Math.max(segmentMaxTimestamp, timestamp);
+    if (termIndexBuilder != null) {
+      // The current segment will be added to the index builder as the next one
+      termIndexBuilder.addEvent(indexBuilder.size(), event);
+    }
+
+    // The counting stream only sees bytes of the blocks written by the DataFileWriter, hence it can lag behind
+    // the actual position. It is only used to decide when to force a sync marker for a new segment.
+    if (countingOutputStream.getCount() - segmentPosition >= indexIntervalBytes) {
+      long position = dataFileWriter.sync();
+      endSegment();
+      startSegment(position);
+    }
+  }
+
+  private void startSegment(long position) {
+    segmentPosition = position;
+    segmentMinTimestamp = Long.MAX_VALUE;
+    segmentMaxTimestamp = Long.MIN_VALUE;
+  }
+
+  private void endSegment() {
+    // Only segments that contain events are indexed
+    if (segmentMinTimestamp <= segmentMaxTimestamp) {
+      indexBuilder.addSegment(segmentPosition, segmentMinTimestamp, segmentMaxTimestamp);
+    }
   }
 
   /**
@@ -132,8 +203,64 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
     LOG.trace("Closing file {}", location);
     try {
       dataFileWriter.close();
+      if (indexIntervalBytes > 0) {
+        endSegment();
+        writeIndex();
+        writeTermIndex();
+      }
     } finally {
       closeable.close();
     }
   }
+
+  /**
+   * Writes the index file of the log file. Failure is only logged, since readers fall back to scan the log file
+   * if the index file is missing.
+   */
+  private void writeIndex() {
+    if (indexBuilder.size() == 0) {
+      return;
+    }
+    Location indexLocation = null;
+    try {
+      indexLocation = LogFileIndex.getIndexLocation(location);
+      try (OutputStream os = filePermissions.isEmpty() ? indexLocation.getOutputStream()
+        : indexLocation.getOutputStream(filePermissions)) {
+        indexBuilder.writeTo(os);
+      }
+      LOG.trace("Written index with {} segments for file {}", indexBuilder.size(), location);
+    } catch (Exception e) {
+      LOG.warn("Failed to write index for log file {}", location, e);
+      if (indexLocation != null) {
+        Locations.deleteQuietly(indexLocation);
+      }
+    }
+  }
+
+  /**
+   * Writes the term index file of the log file. Similar to the index, failure is only logged.
+   */
+  private void writeTermIndex() {
+    if (termIndexBuilder == null || indexBuilder.size() == 0) {
+      return;
+    }
+    if (!termIndexBuilder.canWrite()) {
+      LOG.debug("Skipped term index for log file {} with too many distinct terms", location);
+      return;
+    }
+    Location termIndexLocation = null;
+    try {
+      termIndexLocation = LogFileTermIndex.getIndexLocation(location);
+      try (OutputStream os = filePermissions.isEmpty() ? termIndexLocation.getOutputStream()
+        : termIndexLocation.getOutputStream(filePermissions)) {
+        termIndexBuilder.writeTo(os);
+      }
+      LOG.trace("Written term index for file {}", location);
+    } catch (Exception e) {
+      LOG.warn("Failed to write term index for log file {}", location, e);
+      if (termIndexLocation != null) {
+        Locations.deleteQuietly(termIndexLocation);
+      }
+    }
+  }
 }
@@ -20,7 +20,9 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Represents an And Filter where all sub expressions are and-ed together.
@@ -42,6 +44,26 @@ public class AndFilter implements Filter {
     return true;
   }
 
+  @Override
+  public boolean isPushdownSupported() {
+    for (Filter expression : expressions) {
+      if (!expression.isPushdownSupported()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public Set<String> getRequiredTerms() {
+    // An event must contain the terms required by any of the expressions
+    Set<String> terms = new HashSet<>();
+    for (Filter expression : expressions) {
+      terms.addAll(expression.getRequiredTerms());
+    }
+    return terms;
+  }
+
   @Override
   public String toString() {
     return Objects.toStringHelper(this)
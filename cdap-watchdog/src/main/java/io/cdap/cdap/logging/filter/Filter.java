@@ -18,12 +18,32 @@ package io.cdap.cdap.logging.filter;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
 
+import java.util.Collections;
+import java.util.Set;
+
 /**
  * Represents a generic filter to filter ILoggingEvent objects.
  */
 public interface Filter {
   boolean match(ILoggingEvent event);
 
+  /**
+   * Returns {@code true} if this filter only uses the timestamp, level and MDC of the event. Such filter can be
+   * evaluated before the rest of the event is decoded, which avoids decoding the events that don't match.
+   */
+  default boolean isPushdownSupported() {
+    return false;
+  }
+
+  /**
+   * Returns the terms, as split by the {@link LogTokenizer}, that an event must contain to match this filter.
+   * They are used to skip the parts of log files that don't contain them. Returns an empty set if the filter
+   * doesn't require any term.
+   */
+  default Set<String> getRequiredTerms() {
+    return Collections.emptySet();
+  }
+
   Filter EMPTY_FILTER = new EmptyFilter();
 
   /**
@@ -34,5 +54,10 @@ public interface Filter {
     public boolean match(ILoggingEvent event) {
       return true;
     }
+
+    @Override
+    public boolean isPushdownSupported() {
+      return true;
+    }
   }
 }
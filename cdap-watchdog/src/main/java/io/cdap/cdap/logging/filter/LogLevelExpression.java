@@ -34,6 +34,11 @@ public class LogLevelExpression implements Filter {
     return event.getLevel().isGreaterOrEqual(getLevel());
   }
 
+  @Override
+  public boolean isPushdownSupported() {
+    return true;
+  }
+
   public Level getLevel() {
     return level;
   }
@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.filter;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+/**
+ * Splits the text of log events into words for full-text search. A word is a run of letters, digits and
+ * underscores, in lower case. Words that are shorter than {@link #MIN_TERM_LENGTH}, longer than
+ * {@link #MAX_TERM_LENGTH} or only have digits are not index terms, since they are either too common or too unique
+ * to be useful in an index.
+ *
+ * The text of an event is its formatted message, together with the class names and messages of its throwable
+ * and the causes.
+ */
+public final class LogTokenizer {
+
+  public static final int MIN_TERM_LENGTH = 2;
+  public static final int MAX_TERM_LENGTH = 64;
+
+  /**
+   * Returns the set of index terms of the given text.
+   */
+  public static Set<String> tokenize(String text) {
+    Set<String> terms = new HashSet<>();
+    split(text, true, terms::add);
+    return terms;
+  }
+
+  /**
+   * Returns the set of index terms of the given event.
+   */
+  public static Set<String> tokenize(ILoggingEvent event) {
+    Set<String> terms = new HashSet<>();
+    tokenize(event, terms::add);
+    return terms;
+  }
+
+  /**
+   * Calls the given consumer with each index term of the given event. The same term can be given more than once.
+   */
+  public static void tokenize(ILoggingEvent event, Consumer<String> consumer) {
+    split(event, true, consumer);
+  }
+
+  /**
+   * Returns the set of all words of the given text, including the ones that are not index terms.
+   */
+  public static Set<String> words(String text) {
+    Set<String> words = new HashSet<>();
+    split(text, false, words::add);
+    return words;
+  }
+
+  /**
+   * Returns the set of all words of the given event, including the ones that are not index terms.
+   */
+  public static Set<String> words(ILoggingEvent event) {
+    Set<String> words = new HashSet<>();
+    split(event, false, words::add);
+    return words;
+  }
+
+  /**
+   * Returns whether the given word, as split by this class, is an index term.
+   */
+  public static boolean isTerm(String word) {
+    return word.length() >= MIN_TERM_LENGTH && word.length() <= MAX_TERM_LENGTH
+      && !word.chars().allMatch(Character::isDigit);
+  }
+
+  private static void split(ILoggingEvent event, boolean termsOnly, Consumer<String> consumer) {
+    split(event.getFormattedMessage(), termsOnly, consumer);
+    IThrowableProxy throwable = event.getThrowableProxy();
+    // Limit the depth in case of circular causes
+    for (int i = 0; throwable != null && i < 16; i++) {
+      split(throwable.getClassName(), termsOnly, consumer);
+      split(throwable.getMessage(), termsOnly, consumer);
+      throwable = throwable.getCause();
+    }
+  }
+
+  private static void split(@Nullable String text, boolean termsOnly, Consumer<String> consumer) {
+    if (text == null) {
+      return;
+    }
+    int length = text.length();
+    int start = -1;
+    boolean digitsOnly = true;
+    for (int i = 0; i <= length; i++) {
+      char c = i < length ? text.charAt(i) : ' ';
+      if (Character.isLetterOrDigit(c) || c == '_') {
+        if (start < 0) {
+          start = i;
+          digitsOnly = true;
+        }
+        digitsOnly &= Character.isDigit(c);
+      } else if (start >= 0) {
+        int termLength = i - start;
+        if (!termsOnly || (!digitsOnly && termLength >= MIN_TERM_LENGTH && termLength <= MAX_TERM_LENGTH)) {
+          consumer.accept(text.substring(start, i).toLowerCase(Locale.ROOT));
+        }
+        start = -1;
+      }
+    }
+  }
+
+  private LogTokenizer() {
+    // no-op
+  }
+}
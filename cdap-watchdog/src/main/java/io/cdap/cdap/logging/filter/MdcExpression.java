@@ -37,6 +37,11 @@ public class MdcExpression implements Filter {
     return value != null && value.equals(getValue());
   }
 
+  @Override
+  public boolean isPushdownSupported() {
+    return true;
+  }
+
   public String getKey() {
     return key;
   }
@@ -20,7 +20,10 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Represents an Or filter where all sub expressions are or-ed together.
@@ -42,6 +45,30 @@ public class OrFilter implements Filter {
     return false;
   }
 
+  @Override
+  public boolean isPushdownSupported() {
+    for (Filter expression : expressions) {
+      if (!expression.isPushdownSupported()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public Set<String> getRequiredTerms() {
+    // An event must only contain the terms required by all of the expressions
+    Set<String> terms = null;
+    for (Filter expression : expressions) {
+      if (terms == null) {
+        terms = new HashSet<>(expression.getRequiredTerms());
+      } else {
+        terms.retainAll(expression.getRequiredTerms());
+      }
+    }
+    return terms == null ? Collections.emptySet() : terms;
+  }
+
   @Override
   public String toString() {
     return Objects.toStringHelper(this)
@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.filter;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Set;
+
+/**
+ * Represents an expression that matches log events containing all the words of a search text, as split by
+ * the {@link LogTokenizer}. Only the words that are index terms are used to skip parts of log files, while
+ * all the words are matched against each event.
+ */
+public class TextSearchExpression implements Filter {
+  private final Set<String> words;
+  private final Set<String> terms;
+
+  public TextSearchExpression(String text) {
+    this.words = ImmutableSet.copyOf(LogTokenizer.words(text));
+    if (words.isEmpty()) {
+      throw new IllegalArgumentException("Search text '" + text + "' does not contain any searchable word");
+    }
+    this.terms = ImmutableSet.copyOf(words.stream().filter(LogTokenizer::isTerm).iterator());
+  }
+
+  @Override
+  public boolean match(ILoggingEvent event) {
+    return LogTokenizer.words(event).containsAll(words);
+  }
+
+  @Override
+  public Set<String> getRequiredTerms() {
+    return terms;
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this)
+      .add("words", words)
+      .toString();
+  }
+}
@@ -16,13 +16,17 @@
 
 package io.cdap.cdap.logging.gateway.handlers;
 
+import com.google.common.collect.ImmutableList;
+import io.cdap.cdap.api.dataset.lib.AbstractCloseableIterator;
 import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.logging.LoggingContext;
 import io.cdap.cdap.internal.app.store.RunRecordDetail;
 import io.cdap.cdap.logging.LoggingConfiguration;
+import io.cdap.cdap.logging.filter.AndFilter;
 import io.cdap.cdap.logging.filter.Filter;
 import io.cdap.cdap.logging.filter.FilterParser;
+import io.cdap.cdap.logging.filter.TextSearchExpression;
 import io.cdap.cdap.logging.read.Callback;
 import io.cdap.cdap.logging.read.LogEvent;
 import io.cdap.cdap.logging.read.LogOffset;
@@ -54,28 +58,33 @@ public abstract class AbstractLogHttpHandler extends AbstractHttpHandler {
   protected void doGetLogs(LogReader logReader, HttpResponder responder, LoggingContext loggingContext,
                            long fromTimeSecsParam, long toTimeSecsParam, boolean escape, String filterStr,
                            @Nullable RunRecordDetail runRecord, String format, List<String> fieldsToSuppress) {
-
     try {
-      TimeRange timeRange = parseTime(fromTimeSecsParam, toTimeSecsParam, responder);
-      if (timeRange == null) {
-        return;
-      }
-
       Filter filter = FilterParser.parse(filterStr);
+      readLogs(logReader, responder, loggingContext, fromTimeSecsParam, toTimeSecsParam, Integer.MAX_VALUE,
+               escape, filter, runRecord, format, fieldsToSuppress);
+    } catch (SecurityException e) {
+      responder.sendStatus(HttpResponseStatus.UNAUTHORIZED);
+    } catch (IllegalArgumentException e) {
+      responder.sendString(HttpResponseStatus.BAD_REQUEST, e.getMessage());
+    }
+  }
 
-      ReadRange readRange = new ReadRange(timeRange.getFromMillis(), timeRange.getToMillis(),
-                                          LogOffset.INVALID_KAFKA_OFFSET);
-      readRange = adjustReadRange(readRange, runRecord, fromTimeSecsParam != -1);
-      try {
-        // the iterator is closed by the BodyProducer passed to the HttpResponder
-        CloseableIterator<LogEvent> logIter = logReader.getLog(loggingContext, readRange.getFromMillis(),
-                                                               readRange.getToMillis(), filter);
-        AbstractChunkedLogProducer logsProducer = getFullLogsProducer(format, logIter, fieldsToSuppress, escape);
-        responder.sendContent(HttpResponseStatus.OK, logsProducer, logsProducer.getResponseHeaders());
-      } catch (Exception ex) {
-        LOG.debug("Exception while reading logs for logging context {}", loggingContext, ex);
-        responder.sendStatus(HttpResponseStatus.INTERNAL_SERVER_ERROR);
+  /**
+   * Responds with at most {@code maxEvents} log events in the time range that contain all the terms of the given
+   * query, in addition to matching the given filter. Log files with a term index are only partially read.
+   */
+  protected void doSearchLogs(LogReader logReader, HttpResponder responder, LoggingContext loggingContext,
+                              String query, long fromTimeSecsParam, long toTimeSecsParam, int maxEvents,
+                              boolean escape, String filterStr, @Nullable RunRecordDetail runRecord,
+                              String format, List<String> fieldsToSuppress) {
+    try {
+      if (maxEvents <= 0) {
+        responder.sendString(HttpResponseStatus.BAD_REQUEST, "Invalid 'max'. It should be greater than 0.");
+        return;
       }
+      Filter filter = new AndFilter(ImmutableList.of(FilterParser.parse(filterStr), new TextSearchExpression(query)));
+      readLogs(logReader, responder, loggingContext, fromTimeSecsParam, toTimeSecsParam, maxEvents,
+               escape, filter, runRecord, format, fieldsToSuppress);
     } catch (SecurityException e) {
       responder.sendStatus(HttpResponseStatus.UNAUTHORIZED);
     } catch (IllegalArgumentException e) {
@@ -83,6 +92,56 @@ public abstract class AbstractLogHttpHandler extends AbstractHttpHandler {
     }
   }
 
+  private void readLogs(LogReader logReader, HttpResponder responder, LoggingContext loggingContext,
+                        long fromTimeSecsParam, long toTimeSecsParam, int maxEvents, boolean escape,
+                        Filter filter, @Nullable RunRecordDetail runRecord, String format,
+                        List<String> fieldsToSuppress) {
+    TimeRange timeRange = parseTime(fromTimeSecsParam, toTimeSecsParam, responder);
+    if (timeRange == null) {
+      return;
+    }
+
+    ReadRange readRange = new ReadRange(timeRange.getFromMillis(), timeRange.getToMillis(),
+                                        LogOffset.INVALID_KAFKA_OFFSET);
+    readRange = adjustReadRange(readRange, runRecord, fromTimeSecsParam != -1);
+    try {
+      // the iterator is closed by the BodyProducer passed to the HttpResponder
+      CloseableIterator<LogEvent> logIter = logReader.getLog(loggingContext, readRange.getFromMillis(),
+                                                             readRange.getToMillis(), filter);
+      if (maxEvents != Integer.MAX_VALUE) {
+        logIter = limit(logIter, maxEvents);
+      }
+      AbstractChunkedLogProducer logsProducer = getFullLogsProducer(format, logIter, fieldsToSuppress, escape);
+      responder.sendContent(HttpResponseStatus.OK, logsProducer, logsProducer.getResponseHeaders());
+    } catch (Exception ex) {
+      LOG.debug("Exception while reading logs for logging context {}", loggingContext, ex);
+      responder.sendStatus(HttpResponseStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+
+  /**
+   * Returns a {@link CloseableIterator} that returns at most the given number of events from the given iterator.
+   */
+  private static CloseableIterator<LogEvent> limit(CloseableIterator<LogEvent> iterator, int maxEvents) {
+    return new AbstractCloseableIterator<LogEvent>() {
+      private int count;
+
+      @Override
+      protected LogEvent computeNext() {
+        if (count >= maxEvents || !iterator.hasNext()) {
+          return endOfData();
+        }
+        count++;
+        return iterator.next();
+      }
+
+      @Override
+      public void close() {
+        iterator.close();
+      }
+    };
+  }
+
   protected void doPrev(LogReader logReader, HttpResponder responder, LoggingContext loggingContext,
                         int maxEvents, String fromOffsetStr, boolean escape, String filterStr,
                         @Nullable RunRecordDetail runRecord, String format, List<String> fieldsToSuppress) {
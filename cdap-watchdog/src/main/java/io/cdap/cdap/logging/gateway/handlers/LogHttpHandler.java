@@ -113,6 +113,51 @@ public class LogHttpHandler extends AbstractLogHttpHandler {
               escape, filterStr, runRecord, format, suppress);
   }
 
+  @GET
+  @Path("/namespaces/{namespace-id}/apps/{app-id}/{program-type}/{program-id}/logs/search")
+  public void searchLogs(HttpRequest request, HttpResponder responder, @PathParam("namespace-id") String namespaceId,
+                         @PathParam("app-id") String appId, @PathParam("program-type") String programType,
+                         @PathParam("program-id") String programId,
+                         @QueryParam("q") @DefaultValue("") String query,
+                         @QueryParam("start") @DefaultValue("-1") long fromTimeSecsParam,
+                         @QueryParam("stop") @DefaultValue("-1") long toTimeSecsParam,
+                         @QueryParam("max") @DefaultValue("100") int maxEvents,
+                         @QueryParam("escape") @DefaultValue("true") boolean escape,
+                         @QueryParam("filter") @DefaultValue("") String filterStr,
+                         @QueryParam("format") @DefaultValue("text") String format,
+                         @QueryParam("suppress") List<String> suppress) throws Exception {
+    ensureVisibilityOnProgram(namespaceId, appId, programType, programId);
+    LoggingContext loggingContext =
+      LoggingContextHelper.getLoggingContext(namespaceId, appId, programId,
+                                             ProgramType.valueOfCategoryName(programType));
+    doSearchLogs(logReader, responder, loggingContext, query, fromTimeSecsParam, toTimeSecsParam, maxEvents,
+                 escape, filterStr, null, format, suppress);
+  }
+
+  @GET
+  @Path("/namespaces/{namespace-id}/apps/{app-id}/{program-type}/{program-id}/runs/{run-id}/logs/search")
+  public void searchRunIdLogs(HttpRequest request, HttpResponder responder,
+                              @PathParam("namespace-id") String namespaceId,
+                              @PathParam("app-id") String appId, @PathParam("program-type") String programType,
+                              @PathParam("program-id") String programId, @PathParam("run-id") String runId,
+                              @QueryParam("q") @DefaultValue("") String query,
+                              @QueryParam("start") @DefaultValue("-1") long fromTimeSecsParam,
+                              @QueryParam("stop") @DefaultValue("-1") long toTimeSecsParam,
+                              @QueryParam("max") @DefaultValue("100") int maxEvents,
+                              @QueryParam("escape") @DefaultValue("true") boolean escape,
+                              @QueryParam("filter") @DefaultValue("") String filterStr,
+                              @QueryParam("format") @DefaultValue("text") String format,
+                              @QueryParam("suppress") List<String> suppress) throws Exception {
+    ensureVisibilityOnProgram(namespaceId, appId, programType, programId);
+    ProgramType type = ProgramType.valueOfCategoryName(programType);
+    ProgramRunId programRunId = new ProgramRunId(namespaceId, appId, type, programId, runId);
+    RunRecordDetail runRecord = getRunRecordMeta(programRunId);
+    LoggingContext loggingContext = LoggingContextHelper.getLoggingContextWithRunId(programRunId,
+                                                                                    runRecord.getSystemArgs());
+    doSearchLogs(logReader, responder, loggingContext, query, fromTimeSecsParam, toTimeSecsParam, maxEvents,
+                 escape, filterStr, runRecord, format, suppress);
+  }
+
   @GET
   @Path("/namespaces/{namespace-id}/apps/{app-id}/{program-type}/{program-id}/logs/next")
   public void next(HttpRequest request, HttpResponder responder, @PathParam("namespace-id") String namespaceId,
@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.write;
+
+import io.cdap.cdap.logging.filter.Filter;
+import io.cdap.cdap.logging.serialize.LogSchema;
+import io.cdap.cdap.logging.serialize.LoggingEvent;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.Decoder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A {@link GenericDatumReader} for logging events that evaluates a {@link Filter} right after decoding the
+ * timestamp, level and MDC fields, which are the first fields in the {@link LogSchema.LoggingEvent#SCHEMA}.
+ * If the filter doesn't match, the rest of the fields, such as the message, throwable and caller data,
+ * are skipped instead of decoded, and they are {@code null} in the returned record. The timestamp is always decoded.
+ *
+ * The filter is only pushed down if it {@link Filter#isPushdownSupported() supports pushdown} and the file is
+ * written with the same schema. Otherwise the full record is decoded.
+ */
+final class FilterPushdownDatumReader extends GenericDatumReader<GenericRecord> {
+
+  private static final int HEADER_FIELDS = 3;
+
+  private final Filter filter;
+  private List<Schema.Field> fields;
+  private GenericDatumReader<Object>[] fieldReaders;
+
+  FilterPushdownDatumReader(Filter filter) {
+    super(LogSchema.LoggingEvent.SCHEMA);
+    this.filter = filter;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void setSchema(Schema writer) {
+    super.setSchema(writer);
+    fields = null;
+    fieldReaders = null;
+    if (!filter.isPushdownSupported() || !LogSchema.LoggingEvent.SCHEMA.equals(writer)) {
+      return;
+    }
+    fields = writer.getFields();
+    fieldReaders = new GenericDatumReader[fields.size()];
+    for (int i = 0; i < fieldReaders.length; i++) {
+      fieldReaders[i] = new GenericDatumReader<>(fields.get(i).schema());
+    }
+  }
+
+  @Override
+  public GenericRecord read(GenericRecord reuse, Decoder in) throws IOException {
+    if (fieldReaders == null) {
+      return super.read(reuse, in);
+    }
+
+    GenericRecord record = reuse;
+    if (record == null || record.getSchema() != LogSchema.LoggingEvent.SCHEMA) {
+      record = new GenericData.Record(LogSchema.LoggingEvent.SCHEMA);
+    }
+    for (int i = 0; i < HEADER_FIELDS; i++) {
+      record.put(i, fieldReaders[i].read(record.get(i), in));
+    }
+
+    if (filter.match(new LoggingEvent(record))) {
+      for (int i = HEADER_FIELDS; i < fieldReaders.length; i++) {
+        record.put(i, fieldReaders[i].read(record.get(i), in));
+      }
+    } else {
+      for (int i = HEADER_FIELDS; i < fieldReaders.length; i++) {
+        GenericDatumReader.skip(fields.get(i).schema(), in);
+        record.put(i, null);
+      }
+    }
+    return record;
+  }
+}
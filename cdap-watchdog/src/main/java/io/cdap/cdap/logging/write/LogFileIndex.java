@@ -0,0 +1,223 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.write;
+
+import com.google.common.base.Preconditions;
+import io.cdap.cdap.common.io.Locations;
+import org.apache.twill.filesystem.Location;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A sparse time index of an Avro log file, which is written as a sidecar file next to the log file when the log
+ * file is closed. The log file is divided into segments, each starting at an Avro sync position, and the index
+ * records the position together with the minimum and maximum event timestamps of each segment. Readers use it to
+ * seek directly to the segments that can contain events of a given time, instead of scanning the log file.
+ */
+public final class LogFileIndex {
+
+  /**
+   * Suffix of the index file name, which is appended to the name of the log file.
+   */
+  public static final String FILE_SUFFIX = ".idx";
+
+  private static final int VERSION = 1;
+
+  private final long[] positions;
+  // Running maximum of the maximum timestamps from the first segment, which is non-decreasing
+  private final long[] maxTimestamps;
+  // Running minimum of the minimum timestamps from the last segment, which is non-decreasing
+  private final long[] minTimestamps;
+
+  /**
+   * Returns the {@link Location} of the index file of the given log file.
+   */
+  public static Location getIndexLocation(Location logLocation) throws IOException {
+    return getSidecarLocation(logLocation, FILE_SUFFIX);
+  }
+
+  /**
+   * Returns the {@link Location} of a file next to the given log file, with the given suffix appended to the name.
+   */
+  static Location getSidecarLocation(Location logLocation, String suffix) throws IOException {
+    Location parent = Locations.getParent(logLocation);
+    Preconditions.checkArgument(parent != null, "Log file %s must not be the root", logLocation);
+    return parent.append(logLocation.getName() + suffix);
+  }
+
+  /**
+   * Reads an index from the given {@link InputStream}.
+   *
+   * @throws IOException if failed to read or if the index is not valid
+   */
+  public static LogFileIndex read(InputStream is) throws IOException {
+    DataInputStream input = new DataInputStream(new BufferedInputStream(is));
+    int version = input.readByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported log file index version " + version);
+    }
+    int size = input.readInt();
+    if (size <= 0) {
+      throw new IOException("Invalid log file index size " + size);
+    }
+    long[] positions = new long[size];
+    long[] minTimestamps = new long[size];
+    long[] maxTimestamps = new long[size];
+    for (int i = 0; i < size; i++) {
+      positions[i] = input.readLong();
+      minTimestamps[i] = input.readLong();
+      maxTimestamps[i] = input.readLong();
+      if (i > 0 && positions[i] <= positions[i - 1]) {
+        throw new IOException("Log file index positions are not increasing at entry " + i);
+      }
+    }
+    if (input.read() >= 0) {
+      throw new IOException("Unexpected data after " + size + " log file index entries");
+    }
+    return new LogFileIndex(positions, minTimestamps, maxTimestamps);
+  }
+
+  private LogFileIndex(long[] positions, long[] minTimestamps, long[] maxTimestamps) {
+    for (int i = 1; i < positions.length; i++) {
+      maxTimestamps[i] = Math.max(maxTimestamps[i], maxTimestamps[i - 1]);
+    }
+    for (int i = positions.length - 2; i >= 0; i--) {
+      minTimestamps[i] = Math.min(minTimestamps[i], minTimestamps[i + 1]);
+    }
+    this.positions = positions;
+    this.minTimestamps = minTimestamps;
+    this.maxTimestamps = maxTimestamps;
+  }
+
+  /**
+   * Returns the number of segments.
+   */
+  public int size() {
+    return positions.length;
+  }
+
+  /**
+   * Returns the Avro sync position where the given segment starts.
+   */
+  public long getStartPosition(int segment) {
+    return positions[segment];
+  }
+
+  /**
+   * Returns the Avro sync position where the given segment ends, or {@code -1} for the last segment,
+   * which ends at the end of the file.
+   */
+  public long getEndPosition(int segment) {
+    return segment + 1 < positions.length ? positions[segment + 1] : -1L;
+  }
+
+  /**
+   * Returns the first segment that can contain events with timestamp greater than or equal to the given timestamp.
+   * All events in the segments before it have smaller timestamps. Returns {@link #size()} if there is no such segment.
+   */
+  public int findFirstSegment(long timestamp) {
+    int idx = Arrays.binarySearch(maxTimestamps, timestamp);
+    if (idx < 0) {
+      return -(idx + 1);
+    }
+    // Move to the first segment in case there are multiple segments with the same timestamp
+    while (idx > 0 && maxTimestamps[idx - 1] == timestamp) {
+      idx--;
+    }
+    return idx;
+  }
+
+  /**
+   * Returns the last segment that can contain events with timestamp smaller than or equal to the given timestamp.
+   * All events in the segments after it have larger timestamps. Returns {@code -1} if there is no such segment.
+   */
+  public int findLastSegment(long timestamp) {
+    int idx = Arrays.binarySearch(minTimestamps, timestamp);
+    if (idx < 0) {
+      return -(idx + 1) - 1;
+    }
+    // Move to the last segment in case there are multiple segments with the same timestamp
+    while (idx < minTimestamps.length - 1 && minTimestamps[idx + 1] == timestamp) {
+      idx++;
+    }
+    return idx;
+  }
+
+  /**
+   * Builder for creating the index of a log file while it is being written.
+   */
+  public static final class Builder {
+
+    private long[] positions = new long[16];
+    private long[] minTimestamps = new long[16];
+    private long[] maxTimestamps = new long[16];
+    private int size;
+
+    /**
+     * Adds a segment. Segments must be added in the order of their positions.
+     *
+     * @param position the Avro sync position where the segment starts
+     * @param minTimestamp the minimum event timestamp in the segment
+     * @param maxTimestamp the maximum event timestamp in the segment
+     * @return this builder
+     */
+    public Builder addSegment(long position, long minTimestamp, long maxTimestamp) {
+      Preconditions.checkArgument(size == 0 || position > positions[size - 1],
+                                  "Segment position %s must be larger than the previous position %s",
+                                  position, size == 0 ? -1 : positions[size - 1]);
+      if (size == positions.length) {
+        positions = Arrays.copyOf(positions, size * 2);
+        minTimestamps = Arrays.copyOf(minTimestamps, size * 2);
+        maxTimestamps = Arrays.copyOf(maxTimestamps, size * 2);
+      }
+      positions[size] = position;
+      minTimestamps[size] = minTimestamp;
+      maxTimestamps[size] = maxTimestamp;
+      size++;
+      return this;
+    }
+
+    /**
+     * Returns the number of segments added.
+     */
+    public int size() {
+      return size;
+    }
+
+    /**
+     * Writes the index to the given {@link OutputStream}. The stream is not closed by this method.
+     */
+    public void writeTo(OutputStream os) throws IOException {
+      DataOutputStream output = new DataOutputStream(new BufferedOutputStream(os));
+      output.writeByte(VERSION);
+      output.writeInt(size);
+      for (int i = 0; i < size; i++) {
+        output.writeLong(positions[i]);
+        output.writeLong(minTimestamps[i]);
+        output.writeLong(maxTimestamps[i]);
+      }
+      output.flush();
+    }
+  }
+}
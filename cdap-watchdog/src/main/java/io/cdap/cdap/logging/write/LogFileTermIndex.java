@@ -0,0 +1,254 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.write;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import com.google.common.io.ByteStreams;
+import io.cdap.cdap.logging.filter.LogTokenizer;
+import org.apache.twill.filesystem.Location;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An inverted index of the terms in an Avro log file, which is written as a sidecar file next to the log file when
+ * the log file is closed. For each term, as split by the {@link LogTokenizer}, the index has the sorted list of
+ * {@link LogFileIndex} segments that have events containing the term. Readers use it to only read the segments that
+ * can contain events matching a full-text search.
+ *
+ * The file has the terms in sorted order, each followed by the size and the delta encoded list of its segments,
+ * such that the segments of the terms that are not searched can be skipped without decoding.
+ */
+public final class LogFileTermIndex {
+
+  /**
+   * Suffix of the term index file name, which is appended to the name of the log file.
+   */
+  public static final String FILE_SUFFIX = ".terms";
+
+  private static final int VERSION = 1;
+
+  /**
+   * Returns the {@link Location} of the term index file of the given log file.
+   */
+  public static Location getIndexLocation(Location logLocation) throws IOException {
+    return LogFileIndex.getSidecarLocation(logLocation, FILE_SUFFIX);
+  }
+
+  /**
+   * Reads the index from the given {@link InputStream} and returns the segments that have events containing
+   * all the given terms, in ascending order.
+   *
+   * @throws IOException if failed to read or if the index is not valid
+   */
+  public static int[] findSegments(InputStream is, Set<String> terms) throws IOException {
+    DataInputStream input = new DataInputStream(new BufferedInputStream(is));
+    int version = input.readByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported log file term index version " + version);
+    }
+    int size = input.readInt();
+
+    Set<String> remaining = new HashSet<>(terms);
+    int[] segments = null;
+    for (int i = 0; i < size && !remaining.isEmpty(); i++) {
+      String term = input.readUTF();
+      int length = input.readInt();
+      if (!remaining.remove(term)) {
+        ByteStreams.skipFully(input, length);
+        continue;
+      }
+      int[] termSegments = readSegments(input);
+      segments = segments == null ? termSegments : intersect(segments, termSegments);
+      if (segments.length == 0) {
+        break;
+      }
+    }
+    // If any term is not in the index, no segment has all the terms
+    return segments == null || !remaining.isEmpty() ? new int[0] : segments;
+  }
+
+  private static int[] readSegments(DataInput input) throws IOException {
+    int[] segments = new int[readVarInt(input)];
+    int segment = 0;
+    for (int i = 0; i < segments.length; i++) {
+      segment += readVarInt(input);
+      segments[i] = segment;
+    }
+    return segments;
+  }
+
+  private static int[] intersect(int[] first, int[] second) {
+    int[] result = new int[Math.min(first.length, second.length)];
+    int size = 0;
+    int i = 0;
+    int j = 0;
+    while (i < first.length && j < second.length) {
+      if (first[i] < second[j]) {
+        i++;
+      } else if (first[i] > second[j]) {
+        j++;
+      } else {
+        result[size++] = first[i];
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(result, size);
+  }
+
+  private static int readVarInt(DataInput input) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = input.readByte();
+      value |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Invalid variable length integer in log file term index");
+  }
+
+  private static void writeVarInt(DataOutput output, int value) throws IOException {
+    while ((value & ~0x7f) != 0) {
+      output.writeByte((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    output.writeByte(value);
+  }
+
+  /**
+   * Builder for creating the term index of a log file while it is being written. If there are more distinct terms
+   * than the maximum allowed, the builder stops collecting terms and no index should be written for the file.
+   */
+  public static final class Builder {
+
+    private final int maxTerms;
+    private Map<String, Postings> postings = new HashMap<>();
+    private boolean overflow;
+
+    public Builder(int maxTerms) {
+      this.maxTerms = maxTerms;
+    }
+
+    /**
+     * Adds the terms of the given event to the index.
+     *
+     * @param segment the {@link LogFileIndex} segment of the event, which must not be smaller than the segment of
+     *                the previously added event
+     * @param event the event to index
+     */
+    public void addEvent(int segment, ILoggingEvent event) {
+      if (overflow) {
+        return;
+      }
+      LogTokenizer.tokenize(event, term -> addTerm(segment, term));
+    }
+
+    private void addTerm(int segment, String term) {
+      if (overflow) {
+        return;
+      }
+      Postings termPostings = postings.get(term);
+      if (termPostings == null) {
+        if (postings.size() >= maxTerms) {
+          // Release the memory, the index won't be written
+          overflow = true;
+          postings = new HashMap<>();
+          return;
+        }
+        termPostings = new Postings();
+        postings.put(term, termPostings);
+      }
+      termPostings.add(segment);
+    }
+
+    /**
+     * Returns {@code true} if an index can be written, which is when at least one term was added and the number of
+     * distinct terms didn't exceed the maximum.
+     */
+    public boolean canWrite() {
+      return !overflow && !postings.isEmpty();
+    }
+
+    /**
+     * Writes the index to the given {@link OutputStream}. The stream is not closed by this method.
+     */
+    public void writeTo(OutputStream os) throws IOException {
+      if (!canWrite()) {
+        throw new IllegalStateException("Cannot write term index with " + postings.size() + " terms and overflow "
+                                          + overflow);
+      }
+      DataOutputStream output = new DataOutputStream(new BufferedOutputStream(os));
+      output.writeByte(VERSION);
+      output.writeInt(postings.size());
+
+      ByteArrayOutputStream segmentsBytes = new ByteArrayOutputStream();
+      DataOutputStream segmentsOutput = new DataOutputStream(segmentsBytes);
+      for (Map.Entry<String, Postings> entry : new TreeMap<>(postings).entrySet()) {
+        segmentsBytes.reset();
+        entry.getValue().writeTo(segmentsOutput);
+        output.writeUTF(entry.getKey());
+        output.writeInt(segmentsBytes.size());
+        segmentsBytes.writeTo(output);
+      }
+      output.flush();
+    }
+  }
+
+  /**
+   * The sorted segments of a term.
+   */
+  private static final class Postings {
+
+    private int[] segments = new int[1];
+    private int size;
+
+    void add(int segment) {
+      if (size > 0 && segments[size - 1] == segment) {
+        return;
+      }
+      if (size == segments.length) {
+        segments = Arrays.copyOf(segments, size * 2);
+      }
+      segments[size++] = segment;
+    }
+
+    void writeTo(DataOutput output) throws IOException {
+      writeVarInt(output, size);
+      int previous = 0;
+      for (int i = 0; i < size; i++) {
+        writeVarInt(output, segments[i] - previous);
+        previous = segments[i];
+      }
+    }
+  }
+}
@@ -30,26 +30,29 @@ import io.cdap.cdap.logging.filter.Filter;
 import io.cdap.cdap.logging.read.Callback;
 import io.cdap.cdap.logging.read.LogEvent;
 import io.cdap.cdap.logging.read.LogOffset;
-import io.cdap.cdap.logging.serialize.LogSchema;
 import io.cdap.cdap.logging.serialize.LoggingEvent;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.security.impersonation.Impersonator;
 import org.apache.avro.file.DataFileReader;
 import org.apache.avro.file.SeekableInput;
-import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.twill.filesystem.Location;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import javax.annotation.Nullable;
 
 /**
  * LogLocation representing a log file and methods to read the file's contents.
@@ -153,12 +156,29 @@ public class LogLocation {
     Deque<Collection<LogEvent>> logSegments = new LinkedList<>();
     int count = 0;
     try {
-      try (DataFileReader<GenericRecord> dataFileReader = createReader()) {
+      try (DataFileReader<GenericRecord> dataFileReader = createReader(logFilter)) {
 
         if (!dataFileReader.hasNext()) {
           return ImmutableList.of();
         }
 
+        LogFileIndex index = readIndex();
+        if (index != null) {
+          // Read the segments that can contain events before fromTimeMs backward, starting from the last one
+          for (int segment = index.findLastSegment(fromTimeMs); segment >= 0 && count < maxEvents; segment--) {
+            dataFileReader.seek(index.getStartPosition(segment));
+            List<LogEvent> logSegment = readToEndSyncPosition(dataFileReader, logFilter, fromTimeMs,
+                                                              index.getEndPosition(segment));
+            if (!logSegment.isEmpty()) {
+              logSegments.addFirst(logSegment);
+              count = count + logSegment.size();
+            }
+            LOG.trace("Read log events {} from indexed segment {} of {}", count, segment, location);
+          }
+          int skip = count >= maxEvents ? count - maxEvents : 0;
+          return Lists.newArrayList(Iterables.skip(Iterables.concat(logSegments), skip));
+        }
+
         // Calculate skipLen based on fileLength
         long length = location.length();
         LOG.trace("File length {} {}", location, length);
@@ -218,14 +238,15 @@ public class LogLocation {
     // or read until endSyncPosition has been reached
     while (dataFileReader.hasNext() && (endSyncPosition == -1 || (currentSyncPosition < endSyncPosition))) {
       ILoggingEvent loggingEvent = new LoggingEvent(dataFileReader.next());
-      loggingEvent.prepareForDeferredProcessing();
 
       // Stop when reached fromTimeMs
       if (loggingEvent.getTimeStamp() > fromTimeMs) {
         break;
       }
 
+      // Only decode the fields of the events that match the filter
       if (logFilter.match(loggingEvent)) {
+        loggingEvent.prepareForDeferredProcessing();
         logSegment.add(new LogEvent(loggingEvent,
                                     new LogOffset(LogOffset.INVALID_KAFKA_OFFSET, loggingEvent.getTimeStamp())));
       }
@@ -260,6 +281,12 @@ public class LogLocation {
 
     private DataFileReader<GenericRecord> dataFileReader;
 
+    // When the term index is used, the index and the segments to read, with the current segment and its end position
+    private LogFileIndex index;
+    private int[] segments;
+    private int segmentIdx = -1;
+    private long segmentEndPosition;
+
     private ILoggingEvent loggingEvent;
     private GenericRecord datum;
 
@@ -275,11 +302,26 @@ public class LogLocation {
       this.maxEvents = maxEvents;
 
       try {
-        dataFileReader = createReader();
-        if (dataFileReader.hasNext()) {
+        dataFileReader = createReader(logFilter);
+        Set<String> terms = logFilter.getRequiredTerms();
+        LogFileIndex index = fromTimeMs > 0 || !terms.isEmpty() ? readIndex() : null;
+        int[] termSegments = index == null ? null : readTermIndex(terms);
+        if (termSegments != null) {
+          // Only read the segments that have all the searched terms, skipping the ones before fromTimeMs
+          int firstSegment = index.findFirstSegment(fromTimeMs);
+          this.index = index;
+          this.segments = Arrays.stream(termSegments).filter(segment -> segment >= firstSegment).toArray();
+          LOG.trace("Read {} of {} indexed segments with terms {} of {}",
+                    segments.length, index.size(), terms, location);
+        } else if (index != null) {
+          // Skip the segments that only contain events before fromTimeMs
+          int segment = Math.min(index.findFirstSegment(fromTimeMs), index.size() - 1);
+          LOG.trace("Seek to indexed segment {} of {}", segment, location);
+          dataFileReader.seek(index.getStartPosition(segment));
+        } else if (dataFileReader.hasNext()) {
+          // Only the timestamp is needed for seeking
           datum = dataFileReader.next();
           loggingEvent = new LoggingEvent(datum);
-          loggingEvent.prepareForDeferredProcessing();
 
           long prevPrevSyncPos = 0;
           long prevSyncPos = 0;
@@ -293,7 +335,6 @@ public class LogLocation {
             dataFileReader.sync(curPos);
             if (dataFileReader.hasNext()) {
               loggingEvent = new LoggingEvent(dataFileReader.next(datum));
-              loggingEvent.prepareForDeferredProcessing();
             }
           }
 
@@ -315,9 +356,8 @@ public class LogLocation {
     private void computeNext() {
       try {
         // read events from file
-        while (next == null && dataFileReader.hasNext()) {
+        while (next == null && hasNextEvent()) {
           loggingEvent = new LoggingEvent(dataFileReader.next(datum));
-          loggingEvent.prepareForDeferredProcessing();
 
           if (loggingEvent.getTimeStamp() >= fromTimeMs && logFilter.match(loggingEvent)) {
             ++count;
@@ -325,6 +365,9 @@ public class LogLocation {
               && loggingEvent.getTimeStamp() != prevTimestamp) {
               break;
             }
+            // Only decode the fields of the events that match the filter. This has to be done before
+            // reading the next event, since the datum is reused.
+            loggingEvent.prepareForDeferredProcessing();
             next = new LogEvent(loggingEvent,
                                 new LogOffset(LogOffset.INVALID_KAFKA_OFFSET, loggingEvent.getTimeStamp()));
           }
@@ -338,6 +381,27 @@ public class LogLocation {
       }
     }
 
+    /**
+     * Returns whether there is a next event to read. If only some segments are read, it moves to the next segment
+     * when the current segment is done.
+     */
+    private boolean hasNextEvent() throws IOException {
+      if (segments == null) {
+        return dataFileReader.hasNext();
+      }
+      while (true) {
+        if (segmentIdx >= 0 && (segmentEndPosition < 0 || dataFileReader.previousSync() < segmentEndPosition)
+          && dataFileReader.hasNext()) {
+          return true;
+        }
+        if (++segmentIdx >= segments.length) {
+          return false;
+        }
+        dataFileReader.seek(index.getStartPosition(segments[segmentIdx]));
+        segmentEndPosition = index.getEndPosition(segments[segmentIdx]);
+      }
+    }
+
     @Override
     public void close() {
       try {
@@ -371,10 +435,60 @@ public class LogLocation {
     }
   }
 
-  private DataFileReader<GenericRecord> createReader() throws IOException {
+  /**
+   * Reads the {@link LogFileIndex} of the log file.
+   *
+   * @return the index or {@code null} if the log file doesn't have a valid index
+   */
+  @Nullable
+  private LogFileIndex readIndex() {
+    // Files of the old version are never indexed
+    if (VERSION_0.equals(frameworkVersion)) {
+      return null;
+    }
+    try {
+      try (InputStream is = LogFileIndex.getIndexLocation(location).getInputStream()) {
+        return LogFileIndex.read(is);
+      }
+    } catch (FileNotFoundException e) {
+      LOG.trace("No index for log file {}", location);
+    } catch (Exception e) {
+      READ_FAILURE_LOG.warn("Failed to read index of log file {}, fall back to scan the file", location, e);
+    }
+    return null;
+  }
+
+  /**
+   * Reads the {@link LogFileTermIndex} of the log file to find the segments that can have events with all the
+   * given terms.
+   *
+   * @return the sorted segments or {@code null} if there are no terms or the log file doesn't have a term index
+   */
+  @Nullable
+  private int[] readTermIndex(Set<String> terms) {
+    if (terms.isEmpty()) {
+      return null;
+    }
+    try {
+      try (InputStream is = LogFileTermIndex.getIndexLocation(location).getInputStream()) {
+        return LogFileTermIndex.findSegments(is, terms);
+      }
+    } catch (FileNotFoundException e) {
+      LOG.trace("No term index for log file {}", location);
+    } catch (Exception e) {
+      READ_FAILURE_LOG.warn("Failed to read term index of log file {}, fall back to scan the file", location, e);
+    }
+    return null;
+  }
+
+  /**
+   * Creates a {@link DataFileReader} to read the log file. Events that don't match the given filter may not be
+   * fully decoded, and only their timestamp should be used. See {@link FilterPushdownDatumReader}.
+   */
+  private DataFileReader<GenericRecord> createReader(Filter logFilter) throws IOException {
     boolean shouldImpersonate = this.getFrameworkVersion().equals(VERSION_0);
     return new DataFileReader<>(new LocationSeekableInput(location, namespaceId, impersonator, shouldImpersonate),
-                                new GenericDatumReader<GenericRecord>(LogSchema.LoggingEvent.SCHEMA));
+                                new FilterPushdownDatumReader(logFilter));
   }
 
   /**
@@ -15,12 +15,12 @@
  */
 package io.cdap.cdap.metrics.collect;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
 import com.google.common.util.concurrent.Uninterruptibles;
@@ -33,16 +33,19 @@ import io.cdap.cdap.common.conf.Constants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Base class for {@link MetricsCollectionService} which collect metrics through a set of cached
- * {@link AggregatedMetricsEmitter}.
+ * Base class for {@link MetricsCollectionService} which collect metrics through a set of {@link MetricsAggregator},
+ * one for each unique set of tags.
  */
 public abstract class AggregatedMetricsCollectionService extends AbstractExecutionThreadService
                                                          implements MetricsCollectionService {
@@ -51,37 +54,28 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
   private static final long CACHE_EXPIRE_MINUTES = 1;
 
   private final LoadingCache<Map<String, String>, MetricsContext> collectors;
-  private final LoadingCache<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>> emitters;
+  private final ConcurrentMap<Map<String, String>, MetricsAggregator> aggregators;
   // maximum number of milliseconds to sleep between each publish
   private final long publishIntervalInMillis;
+  // number of publishes without any new value before an aggregator is removed
+  private final int maxIdlePublishes;
   private final CountDownLatch shutdownLatch;
 
   public AggregatedMetricsCollectionService(long publishIntervalInMillis) {
+    this(publishIntervalInMillis, (int) Math.max(1L, TimeUnit.MINUTES.toMillis(CACHE_EXPIRE_MINUTES)
+      / Math.max(1L, Math.min(publishIntervalInMillis, Constants.Metrics.PROCESS_INTERVAL_MILLIS))));
+  }
+
+  @VisibleForTesting
+  AggregatedMetricsCollectionService(long publishIntervalInMillis, int maxIdlePublishes) {
     // the longest sleep time will be 1 min
     this.publishIntervalInMillis = Math.min(publishIntervalInMillis, Constants.Metrics.PROCESS_INTERVAL_MILLIS);
+    this.maxIdlePublishes = maxIdlePublishes;
     this.shutdownLatch = new CountDownLatch(1);
     this.collectors = CacheBuilder.newBuilder()
       .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
       .build(createCollectorLoader());
-
-    this.emitters = CacheBuilder.newBuilder()
-      // NOTE : we don't need to have removalListener to  emit metrics, as we have expireAfterAccess set for a minute,
-      // emitters.get() is used to increment/gauge and that would reset the access time,
-      // and since runOneIteration() emits all the metrics for the scheduled duration (every 1 second)
-      // there wont be any loss of emitter entries.
-      .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
-      .build(new CacheLoader<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>>() {
-        @Override
-        public LoadingCache<String, AggregatedMetricsEmitter> load(Map<String, String> tags) throws Exception {
-          return CacheBuilder.newBuilder().expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES).
-            build(new CacheLoader<String, AggregatedMetricsEmitter>() {
-              @Override
-              public AggregatedMetricsEmitter load(String metricName) throws Exception {
-                return new AggregatedMetricsEmitter(metricName);
-              }
-            });
-        }
-      });
+    this.aggregators = new ConcurrentHashMap<>();
   }
 
   /**
@@ -171,26 +165,32 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
     shutdownLatch.countDown();
   }
 
+  /**
+   * Returns the number of aggregators that are in use.
+   */
+  @VisibleForTesting
+  int getAggregatorCount() {
+    return aggregators.size();
+  }
+
   private Iterator<MetricValues> getMetrics(final long timestamp) {
-    // NOTE : emitters.asMap does not reset the access time in cache,
-    // so it's the preferred way to access the cache entries. as we access and emit metrics every second.
-    final Iterator<Map.Entry<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>>> iterator =
-      emitters.asMap().entrySet().iterator();
+    // Aggregators that have been idle for a while are retired and removed, so that metrics contexts that are no
+    // longer in use don't hold memory forever.
+    final Iterator<MetricsAggregator> iterator = aggregators.values().iterator();
+
     return new AbstractIterator<MetricValues>() {
       @Override
       protected MetricValues computeNext() {
         while (iterator.hasNext()) {
-          Map.Entry<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>> entry = iterator.next();
-          Map<String, AggregatedMetricsEmitter> metricEmitters = entry.getValue().asMap();
-          // +1 because we add extra metric about how many metric values did we emit in this context (see below)
-          List<MetricValue> metricValues = Lists.newArrayListWithCapacity(metricEmitters.size() + 1);
-          for (Map.Entry<String, AggregatedMetricsEmitter> emitterEntry : metricEmitters.entrySet()) {
-            MetricValue metricValue = emitterEntry.getValue().emit();
-            // skip increment by 0
-            if (metricValue.getType() == MetricType.COUNTER && metricValue.getValue() == 0) {
-              continue;
-            }
-            metricValues.add(metricValue);
+          MetricsAggregator aggregator = iterator.next();
+          List<MetricValue> metricValues = new ArrayList<>();
+          if (aggregator.drain(metricValues) >= maxIdlePublishes) {
+            // Remove it first, so that contexts get a new aggregator once they see this one is retired.
+            // After the retirement no more value can be emitted to it, hence drain once more to collect the values
+            // emitted since the last drain.
+            aggregators.remove(aggregator.getTags(), aggregator);
+            aggregator.retire();
+            aggregator.drain(metricValues);
           }
 
           if (metricValues.isEmpty()) {
@@ -198,11 +198,11 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
             continue;
           }
 
-          // number of emitted metrics
+          // number of emitted metrics, +1 to include this metric
           metricValues.add(new MetricValue("metrics.emitted.count", MetricType.COUNTER, metricValues.size() + 1));
 
           LOG.trace("Emit metric {}", metricValues);
-          return new MetricValues(entry.getKey(), timestamp, metricValues);
+          return new MetricValues(aggregator.getTags(), timestamp, metricValues);
         }
         return endOfData();
       }
@@ -221,19 +221,41 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
   private final class MetricsContextImpl implements MetricsContext {
 
     private final Map<String, String> tags;
+    private volatile MetricsAggregator aggregator;
 
     private MetricsContextImpl(final Map<String, String> tags) {
       this.tags = ImmutableMap.copyOf(tags);
+      this.aggregator = aggregators.computeIfAbsent(this.tags, MetricsAggregator::new);
     }
 
     @Override
     public void increment(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).increment(value);
+      // A retired aggregator rejects the update, in which case it is retried with a new aggregator
+      boolean updated;
+      do {
+        updated = getAggregator().increment(metricName, value);
+      } while (!updated);
     }
 
     @Override
     public void gauge(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).gauge(value);
+      boolean updated;
+      do {
+        updated = getAggregator().gauge(metricName, value);
+      } while (!updated);
+    }
+
+    /**
+     * Returns the {@link MetricsAggregator} for the tags of this context. A new one is used if the current one
+     * was retired due to inactivity.
+     */
+    private MetricsAggregator getAggregator() {
+      MetricsAggregator aggregator = this.aggregator;
+      if (aggregator.isRetired()) {
+        aggregator = aggregators.computeIfAbsent(tags, MetricsAggregator::new);
+        this.aggregator = aggregator;
+      }
+      return aggregator;
     }
 
     @Override
@@ -0,0 +1,240 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.metrics.collect;
+
+import io.cdap.cdap.api.metrics.MetricType;
+import io.cdap.cdap.api.metrics.MetricValue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Aggregates the values of all metrics emitted with the same set of tags.
+ *
+ * Each metric name is interned to an int id the first time it is emitted. Values are kept in primitive arrays
+ * that are allocated in fixed size chunks, so that emitting a metric only involves a name lookup and an atomic
+ * update, without any object allocation. Counters are striped by thread to reduce contention when the same
+ * metric is incremented by many threads concurrently.
+ */
+@ThreadSafe
+final class MetricsAggregator {
+
+  private static final int CHUNK_SHIFT = 4;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+  private static final int STRIPES = Math.min(8, nextPowerOfTwo(Runtime.getRuntime().availableProcessors()));
+  private static final int STRIPE_MASK = STRIPES - 1;
+  // Distance between the in progress update counts of two stripes, such that they don't share the same cache line
+  private static final int UPDATING_PADDING = 16;
+
+  private final Map<String, String> tags;
+  private final ConcurrentMap<String, Integer> metricIds;
+  // Number of updates in progress for each stripe
+  private final AtomicIntegerArray updating;
+  private volatile Chunk[] chunks;
+  private volatile int size;
+  private volatile boolean retired;
+  // Only accessed by the publishing thread
+  private int idleDrains;
+
+  MetricsAggregator(Map<String, String> tags) {
+    this.tags = tags;
+    this.metricIds = new ConcurrentHashMap<>();
+    this.updating = new AtomicIntegerArray(STRIPES * UPDATING_PADDING);
+    this.chunks = new Chunk[1];
+  }
+
+  Map<String, String> getTags() {
+    return tags;
+  }
+
+  /**
+   * Increments the counter of the given metric.
+   *
+   * @return {@code true} if the counter was incremented, or {@code false} if this aggregator is retired
+   */
+  boolean increment(String metricName, long value) {
+    int stripe = stripe();
+    if (!beginUpdate(stripe)) {
+      return false;
+    }
+    try {
+      int id = getId(metricName);
+      chunks[id >>> CHUNK_SHIFT].counters.getAndAdd(stripe * CHUNK_SIZE + (id & CHUNK_MASK), value);
+    } finally {
+      endUpdate(stripe);
+    }
+    return true;
+  }
+
+  /**
+   * Sets the gauge value of the given metric.
+   *
+   * @return {@code true} if the gauge was set, or {@code false} if this aggregator is retired
+   */
+  boolean gauge(String metricName, long value) {
+    int stripe = stripe();
+    if (!beginUpdate(stripe)) {
+      return false;
+    }
+    try {
+      int id = getId(metricName);
+      Chunk chunk = chunks[id >>> CHUNK_SHIFT];
+      int slot = id & CHUNK_MASK;
+      chunk.gauges.set(slot, value);
+      chunk.gaugeUsed.set(slot, 1);
+    } finally {
+      endUpdate(stripe);
+    }
+    return true;
+  }
+
+  /**
+   * Returns {@code true} if this aggregator is no longer being drained. Metrics should be emitted to a new
+   * aggregator for the same tags instead.
+   */
+  boolean isRetired() {
+    return retired;
+  }
+
+  /**
+   * Marks this aggregator as retired and waits for the updates in progress to complete. Updates made after this
+   * method returns are rejected, hence a drain after it collects every value ever emitted to this aggregator.
+   * This method is only called from the publishing thread.
+   */
+  void retire() {
+    retired = true;
+    for (int stripe = 0; stripe < STRIPES; stripe++) {
+      while (updating.get(stripe * UPDATING_PADDING) != 0) {
+        Thread.yield();
+      }
+    }
+  }
+
+  /**
+   * Drains the aggregated values into the given list and resets all counters. Zero counter values are skipped.
+   * This method is not thread safe and is only called from the publishing thread.
+   *
+   * @return the number of drains in a row that have not produced any value, including this one
+   */
+  int drain(List<MetricValue> metricValues) {
+    int size = this.size;
+    Chunk[] chunks = this.chunks;
+    int before = metricValues.size();
+
+    for (int id = 0; id < size; id++) {
+      Chunk chunk = chunks[id >>> CHUNK_SHIFT];
+      int slot = id & CHUNK_MASK;
+
+      long value = 0L;
+      for (int stripe = 0; stripe < STRIPES; stripe++) {
+        // Reset rather than only read, so that concurrent increments are never lost
+        int index = stripe * CHUNK_SIZE + slot;
+        if (chunk.counters.get(index) != 0L) {
+          value += chunk.counters.getAndSet(index, 0L);
+        }
+      }
+
+      if (chunk.gaugeUsed.get(slot) != 0 && chunk.gaugeUsed.getAndSet(slot, 0) != 0) {
+        metricValues.add(new MetricValue(chunk.names[slot], MetricType.GAUGE, chunk.gauges.get(slot)));
+      } else if (value != 0L) {
+        metricValues.add(new MetricValue(chunk.names[slot], MetricType.COUNTER, value));
+      }
+    }
+
+    idleDrains = metricValues.size() == before ? idleDrains + 1 : 0;
+    return idleDrains;
+  }
+
+  private int getId(String metricName) {
+    Integer id = metricIds.get(metricName);
+    return id == null ? intern(metricName) : id;
+  }
+
+  private synchronized int intern(String metricName) {
+    Integer id = metricIds.get(metricName);
+    if (id != null) {
+      return id;
+    }
+
+    int newId = size;
+    int chunkIndex = newId >>> CHUNK_SHIFT;
+    Chunk[] chunks = this.chunks;
+    if (chunkIndex == chunks.length) {
+      // Only the chunk references are copied, hence concurrent updates to existing chunks are not affected.
+      chunks = Arrays.copyOf(chunks, chunks.length * 2);
+    }
+    if (chunks[chunkIndex] == null) {
+      chunks[chunkIndex] = new Chunk();
+    }
+    chunks[chunkIndex].names[newId & CHUNK_MASK] = metricName;
+
+    // Publish the chunks before the size and the id, which are what readers use to access the chunks
+    this.chunks = chunks;
+    size = newId + 1;
+    metricIds.put(metricName, newId);
+    return newId;
+  }
+
+  /**
+   * Registers an update in progress, unless this aggregator is retired. The update count is incremented before
+   * reading the retired flag, while {@link #retire()} sets the flag before reading the counts, hence either the
+   * update sees the flag or the retirement waits for the update.
+   *
+   * @return {@code true} if the update can proceed, in which case {@link #endUpdate(int)} must be called after it
+   */
+  private boolean beginUpdate(int stripe) {
+    updating.incrementAndGet(stripe * UPDATING_PADDING);
+    if (retired) {
+      endUpdate(stripe);
+      return false;
+    }
+    return true;
+  }
+
+  private void endUpdate(int stripe) {
+    updating.decrementAndGet(stripe * UPDATING_PADDING);
+  }
+
+  /**
+   * Returns the stripe for the current thread. Stripes of the same slot in the counters array are
+   * {@link #CHUNK_SIZE} longs apart, hence don't share the same cache line.
+   */
+  private static int stripe() {
+    return (int) Thread.currentThread().getId() & STRIPE_MASK;
+  }
+
+  private static int nextPowerOfTwo(int value) {
+    return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+  }
+
+  /**
+   * A fixed number of metrics values. Chunks are never resized, therefore updates made to them are never lost.
+   */
+  private static final class Chunk {
+    private final String[] names = new String[CHUNK_SIZE];
+    private final AtomicLongArray counters = new AtomicLongArray(STRIPES * CHUNK_SIZE);
+    private final AtomicLongArray gauges = new AtomicLongArray(CHUNK_SIZE);
+    private final AtomicIntegerArray gaugeUsed = new AtomicIntegerArray(CHUNK_SIZE);
+  }
+}
@@ -101,7 +101,8 @@ public class MessagingMetricsProcessorManagerService extends AbstractIdleService
 
   @Override
   protected void startUp() throws Exception {
-    MetricStoreMetricsWriter metricsWriter = new MetricStoreMetricsWriter(metricStore);
+    MetricStoreMetricsWriter metricsWriter = new MetricStoreMetricsWriter(
+      metricStore, cConf.getLong(Constants.Metrics.PROCESSOR_WRITE_BEHIND_MAX_DELAY_MS, 0L) > 0L);
     DefaultMetricsWriterContext context = new DefaultMetricsWriterContext(metricsContext,
                                                                           cConf, metricsWriter.getID());
     metricsWriter.initialize(context);
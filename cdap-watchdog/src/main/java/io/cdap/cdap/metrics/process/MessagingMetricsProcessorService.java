@@ -84,6 +84,8 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
   private final int fetcherLimit;
   private final long maxDelayMillis;
   private final int queueSize;
+  private final long writeBehindMaxDelayMillis;
+  private final int writeBehindMaxMetrics;
   private final BlockingDeque<MetricValues> metricsFromAllTopics;
   private final AtomicBoolean persistingFlag;
   private final boolean limitWriteFrequency;
@@ -97,6 +99,10 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
   private final String metricsPrefixForDelayMetrics;
   private final int instanceId;
   private long metricsProcessedCount;
+  // number of metrics written to the metrics writer but not yet flushed, and the time when the first of them
+  // was written. They are only accessed by the thread that is persisting.
+  private int unflushedMetricsCount;
+  private long unflushedSinceMillis;
   private AtomicLong lastPersistedTime;
   private MetricsConsumerMetaTable metaTable;
   private volatile boolean stopping;
@@ -150,6 +156,8 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
     this.metricsWriter = metricsWriter;
     this.maxDelayMillis = cConf.getLong(Constants.Metrics.PROCESSOR_MAX_DELAY_MS);
     this.queueSize = cConf.getInt(Constants.Metrics.QUEUE_SIZE);
+    this.writeBehindMaxDelayMillis = cConf.getLong(Constants.Metrics.PROCESSOR_WRITE_BEHIND_MAX_DELAY_MS, 0L);
+    this.writeBehindMaxMetrics = cConf.getInt(Constants.Metrics.PROCESSOR_WRITE_BEHIND_MAX_METRICS, 100000);
     this.fetcherLimit = Math.max(1, queueSize / topicNumbers.size()); // fetcherLimit is at least one
     this.metricsContextMap = metricsContext.getTags();
     this.processMetricsThreads = new ArrayList<>();
@@ -226,7 +234,7 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
 
     // Persist metricsFromAllTopics and messageId's after all ProcessMetricsThread's complete.
     // No need to make a copy of metricsFromAllTopics and topicProcessMetaMap because no thread is writing to them
-    persistMetricsAndTopicProcessMeta(metricsFromAllTopics, metadataHandler.getCache());
+    persistMetricsAndTopicProcessMeta(metricsFromAllTopics, metadataHandler.getCache(), true);
   }
 
   private long resolveProcessingInterval(CConfiguration cConf, MetricsWriter metricsWriter, long defaultInterval) {
@@ -259,19 +267,36 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
    * @param metricValues        a deque of {@link MetricValues}
    * @param topicProcessMetaMap a map with each key {@link MetricsMetaKey} representing a key and {@link
    *                            TopicProcessMeta} which has info on messageId and processing stats
+   * @param forceFlush          whether to flush the metrics writer even if the write behind limits are not reached
    */
   private void persistMetricsAndTopicProcessMeta(Deque<MetricValues> metricValues,
-                                                 Map<MetricsMetaKey, TopicProcessMeta> topicProcessMetaMap) {
+                                                 Map<MetricsMetaKey, TopicProcessMeta> topicProcessMetaMap,
+                                                 boolean forceFlush) {
     try {
       if (!metricValues.isEmpty()) {
         persistMetrics(metricValues);
       }
-      metadataHandler.saveCache(topicProcessMetaMap);
+      // With write behind, the metrics writer keeps metrics in memory until it is flushed. The messageId's are only
+      // saved right after a flush, so that they never go beyond the metrics that are written.
+      if (forceFlush || shouldFlush()) {
+        metricsWriter.flush();
+        unflushedMetricsCount = 0;
+        metadataHandler.saveCache(topicProcessMetaMap);
+      }
     } catch (Exception e) {
       LOG.warn("Failed to persist metrics.", e);
     }
   }
 
+  /**
+   * Returns whether the metrics writer should be flushed based on the write behind limits.
+   */
+  private boolean shouldFlush() {
+    return writeBehindMaxDelayMillis <= 0L
+      || unflushedMetricsCount >= writeBehindMaxMetrics
+      || System.currentTimeMillis() - unflushedSinceMillis >= writeBehindMaxDelayMillis;
+  }
+
 
   /**
    * Persist metrics into metric store
@@ -297,6 +322,10 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
 
     metricValues.add(new MetricValues(metricsContextMap, TimeUnit.MILLISECONDS.toSeconds(now), processorMetrics));
     metricsWriter.write(metricValues);
+    if (unflushedMetricsCount == 0) {
+      unflushedSinceMillis = now;
+    }
+    unflushedMetricsCount += metricValues.size();
     metricsProcessedCount += metricValues.size();
     PROGRESS_LOG.debug("{} metrics persisted with {}. Last metric's timestamp: {}",
                        metricsProcessedCount, metricsWriter.getID(), lastMetricTime);
@@ -446,7 +475,7 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
         }
         // Persist the copy of metrics and MessageId's
 
-        persistMetricsAndTopicProcessMeta(metricsCopy, topicProcessMetaMapCopy);
+        persistMetricsAndTopicProcessMeta(metricsCopy, topicProcessMetaMapCopy, false);
       } catch (Exception e) {
         LOG.warn("Failed to persist metrics. Will be retried in next iteration.", e);
       } finally {
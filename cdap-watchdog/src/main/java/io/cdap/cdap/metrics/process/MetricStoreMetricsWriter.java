@@ -32,15 +32,32 @@ import java.util.Collection;
 public class MetricStoreMetricsWriter implements MetricsWriter {
 
   private final MetricStore metricStore;
+  private final boolean buffered;
 
   public MetricStoreMetricsWriter(MetricStore metricStore) {
-    this.metricStore = metricStore;
+    this(metricStore, false);
+  }
 
+  /**
+   * Creates an instance that optionally buffers metrics in the {@link MetricStore} until {@link #flush()} is called.
+   */
+  public MetricStoreMetricsWriter(MetricStore metricStore, boolean buffered) {
+    this.metricStore = metricStore;
+    this.buffered = buffered;
   }
 
   @Override
   public void write(Collection<MetricValues> metricValues) {
-    this.metricStore.add(metricValues);
+    if (buffered) {
+      this.metricStore.addBuffered(metricValues);
+    } else {
+      this.metricStore.add(metricValues);
+    }
+  }
+
+  @Override
+  public void flush() {
+    this.metricStore.flush();
   }
 
   @Override
@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.metrics.query;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import io.cdap.cdap.proto.MetricQueryResult;
+import io.cdap.http.BodyProducer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link BodyProducer} that sends {@link MetricQueryResult}s as JSON in chunks, one time series at a time,
+ * instead of serializing the whole response into a single string. The JSON produced is the same as
+ * the one produced by {@link Gson} for the {@link MetricQueryResult} or the map of batch query results.
+ */
+final class MetricQueryResultProducer extends BodyProducer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MetricQueryResultProducer.class);
+  private static final Gson GSON = new Gson();
+  private static final int BUFFER_BYTES = 8192;
+
+  private final Iterator<Map.Entry<String, MetricQueryResult>> results;
+  private final boolean batch;
+  private final ByteBuf buffer;
+  private final JsonWriter jsonWriter;
+
+  private boolean started;
+  private boolean finished;
+  private MetricQueryResult current;
+  private int seriesIndex;
+
+  /**
+   * Creates a producer for the result of a single query.
+   */
+  MetricQueryResultProducer(MetricQueryResult result) {
+    this(Collections.singletonMap(null, result), false);
+  }
+
+  /**
+   * Creates a producer for the results of batch queries, which are sent as a JSON object keyed by the query names.
+   */
+  MetricQueryResultProducer(Map<String, MetricQueryResult> results) {
+    this(results, true);
+  }
+
+  private MetricQueryResultProducer(Map<String, MetricQueryResult> results, boolean batch) {
+    this.results = results.entrySet().iterator();
+    this.batch = batch;
+    this.buffer = Unpooled.buffer(BUFFER_BYTES);
+    this.jsonWriter = new JsonWriter(new OutputStreamWriter(new ByteBufOutputStream(buffer),
+                                                            StandardCharsets.UTF_8));
+    // Same settings as the default Gson instance
+    this.jsonWriter.setHtmlSafe(true);
+    this.jsonWriter.setSerializeNulls(false);
+  }
+
+  HttpHeaders getResponseHeaders() {
+    return new DefaultHttpHeaders().set(HttpHeaderNames.CONTENT_TYPE, "application/json");
+  }
+
+  @Override
+  public ByteBuf nextChunk() throws Exception {
+    if (finished) {
+      return Unpooled.EMPTY_BUFFER;
+    }
+
+    buffer.clear();
+    while (!finished && buffer.readableBytes() < BUFFER_BYTES) {
+      writeNext();
+      jsonWriter.flush();
+    }
+    return buffer.copy();
+  }
+
+  @Override
+  public void finished() {
+    buffer.release();
+  }
+
+  @Override
+  public void handleError(@Nullable Throwable cause) {
+    LOG.error("Received error while sending metrics query result.", cause);
+    buffer.release();
+  }
+
+  /**
+   * Writes the next part of the response, which is either the beginning of a query result, a time series,
+   * or the end of a query result.
+   */
+  private void writeNext() throws IOException {
+    if (!started) {
+      started = true;
+      if (batch) {
+        jsonWriter.beginObject();
+      }
+      return;
+    }
+
+    if (current == null) {
+      if (!results.hasNext()) {
+        if (batch) {
+          jsonWriter.endObject();
+        }
+        finished = true;
+        return;
+      }
+      Map.Entry<String, MetricQueryResult> entry = results.next();
+      if (batch) {
+        jsonWriter.name(entry.getKey());
+      }
+      current = entry.getValue();
+      seriesIndex = 0;
+      jsonWriter.beginObject()
+        .name("startTime").value(current.getStartTime())
+        .name("endTime").value(current.getEndTime())
+        .name("series").beginArray();
+      return;
+    }
+
+    MetricQueryResult.TimeSeries[] series = current.getSeries();
+    if (seriesIndex < series.length) {
+      GSON.toJson(series[seriesIndex++], MetricQueryResult.TimeSeries.class, jsonWriter);
+      return;
+    }
+
+    jsonWriter.endArray()
+      .name("resolution").value(current.getResolution())
+      .endObject();
+    current = null;
+  }
+}
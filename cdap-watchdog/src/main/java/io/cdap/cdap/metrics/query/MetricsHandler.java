@@ -103,13 +103,13 @@ public class MetricsHandler extends AbstractHttpHandler {
           Map<String, MetricsQueryHelper.QueryRequestFormat> queries =
             GSON.fromJson(request.content().toString(StandardCharsets.UTF_8),
                           new TypeToken<Map<String, MetricsQueryHelper.QueryRequestFormat>>() { }.getType());
-          responder.sendJson(HttpResponseStatus.OK, GSON.toJson(metricsQueryHelper.executeBatchQueries(queries)));
+          sendResult(responder, new MetricQueryResultProducer(metricsQueryHelper.executeBatchQueries(queries)));
           return;
         }
         responder.sendJson(HttpResponseStatus.BAD_REQUEST, "Batch request with empty content");
       }
-      responder.sendJson(HttpResponseStatus.OK,
-                         GSON.toJson(metricsQueryHelper.executeTagQuery(tags, metrics, groupBy, queryParams)));
+      sendResult(responder, new MetricQueryResultProducer(
+        metricsQueryHelper.executeTagQuery(tags, metrics, groupBy, queryParams)));
     } catch (IllegalArgumentException e) {
       LOG.warn("Invalid request", e);
       responder.sendString(HttpResponseStatus.BAD_REQUEST, e.getMessage());
@@ -119,6 +119,13 @@ public class MetricsHandler extends AbstractHttpHandler {
     }
   }
 
+  /**
+   * Sends the query result in chunks, so that large results are not serialized into a single string in memory.
+   */
+  private void sendResult(HttpResponder responder, MetricQueryResultProducer producer) {
+    responder.sendContent(HttpResponseStatus.OK, producer, producer.getResponseHeaders());
+  }
+
   @GET
   @Path("/processor/status")
   public void processorStatus(HttpRequest request, HttpResponder responder) throws Exception {
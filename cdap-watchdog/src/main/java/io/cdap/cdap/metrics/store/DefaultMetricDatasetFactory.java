@@ -60,7 +60,9 @@ public class DefaultMetricDatasetFactory implements MetricDatasetFactory {
     this.entityTable = Suppliers.memoize(() -> {
       String tableName = cConf.get(Constants.Metrics.ENTITY_TABLE_NAME,
                                    Constants.Metrics.DEFAULT_ENTITY_TABLE_NAME);
-      return new EntityTable(getOrCreateMetricsTable(tableName, DatasetProperties.EMPTY));
+      return new EntityTable(getOrCreateMetricsTable(tableName, DatasetProperties.EMPTY), EntityTable.MAX_ID_COUNT,
+                             cConf.getLong(Constants.Metrics.ENTITY_CACHE_MAX_BYTES,
+                                           EntityTable.DEFAULT_CACHE_MAX_BYTES));
     });
   }
 
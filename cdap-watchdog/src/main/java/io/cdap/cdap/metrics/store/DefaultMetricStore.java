@@ -24,7 +24,6 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.inject.Inject;
-import io.cdap.cdap.api.dataset.lib.cube.Cube;
 import io.cdap.cdap.api.dataset.lib.cube.CubeDeleteQuery;
 import io.cdap.cdap.api.dataset.lib.cube.CubeExploreQuery;
 import io.cdap.cdap.api.dataset.lib.cube.CubeFact;
@@ -90,7 +89,7 @@ public class DefaultMetricStore implements MetricStore {
                     new AggregationAlias(ImmutableMap.of(Constants.Metrics.Tag.RUN_ID,
                                                          Constants.Metrics.Tag.WORKFLOW_RUN_ID)));
 
-  private final Supplier<Cube> cube;
+  private final Supplier<DefaultCube> cube;
   private final Supplier<MetricsConsumerMetaTable> metaTableSupplier;
   private MetricsContext metricsContext;
   private final List<TopicId> metricsTopics;
@@ -218,9 +217,9 @@ public class DefaultMetricStore implements MetricStore {
       // TODO: remove roll time from the supplier api, https://issues.cask.co/browse/CDAP-14730
       return dsFactory.getOrCreateFactTable(resolution);
     };
-    this.cube = Suppliers.memoize(new Supplier<Cube>() {
+    this.cube = Suppliers.memoize(new Supplier<DefaultCube>() {
       @Override
-      public Cube get() {
+      public DefaultCube get() {
         DefaultCube cube = new DefaultCube(resolutions, factTableSupplier, AGGREGATIONS, AGGREGATIONS_ALIAS_DIMENSIONS);
         cube.setMetricsCollector(metricsContext);
         return cube;
@@ -248,6 +247,20 @@ public class DefaultMetricStore implements MetricStore {
 
   @Override
   public void add(Collection<? extends MetricValues> metricValues) {
+    cube.get().add(toCubeFacts(metricValues));
+  }
+
+  @Override
+  public void addBuffered(Collection<? extends MetricValues> metricValues) {
+    cube.get().addBuffered(toCubeFacts(metricValues));
+  }
+
+  @Override
+  public void flush() {
+    cube.get().flush();
+  }
+
+  private List<CubeFact> toCubeFacts(Collection<? extends MetricValues> metricValues) {
     List<CubeFact> facts = Lists.newArrayListWithCapacity(metricValues.size());
     for (MetricValues metricValue : metricValues) {
       String scope = metricValue.getTags().get(Constants.Metrics.Tag.SCOPE);
@@ -264,7 +277,7 @@ public class DefaultMetricStore implements MetricStore {
         .addMeasurements(metrics);
       facts.add(fact);
     }
-    cube.get().add(facts);
+    return facts;
   }
 
   @Override
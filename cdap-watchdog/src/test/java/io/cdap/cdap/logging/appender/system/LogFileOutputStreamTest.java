@@ -0,0 +1,215 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.appender.system;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import com.google.common.base.Strings;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.logging.filter.Filter;
+import io.cdap.cdap.logging.filter.TextSearchExpression;
+import io.cdap.cdap.logging.read.LogEvent;
+import io.cdap.cdap.logging.write.LogFileIndex;
+import io.cdap.cdap.logging.write.LogFileTermIndex;
+import io.cdap.cdap.logging.write.LogLocation;
+import org.apache.twill.filesystem.LocalLocationFactory;
+import org.apache.twill.filesystem.Location;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link LogFileOutputStream} and reading the log files written by it through {@link LogLocation},
+ * with and without the {@link LogFileIndex} and the {@link LogFileTermIndex}.
+ */
+public class LogFileOutputStreamTest {
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  private static final long BASE_TIME = 1650000000000L;
+
+  @Test
+  public void testIndexedReadNext() throws Exception {
+    // Timestamps that are not in order, which is possible for events from multiple processes
+    Random random = new Random();
+    List<ILoggingEvent> events = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      events.add(createEvent(BASE_TIME + i * 10 + random.nextInt(50), i));
+    }
+    LogLocation logLocation = writeLogFile(events, 4096);
+    Assert.assertTrue(readIndex(logLocation).size() > 1);
+
+    for (long fromTime : new long[] { 0, BASE_TIME + 15, BASE_TIME + 10000, BASE_TIME + 19995, BASE_TIME + 30000 }) {
+      List<String> expected = new ArrayList<>();
+      for (ILoggingEvent event : events) {
+        if (event.getTimeStamp() >= fromTime) {
+          expected.add(event.getFormattedMessage());
+        }
+      }
+      Assert.assertEquals(expected, readNext(logLocation, fromTime));
+    }
+  }
+
+  @Test
+  public void testIndexedReadPrev() throws Exception {
+    // Timestamps in order, with multiple events of the same timestamp
+    List<ILoggingEvent> events = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      events.add(createEvent(BASE_TIME + i / 3, i));
+    }
+    LogLocation logLocation = writeLogFile(events, 4096);
+    Assert.assertTrue(readIndex(logLocation).size() > 1);
+
+    long[] fromTimes = { BASE_TIME - 1, BASE_TIME, BASE_TIME + 100, BASE_TIME + 400, BASE_TIME + 1000 };
+    List<List<String>> indexedResults = new ArrayList<>();
+    for (long fromTime : fromTimes) {
+      List<String> expected = new ArrayList<>();
+      for (ILoggingEvent event : events) {
+        if (event.getTimeStamp() <= fromTime) {
+          expected.add(event.getFormattedMessage());
+        }
+      }
+      expected = expected.subList(Math.max(0, expected.size() - 100), expected.size());
+      List<String> result = readPrev(logLocation, fromTime, 100);
+      Assert.assertEquals(expected, result);
+      indexedResults.add(result);
+    }
+
+    // Without the index, the result should be the same
+    Assert.assertTrue(LogFileIndex.getIndexLocation(logLocation.getLocation()).delete());
+    for (int i = 0; i < fromTimes.length; i++) {
+      Assert.assertEquals(indexedResults.get(i), readPrev(logLocation, fromTimes[i], 100));
+    }
+  }
+
+  @Test
+  public void testNoIndex() throws Exception {
+    List<ILoggingEvent> events = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      events.add(createEvent(BASE_TIME + i, i));
+    }
+    LogLocation logLocation = writeLogFile(events, 0);
+    Assert.assertFalse(LogFileIndex.getIndexLocation(logLocation.getLocation()).exists());
+    Assert.assertEquals(50, readNext(logLocation, BASE_TIME + 50).size());
+    Assert.assertEquals(10, readPrev(logLocation, BASE_TIME + 50, 10).size());
+  }
+
+  @Test
+  public void testTermIndexSearch() throws Exception {
+    List<ILoggingEvent> events = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      String message = i % 300 == 7 ? "Connection refused by host-" + i : "event " + i + " " + Strings.repeat("x", 50);
+      events.add(createEvent(BASE_TIME + i, message));
+    }
+    LogLocation logLocation = writeLogFile(events, 4096, true);
+    Assert.assertTrue(LogFileTermIndex.getIndexLocation(logLocation.getLocation()).exists());
+
+    Filter filter = new TextSearchExpression("REFUSED host");
+    for (long fromTime : new long[] { 0, BASE_TIME + 700, BASE_TIME + 1908, BASE_TIME + 3000 }) {
+      List<String> expected = new ArrayList<>();
+      for (ILoggingEvent event : events) {
+        if (event.getTimeStamp() >= fromTime && filter.match(event)) {
+          expected.add(event.getFormattedMessage());
+        }
+      }
+      Assert.assertEquals(expected, readNext(logLocation, filter, fromTime));
+    }
+    Assert.assertEquals(7, readNext(logLocation, filter, 0).size());
+
+    // Terms that are not in the file don't match anything
+    Assert.assertTrue(readNext(logLocation, new TextSearchExpression("refused missing"), 0).isEmpty());
+
+    // Words that are not index terms, such as numbers, are still matched against each event
+    Assert.assertEquals(Collections.singletonList("Connection refused by host-607"),
+                        readNext(logLocation, new TextSearchExpression("refused 607"), 0));
+    Assert.assertEquals(Collections.singletonList("event 1000 " + Strings.repeat("x", 50)),
+                        readNext(logLocation, new TextSearchExpression("1000"), 0));
+
+    // Without the term index, the result should be the same
+    List<String> indexedResult = readNext(logLocation, filter, BASE_TIME + 700);
+    Assert.assertTrue(LogFileTermIndex.getIndexLocation(logLocation.getLocation()).delete());
+    Assert.assertEquals(indexedResult, readNext(logLocation, filter, BASE_TIME + 700));
+  }
+
+  private LogLocation writeLogFile(List<ILoggingEvent> events, int indexIntervalBytes) throws Exception {
+    return writeLogFile(events, indexIntervalBytes, false);
+  }
+
+  private LogLocation writeLogFile(List<ILoggingEvent> events, int indexIntervalBytes,
+                                   boolean termIndexEnabled) throws Exception {
+    Location location = new LocalLocationFactory(TMP_FOLDER.newFolder()).create("log.avro");
+    try (LogFileOutputStream outputStream = new LogFileOutputStream(location, "", 1024, indexIntervalBytes,
+                                                                    termIndexEnabled, BASE_TIME, () -> { })) {
+      for (ILoggingEvent event : events) {
+        outputStream.append(event);
+      }
+    }
+    return new LogLocation(LogLocation.VERSION_1, BASE_TIME, BASE_TIME, location, "default", null);
+  }
+
+  private LogFileIndex readIndex(LogLocation logLocation) throws Exception {
+    try (InputStream is = LogFileIndex.getIndexLocation(logLocation.getLocation()).getInputStream()) {
+      return LogFileIndex.read(is);
+    }
+  }
+
+  private List<String> readNext(LogLocation logLocation, long fromTime) {
+    return readNext(logLocation, Filter.EMPTY_FILTER, fromTime);
+  }
+
+  private List<String> readNext(LogLocation logLocation, Filter filter, long fromTime) {
+    List<String> messages = new ArrayList<>();
+    try (CloseableIterator<LogEvent> iterator = logLocation.readLog(filter, fromTime,
+                                                                    Long.MAX_VALUE, Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        messages.add(iterator.next().getLoggingEvent().getFormattedMessage());
+      }
+    }
+    return messages;
+  }
+
+  private List<String> readPrev(LogLocation logLocation, long fromTime, int maxEvents) throws Exception {
+    List<String> messages = new ArrayList<>();
+    for (LogEvent event : logLocation.readLogPrev(Filter.EMPTY_FILTER, fromTime, maxEvents)) {
+      messages.add(event.getLoggingEvent().getFormattedMessage());
+    }
+    return messages;
+  }
+
+  private ILoggingEvent createEvent(long timestamp, int id) {
+    return createEvent(timestamp, "event " + id + " " + Strings.repeat("x", 50));
+  }
+
+  private ILoggingEvent createEvent(long timestamp, String message) {
+    LoggingEvent event = new LoggingEvent(getClass().getName(),
+                                          (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME),
+                                          Level.INFO, message, null, null);
+    event.setTimeStamp(timestamp);
+    return event;
+  }
+}
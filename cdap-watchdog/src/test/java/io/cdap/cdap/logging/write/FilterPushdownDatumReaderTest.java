@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.write;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.logging.filter.AndFilter;
+import io.cdap.cdap.logging.filter.Filter;
+import io.cdap.cdap.logging.filter.LogLevelExpression;
+import io.cdap.cdap.logging.filter.MdcExpression;
+import io.cdap.cdap.logging.filter.OrFilter;
+import io.cdap.cdap.logging.serialize.LoggingEvent;
+import io.cdap.cdap.logging.serialize.LoggingEventSerializer;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit test for {@link FilterPushdownDatumReader}.
+ */
+public class FilterPushdownDatumReaderTest {
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testPushdown() throws Exception {
+    File file = writeEvents();
+    List<GenericRecord> expected = read(file, new GenericDatumReader<>());
+
+    Filter filter = new AndFilter(ImmutableList.of(
+      new LogLevelExpression("WARN"),
+      new OrFilter(ImmutableList.of(new MdcExpression("run", "run1"), new MdcExpression("run", "run3")))));
+    Assert.assertTrue(filter.isPushdownSupported());
+
+    List<GenericRecord> records = read(file, new FilterPushdownDatumReader(filter));
+    Assert.assertEquals(expected.size(), records.size());
+    int matched = 0;
+    for (int i = 0; i < records.size(); i++) {
+      ILoggingEvent expectedEvent = new LoggingEvent(expected.get(i));
+      ILoggingEvent event = new LoggingEvent(records.get(i));
+      Assert.assertEquals(expectedEvent.getTimeStamp(), event.getTimeStamp());
+
+      if (filter.match(expectedEvent)) {
+        // Matched events are fully decoded
+        matched++;
+        Assert.assertEquals(expected.get(i), records.get(i));
+      } else {
+        // Fields other than the timestamp, level and MDC are not decoded
+        Assert.assertFalse(filter.match(event));
+        Assert.assertNull(event.getFormattedMessage());
+        Assert.assertNull(event.getThrowableProxy());
+      }
+    }
+    Assert.assertTrue(matched > 0);
+  }
+
+  @Test
+  public void testNoPushdown() throws Exception {
+    File file = writeEvents();
+    List<GenericRecord> expected = read(file, new GenericDatumReader<>());
+
+    // Filter that doesn't support pushdown, all the records should be fully decoded
+    Filter filter = event -> event.getFormattedMessage().endsWith("0");
+    Assert.assertFalse(filter.isPushdownSupported());
+    Assert.assertFalse(new AndFilter(ImmutableList.of(new LogLevelExpression("WARN"), filter)).isPushdownSupported());
+    Assert.assertEquals(expected, read(file, new FilterPushdownDatumReader(filter)));
+  }
+
+  private File writeEvents() throws IOException {
+    LoggingEventSerializer serializer = new LoggingEventSerializer();
+    File file = TMP_FOLDER.newFile();
+    Logger logger = (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+    Level[] levels = { Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR };
+
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(
+      new GenericDatumWriter<GenericRecord>(serializer.getAvroSchema()))) {
+      writer.create(serializer.getAvroSchema(), file);
+      for (int i = 0; i < 100; i++) {
+        Level level = levels[i % levels.length];
+        Throwable throwable = level == Level.ERROR ? new IOException("Failure " + i) : null;
+        ch.qos.logback.classic.spi.LoggingEvent event =
+          new ch.qos.logback.classic.spi.LoggingEvent(getClass().getName(), logger, level, "Message " + i,
+                                                      throwable, null);
+        event.setTimeStamp(1650000000000L + i);
+        event.setMDCPropertyMap(ImmutableMap.of("run", "run" + (i % 5)));
+        writer.append(serializer.toGenericRecord(event));
+      }
+    }
+    return file;
+  }
+
+  private List<GenericRecord> read(File file, GenericDatumReader<GenericRecord> datumReader) throws IOException {
+    List<GenericRecord> records = new ArrayList<>();
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, datumReader)) {
+      while (reader.hasNext()) {
+        records.add(reader.next());
+      }
+    }
+    return records;
+  }
+}
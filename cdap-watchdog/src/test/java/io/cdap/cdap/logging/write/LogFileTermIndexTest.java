@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.write;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Unit test for {@link LogFileTermIndex}.
+ */
+public class LogFileTermIndexTest {
+
+  @Test
+  public void testFindSegments() throws IOException {
+    LogFileTermIndex.Builder builder = new LogFileTermIndex.Builder(100);
+    builder.addEvent(0, createEvent("Starting program", null));
+    builder.addEvent(0, createEvent("Connection refused", null));
+    builder.addEvent(2, createEvent("Retry 3 of connection", null));
+    builder.addEvent(200, createEvent("Failed to start", new IllegalStateException("Connection refused")));
+    builder.addEvent(200, createEvent("Program completed", null));
+    Assert.assertTrue(builder.canWrite());
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    builder.writeTo(os);
+    byte[] index = os.toByteArray();
+
+    Assert.assertArrayEquals(new int[] { 0, 2, 200 }, findSegments(index, ImmutableSet.of("connection")));
+    Assert.assertArrayEquals(new int[] { 0, 200 }, findSegments(index, ImmutableSet.of("connection", "refused")));
+    // Terms in the throwable are indexed too
+    Assert.assertArrayEquals(new int[] { 200 }, findSegments(index, ImmutableSet.of("illegalstateexception")));
+    // Terms in different segments don't match
+    Assert.assertArrayEquals(new int[0], findSegments(index, ImmutableSet.of("retry", "completed")));
+    // Missing term, and digits only term that is never indexed
+    Assert.assertArrayEquals(new int[0], findSegments(index, ImmutableSet.of("connection", "missing")));
+    Assert.assertArrayEquals(new int[0], findSegments(index, ImmutableSet.of("3")));
+  }
+
+  @Test
+  public void testMaxTerms() {
+    LogFileTermIndex.Builder builder = new LogFileTermIndex.Builder(3);
+    builder.addEvent(0, createEvent("one two three", null));
+    Assert.assertTrue(builder.canWrite());
+    builder.addEvent(1, createEvent("three four", null));
+    Assert.assertFalse(builder.canWrite());
+    builder.addEvent(2, createEvent("one", null));
+    Assert.assertFalse(builder.canWrite());
+  }
+
+  private int[] findSegments(byte[] index, Set<String> terms) throws IOException {
+    return LogFileTermIndex.findSegments(new ByteArrayInputStream(index), terms);
+  }
+
+  private ILoggingEvent createEvent(String message, Throwable throwable) {
+    return new LoggingEvent(getClass().getName(), (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME),
+                            Level.INFO, message, throwable, null);
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.write;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.logging.filter.Filter;
+import io.cdap.cdap.logging.filter.LogLevelExpression;
+import io.cdap.cdap.logging.read.LogEvent;
+import io.cdap.cdap.logging.serialize.LoggingEventSerializer;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.twill.filesystem.LocalLocationFactory;
+import org.apache.twill.filesystem.Location;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A benchmark that compares reading a log file with a selective filter, with and without pushing the filter down
+ * to the Avro decoding in {@link LogLocation}. The log file mimics DEBUG heavy Spark logs, with stack traces on
+ * some of the events. It is not run as part of the unit tests.
+ *
+ * Usage: {@code LogReadBenchmark [events] [level]}
+ */
+public final class LogReadBenchmark {
+
+  private static final long BASE_TIME = 1650000000000L;
+
+  public static void main(String[] args) throws Exception {
+    int events = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+    String level = args.length > 1 ? args[1] : "ERROR";
+
+    File dir = Files.createTempDirectory("log-read-benchmark").toFile();
+    try {
+      Location location = new LocalLocationFactory(dir).create("logs.avro");
+      writeLogFile(location, events);
+      System.out.printf("events=%,d  file size=%,d bytes  filter=loglevel=%s%n", events, location.length(), level);
+
+      LogLocation logLocation = new LogLocation(LogLocation.VERSION_1, BASE_TIME, BASE_TIME, location, "default", null);
+      Filter pushdown = new LogLevelExpression(level);
+      // Same filter, but without pushdown support
+      Filter noPushdown = pushdown::match;
+
+      // Run twice to have the first round as warm up
+      for (int i = 0; i < 2; i++) {
+        run("full decode", logLocation, noPushdown);
+        run("pushdown", logLocation, pushdown);
+      }
+    } finally {
+      for (File file : dir.listFiles()) {
+        file.delete();
+      }
+      dir.delete();
+    }
+  }
+
+  private static void run(String name, LogLocation logLocation, Filter filter) {
+    long startTime = System.nanoTime();
+    int count = 0;
+    try (CloseableIterator<LogEvent> iterator = logLocation.readLog(filter, 0, Long.MAX_VALUE, Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        iterator.next();
+        count++;
+      }
+    }
+    long elapsed = System.nanoTime() - startTime;
+    System.out.printf("%-12s matched=%,d  time=%,d ms%n", name, count, TimeUnit.NANOSECONDS.toMillis(elapsed));
+  }
+
+  private static void writeLogFile(Location location, int events) throws IOException {
+    LoggingEventSerializer serializer = new LoggingEventSerializer();
+    Logger logger = (Logger) LoggerFactory.getLogger("org.apache.spark.scheduler.TaskSetManager");
+    Random random = new Random(0);
+
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(
+      new GenericDatumWriter<GenericRecord>(serializer.getAvroSchema()))) {
+      writer.create(serializer.getAvroSchema(), location.getOutputStream());
+      for (int i = 0; i < events; i++) {
+        // 80% DEBUG, 15% INFO, 4% WARN and 1% ERROR, with stack traces on WARN and ERROR
+        int r = random.nextInt(100);
+        Level level = r < 80 ? Level.DEBUG : r < 95 ? Level.INFO : r < 99 ? Level.WARN : Level.ERROR;
+        Throwable throwable = level.isGreaterOrEqual(Level.WARN) ? new IOException("Lost executor " + i) : null;
+        ch.qos.logback.classic.spi.LoggingEvent event = new ch.qos.logback.classic.spi.LoggingEvent(
+          LogReadBenchmark.class.getName(), logger, level,
+          "Finished task " + i + " in stage 3.0 (TID " + i + ") in 25 ms on executor 1 (" + i + "/" + events + ")",
+          throwable, null);
+        event.setTimeStamp(BASE_TIME + i);
+        event.setMDCPropertyMap(ImmutableMap.of(".namespaceId", "default", ".applicationId", "pipeline",
+                                                ".sparkId", "phase-1", ".runId", "run"));
+        event.setCallerData(new Throwable().getStackTrace());
+        writer.append(serializer.toGenericRecord(event));
+      }
+    }
+  }
+
+  private LogReadBenchmark() {
+    // no-op
+  }
+}
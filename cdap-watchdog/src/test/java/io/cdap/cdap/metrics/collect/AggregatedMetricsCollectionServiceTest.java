@@ -21,16 +21,22 @@ import io.cdap.cdap.api.metrics.MetricValue;
 import io.cdap.cdap.api.metrics.MetricValues;
 import io.cdap.cdap.api.metrics.MetricsContext;
 import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.utils.Tasks;
 import io.cdap.cdap.test.SlowTests;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
@@ -139,6 +145,83 @@ public class AggregatedMetricsCollectionServiceTest {
     }
   }
 
+  @Test
+  public void testRetirement() throws Exception {
+    BlockingQueue<MetricValues> published = new LinkedBlockingQueue<>();
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService(50L, 2) {
+      @Override
+      protected void publish(Iterator<MetricValues> metrics) {
+        Iterators.addAll(published, metrics);
+      }
+    };
+
+    service.startAndWait();
+    try {
+      MetricsContext context = service.getContext(ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, NAMESPACE));
+      context.increment(METRIC, 1);
+      Assert.assertEquals(1, service.getAggregatorCount());
+      verifyCounterMetricsValue(published, ImmutableMap.of(1, ImmutableMap.of(METRIC, 1L)));
+
+      // The aggregator is retired after publishes without any value
+      Tasks.waitFor(0, service::getAggregatorCount, 10, TimeUnit.SECONDS, 10, TimeUnit.MILLISECONDS);
+
+      // The context uses a new aggregator after retirement
+      context.increment(METRIC, 2);
+      context.gauge(GAUGE_METRIC, 3);
+      Assert.assertEquals(1, service.getAggregatorCount());
+      verifyCounterMetricsValue(published, ImmutableMap.of(1, ImmutableMap.of(METRIC, 2L, GAUGE_METRIC, 3L)));
+    } finally {
+      service.stopAndWait();
+    }
+  }
+
+  @Test
+  public void testConcurrentRetirement() throws Exception {
+    BlockingQueue<MetricValues> published = new LinkedBlockingQueue<>();
+    // Retire aggregators after every publish without value, so that retirements race with the increments
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService(1L, 1) {
+      @Override
+      protected void publish(Iterator<MetricValues> metrics) {
+        Iterators.addAll(published, metrics);
+      }
+    };
+
+    int threads = 4;
+    int increments = 2000;
+    service.startAndWait();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      MetricsContext context = service.getContext(EMPTY_TAGS);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < increments; j++) {
+            context.increment(METRIC, 1);
+            // Pause once in a while to let the aggregator become idle
+            if (j % 100 == 0) {
+              TimeUnit.MILLISECONDS.sleep(5);
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(1, TimeUnit.MINUTES);
+      }
+    } finally {
+      executor.shutdownNow();
+      service.stopAndWait();
+    }
+
+    // Stopping the service publishes all the remaining values
+    long total = 0L;
+    for (MetricValues metricValues : published) {
+      Long value = getMetricValue(metricValues.getMetrics(), METRIC);
+      total += value == null ? 0L : value;
+    }
+    Assert.assertEquals((long) threads * increments, total);
+  }
+
   private void verifyCounterMetricsValue(BlockingQueue<MetricValues> published,
                                          Map<Integer, Map<String, Long>> expected) throws InterruptedException {
     Map<Integer, Map<String, Long>> received = new HashMap<>();
@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.metrics.collect;
+
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.api.metrics.MetricType;
+import io.cdap.cdap.api.metrics.MetricValue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link MetricsAggregator}.
+ */
+public class MetricsAggregatorTest {
+
+  @Test
+  public void testAggregation() {
+    MetricsAggregator aggregator = new MetricsAggregator(ImmutableMap.of("ns", "default"));
+
+    // More metrics than a chunk can hold
+    for (int i = 0; i < 40; i++) {
+      Assert.assertTrue(aggregator.increment("counter" + i, i));
+      Assert.assertTrue(aggregator.increment("counter" + i, 1));
+    }
+    Assert.assertTrue(aggregator.gauge("gauge", 5));
+    Assert.assertTrue(aggregator.gauge("gauge", 3));
+
+    Map<String, MetricValue> values = drain(aggregator, 0);
+    Assert.assertEquals(41, values.size());
+    for (int i = 0; i < 40; i++) {
+      MetricValue value = values.get("counter" + i);
+      Assert.assertEquals(MetricType.COUNTER, value.getType());
+      Assert.assertEquals(i + 1, value.getValue());
+    }
+    Assert.assertEquals(MetricType.GAUGE, values.get("gauge").getType());
+    Assert.assertEquals(3L, values.get("gauge").getValue());
+
+    // Values are reset by drain, and drains without values are counted
+    Assert.assertTrue(drain(aggregator, 1).isEmpty());
+    Assert.assertTrue(drain(aggregator, 2).isEmpty());
+    Assert.assertTrue(aggregator.increment("counter0", 2));
+    Assert.assertEquals(2L, drain(aggregator, 0).get("counter0").getValue());
+  }
+
+  @Test
+  public void testConcurrentIncrements() throws Exception {
+    MetricsAggregator aggregator = new MetricsAggregator(ImmutableMap.of());
+    int threads = 8;
+    int increments = 10000;
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < increments; j++) {
+            aggregator.increment("counter" + (j % 20), 1);
+          }
+        }));
+      }
+
+      // Drain concurrently with the increments, no increment should be lost
+      long total = 0L;
+      for (Future<?> future : futures) {
+        while (!future.isDone()) {
+          total += sum(drain(aggregator));
+        }
+        future.get(10, TimeUnit.SECONDS);
+      }
+      total += sum(drain(aggregator));
+      Assert.assertEquals((long) threads * increments, total);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testRetire() {
+    MetricsAggregator aggregator = new MetricsAggregator(ImmutableMap.of());
+    Assert.assertTrue(aggregator.increment("counter", 1));
+    Assert.assertFalse(aggregator.isRetired());
+
+    aggregator.retire();
+    Assert.assertTrue(aggregator.isRetired());
+
+    // Updates are rejected after retirement, while values emitted before are still drained
+    Assert.assertFalse(aggregator.increment("counter", 1));
+    Assert.assertFalse(aggregator.gauge("gauge", 1));
+    Map<String, MetricValue> values = drain(aggregator, 0);
+    Assert.assertEquals(1, values.size());
+    Assert.assertEquals(1L, values.get("counter").getValue());
+  }
+
+  private static Map<String, MetricValue> drain(MetricsAggregator aggregator, int expectedIdleDrains) {
+    List<MetricValue> metricValues = new ArrayList<>();
+    Assert.assertEquals(expectedIdleDrains, aggregator.drain(metricValues));
+    return toMap(metricValues);
+  }
+
+  private static Map<String, MetricValue> drain(MetricsAggregator aggregator) {
+    List<MetricValue> metricValues = new ArrayList<>();
+    aggregator.drain(metricValues);
+    return toMap(metricValues);
+  }
+
+  private static Map<String, MetricValue> toMap(List<MetricValue> metricValues) {
+    Map<String, MetricValue> values = new HashMap<>();
+    for (MetricValue value : metricValues) {
+      values.put(value.getName(), value);
+    }
+    return values;
+  }
+
+  private static long sum(Map<String, MetricValue> values) {
+    return values.values().stream().mapToLong(MetricValue::getValue).sum();
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.metrics.collect;
+
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.api.metrics.MetricValue;
+import io.cdap.cdap.api.metrics.MetricValues;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.common.conf.Constants;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A benchmark that measures the cost of emitting metrics through the {@link AggregatedMetricsCollectionService}
+ * with multiple threads emitting to the same metrics, which is the pattern of tasks emitting metrics per record.
+ * It is not run as part of the unit tests.
+ *
+ * Usage: {@code MetricsCollectionBenchmark [threads] [durationSeconds]}
+ */
+public final class MetricsCollectionBenchmark {
+
+  private static final String[] METRIC_NAMES = {
+    "user.records.in", "user.records.out", "user.bytes.out", "user.records.error"
+  };
+
+  public static void main(String[] args) throws Exception {
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+    int duration = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+    // Run twice to have the first round as warm up
+    for (int i = 0; i < 2; i++) {
+      run(1, duration);
+      run(threads, duration);
+    }
+  }
+
+  private static void run(int threads, int duration) throws Exception {
+    LongAdder published = new LongAdder();
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService(1000L) {
+      @Override
+      protected void publish(Iterator<MetricValues> metrics) {
+        while (metrics.hasNext()) {
+          for (MetricValue value : metrics.next().getMetrics()) {
+            if (!"metrics.emitted.count".equals(value.getName())) {
+              published.add(value.getValue());
+            }
+          }
+        }
+      }
+    };
+    service.startAndWait();
+
+    AtomicBoolean stopped = new AtomicBoolean();
+    LongAdder emitted = new LongAdder();
+    CountDownLatch completion = new CountDownLatch(threads);
+    List<Thread> threadList = new ArrayList<>();
+    MetricsContext context = service.getContext(ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, "default",
+                                                                Constants.Metrics.Tag.APP, "app",
+                                                                Constants.Metrics.Tag.SPARK, "spark",
+                                                                Constants.Metrics.Tag.RUN_ID, "run"));
+    for (int i = 0; i < threads; i++) {
+      threadList.add(new Thread(() -> {
+        long count = 0;
+        while (!stopped.get()) {
+          // Check the stop flag every batch of emits
+          for (int j = 0; j < 1000; j++) {
+            context.increment(METRIC_NAMES[j & 3], 1L);
+          }
+          count += 1000;
+        }
+        emitted.add(count);
+        completion.countDown();
+      }));
+    }
+
+    long startTime = System.nanoTime();
+    threadList.forEach(Thread::start);
+    TimeUnit.SECONDS.sleep(duration);
+    stopped.set(true);
+    completion.await();
+    long elapsed = System.nanoTime() - startTime;
+    service.stopAndWait();
+
+    System.out.printf("threads=%d  increments/s=%,d  ns/increment per thread=%.1f  published=%s%n", threads,
+                      emitted.sum() * TimeUnit.SECONDS.toNanos(1) / elapsed,
+                      (double) elapsed * threads / emitted.sum(),
+                      published.sum() == emitted.sum() ? "all" : published.sum() + "/" + emitted.sum());
+  }
+
+  private MetricsCollectionBenchmark() {
+    // no-op
+  }
+}
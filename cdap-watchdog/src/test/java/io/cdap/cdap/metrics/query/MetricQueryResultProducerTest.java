@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.metrics.query;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.Gson;
+import io.cdap.cdap.proto.MetricQueryResult;
+import io.netty.buffer.ByteBuf;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Unit test for {@link MetricQueryResultProducer}.
+ */
+public class MetricQueryResultProducerTest {
+
+  private static final Gson GSON = new Gson();
+
+  @Test
+  public void testSingleResult() throws Exception {
+    MetricQueryResult result = createResult(1000, "app<&>'=", 60);
+    Assert.assertEquals(GSON.toJson(result), produce(new MetricQueryResultProducer(result)));
+
+    // Empty result
+    result = new MetricQueryResult(0, 100, new MetricQueryResult.TimeSeries[0], 1);
+    Assert.assertEquals(GSON.toJson(result), produce(new MetricQueryResultProducer(result)));
+  }
+
+  @Test
+  public void testBatchResults() throws Exception {
+    Map<String, MetricQueryResult> results = new LinkedHashMap<>();
+    results.put("query1", createResult(10, "app1", 1));
+    results.put("query\"2\"", createResult(500, "app2", 3600));
+    results.put("query3", new MetricQueryResult(0, 100, new MetricQueryResult.TimeSeries[0], 60));
+    Assert.assertEquals(GSON.toJson(results), produce(new MetricQueryResultProducer(results)));
+
+    // No query
+    results = Collections.emptyMap();
+    Assert.assertEquals(GSON.toJson(results), produce(new MetricQueryResultProducer(results)));
+  }
+
+  private MetricQueryResult createResult(int seriesCount, String app, int resolution) {
+    MetricQueryResult.TimeSeries[] series = new MetricQueryResult.TimeSeries[seriesCount];
+    for (int i = 0; i < seriesCount; i++) {
+      MetricQueryResult.TimeValue[] data = new MetricQueryResult.TimeValue[i % 20];
+      for (int j = 0; j < data.length; j++) {
+        data[j] = new MetricQueryResult.TimeValue(1650000000L + j * resolution, i * j);
+      }
+      Map<String, String> grouping = new HashMap<>(ImmutableMap.of("app", app, "run", "run" + i));
+      // Null values are omitted by Gson
+      grouping.put("instance", null);
+      series[i] = new MetricQueryResult.TimeSeries("system.process.events", grouping, data);
+    }
+    return new MetricQueryResult(1650000000L, 1650003600L, series, resolution);
+  }
+
+  private String produce(MetricQueryResultProducer producer) throws Exception {
+    StringBuilder json = new StringBuilder();
+    ByteBuf chunk = producer.nextChunk();
+    while (chunk.isReadable()) {
+      json.append(chunk.toString(StandardCharsets.UTF_8));
+      chunk.release();
+      chunk = producer.nextChunk();
+    }
+    producer.finished();
+    return json.toString();
+  }
+}